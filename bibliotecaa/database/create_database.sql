@@ -125,6 +125,8 @@ CREATE TABLE IF NOT EXISTS livro (
     data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_titulo (titulo),
     INDEX idx_isbn (isbn),
+    -- ISBN sem hífenes nem espaços (duplicados na importação de catálogo)
+    INDEX idx_isbn_normalizado ((REPLACE(REPLACE(isbn, '-', ''), ' ', ''))),
     INDEX idx_estado (estado),
     INDEX idx_editora (editora),
     CONSTRAINT chk_quantidade CHECK (quantidade_disponivel >= 0 AND quantidade_disponivel <= quantidade_total)
@@ -145,8 +147,10 @@ CREATE TABLE IF NOT EXISTS emprestimo (
     numero_renovacoes INT DEFAULT 0,
     estado ENUM('ATIVO', 'DEVOLVIDO', 'ATRASADO') DEFAULT 'ATIVO',
     valor_multa DECIMAL(10,2) DEFAULT 0.00,
+    chave_operacao BIGINT NULL,
     data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_chave_operacao (chave_operacao),
     INDEX idx_livro (livro_id),
     INDEX idx_membro (membro_id),
     INDEX idx_estado (estado),
@@ -249,6 +253,61 @@ CREATE TABLE IF NOT EXISTS notificacao (
     FOREIGN KEY (membro_id) REFERENCES membro(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ----------------------------------------------------------------------------
+-- Tabela: heartbeat_replica
+-- Descrição: Marca temporal gravada no primário para medir o atraso da réplica
+-- de leitura (db.read.lagMetodo=heartbeat)
+-- ----------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS heartbeat_replica (
+    id TINYINT PRIMARY KEY,
+    instante TIMESTAMP(6) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- MIGRAÇÕES (BASES CRIADAS POR VERSÕES ANTERIORES DO SCRIPT)
+-- ============================================================================
+-- Os CREATE TABLE IF NOT EXISTS acima não alteram tabelas que já existem.
+-- Cada passo verifica o information_schema e só altera o que falta, pelo que
+-- o script pode ser executado de novo sobre uma base existente.
+
+-- ----------------------------------------------------------------------------
+-- Migração: emprestimo.chave_operacao (diário de circulação)
+-- Descrição: Chave da operação do diário que criou o empréstimo; a chave
+-- única impede que a mesma operação seja aplicada duas vezes
+-- ----------------------------------------------------------------------------
+SET @coluna_existe := (
+    SELECT COUNT(*) FROM information_schema.COLUMNS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'emprestimo' AND COLUMN_NAME = 'chave_operacao'
+);
+SET @migracao := IF(@coluna_existe = 0,
+    'ALTER TABLE emprestimo ADD COLUMN chave_operacao BIGINT NULL AFTER valor_multa',
+    'DO 0');
+PREPARE stmt_migracao FROM @migracao;
+EXECUTE stmt_migracao;
+DEALLOCATE PREPARE stmt_migracao;
+
+SET @indice_existe := (
+    SELECT COUNT(*) FROM information_schema.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'emprestimo' AND INDEX_NAME = 'uk_chave_operacao'
+);
+SET @migracao := IF(@indice_existe = 0,
+    'ALTER TABLE emprestimo ADD UNIQUE KEY uk_chave_operacao (chave_operacao)',
+    'DO 0');
+PREPARE stmt_migracao FROM @migracao;
+EXECUTE stmt_migracao;
+DEALLOCATE PREPARE stmt_migracao;
+
+-- ----------------------------------------------------------------------------
+-- Migração: tabela diario_aplicado (diário de circulação)
+-- Descrição: Última operação do diário de circulação aplicada por cada origem
+-- (balcão); atualizada na mesma transação que as operações
+-- ----------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS diario_aplicado (
+    origem VARCHAR(100) PRIMARY KEY,
+    ultima_sequencia BIGINT NOT NULL DEFAULT 0,
+    data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- ============================================================================
 -- VIEWS (VISÕES)
 -- ============================================================================
@@ -370,6 +429,9 @@ DELIMITER //
 -- Descrição: Realiza um empréstimo de livro para um membro
 -- Parâmetros: livro_id, membro_id
 -- Retorno: Status da operação
+-- Concorrência: o membro é bloqueado (FOR UPDATE) e o exemplar é retirado
+-- com um UPDATE condicional, pelo que nunca se emprestam mais exemplares
+-- do que os disponíveis nem mais de 3 livros ao mesmo membro
 -- ----------------------------------------------------------------------------
 CREATE PROCEDURE sp_realizar_emprestimo(
     IN p_livro_id INT,
@@ -377,193 +439,238 @@ CREATE PROCEDURE sp_realizar_emprestimo(
     OUT p_status VARCHAR(100),
     OUT p_emprestimo_id INT
 )
-BEGIN
-    DECLARE v_qtd_disponivel INT;
+proc: BEGIN
     DECLARE v_membro_bloqueado BOOLEAN;
     DECLARE v_emprestimos_ativos INT;
     DECLARE v_multa DECIMAL(10,2);
 
-    -- Verifica disponibilidade do livro
-    SELECT quantidade_disponivel INTO v_qtd_disponivel
-    FROM livro WHERE id = p_livro_id;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
 
-    IF v_qtd_disponivel IS NULL THEN
-        SET p_status = 'ERRO: Livro não encontrado';
-        SET p_emprestimo_id = NULL;
+    SET p_emprestimo_id = NULL;
 
-    ELSEIF v_qtd_disponivel <= 0 THEN
-        SET p_status = 'ERRO: Livro não disponível';
-        SET p_emprestimo_id = NULL;
+    START TRANSACTION;
 
-    ELSE
-        -- Verifica situação do membro
-        SELECT bloqueado, multa_pendente INTO v_membro_bloqueado, v_multa
-        FROM membro WHERE id = p_membro_id;
-
-        IF v_membro_bloqueado THEN
-            SET p_status = 'ERRO: Membro bloqueado';
-            SET p_emprestimo_id = NULL;
+    -- Verifica situação do membro (bloqueia a linha até ao fim da transação)
+    SELECT bloqueado, multa_pendente INTO v_membro_bloqueado, v_multa
+    FROM membro WHERE id = p_membro_id
+    FOR UPDATE;
 
-        ELSEIF v_multa > 1000.00 THEN
-            SET p_status = 'ERRO: Multa pendente excede o limite';
-            SET p_emprestimo_id = NULL;
+    IF v_membro_bloqueado IS NULL THEN
+        ROLLBACK;
+        SET p_status = 'ERRO: Membro não encontrado';
+        LEAVE proc;
+    END IF;
 
-        ELSE
-            -- Conta empréstimos ativos do membro
-            SELECT COUNT(*) INTO v_emprestimos_ativos
-            FROM emprestimo
-            WHERE membro_id = p_membro_id AND estado = 'ATIVO';
+    IF v_membro_bloqueado THEN
+        ROLLBACK;
+        SET p_status = 'ERRO: Membro bloqueado';
+        LEAVE proc;
+    END IF;
 
-            IF v_emprestimos_ativos >= 3 THEN
-                SET p_status = 'ERRO: Membro já possui 3 empréstimos ativos';
-                SET p_emprestimo_id = NULL;
+    IF v_multa > 1000.00 THEN
+        ROLLBACK;
+        SET p_status = 'ERRO: Multa pendente excede o limite';
+        LEAVE proc;
+    END IF;
 
-            ELSE
-                -- Realiza o empréstimo
-                START TRANSACTION;
+    -- Conta empréstimos ativos do membro
+    SELECT COUNT(*) INTO v_emprestimos_ativos
+    FROM emprestimo
+    WHERE membro_id = p_membro_id AND estado = 'ATIVO';
 
-                INSERT INTO emprestimo (livro_id, membro_id, data_emprestimo, data_devolucao_prevista, estado)
-                VALUES (p_livro_id, p_membro_id, CURRENT_DATE, DATE_ADD(CURRENT_DATE, INTERVAL 14 DAY), 'ATIVO');
+    IF v_emprestimos_ativos >= 3 THEN
+        ROLLBACK;
+        SET p_status = 'ERRO: Membro já possui 3 empréstimos ativos';
+        LEAVE proc;
+    END IF;
 
-                SET p_emprestimo_id = LAST_INSERT_ID();
+    -- Retira um exemplar só se ainda houver algum disponível
+    UPDATE livro
+    SET quantidade_disponivel = quantidade_disponivel - 1,
+        estado = CASE
+            WHEN quantidade_disponivel = 0 THEN 'EMPRESTADO'
+            ELSE 'DISPONIVEL'
+        END
+    WHERE id = p_livro_id AND quantidade_disponivel > 0;
+
+    IF ROW_COUNT() = 0 THEN
+        ROLLBACK;
+        IF EXISTS(SELECT 1 FROM livro WHERE id = p_livro_id) THEN
+            SET p_status = 'ERRO: Livro não disponível';
+        ELSE
+            SET p_status = 'ERRO: Livro não encontrado';
+        END IF;
+        LEAVE proc;
+    END IF;
 
-                -- Atualiza quantidade disponível do livro
-                UPDATE livro
-                SET quantidade_disponivel = quantidade_disponivel - 1
-                WHERE id = p_livro_id;
+    INSERT INTO emprestimo (livro_id, membro_id, data_emprestimo, data_devolucao_prevista, estado)
+    VALUES (p_livro_id, p_membro_id, CURRENT_DATE, DATE_ADD(CURRENT_DATE, INTERVAL 14 DAY), 'ATIVO');
 
-                -- Atualiza estado do livro se necessário
-                UPDATE livro
-                SET estado = CASE
-                    WHEN quantidade_disponivel = 0 THEN 'EMPRESTADO'
-                    ELSE 'DISPONIVEL'
-                END
-                WHERE id = p_livro_id;
+    SET p_emprestimo_id = LAST_INSERT_ID();
 
-                COMMIT;
+    COMMIT;
 
-                SET p_status = 'SUCESSO: Empréstimo realizado';
-            END IF;
-        END IF;
-    END IF;
+    SET p_status = 'SUCESSO: Empréstimo realizado';
 END //
 
 -- ----------------------------------------------------------------------------
 -- Procedure: sp_devolver_livro
 -- Descrição: Registra a devolução de um livro emprestado
--- Parâmetros: emprestimo_id
+-- Parâmetros: emprestimo_id, data da devolução (NULL = data atual)
+-- Concorrência: o empréstimo é bloqueado (FOR UPDATE), pelo que duas
+-- devoluções simultâneas não devolvem o exemplar duas vezes
 -- ----------------------------------------------------------------------------
 CREATE PROCEDURE sp_devolver_livro(
     IN p_emprestimo_id INT,
+    IN p_data_devolucao DATE,
     OUT p_status VARCHAR(100),
     OUT p_multa DECIMAL(10,2)
 )
-BEGIN
+proc: BEGIN
     DECLARE v_livro_id INT;
     DECLARE v_membro_id INT;
     DECLARE v_data_prevista DATE;
+    DECLARE v_data_devolucao DATE;
     DECLARE v_dias_atraso INT;
     DECLARE v_estado VARCHAR(20);
 
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    SET p_multa = 0.00;
+    SET v_data_devolucao = COALESCE(p_data_devolucao, CURRENT_DATE);
+
+    START TRANSACTION;
+
     -- Busca informações do empréstimo
     SELECT livro_id, membro_id, data_devolucao_prevista, estado
     INTO v_livro_id, v_membro_id, v_data_prevista, v_estado
-    FROM emprestimo WHERE id = p_emprestimo_id;
+    FROM emprestimo WHERE id = p_emprestimo_id
+    FOR UPDATE;
 
     IF v_livro_id IS NULL THEN
+        ROLLBACK;
         SET p_status = 'ERRO: Empréstimo não encontrado';
-        SET p_multa = 0.00;
+        LEAVE proc;
+    END IF;
 
-    ELSEIF v_estado = 'DEVOLVIDO' THEN
+    IF v_estado = 'DEVOLVIDO' THEN
+        ROLLBACK;
         SET p_status = 'ERRO: Livro já foi devolvido';
-        SET p_multa = 0.00;
+        LEAVE proc;
+    END IF;
 
-    ELSE
-        -- Calcula multa se houver atraso
-        SET v_dias_atraso = GREATEST(0, DATEDIFF(CURRENT_DATE, v_data_prevista));
-        SET p_multa = v_dias_atraso * 50.00;
-
-        START TRANSACTION;
-
-        -- Atualiza o empréstimo
-        UPDATE emprestimo
-        SET data_devolucao_real = CURRENT_DATE,
-            estado = 'DEVOLVIDO',
-            valor_multa = p_multa
-        WHERE id = p_emprestimo_id;
-
-        -- Devolve o livro (incrementa quantidade disponível)
-        UPDATE livro
-        SET quantidade_disponivel = quantidade_disponivel + 1,
-            estado = 'DISPONIVEL'
-        WHERE id = v_livro_id;
-
-        -- Adiciona multa ao membro se houver atraso
-        IF p_multa > 0 THEN
-            UPDATE membro
-            SET multa_pendente = multa_pendente + p_multa
-            WHERE id = v_membro_id;
-        END IF;
+    -- Calcula multa se houver atraso
+    SET v_dias_atraso = GREATEST(0, DATEDIFF(v_data_devolucao, v_data_prevista));
+    SET p_multa = v_dias_atraso * 50.00;
 
-        COMMIT;
+    -- Atualiza o empréstimo
+    UPDATE emprestimo
+    SET data_devolucao_real = v_data_devolucao,
+        estado = 'DEVOLVIDO',
+        valor_multa = p_multa
+    WHERE id = p_emprestimo_id;
+
+    -- Adiciona multa ao membro se houver atraso (antes do livro: mesma ordem
+    -- de bloqueio que sp_realizar_emprestimo)
+    IF p_multa > 0 THEN
+        UPDATE membro
+        SET multa_pendente = multa_pendente + p_multa
+        WHERE id = v_membro_id;
+    END IF;
 
-        IF p_multa > 0 THEN
-            SET p_status = CONCAT('SUCESSO: Livro devolvido com ', v_dias_atraso, ' dias de atraso');
-        ELSE
-            SET p_status = 'SUCESSO: Livro devolvido no prazo';
-        END IF;
+    -- Devolve o livro (incrementa quantidade disponível)
+    UPDATE livro
+    SET quantidade_disponivel = quantidade_disponivel + 1,
+        estado = 'DISPONIVEL'
+    WHERE id = v_livro_id AND quantidade_disponivel < quantidade_total;
+
+    COMMIT;
+
+    IF p_multa > 0 THEN
+        SET p_status = CONCAT('SUCESSO: Livro devolvido com ', v_dias_atraso, ' dias de atraso');
+    ELSE
+        SET p_status = 'SUCESSO: Livro devolvido no prazo';
     END IF;
 END //
 
 -- ----------------------------------------------------------------------------
 -- Procedure: sp_renovar_emprestimo
 -- Descrição: Renova um empréstimo (estende prazo de devolução)
--- Parâmetros: emprestimo_id
+-- Parâmetros: emprestimo_id, nova data prevista (NULL = mais 14 dias)
 -- ----------------------------------------------------------------------------
 CREATE PROCEDURE sp_renovar_emprestimo(
     IN p_emprestimo_id INT,
+    IN p_nova_data DATE,
     OUT p_status VARCHAR(100)
 )
-BEGIN
+proc: BEGIN
     DECLARE v_livro_id INT;
     DECLARE v_numero_renovacoes INT;
     DECLARE v_estado VARCHAR(20);
     DECLARE v_tem_reserva BOOLEAN;
 
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    START TRANSACTION;
+
     -- Busca informações do empréstimo
     SELECT livro_id, numero_renovacoes, estado
     INTO v_livro_id, v_numero_renovacoes, v_estado
-    FROM emprestimo WHERE id = p_emprestimo_id;
+    FROM emprestimo WHERE id = p_emprestimo_id
+    FOR UPDATE;
 
     IF v_livro_id IS NULL THEN
+        ROLLBACK;
         SET p_status = 'ERRO: Empréstimo não encontrado';
+        LEAVE proc;
+    END IF;
 
-    ELSEIF v_estado != 'ATIVO' THEN
+    IF v_estado != 'ATIVO' THEN
+        ROLLBACK;
         SET p_status = 'ERRO: Apenas empréstimos ativos podem ser renovados';
+        LEAVE proc;
+    END IF;
 
-    ELSEIF v_numero_renovacoes >= 2 THEN
+    IF v_numero_renovacoes >= 2 THEN
+        ROLLBACK;
         SET p_status = 'ERRO: Limite de renovações atingido (máximo 2)';
+        LEAVE proc;
+    END IF;
 
-    ELSE
-        -- Verifica se há reserva ativa para o livro
-        SELECT EXISTS(
-            SELECT 1 FROM reserva
-            WHERE livro_id = v_livro_id AND ativa = TRUE
-        ) INTO v_tem_reserva;
+    -- Verifica se há reserva ativa para o livro
+    SELECT EXISTS(
+        SELECT 1 FROM reserva
+        WHERE livro_id = v_livro_id AND ativa = TRUE
+    ) INTO v_tem_reserva;
 
-        IF v_tem_reserva THEN
-            SET p_status = 'ERRO: Livro possui reserva ativa, não pode ser renovado';
+    IF v_tem_reserva THEN
+        ROLLBACK;
+        SET p_status = 'ERRO: Livro possui reserva ativa, não pode ser renovado';
+        LEAVE proc;
+    END IF;
 
-        ELSE
-            -- Renova o empréstimo
-            UPDATE emprestimo
-            SET data_devolucao_prevista = DATE_ADD(data_devolucao_prevista, INTERVAL 14 DAY),
-                numero_renovacoes = numero_renovacoes + 1
-            WHERE id = p_emprestimo_id;
+    -- Renova o empréstimo
+    UPDATE emprestimo
+    SET data_devolucao_prevista = COALESCE(p_nova_data,
+            DATE_ADD(data_devolucao_prevista, INTERVAL 14 DAY)),
+        numero_renovacoes = numero_renovacoes + 1
+    WHERE id = p_emprestimo_id;
 
-            SET p_status = 'SUCESSO: Empréstimo renovado por mais 14 dias';
-        END IF;
-    END IF;
+    COMMIT;
+
+    SET p_status = 'SUCESSO: Empréstimo renovado';
 END //
 
 -- ----------------------------------------------------------------------------
@@ -765,10 +872,14 @@ ON DUPLICATE KEY UPDATE funcionario_id = funcionario_id;
 -- Índices compostos para consultas frequentes
 CREATE INDEX idx_emprestimo_membro_estado ON emprestimo(membro_id, estado);
 CREATE INDEX idx_emprestimo_livro_estado ON emprestimo(livro_id, estado);
-CREATE INDEX idx_reserva_livro_ativa ON reserva(livro_id, ativa);
+-- Fila de reservas de um livro: (livro_id, ativa) com ordem por data_reserva, id
+CREATE INDEX idx_reserva_livro_ativa_data ON reserva(livro_id, ativa, data_reserva);
 CREATE INDEX idx_reserva_membro_ativa ON reserva(membro_id, ativa);
 CREATE INDEX idx_livro_estado_disponivel ON livro(estado, quantidade_disponivel);
 
+-- Paginação keyset (ORDER BY p.nome, p.id) na listagem de membros
+CREATE INDEX idx_pessoa_nome ON pessoa(nome);
+
 -- ============================================================================
 -- PERMISSÕES E SEGURANÇA
 -- ============================================================================
@@ -1,5 +1,7 @@
 package isptec.biblioteca;
 
+import isptec.biblioteca.servidor.ServidorApi;
+
 /**
  * Classe Launcher para iniciar a aplicação JavaFX.
  * Esta classe é necessária para contornar o problema
@@ -7,10 +9,17 @@ package isptec.biblioteca;
  * a aplicação diretamente sem o plugin Maven.
  *
  * Use esta classe como ponto de entrada principal.
+ *
+ * Com {@code --servidor [porta]} arranca sem interface, só com a API HTTP
+ * dos serviços ({@link ServidorApi}).
  */
 public class Launcher {
 
     public static void main(String[] args) {
+        if (args.length > 0 && "--servidor".equals(args[0])) {
+            ServidorApi.executar(args);
+            return;
+        }
         Program.main(args);
     }
 }
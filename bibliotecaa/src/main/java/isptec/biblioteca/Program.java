@@ -25,6 +25,12 @@ public class Program extends Application {
         loginView.show();
     }
 
+    @Override
+    public void stop() {
+        // Deixa terminar as tarefas de fundo e o diário de circulação
+        ServiceFactory.encerrar();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,7 +1,28 @@
 package isptec.biblioteca;
 
+import isptec.biblioteca.agendamento.Agendador;
+import isptec.biblioteca.diario.DiarioCirculacao;
+import isptec.biblioteca.diario.EscritorDiferido;
+import isptec.biblioteca.eventos.BarramentoEventos;
+import isptec.biblioteca.eventos.EventoDominio;
+import isptec.biblioteca.eventos.EventoLivro;
+import isptec.biblioteca.eventos.LivroAtualizado;
+import isptec.biblioteca.eventos.ReservaExpirada;
+import isptec.biblioteca.repository.impl.Repositorios;
 import isptec.biblioteca.service.*;
 import isptec.biblioteca.service.impl.*;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service Factory - Fábrica de serviços do sistema.
@@ -22,6 +43,15 @@ public final class ServiceFactory {
     private ReservaService reservaService;
     private IAService iaService;
 
+    // Escrita diferida dos empréstimos (null se desativada)
+    private EscritorDiferido escritorCirculacao;
+
+    // Assinantes do barramento de eventos ligados por esta fábrica
+    private final List<BarramentoEventos.Subscricao> subscricoes = new ArrayList<>();
+
+    // Tarefas de fundo e prazos de reservas e empréstimos
+    private Agendador agendador;
+
     private ServiceFactory() {
         initializeServices();
     }
@@ -42,6 +72,10 @@ public final class ServiceFactory {
      * Inicializa todos os serviços com suas dependências.
      */
     private void initializeServices() {
+        encerrarAgendador();
+        encerrarEscritaDiferida();
+        desligarEventos();
+
         // Inicializa serviços básicos
         authService = new AuthServiceImpl();
         livroService = new LivroServiceImpl();
@@ -51,15 +85,222 @@ public final class ServiceFactory {
         // Inicializa serviço de reserva
         reservaService = new ReservaServiceImpl();
 
-        // Inicializa serviço de empréstimo com dependência de reserva
-        EmprestimoServiceImpl emprestimoImpl = new EmprestimoServiceImpl();
-        emprestimoImpl.setReservaService(reservaService);
-        emprestimoService = emprestimoImpl;
+        // Inicializa serviço de empréstimo: circulação atómica no banco
+        // (circulacao.modo=atomico) ou em memória com dependência de reserva
+        if ("atomico".equalsIgnoreCase(DatabaseManager.getInstance().getPropriedade("circulacao.modo"))) {
+            emprestimoService = new EmprestimoServiceAtomicoImpl();
+        } else {
+            EmprestimoServiceImpl emprestimoImpl = new EmprestimoServiceImpl();
+            emprestimoImpl.setReservaService(reservaService);
+            ativarEscritaDiferida(emprestimoImpl);
+            emprestimoService = emprestimoImpl;
+        }
 
         // Inicializa serviço de IA com dependência de livro
         IAServiceImpl iaImpl = new IAServiceImpl();
         iaImpl.setLivroService(livroService);
         iaService = iaImpl;
+
+        ligarEventos();
+        iniciarAgendador();
+    }
+
+    /**
+     * Inicia o agendador: prazos de reservas e empréstimos em temporizadores
+     * e as tarefas de fundo, que correm uma vez já para recuperar o tempo em
+     * que a aplicação esteve parada:
+     * <ul>
+     *   <li>expirar-reservas (cron agendador.cron.reservas): reservas vencidas
+     *       que nenhum temporizador deste posto cobre;</li>
+     *   <li>marcar-atrasados (cron agendador.cron.atrasados): estado ATRASADO
+     *       dos empréstimos, também no banco;</li>
+     *   <li>notificar-reservas (a cada agendador.notificacaoMinutos): livros
+     *       devolvidos noutros postos.</li>
+     * </ul>
+     */
+    private void iniciarAgendador() {
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        agendador = new Agendador(Integer.parseInt(propriedade(dbManager, "agendador.threads", "2")));
+
+        if (reservaService instanceof ReservaServiceImpl) {
+            ((ReservaServiceImpl) reservaService).ativarAgendamento(agendador);
+        }
+        if (emprestimoService instanceof EmprestimoServiceImpl) {
+            ((EmprestimoServiceImpl) emprestimoService).ativarAgendamento(agendador);
+        } else if (emprestimoService instanceof EmprestimoServiceAtomicoImpl) {
+            ((EmprestimoServiceAtomicoImpl) emprestimoService).ativarAgendamento(agendador);
+        }
+
+        ReservaService reservas = reservaService;
+        EmprestimoService emprestimos = emprestimoService;
+        boolean marcarNoBanco = escritorCirculacao != null;
+        try {
+            agendador.agendarCron("expirar-reservas", propriedade(dbManager, "agendador.cron.reservas", "5 0 * * *"),
+                    reservas::processarReservasExpiradas).executarAgora();
+            agendador.agendarCron("marcar-atrasados", propriedade(dbManager, "agendador.cron.atrasados", "1 0 * * *"),
+                    () -> {
+                        emprestimos.atualizarEstadoEmprestimos();
+                        if (marcarNoBanco) {
+                            // Empréstimos em memória gravados pelo diário
+                            Repositorios.emprestimos().marcarAtrasados();
+                        }
+                    }).executarAgora();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro ao agendar tarefas: " + e.getMessage());
+        }
+        long minutos = Long.parseLong(propriedade(dbManager, "agendador.notificacaoMinutos", "15"));
+        if (minutos > 0) {
+            long periodo = minutos * 60_000;
+            agendador.agendarPeriodica("notificar-reservas", periodo, periodo, reservas::notificarDisponibilidade);
+        }
+    }
+
+    private static String propriedade(DatabaseManager dbManager, String chave, String padrao) {
+        String valor = dbManager.getPropriedade(chave);
+        return valor == null || valor.isBlank() ? padrao : valor.trim();
+    }
+
+    /**
+     * Para o agendador, deixando terminar as tarefas em curso.
+     */
+    public void encerrarAgendador() {
+        if (agendador != null) {
+            if (!agendador.encerrar(5000)) {
+                System.err.println("Tarefas do agendador interrompidas ao encerrar");
+            }
+            agendador = null;
+        }
+    }
+
+    /**
+     * Encerra os serviços de fundo (agendador, diário e eventos), se a
+     * fábrica chegou a ser criada. Chamado ao fechar a aplicação.
+     */
+    public static synchronized void encerrar() {
+        if (instance != null) {
+            instance.encerrarAgendador();
+            instance.encerrarEscritaDiferida();
+            instance.desligarEventos();
+        }
+    }
+
+    public Agendador getAgendador() {
+        return agendador;
+    }
+
+    /**
+     * Liga os serviços ao barramento de eventos: empréstimos e devoluções
+     * atualizam a disponibilidade no índice do catálogo, livros importados
+     * entram no índice, e livros que ficam disponíveis (ou reservas que
+     * expiram) notificam só as reservas desses livros. Ambos em lotes, fora da thread da operação; se a fila de um
+     * deles encher, é ressincronizado por inteiro (todo o catálogo
+     * reindexado, ou todas as reservas por notificar).
+     */
+    private void ligarEventos() {
+        BarramentoEventos barramento = BarramentoEventos.getInstance();
+
+        if (livroService instanceof LivroServiceImpl) {
+            LivroServiceImpl livroImpl = (LivroServiceImpl) livroService;
+            subscricoes.add(barramento.subscreverAssincrono("eventos-indice", EventoLivro.class, 1024, 256,
+                    eventos -> {
+                        // Fica a última disponibilidade de cada livro no lote
+                        Map<Integer, Boolean> disponibilidade = new LinkedHashMap<>();
+                        Set<Integer> cadastrados = new LinkedHashSet<>();
+                        for (EventoLivro evento : eventos) {
+                            if (!(evento instanceof LivroAtualizado)) {
+                                disponibilidade.put(evento.getLivroId(), evento.isLivroDisponivel());
+                            } else if (((LivroAtualizado) evento).getTipo() == LivroAtualizado.Tipo.CADASTRADO) {
+                                // Os do serviço já estão indexados; os da importação só chegam assim
+                                cadastrados.add(evento.getLivroId());
+                            }
+                        }
+                        livroImpl.indexarCadastrados(cadastrados);
+                        for (Map.Entry<Integer, Boolean> entrada : disponibilidade.entrySet()) {
+                            livroImpl.atualizarDisponibilidade(entrada.getKey(), entrada.getValue());
+                        }
+                    }, livroImpl::ressincronizarIndice));
+        }
+
+        if (reservaService instanceof ReservaServiceImpl) {
+            ReservaServiceImpl reservaImpl = (ReservaServiceImpl) reservaService;
+            subscricoes.add(barramento.subscreverAssincrono("eventos-reservas", EventoDominio.class, 1024, 256,
+                    eventos -> {
+                        Set<Integer> livros = new LinkedHashSet<>();
+                        for (EventoDominio evento : eventos) {
+                            if (evento instanceof EventoLivro && ((EventoLivro) evento).isLivroDisponivel()) {
+                                livros.add(((EventoLivro) evento).getLivroId());
+                            } else if (evento instanceof ReservaExpirada
+                                    && ((ReservaExpirada) evento).getLivroId() != 0) {
+                                livros.add(((ReservaExpirada) evento).getLivroId());
+                            }
+                        }
+                        reservaImpl.notificarDisponibilidade(livros);
+                    }, reservaImpl::notificarDisponibilidade));
+        }
+    }
+
+    private void desligarEventos() {
+        for (BarramentoEventos.Subscricao subscricao : subscricoes) {
+            subscricao.cancelar();
+        }
+        subscricoes.clear();
+    }
+
+    /**
+     * Ativa a escrita diferida dos empréstimos se a propriedade
+     * circulacao.diario.dir indicar o diretório do diário. A origem
+     * (circulacao.diario.origem) identifica o balcão; por omissão é o
+     * nome da máquina.
+     */
+    private void ativarEscritaDiferida(EmprestimoServiceImpl emprestimoImpl) {
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        String diretorio = dbManager.getPropriedade("circulacao.diario.dir");
+        if (diretorio == null || diretorio.isBlank()) {
+            return;
+        }
+        String origem = dbManager.getPropriedade("circulacao.diario.origem");
+        if (origem == null || origem.isBlank()) {
+            origem = nomeMaquina();
+        }
+
+        DiarioCirculacao diario = null;
+        try {
+            diario = DiarioCirculacao.abrir(Paths.get(diretorio));
+            EscritorDiferido escritor = new EscritorDiferido(diario, origem);
+            emprestimoImpl.ativarEscritaDiferida(escritor);
+            escritorCirculacao = escritor;
+        } catch (IOException | SQLException e) {
+            System.err.println("Erro ao ativar diário de circulação: " + e.getMessage());
+            if (diario != null) {
+                try {
+                    diario.close();
+                } catch (IOException ignored) {
+                    // Já em erro
+                }
+            }
+        }
+    }
+
+    /**
+     * Para a escrita diferida; o que não foi gravado fica no diário.
+     */
+    public void encerrarEscritaDiferida() {
+        if (escritorCirculacao != null) {
+            try {
+                escritorCirculacao.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar diário de circulação: " + e.getMessage());
+            }
+            escritorCirculacao = null;
+        }
+    }
+
+    private static String nomeMaquina() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "balcao";
+        }
     }
 
     /**
@@ -0,0 +1,353 @@
+package isptec.biblioteca.agendamento;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agendador de tarefas de fundo sobre uma {@link RodaTemporal}.
+ *
+ * Uma thread de relógio avança a roda a cada {@link #TICK_MS} ms e entrega
+ * o que venceu a um pequeno conjunto de threads de trabalho. Aceita:
+ * <ul>
+ *   <li>tarefas periódicas (taxa fixa) e tarefas cron ({@link ExpressaoCron}),
+ *       com métricas por tarefa; se uma execução ainda não terminou quando
+ *       chega a seguinte, a seguinte é saltada e contada como sobreposição;</li>
+ *   <li>temporizadores de uma só vez ({@link #agendarEm(long, Runnable)}),
+ *       para transições de estado com data marcada (expiração de reservas,
+ *       atraso de empréstimos), canceláveis em O(1).</li>
+ * </ul>
+ * {@link #encerrar(long)} para o relógio e deixa terminar as execuções em
+ * curso até ao tempo indicado.
+ */
+public final class Agendador implements AutoCloseable {
+
+    /** Resolução do agendador */
+    public static final long TICK_MS = 1000;
+
+    private final RodaTemporal roda;
+    private final ScheduledExecutorService relogio;
+    private final ExecutorService trabalho;
+    private final List<Tarefa> tarefas = new CopyOnWriteArrayList<>();
+    private final LongAdder disparos = new LongAdder();
+    private volatile boolean encerrado;
+
+    /**
+     * Tarefa recorrente e as suas métricas.
+     */
+    public final class Tarefa {
+        private final String nome;
+        private final String descricao;
+        private final ExpressaoCron cron;
+        private final long periodoMs;
+        private final Runnable acao;
+        private final AtomicBoolean emExecucao = new AtomicBoolean();
+        private final LongAdder execucoes = new LongAdder();
+        private final LongAdder falhas = new LongAdder();
+        private final LongAdder sobreposicoes = new LongAdder();
+        private final LongAdder duracaoTotalNs = new LongAdder();
+        private volatile long duracaoMaximaNs;
+        private volatile long ultimaExecucao;
+        private volatile long proximaExecucao;
+        private volatile RodaTemporal.Temporizador temporizador;
+        private volatile boolean cancelada;
+
+        private Tarefa(String nome, ExpressaoCron cron, long periodoMs, Runnable acao) {
+            this.nome = nome;
+            this.cron = cron;
+            this.periodoMs = periodoMs;
+            this.acao = acao;
+            this.descricao = cron != null ? "cron " + cron : "a cada " + periodoMs + " ms";
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public String getDescricao() {
+            return descricao;
+        }
+
+        public long getExecucoes() {
+            return execucoes.sum();
+        }
+
+        /** Execuções que lançaram exceção */
+        public long getFalhas() {
+            return falhas.sum();
+        }
+
+        /** Disparos saltados por a execução anterior ainda não ter terminado */
+        public long getSobreposicoes() {
+            return sobreposicoes.sum();
+        }
+
+        public double getDuracaoMediaMs() {
+            long n = execucoes.sum();
+            return n == 0 ? 0 : duracaoTotalNs.sum() / 1_000_000.0 / n;
+        }
+
+        public double getDuracaoMaximaMs() {
+            return duracaoMaximaNs / 1_000_000.0;
+        }
+
+        /** Início da última execução (ms desde a época), ou 0 */
+        public long getUltimaExecucao() {
+            return ultimaExecucao;
+        }
+
+        /** Próximo disparo (ms desde a época), ou 0 se cancelada */
+        public long getProximaExecucao() {
+            return cancelada ? 0 : proximaExecucao;
+        }
+
+        public boolean isEmExecucao() {
+            return emExecucao.get();
+        }
+
+        /**
+         * Executa já, fora do calendário (por exemplo, para recuperar o que
+         * ficou por fazer enquanto a aplicação esteve parada).
+         *
+         * @return false se já estava em execução
+         */
+        public boolean executarAgora() {
+            if (cancelada || encerrado || !emExecucao.compareAndSet(false, true)) {
+                return false;
+            }
+            try {
+                trabalho.execute(this::executar);
+                return true;
+            } catch (RejectedExecutionException e) {
+                emExecucao.set(false);
+                return false;
+            }
+        }
+
+        /** Deixa de disparar; uma execução em curso termina normalmente */
+        public void cancelar() {
+            cancelada = true;
+            RodaTemporal.Temporizador atual = temporizador;
+            if (atual != null) {
+                atual.cancelar();
+            }
+            tarefas.remove(this);
+        }
+
+        /** Agenda o disparo seguinte ao instante */
+        private void agendarDepois(long instanteMs) {
+            long proxima;
+            if (cron != null) {
+                LocalDateTime depois = LocalDateTime.ofInstant(Instant.ofEpochMilli(instanteMs), ZoneId.systemDefault());
+                proxima = cron.proxima(depois).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } else {
+                proxima = proximaExecucao + periodoMs;
+                if (proxima <= instanteMs) {
+                    // Atrasada (por exemplo, máquina suspensa): não repete os disparos perdidos
+                    proxima = instanteMs + periodoMs - Math.floorMod(instanteMs - proximaExecucao, periodoMs);
+                }
+            }
+            proximaExecucao = proxima;
+            temporizador = roda.agendar(proxima, this::disparar);
+            if (cancelada) {
+                // Cancelada enquanto disparava
+                temporizador.cancelar();
+            }
+        }
+
+        /** Corre na thread do relógio */
+        private void disparar() {
+            if (cancelada || encerrado) {
+                return;
+            }
+            agendarDepois(System.currentTimeMillis());
+            if (!emExecucao.compareAndSet(false, true)) {
+                sobreposicoes.increment();
+                return;
+            }
+            try {
+                trabalho.execute(this::executar);
+            } catch (RejectedExecutionException e) {
+                emExecucao.set(false);
+            }
+        }
+
+        private void executar() {
+            long inicio = System.nanoTime();
+            ultimaExecucao = System.currentTimeMillis();
+            try {
+                acao.run();
+            } catch (RuntimeException e) {
+                falhas.increment();
+                System.err.println("Erro na tarefa " + nome + ": " + e.getMessage());
+            } finally {
+                long duracao = System.nanoTime() - inicio;
+                execucoes.increment();
+                duracaoTotalNs.add(duracao);
+                if (duracao > duracaoMaximaNs) {
+                    duracaoMaximaNs = duracao;
+                }
+                emExecucao.set(false);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{%s, execucoes=%d, falhas=%d, sobreposicoes=%d, media=%.1fms, max=%.1fms}",
+                    nome, descricao, getExecucoes(), getFalhas(), getSobreposicoes(),
+                    getDuracaoMediaMs(), getDuracaoMaximaMs());
+        }
+    }
+
+    /**
+     * @param threads threads de trabalho (execuções simultâneas de tarefas diferentes)
+     */
+    public Agendador(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("O agendador precisa de pelo menos uma thread");
+        }
+        this.roda = new RodaTemporal(TICK_MS, System.currentTimeMillis());
+        this.relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "agendador-relogio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger contador = new AtomicInteger();
+        this.trabalho = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "agendador-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        relogio.scheduleAtFixedRate(this::avancar, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tarefa de taxa fixa: dispara após o atraso inicial e depois a cada
+     * período, contado a partir do disparo anterior (não do fim da execução).
+     */
+    public Tarefa agendarPeriodica(String nome, long atrasoInicialMs, long periodoMs, Runnable acao) {
+        if (periodoMs < TICK_MS) {
+            throw new IllegalArgumentException("Período inferior à resolução do agendador: " + periodoMs + " ms");
+        }
+        Tarefa tarefa = new Tarefa(nome, null, periodoMs, acao);
+        tarefa.proximaExecucao = System.currentTimeMillis() + Math.max(atrasoInicialMs, 0);
+        tarefa.temporizador = roda.agendar(tarefa.proximaExecucao, tarefa::disparar);
+        tarefas.add(tarefa);
+        return tarefa;
+    }
+
+    /**
+     * Tarefa nas ocorrências da expressão cron (hora local).
+     *
+     * @throws IllegalArgumentException se a expressão for inválida
+     */
+    public Tarefa agendarCron(String nome, String expressao, Runnable acao) {
+        Tarefa tarefa = new Tarefa(nome, new ExpressaoCron(expressao), 0, acao);
+        tarefa.agendarDepois(System.currentTimeMillis());
+        tarefas.add(tarefa);
+        return tarefa;
+    }
+
+    /**
+     * Executa a ação uma vez, numa thread de trabalho, no instante indicado
+     * (ms desde a época); um instante passado executa no próximo tick.
+     */
+    public RodaTemporal.Temporizador agendarEm(long instanteMs, Runnable acao) {
+        return roda.agendar(instanteMs, () -> executarUmaVez(acao));
+    }
+
+    /**
+     * Executa a ação uma vez no início do dia indicado (hora local).
+     */
+    public RodaTemporal.Temporizador agendarEm(LocalDate dia, Runnable acao) {
+        return agendarEm(dia.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli(), acao);
+    }
+
+    public List<Tarefa> getTarefas() {
+        return new ArrayList<>(tarefas);
+    }
+
+    /** Temporizadores na roda (incluindo o próximo disparo de cada tarefa) */
+    public int getTemporizadoresPendentes() {
+        return roda.getPendentes();
+    }
+
+    /** Temporizadores de uma só vez já executados */
+    public long getDisparos() {
+        return disparos.sum();
+    }
+
+    public boolean isEncerrado() {
+        return encerrado;
+    }
+
+    /**
+     * Para o relógio e espera que as execuções em curso terminem.
+     *
+     * @return false se ainda havia execuções ao fim da espera (são interrompidas)
+     */
+    public boolean encerrar(long esperaMs) {
+        encerrado = true;
+        relogio.shutdownNow();
+        trabalho.shutdown();
+        try {
+            if (trabalho.awaitTermination(esperaMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        trabalho.shutdownNow();
+        return false;
+    }
+
+    @Override
+    public void close() {
+        encerrar(5000);
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /** Corpo da thread do relógio */
+    private void avancar() {
+        for (Runnable vencida : roda.avancar(System.currentTimeMillis())) {
+            try {
+                vencida.run();
+            } catch (RuntimeException e) {
+                // Uma falha não pode parar o relógio
+                System.err.println("Erro no relógio do agendador: " + e.getMessage());
+            }
+        }
+    }
+
+    private void executarUmaVez(Runnable acao) {
+        if (encerrado) {
+            return;
+        }
+        try {
+            trabalho.execute(() -> {
+                try {
+                    acao.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Erro em temporizador do agendador: " + e.getMessage());
+                } finally {
+                    disparos.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Encerrado entretanto
+        }
+    }
+}
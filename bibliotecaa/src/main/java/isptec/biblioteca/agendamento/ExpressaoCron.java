@@ -0,0 +1,148 @@
+package isptec.biblioteca.agendamento;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Expressão cron de cinco campos: minuto, hora, dia do mês, mês e dia da
+ * semana (0 ou 7 = domingo). Cada campo aceita "*", valores, intervalos
+ * "a-b", listas separadas por vírgulas e passos "/n" (por exemplo
+ * "0 2 * * *" todos os dias às 02:00, "*&#47;15 8-18 * * 1-5" a cada 15
+ * minutos em horário de expediente).
+ *
+ * Como no cron clássico, se o dia do mês e o dia da semana estiverem ambos
+ * restringidos basta coincidir um deles.
+ */
+public final class ExpressaoCron {
+
+    // Procura no máximo estes anos à frente (ex.: "0 0 30 2 *" nunca ocorre)
+    private static final int ANOS_PROCURA = 5;
+
+    private final String expressao;
+    private final long minutos;
+    private final long horas;
+    private final long diasMes;
+    private final long meses;
+    private final long diasSemana;
+    private final boolean qualquerDiaMes;
+    private final boolean qualquerDiaSemana;
+
+    /**
+     * @throws IllegalArgumentException se a expressão for inválida
+     */
+    public ExpressaoCron(String expressao) {
+        if (expressao == null) {
+            throw new IllegalArgumentException("Expressão cron vazia");
+        }
+        String[] campos = expressao.trim().split("\\s+");
+        if (campos.length != 5) {
+            throw new IllegalArgumentException("Expressão cron deve ter 5 campos: " + expressao);
+        }
+        this.expressao = expressao.trim();
+        this.minutos = campo(campos[0], 0, 59);
+        this.horas = campo(campos[1], 0, 23);
+        this.diasMes = campo(campos[2], 1, 31);
+        this.meses = campo(campos[3], 1, 12);
+        long semana = campo(campos[4], 0, 7);
+        // 7 também é domingo
+        this.diasSemana = (semana & (1L << 7)) != 0 ? semana | 1L : semana;
+        this.qualquerDiaMes = campos[2].equals("*");
+        this.qualquerDiaSemana = campos[4].equals("*");
+    }
+
+    /**
+     * Primeira ocorrência estritamente depois do instante.
+     *
+     * @throws IllegalArgumentException se não ocorrer nos próximos anos
+     */
+    public LocalDateTime proxima(LocalDateTime depois) {
+        LocalDateTime t = depois.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        LocalDateTime fim = t.plusYears(ANOS_PROCURA);
+        while (t.isBefore(fim)) {
+            if (!contem(meses, t.getMonthValue())) {
+                t = t.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!diaCoincide(t)) {
+                t = t.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!contem(horas, t.getHour())) {
+                t = t.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!contem(minutos, t.getMinute())) {
+                t = t.plusMinutes(1);
+            } else {
+                return t;
+            }
+        }
+        throw new IllegalArgumentException("Expressão cron sem ocorrências: " + expressao);
+    }
+
+    @Override
+    public String toString() {
+        return expressao;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private boolean diaCoincide(LocalDateTime t) {
+        boolean mes = contem(diasMes, t.getDayOfMonth());
+        // DayOfWeek: segunda = 1 ... domingo = 7
+        DayOfWeek dia = t.getDayOfWeek();
+        boolean semana = contem(diasSemana, dia == DayOfWeek.SUNDAY ? 0 : dia.getValue());
+        if (qualquerDiaMes || qualquerDiaSemana) {
+            return mes && semana;
+        }
+        return mes || semana;
+    }
+
+    private static boolean contem(long conjunto, int valor) {
+        return (conjunto & (1L << valor)) != 0;
+    }
+
+    /** Bits dos valores do campo entre min e max */
+    private static long campo(String texto, int min, int max) {
+        long bits = 0;
+        for (String parte : texto.split(",")) {
+            int passo = 1;
+            String intervalo = parte;
+            int barra = parte.indexOf('/');
+            if (barra >= 0) {
+                passo = numero(parte.substring(barra + 1), 1, max, parte);
+                intervalo = parte.substring(0, barra);
+            }
+            int inicio;
+            int fim;
+            if (intervalo.equals("*")) {
+                inicio = min;
+                fim = max;
+            } else {
+                int traco = intervalo.indexOf('-');
+                if (traco >= 0) {
+                    inicio = numero(intervalo.substring(0, traco), min, max, parte);
+                    fim = numero(intervalo.substring(traco + 1), min, max, parte);
+                } else {
+                    inicio = numero(intervalo, min, max, parte);
+                    // "5/10" vai de 5 até ao fim
+                    fim = barra >= 0 ? max : inicio;
+                }
+            }
+            if (inicio > fim) {
+                throw new IllegalArgumentException("Intervalo cron inválido: " + parte);
+            }
+            for (int valor = inicio; valor <= fim; valor += passo) {
+                bits |= 1L << valor;
+            }
+        }
+        return bits;
+    }
+
+    private static int numero(String texto, int min, int max, String parte) {
+        try {
+            int valor = Integer.parseInt(texto);
+            if (valor < min || valor > max) {
+                throw new IllegalArgumentException("Valor cron fora do intervalo " + min + "-" + max + ": " + parte);
+            }
+            return valor;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor cron inválido: " + parte);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package isptec.biblioteca.agendamento;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Roda temporal hierárquica (timing wheel) para temporizadores de uma só vez.
+ *
+ * São {@link #NIVEIS} rodas de {@link #RANHURAS} ranhuras: a do nível 0
+ * avança um tick por ranhura, e cada ranhura de um nível acima cobre uma
+ * volta inteira do nível de baixo. Um temporizador fica na ranhura do nível
+ * mais baixo que alcança o seu tick; quando a roda de baixo dá a volta, a
+ * ranhura seguinte do nível de cima desce (é redistribuída) para os níveis
+ * inferiores. Agendar e cancelar são O(1), e avançar um tick é O(1) mais os
+ * temporizadores que vencem ou descem nesse tick.
+ *
+ * Com ticks de um segundo o alcance é de cerca de 194 dias; temporizadores
+ * mais distantes ficam na última ranhura do nível de cima e voltam a ser
+ * colocados quando ela desce.
+ *
+ * A roda não tem thread própria: quem a usa chama {@link #avancar(long)}
+ * periodicamente e executa as ações vencidas que recebe.
+ */
+public final class RodaTemporal {
+
+    static final int BITS = 6;
+    static final int RANHURAS = 1 << BITS;
+    static final int NIVEIS = 4;
+    private static final int MASCARA = RANHURAS - 1;
+    private static final long ALCANCE = 1L << (BITS * NIVEIS);
+
+    private final long tickMs;
+    // Sentinela da lista circular de cada ranhura
+    private final Temporizador[][] ranhuras = new Temporizador[NIVEIS][RANHURAS];
+    // Próximo tick a processar
+    private long atual;
+    private int pendentes;
+
+    /**
+     * Temporizador agendado; pode ser cancelado até vencer.
+     */
+    public final class Temporizador {
+        private final Runnable acao;
+        private final long tick;
+        private Temporizador anterior;
+        private Temporizador seguinte;
+
+        private Temporizador(Runnable acao, long tick) {
+            this.acao = acao;
+            this.tick = tick;
+        }
+
+        /** Instante (ms desde a época) em que vence */
+        public long getInstante() {
+            return tick * tickMs;
+        }
+
+        public boolean isPendente() {
+            synchronized (RodaTemporal.this) {
+                return anterior != null;
+            }
+        }
+
+        /**
+         * @return false se já tinha vencido ou sido cancelado
+         */
+        public boolean cancelar() {
+            synchronized (RodaTemporal.this) {
+                if (anterior == null) {
+                    return false;
+                }
+                desligar(this);
+                pendentes--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param tickMs  duração de um tick
+     * @param agoraMs instante inicial (ms desde a época)
+     */
+    public RodaTemporal(long tickMs, long agoraMs) {
+        if (tickMs < 1) {
+            throw new IllegalArgumentException("Tick tem de ser positivo");
+        }
+        this.tickMs = tickMs;
+        this.atual = agoraMs / tickMs;
+        for (int nivel = 0; nivel < NIVEIS; nivel++) {
+            for (int i = 0; i < RANHURAS; i++) {
+                Temporizador sentinela = new Temporizador(null, 0);
+                sentinela.anterior = sentinela;
+                sentinela.seguinte = sentinela;
+                ranhuras[nivel][i] = sentinela;
+            }
+        }
+    }
+
+    /**
+     * Agenda a ação para o primeiro tick a partir do instante; um instante
+     * já passado vence no próximo avanço.
+     */
+    public synchronized Temporizador agendar(long instanteMs, Runnable acao) {
+        long tick = Math.max(Math.floorDiv(instanteMs + tickMs - 1, tickMs), atual);
+        Temporizador temporizador = new Temporizador(acao, tick);
+        inserir(temporizador);
+        pendentes++;
+        return temporizador;
+    }
+
+    /**
+     * Avança a roda até ao instante e devolve, por ordem de vencimento, as
+     * ações dos temporizadores que venceram.
+     */
+    public synchronized List<Runnable> avancar(long agoraMs) {
+        List<Runnable> vencidas = new ArrayList<>();
+        long limite = Math.floorDiv(agoraMs, tickMs);
+        if (pendentes == 0) {
+            // Nada agendado: salta os ticks vazios
+            atual = Math.max(atual, limite + 1);
+            return vencidas;
+        }
+        while (atual <= limite) {
+            int indice = (int) (atual & MASCARA);
+            if (indice == 0) {
+                for (int nivel = 1; nivel < NIVEIS; nivel++) {
+                    int ranhura = (int) ((atual >> (BITS * nivel)) & MASCARA);
+                    descer(nivel, ranhura);
+                    if (ranhura != 0) {
+                        break;
+                    }
+                }
+            }
+            Temporizador sentinela = ranhuras[0][indice];
+            while (sentinela.seguinte != sentinela) {
+                Temporizador temporizador = sentinela.seguinte;
+                desligar(temporizador);
+                pendentes--;
+                vencidas.add(temporizador.acao);
+            }
+            atual++;
+            if (pendentes == 0) {
+                atual = Math.max(atual, limite + 1);
+            }
+        }
+        return vencidas;
+    }
+
+    /** Temporizadores ainda por vencer */
+    public synchronized int getPendentes() {
+        return pendentes;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void inserir(Temporizador temporizador) {
+        long alvo = temporizador.tick;
+        long delta = alvo - atual;
+        if (delta >= ALCANCE) {
+            // Fora do alcance: fica no fim do nível de cima até descer
+            alvo = atual + ALCANCE - 1;
+            delta = ALCANCE - 1;
+        }
+        int nivel = 0;
+        while (nivel < NIVEIS - 1 && delta >= (1L << (BITS * (nivel + 1)))) {
+            nivel++;
+        }
+        Temporizador sentinela = ranhuras[nivel][(int) ((alvo >> (BITS * nivel)) & MASCARA)];
+        temporizador.anterior = sentinela.anterior;
+        temporizador.seguinte = sentinela;
+        sentinela.anterior.seguinte = temporizador;
+        sentinela.anterior = temporizador;
+    }
+
+    /** Redistribui a ranhura pelos níveis de baixo */
+    private void descer(int nivel, int ranhura) {
+        Temporizador sentinela = ranhuras[nivel][ranhura];
+        Temporizador temporizador = sentinela.seguinte;
+        sentinela.anterior = sentinela;
+        sentinela.seguinte = sentinela;
+        while (temporizador != sentinela) {
+            Temporizador seguinte = temporizador.seguinte;
+            inserir(temporizador);
+            temporizador = seguinte;
+        }
+    }
+
+    private static void desligar(Temporizador temporizador) {
+        temporizador.anterior.seguinte = temporizador.seguinte;
+        temporizador.seguinte.anterior = temporizador.anterior;
+        temporizador.anterior = null;
+        temporizador.seguinte = null;
+    }
+}
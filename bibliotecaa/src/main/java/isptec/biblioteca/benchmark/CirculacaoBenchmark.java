@@ -0,0 +1,314 @@
+package isptec.biblioteca.benchmark;
+
+import isptec.biblioteca.dao.CirculacaoDAO;
+import isptec.biblioteca.dao.EmprestimoDAO;
+import isptec.biblioteca.dao.LivroDAO;
+import isptec.biblioteca.model.entities.Emprestimo;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.ResultadoCirculacao;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark concorrente de empréstimo + devolução.
+ *
+ * Compara o caminho atual (ler a quantidade, verificar em Java, inserir o
+ * empréstimo e gravar a nova quantidade, cada passo numa ida ao banco) com
+ * a circulação atómica do {@link CirculacaoDAO} (uma chamada ao
+ * procedimento por operação). Cada thread usa um membro diferente e
+ * disputa um livro de teste com poucos exemplares.
+ *
+ * Mostra o débito (operações/s), o maior excesso de empréstimos ATIVO sobre
+ * a quantidade_total do livro visto no banco durante a execução ("a mais",
+ * amostrado por uma thread à parte) e o desvio final do stock.
+ *
+ * Uso: java isptec.biblioteca.benchmark.CirculacaoBenchmark [--threads N] [--ciclos N] [--exemplares N]
+ * Cria um livro temporário e apaga-o no fim, com os seus empréstimos.
+ */
+public final class CirculacaoBenchmark {
+
+    private final DatabaseManager dbManager = DatabaseManager.getInstance();
+    private final EmprestimoDAO emprestimoDAO = new EmprestimoDAO();
+    private final LivroDAO livroDAO = new LivroDAO();
+    private final CirculacaoDAO circulacaoDAO = new CirculacaoDAO();
+
+    private final int threads;
+    private final int ciclos;
+    private final int exemplares;
+
+    private CirculacaoBenchmark(int threads, int ciclos, int exemplares) {
+        this.threads = threads;
+        this.ciclos = ciclos;
+        this.exemplares = exemplares;
+    }
+
+    /**
+     * Um empréstimo seguido de devolução, por um dos caminhos.
+     */
+    private interface Ciclo {
+        /**
+         * @return ID do empréstimo, ou 0 se foi recusado
+         */
+        int emprestar(int livroId, int membroId) throws SQLException;
+
+        void devolver(int livroId, int emprestimoId) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = 16;
+        int ciclos = 200;
+        int exemplares = 3;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int valor = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "--threads":
+                    threads = valor;
+                    break;
+                case "--ciclos":
+                    ciclos = valor;
+                    break;
+                case "--exemplares":
+                    exemplares = valor;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+            }
+        }
+
+        CirculacaoBenchmark benchmark = new CirculacaoBenchmark(threads, ciclos, exemplares);
+        try {
+            benchmark.executar();
+        } finally {
+            DatabaseManager.getInstance().closePool();
+        }
+    }
+
+    private void executar() throws Exception {
+        List<Integer> membros = membrosElegiveis(threads);
+        if (membros.isEmpty()) {
+            System.out.println("Nenhum membro elegível para empréstimos na base.");
+            return;
+        }
+        System.out.println("Threads: " + membros.size() + " | ciclos por thread: " + ciclos +
+                           " | exemplares: " + exemplares);
+        System.out.printf("%-8s %10s %10s %10s %10s %8s %8s%n",
+                "Modo", "Ciclos", "Recusados", "Erros", "Ops/s", "A mais", "Desvio");
+
+        // Aquecimento (JIT, pool e cache de procedimentos)
+        medir("atomico", membros, new CicloAtomico(), false);
+
+        medir("atual", membros, new CicloAtual(), true);
+        medir("atomico", membros, new CicloAtomico(), true);
+    }
+
+    private void medir(String modo, List<Integer> membros, Ciclo ciclo, boolean imprimir) throws Exception {
+        int livroId = criarLivroTeste();
+        AtomicInteger concluidos = new AtomicInteger();
+        AtomicInteger recusados = new AtomicInteger();
+        AtomicInteger erros = new AtomicInteger();
+        AtomicInteger aMais = new AtomicInteger();
+        CountDownLatch partida = new CountDownLatch(1);
+        CountDownLatch fim = new CountDownLatch(1);
+        List<Thread> trabalhadores = new ArrayList<>();
+
+        try {
+            for (int membroId : membros) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        partida.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < ciclos; i++) {
+                        try {
+                            int emprestimoId = ciclo.emprestar(livroId, membroId);
+                            if (emprestimoId == 0) {
+                                recusados.incrementAndGet();
+                                continue;
+                            }
+                            ciclo.devolver(livroId, emprestimoId);
+                            concluidos.incrementAndGet();
+                        } catch (SQLException e) {
+                            erros.incrementAndGet();
+                        }
+                    }
+                });
+                trabalhadores.add(thread);
+                thread.start();
+            }
+
+            // Os empréstimos em curso contam-se no banco: um contador em Java só
+            // veria a sobreposição entre o fim de um empréstimo e o fim de outra devolução
+            Thread amostragem = new Thread(() -> amostrarExcesso(livroId, aMais, fim), "benchmark-amostragem");
+            amostragem.setDaemon(true);
+            amostragem.start();
+
+            long inicio = System.nanoTime();
+            partida.countDown();
+            for (Thread thread : trabalhadores) {
+                thread.join();
+            }
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            fim.countDown();
+            amostragem.join();
+
+            if (imprimir) {
+                int operacoes = concluidos.get() * 2 + recusados.get();
+                int desvio = lerDisponivel(livroId) - exemplares;
+                System.out.printf("%-8s %10d %10d %10d %10.0f %8d %8d%n", modo, concluidos.get(),
+                        recusados.get(), erros.get(), operacoes / segundos, aMais.get(), desvio);
+            }
+        } finally {
+            apagarLivroTeste(livroId);
+        }
+    }
+
+    // === CAMINHOS MEDIDOS ===
+
+    /**
+     * Caminho atual: verificar em Java e gravar a quantidade lida menos um.
+     */
+    private final class CicloAtual implements Ciclo {
+        @Override
+        public int emprestar(int livroId, int membroId) throws SQLException {
+            int disponivel = lerDisponivel(livroId);
+            if (disponivel <= 0 || emprestimoDAO.countAtivosByMembro(membroId) >= Membro.MAX_EMPRESTIMOS_ATIVOS) {
+                return 0;
+            }
+            Livro livro = new Livro();
+            livro.setId(livroId);
+            Membro membro = new Membro();
+            membro.setId(membroId);
+            int id = emprestimoDAO.insert(new Emprestimo(0, livro, membro));
+            livroDAO.updateQuantidadeDisponivel(livroId, disponivel - 1);
+            return id;
+        }
+
+        @Override
+        public void devolver(int livroId, int emprestimoId) throws SQLException {
+            emprestimoDAO.registrarDevolucao(emprestimoId);
+            livroDAO.updateQuantidadeDisponivel(livroId, lerDisponivel(livroId) + 1);
+        }
+    }
+
+    /**
+     * Circulação atómica: uma chamada ao procedimento por operação.
+     */
+    private final class CicloAtomico implements Ciclo {
+        @Override
+        public int emprestar(int livroId, int membroId) throws SQLException {
+            ResultadoCirculacao resultado = circulacaoDAO.realizarEmprestimo(livroId, membroId);
+            return resultado.isSucesso() ? resultado.getEmprestimoId() : 0;
+        }
+
+        @Override
+        public void devolver(int livroId, int emprestimoId) throws SQLException {
+            circulacaoDAO.devolverLivro(emprestimoId, null);
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Enquanto os trabalhadores correm, compara os empréstimos ATIVO do livro
+     * com a sua quantidade_total (numa só leitura) e guarda o maior excesso.
+     */
+    private void amostrarExcesso(int livroId, AtomicInteger maiorExcesso, CountDownLatch fim) {
+        String sql = "SELECT (SELECT COUNT(*) FROM emprestimo e WHERE e.livro_id = l.id AND e.estado = 'ATIVO') " +
+                     "- l.quantidade_total FROM livro l WHERE l.id = ?";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, livroId);
+            do {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        maiorExcesso.accumulateAndGet(rs.getInt(1), Math::max);
+                    }
+                }
+            } while (!fim.await(1, TimeUnit.MILLISECONDS));
+        } catch (SQLException e) {
+            System.err.println("Erro ao amostrar empréstimos em curso: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Integer> membrosElegiveis(int limite) throws SQLException {
+        String sql = "SELECT m.id FROM membro m WHERE m.bloqueado = FALSE AND m.multa_pendente <= 1000 " +
+                     "AND (SELECT COUNT(*) FROM emprestimo e WHERE e.membro_id = m.id AND e.estado = 'ATIVO') < ? " +
+                     "ORDER BY m.id LIMIT ?";
+        List<Integer> ids = new ArrayList<>();
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, Membro.MAX_EMPRESTIMOS_ATIVOS);
+            stmt.setInt(2, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private int criarLivroTeste() throws SQLException {
+        String sql = "INSERT INTO livro (titulo, quantidade_total, quantidade_disponivel, estado) " +
+                     "VALUES (?, ?, ?, 'DISPONIVEL')";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, "Benchmark de circulação " + System.nanoTime());
+            stmt.setInt(2, exemplares);
+            stmt.setInt(3, exemplares);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void apagarLivroTeste(int livroId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM historico_acao WHERE tabela_afetada = 'emprestimo' AND registro_id IN " +
+                    "(SELECT id FROM emprestimo WHERE livro_id = ?)")) {
+                stmt.setInt(1, livroId);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM emprestimo WHERE livro_id = ?")) {
+                stmt.setInt(1, livroId);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM livro WHERE id = ?")) {
+                stmt.setInt(1, livroId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private int lerDisponivel(int livroId) throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT quantidade_disponivel FROM livro WHERE id = ?")) {
+            stmt.setInt(1, livroId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package isptec.biblioteca.benchmark;
+
+import isptec.biblioteca.dao.AutorDAO;
+import isptec.biblioteca.dao.CategoriaDAO;
+import isptec.biblioteca.dao.LivroGraphLoader;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark do carregamento do grafo de Livro (autores e categorias).
+ *
+ * Compara, para vários tamanhos de catálogo, o carregamento antigo
+ * (2 consultas por livro, cada uma numa conexão nova do pool) com o
+ * carregamento em lote do {@link LivroGraphLoader} (uma consulta IN (...)
+ * por associação, na mesma conexão). Mostra o número de consultas e a latência.
+ *
+ * Uso: java isptec.biblioteca.benchmark.LivroGraphBenchmark [tamanhos...] [--repeticoes N]
+ * Os tamanhos acima do número de livros existentes na base são limitados a esse número.
+ */
+public final class LivroGraphBenchmark {
+
+    private static final int[] TAMANHOS_PADRAO = {100, 1000, 5000, 10000, 40000};
+
+    /** Acima deste tamanho o modo antigo não é medido (demoraria minutos) */
+    private static final int LIMITE_MODO_ANTIGO = 5000;
+
+    private final DatabaseManager dbManager = DatabaseManager.getInstance();
+    private final AutorDAO autorDAO = new AutorDAO();
+    private final CategoriaDAO categoriaDAO = new CategoriaDAO();
+    private final LivroGraphLoader graphLoader = new LivroGraphLoader(autorDAO, categoriaDAO);
+
+    private LivroGraphBenchmark() {
+    }
+
+    public static void main(String[] args) throws SQLException {
+        List<Integer> tamanhos = new ArrayList<>();
+        int repeticoes = 3;
+
+        for (int i = 0; i < args.length; i++) {
+            if ("--repeticoes".equals(args[i]) && i + 1 < args.length) {
+                repeticoes = Integer.parseInt(args[++i]);
+            } else {
+                tamanhos.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (tamanhos.isEmpty()) {
+            for (int tamanho : TAMANHOS_PADRAO) {
+                tamanhos.add(tamanho);
+            }
+        }
+
+        LivroGraphBenchmark benchmark = new LivroGraphBenchmark();
+        try {
+            benchmark.executar(tamanhos, repeticoes);
+        } finally {
+            DatabaseManager.getInstance().closePool();
+        }
+    }
+
+    private void executar(List<Integer> tamanhos, int repeticoes) throws SQLException {
+        int totalLivros = contarLivros();
+        System.out.println("Livros na base: " + totalLivros + " | repetições: " + repeticoes);
+        System.out.printf("%-8s %-8s %10s %12s %14s%n", "Livros", "Modo", "Consultas", "Média (ms)", "ms/livro");
+
+        for (int pedido : tamanhos) {
+            int tamanho = Math.min(pedido, totalLivros);
+            if (tamanho == 0) {
+                continue;
+            }
+
+            // Aquecimento (JIT e pool)
+            medirLote(tamanho);
+
+            if (tamanho <= LIMITE_MODO_ANTIGO) {
+                imprimir(tamanho, "antigo", medir(tamanho, repeticoes, false));
+            } else {
+                System.out.printf("%-8d %-8s %10s %12s %14s%n", tamanho, "antigo", "-", "(omitido)", "-");
+            }
+            imprimir(tamanho, "lote", medir(tamanho, repeticoes, true));
+        }
+    }
+
+    private long[] medir(int tamanho, int repeticoes, boolean lote) throws SQLException {
+        long totalNanos = 0;
+        long consultas = 0;
+        for (int i = 0; i < repeticoes; i++) {
+            long inicio = System.nanoTime();
+            consultas = lote ? medirLote(tamanho) : medirAntigo(tamanho);
+            totalNanos += System.nanoTime() - inicio;
+        }
+        return new long[]{consultas, totalNanos / repeticoes};
+    }
+
+    private void imprimir(int tamanho, String modo, long[] resultado) {
+        double ms = resultado[1] / 1_000_000.0;
+        System.out.printf("%-8d %-8s %10d %12.1f %14.4f%n", tamanho, modo, resultado[0], ms, ms / tamanho);
+    }
+
+    /** Carregamento antigo: 1 + 2N consultas, cada associação numa conexão nova. */
+    private long medirAntigo(int tamanho) throws SQLException {
+        List<Livro> livros = carregarPagina(tamanho);
+        for (Livro livro : livros) {
+            livro.setAutores(autorDAO.findByLivroId(livro.getId()));
+            livro.setCategorias(categoriaDAO.findByLivroId(livro.getId()));
+        }
+        return 1 + 2L * livros.size();
+    }
+
+    /** Carregamento em lote: 1 + 2 consultas por bloco de IDs, tudo na mesma conexão. */
+    private long medirLote(int tamanho) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            List<Livro> livros = carregarPagina(conn, tamanho);
+            return 1 + graphLoader.carregar(conn, livros);
+        }
+    }
+
+    private List<Livro> carregarPagina(int tamanho) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            return carregarPagina(conn, tamanho);
+        }
+    }
+
+    private List<Livro> carregarPagina(Connection conn, int tamanho) throws SQLException {
+        String sql = "SELECT id, titulo FROM livro ORDER BY titulo LIMIT ?";
+        List<Livro> livros = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, tamanho);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Livro livro = new Livro();
+                    livro.setId(rs.getInt("id"));
+                    livro.setTitulo(rs.getString("titulo"));
+                    livros.add(livro);
+                }
+            }
+        }
+        return livros;
+    }
+
+    private int contarLivros() throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM livro");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package isptec.biblioteca.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Analisador de texto para a pesquisa no catálogo.
+ *
+ * Divide em palavras (letras e dígitos), remove acentos, passa a
+ * minúsculas, descarta palavras vazias (português e inglês, por haver
+ * títulos em inglês) e aplica uma radicalização leve de plurais e do
+ * sufixo -mente: "Programações" e "programacao" dão o mesmo termo.
+ */
+public final class AnalisadorPortugues {
+
+    /** Palavras com mais caracteres do que isto são ignoradas */
+    public static final int TAMANHO_MAXIMO_TERMO = 40;
+
+    private static final Set<String> PALAVRAS_VAZIAS = new HashSet<>(Arrays.asList(
+            "a", "o", "as", "os", "ao", "aos", "de", "da", "do", "das", "dos", "e", "em",
+            "no", "na", "nos", "nas", "um", "uma", "uns", "umas", "para", "por", "com", "que",
+            "se", "the", "of", "and", "to", "in", "an"));
+
+    /** Letra sem acento e em minúscula para cada carácter até U+024F */
+    private static final char[] DOBRAGEM = new char[0x250];
+
+    static {
+        for (char c = 0; c < DOBRAGEM.length; c++) {
+            String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            DOBRAGEM[c] = Character.toLowerCase(base.charAt(0));
+        }
+    }
+
+    private AnalisadorPortugues() {
+        // Impede instanciação
+    }
+
+    /**
+     * Termos do texto, pela ordem em que aparecem (com repetições).
+     */
+    public static List<String> analisar(String texto) {
+        List<String> termos = new ArrayList<>();
+        if (texto == null) {
+            return termos;
+        }
+        StringBuilder palavra = new StringBuilder();
+        for (int i = 0; i <= texto.length(); i++) {
+            char c = i < texto.length() ? texto.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                palavra.append(dobrar(c));
+            } else if (palavra.length() > 0) {
+                String termo = termo(palavra.toString());
+                if (termo != null) {
+                    termos.add(termo);
+                }
+                palavra.setLength(0);
+            }
+        }
+        return termos;
+    }
+
+    /**
+     * ISBN como um único termo (só dígitos e X), para encontrar
+     * "9780132350884" e "978-0132350884" da mesma forma.
+     */
+    public static String termoIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (Character.isDigit(c)) {
+                sb.append(c);
+            } else if (c == 'x' || c == 'X') {
+                sb.append('x');
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    /**
+     * Forma normalizada (sem acentos, minúsculas) de um carácter.
+     */
+    static char dobrar(char c) {
+        if (c < DOBRAGEM.length) {
+            return DOBRAGEM[c];
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Texto sem acentos e em minúsculas, com os espaços seguidos reduzidos a
+     * um e sem espaços nas pontas (como TextoUtil.chave, sem expressões
+     * regulares).
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(texto.length());
+        boolean espaco = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (Character.isWhitespace(c)) {
+                espaco = sb.length() > 0;
+            } else {
+                if (espaco) {
+                    sb.append(' ');
+                    espaco = false;
+                }
+                sb.append(dobrar(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static String termo(String palavra) {
+        if (palavra.length() > TAMANHO_MAXIMO_TERMO || PALAVRAS_VAZIAS.contains(palavra)) {
+            return null;
+        }
+        return radical(palavra);
+    }
+
+    /**
+     * Radicalização leve: plurais regulares e irregulares comuns e -mente.
+     */
+    static String radical(String termo) {
+        int n = termo.length();
+        if (n <= 3 || !Character.isLetter(termo.charAt(n - 1))) {
+            return termo;
+        }
+        if (n > 7 && termo.endsWith("mente")) {
+            return termo.substring(0, n - 5);
+        }
+        if (termo.endsWith("coes")) {
+            return termo.substring(0, n - 4) + "cao";
+        }
+        if (termo.endsWith("oes") || termo.endsWith("aes")) {
+            return termo.substring(0, n - 3) + "ao";
+        }
+        if (n > 4 && termo.endsWith("ais")) {
+            return termo.substring(0, n - 3) + "al";
+        }
+        if (n > 4 && termo.endsWith("eis")) {
+            return termo.substring(0, n - 3) + "el";
+        }
+        if (n > 4 && termo.endsWith("ois")) {
+            return termo.substring(0, n - 3) + "ol";
+        }
+        if (termo.endsWith("ns")) {
+            return termo.substring(0, n - 2) + "m";
+        }
+        if (n > 4 && (termo.endsWith("res") || termo.endsWith("zes"))) {
+            return termo.substring(0, n - 2);
+        }
+        if (termo.endsWith("s") && !termo.endsWith("ss")) {
+            return termo.substring(0, n - 1);
+        }
+        return termo;
+    }
+}
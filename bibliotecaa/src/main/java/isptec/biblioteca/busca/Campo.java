@@ -0,0 +1,20 @@
+package isptec.biblioteca.busca;
+
+/**
+ * Campos do livro indexados pela pesquisa no catálogo.
+ */
+public enum Campo {
+    TITULO,
+    AUTOR,
+    CATEGORIA,
+    EDITORA,
+    ISBN,
+    DESCRICAO;
+
+    /**
+     * Bit do campo nas máscaras das postagens.
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+}
@@ -0,0 +1,28 @@
+package isptec.biblioteca.busca;
+
+/**
+ * Valor de uma faceta e número de livros do resultado que o têm.
+ */
+public class ContagemFaceta {
+
+    private final String valor;
+    private final int contagem;
+
+    public ContagemFaceta(String valor, int contagem) {
+        this.valor = valor;
+        this.contagem = contagem;
+    }
+
+    public String getValor() {
+        return valor;
+    }
+
+    public int getContagem() {
+        return contagem;
+    }
+
+    @Override
+    public String toString() {
+        return valor + " (" + contagem + ")";
+    }
+}
@@ -0,0 +1,42 @@
+package isptec.biblioteca.busca;
+
+import java.util.List;
+
+/**
+ * Extrai de um livro os campos que o {@link IndiceCatalogo} indexa.
+ *
+ * Permite usar o mesmo índice com as entidades do banco e com o modelo
+ * simples das telas; ver {@link DescritoresLivro}.
+ *
+ * @param <T> tipo do livro
+ */
+public interface DescritorLivro<T> {
+
+    /**
+     * Identificador único do livro; também desempata a ordem por título,
+     * pelo que deve ser Comparable consigo mesmo.
+     */
+    Comparable<?> id(T livro);
+
+    String titulo(T livro);
+
+    List<String> autores(T livro);
+
+    List<String> categorias(T livro);
+
+    String editora(T livro);
+
+    String isbn(T livro);
+
+    String descricao(T livro);
+
+    /**
+     * Ano de publicação, 0 se desconhecido.
+     */
+    int ano(T livro);
+
+    /**
+     * Se há exemplares que podem ser emprestados.
+     */
+    boolean disponivel(T livro);
+}
@@ -0,0 +1,134 @@
+package isptec.biblioteca.busca;
+
+import isptec.biblioteca.model.entities.Autor;
+import isptec.biblioteca.model.entities.Categoria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Descritores dos dois modelos de livro da aplicação.
+ */
+public final class DescritoresLivro {
+
+    /** Entidade do banco (LivroService) */
+    public static final DescritorLivro<isptec.biblioteca.model.entities.Livro> ENTIDADE = new Entidade();
+
+    /** Modelo das telas (LibraryService) */
+    public static final DescritorLivro<isptec.biblioteca.model.Livro> MODELO = new Modelo();
+
+    private DescritoresLivro() {
+        // Classe utilitária
+    }
+
+    private static final class Entidade implements DescritorLivro<isptec.biblioteca.model.entities.Livro> {
+        @Override
+        public Comparable<?> id(isptec.biblioteca.model.entities.Livro livro) {
+            return livro.getId();
+        }
+
+        @Override
+        public String titulo(isptec.biblioteca.model.entities.Livro livro) {
+            return livro.getTitulo();
+        }
+
+        @Override
+        public List<String> autores(isptec.biblioteca.model.entities.Livro livro) {
+            List<String> nomes = new ArrayList<>();
+            if (livro.getAutores() != null) {
+                for (Autor autor : livro.getAutores()) {
+                    nomes.add(autor.getNome());
+                }
+            }
+            return nomes;
+        }
+
+        @Override
+        public List<String> categorias(isptec.biblioteca.model.entities.Livro livro) {
+            List<String> nomes = new ArrayList<>();
+            if (livro.getCategorias() != null) {
+                for (Categoria categoria : livro.getCategorias()) {
+                    nomes.add(categoria.getNome());
+                }
+            }
+            return nomes;
+        }
+
+        @Override
+        public String editora(isptec.biblioteca.model.entities.Livro livro) {
+            return livro.getEditora();
+        }
+
+        @Override
+        public String isbn(isptec.biblioteca.model.entities.Livro livro) {
+            return livro.getIsbn();
+        }
+
+        @Override
+        public String descricao(isptec.biblioteca.model.entities.Livro livro) {
+            return livro.getDescricao();
+        }
+
+        @Override
+        public int ano(isptec.biblioteca.model.entities.Livro livro) {
+            return livro.getAnoPublicacao();
+        }
+
+        @Override
+        public boolean disponivel(isptec.biblioteca.model.entities.Livro livro) {
+            return livro.estaDisponivel();
+        }
+    }
+
+    private static final class Modelo implements DescritorLivro<isptec.biblioteca.model.Livro> {
+        @Override
+        public Comparable<?> id(isptec.biblioteca.model.Livro livro) {
+            return livro.getId();
+        }
+
+        @Override
+        public String titulo(isptec.biblioteca.model.Livro livro) {
+            return livro.getTitulo();
+        }
+
+        @Override
+        public List<String> autores(isptec.biblioteca.model.Livro livro) {
+            return umOuNenhum(livro.getAutor());
+        }
+
+        @Override
+        public List<String> categorias(isptec.biblioteca.model.Livro livro) {
+            return umOuNenhum(livro.getCategoria());
+        }
+
+        @Override
+        public String editora(isptec.biblioteca.model.Livro livro) {
+            return livro.getEditora();
+        }
+
+        @Override
+        public String isbn(isptec.biblioteca.model.Livro livro) {
+            return livro.getIsbn();
+        }
+
+        @Override
+        public String descricao(isptec.biblioteca.model.Livro livro) {
+            return livro.getDescricao();
+        }
+
+        @Override
+        public int ano(isptec.biblioteca.model.Livro livro) {
+            return livro.getAno();
+        }
+
+        @Override
+        public boolean disponivel(isptec.biblioteca.model.Livro livro) {
+            return livro.isDisponivel();
+        }
+
+        private static List<String> umOuNenhum(String valor) {
+            return valor == null || valor.isBlank() ? Collections.emptyList() : Collections.singletonList(valor);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package isptec.biblioteca.busca;
+
+/**
+ * Facetas contadas na pesquisa ranqueada do catálogo.
+ */
+public enum Faceta {
+    CATEGORIA,
+    EDITORA,
+    ANO_PUBLICACAO,
+    DISPONIBILIDADE
+}
@@ -0,0 +1,1253 @@
+package isptec.biblioteca.busca;
+
+import isptec.biblioteca.util.TextoUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Índice invertido em memória do catálogo de livros.
+ *
+ * Indexa título, autores, categorias, editora, ISBN e descrição com o
+ * {@link AnalisadorPortugues}. Cada livro é um documento com um número
+ * interno crescente; atualizar um livro remove o documento antigo e
+ * acrescenta um novo. Os documentos removidos são ignorados nas pesquisas
+ * e o índice é compactado quando passam de um quarto do total.
+ *
+ * A pesquisa exige todos os termos da consulta (E); a última palavra,
+ * se a consulta não terminar em espaço, conta como prefixo para a
+ * pesquisa enquanto se escreve. Leituras concorrentes, escritas exclusivas.
+ *
+ * {@link #pesquisar} ordena por relevância (BM25F, com mais peso no
+ * título do que no autor, na categoria e na descrição) e conta as facetas
+ * categoria, editora, ano e disponibilidade intersetando o conjunto de
+ * resultados com um {@link MapaBits} por valor.
+ *
+ * @param <T> tipo do livro, lido através de um {@link DescritorLivro}
+ */
+public class IndiceCatalogo<T> {
+
+    /** Prefixos mais curtos do que isto só correspondem ao termo exato */
+    public static final int TAMANHO_MINIMO_PREFIXO = 2;
+
+    /** Máximo de termos em que um prefixo é expandido */
+    public static final int MAXIMO_EXPANSAO_PREFIXO = 64;
+
+    /**
+     * Distância de edição máxima na correção de termos com 6 ou mais
+     * letras; de 3 a 5 letras é 1 e abaixo disso não se corrige.
+     */
+    public static final int DISTANCIA_MAXIMA = 2;
+
+    public static final String DISPONIVEL = "Disponível";
+    public static final String INDISPONIVEL = "Indisponível";
+
+    private static final int NUM_CAMPOS = Campo.values().length;
+    private static final int TODOS_OS_CAMPOS = (1 << NUM_CAMPOS) - 1;
+    private static final int MINIMO_REMOVIDOS_COMPACTAR = 1000;
+
+    /**
+     * Uma lista com mais de 1/32 dos documentos ocupa menos como mapa de
+     * bits do que em varints; abaixo de MINIMO_DENSA não compensa.
+     */
+    private static final int FRACAO_DENSA = 32;
+    private static final int MINIMO_DENSA = 4096;
+
+    /** Termos próximos considerados por termo a corrigir, e combinações testadas */
+    private static final int CANDIDATOS_POR_TERMO = 3;
+    private static final int MAXIMO_COMBINACOES = 64;
+
+    /** Caracteres do título empacotados na chave de ordenação rápida */
+    private static final int CARACTERES_PREFIXO = 5;
+    private static final int BITS_POSICAO = 64 - 8 * CARACTERES_PREFIXO;
+    private static final long MASCARA_POSICAO = (1L << BITS_POSICAO) - 1;
+
+    /**
+     * Grupos do conjunto de resultados com mais documentos do que isto
+     * ficam em mapa de bits para contar as facetas.
+     */
+    private static final int MAXIMO_VETOR_RESULTADO = 256;
+
+    /** Parâmetros do BM25: saturação da frequência e normalização pelo comprimento */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** Peso de cada campo, pela ordem de {@link Campo} */
+    private static final double[] PESOS = {3.0, 2.0, 1.5, 1.0, 1.0, 0.5};
+
+    private final DescritorLivro<T> descritor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, ListaPostagens> termos = new TreeMap<>();
+    private Object[] documentos = new Object[1024];
+    private String[] chavesTitulo = new String[1024];
+    private long[] prefixosTitulo = new long[1024];
+    private int proximoDoc;
+    private final Map<Object, Integer> docPorLivro = new HashMap<>();
+    private final BitSet removidos = new BitSet();
+    private int numRemovidos;
+    private volatile boolean pronto;
+
+    /** Aumenta a cada alteração, para quem deriva dados do índice */
+    private volatile long versao;
+
+    /** Aumenta só quando o texto indexado muda (não com a disponibilidade) */
+    private volatile long versaoTexto;
+
+    /** Cópia ordenada dos termos para a correção, refeita quando o texto indexado muda */
+    private final Object lockVocabulario = new Object();
+    private VocabularioDifuso vocabulario;
+    private long versaoVocabulario = -1;
+
+    /** Número de termos de cada campo por documento, e a soma dos vivos */
+    private int[][] comprimentos = new int[NUM_CAMPOS][1024];
+    private final long[] somaComprimentos = new long[NUM_CAMPOS];
+
+    /** Chaves de faceta de cada documento (por ordem de Faceta), para as retirar ao remover */
+    private String[][][] facetasDoc = new String[1024][][];
+    private final Map<Faceta, Map<String, ValorFaceta>> facetas = new EnumMap<>(Faceta.class);
+
+    /**
+     * Documentos com um valor de faceta.
+     */
+    private static final class ValorFaceta {
+        final String rotulo;
+        final MapaBits docs = new MapaBits();
+
+        ValorFaceta(String rotulo) {
+            this.rotulo = rotulo;
+        }
+    }
+
+    public IndiceCatalogo(DescritorLivro<T> descritor) {
+        this.descritor = descritor;
+        for (Faceta faceta : Faceta.values()) {
+            facetas.put(faceta, new HashMap<>());
+        }
+    }
+
+    /**
+     * Acrescenta o livro ao índice, ou substitui a versão indexada.
+     */
+    public void indexar(T livro) {
+        if (livro == null) {
+            return;
+        }
+        Object id = descritor.id(livro);
+        // Livros ainda sem ID (0) não são indexados
+        if (id == null || Integer.valueOf(0).equals(id)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removerDocumento(id);
+            adicionarDocumento(livro, id);
+            versao++;
+            versaoTexto++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira o livro do índice.
+     */
+    public void remover(Object livroId) {
+        lock.writeLock().lock();
+        try {
+            removerDocumento(livroId);
+            versao++;
+            versaoTexto++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Muda só a faceta de disponibilidade (empréstimos e devoluções não
+     * alteram o texto indexado).
+     */
+    public void atualizarDisponibilidade(Object livroId, boolean disponivel) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docPorLivro.get(livroId);
+            if (doc != null) {
+                mudarDisponibilidade(doc, disponivel);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Troca o livro guardado por outro objeto do mesmo livro que só difere
+     * nos exemplares disponíveis (o texto não é reindexado), e acerta a
+     * faceta de disponibilidade.
+     */
+    public void atualizarDisponibilidade(T livro) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docPorLivro.get(descritor.id(livro));
+            if (doc != null) {
+                documentos[doc] = livro;
+                mudarDisponibilidade(doc, descritor.disponivel(livro));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Com o lock de escrita */
+    private void mudarDisponibilidade(int doc, boolean disponivel) {
+        String[] atual = facetasDoc[doc][Faceta.DISPONIBILIDADE.ordinal()];
+        String nova = TextoUtil.chave(disponivel ? DISPONIVEL : INDISPONIVEL);
+        if (!atual[0].equals(nova)) {
+            retirarFaceta(Faceta.DISPONIBILIDADE, atual[0], doc);
+            juntarFaceta(Faceta.DISPONIBILIDADE, disponivel ? DISPONIVEL : INDISPONIVEL, doc);
+            facetasDoc[doc][Faceta.DISPONIBILIDADE.ordinal()] = new String[] {nova};
+            versao++;
+        }
+    }
+
+    /**
+     * Indica se a carga inicial terminou; até lá as pesquisas podem estar
+     * incompletas.
+     */
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    public void marcarPronto() {
+        this.pronto = true;
+    }
+
+    /**
+     * Número de alterações feitas ao índice até agora.
+     */
+    public long getVersao() {
+        return versao;
+    }
+
+    /**
+     * Número de alterações ao texto indexado (livros indexados ou
+     * removidos); {@link #atualizarDisponibilidade} não conta.
+     */
+    public long getVersaoTexto() {
+        return versaoTexto;
+    }
+
+    /**
+     * Percorre os livros indexados (sem ordem definida), com as escritas
+     * bloqueadas.
+     */
+    public void paraCada(Consumer<? super T> acao) {
+        lock.readLock().lock();
+        try {
+            for (int doc = removidos.nextClearBit(0); doc < proximoDoc; doc = removidos.nextClearBit(doc + 1)) {
+                acao.accept(documento(doc));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de livros indexados.
+     */
+    public int getTotalLivros() {
+        lock.readLock().lock();
+        try {
+            return docPorLivro.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de termos distintos.
+     */
+    public int getTotalTermos() {
+        lock.readLock().lock();
+        try {
+            return termos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memória ocupada pelas listas de postagens, em bytes.
+     */
+    public long getBytesPostagens() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (ListaPostagens postagens : termos.values()) {
+                total += postagens.getBytes();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pesquisa em todos os campos.
+     *
+     * @param consulta texto livre
+     * @param limite   número máximo de livros devolvidos
+     * @return livros por ordem de título
+     */
+    public List<T> buscar(String consulta, int limite) {
+        return buscar(consulta, TODOS_OS_CAMPOS, limite);
+    }
+
+    /**
+     * Pesquisa restrita a um campo.
+     */
+    public List<T> buscar(String consulta, Campo campo, int limite) {
+        return buscar(consulta, campo.bit(), limite);
+    }
+
+    /**
+     * Pesquisa ranqueada com contagem das facetas.
+     */
+    public ResultadoPesquisa<T> pesquisar(String consulta, int limite) {
+        return pesquisar(consulta, limite, null);
+    }
+
+    /**
+     * Pesquisa ranqueada com contagem das facetas, restrita aos livros com
+     * os valores de faceta indicados.
+     *
+     * Uma consulta sem termos devolve o catálogo (ou o que os filtros
+     * deixarem) por ordem de título, com as facetas de tudo.
+     *
+     * @param consulta texto livre
+     * @param limite   número máximo de livros devolvidos
+     * @param filtros  valor exigido por faceta (pode ser null)
+     */
+    public ResultadoPesquisa<T> pesquisar(String consulta, int limite, Map<Faceta, String> filtros) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite inválido: " + limite);
+        }
+        List<String> termosConsulta = AnalisadorPortugues.analisar(consulta);
+
+        lock.readLock().lock();
+        try {
+            List<List<ListaPostagens>> grupos = null;
+            int[] candidatos;
+            if (termosConsulta.isEmpty()) {
+                candidatos = vivos();
+            } else {
+                grupos = grupos(consulta, termosConsulta);
+                if (grupos == null) {
+                    return ResultadoPesquisa.vazio();
+                }
+                candidatos = corresponder(grupos, TODOS_OS_CAMPOS);
+            }
+            if (filtros != null) {
+                for (Map.Entry<Faceta, String> filtro : filtros.entrySet()) {
+                    if (filtro.getValue() != null) {
+                        candidatos = filtrarFaceta(candidatos, filtro.getKey(), filtro.getValue());
+                    }
+                }
+            }
+
+            Map<Faceta, List<ContagemFaceta>> contagens = contarFacetas(candidatos);
+            if (grupos == null) {
+                List<T> livros = ordenarPorTitulo(candidatos, limite);
+                return new ResultadoPesquisa<>(livros, new double[livros.size()], candidatos.length, contagens);
+            }
+            return ranquear(candidatos, grupos, limite, contagens);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sugestões "quis dizer" para uma consulta sem resultados: a consulta
+     * com os termos que não existem no catálogo trocados pelos mais
+     * próximos (ver {@link #DISTANCIA_MAXIMA}). Só são devolvidas as
+     * combinações que encontram livros, das de menor distância total para
+     * as de maior.
+     *
+     * @return consultas corrigidas (vazia se não houver nada a corrigir)
+     */
+    public List<String> corrigir(String consulta, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite inválido: " + limite);
+        }
+        List<String> termosConsulta = AnalisadorPortugues.analisar(consulta);
+        if (termosConsulta.isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean prefixoFinal = Character.isLetterOrDigit(consulta.charAt(consulta.length() - 1));
+        VocabularioDifuso vocabularioAtual = vocabulario();
+
+        lock.readLock().lock();
+        try {
+            List<List<VocabularioDifuso.Semelhante>> opcoes = new ArrayList<>();
+            boolean corrigido = false;
+            for (int i = 0; i < termosConsulta.size(); i++) {
+                String termo = termosConsulta.get(i);
+                boolean prefixo = prefixoFinal && i == termosConsulta.size() - 1;
+                List<VocabularioDifuso.Semelhante> semelhantes = Collections.emptyList();
+                if (!existe(termo, prefixo) && distanciaMaxima(termo) > 0) {
+                    semelhantes = vocabularioAtual.semelhantes(termo, distanciaMaxima(termo), CANDIDATOS_POR_TERMO);
+                }
+                if (semelhantes.isEmpty()) {
+                    semelhantes = Collections.singletonList(new VocabularioDifuso.Semelhante(termo, 0, 0));
+                } else {
+                    corrigido = true;
+                }
+                opcoes.add(new ArrayList<>(semelhantes));
+            }
+            if (!corrigido) {
+                return new ArrayList<>();
+            }
+
+            List<String> correcoes = new ArrayList<>();
+            for (List<VocabularioDifuso.Semelhante> combinacao : combinacoes(opcoes)) {
+                List<String> termosCorrigidos = new ArrayList<>();
+                for (VocabularioDifuso.Semelhante semelhante : combinacao) {
+                    termosCorrigidos.add(semelhante.termo);
+                }
+                String corrigida = String.join(" ", termosCorrigidos);
+                List<List<ListaPostagens>> grupos = grupos(corrigida + " ", termosCorrigidos);
+                if (grupos != null && corresponder(grupos, TODOS_OS_CAMPOS).length > 0 &&
+                    !correcoes.contains(corrigida)) {
+                    correcoes.add(corrigida);
+                    if (correcoes.size() == limite) {
+                        break;
+                    }
+                }
+            }
+            return correcoes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // === PESQUISA ===
+
+    private List<T> buscar(String consulta, int mascara, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite inválido: " + limite);
+        }
+        List<String> termosConsulta = AnalisadorPortugues.analisar(consulta);
+        if (termosConsulta.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<List<ListaPostagens>> grupos = grupos(consulta, termosConsulta);
+            if (grupos == null) {
+                return new ArrayList<>();
+            }
+            return ordenarPorTitulo(corresponder(grupos, mascara), limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Postagens de cada termo distinto da consulta, do grupo mais pequeno
+     * para o maior, ou null se algum termo não existe.
+     */
+    private List<List<ListaPostagens>> grupos(String consulta, List<String> termosConsulta) {
+        boolean prefixoFinal = Character.isLetterOrDigit(consulta.charAt(consulta.length() - 1));
+        List<List<ListaPostagens>> grupos = new ArrayList<>();
+        Set<String> vistos = new LinkedHashSet<>(termosConsulta);
+        Iterator<String> it = vistos.iterator();
+        while (it.hasNext()) {
+            String termo = it.next();
+            boolean prefixo = prefixoFinal && !it.hasNext() &&
+                              termo.equals(termosConsulta.get(termosConsulta.size() - 1));
+            List<ListaPostagens> grupo = postagens(termo, prefixo);
+            if (grupo.isEmpty()) {
+                return null;
+            }
+            grupos.add(grupo);
+        }
+        grupos.sort(Comparator.comparingLong(IndiceCatalogo::quantidade));
+        return grupos;
+    }
+
+    /**
+     * Documentos vivos com todos os grupos num dos campos pedidos, por
+     * ordem crescente.
+     */
+    private int[] corresponder(List<List<ListaPostagens>> grupos, int mascara) {
+        if (mascara == TODOS_OS_CAMPOS && gruposDensos(grupos)) {
+            // Só termos frequentes: a interseção inteira em mapas de bits
+            BitSet resultado = uniaoDensa(grupos.get(0));
+            for (int i = 1; i < grupos.size() && !resultado.isEmpty(); i++) {
+                resultado.and(uniaoDensa(grupos.get(i)));
+            }
+            resultado.andNot(removidos);
+            return paraArray(resultado);
+        }
+
+        int[] candidatos = materializar(grupos.get(0), mascara);
+        for (int i = 1; i < grupos.size() && candidatos.length > 0; i++) {
+            candidatos = filtrar(candidatos, grupos.get(i), mascara);
+        }
+        return candidatos;
+    }
+
+    private int[] vivos() {
+        int[] docs = new int[docPorLivro.size()];
+        int n = 0;
+        for (int doc = removidos.nextClearBit(0); doc < proximoDoc; doc = removidos.nextClearBit(doc + 1)) {
+            docs[n++] = doc;
+        }
+        return docs;
+    }
+
+    /**
+     * Ordena os candidatos pela pontuação BM25F e devolve os primeiros.
+     *
+     * Para cada termo (e cada expansão de um prefixo) soma
+     * idf * tf' * (K1 + 1) / (tf' + K1), em que tf' é a soma por campo do
+     * peso vezes a frequência normalizada pelo comprimento do campo.
+     */
+    private ResultadoPesquisa<T> ranquear(int[] candidatos, List<List<ListaPostagens>> grupos, int limite,
+                                          Map<Faceta, List<ContagemFaceta>> contagens) {
+        int total = docPorLivro.size();
+        double[] medias = new double[NUM_CAMPOS];
+        for (int campo = 0; campo < NUM_CAMPOS; campo++) {
+            medias[campo] = somaComprimentos[campo] > 0 ? (double) somaComprimentos[campo] / total : 1.0;
+        }
+
+        double[] pontos = new double[candidatos.length];
+        for (List<ListaPostagens> grupo : grupos) {
+            for (ListaPostagens postagens : grupo) {
+                int df = Math.min(postagens.getQuantidade(), total);
+                double idf = Math.log(1 + (total - df + 0.5) / (df + 0.5));
+                ListaPostagens.Leitor leitor = postagens.leitor();
+                for (int i = 0; i < candidatos.length; i++) {
+                    if (!leitor.avancarPara(candidatos[i])) {
+                        break;
+                    }
+                    if (leitor.doc() == candidatos[i]) {
+                        double tf = frequenciaPonderada(leitor.frequencias(), candidatos[i], medias);
+                        pontos[i] += idf * tf * (K1 + 1) / (tf + K1);
+                    }
+                }
+            }
+        }
+
+        // Heap de mínimo (o pior no topo) com as posições dos limite melhores
+        int[] heap = new int[Math.min(limite, candidatos.length)];
+        int n = 0;
+        for (int i = 0; i < candidatos.length; i++) {
+            if (n < heap.length) {
+                heap[n] = i;
+                subirPior(heap, n++, candidatos, pontos);
+            } else if (antes(i, heap[0], candidatos, pontos)) {
+                heap[0] = i;
+                descerPior(heap, n, candidatos, pontos);
+            }
+        }
+        Integer[] ordem = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ordem[i] = heap[i];
+        }
+        Arrays.sort(ordem, (a, b) -> antes(a, b, candidatos, pontos) ? -1 : antes(b, a, candidatos, pontos) ? 1 : 0);
+
+        List<T> livros = new ArrayList<>(n);
+        double[] pontuacoes = new double[n];
+        for (int i = 0; i < n; i++) {
+            livros.add(documento(candidatos[ordem[i]]));
+            pontuacoes[i] = pontos[ordem[i]];
+        }
+        return new ResultadoPesquisa<>(livros, pontuacoes, candidatos.length, contagens);
+    }
+
+    private double frequenciaPonderada(int[] frequencias, int doc, double[] medias) {
+        double tf = 0;
+        for (int campo = 0; campo < NUM_CAMPOS; campo++) {
+            if (frequencias[campo] > 0) {
+                double normalizacao = 1 - B + B * comprimentos[campo][doc] / medias[campo];
+                tf += PESOS[campo] * frequencias[campo] / normalizacao;
+            }
+        }
+        return tf;
+    }
+
+    /**
+     * Se o candidato a fica à frente de b: maior pontuação, depois título e ID.
+     */
+    private boolean antes(int a, int b, int[] candidatos, double[] pontos) {
+        if (pontos[a] != pontos[b]) {
+            return pontos[a] > pontos[b];
+        }
+        return compararTitulo(candidatos[a], candidatos[b]) < 0;
+    }
+
+    private void subirPior(int[] heap, int i, int[] candidatos, double[] pontos) {
+        while (i > 0) {
+            int pai = (i - 1) >>> 1;
+            if (!antes(heap[pai], heap[i], candidatos, pontos)) {
+                return;
+            }
+            int t = heap[pai];
+            heap[pai] = heap[i];
+            heap[i] = t;
+            i = pai;
+        }
+    }
+
+    private void descerPior(int[] heap, int n, int[] candidatos, double[] pontos) {
+        int i = 0;
+        while (true) {
+            int pior = i;
+            int esquerdo = 2 * i + 1;
+            int direito = esquerdo + 1;
+            if (esquerdo < n && antes(heap[pior], heap[esquerdo], candidatos, pontos)) {
+                pior = esquerdo;
+            }
+            if (direito < n && antes(heap[pior], heap[direito], candidatos, pontos)) {
+                pior = direito;
+            }
+            if (pior == i) {
+                return;
+            }
+            int t = heap[pior];
+            heap[pior] = heap[i];
+            heap[i] = t;
+            i = pior;
+        }
+    }
+
+    // === CORREÇÃO ===
+
+    private static int distanciaMaxima(String termo) {
+        if (termo.length() >= 6) {
+            return DISTANCIA_MAXIMA;
+        }
+        return termo.length() >= 3 ? 1 : 0;
+    }
+
+    private boolean existe(String termo, boolean prefixo) {
+        if (termos.containsKey(termo)) {
+            return true;
+        }
+        String seguinte = prefixo ? termos.ceilingKey(termo) : null;
+        return seguinte != null && seguinte.startsWith(termo);
+    }
+
+    /**
+     * Combinações de uma opção por termo, da menor distância total para a
+     * maior e, em empate, dos termos mais frequentes. Corta as listas mais
+     * longas até o produto caber em MAXIMO_COMBINACOES.
+     */
+    private static List<List<VocabularioDifuso.Semelhante>> combinacoes(
+            List<List<VocabularioDifuso.Semelhante>> opcoes) {
+        while (true) {
+            long produto = 1;
+            List<VocabularioDifuso.Semelhante> maior = opcoes.get(0);
+            for (List<VocabularioDifuso.Semelhante> lista : opcoes) {
+                produto *= lista.size();
+                if (lista.size() > maior.size()) {
+                    maior = lista;
+                }
+            }
+            if (produto <= MAXIMO_COMBINACOES) {
+                break;
+            }
+            maior.remove(maior.size() - 1);
+        }
+
+        List<List<VocabularioDifuso.Semelhante>> combinacoes = new ArrayList<>();
+        combinacoes.add(new ArrayList<>());
+        for (List<VocabularioDifuso.Semelhante> lista : opcoes) {
+            List<List<VocabularioDifuso.Semelhante>> novas = new ArrayList<>();
+            for (List<VocabularioDifuso.Semelhante> parcial : combinacoes) {
+                for (VocabularioDifuso.Semelhante semelhante : lista) {
+                    List<VocabularioDifuso.Semelhante> nova = new ArrayList<>(parcial);
+                    nova.add(semelhante);
+                    novas.add(nova);
+                }
+            }
+            combinacoes = novas;
+        }
+        combinacoes.sort(Comparator.<List<VocabularioDifuso.Semelhante>>comparingInt(c -> {
+            int total = 0;
+            for (VocabularioDifuso.Semelhante semelhante : c) {
+                total += semelhante.distancia;
+            }
+            return total;
+        }).thenComparing(Comparator.<List<VocabularioDifuso.Semelhante>>comparingLong(c -> {
+            long total = 0;
+            for (VocabularioDifuso.Semelhante semelhante : c) {
+                total += semelhante.frequencia;
+            }
+            return total;
+        }).reversed()));
+        return combinacoes;
+    }
+
+    /**
+     * Vocabulário para a correção, copiado do índice se o texto indexado
+     * mudou desde a última cópia (empréstimos e devoluções não contam). Só é
+     * pedido quando uma pesquisa não encontra nada.
+     */
+    private VocabularioDifuso vocabulario() {
+        synchronized (lockVocabulario) {
+            if (vocabulario == null || versaoVocabulario != versaoTexto) {
+                lock.readLock().lock();
+                try {
+                    String[] lista = new String[termos.size()];
+                    int[] frequencias = new int[lista.length];
+                    int i = 0;
+                    for (Map.Entry<String, ListaPostagens> entrada : termos.entrySet()) {
+                        lista[i] = entrada.getKey();
+                        frequencias[i++] = entrada.getValue().getQuantidade();
+                    }
+                    vocabulario = new VocabularioDifuso(lista, frequencias);
+                    versaoVocabulario = versaoTexto;
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            return vocabulario;
+        }
+    }
+
+    // === FACETAS ===
+
+    /**
+     * Conta cada valor de faceta nos candidatos: um MapaBits com o
+     * resultado intersetado com o de cada valor, sem materializar nada.
+     */
+    private Map<Faceta, List<ContagemFaceta>> contarFacetas(int[] candidatos) {
+        Map<Faceta, List<ContagemFaceta>> contagens = new EnumMap<>(Faceta.class);
+        boolean todos = candidatos.length == docPorLivro.size();
+        MapaBits resultado = todos ? null : MapaBits.deOrdenados(candidatos, MAXIMO_VETOR_RESULTADO);
+
+        for (Map.Entry<Faceta, Map<String, ValorFaceta>> faceta : facetas.entrySet()) {
+            List<ContagemFaceta> lista = new ArrayList<>();
+            if (candidatos.length > 0) {
+                for (ValorFaceta valor : faceta.getValue().values()) {
+                    int contagem = todos ? valor.docs.getCardinalidade() : resultado.cardinalidadeE(valor.docs);
+                    if (contagem > 0) {
+                        lista.add(new ContagemFaceta(valor.rotulo, contagem));
+                    }
+                }
+            }
+            lista.sort(Comparator.comparingInt(ContagemFaceta::getContagem).reversed()
+                    .thenComparing(ContagemFaceta::getValor));
+            contagens.put(faceta.getKey(), lista);
+        }
+        return contagens;
+    }
+
+    private int[] filtrarFaceta(int[] candidatos, Faceta faceta, String valor) {
+        ValorFaceta valorFaceta = facetas.get(faceta).get(TextoUtil.chave(valor));
+        if (valorFaceta == null) {
+            return new int[0];
+        }
+        int[] resultado = new int[Math.min(candidatos.length, valorFaceta.docs.getCardinalidade())];
+        int n = 0;
+        for (int doc : candidatos) {
+            if (n < resultado.length && valorFaceta.docs.contem(doc)) {
+                resultado[n++] = doc;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private void juntarFaceta(Faceta faceta, String rotulo, int doc) {
+        facetas.get(faceta).computeIfAbsent(TextoUtil.chave(rotulo), c -> new ValorFaceta(rotulo)).docs.adicionar(doc);
+    }
+
+    private void retirarFaceta(Faceta faceta, String chave, int doc) {
+        Map<String, ValorFaceta> valores = facetas.get(faceta);
+        ValorFaceta valor = valores.get(chave);
+        if (valor != null) {
+            valor.docs.remover(doc);
+            if (valor.docs.isVazio()) {
+                valores.remove(chave);
+            }
+        }
+    }
+
+    /**
+     * Valores de faceta do livro, por ordem de Faceta.
+     */
+    private List<List<String>> valoresFacetas(T livro) {
+        List<List<String>> valores = new ArrayList<>(Faceta.values().length);
+        for (Faceta faceta : Faceta.values()) {
+            List<String> lista = new ArrayList<>();
+            switch (faceta) {
+                case CATEGORIA:
+                    for (String categoria : descritor.categorias(livro)) {
+                        if (categoria != null && !categoria.isBlank()) {
+                            lista.add(categoria.trim());
+                        }
+                    }
+                    break;
+                case EDITORA:
+                    String editora = descritor.editora(livro);
+                    if (editora != null && !editora.isBlank()) {
+                        lista.add(editora.trim());
+                    }
+                    break;
+                case ANO_PUBLICACAO:
+                    if (descritor.ano(livro) > 0) {
+                        lista.add(String.valueOf(descritor.ano(livro)));
+                    }
+                    break;
+                case DISPONIBILIDADE:
+                    lista.add(descritor.disponivel(livro) ? DISPONIVEL : INDISPONIVEL);
+                    break;
+            }
+            valores.add(lista);
+        }
+        return valores;
+    }
+
+    /**
+     * Postagens do termo exato ou, para um prefixo, dos termos que começam
+     * por ele (o exato, se existir, é o primeiro).
+     */
+    private List<ListaPostagens> postagens(String termo, boolean prefixo) {
+        if (!prefixo || termo.length() < TAMANHO_MINIMO_PREFIXO) {
+            ListaPostagens postagens = termos.get(termo);
+            return postagens != null ? Collections.singletonList(postagens) : Collections.emptyList();
+        }
+        List<ListaPostagens> grupo = new ArrayList<>();
+        for (ListaPostagens postagens : termos.subMap(termo, true, termo + Character.MAX_VALUE, false).values()) {
+            grupo.add(postagens);
+            if (grupo.size() == MAXIMO_EXPANSAO_PREFIXO) {
+                break;
+            }
+        }
+        return grupo;
+    }
+
+    private static long quantidade(List<ListaPostagens> grupo) {
+        long total = 0;
+        for (ListaPostagens postagens : grupo) {
+            total += postagens.getQuantidade();
+        }
+        return total;
+    }
+
+    /**
+     * Documentos vivos de um grupo (união) com o termo num dos campos pedidos.
+     */
+    private int[] materializar(List<ListaPostagens> grupo, int mascara) {
+        if (mascara == TODOS_OS_CAMPOS && todasDensas(grupo)) {
+            BitSet uniao = uniaoDensa(grupo);
+            uniao.andNot(removidos);
+            return paraArray(uniao);
+        }
+        if (grupo.size() == 1) {
+            ListaPostagens postagens = grupo.get(0);
+            int[] docs = new int[postagens.getQuantidade()];
+            int n = 0;
+            ListaPostagens.Leitor leitor = postagens.leitor();
+            while (leitor.proximo()) {
+                if ((leitor.mascara() & mascara) != 0 && !removidos.get(leitor.doc())) {
+                    docs[n++] = leitor.doc();
+                }
+            }
+            return Arrays.copyOf(docs, n);
+        }
+        BitSet uniao = new BitSet(proximoDoc);
+        for (ListaPostagens postagens : grupo) {
+            ListaPostagens.Leitor leitor = postagens.leitor();
+            while (leitor.proximo()) {
+                if ((leitor.mascara() & mascara) != 0) {
+                    uniao.set(leitor.doc());
+                }
+            }
+        }
+        uniao.andNot(removidos);
+        return paraArray(uniao);
+    }
+
+    private static BitSet uniaoDensa(List<ListaPostagens> grupo) {
+        BitSet uniao = BitSet.valueOf(grupo.get(0).getPalavras());
+        for (int i = 1; i < grupo.size(); i++) {
+            uniao.or(BitSet.valueOf(grupo.get(i).getPalavras()));
+        }
+        return uniao;
+    }
+
+    private static int[] paraArray(BitSet bits) {
+        int[] docs = new int[bits.cardinality()];
+        int n = 0;
+        for (int doc = bits.nextSetBit(0); doc >= 0; doc = bits.nextSetBit(doc + 1)) {
+            docs[n++] = doc;
+        }
+        return docs;
+    }
+
+    /**
+     * Mantém os candidatos que também estão no grupo, saltando pelas listas.
+     */
+    private int[] filtrar(int[] candidatos, List<ListaPostagens> grupo, int mascara) {
+        boolean[] presentes = new boolean[candidatos.length];
+        if (mascara == TODOS_OS_CAMPOS && todasDensas(grupo)) {
+            for (ListaPostagens postagens : grupo) {
+                for (int i = 0; i < candidatos.length; i++) {
+                    presentes[i] |= postagens.contem(candidatos[i]);
+                }
+            }
+            return manter(candidatos, presentes);
+        }
+        for (ListaPostagens postagens : grupo) {
+            ListaPostagens.Leitor leitor = postagens.leitor();
+            for (int i = 0; i < candidatos.length; i++) {
+                if (presentes[i]) {
+                    continue;
+                }
+                if (!leitor.avancarPara(candidatos[i])) {
+                    break;
+                }
+                if (leitor.doc() == candidatos[i] && (leitor.mascara() & mascara) != 0) {
+                    presentes[i] = true;
+                }
+            }
+        }
+        return manter(candidatos, presentes);
+    }
+
+    private static int[] manter(int[] candidatos, boolean[] presentes) {
+        int n = 0;
+        int[] resultado = new int[candidatos.length];
+        for (int i = 0; i < candidatos.length; i++) {
+            if (presentes[i]) {
+                resultado[n++] = candidatos[i];
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private static boolean gruposDensos(List<List<ListaPostagens>> grupos) {
+        for (List<ListaPostagens> grupo : grupos) {
+            if (!todasDensas(grupo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean todasDensas(List<ListaPostagens> grupo) {
+        for (ListaPostagens postagens : grupo) {
+            if (!postagens.isDensa()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Os primeiros livros por título (como ORDER BY titulo).
+     *
+     * Seleciona primeiro pelos 5 primeiros caracteres do título empacotados
+     * num long (heap de primitivos, sem comparar Strings); o título completo
+     * só é comparado entre os selecionados e os empatados com o último.
+     */
+    private List<T> ordenarPorTitulo(int[] docs, int limite) {
+        Comparator<Integer> porTitulo = this::compararTitulo;
+        List<Integer> ordenados = new ArrayList<>(Math.min(docs.length, limite));
+
+        if (docs.length <= limite) {
+            for (int doc : docs) {
+                ordenados.add(doc);
+            }
+        } else {
+            // Heap de máximo com os limite menores prefixos
+            long[] heap = new long[limite];
+            int n = 0;
+            for (int i = 0; i < docs.length; i++) {
+                long chave = prefixosTitulo[docs[i]] << BITS_POSICAO | i;
+                if (n < limite) {
+                    heap[n] = chave;
+                    subir(heap, n++);
+                } else if (chave < heap[0]) {
+                    heap[0] = chave;
+                    descer(heap, n);
+                }
+            }
+            long fronteira = heap[0] >>> BITS_POSICAO;
+            for (int i = 0; i < n; i++) {
+                if (heap[i] >>> BITS_POSICAO < fronteira) {
+                    ordenados.add(docs[(int) (heap[i] & MASCARA_POSICAO)]);
+                }
+            }
+            // Empatados no prefixo da fronteira: decide o título completo
+            int vagas = limite - ordenados.size();
+            PriorityQueue<Integer> empatados = new PriorityQueue<>(vagas + 1, porTitulo.reversed());
+            for (int doc : docs) {
+                if (prefixosTitulo[doc] == fronteira) {
+                    empatados.offer(doc);
+                    if (empatados.size() > vagas) {
+                        empatados.poll();
+                    }
+                }
+            }
+            ordenados.addAll(empatados);
+        }
+        ordenados.sort(porTitulo);
+
+        List<T> livros = new ArrayList<>(ordenados.size());
+        for (int doc : ordenados) {
+            livros.add(documento(doc));
+        }
+        return livros;
+    }
+
+    private static void subir(long[] heap, int i) {
+        while (i > 0) {
+            int pai = (i - 1) >>> 1;
+            if (heap[pai] >= heap[i]) {
+                return;
+            }
+            long t = heap[pai];
+            heap[pai] = heap[i];
+            heap[i] = t;
+            i = pai;
+        }
+    }
+
+    private static void descer(long[] heap, int n) {
+        int i = 0;
+        while (true) {
+            int maior = i;
+            int esquerdo = 2 * i + 1;
+            int direito = esquerdo + 1;
+            if (esquerdo < n && heap[esquerdo] > heap[maior]) {
+                maior = esquerdo;
+            }
+            if (direito < n && heap[direito] > heap[maior]) {
+                maior = direito;
+            }
+            if (maior == i) {
+                return;
+            }
+            long t = heap[maior];
+            heap[maior] = heap[i];
+            heap[i] = t;
+            i = maior;
+        }
+    }
+
+    /**
+     * Ordem de título (chave normalizada) e, em empate, de ID.
+     */
+    @SuppressWarnings("unchecked")
+    private int compararTitulo(int a, int b) {
+        int comparacao = chavesTitulo[a].compareTo(chavesTitulo[b]);
+        if (comparacao != 0) {
+            return comparacao;
+        }
+        return ((Comparable<Object>) descritor.id(documento(a))).compareTo(descritor.id(documento(b)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T documento(int doc) {
+        return (T) documentos[doc];
+    }
+
+    // === MANUTENÇÃO ===
+
+    private void adicionarDocumento(T livro, Object id) {
+        int doc = proximoDoc++;
+        if (doc == documentos.length) {
+            documentos = Arrays.copyOf(documentos, doc * 2);
+            chavesTitulo = Arrays.copyOf(chavesTitulo, doc * 2);
+            prefixosTitulo = Arrays.copyOf(prefixosTitulo, doc * 2);
+            facetasDoc = Arrays.copyOf(facetasDoc, doc * 2);
+            for (int campo = 0; campo < NUM_CAMPOS; campo++) {
+                comprimentos[campo] = Arrays.copyOf(comprimentos[campo], doc * 2);
+            }
+        }
+        documentos[doc] = livro;
+        chavesTitulo[doc] = TextoUtil.chave(descritor.titulo(livro));
+        prefixosTitulo[doc] = prefixo(chavesTitulo[doc]);
+        docPorLivro.put(id, doc);
+
+        Map<String, int[]> frequencias = new HashMap<>();
+        contar(frequencias, Campo.TITULO, descritor.titulo(livro), doc);
+        for (String autor : descritor.autores(livro)) {
+            contar(frequencias, Campo.AUTOR, autor, doc);
+        }
+        for (String categoria : descritor.categorias(livro)) {
+            contar(frequencias, Campo.CATEGORIA, categoria, doc);
+        }
+        contar(frequencias, Campo.EDITORA, descritor.editora(livro), doc);
+        contar(frequencias, Campo.ISBN, descritor.isbn(livro), doc);
+        String isbn = AnalisadorPortugues.termoIsbn(descritor.isbn(livro));
+        if (isbn != null) {
+            frequencias.computeIfAbsent(isbn, t -> new int[NUM_CAMPOS])[Campo.ISBN.ordinal()] = 1;
+        }
+        contar(frequencias, Campo.DESCRICAO, descritor.descricao(livro), doc);
+        for (int campo = 0; campo < NUM_CAMPOS; campo++) {
+            somaComprimentos[campo] += comprimentos[campo][doc];
+        }
+
+        for (Map.Entry<String, int[]> entrada : frequencias.entrySet()) {
+            ListaPostagens postagens = termos.computeIfAbsent(entrada.getKey(), t -> new ListaPostagens());
+            postagens.adicionar(doc, entrada.getValue());
+            tornarDensaSeFrequente(postagens);
+        }
+
+        List<List<String>> valores = valoresFacetas(livro);
+        String[][] chaves = new String[valores.size()][];
+        for (Faceta faceta : Faceta.values()) {
+            List<String> rotulos = valores.get(faceta.ordinal());
+            chaves[faceta.ordinal()] = new String[rotulos.size()];
+            for (int i = 0; i < rotulos.size(); i++) {
+                chaves[faceta.ordinal()][i] = TextoUtil.chave(rotulos.get(i));
+                juntarFaceta(faceta, rotulos.get(i), doc);
+            }
+        }
+        facetasDoc[doc] = chaves;
+    }
+
+    /**
+     * Primeiros caracteres da chave do título, 8 bits cada, pela ordem de
+     * comparação de String (caracteres acima de 255 ficam em 255).
+     */
+    private static long prefixo(String chave) {
+        long prefixo = 0;
+        for (int i = 0; i < CARACTERES_PREFIXO; i++) {
+            long c = i < chave.length() ? Math.min(chave.charAt(i), 255) : 0;
+            prefixo = prefixo << 8 | c;
+        }
+        return prefixo;
+    }
+
+    private void tornarDensaSeFrequente(ListaPostagens postagens) {
+        if (!postagens.isDensa() && postagens.getQuantidade() >= MINIMO_DENSA &&
+            postagens.getQuantidade() >= proximoDoc / FRACAO_DENSA) {
+            postagens.tornarDensa();
+        }
+    }
+
+    private void contar(Map<String, int[]> frequencias, Campo campo, String texto, int doc) {
+        for (String termo : AnalisadorPortugues.analisar(texto)) {
+            frequencias.computeIfAbsent(termo, t -> new int[NUM_CAMPOS])[campo.ordinal()]++;
+            comprimentos[campo.ordinal()][doc]++;
+        }
+    }
+
+    private void removerDocumento(Object livroId) {
+        Integer doc = docPorLivro.remove(livroId);
+        if (doc == null) {
+            return;
+        }
+        removidos.set(doc);
+        documentos[doc] = null;
+        chavesTitulo[doc] = null;
+        for (int campo = 0; campo < NUM_CAMPOS; campo++) {
+            somaComprimentos[campo] -= comprimentos[campo][doc];
+        }
+        for (Faceta faceta : Faceta.values()) {
+            for (String chave : facetasDoc[doc][faceta.ordinal()]) {
+                retirarFaceta(faceta, chave, doc);
+            }
+        }
+        facetasDoc[doc] = null;
+        numRemovidos++;
+        if (numRemovidos >= MINIMO_REMOVIDOS_COMPACTAR && numRemovidos > proximoDoc / 4) {
+            compactar();
+        }
+    }
+
+    /**
+     * Renumera os documentos vivos e reescreve as listas e as facetas sem
+     * os removidos.
+     */
+    private void compactar() {
+        int[] novoDoc = new int[proximoDoc];
+        int vivos = 0;
+        for (int doc = 0; doc < proximoDoc; doc++) {
+            novoDoc[doc] = removidos.get(doc) ? -1 : vivos++;
+        }
+
+        TreeMap<String, ListaPostagens> novosTermos = new TreeMap<>();
+        for (Map.Entry<String, ListaPostagens> entrada : termos.entrySet()) {
+            ListaPostagens nova = new ListaPostagens();
+            ListaPostagens.Leitor leitor = entrada.getValue().leitor();
+            while (leitor.proximo()) {
+                if (novoDoc[leitor.doc()] >= 0) {
+                    nova.adicionar(novoDoc[leitor.doc()], leitor.frequencias());
+                }
+            }
+            if (nova.getQuantidade() > 0) {
+                novosTermos.put(entrada.getKey(), nova);
+            }
+            if (entrada.getValue().isDensa() && nova.getQuantidade() >= MINIMO_DENSA &&
+                nova.getQuantidade() >= vivos / FRACAO_DENSA) {
+                nova.tornarDensa();
+            }
+        }
+
+        int capacidade = Math.max(1024, vivos * 2);
+        Object[] novosDocumentos = new Object[capacidade];
+        String[] novasChaves = new String[capacidade];
+        long[] novosPrefixos = new long[capacidade];
+        String[][][] novasFacetas = new String[capacidade][][];
+        int[][] novosComprimentos = new int[NUM_CAMPOS][capacidade];
+        for (int doc = 0; doc < proximoDoc; doc++) {
+            int novo = novoDoc[doc];
+            if (novo >= 0) {
+                novosDocumentos[novo] = documentos[doc];
+                novasChaves[novo] = chavesTitulo[doc];
+                novosPrefixos[novo] = prefixosTitulo[doc];
+                novasFacetas[novo] = facetasDoc[doc];
+                for (int campo = 0; campo < NUM_CAMPOS; campo++) {
+                    novosComprimentos[campo][novo] = comprimentos[campo][doc];
+                }
+                docPorLivro.put(descritor.id(documento(doc)), novo);
+            }
+        }
+
+        // Os números mudaram: refazer os mapas de cada valor de faceta
+        for (Map<String, ValorFaceta> valores : facetas.values()) {
+            for (Map.Entry<String, ValorFaceta> entrada : valores.entrySet()) {
+                int[] docs = entrada.getValue().docs.paraArray();
+                int[] novos = new int[docs.length];
+                for (int i = 0; i < docs.length; i++) {
+                    novos[i] = novoDoc[docs[i]];
+                }
+                ValorFaceta novo = new ValorFaceta(entrada.getValue().rotulo);
+                for (int doc : novos) {
+                    novo.docs.adicionar(doc);
+                }
+                entrada.setValue(novo);
+            }
+        }
+
+        termos = novosTermos;
+        documentos = novosDocumentos;
+        chavesTitulo = novasChaves;
+        prefixosTitulo = novosPrefixos;
+        facetasDoc = novasFacetas;
+        comprimentos = novosComprimentos;
+        proximoDoc = vivos;
+        removidos.clear();
+        numRemovidos = 0;
+    }
+}
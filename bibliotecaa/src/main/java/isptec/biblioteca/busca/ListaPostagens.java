@@ -0,0 +1,280 @@
+package isptec.biblioteca.busca;
+
+import java.util.Arrays;
+
+/**
+ * Lista de postagens de um termo, comprimida num byte[].
+ *
+ * Cada entrada é: diferença para o documento anterior (varint), máscara
+ * dos campos onde o termo aparece (1 byte) e a frequência em cada um
+ * desses campos (varint). Os documentos só podem ser acrescentados por
+ * ordem crescente. A cada {@link #INTERVALO_SALTOS} entradas guarda-se um
+ * ponto de salto, para que {@link Leitor#avancarPara(int)} não tenha de
+ * descodificar a lista inteira.
+ *
+ * Termos muito frequentes ganham também um mapa de bits dos documentos
+ * ({@link #tornarDensa()}): testar se um documento está na lista passa a
+ * ser um acesso a um long, em vez de descodificar a lista.
+ */
+final class ListaPostagens {
+
+    static final int INTERVALO_SALTOS = 64;
+
+    private byte[] dados = new byte[8];
+    private int tamanho;
+    private int quantidade;
+    private int ultimoDoc = -1;
+
+    /** Documento anterior ao início de cada bloco, e posição do bloco em dados */
+    private int[] saltosBase = new int[0];
+    private int[] saltosPosicao = new int[0];
+
+    /** Mapa de bits dos documentos (null enquanto a lista for esparsa) */
+    private long[] densa;
+
+    /**
+     * Acrescenta um documento.
+     *
+     * @param frequencias frequência do termo em cada campo (0 = ausente)
+     */
+    void adicionar(int doc, int[] frequencias) {
+        if (doc <= ultimoDoc) {
+            throw new IllegalArgumentException("Documento fora de ordem: " + doc + " <= " + ultimoDoc);
+        }
+        if (quantidade > 0 && quantidade % INTERVALO_SALTOS == 0) {
+            int bloco = quantidade / INTERVALO_SALTOS;
+            if (bloco >= saltosBase.length) {
+                saltosBase = Arrays.copyOf(saltosBase, Math.max(4, bloco * 2));
+                saltosPosicao = Arrays.copyOf(saltosPosicao, Math.max(4, bloco * 2));
+            }
+            saltosBase[bloco] = ultimoDoc;
+            saltosPosicao[bloco] = tamanho;
+        }
+        garantir(5 + 1 + 5 * frequencias.length);
+        escrever(doc - ultimoDoc);
+        int mascara = 0;
+        for (int campo = 0; campo < frequencias.length; campo++) {
+            if (frequencias[campo] > 0) {
+                mascara |= 1 << campo;
+            }
+        }
+        dados[tamanho++] = (byte) mascara;
+        for (int campo = 0; campo < frequencias.length; campo++) {
+            if (frequencias[campo] > 0) {
+                escrever(frequencias[campo]);
+            }
+        }
+        ultimoDoc = doc;
+        quantidade++;
+        if (densa != null) {
+            marcar(doc);
+        }
+    }
+
+    boolean isDensa() {
+        return densa != null;
+    }
+
+    /**
+     * Cria o mapa de bits a partir das postagens existentes.
+     */
+    void tornarDensa() {
+        if (densa != null) {
+            return;
+        }
+        densa = new long[(ultimoDoc >> 6) + 1];
+        Leitor leitor = new Leitor();
+        while (leitor.proximo()) {
+            marcar(leitor.doc());
+        }
+    }
+
+    /**
+     * Indica se o documento está na lista (só para listas densas).
+     */
+    boolean contem(int doc) {
+        int palavra = doc >> 6;
+        return palavra < densa.length && (densa[palavra] & (1L << doc)) != 0;
+    }
+
+    /**
+     * Palavras do mapa de bits (só para listas densas; não alterar).
+     */
+    long[] getPalavras() {
+        return densa;
+    }
+
+    /**
+     * Número de documentos (incluindo os entretanto removidos do índice).
+     */
+    int getQuantidade() {
+        return quantidade;
+    }
+
+    int getUltimoDoc() {
+        return ultimoDoc;
+    }
+
+    /**
+     * Bytes ocupados pelos dados e pelos saltos.
+     */
+    long getBytes() {
+        return dados.length + 8L * saltosBase.length + (densa != null ? 8L * densa.length : 0);
+    }
+
+    Leitor leitor() {
+        return new Leitor();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void marcar(int doc) {
+        int palavra = doc >> 6;
+        if (palavra >= densa.length) {
+            densa = Arrays.copyOf(densa, Math.max(palavra + 1, densa.length * 2));
+        }
+        densa[palavra] |= 1L << doc;
+    }
+
+    private void garantir(int extra) {
+        if (tamanho + extra > dados.length) {
+            dados = Arrays.copyOf(dados, Math.max(dados.length * 2, tamanho + extra));
+        }
+    }
+
+    private void escrever(int valor) {
+        while ((valor & ~0x7F) != 0) {
+            dados[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        dados[tamanho++] = (byte) valor;
+    }
+
+    /**
+     * Percorre a lista por ordem de documento.
+     */
+    final class Leitor {
+
+        private final int[] frequencias = new int[Campo.values().length];
+        private int posicao;
+        private int indice = -1;
+        private int doc = -1;
+        private int mascara;
+
+        /** Posição das frequências do documento atual, descodificadas só a pedido */
+        private int posicaoFrequencias;
+        private boolean frequenciasLidas;
+
+        /**
+         * Documento atual (-1 antes do primeiro {@link #proximo()}).
+         */
+        int doc() {
+            return doc;
+        }
+
+        /**
+         * Máscara dos campos do documento atual (bit = ordinal do {@link Campo}).
+         */
+        int mascara() {
+            return mascara;
+        }
+
+        /**
+         * Frequências por campo no documento atual (não copiar para guardar:
+         * o array é reutilizado).
+         */
+        int[] frequencias() {
+            lerFrequencias();
+            return frequencias;
+        }
+
+        /**
+         * Frequência do termo no campo, no documento atual.
+         */
+        int frequencia(Campo campo) {
+            lerFrequencias();
+            return frequencias[campo.ordinal()];
+        }
+
+        boolean proximo() {
+            if (indice + 1 >= quantidade) {
+                indice = quantidade;
+                doc = Integer.MAX_VALUE;
+                return false;
+            }
+            indice++;
+            doc += ler();
+            mascara = dados[posicao++] & 0xFF;
+            posicaoFrequencias = posicao;
+            frequenciasLidas = false;
+            for (int n = Integer.bitCount(mascara); n > 0; n--) {
+                while (dados[posicao++] < 0) {
+                    // continuação do varint
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Avança até ao primeiro documento maior ou igual a alvo.
+         *
+         * @return false se a lista terminou
+         */
+        boolean avancarPara(int alvo) {
+            if (doc >= alvo) {
+                return doc != Integer.MAX_VALUE;
+            }
+            int blocoAtual = indice < 0 ? 0 : indice / INTERVALO_SALTOS;
+            int alto = (quantidade - 1) / INTERVALO_SALTOS;
+            if (blocoAtual == alto || saltosBase[blocoAtual + 1] >= alvo) {
+                alto = blocoAtual;
+            }
+            // Último bloco cujo documento base é menor do que alvo
+            int bloco = blocoAtual;
+            while (bloco < alto) {
+                int meio = (bloco + alto + 1) >>> 1;
+                if (saltosBase[meio] < alvo) {
+                    bloco = meio;
+                } else {
+                    alto = meio - 1;
+                }
+            }
+            if (bloco > blocoAtual) {
+                posicao = saltosPosicao[bloco];
+                doc = saltosBase[bloco];
+                indice = bloco * INTERVALO_SALTOS - 1;
+            }
+            while (proximo()) {
+                if (doc >= alvo) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void lerFrequencias() {
+            if (frequenciasLidas) {
+                return;
+            }
+            int atual = posicao;
+            posicao = posicaoFrequencias;
+            for (int campo = 0; campo < frequencias.length; campo++) {
+                frequencias[campo] = (mascara & (1 << campo)) != 0 ? ler() : 0;
+            }
+            posicao = atual;
+            frequenciasLidas = true;
+        }
+
+        private int ler() {
+            int valor = 0;
+            int deslocamento = 0;
+            byte b;
+            do {
+                b = dados[posicao++];
+                valor |= (b & 0x7F) << deslocamento;
+                deslocamento += 7;
+            } while (b < 0);
+            return valor;
+        }
+    }
+}
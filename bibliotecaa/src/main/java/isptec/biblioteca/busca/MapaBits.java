@@ -0,0 +1,361 @@
+package isptec.biblioteca.busca;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de inteiros não negativos comprimido ao estilo Roaring.
+ *
+ * Os números são agrupados pelos 16 bits altos; cada grupo guarda os 16
+ * bits baixos num vetor ordenado de char (até 4096 valores, 2 bytes cada)
+ * ou num mapa de 65536 bits (8 KB) quando passa desse limite. Contar a
+ * interseção de dois conjuntos só percorre os grupos comuns e, entre dois
+ * mapas, é um popcount de palavras de 64 bits.
+ */
+final class MapaBits {
+
+    /** Acima disto um vetor ocupa mais do que o mapa de bits */
+    private static final int MAXIMO_VETOR = 4096;
+
+    /** Diferença de tamanhos a partir da qual compensa a pesquisa binária */
+    private static final int SALTO = 16;
+
+    private char[] chaves = new char[4];
+    private Contentor[] contentores = new Contentor[4];
+    private int tamanho;
+    private int cardinalidade;
+
+    /**
+     * Conjunto com os números indicados, já ordenados e sem repetições.
+     */
+    static MapaBits deOrdenados(int[] valores) {
+        return deOrdenados(valores, MAXIMO_VETOR);
+    }
+
+    /**
+     * Como {@link #deOrdenados(int[])}, mas os grupos com mais de
+     * maximoVetor números ficam já em mapa de bits: para um conjunto que só
+     * vai ser intersetado com muitos outros, testar bits sai mais barato do
+     * que intercalar vetores.
+     */
+    static MapaBits deOrdenados(int[] valores, int maximoVetor) {
+        MapaBits mapa = new MapaBits();
+        int inicio = 0;
+        while (inicio < valores.length) {
+            int alta = valores[inicio] >>> 16;
+            int fim = inicio;
+            while (fim < valores.length && valores[fim] >>> 16 == alta) {
+                fim++;
+            }
+            Contentor contentor;
+            if (fim - inicio > maximoVetor) {
+                Mapa bits = new Mapa();
+                for (int i = inicio; i < fim; i++) {
+                    bits.palavras[(valores[i] & 0xFFFF) >>> 6] |= 1L << valores[i];
+                }
+                bits.cardinalidade = fim - inicio;
+                contentor = bits;
+            } else {
+                Vetor vetor = new Vetor(fim - inicio);
+                for (int i = inicio; i < fim; i++) {
+                    vetor.valores[i - inicio] = (char) valores[i];
+                }
+                vetor.cardinalidade = fim - inicio;
+                contentor = vetor;
+            }
+            mapa.inserirContentor(mapa.tamanho, (char) alta, contentor);
+            mapa.cardinalidade += fim - inicio;
+            inicio = fim;
+        }
+        return mapa;
+    }
+
+    void adicionar(int valor) {
+        int i = procurar((char) (valor >>> 16));
+        if (i < 0) {
+            i = -i - 1;
+            inserirContentor(i, (char) (valor >>> 16), new Vetor(4));
+        }
+        Contentor contentor = contentores[i];
+        int antes = contentor.cardinalidade;
+        contentores[i] = contentor.adicionar((char) valor);
+        cardinalidade += contentores[i].cardinalidade - antes;
+    }
+
+    void remover(int valor) {
+        int i = procurar((char) (valor >>> 16));
+        if (i < 0) {
+            return;
+        }
+        Contentor contentor = contentores[i];
+        int antes = contentor.cardinalidade;
+        contentores[i] = contentor.remover((char) valor);
+        cardinalidade -= antes - contentores[i].cardinalidade;
+        if (contentores[i].cardinalidade == 0) {
+            System.arraycopy(chaves, i + 1, chaves, i, tamanho - i - 1);
+            System.arraycopy(contentores, i + 1, contentores, i, tamanho - i - 1);
+            contentores[--tamanho] = null;
+        }
+    }
+
+    boolean contem(int valor) {
+        int i = procurar((char) (valor >>> 16));
+        return i >= 0 && contentores[i].contem((char) valor);
+    }
+
+    int getCardinalidade() {
+        return cardinalidade;
+    }
+
+    boolean isVazio() {
+        return cardinalidade == 0;
+    }
+
+    /**
+     * Número de elementos comuns aos dois conjuntos, sem construir a interseção.
+     */
+    int cardinalidadeE(MapaBits outro) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < tamanho && j < outro.tamanho) {
+            if (chaves[i] < outro.chaves[j]) {
+                i++;
+            } else if (chaves[i] > outro.chaves[j]) {
+                j++;
+            } else {
+                total += contentores[i++].cardinalidadeE(outro.contentores[j++]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Os elementos por ordem crescente.
+     */
+    int[] paraArray() {
+        int[] valores = new int[cardinalidade];
+        int n = 0;
+        for (int i = 0; i < tamanho; i++) {
+            n = contentores[i].copiar(chaves[i] << 16, valores, n);
+        }
+        return valores;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private int procurar(char chave) {
+        // O caso comum (números crescentes) cai no último grupo
+        if (tamanho > 0 && chaves[tamanho - 1] == chave) {
+            return tamanho - 1;
+        }
+        return Arrays.binarySearch(chaves, 0, tamanho, chave);
+    }
+
+    private void inserirContentor(int i, char chave, Contentor contentor) {
+        if (tamanho == chaves.length) {
+            chaves = Arrays.copyOf(chaves, tamanho * 2);
+            contentores = Arrays.copyOf(contentores, tamanho * 2);
+        }
+        System.arraycopy(chaves, i, chaves, i + 1, tamanho - i);
+        System.arraycopy(contentores, i, contentores, i + 1, tamanho - i);
+        chaves[i] = chave;
+        contentores[i] = contentor;
+        tamanho++;
+    }
+
+    /**
+     * Os 16 bits baixos de um grupo; adicionar e remover devolvem o
+     * contentor que passa a representar o grupo.
+     */
+    private abstract static class Contentor {
+        int cardinalidade;
+
+        abstract Contentor adicionar(char valor);
+
+        abstract Contentor remover(char valor);
+
+        abstract boolean contem(char valor);
+
+        abstract int cardinalidadeE(Contentor outro);
+
+        abstract int copiar(int base, int[] destino, int n);
+    }
+
+    private static final class Vetor extends Contentor {
+        char[] valores;
+
+        Vetor(int capacidade) {
+            valores = new char[capacidade];
+        }
+
+        @Override
+        Contentor adicionar(char valor) {
+            int i = Arrays.binarySearch(valores, 0, cardinalidade, valor);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinalidade == MAXIMO_VETOR) {
+                Mapa mapa = new Mapa();
+                for (int k = 0; k < cardinalidade; k++) {
+                    mapa.palavras[valores[k] >>> 6] |= 1L << valores[k];
+                }
+                mapa.cardinalidade = cardinalidade;
+                return mapa.adicionar(valor);
+            }
+            i = -i - 1;
+            if (cardinalidade == valores.length) {
+                valores = Arrays.copyOf(valores, Math.min(MAXIMO_VETOR, Math.max(4, cardinalidade * 2)));
+            }
+            System.arraycopy(valores, i, valores, i + 1, cardinalidade - i);
+            valores[i] = valor;
+            cardinalidade++;
+            return this;
+        }
+
+        @Override
+        Contentor remover(char valor) {
+            int i = Arrays.binarySearch(valores, 0, cardinalidade, valor);
+            if (i >= 0) {
+                System.arraycopy(valores, i + 1, valores, i, cardinalidade - i - 1);
+                cardinalidade--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contem(char valor) {
+            return Arrays.binarySearch(valores, 0, cardinalidade, valor) >= 0;
+        }
+
+        @Override
+        int cardinalidadeE(Contentor outro) {
+            if (outro instanceof Mapa) {
+                return outro.cardinalidadeE(this);
+            }
+            Vetor vetor = (Vetor) outro;
+            Vetor menor = cardinalidade <= vetor.cardinalidade ? this : vetor;
+            Vetor maior = menor == this ? vetor : this;
+            if (menor.cardinalidade * SALTO < maior.cardinalidade) {
+                return menor.cardinalidadeSaltando(maior);
+            }
+            // Intercalação sem ramos (o JIT usa movimentos condicionais)
+            char[] a = valores;
+            char[] b = vetor.valores;
+            int total = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinalidade && j < vetor.cardinalidade) {
+                char x = a[i];
+                char y = b[j];
+                total += x == y ? 1 : 0;
+                i += x <= y ? 1 : 0;
+                j += x >= y ? 1 : 0;
+            }
+            return total;
+        }
+
+        /**
+         * Procura cada valor deste vetor (muito menor) no outro por pesquisa
+         * binária, a partir da última posição encontrada.
+         */
+        private int cardinalidadeSaltando(Vetor maior) {
+            int total = 0;
+            int inicio = 0;
+            for (int i = 0; i < cardinalidade && inicio < maior.cardinalidade; i++) {
+                int k = Arrays.binarySearch(maior.valores, inicio, maior.cardinalidade, valores[i]);
+                if (k >= 0) {
+                    total++;
+                    inicio = k + 1;
+                } else {
+                    inicio = -k - 1;
+                }
+            }
+            return total;
+        }
+
+        @Override
+        int copiar(int base, int[] destino, int n) {
+            for (int i = 0; i < cardinalidade; i++) {
+                destino[n++] = base | valores[i];
+            }
+            return n;
+        }
+    }
+
+    private static final class Mapa extends Contentor {
+        final long[] palavras = new long[1024];
+
+        @Override
+        Contentor adicionar(char valor) {
+            long antes = palavras[valor >>> 6];
+            palavras[valor >>> 6] = antes | 1L << valor;
+            if (antes != palavras[valor >>> 6]) {
+                cardinalidade++;
+            }
+            return this;
+        }
+
+        @Override
+        Contentor remover(char valor) {
+            long antes = palavras[valor >>> 6];
+            palavras[valor >>> 6] = antes & ~(1L << valor);
+            if (antes == palavras[valor >>> 6]) {
+                return this;
+            }
+            cardinalidade--;
+            if (cardinalidade > MAXIMO_VETOR) {
+                return this;
+            }
+            Vetor vetor = new Vetor(cardinalidade);
+            vetor.cardinalidade = cardinalidade;
+            copiarBaixos(vetor.valores);
+            return vetor;
+        }
+
+        @Override
+        boolean contem(char valor) {
+            return (palavras[valor >>> 6] & 1L << valor) != 0;
+        }
+
+        @Override
+        int cardinalidadeE(Contentor outro) {
+            int total = 0;
+            if (outro instanceof Mapa) {
+                long[] outras = ((Mapa) outro).palavras;
+                for (int i = 0; i < palavras.length; i++) {
+                    total += Long.bitCount(palavras[i] & outras[i]);
+                }
+            } else {
+                Vetor vetor = (Vetor) outro;
+                char[] valores = vetor.valores;
+                for (int i = 0; i < vetor.cardinalidade; i++) {
+                    total += (int) (palavras[valores[i] >>> 6] >>> valores[i]) & 1;
+                }
+            }
+            return total;
+        }
+
+        @Override
+        int copiar(int base, int[] destino, int n) {
+            for (int i = 0; i < palavras.length; i++) {
+                long palavra = palavras[i];
+                while (palavra != 0) {
+                    destino[n++] = base | i << 6 | Long.numberOfTrailingZeros(palavra);
+                    palavra &= palavra - 1;
+                }
+            }
+            return n;
+        }
+
+        private void copiarBaixos(char[] destino) {
+            int n = 0;
+            for (int i = 0; i < palavras.length; i++) {
+                long palavra = palavras[i];
+                while (palavra != 0) {
+                    destino[n++] = (char) (i << 6 | Long.numberOfTrailingZeros(palavra));
+                    palavra &= palavra - 1;
+                }
+            }
+        }
+    }
+}
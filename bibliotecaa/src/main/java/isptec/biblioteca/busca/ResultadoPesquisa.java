@@ -0,0 +1,70 @@
+package isptec.biblioteca.busca;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de uma pesquisa ranqueada: os primeiros livros por relevância,
+ * o total de livros que correspondem e as contagens por faceta de todos
+ * eles (não só dos devolvidos).
+ *
+ * @param <T> tipo do livro
+ */
+public class ResultadoPesquisa<T> {
+
+    private final List<T> livros;
+    private final double[] pontuacoes;
+    private final int total;
+    private final Map<Faceta, List<ContagemFaceta>> facetas;
+
+    public ResultadoPesquisa(List<T> livros, double[] pontuacoes, int total,
+                             Map<Faceta, List<ContagemFaceta>> facetas) {
+        this.livros = Collections.unmodifiableList(livros);
+        this.pontuacoes = pontuacoes;
+        this.total = total;
+        this.facetas = new EnumMap<>(Faceta.class);
+        for (Faceta faceta : Faceta.values()) {
+            List<ContagemFaceta> contagens = facetas.get(faceta);
+            this.facetas.put(faceta, contagens != null ?
+                    Collections.unmodifiableList(contagens) : Collections.emptyList());
+        }
+    }
+
+    /**
+     * Resultado sem livros nem facetas.
+     */
+    public static <T> ResultadoPesquisa<T> vazio() {
+        return new ResultadoPesquisa<>(Collections.emptyList(), new double[0], 0,
+                new EnumMap<>(Faceta.class));
+    }
+
+    /**
+     * Livros por ordem de relevância (por título numa consulta vazia).
+     */
+    public List<T> getLivros() {
+        return livros;
+    }
+
+    /**
+     * Pontuação BM25 do livro na posição indicada (0 numa consulta vazia).
+     */
+    public double getPontuacao(int posicao) {
+        return pontuacoes[posicao];
+    }
+
+    /**
+     * Número de livros que correspondem à consulta e aos filtros.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Contagens da faceta, da maior para a menor.
+     */
+    public List<ContagemFaceta> getFaceta(Faceta faceta) {
+        return facetas.get(faceta);
+    }
+}
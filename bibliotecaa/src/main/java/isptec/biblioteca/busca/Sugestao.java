@@ -0,0 +1,34 @@
+package isptec.biblioteca.busca;
+
+/**
+ * Sugestão de pesquisa: um título, autor ou categoria do catálogo.
+ */
+public class Sugestao {
+
+    private final String texto;
+    private final Campo campo;
+    private final int popularidade;
+
+    public Sugestao(String texto, Campo campo, int popularidade) {
+        this.texto = texto;
+        this.campo = campo;
+        this.popularidade = popularidade;
+    }
+
+    public String getTexto() {
+        return texto;
+    }
+
+    public Campo getCampo() {
+        return campo;
+    }
+
+    public int getPopularidade() {
+        return popularidade;
+    }
+
+    @Override
+    public String toString() {
+        return texto;
+    }
+}
@@ -0,0 +1,408 @@
+package isptec.biblioteca.busca;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trie de prefixos compacta (radix) para as sugestões enquanto se escreve.
+ *
+ * As chaves são os textos normalizados (sem acentos, minúsculas), a
+ * começar em cada palavra, para que "limpo" sugira "Código Limpo". Os
+ * rótulos das arestas são intervalos de um único vetor de caracteres e os
+ * nós vivem em vetores de int, pelo que a trie ocupa pouco mais do que as
+ * próprias chaves.
+ *
+ * Cada nó guarda a maior popularidade da sua subárvore: a pesquisa desce
+ * pelo prefixo e percorre os ramos do mais popular para o menos, parando
+ * nos N primeiros, sem visitar o resto. Os nós com subárvores grandes têm
+ * já calculadas as suas entradas mais populares. Imutável depois de
+ * construída; pode ser partilhada entre threads.
+ */
+public final class TrieSugestoes {
+
+    /** Separa a chave do número da entrada, tornando cada chave única */
+    private static final char FIM_CHAVE = '\u0000';
+
+    /** Palavras de um texto a partir das quais se cria uma chave */
+    private static final int MAXIMO_PALAVRAS = 8;
+
+    /**
+     * Os nós com pelo menos MINIMO_CHAVES_CACHE chaves na subárvore guardam
+     * as suas MAXIMO_CACHE entradas mais populares: são os prefixos curtos,
+     * onde a busca teria mais ramos empatados para percorrer.
+     */
+    public static final int MAXIMO_CACHE = 10;
+    private static final int MINIMO_CHAVES_CACHE = 64;
+
+    private final char[] caracteres;
+    private final int[] rotuloInicio;
+    private final int[] rotuloFim;
+    private final int[] primeiroFilho;
+    private final int[] proximoIrmao;
+    private final int[] entrada;
+    private final int[] maximo;
+    private final int[][] melhores;
+
+    private final String[] textos;
+    private final Campo[] campos;
+    private final int[] popularidades;
+
+    private TrieSugestoes(char[] caracteres, int nos, String[] textos, Campo[] campos, int[] popularidades) {
+        this.caracteres = caracteres;
+        this.rotuloInicio = new int[nos];
+        this.rotuloFim = new int[nos];
+        this.primeiroFilho = new int[nos];
+        this.proximoIrmao = new int[nos];
+        this.entrada = new int[nos];
+        this.maximo = new int[nos];
+        this.melhores = new int[nos][];
+        this.textos = textos;
+        this.campos = campos;
+        this.popularidades = popularidades;
+    }
+
+    /**
+     * As sugestões mais populares cujo texto, ou uma das suas palavras,
+     * começa pelo prefixo.
+     *
+     * @param prefixo o que já foi escrito
+     * @param limite  número máximo de sugestões
+     */
+    public List<Sugestao> sugerir(String prefixo, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite inválido: " + limite);
+        }
+        String chave = AnalisadorPortugues.normalizar(prefixo);
+        if (chave.isEmpty() || textos.length == 0) {
+            return Collections.emptyList();
+        }
+        int no = descer(chave);
+        if (no < 0) {
+            return Collections.emptyList();
+        }
+
+        // Do mais popular para o menos: nós pela popularidade máxima da
+        // subárvore, entradas pela sua; o bit 0 distingue os dois
+        List<Sugestao> sugestoes = new ArrayList<>(limite);
+        if (melhores[no] != null && limite <= MAXIMO_CACHE) {
+            for (int i = 0; i < melhores[no].length && i < limite; i++) {
+                int indice = melhores[no][i];
+                sugestoes.add(new Sugestao(textos[indice], campos[indice], popularidades[indice]));
+            }
+            return sugestoes;
+        }
+
+        BitSet vistas = new BitSet();
+        Fila fila = new Fila();
+        fila.adicionar(item(maximo[no], no, false));
+        while (!fila.isVazia() && sugestoes.size() < limite) {
+            long item = fila.retirar();
+            int indice = Integer.MAX_VALUE - (int) ((item & 0xFFFFFFFFL) >>> 1);
+            if ((item & 1) != 0) {
+                if (!vistas.get(indice)) {
+                    vistas.set(indice);
+                    sugestoes.add(new Sugestao(textos[indice], campos[indice], popularidades[indice]));
+                }
+                continue;
+            }
+            if (entrada[indice] >= 0) {
+                fila.adicionar(item(popularidades[entrada[indice]], entrada[indice], true));
+            }
+            for (int filho = primeiroFilho[indice]; filho >= 0; filho = proximoIrmao[filho]) {
+                fila.adicionar(item(maximo[filho], filho, false));
+            }
+        }
+        return sugestoes;
+    }
+
+    /**
+     * Número de textos distintos.
+     */
+    public int getTotalEntradas() {
+        return textos.length;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Nó onde termina o caminho do prefixo (que pode acabar a meio da
+     * aresta que leva a ele), ou -1.
+     */
+    private int descer(String chave) {
+        int no = 0;
+        int pos = 0;
+        while (pos < chave.length()) {
+            int filho = primeiroFilho[no];
+            while (filho >= 0 && caracteres[rotuloInicio[filho]] != chave.charAt(pos)) {
+                filho = proximoIrmao[filho];
+            }
+            if (filho < 0) {
+                return -1;
+            }
+            for (int i = rotuloInicio[filho]; i < rotuloFim[filho] && pos < chave.length(); i++, pos++) {
+                if (caracteres[i] != chave.charAt(pos)) {
+                    return -1;
+                }
+            }
+            no = filho;
+        }
+        return no;
+    }
+
+    /**
+     * Popularidade nos 32 bits altos; menor índice primeiro em empate.
+     */
+    private static long item(int popularidade, int indice, boolean ehEntrada) {
+        return (long) popularidade << 32 | (long) (Integer.MAX_VALUE - indice) << 1 | (ehEntrada ? 1 : 0);
+    }
+
+    /**
+     * Heap de máximo de longs, sem caixas.
+     */
+    private static final class Fila {
+        private long[] itens = new long[64];
+        private int tamanho;
+
+        boolean isVazia() {
+            return tamanho == 0;
+        }
+
+        void adicionar(long item) {
+            if (tamanho == itens.length) {
+                itens = Arrays.copyOf(itens, tamanho * 2);
+            }
+            int i = tamanho++;
+            while (i > 0 && itens[(i - 1) >>> 1] < item) {
+                itens[i] = itens[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            itens[i] = item;
+        }
+
+        long retirar() {
+            long topo = itens[0];
+            long ultimo = itens[--tamanho];
+            int i = 0;
+            while (true) {
+                int filho = 2 * i + 1;
+                if (filho >= tamanho) {
+                    break;
+                }
+                if (filho + 1 < tamanho && itens[filho + 1] > itens[filho]) {
+                    filho++;
+                }
+                if (itens[filho] <= ultimo) {
+                    break;
+                }
+                itens[i] = itens[filho];
+                i = filho;
+            }
+            itens[i] = ultimo;
+            return topo;
+        }
+    }
+
+    /**
+     * Acumula os textos e constrói a trie de uma vez. Textos iguais
+     * (depois de normalizados) no mesmo campo somam a popularidade.
+     */
+    public static final class Construtor {
+
+        private final Map<String, Integer> porChave = new HashMap<>();
+        private final List<String> textos = new ArrayList<>();
+        private final List<Campo> campos = new ArrayList<>();
+        private int[] popularidades = new int[64];
+
+        public Construtor adicionar(String texto, Campo campo, int popularidade) {
+            if (texto == null || texto.isBlank()) {
+                return this;
+            }
+            String chave = campo.ordinal() + ":" + AnalisadorPortugues.normalizar(texto);
+            Integer indice = porChave.get(chave);
+            if (indice == null) {
+                indice = textos.size();
+                porChave.put(chave, indice);
+                textos.add(texto.trim());
+                campos.add(campo);
+                if (indice == popularidades.length) {
+                    popularidades = Arrays.copyOf(popularidades, indice * 2);
+                }
+            }
+            popularidades[indice] += Math.max(0, popularidade);
+            return this;
+        }
+
+        public TrieSugestoes construir() {
+            List<String> chaves = new ArrayList<>();
+            for (int i = 0; i < textos.size(); i++) {
+                String normalizado = AnalisadorPortugues.normalizar(textos.get(i));
+                String sufixo = "" + FIM_CHAVE + (char) (i >>> 16) + (char) i;
+                int palavras = 0;
+                for (int inicio = 0; inicio < normalizado.length() && palavras < MAXIMO_PALAVRAS; palavras++) {
+                    chaves.add(normalizado.substring(inicio) + sufixo);
+                    int espaco = normalizado.indexOf(' ', inicio);
+                    if (espaco < 0) {
+                        break;
+                    }
+                    inicio = espaco + 1;
+                }
+            }
+            String[] ordenadas = chaves.toArray(new String[0]);
+            Arrays.sort(ordenadas);
+
+            int total = 0;
+            for (String chave : ordenadas) {
+                total += chave.length();
+            }
+            char[] caracteres = new char[total];
+            int[] deslocamentos = new int[ordenadas.length];
+            int pos = 0;
+            for (int i = 0; i < ordenadas.length; i++) {
+                deslocamentos[i] = pos;
+                ordenadas[i].getChars(0, ordenadas[i].length(), caracteres, pos);
+                pos += ordenadas[i].length();
+            }
+
+            // Uma trie radix tem no máximo 2n nós para n chaves
+            TrieSugestoes trie = new TrieSugestoes(caracteres, Math.max(1, 2 * ordenadas.length),
+                    textos.toArray(new String[0]), campos.toArray(new Campo[0]),
+                    Arrays.copyOf(popularidades, textos.size()));
+            new Montagem(trie, ordenadas, deslocamentos).montar();
+            return trie;
+        }
+    }
+
+    /**
+     * Constrói os nós a partir das chaves ordenadas: cada nó é um
+     * intervalo de chaves com um prefixo comum.
+     */
+    private static final class Montagem {
+        private final TrieSugestoes trie;
+        private final String[] chaves;
+        private final int[] deslocamentos;
+        private int nos;
+
+        Montagem(TrieSugestoes trie, String[] chaves, int[] deslocamentos) {
+            this.trie = trie;
+            this.chaves = chaves;
+            this.deslocamentos = deslocamentos;
+        }
+
+        void montar() {
+            int raiz = novoNo(0, 0);
+            if (chaves.length > 0) {
+                filhos(raiz, 0, chaves.length, 0);
+            }
+        }
+
+        private int novoNo(int inicio, int fim) {
+            int no = nos++;
+            trie.rotuloInicio[no] = inicio;
+            trie.rotuloFim[no] = fim;
+            trie.primeiroFilho[no] = -1;
+            trie.proximoIrmao[no] = -1;
+            trie.entrada[no] = -1;
+            return no;
+        }
+
+        /**
+         * Cria os filhos do nó para as chaves [inicio, fim), que partilham
+         * os primeiros profundidade caracteres.
+         *
+         * @return as entradas mais populares da subárvore
+         */
+        private int[] filhos(int no, int inicio, int fim, int profundidade) {
+            int anterior = -1;
+            int maximo = 0;
+            int[] melhores = new int[0];
+            int a = inicio;
+            while (a < fim) {
+                char c = chaves[a].charAt(profundidade);
+                int b = a + 1;
+                while (b < fim && chaves[b].charAt(profundidade) == c) {
+                    b++;
+                }
+                int filho;
+                int[] melhoresFilho;
+                if (b - a == 1) {
+                    // Folha: o resto da chave, terminada pelo número da entrada
+                    String chave = chaves[a];
+                    filho = novoNo(deslocamentos[a] + profundidade, deslocamentos[a] + chave.length());
+                    int indice = chave.charAt(chave.length() - 2) << 16 | chave.charAt(chave.length() - 1);
+                    trie.entrada[filho] = indice;
+                    trie.maximo[filho] = trie.popularidades[indice];
+                    melhoresFilho = new int[] {indice};
+                } else {
+                    int comum = prefixoComum(chaves[a], chaves[b - 1]);
+                    filho = novoNo(deslocamentos[a] + profundidade, deslocamentos[a] + comum);
+                    melhoresFilho = filhos(filho, a, b, comum);
+                }
+                melhores = juntar(melhores, melhoresFilho);
+                if (anterior < 0) {
+                    trie.primeiroFilho[no] = filho;
+                } else {
+                    trie.proximoIrmao[anterior] = filho;
+                }
+                anterior = filho;
+                maximo = Math.max(maximo, trie.maximo[filho]);
+                a = b;
+            }
+            trie.maximo[no] = maximo;
+            if (fim - inicio >= MINIMO_CHAVES_CACHE) {
+                trie.melhores[no] = melhores;
+            }
+            return melhores;
+        }
+
+        /**
+         * As MAXIMO_CACHE melhores entradas distintas de duas listas ordenadas.
+         */
+        private int[] juntar(int[] a, int[] b) {
+            int[] resultado = new int[Math.min(MAXIMO_CACHE, a.length + b.length)];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (n < resultado.length && (i < a.length || j < b.length)) {
+                int proximo;
+                if (j >= b.length || (i < a.length && antes(a[i], b[j]))) {
+                    proximo = a[i++];
+                } else {
+                    proximo = b[j++];
+                }
+                if (!contem(resultado, n, proximo)) {
+                    resultado[n++] = proximo;
+                }
+            }
+            return n == resultado.length ? resultado : Arrays.copyOf(resultado, n);
+        }
+
+        private boolean antes(int a, int b) {
+            int pa = trie.popularidades[a];
+            int pb = trie.popularidades[b];
+            return pa > pb || (pa == pb && a < b);
+        }
+
+        private static boolean contem(int[] valores, int n, int valor) {
+            for (int i = 0; i < n; i++) {
+                if (valores[i] == valor) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int prefixoComum(String a, String b) {
+            int n = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < n && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package isptec.biblioteca.busca;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Procura aproximada no vocabulário do índice: termos a distância de
+ * edição (inserção, remoção, troca ou transposição de letras vizinhas)
+ * até 2 do termo pedido.
+ *
+ * Simula um autómato de Levenshtein sobre os termos ordenados, que são
+ * percorridos como uma trie implícita: a linha da programação dinâmica de
+ * cada prefixo é calculada uma vez e reutilizada pelos termos que o
+ * partilham, e um prefixo cuja linha já passa da distância máxima salta
+ * todos os termos que começam por ele. Assim só se
+ * visita a vizinhança do termo e não o dicionário inteiro, e a procura vai
+ * sempre até ao fim: nenhum termo dentro da distância fica de fora. Imutável.
+ */
+final class VocabularioDifuso {
+
+    /**
+     * Letras de todos os termos seguidas, por ordem: o termo k ocupa
+     * letras[inicio[k]..inicio[k + 1]). Percorrer o vocabulário lê a
+     * memória em sequência em vez de saltar entre objetos String.
+     */
+    private final char[] letras;
+    private final int[] inicio;
+    private final int[] frequencias;
+
+    /**
+     * @param termos      termos por ordem crescente
+     * @param frequencias número de livros de cada termo
+     */
+    VocabularioDifuso(String[] termos, int[] frequencias) {
+        int total = 0;
+        for (String termo : termos) {
+            total += termo.length();
+        }
+        this.letras = new char[total];
+        this.inicio = new int[termos.length + 1];
+        int posicao = 0;
+        for (int k = 0; k < termos.length; k++) {
+            inicio[k] = posicao;
+            termos[k].getChars(0, termos[k].length(), letras, posicao);
+            posicao += termos[k].length();
+        }
+        inicio[termos.length] = posicao;
+        this.frequencias = frequencias;
+    }
+
+    int getTotalTermos() {
+        return frequencias.length;
+    }
+
+    /**
+     * Termo do vocabulário próximo do pedido.
+     */
+    static final class Semelhante {
+        final String termo;
+        final int distancia;
+        final int frequencia;
+
+        Semelhante(String termo, int distancia, int frequencia) {
+            this.termo = termo;
+            this.distancia = distancia;
+            this.frequencia = frequencia;
+        }
+    }
+
+    /**
+     * Os termos a distância até distanciaMaxima, dos mais próximos para os
+     * mais distantes e, à mesma distância, dos mais frequentes para os menos.
+     * O próprio termo, se existir, vem primeiro com distância 0.
+     */
+    List<Semelhante> semelhantes(String termo, int distanciaMaxima, int limite) {
+        List<Semelhante> encontrados = new ArrayList<>();
+        char[] pedido = termo.toCharArray();
+        int m = pedido.length;
+        int comprimentoMaximo = m + distanciaMaxima;
+        int[][] linhas = new int[comprimentoMaximo + 1][m + 1];
+        for (int j = 0; j <= m; j++) {
+            linhas[0][j] = j;
+        }
+
+        int total = frequencias.length;
+        int anterior = -1;
+        int validas = 0;
+        int i = 0;
+        while (i < total) {
+            int base = inicio[i];
+            int comprimento = inicio[i + 1] - base;
+            int profundidade = anterior < 0 ? 0 : Math.min(validas, prefixoComum(anterior, i));
+            boolean podado = false;
+
+            int fim = Math.min(comprimento, comprimentoMaximo);
+            for (int d = profundidade; d < fim; d++) {
+                int minimo = proximaLinha(linhas, d, base, pedido);
+                if (minimo > distanciaMaxima) {
+                    // Nenhum termo com o prefixo letras[base..base + d] pode servir
+                    validas = d;
+                    anterior = i;
+                    i = depoisDoPrefixo(i, d + 1);
+                    podado = true;
+                    break;
+                }
+            }
+            if (podado) {
+                continue;
+            }
+            anterior = i;
+            validas = fim;
+            if (comprimento <= comprimentoMaximo && linhas[comprimento][m] <= distanciaMaxima) {
+                encontrados.add(new Semelhante(new String(letras, base, comprimento),
+                        linhas[comprimento][m], frequencias[i]));
+            }
+            i++;
+        }
+
+        encontrados.sort(Comparator.<Semelhante>comparingInt(s -> s.distancia)
+                .thenComparing(Comparator.<Semelhante>comparingInt(s -> s.frequencia).reversed())
+                .thenComparing(s -> s.termo));
+        return encontrados.size() > limite ? new ArrayList<>(encontrados.subList(0, limite)) : encontrados;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Calcula a linha d + 1 (prefixo com mais a letra d do termo que começa
+     * em base) a partir das anteriores, com transposições (distância de
+     * Damerau restrita).
+     *
+     * @return o menor valor da linha
+     */
+    private int proximaLinha(int[][] linhas, int d, int base, char[] pedido) {
+        int[] linha = linhas[d];
+        int[] nova = linhas[d + 1];
+        char c = letras[base + d];
+        char antes = d > 0 ? letras[base + d - 1] : 0;
+        nova[0] = d + 1;
+        int minimo = nova[0];
+        for (int j = 1; j < nova.length; j++) {
+            int custo = pedido[j - 1] == c ? 0 : 1;
+            int valor = Math.min(Math.min(nova[j - 1] + 1, linha[j] + 1), linha[j - 1] + custo);
+            if (d > 0 && j > 1 && c == pedido[j - 2] && antes == pedido[j - 1]) {
+                valor = Math.min(valor, linhas[d - 1][j - 2] + 1);
+            }
+            nova[j] = valor;
+            minimo = Math.min(minimo, valor);
+        }
+        return minimo;
+    }
+
+    /**
+     * Primeira posição depois de i cujo termo já não começa pelas primeiras
+     * n letras do termo i. Os blocos saltados são quase sempre curtos:
+     * avança aos saltos de 1, 2, 4... a partir de i (vizinhos na memória) e
+     * só depois faz a pesquisa binária no último intervalo.
+     */
+    private int depoisDoPrefixo(int i, int n) {
+        int total = frequencias.length;
+        int ultimo = i;
+        int passo = 1;
+        int sonda = i + 1;
+        while (sonda < total && prefixoComum(i, sonda) >= n) {
+            ultimo = sonda;
+            passo <<= 1;
+            sonda = i + passo;
+        }
+        int baixo = ultimo + 1;
+        int alto = Math.min(sonda, total);
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (prefixoComum(i, meio) >= n) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    private int prefixoComum(int a, int b) {
+        int inicioA = inicio[a];
+        int inicioB = inicio[b];
+        int n = Math.min(inicio[a + 1] - inicioA, inicio[b + 1] - inicioB);
+        int k = 0;
+        while (k < n && letras[inicioA + k] == letras[inicioB + k]) {
+            k++;
+        }
+        return k;
+    }
+}
@@ -5,7 +5,13 @@ import isptec.biblioteca.util.DatabaseManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO para operações de Autor no banco de dados.
@@ -13,71 +19,32 @@ import java.util.List;
 public class AutorDAO {
 
     private final DatabaseManager dbManager;
+    private final RegistroReferencia registro;
 
     public AutorDAO() {
         this.dbManager = DatabaseManager.getInstance();
+        this.registro = RegistroReferencia.getInstance();
     }
 
     /**
-     * Busca autor por ID.
+     * Busca autor por ID (cópia do registo de referência).
      */
     public Autor findById(int id) throws SQLException {
-        String sql = "SELECT * FROM autor WHERE id = ?";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, id);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToAutor(rs);
-                }
-            }
-        }
-        return null;
+        return copiar(registro.getAutor(id));
     }
 
     /**
-     * Busca autor por nome exato.
+     * Busca autor por nome exato (sem distinguir maiúsculas nem acentos, como a collation do banco).
      */
     public Autor findByNome(String nome) throws SQLException {
-        String sql = "SELECT * FROM autor WHERE nome = ?";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, nome);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToAutor(rs);
-                }
-            }
-        }
-        return null;
+        return copiar(registro.getAutorPorNome(nome));
     }
 
     /**
      * Busca autores por nome parcial.
      */
     public List<Autor> findByNomeContaining(String nome) throws SQLException {
-        String sql = "SELECT * FROM autor WHERE nome LIKE ? ORDER BY nome";
-
-        List<Autor> autores = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, "%" + nome + "%");
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    autores.add(mapResultSetToAutor(rs));
-                }
-            }
-        }
-        return autores;
+        return copiar(registro.getAutoresComNome(nome));
     }
 
     /**
@@ -96,6 +63,7 @@ public class AutorDAO {
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
+                registro.marcarDesatualizado();
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         return generatedKeys.getInt(1);
@@ -120,7 +88,11 @@ public class AutorDAO {
             stmt.setString(3, autor.getBiografia());
             stmt.setInt(4, autor.getId());
 
-            return stmt.executeUpdate() > 0;
+            boolean alterado = stmt.executeUpdate() > 0;
+            if (alterado) {
+                registro.marcarDesatualizado();
+            }
+            return alterado;
         }
     }
 
@@ -134,7 +106,11 @@ public class AutorDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            boolean alterado = stmt.executeUpdate() > 0;
+            if (alterado) {
+                registro.marcarDesatualizado();
+            }
+            return alterado;
         }
     }
 
@@ -142,43 +118,126 @@ public class AutorDAO {
      * Lista todos os autores.
      */
     public List<Autor> findAll() throws SQLException {
-        String sql = "SELECT * FROM autor ORDER BY nome";
-        List<Autor> autores = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        return copiar(registro.getAutores());
+    }
 
-            while (rs.next()) {
-                autores.add(mapResultSetToAutor(rs));
-            }
+    /**
+     * Busca autores de um livro específico (instâncias partilhadas do registo de referência).
+     */
+    public List<Autor> findByLivroId(int livroId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            List<Autor> autores = findByLivroIds(conn, Collections.singleton(livroId)).get(livroId);
+            return autores != null ? autores : new ArrayList<>();
         }
-        return autores;
     }
 
     /**
-     * Busca autores de um livro específico.
+     * Busca os autores de vários livros de uma vez, usando a conexão fornecida.
+     * Executa uma consulta IN (...) a livro_autor por cada bloco de {@link SqlUtil#TAMANHO_LOTE_IN} livros
+     * e resolve os IDs para as instâncias partilhadas do {@link RegistroReferencia}, sem ler autor.
+     *
+     * @return mapa livroId -> autores por ordem de nome (livros sem autores não aparecem no mapa)
      */
-    public List<Autor> findByLivroId(int livroId) throws SQLException {
-        String sql = "SELECT a.* FROM autor a " +
-                     "INNER JOIN livro_autor la ON a.id = la.autor_id " +
-                     "WHERE la.livro_id = ? " +
-                     "ORDER BY a.nome";
+    public Map<Integer, List<Autor>> findByLivroIds(Connection conn, Collection<Integer> livroIds) throws SQLException {
+        Map<Integer, List<Autor>> resultado = new HashMap<>();
+        if (livroIds.isEmpty()) {
+            return resultado;
+        }
 
-        List<Autor> autores = new ArrayList<>();
+        Map<Integer, List<Integer>> associacoes = new HashMap<>();
+        Set<Integer> autorIds = new HashSet<>();
+        List<Integer> ids = new ArrayList<>(livroIds);
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        for (int inicio = 0; inicio < ids.size(); inicio += SqlUtil.TAMANHO_LOTE_IN) {
+            List<Integer> bloco = ids.subList(inicio, Math.min(inicio + SqlUtil.TAMANHO_LOTE_IN, ids.size()));
+            String sql = "SELECT livro_id, autor_id FROM livro_autor " +
+                         "WHERE livro_id IN (" + SqlUtil.placeholders(bloco.size()) + ")";
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                SqlUtil.definirParametros(stmt, bloco.toArray());
 
-            stmt.setInt(1, livroId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int autorId = rs.getInt("autor_id");
+                        associacoes.computeIfAbsent(rs.getInt("livro_id"), k -> new ArrayList<>()).add(autorId);
+                        autorIds.add(autorId);
+                    }
+                }
+            }
+        }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    autores.add(mapResultSetToAutor(rs));
+        Map<Integer, Autor> porId = resolver(conn, autorIds);
+        for (Map.Entry<Integer, List<Integer>> entrada : associacoes.entrySet()) {
+            List<Autor> autores = new ArrayList<>(entrada.getValue().size());
+            for (int autorId : entrada.getValue()) {
+                Autor autor = porId.get(autorId);
+                if (autor != null) {
+                    autores.add(autor);
                 }
             }
+            autores.sort(RegistroReferencia.ORDEM_AUTORES);
+            resultado.put(entrada.getKey(), autores);
+        }
+        return resultado;
+    }
+
+    /**
+     * Autores do registo de referência pelos IDs. Um ID desconhecido (criado
+     * depois da última carga) faz recarregar o registo; os que ainda faltarem
+     * (por confirmar na transação desta conexão) são lidos diretamente.
+     */
+    private Map<Integer, Autor> resolver(Connection conn, Set<Integer> ids) throws SQLException {
+        Map<Integer, Autor> porId = new HashMap<>(ids.size() * 2);
+        List<Integer> emFalta = new ArrayList<>();
+        for (int id : ids) {
+            Autor autor = registro.getAutor(id);
+            if (autor != null) {
+                porId.put(id, autor);
+            } else {
+                emFalta.add(id);
+            }
+        }
+        if (emFalta.isEmpty()) {
+            return porId;
+        }
+
+        registro.recarregar();
+        List<Integer> novos = new ArrayList<>();
+        for (int id : emFalta) {
+            Autor autor = registro.getAutor(id);
+            if (autor != null) {
+                porId.put(id, autor);
+            } else {
+                novos.add(id);
+            }
+        }
+        for (int inicio = 0; inicio < novos.size(); inicio += SqlUtil.TAMANHO_LOTE_IN) {
+            List<Integer> bloco = novos.subList(inicio, Math.min(inicio + SqlUtil.TAMANHO_LOTE_IN, novos.size()));
+            String sql = "SELECT * FROM autor WHERE id IN (" + SqlUtil.placeholders(bloco.size()) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                SqlUtil.definirParametros(stmt, bloco.toArray());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Autor autor = mapResultSetToAutor(rs);
+                        porId.put(autor.getId(), autor);
+                    }
+                }
+            }
+        }
+        return porId;
+    }
+
+    /** Cópia que o chamador pode alterar sem afetar o registo de referência */
+    private static Autor copiar(Autor autor) {
+        return autor == null ? null : new Autor(autor.getId(), autor.getNome(), autor.getNacionalidade(), autor.getBiografia());
+    }
+
+    private static List<Autor> copiar(List<Autor> autores) {
+        List<Autor> copias = new ArrayList<>(autores.size());
+        for (Autor autor : autores) {
+            copias.add(copiar(autor));
         }
-        return autores;
+        return copias;
     }
 
     private Autor mapResultSetToAutor(ResultSet rs) throws SQLException {
@@ -0,0 +1,716 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache de resultados de consultas dos DAOs, com invalidação por tabela.
+ *
+ * Cada entrada é identificada pelo SQL normalizado (espaços colapsados) e
+ * pelos parâmetros, e depende das tabelas que o SQL lê (FROM/JOIN, com as
+ * vistas view_* expandidas nas tabelas de base) e das que o DAO declara
+ * para o resto do grafo. As consultas entram apenas por opção do DAO
+ * ({@link #listar}, {@link #contar}).
+ *
+ * As escritas são vistas na conexão: o DatabaseManager envolve cada
+ * conexão com {@link #vigiar}, que reconhece INSERT, UPDATE, DELETE,
+ * REPLACE, TRUNCATE e CALL, e invalida exatamente as entradas que dependem
+ * das tabelas escritas (mais as alteradas por CASCADE, triggers e
+ * procedimentos), logo após a execução e de novo no commit, rollback ou
+ * fecho. Uma consulta que começou antes de uma invalidação das suas
+ * tabelas não guarda o resultado. Os carregadores correm sempre no
+ * primário (ver {@link DatabaseManager#iniciarPrimario()}), mesmo quando a
+ * consulta vem de um repositório que lê da réplica, para a cache não
+ * guardar o estado atrasado da réplica.
+ *
+ * As entradas ocupam no máximo o orçamento de memória configurado (tamanho
+ * estimado pelos DAOs), saindo as usadas há mais tempo, e expiram ao fim
+ * da validade (as vistas usam CURRENT_DATE e há eventos agendados no
+ * servidor). Os valores são copiados à entrada e à saída.
+ *
+ * Outras caches podem ouvir as mesmas escritas ({@link #aoEscrever}); com
+ * ouvintes as conexões são vigiadas mesmo com esta cache desativada.
+ *
+ * Configurado pelo DatabaseManager (cache.consultas.memoriaMb,
+ * cache.consultas.validadeSegundos).
+ */
+public final class CacheConsultas {
+
+    /** Estimativa fixa por entrada (chave, lista, nó do mapa) */
+    private static final long PESO_ENTRADA = 256;
+
+    private static final Pattern LEITURA = Pattern.compile("(?i)\\b(?:FROM|JOIN)\\s+`?([a-z_][a-z0-9_]*)`?");
+    private static final Pattern ESCRITA =
+            Pattern.compile("(?i)\\b(?:INTO|UPDATE|FROM|JOIN|TABLE)\\s+`?([a-z_][a-z0-9_]*)`?");
+    private static final Pattern PROCEDIMENTO = Pattern.compile("(?i)^\\{?\\s*CALL\\s+`?([a-z_][a-z0-9_]*)");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    /** Tabelas de base de cada vista (create_database.sql) */
+    private static final Map<String, List<String>> VISTAS = new HashMap<>();
+
+    /** Tabelas escritas por cada procedimento, além das dos seus triggers */
+    private static final Map<String, List<String>> PROCEDIMENTOS = new HashMap<>();
+
+    /** Tabelas que uma escrita noutra também pode alterar (CASCADE, triggers) */
+    private static final Map<String, List<String>> EFEITOS = new HashMap<>();
+
+    static {
+        VISTAS.put("view_emprestimos_ativos", Arrays.asList("emprestimo", "livro", "membro", "pessoa"));
+        VISTAS.put("view_reservas_ativas", Arrays.asList("reserva", "livro", "membro", "pessoa"));
+        VISTAS.put("view_livros_disponiveis",
+                Arrays.asList("livro", "livro_autor", "autor", "livro_categoria", "categoria"));
+        VISTAS.put("view_membros_info",
+                Arrays.asList("pessoa", "membro", "estudante", "emprestimo", "reserva"));
+
+        PROCEDIMENTOS.put("sp_realizar_emprestimo", Arrays.asList("livro", "emprestimo"));
+        PROCEDIMENTOS.put("sp_devolver_livro", Arrays.asList("emprestimo", "membro", "livro"));
+        PROCEDIMENTOS.put("sp_renovar_emprestimo", Arrays.asList("emprestimo"));
+        PROCEDIMENTOS.put("sp_criar_reserva", Arrays.asList("reserva"));
+
+        EFEITOS.put("pessoa", Arrays.asList("membro", "estudante", "bibliotecario", "historico_acao"));
+        EFEITOS.put("membro", Arrays.asList("estudante", "reserva", "notificacao"));
+        EFEITOS.put("livro", Arrays.asList("reserva", "livro_autor", "livro_categoria"));
+        EFEITOS.put("autor", Arrays.asList("livro_autor"));
+        EFEITOS.put("categoria", Arrays.asList("livro_categoria"));
+        EFEITOS.put("emprestimo", Arrays.asList("historico_acao"));
+    }
+
+    private static final CacheConsultas INSTANCIA = new CacheConsultas();
+
+    /**
+     * Como copiar e pesar os elementos de uma consulta em cache, e de que
+     * tabelas depende o grafo carregado além das que o SQL lê.
+     *
+     * @param <T> tipo dos elementos
+     */
+    public static final class Tipo<T> {
+        final UnaryOperator<T> copiador;
+        final ToLongFunction<T> peso;
+        final List<String> tabelas;
+
+        public Tipo(UnaryOperator<T> copiador, ToLongFunction<T> peso, String... tabelas) {
+            this.copiador = copiador;
+            this.peso = peso;
+            this.tabelas = Arrays.asList(tabelas);
+        }
+    }
+
+    /**
+     * Execução da consulta no banco, em caso de falha na cache.
+     */
+    public interface Carregador<R> {
+        R carregar() throws SQLException;
+    }
+
+    private static final class Chave {
+        final String sql;
+        final List<Object> parametros;
+        final int hash;
+
+        Chave(String sql, Object[] parametros) {
+            this.sql = sql;
+            this.parametros = Arrays.asList(parametros.clone());
+            this.hash = 31 * sql.hashCode() + this.parametros.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Chave)) {
+                return false;
+            }
+            Chave outra = (Chave) o;
+            return hash == outra.hash && sql.equals(outra.sql) && parametros.equals(outra.parametros);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entrada {
+        final Chave chave;
+        final Object valor;
+        final UnaryOperator<Object> copiador;
+        final Set<String> tabelas;
+        final long bytes;
+        final long expiraEm;
+
+        Entrada(Chave chave, Object valor, UnaryOperator<Object> copiador, Set<String> tabelas,
+                long bytes, long expiraEm) {
+            this.chave = chave;
+            this.valor = valor;
+            this.copiador = copiador;
+            this.tabelas = tabelas;
+            this.bytes = bytes;
+            this.expiraEm = expiraEm;
+        }
+    }
+
+    /** Acertos e falhas de uma consulta (SQL normalizado) */
+    private static final class Contagem {
+        final LongAdder acertos = new LongAdder();
+        final LongAdder falhas = new LongAdder();
+    }
+
+    // Ordem de acesso: a primeira entrada é a usada há mais tempo
+    private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Set<Chave>> porTabela = new HashMap<>();
+    private final Map<String, Long> geracoes = new HashMap<>();
+    /** Aumenta quando a cache é esvaziada ou uma escrita não tem tabelas conhecidas */
+    private long geracaoGlobal;
+    private long bytes;
+
+    private volatile long memoriaMaxima;
+    private volatile long validadeNanos = TimeUnit.MINUTES.toNanos(5);
+
+    private final ConcurrentHashMap<String, Contagem> porConsulta = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> tabelasLidas = new ConcurrentHashMap<>();
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+    private final List<Consumer<Set<String>>> ouvintes = new CopyOnWriteArrayList<>();
+
+    private CacheConsultas() {
+    }
+
+    public static CacheConsultas getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * @param memoriaBytes orçamento de memória (0 desativa e esvazia a cache)
+     * @param validadeMs   tempo de vida de cada entrada (0 = sem limite)
+     */
+    public void configurar(long memoriaBytes, long validadeMs) {
+        if (memoriaBytes < 0 || validadeMs < 0) {
+            throw new IllegalArgumentException("Configuração da cache de consultas inválida");
+        }
+        this.validadeNanos = TimeUnit.MILLISECONDS.toNanos(validadeMs);
+        this.memoriaMaxima = memoriaBytes;
+        synchronized (this) {
+            reduzirA(memoriaBytes);
+        }
+    }
+
+    public boolean isAtivo() {
+        return memoriaMaxima > 0;
+    }
+
+    /**
+     * Lista de elementos, da cache ou do carregador. Quem recebe a lista
+     * pode alterá-la e aos seus elementos.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> listar(Tipo<T> tipo, String sql, Object[] parametros,
+                              Carregador<List<T>> carregador) throws SQLException {
+        UnaryOperator<Object> copiador = lista -> {
+            List<T> copia = new ArrayList<>(((List<T>) lista).size());
+            for (T elemento : (List<T>) lista) {
+                copia.add(tipo.copiador.apply(elemento));
+            }
+            return copia;
+        };
+        ToLongFunction<Object> peso = lista -> {
+            long total = PESO_ENTRADA;
+            for (T elemento : (List<T>) lista) {
+                total += 16 + tipo.peso.applyAsLong(elemento);
+            }
+            return total;
+        };
+        return obter(sql, parametros, tipo.tabelas, copiador, peso, carregador);
+    }
+
+    /**
+     * Contagem (SELECT COUNT(*) ...), da cache ou do carregador.
+     */
+    public long contar(String sql, Object[] parametros, Carregador<Long> carregador) throws SQLException {
+        return obter(sql, parametros, Collections.emptyList(), UnaryOperator.identity(),
+                contagem -> PESO_ENTRADA, carregador);
+    }
+
+    /**
+     * Esvazia a cache (as estatísticas mantêm-se).
+     */
+    public synchronized void limpar() {
+        geracaoGlobal++;
+        entradas.clear();
+        porTabela.clear();
+        bytes = 0;
+    }
+
+    // === ESCRITAS ===
+
+    /**
+     * Envolve a conexão para que as escritas nela executadas invalidem as
+     * consultas dependentes. Sem cache ativa nem ouvintes devolve a própria
+     * conexão.
+     */
+    public Connection vigiar(Connection conexao) {
+        if (!isAtivo() && ouvintes.isEmpty()) {
+            return conexao;
+        }
+        return proxy(Connection.class, new ConexaoVigiada(conexao));
+    }
+
+    /**
+     * Invalida as consultas que dependem das tabelas (e das alteradas em
+     * cascata por elas).
+     */
+    public void invalidar(Collection<String> tabelas) {
+        if (tabelas.isEmpty()) {
+            return;
+        }
+        Set<String> afetadas = comEfeitos(tabelas);
+        if (!ouvintes.isEmpty()) {
+            Set<String> vistas = new HashSet<>(afetadas);
+            if (tabelas.contains("*")) {
+                vistas.add("*");
+            }
+            for (Consumer<Set<String>> ouvinte : ouvintes) {
+                ouvinte.accept(vistas);
+            }
+        }
+        synchronized (this) {
+            for (String tabela : afetadas) {
+                avancarGeracao(tabela);
+                Set<Chave> chaves = porTabela.remove(tabela);
+                if (chaves == null) {
+                    continue;
+                }
+                for (Chave chave : chaves) {
+                    Entrada entrada = entradas.remove(chave);
+                    if (entrada != null) {
+                        desligar(entrada, tabela);
+                        invalidacoes.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Passa a chamar o ouvinte com as tabelas afetadas (com as de cascata)
+     * por cada escrita vista nas conexões vigiadas, como {@link #invalidar};
+     * "*" quando a escrita não tem tabelas conhecidas. Serve as caches que
+     * não sabem quem escreve nas suas tabelas.
+     */
+    public void aoEscrever(Consumer<Set<String>> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    public void removerOuvinte(Consumer<Set<String>> ouvinte) {
+        ouvintes.remove(ouvinte);
+    }
+
+    // === ESTATÍSTICAS ===
+
+    public synchronized int getTamanho() {
+        return entradas.size();
+    }
+
+    /** Memória estimada ocupada pelas entradas, em bytes */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMemoriaMaxima() {
+        return memoriaMaxima;
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    /** Entradas removidas por escritas nas suas tabelas */
+    public long getInvalidacoes() {
+        return invalidacoes.sum();
+    }
+
+    /** Entradas removidas para respeitar o orçamento de memória */
+    public long getRemocoes() {
+        return remocoes.sum();
+    }
+
+    public double getTaxaAcerto() {
+        return taxa(acertos.sum(), falhas.sum());
+    }
+
+    /**
+     * Taxa de acerto por consulta (SQL normalizado), das mais pedidas para
+     * as menos.
+     */
+    public Map<String, Double> getTaxaAcertoPorConsulta() {
+        List<Map.Entry<String, Contagem>> lista = new ArrayList<>(porConsulta.entrySet());
+        lista.sort((a, b) -> Long.compare(total(b.getValue()), total(a.getValue())));
+        Map<String, Double> taxas = new LinkedHashMap<>();
+        for (Map.Entry<String, Contagem> entrada : lista) {
+            taxas.put(entrada.getKey(), taxa(entrada.getValue().acertos.sum(), entrada.getValue().falhas.sum()));
+        }
+        return taxas;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheConsultas{entradas=%d, memoria=%d/%d KB, acertos=%d, falhas=%d, taxa=%.1f%%, " +
+                             "invalidacoes=%d, remocoes=%d}", getTamanho(), getBytes() / 1024, memoriaMaxima / 1024,
+                getAcertos(), getFalhas(), getTaxaAcerto() * 100, getInvalidacoes(), getRemocoes());
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Valor da cache ou do carregador. A entrada de uma chave foi guardada
+     * pelo mesmo tipo de chamada (o SQL determina o tipo do resultado), por
+     * isso a cópia devolvida num acerto é do tipo pedido.
+     */
+    @SuppressWarnings("unchecked")
+    private <R> R obter(String sql, Object[] parametros, List<String> tabelasExtra, UnaryOperator<Object> copiador,
+                        ToLongFunction<Object> peso, Carregador<R> carregador) throws SQLException {
+        if (!isAtivo()) {
+            return carregador.carregar();
+        }
+        String normalizado = ESPACOS.matcher(sql.trim()).replaceAll(" ");
+        Chave chave = new Chave(normalizado, parametros);
+        Contagem contagem = porConsulta.computeIfAbsent(normalizado, k -> new Contagem());
+
+        Set<String> tabelas;
+        Map<String, Long> marca;
+        long marcaGlobal;
+        synchronized (this) {
+            Entrada entrada = entradas.get(chave);
+            if (entrada != null && (entrada.expiraEm == 0 || System.nanoTime() - entrada.expiraEm < 0)) {
+                acertos.increment();
+                contagem.acertos.increment();
+                return (R) entrada.copiador.apply(entrada.valor);
+            }
+            if (entrada != null) {
+                remover(entrada);
+            }
+            tabelas = dependencias(normalizado, tabelasExtra);
+            marcaGlobal = geracaoGlobal;
+            marca = new HashMap<>();
+            for (String tabela : tabelas) {
+                marca.put(tabela, geracoes.getOrDefault(tabela, 0L));
+            }
+        }
+        falhas.increment();
+        contagem.falhas.increment();
+
+        R valor;
+        DatabaseManager.iniciarPrimario();
+        try {
+            valor = carregador.carregar();
+        } finally {
+            DatabaseManager.terminarPrimario();
+        }
+        long tamanho = peso.applyAsLong(valor);
+        if (tamanho > memoriaMaxima / 4) {
+            // Resultados enormes expulsariam todo o resto
+            return valor;
+        }
+        Object guardado = copiador.apply(valor);
+        long validade = validadeNanos;
+        synchronized (this) {
+            if (marcaGlobal != geracaoGlobal) {
+                return valor;
+            }
+            for (Map.Entry<String, Long> antes : marca.entrySet()) {
+                if (!antes.getValue().equals(geracoes.getOrDefault(antes.getKey(), 0L))) {
+                    return valor;
+                }
+            }
+            Entrada anterior = entradas.remove(chave);
+            if (anterior != null) {
+                remover(anterior);
+            }
+            Entrada nova = new Entrada(chave, guardado, copiador, tabelas, tamanho,
+                    validade > 0 ? System.nanoTime() + validade : 0);
+            entradas.put(chave, nova);
+            for (String tabela : tabelas) {
+                porTabela.computeIfAbsent(tabela, k -> new HashSet<>()).add(chave);
+            }
+            bytes += tamanho;
+            reduzirA(memoriaMaxima);
+        }
+        return valor;
+    }
+
+    /**
+     * Tabelas lidas pelo SQL (vistas expandidas) mais as declaradas.
+     */
+    private Set<String> dependencias(String sql, List<String> tabelasExtra) {
+        Set<String> lidas = tabelasLidas.computeIfAbsent(sql, s -> {
+            Set<String> tabelas = new HashSet<>();
+            Matcher matcher = LEITURA.matcher(s);
+            while (matcher.find()) {
+                String tabela = matcher.group(1).toLowerCase(Locale.ROOT);
+                List<String> base = VISTAS.get(tabela);
+                if (base != null) {
+                    tabelas.addAll(base);
+                } else {
+                    tabelas.add(tabela);
+                }
+            }
+            return tabelas;
+        });
+        if (tabelasExtra.isEmpty()) {
+            return lidas;
+        }
+        Set<String> todas = new HashSet<>(lidas);
+        todas.addAll(tabelasExtra);
+        return todas;
+    }
+
+    /**
+     * Tabelas que uma instrução pode alterar: vazio para leituras; para um
+     * procedimento desconhecido, todas as que têm consultas em cache.
+     */
+    static Set<String> tabelasEscritas(String sql) {
+        if (sql == null) {
+            return Collections.emptySet();
+        }
+        String inicio = sql.stripLeading();
+        int fim = 0;
+        while (fim < inicio.length() && fim < 10 && Character.isLetter(inicio.charAt(fim))) {
+            fim++;
+        }
+        String verbo = inicio.substring(0, fim).toUpperCase(Locale.ROOT);
+        switch (verbo) {
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "REPLACE":
+            case "TRUNCATE":
+                break;
+            default:
+                if (verbo.equals("CALL") || inicio.startsWith("{")) {
+                    Matcher matcher = PROCEDIMENTO.matcher(inicio);
+                    List<String> tabelas = matcher.find() ?
+                            PROCEDIMENTOS.get(matcher.group(1).toLowerCase(Locale.ROOT)) : null;
+                    return tabelas != null ? new HashSet<>(tabelas) : Collections.singleton("*");
+                }
+                return Collections.emptySet();
+        }
+        Set<String> tabelas = new HashSet<>();
+        Matcher matcher = ESCRITA.matcher(inicio);
+        while (matcher.find()) {
+            tabelas.add(matcher.group(1).toLowerCase(Locale.ROOT));
+        }
+        return tabelas;
+    }
+
+    private Set<String> comEfeitos(Collection<String> tabelas) {
+        Set<String> afetadas = new HashSet<>();
+        List<String> porVisitar = new ArrayList<>(tabelas);
+        while (!porVisitar.isEmpty()) {
+            String tabela = porVisitar.remove(porVisitar.size() - 1);
+            if (tabela.equals("*")) {
+                synchronized (this) {
+                    geracaoGlobal++;
+                    porVisitar.addAll(porTabela.keySet());
+                }
+                continue;
+            }
+            if (afetadas.add(tabela)) {
+                porVisitar.addAll(EFEITOS.getOrDefault(tabela, Collections.emptyList()));
+            }
+        }
+        return afetadas;
+    }
+
+    private void avancarGeracao(String tabela) {
+        geracoes.merge(tabela, 1L, Long::sum);
+    }
+
+    private void reduzirA(long limite) {
+        Iterator<Entrada> iterador = entradas.values().iterator();
+        while (bytes > limite && iterador.hasNext()) {
+            Entrada entrada = iterador.next();
+            iterador.remove();
+            desligar(entrada, null);
+            remocoes.increment();
+        }
+    }
+
+    private void remover(Entrada entrada) {
+        entradas.remove(entrada.chave);
+        desligar(entrada, null);
+    }
+
+    /**
+     * Retira a entrada dos índices por tabela (menos o da tabela que está
+     * a ser percorrida) e desconta a memória.
+     */
+    private void desligar(Entrada entrada, String exceto) {
+        bytes -= entrada.bytes;
+        for (String tabela : entrada.tabelas) {
+            if (tabela.equals(exceto)) {
+                continue;
+            }
+            Set<Chave> chaves = porTabela.get(tabela);
+            if (chaves != null) {
+                chaves.remove(entrada.chave);
+                if (chaves.isEmpty()) {
+                    porTabela.remove(tabela);
+                }
+            }
+        }
+    }
+
+    private static long total(Contagem contagem) {
+        return contagem.acertos.sum() + contagem.falhas.sum();
+    }
+
+    private static double taxa(long acertos, long falhas) {
+        long total = acertos + falhas;
+        return total == 0 ? 0 : (double) acertos / total;
+    }
+
+    private static <T> T proxy(Class<T> tipo, InvocationHandler handler) {
+        return tipo.cast(Proxy.newProxyInstance(CacheConsultas.class.getClassLoader(),
+                new Class<?>[]{tipo}, handler));
+    }
+
+    private static Object chamar(Object alvo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Conexão: vigia as instruções de escrita que cria e invalida de novo
+     * as tabelas escritas quando a transação termina.
+     */
+    private final class ConexaoVigiada implements InvocationHandler {
+
+        private final Connection alvo;
+        private final Set<String> escritas = new HashSet<>();
+
+        ConexaoVigiada(Connection alvo) {
+            this.alvo = alvo;
+        }
+
+        void registar(Set<String> tabelas) {
+            escritas.addAll(tabelas);
+            invalidar(tabelas);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nome = metodo.getName();
+            Object resultado;
+            try {
+                resultado = chamar(alvo, metodo, args);
+            } finally {
+                if ((nome.equals("commit") || nome.equals("rollback") || nome.equals("close")) &&
+                    !escritas.isEmpty()) {
+                    invalidar(new ArrayList<>(escritas));
+                    escritas.clear();
+                }
+            }
+            if (!(resultado instanceof Statement)) {
+                return resultado;
+            }
+            if (nome.equals("createStatement")) {
+                return proxy(Statement.class, new InstrucaoVigiada(this, (Statement) resultado,
+                        Collections.emptySet()));
+            }
+            Set<String> tabelas = args != null && args[0] instanceof String ?
+                    tabelasEscritas((String) args[0]) : Collections.emptySet();
+            if (tabelas.isEmpty()) {
+                return resultado;
+            }
+            InstrucaoVigiada handler = new InstrucaoVigiada(this, (Statement) resultado, tabelas);
+            if (resultado instanceof CallableStatement) {
+                return proxy(CallableStatement.class, handler);
+            }
+            return proxy(PreparedStatement.class, handler);
+        }
+    }
+
+    /**
+     * Instrução de escrita (preparada) ou Statement simples, cujo SQL só se
+     * conhece em cada execução.
+     */
+    private static final class InstrucaoVigiada implements InvocationHandler {
+
+        private final ConexaoVigiada conexao;
+        private final Statement alvo;
+        private final Set<String> tabelasPreparadas;
+        private final Set<String> lote = new HashSet<>();
+
+        InstrucaoVigiada(ConexaoVigiada conexao, Statement alvo, Set<String> tabelasPreparadas) {
+            this.conexao = conexao;
+            this.alvo = alvo;
+            this.tabelasPreparadas = tabelasPreparadas;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nome = metodo.getName();
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            if (nome.equals("addBatch") && sql != null) {
+                lote.addAll(tabelasEscritas(sql));
+            } else if (nome.equals("clearBatch")) {
+                lote.clear();
+            }
+            if (!nome.startsWith("execute")) {
+                return chamar(alvo, metodo, args);
+            }
+            Set<String> tabelas = new HashSet<>(tabelasPreparadas);
+            if (sql != null) {
+                tabelas.addAll(tabelasEscritas(sql));
+            }
+            if (nome.contains("Batch")) {
+                tabelas.addAll(lote);
+                lote.clear();
+            }
+            try {
+                return chamar(alvo, metodo, args);
+            } finally {
+                // Mesmo com erro: parte de um lote pode ter sido aplicada
+                if (!tabelas.isEmpty()) {
+                    conexao.registar(tabelas);
+                }
+            }
+        }
+    }
+}
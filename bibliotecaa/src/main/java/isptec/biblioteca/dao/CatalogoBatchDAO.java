@@ -0,0 +1,200 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.util.ValidacaoUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DAO de escrita em lote para importação de catálogo.
+ *
+ * Todas as operações usam a conexão (e a transação) do chamador e enviam
+ * as linhas com JDBC batch; com rewriteBatchedStatements ativo no pool, o
+ * driver junta cada batch num INSERT multi-linha.
+ */
+public class CatalogoBatchDAO {
+
+    /**
+     * Devolve os ISBNs da lista (já normalizados) que existem na tabela
+     * livro, mesmo gravados com hífenes ou espaços. Compara com a mesma
+     * expressão do índice idx_isbn_normalizado, para o banco o poder usar.
+     */
+    public Set<String> findIsbnsExistentes(Connection conn, Collection<String> isbns) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        for (List<String> bloco : blocos(isbns)) {
+            String sql = "SELECT isbn FROM livro WHERE REPLACE(REPLACE(isbn, '-', ''), ' ', '') IN (" +
+                    SqlUtil.placeholders(bloco.size()) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                SqlUtil.definirParametros(stmt, bloco.toArray());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        existentes.add(ValidacaoUtil.normalizarIsbn(rs.getString(1)));
+                    }
+                }
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Busca autores pelo nome (comparação da collation do banco).
+     *
+     * @return nome gravado -> ID (o menor ID se houver nomes repetidos)
+     */
+    public Map<String, Integer> findAutoresPorNome(Connection conn, Collection<String> nomes) throws SQLException {
+        return findIdsPorNome(conn, "autor", nomes);
+    }
+
+    /**
+     * Busca categorias pelo nome.
+     *
+     * @return nome gravado -> ID
+     */
+    public Map<String, Integer> findCategoriasPorNome(Connection conn, Collection<String> nomes) throws SQLException {
+        return findIdsPorNome(conn, "categoria", nomes);
+    }
+
+    /**
+     * Insere autores novos (apenas o nome).
+     */
+    public void inserirAutores(Connection conn, Collection<String> nomes) throws SQLException {
+        executarBatch(conn, "INSERT INTO autor (nome) VALUES (?)", nomes);
+    }
+
+    /**
+     * Insere categorias novas; nomes já existentes são ignorados (nome é UNIQUE).
+     */
+    public void inserirCategorias(Connection conn, Collection<String> nomes) throws SQLException {
+        executarBatch(conn, "INSERT IGNORE INTO categoria (nome) VALUES (?)", nomes);
+    }
+
+    /**
+     * Insere livros em batch e devolve os IDs gerados por ISBN.
+     */
+    public Map<String, Integer> inserirLivros(Connection conn, List<Livro> livros) throws SQLException {
+        String sql = "INSERT INTO livro (titulo, isbn, editora, ano_publicacao, " +
+                    "quantidade_total, quantidade_disponivel, estado, descricao, localizacao) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        List<String> isbns = new ArrayList<>(livros.size());
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Livro livro : livros) {
+                stmt.setString(1, livro.getTitulo());
+                stmt.setString(2, livro.getIsbn());
+                stmt.setString(3, livro.getEditora());
+                stmt.setInt(4, livro.getAnoPublicacao());
+                stmt.setInt(5, livro.getQuantidadeTotal());
+                stmt.setInt(6, livro.getQuantidadeDisponivel());
+                stmt.setString(7, livro.getEstado().name());
+                stmt.setString(8, livro.getDescricao());
+                stmt.setString(9, livro.getLocalizacao());
+                stmt.addBatch();
+                isbns.add(livro.getIsbn());
+            }
+            stmt.executeBatch();
+        }
+
+        // ISBN é UNIQUE: relê os IDs em vez de depender da ordem das chaves geradas
+        Map<String, Integer> ids = new HashMap<>();
+        for (List<String> bloco : blocos(isbns)) {
+            String select = "SELECT id, isbn FROM livro WHERE isbn IN (" + SqlUtil.placeholders(bloco.size()) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                SqlUtil.definirParametros(stmt, bloco.toArray());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.put(rs.getString("isbn"), rs.getInt("id"));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Insere associações livro-autor; cada par é {livroId, autorId}.
+     */
+    public void inserirLivroAutores(Connection conn, List<int[]> pares) throws SQLException {
+        inserirPares(conn, "INSERT INTO livro_autor (livro_id, autor_id) VALUES (?, ?)", pares);
+    }
+
+    /**
+     * Insere associações livro-categoria; cada par é {livroId, categoriaId}.
+     */
+    public void inserirLivroCategorias(Connection conn, List<int[]> pares) throws SQLException {
+        inserirPares(conn, "INSERT INTO livro_categoria (livro_id, categoria_id) VALUES (?, ?)", pares);
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private Map<String, Integer> findIdsPorNome(Connection conn, String tabela, Collection<String> nomes)
+            throws SQLException {
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        for (List<String> bloco : blocos(nomes)) {
+            String sql = "SELECT id, nome FROM " + tabela + " WHERE nome IN (" +
+                         SqlUtil.placeholders(bloco.size()) + ") ORDER BY id";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                SqlUtil.definirParametros(stmt, bloco.toArray());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.putIfAbsent(rs.getString("nome"), rs.getInt("id"));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void executarBatch(Connection conn, String sql, Collection<String> valores) throws SQLException {
+        if (valores.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (String valor : valores) {
+                stmt.setString(1, valor);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void inserirPares(Connection conn, String sql, List<int[]> pares) throws SQLException {
+        if (pares.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int[] par : pares) {
+                stmt.setInt(1, par[0]);
+                stmt.setInt(2, par[1]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static List<List<String>> blocos(Collection<String> valores) {
+        List<List<String>> blocos = new ArrayList<>();
+        List<String> atual = new ArrayList<>();
+        for (String valor : valores) {
+            atual.add(valor);
+            if (atual.size() == SqlUtil.TAMANHO_LOTE_IN) {
+                blocos.add(atual);
+                atual = new ArrayList<>();
+            }
+        }
+        if (!atual.isEmpty()) {
+            blocos.add(atual);
+        }
+        return blocos;
+    }
+}
@@ -5,7 +5,13 @@ import isptec.biblioteca.util.DatabaseManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO para operações de Categoria no banco de dados.
@@ -13,71 +19,32 @@ import java.util.List;
 public class CategoriaDAO {
 
     private final DatabaseManager dbManager;
+    private final RegistroReferencia registro;
 
     public CategoriaDAO() {
         this.dbManager = DatabaseManager.getInstance();
+        this.registro = RegistroReferencia.getInstance();
     }
 
     /**
-     * Busca categoria por ID.
+     * Busca categoria por ID (cópia do registo de referência).
      */
     public Categoria findById(int id) throws SQLException {
-        String sql = "SELECT * FROM categoria WHERE id = ?";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, id);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToCategoria(rs);
-                }
-            }
-        }
-        return null;
+        return copiar(registro.getCategoria(id));
     }
 
     /**
-     * Busca categoria por nome exato.
+     * Busca categoria por nome exato (sem distinguir maiúsculas nem acentos, como a collation do banco).
      */
     public Categoria findByNome(String nome) throws SQLException {
-        String sql = "SELECT * FROM categoria WHERE nome = ?";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, nome);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToCategoria(rs);
-                }
-            }
-        }
-        return null;
+        return copiar(registro.getCategoriaPorNome(nome));
     }
 
     /**
      * Busca categorias por nome parcial.
      */
     public List<Categoria> findByNomeContaining(String nome) throws SQLException {
-        String sql = "SELECT * FROM categoria WHERE nome LIKE ? ORDER BY nome";
-
-        List<Categoria> categorias = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, "%" + nome + "%");
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    categorias.add(mapResultSetToCategoria(rs));
-                }
-            }
-        }
-        return categorias;
+        return copiar(registro.getCategoriasComNome(nome));
     }
 
     /**
@@ -95,6 +62,7 @@ public class CategoriaDAO {
             int affectedRows = stmt.executeUpdate();
 
             if (affectedRows > 0) {
+                registro.marcarDesatualizado();
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         return generatedKeys.getInt(1);
@@ -118,7 +86,11 @@ public class CategoriaDAO {
             stmt.setString(2, categoria.getDescricao());
             stmt.setInt(3, categoria.getId());
 
-            return stmt.executeUpdate() > 0;
+            boolean alterado = stmt.executeUpdate() > 0;
+            if (alterado) {
+                registro.marcarDesatualizado();
+            }
+            return alterado;
         }
     }
 
@@ -132,7 +104,11 @@ public class CategoriaDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            boolean alterado = stmt.executeUpdate() > 0;
+            if (alterado) {
+                registro.marcarDesatualizado();
+            }
+            return alterado;
         }
     }
 
@@ -140,43 +116,126 @@ public class CategoriaDAO {
      * Lista todas as categorias.
      */
     public List<Categoria> findAll() throws SQLException {
-        String sql = "SELECT * FROM categoria ORDER BY nome";
-        List<Categoria> categorias = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        return copiar(registro.getCategorias());
+    }
 
-            while (rs.next()) {
-                categorias.add(mapResultSetToCategoria(rs));
-            }
+    /**
+     * Busca categorias de um livro específico (instâncias partilhadas do registo de referência).
+     */
+    public List<Categoria> findByLivroId(int livroId) throws SQLException {
+        try (Connection conn = dbManager.getConnection()) {
+            List<Categoria> categorias = findByLivroIds(conn, Collections.singleton(livroId)).get(livroId);
+            return categorias != null ? categorias : new ArrayList<>();
         }
-        return categorias;
     }
 
     /**
-     * Busca categorias de um livro específico.
+     * Busca as categorias de vários livros de uma vez, usando a conexão fornecida.
+     * Executa uma consulta IN (...) a livro_categoria por cada bloco de {@link SqlUtil#TAMANHO_LOTE_IN} livros
+     * e resolve os IDs para as instâncias partilhadas do {@link RegistroReferencia}, sem ler categoria.
+     *
+     * @return mapa livroId -> categorias por ordem de nome (livros sem categorias não aparecem no mapa)
      */
-    public List<Categoria> findByLivroId(int livroId) throws SQLException {
-        String sql = "SELECT c.* FROM categoria c " +
-                     "INNER JOIN livro_categoria lc ON c.id = lc.categoria_id " +
-                     "WHERE lc.livro_id = ? " +
-                     "ORDER BY c.nome";
+    public Map<Integer, List<Categoria>> findByLivroIds(Connection conn, Collection<Integer> livroIds) throws SQLException {
+        Map<Integer, List<Categoria>> resultado = new HashMap<>();
+        if (livroIds.isEmpty()) {
+            return resultado;
+        }
 
-        List<Categoria> categorias = new ArrayList<>();
+        Map<Integer, List<Integer>> associacoes = new HashMap<>();
+        Set<Integer> categoriaIds = new HashSet<>();
+        List<Integer> ids = new ArrayList<>(livroIds);
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        for (int inicio = 0; inicio < ids.size(); inicio += SqlUtil.TAMANHO_LOTE_IN) {
+            List<Integer> bloco = ids.subList(inicio, Math.min(inicio + SqlUtil.TAMANHO_LOTE_IN, ids.size()));
+            String sql = "SELECT livro_id, categoria_id FROM livro_categoria " +
+                         "WHERE livro_id IN (" + SqlUtil.placeholders(bloco.size()) + ")";
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                SqlUtil.definirParametros(stmt, bloco.toArray());
 
-            stmt.setInt(1, livroId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int categoriaId = rs.getInt("categoria_id");
+                        associacoes.computeIfAbsent(rs.getInt("livro_id"), k -> new ArrayList<>()).add(categoriaId);
+                        categoriaIds.add(categoriaId);
+                    }
+                }
+            }
+        }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    categorias.add(mapResultSetToCategoria(rs));
+        Map<Integer, Categoria> porId = resolver(conn, categoriaIds);
+        for (Map.Entry<Integer, List<Integer>> entrada : associacoes.entrySet()) {
+            List<Categoria> categorias = new ArrayList<>(entrada.getValue().size());
+            for (int categoriaId : entrada.getValue()) {
+                Categoria categoria = porId.get(categoriaId);
+                if (categoria != null) {
+                    categorias.add(categoria);
                 }
             }
+            categorias.sort(RegistroReferencia.ORDEM_CATEGORIAS);
+            resultado.put(entrada.getKey(), categorias);
+        }
+        return resultado;
+    }
+
+    /**
+     * Categorias do registo de referência pelos IDs. Um ID desconhecido (criado
+     * depois da última carga) faz recarregar o registo; os que ainda faltarem
+     * (por confirmar na transação desta conexão) são lidos diretamente.
+     */
+    private Map<Integer, Categoria> resolver(Connection conn, Set<Integer> ids) throws SQLException {
+        Map<Integer, Categoria> porId = new HashMap<>(ids.size() * 2);
+        List<Integer> emFalta = new ArrayList<>();
+        for (int id : ids) {
+            Categoria categoria = registro.getCategoria(id);
+            if (categoria != null) {
+                porId.put(id, categoria);
+            } else {
+                emFalta.add(id);
+            }
+        }
+        if (emFalta.isEmpty()) {
+            return porId;
+        }
+
+        registro.recarregar();
+        List<Integer> novos = new ArrayList<>();
+        for (int id : emFalta) {
+            Categoria categoria = registro.getCategoria(id);
+            if (categoria != null) {
+                porId.put(id, categoria);
+            } else {
+                novos.add(id);
+            }
+        }
+        for (int inicio = 0; inicio < novos.size(); inicio += SqlUtil.TAMANHO_LOTE_IN) {
+            List<Integer> bloco = novos.subList(inicio, Math.min(inicio + SqlUtil.TAMANHO_LOTE_IN, novos.size()));
+            String sql = "SELECT * FROM categoria WHERE id IN (" + SqlUtil.placeholders(bloco.size()) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                SqlUtil.definirParametros(stmt, bloco.toArray());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Categoria categoria = mapResultSetToCategoria(rs);
+                        porId.put(categoria.getId(), categoria);
+                    }
+                }
+            }
+        }
+        return porId;
+    }
+
+    /** Cópia que o chamador pode alterar sem afetar o registo de referência */
+    private static Categoria copiar(Categoria categoria) {
+        return categoria == null ? null : new Categoria(categoria.getId(), categoria.getNome(), categoria.getDescricao());
+    }
+
+    private static List<Categoria> copiar(List<Categoria> categorias) {
+        List<Categoria> copias = new ArrayList<>(categorias.size());
+        for (Categoria categoria : categorias) {
+            copias.add(copiar(categoria));
         }
-        return categorias;
+        return copias;
     }
 
     private Categoria mapResultSetToCategoria(ResultSet rs) throws SQLException {
@@ -0,0 +1,93 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.repository.ResultadoCirculacao;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * DAO de circulação atómica: empréstimo, devolução e renovação numa só
+ * chamada aos procedimentos sp_realizar_emprestimo, sp_devolver_livro e
+ * sp_renovar_emprestimo.
+ *
+ * As verificações (disponibilidade, bloqueio, multa, limite de empréstimos,
+ * reservas) e as alterações correm na mesma transação do servidor, pelo
+ * que não há janela entre verificar e escrever.
+ */
+public class CirculacaoDAO {
+
+    private final DatabaseManager dbManager;
+
+    public CirculacaoDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+
+    /**
+     * Empresta o livro ao membro se houver exemplar disponível e o membro puder.
+     */
+    public ResultadoCirculacao realizarEmprestimo(int livroId, int membroId) throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement stmt = conn.prepareCall("{CALL sp_realizar_emprestimo(?, ?, ?, ?)}")) {
+
+            stmt.setInt(1, livroId);
+            stmt.setInt(2, membroId);
+            stmt.registerOutParameter(3, Types.VARCHAR);
+            stmt.registerOutParameter(4, Types.INTEGER);
+            stmt.execute();
+
+            return new ResultadoCirculacao(stmt.getString(3), stmt.getInt(4), 0);
+        }
+    }
+
+    /**
+     * Regista a devolução e a multa por atraso.
+     *
+     * @param dataDevolucao data da devolução (null para a data do servidor)
+     */
+    public ResultadoCirculacao devolverLivro(int emprestimoId, LocalDate dataDevolucao) throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement stmt = conn.prepareCall("{CALL sp_devolver_livro(?, ?, ?, ?)}")) {
+
+            stmt.setInt(1, emprestimoId);
+            definirData(stmt, 2, dataDevolucao);
+            stmt.registerOutParameter(3, Types.VARCHAR);
+            stmt.registerOutParameter(4, Types.DECIMAL);
+            stmt.execute();
+
+            return new ResultadoCirculacao(stmt.getString(3), 0, stmt.getDouble(4));
+        }
+    }
+
+    /**
+     * Renova o empréstimo se ainda tiver renovações e o livro não tiver reservas.
+     *
+     * @param novaData nova data prevista (null para mais 14 dias)
+     */
+    public ResultadoCirculacao renovarEmprestimo(int emprestimoId, LocalDate novaData) throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement stmt = conn.prepareCall("{CALL sp_renovar_emprestimo(?, ?, ?)}")) {
+
+            stmt.setInt(1, emprestimoId);
+            definirData(stmt, 2, novaData);
+            stmt.registerOutParameter(3, Types.VARCHAR);
+            stmt.execute();
+
+            return new ResultadoCirculacao(stmt.getString(3), 0, 0);
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void definirData(CallableStatement stmt, int indice, LocalDate data) throws SQLException {
+        if (data != null) {
+            stmt.setDate(indice, Date.valueOf(data));
+        } else {
+            stmt.setNull(indice, Types.DATE);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.diario.OperacaoCirculacao;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DAO que aplica ao banco lotes do diário de circulação.
+ *
+ * Cada lote é aplicado numa única transação que também avança a marca
+ * diario_aplicado da origem; operações com sequência igual ou inferior à
+ * marca são ignoradas, pelo que reaplicar um lote após uma falha não
+ * duplica empréstimos nem movimentos de stock.
+ */
+public class DiarioCirculacaoDAO {
+
+    private static final String DEVOLVER =
+            "UPDATE emprestimo SET data_devolucao_real = ?, estado = 'DEVOLVIDO', valor_multa = ? " +
+            "WHERE %s = ? AND data_devolucao_real IS NULL";
+
+    private static final String RENOVAR =
+            "UPDATE emprestimo SET data_devolucao_prevista = ?, numero_renovacoes = ?, estado = 'ATIVO' " +
+            "WHERE %s = ? AND data_devolucao_real IS NULL";
+
+    private final DatabaseManager dbManager;
+
+    public DiarioCirculacaoDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+
+    /**
+     * Última sequência aplicada para a origem (0 se nenhuma).
+     */
+    public long ultimaSequencia(String origem) throws SQLException {
+        String sql = "SELECT ultima_sequencia FROM diario_aplicado WHERE origem = ?";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, origem);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Avança a marca da origem sem aplicar nada (operação rejeitada).
+     */
+    public void saltar(String origem, long sequencia) throws SQLException {
+        String sql = "INSERT INTO diario_aplicado (origem, ultima_sequencia) VALUES (?, ?) " +
+                     "ON DUPLICATE KEY UPDATE ultima_sequencia = GREATEST(ultima_sequencia, VALUES(ultima_sequencia))";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, origem);
+            stmt.setLong(2, sequencia);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * IDs dos empréstimos com as chaves de operação indicadas.
+     *
+     * @return mapa chave de operação -> ID do empréstimo
+     */
+    public Map<Long, Integer> findIdsPorChave(Collection<Long> chaves) throws SQLException {
+        Map<Long, Integer> ids = new HashMap<>();
+        List<Long> lista = new ArrayList<>(chaves);
+
+        try (Connection conn = dbManager.getConnection()) {
+            for (int inicio = 0; inicio < lista.size(); inicio += SqlUtil.TAMANHO_LOTE_IN) {
+                List<Long> bloco = lista.subList(inicio, Math.min(inicio + SqlUtil.TAMANHO_LOTE_IN, lista.size()));
+                String sql = "SELECT chave_operacao, id FROM emprestimo WHERE chave_operacao IN (" +
+                             SqlUtil.placeholders(bloco.size()) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    SqlUtil.definirParametros(stmt, bloco.toArray());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            ids.put(rs.getLong(1), rs.getInt(2));
+                        }
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Aplica o lote numa transação: empréstimos novos, renovações,
+     * devoluções, depois os saldos agregados de livros e multas de membros,
+     * e por fim a marca da origem.
+     */
+    public void aplicar(String origem, List<OperacaoCirculacao> operacoes) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = dbManager.getConnection();
+            conn.setAutoCommit(false);
+
+            long marca = bloquearMarca(conn, origem);
+            List<OperacaoCirculacao> novas = new ArrayList<>();
+            for (OperacaoCirculacao operacao : operacoes) {
+                if (operacao.getSequencia() > marca) {
+                    novas.add(operacao);
+                }
+            }
+
+            if (!novas.isEmpty()) {
+                // Ordenados por ID para bloquear as linhas sempre pela mesma ordem
+                Map<Integer, Integer> saldoLivros = new TreeMap<>();
+                Map<Integer, Double> multasMembros = new TreeMap<>();
+
+                inserirEmprestimos(conn, novas, saldoLivros);
+                atualizarEmprestimos(conn, RENOVAR, OperacaoCirculacao.Tipo.RENOVACAO, novas, null, null);
+                atualizarEmprestimos(conn, DEVOLVER, OperacaoCirculacao.Tipo.DEVOLUCAO, novas,
+                        saldoLivros, multasMembros);
+                atualizarLivros(conn, saldoLivros);
+                atualizarMultas(conn, multasMembros);
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE diario_aplicado SET ultima_sequencia = ? WHERE origem = ?")) {
+                    stmt.setLong(1, novas.get(novas.size() - 1).getSequencia());
+                    stmt.setString(2, origem);
+                    stmt.executeUpdate();
+                }
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Bloqueia a linha da origem (criando-a se necessário) e devolve a marca.
+     */
+    private long bloquearMarca(Connection conn, String origem) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT IGNORE INTO diario_aplicado (origem, ultima_sequencia) VALUES (?, 0)")) {
+            stmt.setString(1, origem);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT ultima_sequencia FROM diario_aplicado WHERE origem = ? FOR UPDATE")) {
+            stmt.setString(1, origem);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private void inserirEmprestimos(Connection conn, List<OperacaoCirculacao> operacoes,
+                                    Map<Integer, Integer> saldoLivros) throws SQLException {
+        String sql = "INSERT INTO emprestimo (livro_id, membro_id, data_emprestimo, data_devolucao_prevista, " +
+                     "numero_renovacoes, estado, chave_operacao) VALUES (?, ?, ?, ?, 0, 'ATIVO', ?)";
+        boolean vazio = true;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OperacaoCirculacao operacao : operacoes) {
+                if (operacao.getTipo() != OperacaoCirculacao.Tipo.EMPRESTIMO) {
+                    continue;
+                }
+                stmt.setInt(1, operacao.getLivroId());
+                stmt.setInt(2, operacao.getMembroId());
+                stmt.setDate(3, Date.valueOf(operacao.getData()));
+                stmt.setDate(4, Date.valueOf(operacao.getDataPrevista()));
+                stmt.setLong(5, operacao.getChave());
+                stmt.addBatch();
+                saldoLivros.merge(operacao.getLivroId(), -1, Integer::sum);
+                vazio = false;
+            }
+            if (!vazio) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Executa renovações ou devoluções do tipo indicado, localizando o
+     * empréstimo pela chave de operação ou, sem chave, pelo ID. Só as
+     * linhas efetivamente alteradas contam para os saldos.
+     */
+    private void atualizarEmprestimos(Connection conn, String sql, OperacaoCirculacao.Tipo tipo,
+                                      List<OperacaoCirculacao> operacoes, Map<Integer, Integer> saldoLivros,
+                                      Map<Integer, Double> multasMembros) throws SQLException {
+        List<OperacaoCirculacao> porChave = new ArrayList<>();
+        List<OperacaoCirculacao> porId = new ArrayList<>();
+        for (OperacaoCirculacao operacao : operacoes) {
+            if (operacao.getTipo() == tipo) {
+                (operacao.getChave() != 0 ? porChave : porId).add(operacao);
+            }
+        }
+
+        try (PreparedStatement stmtChave = conn.prepareStatement(String.format(sql, "chave_operacao"));
+             PreparedStatement stmtId = conn.prepareStatement(String.format(sql, "id"))) {
+            executarAtualizacoes(stmtChave, porChave, saldoLivros, multasMembros);
+            executarAtualizacoes(stmtId, porId, saldoLivros, multasMembros);
+        }
+    }
+
+    private void executarAtualizacoes(PreparedStatement stmt, List<OperacaoCirculacao> operacoes,
+                                      Map<Integer, Integer> saldoLivros,
+                                      Map<Integer, Double> multasMembros) throws SQLException {
+        if (operacoes.isEmpty()) {
+            return;
+        }
+        for (OperacaoCirculacao operacao : operacoes) {
+            if (operacao.getTipo() == OperacaoCirculacao.Tipo.DEVOLUCAO) {
+                stmt.setDate(1, Date.valueOf(operacao.getData()));
+                stmt.setDouble(2, operacao.getValorMulta());
+            } else {
+                stmt.setDate(1, Date.valueOf(operacao.getDataPrevista()));
+                stmt.setInt(2, operacao.getNumeroRenovacoes());
+            }
+            if (operacao.getChave() != 0) {
+                stmt.setLong(3, operacao.getChave());
+            } else {
+                stmt.setInt(3, operacao.getEmprestimoId());
+            }
+            stmt.addBatch();
+        }
+
+        int[] resultados = stmt.executeBatch();
+        for (int i = 0; i < resultados.length; i++) {
+            OperacaoCirculacao operacao = operacoes.get(i);
+            if (resultados[i] == 0) {
+                System.err.println("Operação do diário sem empréstimo correspondente: " + operacao);
+                continue;
+            }
+            if (saldoLivros != null) {
+                saldoLivros.merge(operacao.getLivroId(), 1, Integer::sum);
+            }
+            if (multasMembros != null && operacao.getValorMulta() > 0) {
+                multasMembros.merge(operacao.getMembroId(), operacao.getValorMulta(), Double::sum);
+            }
+        }
+    }
+
+    /**
+     * Aplica o saldo de exemplares por livro, recalculando o estado como
+     * sp_realizar_emprestimo e sp_devolver_livro (sem mexer em livros
+     * indisponíveis ou reservados).
+     */
+    private void atualizarLivros(Connection conn, Map<Integer, Integer> saldoLivros) throws SQLException {
+        if (saldoLivros.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE livro SET quantidade_disponivel = quantidade_disponivel + ?, " +
+                     "estado = CASE WHEN estado IN ('DISPONIVEL', 'EMPRESTADO') " +
+                     "THEN IF(quantidade_disponivel = 0, 'EMPRESTADO', 'DISPONIVEL') ELSE estado END " +
+                     "WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> saldo : saldoLivros.entrySet()) {
+                if (saldo.getValue() == 0) {
+                    continue;
+                }
+                stmt.setInt(1, saldo.getValue());
+                stmt.setInt(2, saldo.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void atualizarMultas(Connection conn, Map<Integer, Double> multasMembros) throws SQLException {
+        if (multasMembros.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE membro SET multa_pendente = multa_pendente + ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Double> multa : multasMembros.entrySet()) {
+                stmt.setDouble(1, multa.getValue());
+                stmt.setInt(2, multa.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+}
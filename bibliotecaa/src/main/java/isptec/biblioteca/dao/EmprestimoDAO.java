@@ -2,154 +2,168 @@ package isptec.biblioteca.dao;
 
 import isptec.biblioteca.enumeracao.EstadoEmprestimo;
 import isptec.biblioteca.model.entities.Emprestimo;
-import isptec.biblioteca.model.entities.Livro;
-import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
 import isptec.biblioteca.util.DatabaseManager;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO para operações de Empréstimo no banco de dados.
  */
 public class EmprestimoDAO {
 
+    /**
+     * Livro, membro e pessoa do empréstimo (aliases l, m e p): os critérios
+     * podem usá-los, por isso todas as consultas por critério fazem as mesmas junções.
+     */
+    private static final String JUNCOES =
+            "INNER JOIN livro l ON l.id = e.livro_id " +
+            "INNER JOIN membro m ON m.id = e.membro_id " +
+            "INNER JOIN pessoa p ON p.id = m.id";
+
+    /**
+     * Empréstimo com livro e membro na mesma linha (prefixos "l_" e "m_").
+     * As colunas do próprio empréstimo mantêm o nome original.
+     */
+    private static final String SELECT_COMPLETO =
+            "SELECT e.*, " + LivroDAO.colunas("l", "l_") + ", " + MembroDAO.colunas("p", "m", "m_") + " " +
+            "FROM emprestimo e " + JUNCOES + " ";
+
     private final DatabaseManager dbManager;
-    private final LivroDAO livroDAO;
-    private final MembroDAO membroDAO;
+    private final LivroGraphLoader graphLoader;
 
     public EmprestimoDAO() {
         this.dbManager = DatabaseManager.getInstance();
-        this.livroDAO = new LivroDAO();
-        this.membroDAO = new MembroDAO();
+        this.graphLoader = new LivroGraphLoader();
     }
 
     /**
      * Busca empréstimo por ID.
      */
     public Emprestimo findById(int id) throws SQLException {
-        String sql = "SELECT * FROM emprestimo WHERE id = ?";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, id);
+        return findById(id, new SessaoEntidades());
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEmprestimo(rs);
-                }
-            }
-        }
-        return null;
+    /**
+     * Busca empréstimo por ID reutilizando livros/membros já carregados na sessão.
+     */
+    public Emprestimo findById(int id, SessaoEntidades sessao) throws SQLException {
+        List<Emprestimo> emprestimos = consultarEmprestimos(sessao, SELECT_COMPLETO + "WHERE e.id = ?", id);
+        return emprestimos.isEmpty() ? null : emprestimos.get(0);
     }
 
     /**
      * Busca empréstimos de um membro.
      */
     public List<Emprestimo> findByMembro(int membroId) throws SQLException {
-        String sql = "SELECT * FROM emprestimo WHERE membro_id = ? ORDER BY data_emprestimo DESC";
-
-        List<Emprestimo> emprestimos = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, membroId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    emprestimos.add(mapResultSetToEmprestimo(rs));
-                }
-            }
-        }
-        return emprestimos;
+        String sql = SELECT_COMPLETO + "WHERE e.membro_id = ? ORDER BY e.data_emprestimo DESC";
+        return consultarEmprestimos(new SessaoEntidades(), sql, membroId);
     }
 
     /**
      * Busca empréstimos de um livro.
      */
     public List<Emprestimo> findByLivro(int livroId) throws SQLException {
-        String sql = "SELECT * FROM emprestimo WHERE livro_id = ? ORDER BY data_emprestimo DESC";
-
-        List<Emprestimo> emprestimos = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, livroId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    emprestimos.add(mapResultSetToEmprestimo(rs));
-                }
-            }
-        }
-        return emprestimos;
+        String sql = SELECT_COMPLETO + "WHERE e.livro_id = ? ORDER BY e.data_emprestimo DESC";
+        return consultarEmprestimos(new SessaoEntidades(), sql, livroId);
     }
 
     /**
      * Lista empréstimos ativos.
      */
     public List<Emprestimo> findAtivos() throws SQLException {
-        String sql = "SELECT * FROM emprestimo WHERE estado = 'ATIVO' ORDER BY data_devolucao_prevista";
-
-        List<Emprestimo> emprestimos = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                emprestimos.add(mapResultSetToEmprestimo(rs));
-            }
-        }
-        return emprestimos;
+        String sql = SELECT_COMPLETO + "WHERE e.estado = 'ATIVO' ORDER BY e.data_devolucao_prevista";
+        return consultarEmprestimos(new SessaoEntidades(), sql);
     }
 
     /**
      * Lista empréstimos atrasados.
      */
     public List<Emprestimo> findAtrasados() throws SQLException {
-        String sql = "SELECT * FROM emprestimo WHERE estado = 'ATRASADO' " +
-                     "ORDER BY data_devolucao_prevista";
+        String sql = SELECT_COMPLETO + "WHERE e.estado = 'ATRASADO' " +
+                     "ORDER BY e.data_devolucao_prevista";
+        return consultarEmprestimos(new SessaoEntidades(), sql);
+    }
 
-        List<Emprestimo> emprestimos = new ArrayList<>();
+    /**
+     * Lista empréstimos ativos de um membro.
+     */
+    public List<Emprestimo> findAtivosByMembro(int membroId) throws SQLException {
+        String sql = SELECT_COMPLETO + "WHERE e.membro_id = ? AND e.estado = 'ATIVO' " +
+                     "ORDER BY e.data_devolucao_prevista";
+        return consultarEmprestimos(new SessaoEntidades(), sql, membroId);
+    }
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+    /**
+     * Busca empréstimos que satisfazem o critério, do mais recente para o mais antigo.
+     * As colunas do critério usam o alias e (emprestimo).
+     */
+    public List<Emprestimo> findWhere(Criterio criterio) throws SQLException {
+        return findWhere(criterio, "e.data_emprestimo DESC, e.id DESC");
+    }
 
-            while (rs.next()) {
-                emprestimos.add(mapResultSetToEmprestimo(rs));
-            }
-        }
-        return emprestimos;
+    /**
+     * Busca empréstimos que satisfazem o critério, pela ordenação indicada.
+     */
+    public List<Emprestimo> findWhere(Criterio criterio, String ordenacao) throws SQLException {
+        String where = criterio.isVazio() ? "" : "WHERE " + criterio.getSql() + " ";
+        String sql = SELECT_COMPLETO + where + "ORDER BY " + Criterio.validarOrdenacao(ordenacao);
+        return consultarEmprestimos(new SessaoEntidades(), sql, criterio.getParametros().toArray());
     }
 
     /**
-     * Lista empréstimos ativos de um membro.
+     * Conta empréstimos que satisfazem o critério, sem transferir as linhas.
      */
-    public List<Emprestimo> findAtivosByMembro(int membroId) throws SQLException {
-        String sql = "SELECT * FROM emprestimo WHERE membro_id = ? AND estado = 'ATIVO' " +
-                     "ORDER BY data_devolucao_prevista";
+    public long count(Criterio criterio) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM emprestimo e " + JUNCOES + criterio.clausulaWhere();
+        return SqlUtil.contarEmCache(dbManager, sql, criterio.getParametros().toArray());
+    }
 
-        List<Emprestimo> emprestimos = new ArrayList<>();
+    /**
+     * Remove os empréstimos que satisfazem o critério (aliases de {@link #findWhere}), em blocos de IDs.
+     *
+     * @return número de empréstimos removidos
+     */
+    public long deleteWhere(Criterio criterio) throws SQLException {
+        return SqlUtil.apagarEmBlocos(dbManager, "SELECT e.id FROM emprestimo e " + JUNCOES, "e.id", "emprestimo", criterio);
+    }
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Altera numa só instrução os empréstimos que satisfazem o critério.
+     * As colunas da alteração usam o alias e; o critério pode usar l, m e p.
+     *
+     * @return número de empréstimos alterados
+     */
+    public long updateWhere(Criterio criterio, Alteracao alteracao) throws SQLException {
+        return SqlUtil.atualizar(dbManager, "UPDATE emprestimo e " + JUNCOES, criterio, alteracao);
+    }
 
-            stmt.setInt(1, membroId);
+    /**
+     * Esvazia a tabela de empréstimos. Apenas para testes.
+     */
+    public void truncate() throws SQLException {
+        SqlUtil.truncar(dbManager, "emprestimo");
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    emprestimos.add(mapResultSetToEmprestimo(rs));
-                }
-            }
+    /**
+     * Busca a página de empréstimos seguinte à chave (data_emprestimo, id),
+     * do mais recente para o mais antigo. Com data null devolve a primeira página.
+     */
+    public List<Emprestimo> findPaginaApos(LocalDate dataEmprestimo, int id, int limite) throws SQLException {
+        if (dataEmprestimo == null) {
+            String sql = SELECT_COMPLETO + "ORDER BY e.data_emprestimo DESC, e.id DESC LIMIT ?";
+            return consultarEmprestimos(new SessaoEntidades(), sql, limite);
         }
-        return emprestimos;
+        String sql = SELECT_COMPLETO +
+                     "WHERE e.data_emprestimo < ? OR (e.data_emprestimo = ? AND e.id < ?) " +
+                     "ORDER BY e.data_emprestimo DESC, e.id DESC LIMIT ?";
+        return consultarEmprestimos(new SessaoEntidades(), sql, dataEmprestimo, dataEmprestimo, id, limite);
     }
 
     /**
@@ -298,18 +312,34 @@ public class EmprestimoDAO {
      * Lista todos os empréstimos.
      */
     public List<Emprestimo> findAll() throws SQLException {
-        String sql = "SELECT * FROM emprestimo ORDER BY data_emprestimo DESC";
-        List<Emprestimo> emprestimos = new ArrayList<>();
+        return findAll(new SessaoEntidades());
+    }
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+    /**
+     * Lista todos os empréstimos usando a sessão indicada.
+     */
+    public List<Emprestimo> findAll(SessaoEntidades sessao) throws SQLException {
+        String sql = SELECT_COMPLETO + "ORDER BY e.data_emprestimo DESC";
+        return consultarEmprestimos(sessao, sql);
+    }
 
-            while (rs.next()) {
-                emprestimos.add(mapResultSetToEmprestimo(rs));
-            }
+    /**
+     * Percorre todos os empréstimos em streaming (por ordem de ID), sem
+     * carregar a tabela em memória. Livros e membros são partilhados dentro
+     * de cada bloco de linhas.
+     */
+    public void forEach(Consumer<Emprestimo> acao) throws SQLException {
+        try (LeitorStreaming<Emprestimo> leitor = abrirStreaming()) {
+            leitor.paraCada(acao);
         }
-        return emprestimos;
+    }
+
+    /**
+     * Stream de todos os empréstimos lido em streaming. Deve ser usado em
+     * try-with-resources para libertar as conexões.
+     */
+    public Stream<Emprestimo> stream() throws SQLException {
+        return abrirStreaming().comoStream();
     }
 
     /**
@@ -326,23 +356,58 @@ public class EmprestimoDAO {
         }
     }
 
-    private Emprestimo mapResultSetToEmprestimo(ResultSet rs) throws SQLException {
-        Emprestimo emprestimo = new Emprestimo();
+    // === MÉTODOS AUXILIARES ===
 
-        emprestimo.setId(rs.getInt("id"));
+    /**
+     * Executa uma consulta baseada em {@link #SELECT_COMPLETO}: livro e membro
+     * vêm da mesma linha e são partilhados através da sessão; no fim, os
+     * autores/categorias dos livros novos são carregados em lote na mesma conexão.
+     */
+    private List<Emprestimo> consultarEmprestimos(SessaoEntidades sessao, String sql,
+                                                  Object... parametros) throws SQLException {
+        List<Emprestimo> emprestimos = new ArrayList<>();
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-        // Carrega livro e membro
-        int livroId = rs.getInt("livro_id");
-        int membroId = rs.getInt("membro_id");
+            SqlUtil.definirParametros(stmt, parametros);
 
-        try {
-            emprestimo.setLivro(livroDAO.findById(livroId));
-            emprestimo.setMembro(membroDAO.findById(membroId));
-        } catch (SQLException e) {
-            // Log error but continue
-            System.err.println("Erro ao carregar livro/membro: " + e.getMessage());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    emprestimos.add(mapearCompleto(rs, sessao));
+                }
+            }
+
+            graphLoader.carregar(conn, sessao.retirarLivrosSemGrafo());
         }
+        return emprestimos;
+    }
+
+    /**
+     * Abre a leitura em streaming; a sessão é esvaziada a cada bloco para que
+     * a memória usada não cresça com o tamanho da tabela.
+     */
+    private LeitorStreaming<Emprestimo> abrirStreaming() throws SQLException {
+        SessaoEntidades sessao = new SessaoEntidades();
+        return new LeitorStreaming<>(dbManager, SELECT_COMPLETO + "ORDER BY e.id",
+                rs -> mapearCompleto(rs, sessao),
+                (conn, bloco) -> {
+                    graphLoader.carregar(conn, sessao.retirarLivrosSemGrafo());
+                    sessao.limpar();
+                });
+    }
+
+    private Emprestimo mapearCompleto(ResultSet rs, SessaoEntidades sessao) throws SQLException {
+        Emprestimo emprestimo = mapResultSetToEmprestimo(rs);
+        emprestimo.setLivro(sessao.resolverLivro(rs, "l_"));
+        emprestimo.setMembro(sessao.resolverMembro(rs, "m_"));
+        return emprestimo;
+    }
 
+    private Emprestimo mapResultSetToEmprestimo(ResultSet rs) throws SQLException {
+        Emprestimo emprestimo = new Emprestimo();
+
+        emprestimo.setId(rs.getInt("id"));
         emprestimo.setDataEmprestimo(rs.getDate("data_emprestimo").toLocalDate());
         emprestimo.setDataDevolucaoPrevista(rs.getDate("data_devolucao_prevista").toLocalDate());
 
@@ -0,0 +1,246 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.exception.BibliotecaException;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Leitura em streaming (linha a linha) de consultas grandes.
+ *
+ * Usa um result set de streaming do MySQL Connector/J (forward-only,
+ * read-only, fetch size Integer.MIN_VALUE): o driver não carrega a tabela
+ * inteira, pelo que o uso de heap não depende do número de linhas.
+ *
+ * As linhas são mapeadas em blocos de tamanho fixo. Enquanto o streaming
+ * está aberto, a conexão principal não aceita outras consultas (o
+ * Connector/J recusa-as até o result set ser lido até ao fim ou fechado);
+ * por isso o pós-processamento de cada bloco (ex.: carregar
+ * autores/categorias) corre numa segunda conexão do pool. Numa só conexão
+ * seria preciso ler a consulta inteira antes do primeiro bloco, que é o que
+ * o streaming evita. A segunda conexão só é pedida no primeiro bloco e só
+ * se houver pós-processamento; cada leitura ocupa, portanto, até 2 conexões
+ * até ser fechada, e o pool deve ter folga para as leituras em curso.
+ *
+ * O net_write_timeout da sessão é aumentado durante o streaming (o servidor
+ * espera pelo cliente enquanto este processa cada bloco) e reposto antes de
+ * a conexão voltar ao pool.
+ *
+ * @param <T> tipo da entidade lida
+ */
+final class LeitorStreaming<T> implements Iterator<T>, AutoCloseable {
+
+    /** Número de linhas mapeadas antes de cada pós-processamento */
+    static final int TAMANHO_BLOCO = 500;
+
+    /** Timeout de escrita do servidor durante o streaming (segundos) */
+    private static final int NET_WRITE_TIMEOUT = 600;
+
+    /**
+     * Mapeia a linha atual do ResultSet.
+     */
+    interface MapeadorLinha<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Completa um bloco de entidades já mapeadas, usando uma conexão auxiliar.
+     */
+    interface ProcessadorBloco<T> {
+        void processar(Connection conn, List<T> bloco) throws SQLException;
+    }
+
+    private final DatabaseManager dbManager;
+    private final MapeadorLinha<T> mapeador;
+    private final ProcessadorBloco<T> processador;
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final int timeoutAnterior;
+    private Connection connAuxiliar;
+
+    private List<T> bloco = new ArrayList<>();
+    private int posicao;
+    private boolean esgotado;
+    private boolean fechado;
+
+    LeitorStreaming(DatabaseManager dbManager, String sql, MapeadorLinha<T> mapeador,
+                    ProcessadorBloco<T> processador, Object... parametros) throws SQLException {
+        this.dbManager = dbManager;
+        this.mapeador = mapeador;
+        this.processador = processador;
+
+        Connection c = dbManager.getConnection();
+        PreparedStatement s = null;
+        int anterior = -1;
+        try {
+            try (Statement sessao = c.createStatement()) {
+                try (ResultSet atual = sessao.executeQuery("SELECT @@SESSION.net_write_timeout")) {
+                    atual.next();
+                    anterior = atual.getInt(1);
+                }
+                sessao.execute("SET SESSION net_write_timeout = " + NET_WRITE_TIMEOUT);
+            }
+            s = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            s.setFetchSize(Integer.MIN_VALUE);
+            SqlUtil.definirParametros(s, parametros);
+            this.rs = s.executeQuery();
+        } catch (SQLException e) {
+            if (s != null) {
+                s.close();
+            }
+            restaurarTimeout(c, anterior);
+            c.close();
+            throw e;
+        }
+        this.conn = c;
+        this.stmt = s;
+        this.timeoutAnterior = anterior;
+    }
+
+    /**
+     * Lê e processa o próximo bloco.
+     *
+     * @return false quando não há mais linhas
+     */
+    boolean carregarBloco() throws SQLException {
+        if (fechado) {
+            return false;
+        }
+        if (esgotado) {
+            close();
+            return false;
+        }
+
+        List<T> novo = new ArrayList<>(TAMANHO_BLOCO);
+        while (novo.size() < TAMANHO_BLOCO && rs.next()) {
+            novo.add(mapeador.mapear(rs));
+        }
+        if (novo.size() < TAMANHO_BLOCO) {
+            esgotado = true;
+        }
+        if (novo.isEmpty()) {
+            close();
+            return false;
+        }
+
+        if (processador != null) {
+            if (connAuxiliar == null) {
+                connAuxiliar = dbManager.getConnection();
+            }
+            processador.processar(connAuxiliar, novo);
+        }
+
+        bloco = novo;
+        posicao = 0;
+        return true;
+    }
+
+    /**
+     * Aplica a ação a todas as entidades restantes, bloco a bloco.
+     */
+    void paraCada(Consumer<? super T> acao) throws SQLException {
+        while (carregarBloco()) {
+            for (T entidade : bloco) {
+                acao.accept(entidade);
+            }
+            posicao = bloco.size();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (posicao < bloco.size()) {
+            return true;
+        }
+        try {
+            return carregarBloco();
+        } catch (SQLException e) {
+            close();
+            throw new BibliotecaException("Erro na leitura em streaming: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return bloco.get(posicao++);
+    }
+
+    /**
+     * Devolve as entidades como Stream; deve ser fechado (try-with-resources)
+     * para libertar as conexões se não for consumido até ao fim.
+     */
+    Stream<T> comoStream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(
+                this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Fecha cursor e conexões. Se o streaming não chegou ao fim, a consulta é
+     * cancelada no servidor para que o driver não tenha de ler as linhas restantes.
+     */
+    @Override
+    public void close() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        bloco = new ArrayList<>();
+
+        if (!esgotado) {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                // O fecho abaixo trata do resto
+            }
+        }
+        fecharSilenciosamente(rs);
+        fecharSilenciosamente(stmt);
+        // Só com o result set fechado a conexão aceita outra instrução
+        restaurarTimeout(conn, timeoutAnterior);
+        fecharSilenciosamente(conn);
+        if (connAuxiliar != null) {
+            fecharSilenciosamente(connAuxiliar);
+        }
+    }
+
+    /**
+     * Repõe o net_write_timeout que a sessão tinha antes do streaming.
+     */
+    private static void restaurarTimeout(Connection c, int anterior) {
+        if (anterior < 0) {
+            return;
+        }
+        try (Statement sessao = c.createStatement()) {
+            sessao.execute("SET SESSION net_write_timeout = " + anterior);
+        } catch (SQLException e) {
+            System.err.println("Erro ao repor net_write_timeout: " + e.getMessage());
+        }
+    }
+
+    private static void fecharSilenciosamente(AutoCloseable recurso) {
+        try {
+            recurso.close();
+        } catch (Exception e) {
+            System.err.println("Erro ao fechar recurso de streaming: " + e.getMessage());
+        }
+    }
+}
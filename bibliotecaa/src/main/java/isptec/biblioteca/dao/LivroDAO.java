@@ -4,25 +4,40 @@ import isptec.biblioteca.enumeracao.EstadoLivro;
 import isptec.biblioteca.model.entities.Autor;
 import isptec.biblioteca.model.entities.Categoria;
 import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
 import isptec.biblioteca.util.DatabaseManager;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO para operações de Livro no banco de dados.
  */
 public class LivroDAO {
 
+    /** Colunas lidas por {@link #mapLivro} */
+    private static final String[] COLUNAS = {
+        "id", "titulo", "isbn", "editora", "ano_publicacao", "quantidade_total",
+        "quantidade_disponivel", "estado", "descricao", "localizacao"
+    };
+
+    /**
+     * Listas de livros em cache (ver {@link CacheConsultas}): o grafo carregado
+     * depende também das associações a autores e categorias.
+     */
+    private static final CacheConsultas.Tipo<Livro> EM_CACHE = new CacheConsultas.Tipo<>(
+            Livro::new, LivroDAO::estimarMemoria, "livro_autor", "autor", "livro_categoria", "categoria");
+
     private final DatabaseManager dbManager;
-    private final AutorDAO autorDAO;
-    private final CategoriaDAO categoriaDAO;
+    private final LivroGraphLoader graphLoader;
 
     public LivroDAO() {
         this.dbManager = DatabaseManager.getInstance();
-        this.autorDAO = new AutorDAO();
-        this.categoriaDAO = new CategoriaDAO();
+        this.graphLoader = new LivroGraphLoader();
     }
 
     /**
@@ -30,23 +45,7 @@ public class LivroDAO {
      */
     public Livro findById(int id) throws SQLException {
         String sql = "SELECT * FROM livro WHERE id = ?";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, id);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Livro livro = mapResultSetToLivro(rs);
-                    // Carrega autores e categorias
-                    livro.setAutores(autorDAO.findByLivroId(id));
-                    livro.setCategorias(categoriaDAO.findByLivroId(id));
-                    return livro;
-                }
-            }
-        }
-        return null;
+        return primeiro(consultarLivros(sql, id));
     }
 
     /**
@@ -54,22 +53,7 @@ public class LivroDAO {
      */
     public Livro findByIsbn(String isbn) throws SQLException {
         String sql = "SELECT * FROM livro WHERE isbn = ?";
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, isbn);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Livro livro = mapResultSetToLivro(rs);
-                    livro.setAutores(autorDAO.findByLivroId(livro.getId()));
-                    livro.setCategorias(categoriaDAO.findByLivroId(livro.getId()));
-                    return livro;
-                }
-            }
-        }
-        return null;
+        return primeiro(consultarLivros(sql, isbn));
     }
 
     /**
@@ -77,24 +61,7 @@ public class LivroDAO {
      */
     public List<Livro> findByTituloContaining(String titulo) throws SQLException {
         String sql = "SELECT * FROM livro WHERE titulo LIKE ? ORDER BY titulo";
-
-        List<Livro> livros = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, "%" + titulo + "%");
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Livro livro = mapResultSetToLivro(rs);
-                    livro.setAutores(autorDAO.findByLivroId(livro.getId()));
-                    livro.setCategorias(categoriaDAO.findByLivroId(livro.getId()));
-                    livros.add(livro);
-                }
-            }
-        }
-        return livros;
+        return consultarLivros(sql, "%" + titulo + "%");
     }
 
     /**
@@ -106,24 +73,7 @@ public class LivroDAO {
                      "INNER JOIN autor a ON la.autor_id = a.id " +
                      "WHERE a.nome LIKE ? " +
                      "ORDER BY l.titulo";
-
-        List<Livro> livros = new ArrayList<>();
-
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, "%" + nomeAutor + "%");
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Livro livro = mapResultSetToLivro(rs);
-                    livro.setAutores(autorDAO.findByLivroId(livro.getId()));
-                    livro.setCategorias(categoriaDAO.findByLivroId(livro.getId()));
-                    livros.add(livro);
-                }
-            }
-        }
-        return livros;
+        return consultarLivrosEmCache(sql, "%" + nomeAutor + "%");
     }
 
     /**
@@ -135,46 +85,83 @@ public class LivroDAO {
                      "INNER JOIN categoria c ON lc.categoria_id = c.id " +
                      "WHERE c.nome LIKE ? " +
                      "ORDER BY l.titulo";
+        return consultarLivrosEmCache(sql, "%" + nomeCategoria + "%");
+    }
 
-        List<Livro> livros = new ArrayList<>();
+    /**
+     * Lista livros disponíveis (quantidade > 0).
+     */
+    public List<Livro> findDisponiveis() throws SQLException {
+        String sql = "SELECT * FROM livro WHERE quantidade_disponivel > 0 ORDER BY titulo";
+        return consultarLivrosEmCache(sql);
+    }
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Busca livros que satisfazem o critério, por ordem de título.
+     * As colunas do critério referem-se à tabela livro (sem alias).
+     */
+    public List<Livro> findWhere(Criterio criterio) throws SQLException {
+        return findWhere(criterio, "titulo, id");
+    }
 
-            stmt.setString(1, "%" + nomeCategoria + "%");
+    /**
+     * Busca livros que satisfazem o critério, pela ordenação indicada.
+     */
+    public List<Livro> findWhere(Criterio criterio, String ordenacao) throws SQLException {
+        String sql = "SELECT * FROM livro" + criterio.clausulaWhere() +
+                     " ORDER BY " + Criterio.validarOrdenacao(ordenacao);
+        return consultarLivros(sql, criterio.getParametros().toArray());
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Livro livro = mapResultSetToLivro(rs);
-                    livro.setAutores(autorDAO.findByLivroId(livro.getId()));
-                    livro.setCategorias(categoriaDAO.findByLivroId(livro.getId()));
-                    livros.add(livro);
-                }
-            }
-        }
-        return livros;
+    /**
+     * Conta livros que satisfazem o critério, sem transferir as linhas.
+     */
+    public long count(Criterio criterio) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM livro" + criterio.clausulaWhere();
+        return SqlUtil.contarEmCache(dbManager, sql, criterio.getParametros().toArray());
     }
 
     /**
-     * Lista livros disponíveis (quantidade > 0).
+     * Remove os livros que satisfazem o critério, em blocos de IDs.
+     * Associações e reservas caem por CASCADE; livros com empréstimos
+     * registados fazem falhar o bloco (RESTRICT).
+     *
+     * @return número de livros removidos
      */
-    public List<Livro> findDisponiveis() throws SQLException {
-        String sql = "SELECT * FROM livro WHERE quantidade_disponivel > 0 ORDER BY titulo";
+    public long deleteWhere(Criterio criterio) throws SQLException {
+        return SqlUtil.apagarEmBlocos(dbManager, "SELECT id FROM livro", "id", "livro", criterio);
+    }
 
-        List<Livro> livros = new ArrayList<>();
+    /**
+     * Altera numa só instrução os livros que satisfazem o critério.
+     *
+     * @return número de livros alterados
+     */
+    public long updateWhere(Criterio criterio, Alteracao alteracao) throws SQLException {
+        return SqlUtil.atualizar(dbManager, "UPDATE livro", criterio, alteracao);
+    }
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                Livro livro = mapResultSetToLivro(rs);
-                livro.setAutores(autorDAO.findByLivroId(livro.getId()));
-                livro.setCategorias(categoriaDAO.findByLivroId(livro.getId()));
-                livros.add(livro);
-            }
+    /**
+     * Esvazia livro e as tabelas que dele dependem (associações, reservas
+     * e empréstimos). Apenas para testes.
+     */
+    public void truncate() throws SQLException {
+        SqlUtil.truncar(dbManager, "livro_autor", "livro_categoria", "reserva", "emprestimo", "livro");
+    }
+
+    /**
+     * Busca a página de livros seguinte à chave (titulo, id), por ordem de título.
+     * Com titulo null devolve a primeira página. Usa o índice de título
+     * (que inclui o ID), pelo que o custo não depende da profundidade.
+     */
+    public List<Livro> findPaginaApos(String titulo, int id, int limite) throws SQLException {
+        if (titulo == null) {
+            return consultarLivros("SELECT * FROM livro ORDER BY titulo, id LIMIT ?", limite);
         }
-        return livros;
+        String sql = "SELECT * FROM livro " +
+                     "WHERE titulo > ? OR (titulo = ? AND id > ?) " +
+                     "ORDER BY titulo, id LIMIT ?";
+        return consultarLivros(sql, titulo, titulo, id, limite);
     }
 
     /**
@@ -334,20 +321,25 @@ public class LivroDAO {
      */
     public List<Livro> findAll() throws SQLException {
         String sql = "SELECT * FROM livro ORDER BY titulo";
-        List<Livro> livros = new ArrayList<>();
+        return consultarLivros(sql);
+    }
 
-        try (Connection conn = dbManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                Livro livro = mapResultSetToLivro(rs);
-                livro.setAutores(autorDAO.findByLivroId(livro.getId()));
-                livro.setCategorias(categoriaDAO.findByLivroId(livro.getId()));
-                livros.add(livro);
-            }
+    /**
+     * Percorre todos os livros em streaming (por ordem de ID), sem carregar a
+     * tabela em memória. Autores e categorias são carregados por blocos.
+     */
+    public void forEach(Consumer<Livro> acao) throws SQLException {
+        try (LeitorStreaming<Livro> leitor = abrirStreaming()) {
+            leitor.paraCada(acao);
         }
-        return livros;
+    }
+
+    /**
+     * Stream de todos os livros lido em streaming. Deve ser usado em
+     * try-with-resources para libertar as conexões.
+     */
+    public Stream<Livro> stream() throws SQLException {
+        return abrirStreaming().comoStream();
     }
 
     /**
@@ -384,6 +376,68 @@ public class LivroDAO {
 
     // === MÉTODOS AUXILIARES ===
 
+    /**
+     * Executa a consulta de livros e carrega autores e categorias em lote
+     * na mesma conexão: 1 + 2·⌈n/1000⌉ consultas para n livros, porque o
+     * IN (...) de cada associação é partido em blocos de
+     * {@link SqlUtil#TAMANHO_LOTE_IN} IDs (3 até mil livros).
+     */
+    private List<Livro> consultarLivros(String sql, Object... parametros) throws SQLException {
+        List<Livro> livros = new ArrayList<>();
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            SqlUtil.definirParametros(stmt, parametros);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    livros.add(mapResultSetToLivro(rs));
+                }
+            }
+
+            graphLoader.carregar(conn, livros);
+        }
+        return livros;
+    }
+
+    /**
+     * Como {@link #consultarLivros}, servida pela cache de consultas enquanto
+     * nenhuma das tabelas envolvidas for escrita.
+     */
+    private List<Livro> consultarLivrosEmCache(String sql, Object... parametros) throws SQLException {
+        return CacheConsultas.getInstance().listar(EM_CACHE, sql, parametros,
+                () -> consultarLivros(sql, parametros));
+    }
+
+    /**
+     * Memória aproximada de um livro com autores e categorias, em bytes.
+     */
+    private static long estimarMemoria(Livro livro) {
+        long total = 96 + tamanho(livro.getTitulo()) + tamanho(livro.getIsbn()) + tamanho(livro.getEditora()) +
+                     tamanho(livro.getDescricao()) + tamanho(livro.getLocalizacao());
+        for (Autor autor : livro.getAutores()) {
+            total += 48 + tamanho(autor.getNome()) + tamanho(autor.getNacionalidade()) + tamanho(autor.getBiografia());
+        }
+        for (Categoria categoria : livro.getCategorias()) {
+            total += 40 + tamanho(categoria.getNome()) + tamanho(categoria.getDescricao());
+        }
+        return total;
+    }
+
+    private static long tamanho(String texto) {
+        return texto == null ? 0 : 40 + texto.length();
+    }
+
+    private LeitorStreaming<Livro> abrirStreaming() throws SQLException {
+        return new LeitorStreaming<>(dbManager, "SELECT * FROM livro ORDER BY id",
+                this::mapResultSetToLivro, graphLoader::carregar);
+    }
+
+    private Livro primeiro(List<Livro> livros) {
+        return livros.isEmpty() ? null : livros.get(0);
+    }
+
     private void insertLivroAutor(Connection conn, int livroId, int autorId) throws SQLException {
         String sql = "INSERT INTO livro_autor (livro_id, autor_id) VALUES (?, ?)";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -419,17 +473,32 @@ public class LivroDAO {
     }
 
     private Livro mapResultSetToLivro(ResultSet rs) throws SQLException {
+        return mapLivro(rs, "");
+    }
+
+    /**
+     * Lista de colunas de livro com alias prefixado, para consultas com JOIN
+     * (ex.: "l.id AS l_id, l.titulo AS l_titulo, ...").
+     */
+    static String colunas(String alias, String prefixo) {
+        return SqlUtil.colunasComAlias(alias, prefixo, COLUNAS);
+    }
+
+    /**
+     * Mapeia um livro a partir de colunas com o prefixo indicado ("" para SELECT *).
+     */
+    static Livro mapLivro(ResultSet rs, String prefixo) throws SQLException {
         Livro livro = new Livro();
-        livro.setId(rs.getInt("id"));
-        livro.setTitulo(rs.getString("titulo"));
-        livro.setIsbn(rs.getString("isbn"));
-        livro.setEditora(rs.getString("editora"));
-        livro.setAnoPublicacao(rs.getInt("ano_publicacao"));
-        livro.setQuantidadeTotal(rs.getInt("quantidade_total"));
-        livro.setQuantidadeDisponivel(rs.getInt("quantidade_disponivel"));
-        livro.setEstado(EstadoLivro.valueOf(rs.getString("estado")));
-        livro.setDescricao(rs.getString("descricao"));
-        livro.setLocalizacao(rs.getString("localizacao"));
+        livro.setId(rs.getInt(prefixo + "id"));
+        livro.setTitulo(rs.getString(prefixo + "titulo"));
+        livro.setIsbn(rs.getString(prefixo + "isbn"));
+        livro.setEditora(rs.getString(prefixo + "editora"));
+        livro.setAnoPublicacao(rs.getInt(prefixo + "ano_publicacao"));
+        livro.setQuantidadeTotal(rs.getInt(prefixo + "quantidade_total"));
+        livro.setQuantidadeDisponivel(rs.getInt(prefixo + "quantidade_disponivel"));
+        livro.setEstado(EstadoLivro.valueOf(rs.getString(prefixo + "estado")));
+        livro.setDescricao(rs.getString(prefixo + "descricao"));
+        livro.setLocalizacao(rs.getString(prefixo + "localizacao"));
         return livro;
     }
 }
@@ -0,0 +1,68 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.model.entities.Autor;
+import isptec.biblioteca.model.entities.Categoria;
+import isptec.biblioteca.model.entities.Livro;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Carregador em lote do grafo de Livro (autores e categorias).
+ *
+ * Em vez de duas consultas por livro (N+1), carrega as associações de uma
+ * página inteira de livros com uma consulta IN (...) por associação e por
+ * bloco de {@link SqlUtil#TAMANHO_LOTE_IN} IDs, reutilizando a conexão que
+ * já leu os livros, e monta os grafos em memória.
+ */
+public class LivroGraphLoader {
+
+    private final AutorDAO autorDAO;
+    private final CategoriaDAO categoriaDAO;
+
+    public LivroGraphLoader() {
+        this(new AutorDAO(), new CategoriaDAO());
+    }
+
+    public LivroGraphLoader(AutorDAO autorDAO, CategoriaDAO categoriaDAO) {
+        this.autorDAO = autorDAO;
+        this.categoriaDAO = categoriaDAO;
+    }
+
+    /**
+     * Preenche autores e categorias de todos os livros da lista.
+     *
+     * @param conn   conexão aberta (não é fechada por este método)
+     * @param livros livros já mapeados, sem associações
+     * @return número de consultas executadas
+     */
+    public int carregar(Connection conn, List<Livro> livros) throws SQLException {
+        if (livros.isEmpty()) {
+            return 0;
+        }
+
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Livro livro : livros) {
+            ids.add(livro.getId());
+        }
+
+        Map<Integer, List<Autor>> autores = autorDAO.findByLivroIds(conn, ids);
+        Map<Integer, List<Categoria>> categorias = categoriaDAO.findByLivroIds(conn, ids);
+
+        for (Livro livro : livros) {
+            List<Autor> autoresLivro = autores.get(livro.getId());
+            List<Categoria> categoriasLivro = categorias.get(livro.getId());
+            livro.setAutores(autoresLivro != null ? autoresLivro : new ArrayList<>());
+            livro.setCategorias(categoriasLivro != null ? categoriasLivro : new ArrayList<>());
+        }
+
+        // Uma consulta por associação e por bloco de IDs
+        int blocos = (ids.size() + SqlUtil.TAMANHO_LOTE_IN - 1) / SqlUtil.TAMANHO_LOTE_IN;
+        return 2 * blocos;
+    }
+}
@@ -2,17 +2,25 @@ package isptec.biblioteca.dao;
 
 import isptec.biblioteca.enumeracao.Perfil;
 import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
 import isptec.biblioteca.util.DatabaseManager;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO para operações de Membro no banco de dados.
  */
 public class MembroDAO {
 
+    /** Colunas lidas por {@link #mapMembro} */
+    private static final String[] COLUNAS_PESSOA = {"id", "nome", "email", "senha", "perfil"};
+    private static final String[] COLUNAS_MEMBRO = {"matricula", "bloqueado", "multa_pendente"};
+
     private final DatabaseManager dbManager;
     private final PessoaDAO pessoaDAO;
 
@@ -233,6 +241,106 @@ public class MembroDAO {
         return membros;
     }
 
+    /**
+     * Busca membros que satisfazem o critério, por ordem de nome.
+     * As colunas do critério usam os aliases p (pessoa) e m (membro).
+     */
+    public List<Membro> findWhere(Criterio criterio) throws SQLException {
+        return findWhere(criterio, "p.nome, p.id");
+    }
+
+    /**
+     * Busca membros que satisfazem o critério, pela ordenação indicada.
+     */
+    public List<Membro> findWhere(Criterio criterio, String ordenacao) throws SQLException {
+        String sql = "SELECT p.*, m.* FROM pessoa p " +
+                     "INNER JOIN membro m ON p.id = m.id" + criterio.clausulaWhere() +
+                     " ORDER BY " + Criterio.validarOrdenacao(ordenacao);
+        return consultarMembros(sql, criterio.getParametros().toArray());
+    }
+
+    /**
+     * Conta membros que satisfazem o critério, sem transferir as linhas.
+     */
+    public long count(Criterio criterio) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM pessoa p " +
+                     "INNER JOIN membro m ON p.id = m.id" + criterio.clausulaWhere();
+        return SqlUtil.contarEmCache(dbManager, sql, criterio.getParametros().toArray());
+    }
+
+    /**
+     * Remove os membros que satisfazem o critério, em blocos de IDs.
+     * Apaga a pessoa; membro, estudante e reservas caem por CASCADE.
+     * Membros com empréstimos registados fazem falhar o bloco (RESTRICT).
+     *
+     * @return número de membros removidos
+     */
+    public long deleteWhere(Criterio criterio) throws SQLException {
+        return SqlUtil.apagarEmBlocos(dbManager, "SELECT p.id FROM pessoa p INNER JOIN membro m ON p.id = m.id",
+                "p.id", "pessoa", criterio);
+    }
+
+    /**
+     * Altera numa só instrução os membros que satisfazem o critério.
+     * As colunas da alteração usam os aliases p (pessoa) e m (membro).
+     *
+     * @return número de linhas alteradas (pessoa e membro contam em separado)
+     */
+    public long updateWhere(Criterio criterio, Alteracao alteracao) throws SQLException {
+        return SqlUtil.atualizar(dbManager, "UPDATE pessoa p INNER JOIN membro m ON p.id = m.id",
+                criterio, alteracao);
+    }
+
+    /**
+     * Esvazia membro, estudante e as tabelas que deles dependem, e remove
+     * as pessoas que não são bibliotecários. Apenas para testes.
+     */
+    public void truncate() throws SQLException {
+        SqlUtil.truncar(dbManager, "notificacao", "reserva", "emprestimo", "estudante", "membro");
+
+        String sql = "DELETE p FROM pessoa p LEFT JOIN bibliotecario b ON b.id = p.id WHERE b.id IS NULL";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Busca a página de membros seguinte à chave (nome, id), por ordem de nome.
+     * Com nome null devolve a primeira página.
+     */
+    public List<Membro> findPaginaApos(String nome, int id, int limite) throws SQLException {
+        if (nome == null) {
+            String sql = "SELECT p.*, m.* FROM pessoa p " +
+                         "INNER JOIN membro m ON p.id = m.id " +
+                         "ORDER BY p.nome, p.id LIMIT ?";
+            return consultarMembros(sql, limite);
+        }
+        String sql = "SELECT p.*, m.* FROM pessoa p " +
+                     "INNER JOIN membro m ON p.id = m.id " +
+                     "WHERE p.nome > ? OR (p.nome = ? AND p.id > ?) " +
+                     "ORDER BY p.nome, p.id LIMIT ?";
+        return consultarMembros(sql, nome, nome, id, limite);
+    }
+
+    /**
+     * Percorre todos os membros em streaming (por ordem de ID), sem carregar
+     * a tabela em memória.
+     */
+    public void forEach(Consumer<Membro> acao) throws SQLException {
+        try (LeitorStreaming<Membro> leitor = abrirStreaming()) {
+            leitor.paraCada(acao);
+        }
+    }
+
+    /**
+     * Stream de todos os membros lido em streaming. Deve ser usado em
+     * try-with-resources para libertar a conexão.
+     */
+    public Stream<Membro> stream() throws SQLException {
+        return abrirStreaming().comoStream();
+    }
+
     /**
      * Bloqueia ou desbloqueia um membro.
      */
@@ -283,6 +391,30 @@ public class MembroDAO {
 
     // === MÉTODOS AUXILIARES ===
 
+    private LeitorStreaming<Membro> abrirStreaming() throws SQLException {
+        String sql = "SELECT p.*, m.* FROM pessoa p " +
+                     "INNER JOIN membro m ON p.id = m.id " +
+                     "ORDER BY m.id";
+        return new LeitorStreaming<>(dbManager, sql, this::mapResultSetToMembro, null);
+    }
+
+    private List<Membro> consultarMembros(String sql, Object... parametros) throws SQLException {
+        List<Membro> membros = new ArrayList<>();
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            SqlUtil.definirParametros(stmt, parametros);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    membros.add(mapResultSetToMembro(rs));
+                }
+            }
+        }
+        return membros;
+    }
+
     private int insertPessoa(Connection conn, Membro membro) throws SQLException {
         String sql = "INSERT INTO pessoa (nome, email, senha, perfil, tipo_pessoa) " +
                     "VALUES (?, ?, ?, ?, ?)";
@@ -319,19 +451,34 @@ public class MembroDAO {
     }
 
     private Membro mapResultSetToMembro(ResultSet rs) throws SQLException {
+        return mapMembro(rs, "");
+    }
+
+    /**
+     * Lista de colunas de pessoa/membro com alias prefixado, para consultas com JOIN.
+     */
+    static String colunas(String aliasPessoa, String aliasMembro, String prefixo) {
+        return SqlUtil.colunasComAlias(aliasPessoa, prefixo, COLUNAS_PESSOA) + ", " +
+               SqlUtil.colunasComAlias(aliasMembro, prefixo, COLUNAS_MEMBRO);
+    }
+
+    /**
+     * Mapeia um membro a partir de colunas com o prefixo indicado ("" para SELECT *).
+     */
+    static Membro mapMembro(ResultSet rs, String prefixo) throws SQLException {
         Membro membro = new Membro();
 
         // Dados de Pessoa
-        membro.setId(rs.getInt("id"));
-        membro.setNome(rs.getString("nome"));
-        membro.setEmail(rs.getString("email"));
-        membro.setSenha(rs.getString("senha"));
-        membro.setPerfil(Perfil.valueOf(rs.getString("perfil")));
+        membro.setId(rs.getInt(prefixo + "id"));
+        membro.setNome(rs.getString(prefixo + "nome"));
+        membro.setEmail(rs.getString(prefixo + "email"));
+        membro.setSenha(rs.getString(prefixo + "senha"));
+        membro.setPerfil(Perfil.valueOf(rs.getString(prefixo + "perfil")));
 
         // Dados de Membro
-        membro.setMatricula(rs.getString("matricula"));
-        membro.setBloqueado(rs.getBoolean("bloqueado"));
-        membro.setMultaPendente(rs.getDouble("multa_pendente"));
+        membro.setMatricula(rs.getString(prefixo + "matricula"));
+        membro.setBloqueado(rs.getBoolean(prefixo + "bloqueado"));
+        membro.setMultaPendente(rs.getDouble(prefixo + "multa_pendente"));
 
         return membro;
     }
@@ -0,0 +1,277 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.model.entities.Autor;
+import isptec.biblioteca.model.entities.Categoria;
+import isptec.biblioteca.util.DatabaseManager;
+import isptec.biblioteca.util.TextoUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Dados de referência (autores e categorias) carregados uma vez para
+ * memória, em mapas imutáveis por ID e por nome normalizado.
+ *
+ * As tabelas são pequenas e mudam pouco, mas são lidas a cada livro
+ * carregado: os DAOs resolvem as linhas de livro_autor e livro_categoria
+ * para as instâncias partilhadas daqui, sem voltar a consultar autor e
+ * categoria nem criar objetos repetidos. Essas instâncias não devem ser
+ * alteradas; quem precisa de editar obtém uma cópia (findById, findByNome...).
+ *
+ * Uma thread de fundo compara periodicamente uma assinatura de cada tabela
+ * (número de linhas, maior data_criacao e soma de verificação das colunas)
+ * e, se mudou, recarrega tudo e troca os mapas de uma só vez. As escritas
+ * feitas por esta aplicação marcam os dados como desatualizados e a leitura
+ * seguinte recarrega-os. Intervalo em referencia.intervaloSegundos
+ * (0 = sem verificação periódica).
+ */
+public final class RegistroReferencia {
+
+    private static final String ASSINATURA =
+            "SELECT COUNT(*), MAX(data_criacao), BIT_XOR(CRC32(CONCAT_WS(CHAR(31), %s))) FROM %s";
+
+    private static final RegistroReferencia INSTANCIA = new RegistroReferencia();
+
+    /** Ordem de ORDER BY nome (collation do banco aproximada), depois ID */
+    static final Comparator<Autor> ORDEM_AUTORES =
+            Comparator.comparing((Autor a) -> TextoUtil.chave(a.getNome())).thenComparingInt(Autor::getId);
+    static final Comparator<Categoria> ORDEM_CATEGORIAS =
+            Comparator.comparing((Categoria c) -> TextoUtil.chave(c.getNome())).thenComparingInt(Categoria::getId);
+
+    /**
+     * Fotografia imutável das duas tabelas.
+     */
+    private static final class Dados {
+        final Map<Integer, Autor> autores;
+        final Map<String, Autor> autoresPorNome;
+        final List<Autor> autoresOrdenados;
+        final Map<Integer, Categoria> categorias;
+        final Map<String, Categoria> categoriasPorNome;
+        final List<Categoria> categoriasOrdenadas;
+        final String assinatura;
+
+        Dados(List<Autor> autores, List<Categoria> categorias, String assinatura) {
+            autores.sort(ORDEM_AUTORES);
+            categorias.sort(ORDEM_CATEGORIAS);
+            this.autoresOrdenados = Collections.unmodifiableList(autores);
+            this.categoriasOrdenadas = Collections.unmodifiableList(categorias);
+            this.autores = indexar(autores, Autor::getId);
+            this.autoresPorNome = indexar(autores, a -> TextoUtil.chave(a.getNome()));
+            this.categorias = indexar(categorias, Categoria::getId);
+            this.categoriasPorNome = indexar(categorias, c -> TextoUtil.chave(c.getNome()));
+            this.assinatura = assinatura;
+        }
+
+        /** Com chaves repetidas fica o primeiro pela ordem da lista */
+        private static <K, T> Map<K, T> indexar(List<T> lista, Function<T, K> chave) {
+            Map<K, T> mapa = new HashMap<>(lista.size() * 2);
+            for (T elemento : lista) {
+                mapa.putIfAbsent(chave.apply(elemento), elemento);
+            }
+            return Collections.unmodifiableMap(mapa);
+        }
+    }
+
+    private volatile Dados dados;
+    private volatile boolean desatualizado;
+    private ScheduledExecutorService verificador;
+
+    private RegistroReferencia() {
+    }
+
+    public static RegistroReferencia getInstance() {
+        return INSTANCIA;
+    }
+
+    // === AUTORES ===
+
+    /** Instância partilhada do autor, ou null */
+    public Autor getAutor(int id) throws SQLException {
+        return dados().autores.get(id);
+    }
+
+    /** Autor com o nome (sem distinguir maiúsculas nem acentos), ou null */
+    public Autor getAutorPorNome(String nome) throws SQLException {
+        return dados().autoresPorNome.get(TextoUtil.chave(nome));
+    }
+
+    /** Autores cujo nome contém o texto, por ordem de nome */
+    public List<Autor> getAutoresComNome(String parte) throws SQLException {
+        String chave = TextoUtil.chave(parte);
+        List<Autor> encontrados = new ArrayList<>();
+        for (Autor autor : dados().autoresOrdenados) {
+            if (TextoUtil.chave(autor.getNome()).contains(chave)) {
+                encontrados.add(autor);
+            }
+        }
+        return encontrados;
+    }
+
+    /** Todos os autores por ordem de nome (lista imutável) */
+    public List<Autor> getAutores() throws SQLException {
+        return dados().autoresOrdenados;
+    }
+
+    // === CATEGORIAS ===
+
+    /** Instância partilhada da categoria, ou null */
+    public Categoria getCategoria(int id) throws SQLException {
+        return dados().categorias.get(id);
+    }
+
+    /** Categoria com o nome (sem distinguir maiúsculas nem acentos), ou null */
+    public Categoria getCategoriaPorNome(String nome) throws SQLException {
+        return dados().categoriasPorNome.get(TextoUtil.chave(nome));
+    }
+
+    /** Categorias cujo nome contém o texto, por ordem de nome */
+    public List<Categoria> getCategoriasComNome(String parte) throws SQLException {
+        String chave = TextoUtil.chave(parte);
+        List<Categoria> encontradas = new ArrayList<>();
+        for (Categoria categoria : dados().categoriasOrdenadas) {
+            if (TextoUtil.chave(categoria.getNome()).contains(chave)) {
+                encontradas.add(categoria);
+            }
+        }
+        return encontradas;
+    }
+
+    /** Todas as categorias por ordem de nome (lista imutável) */
+    public List<Categoria> getCategorias() throws SQLException {
+        return dados().categoriasOrdenadas;
+    }
+
+    // === ATUALIZAÇÃO ===
+
+    /**
+     * Os dados mudaram no banco: a próxima leitura recarrega-os.
+     */
+    public void marcarDesatualizado() {
+        desatualizado = true;
+    }
+
+    /**
+     * Recarrega já as duas tabelas (por exemplo, quando uma associação
+     * aponta para um ID ainda desconhecido).
+     */
+    public synchronized void recarregar() throws SQLException {
+        desatualizado = false;
+        try {
+            dados = ler();
+        } catch (SQLException e) {
+            desatualizado = true;
+            throw e;
+        }
+        iniciarVerificacao();
+    }
+
+    /**
+     * Para a verificação periódica (ao fechar a aplicação).
+     */
+    public synchronized void parar() {
+        if (verificador != null) {
+            verificador.shutdownNow();
+            verificador = null;
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private Dados dados() throws SQLException {
+        Dados atuais = dados;
+        if (atuais != null && !desatualizado) {
+            return atuais;
+        }
+        synchronized (this) {
+            if (dados == null || desatualizado) {
+                recarregar();
+            }
+            return dados;
+        }
+    }
+
+    /**
+     * Lê as assinaturas antes das linhas: uma escrita entre as duas leituras
+     * faz a próxima verificação recarregar de novo, em vez de passar despercebida.
+     */
+    private Dados ler() throws SQLException {
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        try (Connection conn = dbManager.getConnection()) {
+            String assinatura = assinatura(conn);
+            List<Autor> autores = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM autor");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    autores.add(new Autor(rs.getInt("id"), rs.getString("nome"),
+                            rs.getString("nacionalidade"), rs.getString("biografia")));
+                }
+            }
+            List<Categoria> categorias = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM categoria");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    categorias.add(new Categoria(rs.getInt("id"), rs.getString("nome"),
+                            rs.getString("descricao")));
+                }
+            }
+            return new Dados(autores, categorias, assinatura);
+        }
+    }
+
+    private static String assinatura(Connection conn) throws SQLException {
+        return assinatura(conn, "autor", "id, nome, nacionalidade, biografia") + "/" +
+               assinatura(conn, "categoria", "id, nome, descricao");
+    }
+
+    private static String assinatura(Connection conn, String tabela, String colunas) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(String.format(ASSINATURA, colunas, tabela));
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) + ":" + rs.getString(2) + ":" + rs.getLong(3);
+        }
+    }
+
+    private void iniciarVerificacao() {
+        if (verificador != null) {
+            return;
+        }
+        String valor = DatabaseManager.getInstance().getPropriedade("referencia.intervaloSegundos");
+        long intervalo = valor == null || valor.isBlank() ? 60 : Long.parseLong(valor.trim());
+        if (intervalo <= 0) {
+            return;
+        }
+        verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "referencia-verificacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        verificador.scheduleWithFixedDelay(this::verificar, intervalo, intervalo, TimeUnit.SECONDS);
+    }
+
+    /** Corpo da verificação periódica */
+    private void verificar() {
+        Dados atuais = dados;
+        if (atuais == null) {
+            return;
+        }
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            if (!assinatura(conn).equals(atuais.assinatura)) {
+                recarregar();
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao verificar autores e categorias: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.model.entities.Reserva;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * DAO para operações de Reserva no banco de dados.
+ *
+ * A fila de um livro (reservas ativas por data_reserva, id) é servida pelo
+ * índice idx_reserva_livro_ativa_data (livro_id, ativa, data_reserva).
+ */
+public class ReservaDAO {
+
+    /**
+     * Livro, membro e pessoa da reserva (aliases l, m e p), comuns a todas
+     * as consultas por critério.
+     */
+    private static final String JUNCOES =
+            "INNER JOIN livro l ON l.id = r.livro_id " +
+            "INNER JOIN membro m ON m.id = r.membro_id " +
+            "INNER JOIN pessoa p ON p.id = m.id";
+
+    /**
+     * Reserva com livro e membro na mesma linha (prefixos "l_" e "m_").
+     * As colunas da própria reserva mantêm o nome original.
+     */
+    private static final String SELECT_COMPLETO =
+            "SELECT r.*, " + LivroDAO.colunas("l", "l_") + ", " + MembroDAO.colunas("p", "m", "m_") + " " +
+            "FROM reserva r " + JUNCOES + " ";
+
+    /** Reservas ativas cujo prazo já passou */
+    private static final String VENCIDAS = "ativa = TRUE AND data_expiracao < CURDATE()";
+
+    private final DatabaseManager dbManager;
+    private final LivroGraphLoader graphLoader;
+
+    public ReservaDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+        this.graphLoader = new LivroGraphLoader();
+    }
+
+    /**
+     * Busca reserva por ID.
+     */
+    public Reserva findById(int id) throws SQLException {
+        List<Reserva> reservas = consultarReservas(new SessaoEntidades(), SELECT_COMPLETO + "WHERE r.id = ?", id);
+        return reservas.isEmpty() ? null : reservas.get(0);
+    }
+
+    /**
+     * Busca reservas que satisfazem o critério, por ordem de fila (data, id).
+     * As colunas do critério usam os aliases r (reserva), l (livro), m e p (membro).
+     */
+    public List<Reserva> findWhere(Criterio criterio) throws SQLException {
+        return findWhere(criterio, "r.data_reserva, r.id");
+    }
+
+    /**
+     * Busca reservas que satisfazem o critério, pela ordenação indicada.
+     */
+    public List<Reserva> findWhere(Criterio criterio, String ordenacao) throws SQLException {
+        String where = criterio.isVazio() ? "" : "WHERE " + criterio.getSql() + " ";
+        String sql = SELECT_COMPLETO + where + "ORDER BY " + Criterio.validarOrdenacao(ordenacao);
+        return consultarReservas(new SessaoEntidades(), sql, criterio.getParametros().toArray());
+    }
+
+    /**
+     * Conta reservas que satisfazem o critério (aliases de {@link #findWhere}).
+     */
+    public long count(Criterio criterio) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM reserva r " + JUNCOES + criterio.clausulaWhere();
+        return SqlUtil.contarEmCache(dbManager, sql, criterio.getParametros().toArray());
+    }
+
+    /**
+     * Remove as reservas que satisfazem o critério (aliases de {@link #findWhere}), em blocos de IDs.
+     *
+     * @return número de reservas removidas
+     */
+    public long deleteWhere(Criterio criterio) throws SQLException {
+        return SqlUtil.apagarEmBlocos(dbManager, "SELECT r.id FROM reserva r " + JUNCOES, "r.id", "reserva", criterio);
+    }
+
+    /**
+     * Altera numa só instrução as reservas que satisfazem o critério.
+     * As colunas da alteração usam o alias r; o critério pode usar l, m e p.
+     *
+     * @return número de reservas alteradas
+     */
+    public long updateWhere(Criterio criterio, Alteracao alteracao) throws SQLException {
+        return SqlUtil.atualizar(dbManager, "UPDATE reserva r " + JUNCOES, criterio, alteracao);
+    }
+
+    /**
+     * Esvazia a tabela de reservas. Apenas para testes.
+     */
+    public void truncate() throws SQLException {
+        SqlUtil.truncar(dbManager, "reserva");
+    }
+
+    /**
+     * Busca a página de reservas seguinte à chave (data_reserva, id), por
+     * ordem de fila. Com data null devolve a primeira página.
+     */
+    public List<Reserva> findPaginaApos(LocalDate dataReserva, int id, int limite) throws SQLException {
+        if (dataReserva == null) {
+            String sql = SELECT_COMPLETO + "ORDER BY r.data_reserva, r.id LIMIT ?";
+            return consultarReservas(new SessaoEntidades(), sql, limite);
+        }
+        String sql = SELECT_COMPLETO +
+                     "WHERE r.data_reserva > ? OR (r.data_reserva = ? AND r.id > ?) " +
+                     "ORDER BY r.data_reserva, r.id LIMIT ?";
+        return consultarReservas(new SessaoEntidades(), sql, dataReserva, dataReserva, id, limite);
+    }
+
+    /**
+     * Lê as chaves de todas as reservas ativas por ordem de fila, sem
+     * carregar livros e membros. Usado para reconstruir o índice de filas.
+     *
+     * @return cada elemento é {id, livroId, membroId, dataReserva (epoch day)}
+     */
+    public List<long[]> findChavesAtivas() throws SQLException {
+        String sql = "SELECT id, livro_id, membro_id, data_reserva FROM reserva " +
+                     "WHERE ativa = TRUE ORDER BY livro_id, data_reserva, id";
+        List<long[]> chaves = new ArrayList<>();
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                chaves.add(new long[]{
+                    rs.getInt("id"),
+                    rs.getInt("livro_id"),
+                    rs.getInt("membro_id"),
+                    rs.getDate("data_reserva").toLocalDate().toEpochDay()
+                });
+            }
+        }
+        return chaves;
+    }
+
+    /**
+     * Desativa as reservas ativas com prazo vencido.
+     *
+     * @return IDs das reservas desativadas
+     */
+    public List<Integer> expirarVencidas() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        Connection conn = null;
+        try {
+            conn = dbManager.getConnection();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id FROM reserva WHERE " + VENCIDAS + " FOR UPDATE");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            if (!ids.isEmpty()) {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE reserva SET ativa = FALSE WHERE " + VENCIDAS)) {
+                    stmt.executeUpdate();
+                }
+            }
+
+            conn.commit();
+            return ids;
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * Insere nova reserva.
+     */
+    public int insert(Reserva reserva) throws SQLException {
+        String sql = "INSERT INTO reserva (livro_id, membro_id, data_reserva, data_expiracao, " +
+                    "ativa, confirmada, notificado) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            stmt.setInt(1, reserva.getLivro().getId());
+            stmt.setInt(2, reserva.getMembro().getId());
+            stmt.setDate(3, Date.valueOf(reserva.getDataReserva()));
+            stmt.setDate(4, Date.valueOf(reserva.getDataExpiracao()));
+            stmt.setBoolean(5, reserva.isAtiva());
+            stmt.setBoolean(6, reserva.isConfirmada());
+            stmt.setBoolean(7, reserva.isNotificado());
+
+            int affectedRows = stmt.executeUpdate();
+
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        return generatedKeys.getInt(1);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Atualiza dados de reserva.
+     */
+    public boolean update(Reserva reserva) throws SQLException {
+        String sql = "UPDATE reserva SET data_reserva = ?, data_expiracao = ?, ativa = ?, " +
+                    "confirmada = ?, notificado = ? WHERE id = ?";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDate(1, Date.valueOf(reserva.getDataReserva()));
+            stmt.setDate(2, Date.valueOf(reserva.getDataExpiracao()));
+            stmt.setBoolean(3, reserva.isAtiva());
+            stmt.setBoolean(4, reserva.isConfirmada());
+            stmt.setBoolean(5, reserva.isNotificado());
+            stmt.setInt(6, reserva.getId());
+
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Deleta reserva por ID.
+     */
+    public boolean delete(int id) throws SQLException {
+        String sql = "DELETE FROM reserva WHERE id = ?";
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, id);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Percorre todas as reservas em streaming (por ordem de ID).
+     */
+    public void forEach(Consumer<Reserva> acao) throws SQLException {
+        try (LeitorStreaming<Reserva> leitor = abrirStreaming()) {
+            leitor.paraCada(acao);
+        }
+    }
+
+    /**
+     * Stream de todas as reservas lido em streaming. Deve ser usado em
+     * try-with-resources para libertar as conexões.
+     */
+    public Stream<Reserva> stream() throws SQLException {
+        return abrirStreaming().comoStream();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Executa uma consulta baseada em {@link #SELECT_COMPLETO}, partilhando
+     * livros e membros através da sessão.
+     */
+    private List<Reserva> consultarReservas(SessaoEntidades sessao, String sql,
+                                            Object... parametros) throws SQLException {
+        List<Reserva> reservas = new ArrayList<>();
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            SqlUtil.definirParametros(stmt, parametros);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    reservas.add(mapearCompleto(rs, sessao));
+                }
+            }
+
+            graphLoader.carregar(conn, sessao.retirarLivrosSemGrafo());
+        }
+        return reservas;
+    }
+
+    private LeitorStreaming<Reserva> abrirStreaming() throws SQLException {
+        SessaoEntidades sessao = new SessaoEntidades();
+        return new LeitorStreaming<>(dbManager, SELECT_COMPLETO + "ORDER BY r.id",
+                rs -> mapearCompleto(rs, sessao),
+                (conn, bloco) -> {
+                    graphLoader.carregar(conn, sessao.retirarLivrosSemGrafo());
+                    sessao.limpar();
+                });
+    }
+
+    private Reserva mapearCompleto(ResultSet rs, SessaoEntidades sessao) throws SQLException {
+        Reserva reserva = mapResultSetToReserva(rs);
+        reserva.setLivro(sessao.resolverLivro(rs, "l_"));
+        reserva.setMembro(sessao.resolverMembro(rs, "m_"));
+        return reserva;
+    }
+
+    private Reserva mapResultSetToReserva(ResultSet rs) throws SQLException {
+        Reserva reserva = new Reserva();
+
+        reserva.setId(rs.getInt("id"));
+        reserva.setDataReserva(rs.getDate("data_reserva").toLocalDate());
+        reserva.setDataExpiracao(rs.getDate("data_expiracao").toLocalDate());
+        reserva.setAtiva(rs.getBoolean("ativa"));
+        reserva.setConfirmada(rs.getBoolean("confirmada"));
+        if (rs.getBoolean("notificado")) {
+            reserva.marcarNotificado();
+        }
+
+        return reserva;
+    }
+}
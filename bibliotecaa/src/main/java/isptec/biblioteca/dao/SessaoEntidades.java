@@ -0,0 +1,98 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sessão de entidades (identity map) com o âmbito de uma operação.
+ *
+ * Garante que cada Livro e cada Membro é mapeado no máximo uma vez por
+ * operação: linhas que referem o mesmo ID partilham a mesma instância.
+ * Não é thread-safe; deve ser criada por pedido e descartada no fim.
+ */
+public class SessaoEntidades {
+
+    private final Map<Integer, Livro> livros = new HashMap<>();
+    private final Map<Integer, Membro> membros = new HashMap<>();
+
+    /** Livros mapeados cujos autores/categorias ainda não foram carregados */
+    private final List<Livro> livrosSemGrafo = new ArrayList<>();
+
+    /**
+     * Devolve o livro já conhecido pela sessão ou null.
+     */
+    public Livro getLivro(int id) {
+        return livros.get(id);
+    }
+
+    /**
+     * Devolve o membro já conhecido pela sessão ou null.
+     */
+    public Membro getMembro(int id) {
+        return membros.get(id);
+    }
+
+    public int getNumeroLivros() {
+        return livros.size();
+    }
+
+    public int getNumeroMembros() {
+        return membros.size();
+    }
+
+    /**
+     * Esvazia a sessão.
+     */
+    public void limpar() {
+        livros.clear();
+        membros.clear();
+        livrosSemGrafo.clear();
+    }
+
+    // === RESOLUÇÃO A PARTIR DE RESULTSET ===
+
+    /**
+     * Resolve o livro das colunas com o prefixo indicado, mapeando-o só
+     * se ainda não estiver na sessão.
+     */
+    Livro resolverLivro(ResultSet rs, String prefixo) throws SQLException {
+        int id = rs.getInt(prefixo + "id");
+        Livro livro = livros.get(id);
+        if (livro == null) {
+            livro = LivroDAO.mapLivro(rs, prefixo);
+            livros.put(id, livro);
+            livrosSemGrafo.add(livro);
+        }
+        return livro;
+    }
+
+    /**
+     * Resolve o membro das colunas com o prefixo indicado, mapeando-o só
+     * se ainda não estiver na sessão.
+     */
+    Membro resolverMembro(ResultSet rs, String prefixo) throws SQLException {
+        int id = rs.getInt(prefixo + "id");
+        Membro membro = membros.get(id);
+        if (membro == null) {
+            membro = MembroDAO.mapMembro(rs, prefixo);
+            membros.put(id, membro);
+        }
+        return membro;
+    }
+
+    /**
+     * Devolve e esvazia a lista de livros que ainda precisam do grafo.
+     */
+    List<Livro> retirarLivrosSemGrafo() {
+        List<Livro> pendentes = new ArrayList<>(livrosSemGrafo);
+        livrosSemGrafo.clear();
+        return pendentes;
+    }
+}
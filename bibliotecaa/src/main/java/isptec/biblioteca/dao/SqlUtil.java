@@ -0,0 +1,196 @@
+package isptec.biblioteca.dao;
+
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utilitários de montagem de SQL partilhados pelos DAOs.
+ */
+final class SqlUtil {
+
+    /** Número máximo de IDs por cláusula IN nas consultas em lote */
+    static final int TAMANHO_LOTE_IN = 1000;
+
+    /** Número de linhas removidas por transação nos DELETEs em massa */
+    static final int TAMANHO_LOTE_DELETE = 1000;
+
+    private SqlUtil() {
+        // Impede instanciação
+    }
+
+    /**
+     * Gera a lista de marcadores "?, ?, ?" para uma cláusula IN.
+     */
+    static String placeholders(int quantidade) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < quantidade; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gera "a.col AS p_col, ..." para ler colunas de uma tabela num JOIN sem colisões.
+     */
+    static String colunasComAlias(String alias, String prefixo, String... colunas) {
+        StringBuilder sb = new StringBuilder();
+        for (String coluna : colunas) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(alias).append('.').append(coluna)
+              .append(" AS ").append(prefixo).append(coluna);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Define os parâmetros do statement pela ordem (LocalDate e enums convertidos).
+     */
+    static void definirParametros(PreparedStatement stmt, Object... parametros) throws SQLException {
+        for (int i = 0; i < parametros.length; i++) {
+            Object valor = parametros[i];
+            if (valor instanceof LocalDate) {
+                stmt.setDate(i + 1, Date.valueOf((LocalDate) valor));
+            } else if (valor instanceof Enum) {
+                stmt.setString(i + 1, ((Enum<?>) valor).name());
+            } else {
+                stmt.setObject(i + 1, valor);
+            }
+        }
+    }
+
+    /**
+     * Executa uma consulta SELECT COUNT(*) e devolve o resultado.
+     */
+    static long contar(DatabaseManager dbManager, String sql, Object... parametros) throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            definirParametros(stmt, parametros);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Como {@link #contar}, servida pela cache de consultas enquanto nenhuma
+     * das tabelas do SQL for escrita.
+     */
+    static long contarEmCache(DatabaseManager dbManager, String sql, Object... parametros) throws SQLException {
+        return CacheConsultas.getInstance().contar(sql, parametros, () -> contar(dbManager, sql, parametros));
+    }
+
+    /**
+     * Remove as linhas que satisfazem o critério em blocos de
+     * {@link #TAMANHO_LOTE_DELETE} IDs, cada bloco na sua própria transação,
+     * para não reter bloqueios nem crescer o undo log numa só operação.
+     * Os IDs são percorridos por ordem (keyset), sem voltar a ler os já apagados.
+     * Se um bloco falhar, os anteriores ficam removidos.
+     *
+     * @param selectIds "SELECT e.id FROM emprestimo e" (com os JOINs de que o critério precisa)
+     * @param colunaId  coluna do ID no select (ex.: "e.id")
+     * @param tabela    tabela de onde se apaga por ID
+     * @return número de linhas removidas
+     */
+    static long apagarEmBlocos(DatabaseManager dbManager, String selectIds, String colunaId,
+                               String tabela, Criterio criterio) throws SQLException {
+        String sql = selectIds + " WHERE " + (criterio.isVazio() ? "" : "(" + criterio.getSql() + ") AND ") +
+                     colunaId + " > ? ORDER BY " + colunaId + " LIMIT " + TAMANHO_LOTE_DELETE;
+        List<Object> parametros = new ArrayList<>(criterio.getParametros());
+        parametros.add(0);
+
+        long removidas = 0;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement select = conn.prepareStatement(sql)) {
+
+            while (true) {
+                List<Integer> ids = new ArrayList<>();
+                definirParametros(select, parametros.toArray());
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                String delete = "DELETE FROM " + tabela + " WHERE id IN (" + placeholders(ids.size()) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(delete)) {
+                    definirParametros(stmt, ids.toArray());
+                    removidas += stmt.executeUpdate();
+                }
+                if (ids.size() < TAMANHO_LOTE_DELETE) {
+                    break;
+                }
+                parametros.set(parametros.size() - 1, ids.get(ids.size() - 1));
+            }
+        }
+        return removidas;
+    }
+
+    /**
+     * Executa um UPDATE em massa num só comando.
+     *
+     * @param update "UPDATE livro" ou "UPDATE pessoa p INNER JOIN membro m ON ..."
+     * @return número de linhas alteradas
+     */
+    static long atualizar(DatabaseManager dbManager, String update, Criterio criterio,
+                          Alteracao alteracao) throws SQLException {
+        String sql = update + " SET " + alteracao.getSql() + criterio.clausulaWhere();
+        List<Object> parametros = new ArrayList<>(alteracao.getParametros());
+        parametros.addAll(criterio.getParametros());
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            definirParametros(stmt, parametros.toArray());
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Esvazia as tabelas com TRUNCATE (verificação de chaves estrangeiras
+     * desligada na sessão). Só para testes: exige db.permitirTruncate=true.
+     *
+     * @throws IllegalStateException se o TRUNCATE não estiver permitido
+     */
+    static void truncar(DatabaseManager dbManager, String... tabelas) throws SQLException {
+        if (!dbManager.isTruncatePermitido()) {
+            throw new IllegalStateException(
+                    "TRUNCATE desativado; defina db.permitirTruncate=true apenas em bases de teste");
+        }
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+            try {
+                for (String tabela : tabelas) {
+                    stmt.execute("TRUNCATE TABLE " + tabela);
+                }
+            } finally {
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package isptec.biblioteca.diario;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Diário local (write-ahead log) das operações de circulação.
+ *
+ * As operações são gravadas em segmentos mapeados em memória
+ * (diario-&lt;primeira sequência&gt;.log) e {@link #registar} só retorna depois
+ * de a operação estar no disco. A sincronização é agrupada: uma thread
+ * dedicada faz force() do segmento e liberta de uma vez todas as operações
+ * gravadas entretanto, pelo que várias mesas de atendimento partilham o
+ * mesmo fsync.
+ *
+ * Formato de cada registo: tamanho (int), CRC32 do conteúdo (int), conteúdo.
+ * Um tamanho 0 marca o fim do segmento; um registo com CRC inválido (escrita
+ * interrompida) é tratado como fim e descartado na abertura.
+ */
+public class DiarioCirculacao implements Closeable {
+
+    public static final int TAMANHO_SEGMENTO_PADRAO = 4 * 1024 * 1024;
+
+    private static final int CABECALHO = 8;
+    private static final int TAMANHO_REGISTO = CABECALHO + OperacaoCirculacao.TAMANHO;
+    private static final String PREFIXO = "diario-";
+    private static final String SUFIXO = ".log";
+
+    /**
+     * Segmento do diário.
+     */
+    private static final class Segmento {
+        final Path arquivo;
+        final FileChannel canal;
+        final MappedByteBuffer mapa;
+        final long primeira;
+        long ultima;
+
+        Segmento(Path arquivo, FileChannel canal, MappedByteBuffer mapa, long primeira) {
+            this.arquivo = arquivo;
+            this.canal = canal;
+            this.mapa = mapa;
+            this.primeira = primeira;
+            this.ultima = primeira - 1;
+        }
+    }
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final ArrayDeque<Segmento> segmentos = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition gravado = lock.newCondition();
+    private final Condition duravel = lock.newCondition();
+
+    private long ultimaSequencia;
+    private long sequenciaDuravel;
+    private IOException falha;
+    private boolean fechado;
+
+    private final Thread sincronizador;
+
+    private DiarioCirculacao(Path diretorio, int tamanhoSegmento) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.sincronizador = new Thread(this::sincronizar, "diario-circulacao-fsync");
+        this.sincronizador.setDaemon(true);
+    }
+
+    /**
+     * Abre (ou cria) o diário no diretório, recuperando os segmentos existentes.
+     */
+    public static DiarioCirculacao abrir(Path diretorio) throws IOException {
+        return abrir(diretorio, TAMANHO_SEGMENTO_PADRAO);
+    }
+
+    public static DiarioCirculacao abrir(Path diretorio, int tamanhoSegmento) throws IOException {
+        if (tamanhoSegmento < TAMANHO_REGISTO + 4) {
+            throw new IllegalArgumentException("Tamanho de segmento inválido: " + tamanhoSegmento);
+        }
+        Files.createDirectories(diretorio);
+        DiarioCirculacao diario = new DiarioCirculacao(diretorio, tamanhoSegmento);
+        diario.recuperar();
+        diario.sincronizador.start();
+        return diario;
+    }
+
+    /**
+     * Grava a operação e espera que esteja no disco.
+     *
+     * @return a operação com o número de sequência atribuído
+     * @throws IOException se o diário não conseguir sincronizar
+     */
+    public OperacaoCirculacao registar(OperacaoCirculacao operacao) throws IOException {
+        lock.lock();
+        try {
+            if (fechado) {
+                throw new IllegalStateException("Diário de circulação fechado");
+            }
+            verificarFalha();
+
+            Segmento atual = segmentos.peekLast();
+            if (atual.mapa.remaining() < TAMANHO_REGISTO) {
+                atual = rolar();
+            }
+            OperacaoCirculacao registada = operacao.comSequencia(ultimaSequencia + 1);
+            escrever(atual.mapa, registada);
+            ultimaSequencia = registada.getSequencia();
+            atual.ultima = ultimaSequencia;
+            gravado.signal();
+
+            while (sequenciaDuravel < registada.getSequencia() && falha == null) {
+                duravel.awaitUninterruptibly();
+            }
+            verificarFalha();
+            return registada;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lê, por ordem, as operações com sequência superior à indicada.
+     */
+    public List<OperacaoCirculacao> lerApos(long sequencia) {
+        List<OperacaoCirculacao> operacoes = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Segmento segmento : segmentos) {
+                if (segmento.ultima <= sequencia) {
+                    continue;
+                }
+                ByteBuffer leitura = segmento.mapa.duplicate();
+                leitura.flip();
+                OperacaoCirculacao operacao;
+                while ((operacao = lerRegisto(leitura)) != null) {
+                    if (operacao.getSequencia() > sequencia) {
+                        operacoes.add(operacao);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return operacoes;
+    }
+
+    /**
+     * Apaga os segmentos cujas operações já foram todas aplicadas.
+     * O segmento atual nunca é apagado.
+     */
+    public void descartarAte(long sequencia) {
+        lock.lock();
+        try {
+            while (segmentos.size() > 1 && segmentos.peekFirst().ultima <= sequencia) {
+                Segmento segmento = segmentos.pollFirst();
+                try {
+                    segmento.canal.close();
+                    Files.deleteIfExists(segmento.arquivo);
+                } catch (IOException e) {
+                    System.err.println("Erro ao apagar segmento do diário: " + e.getMessage());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Garante que as próximas sequências são superiores à indicada
+     * (por exemplo, se o diretório foi apagado mas o banco já aplicou
+     * operações desta origem).
+     */
+    public void avancarPara(long sequencia) throws IOException {
+        lock.lock();
+        try {
+            if (sequencia > ultimaSequencia) {
+                Segmento atual = segmentos.peekLast();
+                if (atual.mapa.position() == 0) {
+                    // Segmento vazio: o nome tem de refletir a nova primeira sequência
+                    segmentos.pollLast();
+                    atual.canal.close();
+                    Files.deleteIfExists(atual.arquivo);
+                } else {
+                    atual.mapa.force();
+                }
+                ultimaSequencia = sequencia;
+                sequenciaDuravel = sequencia;
+                segmentos.addLast(criarSegmento(sequencia + 1));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getUltimaSequencia() {
+        lock.lock();
+        try {
+            return ultimaSequencia;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getDiretorio() {
+        return diretorio;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (fechado) {
+                return;
+            }
+            fechado = true;
+            gravado.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            sincronizador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segmento segmento : segmentos) {
+            segmento.mapa.force();
+            segmento.canal.close();
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Ciclo da thread de sincronização: espera por gravações, força o
+     * segmento atual e acorda quem estava à espera.
+     */
+    private void sincronizar() {
+        while (true) {
+            Segmento atual;
+            long alvo;
+            lock.lock();
+            try {
+                while (!fechado && sequenciaDuravel == ultimaSequencia) {
+                    gravado.awaitUninterruptibly();
+                }
+                if (sequenciaDuravel == ultimaSequencia) {
+                    return;
+                }
+                alvo = ultimaSequencia;
+                atual = segmentos.peekLast();
+            } finally {
+                lock.unlock();
+            }
+
+            // Segmentos anteriores já foram forçados ao rolar
+            IOException erro = null;
+            try {
+                atual.mapa.force();
+            } catch (RuntimeException e) {
+                erro = new IOException("Falha ao sincronizar o diário de circulação", e);
+            }
+
+            lock.lock();
+            try {
+                if (erro != null) {
+                    falha = erro;
+                } else {
+                    sequenciaDuravel = Math.max(sequenciaDuravel, alvo);
+                }
+                duravel.signalAll();
+                if (erro != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void verificarFalha() throws IOException {
+        if (falha != null) {
+            throw new IOException("Diário de circulação indisponível", falha);
+        }
+    }
+
+    /**
+     * Fecha o segmento atual (forçando-o) e abre o seguinte.
+     */
+    private Segmento rolar() throws IOException {
+        segmentos.peekLast().mapa.force();
+        Segmento novo = criarSegmento(ultimaSequencia + 1);
+        segmentos.addLast(novo);
+        return novo;
+    }
+
+    private Segmento criarSegmento(long primeira) throws IOException {
+        Path arquivo = diretorio.resolve(nomeSegmento(primeira));
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+        canal.force(true);
+        return new Segmento(arquivo, canal, mapa, primeira);
+    }
+
+    /**
+     * Abre os segmentos existentes por ordem e posiciona a escrita no fim
+     * do último registo válido.
+     */
+    private void recuperar() throws IOException {
+        List<Path> arquivos = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diretorio, PREFIXO + "*" + SUFIXO)) {
+            for (Path arquivo : stream) {
+                arquivos.add(arquivo);
+            }
+        }
+        arquivos.sort((a, b) -> Long.compare(primeiraSequencia(a), primeiraSequencia(b)));
+
+        for (Path arquivo : arquivos) {
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long tamanho = Math.max(canal.size(), tamanhoSegmento);
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+            Segmento segmento = new Segmento(arquivo, canal, mapa, primeiraSequencia(arquivo));
+
+            OperacaoCirculacao operacao;
+            while ((operacao = lerRegisto(mapa)) != null && operacao.getSequencia() > ultimaSequencia) {
+                segmento.ultima = operacao.getSequencia();
+                ultimaSequencia = segmento.ultima;
+            }
+            int fim = mapa.position();
+            if (operacao != null) {
+                // Sequência fora de ordem: restos de uma escrita anterior
+                fim -= TAMANHO_REGISTO;
+            }
+            limparCauda(mapa, fim);
+            mapa.position(fim);
+
+            ultimaSequencia = Math.max(ultimaSequencia, segmento.primeira - 1);
+            segmentos.addLast(segmento);
+        }
+
+        if (segmentos.isEmpty()) {
+            segmentos.addLast(criarSegmento(1));
+        }
+        sequenciaDuravel = ultimaSequencia;
+    }
+
+    /**
+     * Lê o registo na posição atual e avança; null no fim dos registos válidos
+     * (a posição fica no início do registo inválido).
+     */
+    private static OperacaoCirculacao lerRegisto(ByteBuffer buffer) {
+        int inicio = buffer.position();
+        if (buffer.remaining() < CABECALHO) {
+            return null;
+        }
+        int tamanho = buffer.getInt(inicio);
+        if (tamanho != OperacaoCirculacao.TAMANHO || buffer.remaining() < CABECALHO + tamanho) {
+            return null;
+        }
+        int crc = buffer.getInt(inicio + 4);
+        ByteBuffer conteudo = buffer.slice(inicio + CABECALHO, tamanho);
+        if (crc != crc(conteudo)) {
+            return null;
+        }
+        buffer.position(inicio + CABECALHO + tamanho);
+        return OperacaoCirculacao.descodificar(buffer.slice(inicio + CABECALHO, tamanho));
+    }
+
+    private static void escrever(MappedByteBuffer mapa, OperacaoCirculacao operacao) {
+        int inicio = mapa.position();
+        ByteBuffer conteudo = mapa.slice(inicio + CABECALHO, OperacaoCirculacao.TAMANHO);
+        operacao.codificar(conteudo);
+        mapa.putInt(inicio + 4, crc(mapa.slice(inicio + CABECALHO, OperacaoCirculacao.TAMANHO)));
+        // O tamanho é escrito por último: um registo sem tamanho é ignorado
+        mapa.putInt(inicio, OperacaoCirculacao.TAMANHO);
+        mapa.position(inicio + TAMANHO_REGISTO);
+    }
+
+    /**
+     * Apaga restos de uma escrita interrompida a partir da posição indicada.
+     */
+    private static void limparCauda(MappedByteBuffer mapa, int inicio) {
+        if (mapa.limit() - inicio >= 4 && mapa.getInt(inicio) == 0) {
+            return;
+        }
+        for (int i = inicio; i < mapa.limit(); i++) {
+            mapa.put(i, (byte) 0);
+        }
+        mapa.force();
+    }
+
+    private static int crc(ByteBuffer conteudo) {
+        CRC32 crc = new CRC32();
+        crc.update(conteudo);
+        return (int) crc.getValue();
+    }
+
+    private static String nomeSegmento(long primeira) {
+        return String.format("%s%020d%s", PREFIXO, primeira, SUFIXO);
+    }
+
+    private static long primeiraSequencia(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        return Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length()));
+    }
+}
@@ -0,0 +1,287 @@
+package isptec.biblioteca.diario;
+
+import isptec.biblioteca.dao.DiarioCirculacaoDAO;
+import isptec.biblioteca.repository.impl.Repositorios;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escrita diferida (write-behind) das operações de circulação.
+ *
+ * O balcão regista cada operação no {@link DiarioCirculacao} e recebe a
+ * confirmação assim que ela está no disco local; uma thread de fundo
+ * aplica-as depois ao MySQL em lotes. Após uma queda, {@link #iniciar}
+ * relê do diário tudo o que está acima da marca diario_aplicado da origem.
+ *
+ * Erros transitórios (ligação, deadlock) repetem o lote com espera
+ * exponencial. Erros permanentes isolam o lote operação a operação; as
+ * que continuam a falhar são registadas em rejeitadas.log no diretório do
+ * diário e saltadas. Os livros e membros de cada operação aplicada saem da
+ * cache de entidades dos repositórios.
+ */
+public class EscritorDiferido implements Closeable {
+
+    public static final int TAMANHO_LOTE_PADRAO = 500;
+
+    private static final long ESPERA_INICIAL_MS = 500;
+    private static final long ESPERA_MAXIMA_MS = 60_000;
+
+    private final DiarioCirculacao diario;
+    private final DiarioCirculacaoDAO dao;
+    private final String origem;
+    private final int tamanhoLote;
+    private final Path arquivoRejeitadas;
+
+    private final LinkedBlockingQueue<OperacaoCirculacao> fila = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean ativo;
+
+    /** Última sequência aplicada (ou saltada) por esta instância */
+    private volatile long ultimaAplicada;
+
+    public EscritorDiferido(DiarioCirculacao diario, String origem) {
+        this(diario, new DiarioCirculacaoDAO(), origem, TAMANHO_LOTE_PADRAO);
+    }
+
+    public EscritorDiferido(DiarioCirculacao diario, DiarioCirculacaoDAO dao, String origem, int tamanhoLote) {
+        if (origem == null || origem.isBlank()) {
+            throw new IllegalArgumentException("Origem do diário não pode ser vazia");
+        }
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + tamanhoLote);
+        }
+        this.diario = diario;
+        this.dao = dao;
+        this.origem = origem;
+        this.tamanhoLote = tamanhoLote;
+        this.arquivoRejeitadas = diario.getDiretorio().resolve("rejeitadas.log");
+        this.thread = new Thread(this::executar, "diario-circulacao-escritor");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Lê a marca da origem no banco, põe na fila as operações do diário
+     * ainda não aplicadas e arranca a thread de escrita.
+     *
+     * @return as operações pendentes, para o serviço reconstruir o seu estado
+     */
+    public List<OperacaoCirculacao> iniciar() throws SQLException, IOException {
+        long marca = dao.ultimaSequencia(origem);
+        diario.avancarPara(marca);
+        ultimaAplicada = marca;
+
+        List<OperacaoCirculacao> pendentes = diario.lerApos(marca);
+        fila.addAll(pendentes);
+        diario.descartarAte(marca);
+
+        ativo = true;
+        thread.start();
+        return pendentes;
+    }
+
+    /**
+     * Grava a operação no diário (esperando pelo fsync) e agenda a sua
+     * aplicação ao banco.
+     *
+     * @return a operação com a sequência atribuída
+     */
+    public OperacaoCirculacao registar(OperacaoCirculacao operacao) throws IOException {
+        OperacaoCirculacao registada = diario.registar(operacao);
+        fila.offer(registada);
+        return registada;
+    }
+
+    /**
+     * Nova chave de operação para um empréstimo (positiva, aleatória de 63
+     * bits para não colidir entre balcões nem entre arranques).
+     */
+    public long novaChave() {
+        long chave;
+        do {
+            chave = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        } while (chave == 0);
+        return chave;
+    }
+
+    /**
+     * IDs no banco dos empréstimos com as chaves de operação indicadas.
+     */
+    public Map<Long, Integer> resolverChaves(Collection<Long> chaves) throws SQLException {
+        return dao.findIdsPorChave(chaves);
+    }
+
+    /**
+     * Número de operações registadas ainda por aplicar.
+     */
+    public int getPendentes() {
+        return fila.size();
+    }
+
+    public long getUltimaAplicada() {
+        return ultimaAplicada;
+    }
+
+    /**
+     * Para a thread depois de tentar escoar a fila; o que ficar por aplicar
+     * permanece no diário para o próximo arranque.
+     */
+    @Override
+    public void close() throws IOException {
+        ativo = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        diario.close();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void executar() {
+        while (ativo || !fila.isEmpty()) {
+            OperacaoCirculacao primeira;
+            try {
+                primeira = ativo ? fila.poll(1, TimeUnit.SECONDS) : fila.poll();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (primeira == null) {
+                continue;
+            }
+            List<OperacaoCirculacao> lote = new ArrayList<>(tamanhoLote);
+            lote.add(primeira);
+            fila.drainTo(lote, tamanhoLote - 1);
+
+            if (!aplicarLote(lote)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Aplica o lote, repetindo em erros transitórios.
+     *
+     * @return false se o escritor foi parado antes de conseguir aplicar
+     */
+    private boolean aplicarLote(List<OperacaoCirculacao> lote) {
+        SQLException erro = comRepeticao(() -> dao.aplicar(origem, lote));
+        if (erro == null) {
+            for (OperacaoCirculacao operacao : lote) {
+                invalidarCache(operacao);
+            }
+            concluir(lote.get(lote.size() - 1).getSequencia());
+            return true;
+        }
+        if (!ativo && isTransitorio(erro)) {
+            return false;
+        }
+        // Erro permanente: isola as operações problemáticas
+        for (OperacaoCirculacao operacao : lote) {
+            List<OperacaoCirculacao> sozinha = List.of(operacao);
+            erro = comRepeticao(() -> dao.aplicar(origem, sozinha));
+            if (erro != null && isTransitorio(erro)) {
+                return false;
+            }
+            if (erro != null) {
+                rejeitar(operacao, erro);
+                erro = comRepeticao(() -> dao.saltar(origem, operacao.getSequencia()));
+                if (erro != null) {
+                    return false;
+                }
+            } else {
+                invalidarCache(operacao);
+            }
+            concluir(operacao.getSequencia());
+        }
+        return true;
+    }
+
+    /**
+     * Operação sobre o banco repetível.
+     */
+    private interface AcaoBanco {
+        void executar() throws SQLException;
+    }
+
+    /**
+     * Executa a ação repetindo erros transitórios com espera exponencial
+     * enquanto o escritor estiver ativo.
+     *
+     * @return null em caso de sucesso, ou o último erro
+     */
+    private SQLException comRepeticao(AcaoBanco acao) {
+        long espera = ESPERA_INICIAL_MS;
+        while (true) {
+            try {
+                acao.executar();
+                return null;
+            } catch (SQLException e) {
+                if (!isTransitorio(e) || !ativo) {
+                    return e;
+                }
+                System.err.println("Erro ao aplicar diário de circulação (nova tentativa em " +
+                        espera + " ms): " + e.getMessage());
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException ie) {
+                    // close(): tenta mais uma vez e desiste
+                }
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_MS);
+            }
+        }
+    }
+
+    private static void invalidarCache(OperacaoCirculacao operacao) {
+        Repositorios.invalidarLivro(operacao.getLivroId());
+        Repositorios.invalidarMembro(operacao.getMembroId());
+    }
+
+    private void concluir(long sequencia) {
+        ultimaAplicada = sequencia;
+        diario.descartarAte(sequencia);
+    }
+
+    private void rejeitar(OperacaoCirculacao operacao, SQLException erro) {
+        System.err.println("Operação do diário rejeitada: " + operacao + " - " + erro.getMessage());
+        try (Writer writer = Files.newBufferedWriter(arquivoRejeitadas, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(LocalDateTime.now() + " " + operacao + " " + erro.getMessage());
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            System.err.println("Erro ao registar operação rejeitada: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Erros de ligação (SQLState 08), de transação (40, deadlock) e as
+     * exceções transitórias do JDBC justificam nova tentativa.
+     */
+    static boolean isTransitorio(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException ||
+            e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+        String estado = e.getSQLState();
+        return estado != null && (estado.startsWith("08") || estado.startsWith("40"));
+    }
+}
@@ -0,0 +1,172 @@
+package isptec.biblioteca.diario;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Operação de circulação registada no diário (empréstimo, devolução ou renovação).
+ *
+ * O empréstimo é identificado pela chave de operação gerada no balcão
+ * (coluna emprestimo.chave_operacao), que existe antes de o banco atribuir
+ * o ID; empréstimos já carregados do banco sem chave usam o ID.
+ */
+public final class OperacaoCirculacao {
+
+    public enum Tipo {
+        EMPRESTIMO,
+        DEVOLUCAO,
+        RENOVACAO
+    }
+
+    /** Bytes ocupados por uma operação codificada */
+    static final int TAMANHO = 8 + 1 + 8 + 4 + 4 + 4 + 8 + 8 + 4 + 8;
+
+    private static final long SEM_DATA = Long.MIN_VALUE;
+
+    private final long sequencia;
+    private final Tipo tipo;
+    private final long chave;
+    private final int emprestimoId;
+    private final int livroId;
+    private final int membroId;
+    private final LocalDate data;
+    private final LocalDate dataPrevista;
+    private final int numeroRenovacoes;
+    private final double valorMulta;
+
+    private OperacaoCirculacao(long sequencia, Tipo tipo, long chave, int emprestimoId, int livroId,
+                               int membroId, LocalDate data, LocalDate dataPrevista,
+                               int numeroRenovacoes, double valorMulta) {
+        this.sequencia = sequencia;
+        this.tipo = tipo;
+        this.chave = chave;
+        this.emprestimoId = emprestimoId;
+        this.livroId = livroId;
+        this.membroId = membroId;
+        this.data = data;
+        this.dataPrevista = dataPrevista;
+        this.numeroRenovacoes = numeroRenovacoes;
+        this.valorMulta = valorMulta;
+    }
+
+    // === FÁBRICAS ===
+
+    /**
+     * Novo empréstimo identificado pela chave de operação.
+     */
+    public static OperacaoCirculacao emprestimo(long chave, int livroId, int membroId,
+                                                LocalDate dataEmprestimo, LocalDate dataPrevista) {
+        return new OperacaoCirculacao(0, Tipo.EMPRESTIMO, chave, 0, livroId, membroId,
+                dataEmprestimo, dataPrevista, 0, 0);
+    }
+
+    /**
+     * Devolução de um empréstimo (pela chave ou, se esta for 0, pelo ID).
+     */
+    public static OperacaoCirculacao devolucao(long chave, int emprestimoId, int livroId, int membroId,
+                                               LocalDate dataDevolucao, double valorMulta) {
+        return new OperacaoCirculacao(0, Tipo.DEVOLUCAO, chave, emprestimoId, livroId, membroId,
+                dataDevolucao, null, 0, valorMulta);
+    }
+
+    /**
+     * Renovação de um empréstimo: nova data prevista e total de renovações
+     * (valores absolutos, para que reaplicar seja inofensivo).
+     */
+    public static OperacaoCirculacao renovacao(long chave, int emprestimoId, int livroId, int membroId,
+                                               LocalDate novaDataPrevista, int numeroRenovacoes) {
+        return new OperacaoCirculacao(0, Tipo.RENOVACAO, chave, emprestimoId, livroId, membroId,
+                null, novaDataPrevista, numeroRenovacoes, 0);
+    }
+
+    /**
+     * Cópia com o número de sequência atribuído pelo diário.
+     */
+    OperacaoCirculacao comSequencia(long novaSequencia) {
+        return new OperacaoCirculacao(novaSequencia, tipo, chave, emprestimoId, livroId, membroId,
+                data, dataPrevista, numeroRenovacoes, valorMulta);
+    }
+
+    // === CODIFICAÇÃO ===
+
+    void codificar(ByteBuffer destino) {
+        destino.putLong(sequencia);
+        destino.put((byte) tipo.ordinal());
+        destino.putLong(chave);
+        destino.putInt(emprestimoId);
+        destino.putInt(livroId);
+        destino.putInt(membroId);
+        destino.putLong(data != null ? data.toEpochDay() : SEM_DATA);
+        destino.putLong(dataPrevista != null ? dataPrevista.toEpochDay() : SEM_DATA);
+        destino.putInt(numeroRenovacoes);
+        destino.putDouble(valorMulta);
+    }
+
+    static OperacaoCirculacao descodificar(ByteBuffer origem) {
+        long sequencia = origem.getLong();
+        Tipo tipo = Tipo.values()[origem.get()];
+        long chave = origem.getLong();
+        int emprestimoId = origem.getInt();
+        int livroId = origem.getInt();
+        int membroId = origem.getInt();
+        long data = origem.getLong();
+        long dataPrevista = origem.getLong();
+        int numeroRenovacoes = origem.getInt();
+        double valorMulta = origem.getDouble();
+        return new OperacaoCirculacao(sequencia, tipo, chave, emprestimoId, livroId, membroId,
+                data == SEM_DATA ? null : LocalDate.ofEpochDay(data),
+                dataPrevista == SEM_DATA ? null : LocalDate.ofEpochDay(dataPrevista),
+                numeroRenovacoes, valorMulta);
+    }
+
+    // === GETTERS ===
+
+    public long getSequencia() {
+        return sequencia;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public long getChave() {
+        return chave;
+    }
+
+    public int getEmprestimoId() {
+        return emprestimoId;
+    }
+
+    public int getLivroId() {
+        return livroId;
+    }
+
+    public int getMembroId() {
+        return membroId;
+    }
+
+    /** Data do empréstimo ou da devolução */
+    public LocalDate getData() {
+        return data;
+    }
+
+    /** Data de devolução prevista (empréstimo e renovação) */
+    public LocalDate getDataPrevista() {
+        return dataPrevista;
+    }
+
+    public int getNumeroRenovacoes() {
+        return numeroRenovacoes;
+    }
+
+    public double getValorMulta() {
+        return valorMulta;
+    }
+
+    @Override
+    public String toString() {
+        return "OperacaoCirculacao{seq=" + sequencia + ", tipo=" + tipo + ", chave=" + chave +
+               ", emprestimoId=" + emprestimoId + ", livroId=" + livroId + ", membroId=" + membroId +
+               ", data=" + data + ", dataPrevista=" + dataPrevista + "}";
+    }
+}
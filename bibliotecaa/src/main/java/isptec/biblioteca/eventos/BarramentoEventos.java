@@ -0,0 +1,369 @@
+package isptec.biblioteca.eventos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Barramento de eventos de domínio dentro do processo.
+ *
+ * Os serviços publicam {@link EventoDominio}s depois de cada alteração
+ * confirmada, e caches, estatísticas, notificações e índices atualizam-se
+ * por incremento em vez de percorrer tudo de novo. Cada assinante indica o
+ * tipo de evento que quer (recebe também os subtipos) e é:
+ * <ul>
+ *   <li>síncrono: chamado na thread de quem publica, antes de publicar
+ *       regressar; para trabalho curto que tem de estar feito logo;</li>
+ *   <li>assíncrono: com fila própria limitada e uma thread que entrega os
+ *       eventos em lotes (tudo o que estiver na fila, até ao tamanho do
+ *       lote). Com a fila cheia:
+ *       <ul>
+ *         <li>se o assinante indicou uma ressincronização, quem publica
+ *             espera até {@link #ESPERA_MAXIMA_MS} ms; se ainda não houver
+ *             lugar, o assinante fica marcado como desatualizado e a sua
+ *             thread descarta a fila e corre a ressincronização completa
+ *             (que lê o estado atual, incluindo o dos eventos perdidos);</li>
+ *         <li>sem ressincronização, quem publica espera o que for preciso
+ *             (contrapressão), pois um evento perdido nunca seria recuperado.</li>
+ *       </ul></li>
+ * </ul>
+ * Uma exceção num assinante é registada e não afeta os outros nem quem
+ * publica. A ordem dos eventos é mantida por assinante.
+ */
+public final class BarramentoEventos {
+
+    /** Espera máxima de quem publica por lugar numa fila cheia, se o assinante sabe ressincronizar */
+    public static final long ESPERA_MAXIMA_MS = 200;
+
+    private static final BarramentoEventos INSTANCIA = new BarramentoEventos();
+
+    private final List<Assinatura<?>> assinaturas = new CopyOnWriteArrayList<>();
+    private final LongAdder publicados = new LongAdder();
+
+    /**
+     * Registo de um assinante; cancelar deixa de lhe entregar eventos (os
+     * que já estão na fila de um assinante assíncrono ainda são entregues).
+     */
+    public abstract static class Subscricao {
+        private final String nome;
+        private final Class<? extends EventoDominio> tipo;
+        final LongAdder entregues = new LongAdder();
+        final LongAdder descartados = new LongAdder();
+        final LongAdder ressincronizacoes = new LongAdder();
+        final LongAdder falhas = new LongAdder();
+
+        Subscricao(String nome, Class<? extends EventoDominio> tipo) {
+            this.nome = nome;
+            this.tipo = tipo;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public Class<? extends EventoDominio> getTipo() {
+            return tipo;
+        }
+
+        public long getEntregues() {
+            return entregues.sum();
+        }
+
+        /** Eventos que não couberam na fila (cobertos por uma ressincronização) */
+        public long getDescartados() {
+            return descartados.sum();
+        }
+
+        /** Ressincronizações completas feitas depois de eventos descartados */
+        public long getRessincronizacoes() {
+            return ressincronizacoes.sum();
+        }
+
+        /** Entregas em que o assinante lançou exceção */
+        public long getFalhas() {
+            return falhas.sum();
+        }
+
+        /** Eventos à espera de entrega (0 nos assinantes síncronos) */
+        public abstract int getPendentes();
+
+        public abstract void cancelar();
+
+        @Override
+        public String toString() {
+            return String.format("%s{tipo=%s, entregues=%d, pendentes=%d, descartados=%d, ressincronizacoes=%d, falhas=%d}",
+                    nome, tipo.getSimpleName(), getEntregues(), getPendentes(), getDescartados(),
+                    getRessincronizacoes(), getFalhas());
+        }
+    }
+
+    private BarramentoEventos() {
+    }
+
+    public static BarramentoEventos getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Assinante síncrono, chamado na thread de quem publica.
+     */
+    public <E extends EventoDominio> Subscricao subscrever(String nome, Class<E> tipo,
+                                                           Consumer<? super E> assinante) {
+        Sincrona<E> assinatura = new Sincrona<>(nome, tipo, assinante);
+        assinaturas.add(assinatura);
+        return assinatura;
+    }
+
+    /**
+     * Assinante assíncrono com fila limitada e entrega em lotes, numa thread
+     * própria com o nome do assinante. Com a fila cheia quem publica espera
+     * até haver lugar.
+     *
+     * @param capacidade   eventos que a fila aguenta antes de fazer esperar quem publica
+     * @param tamanhoLote  máximo de eventos por entrega
+     */
+    public <E extends EventoDominio> Subscricao subscreverAssincrono(String nome, Class<E> tipo, int capacidade,
+                                                                     int tamanhoLote,
+                                                                     Consumer<List<E>> assinante) {
+        return subscreverAssincrono(nome, tipo, capacidade, tamanhoLote, assinante, null);
+    }
+
+    /**
+     * Assinante assíncrono que sabe reconstruir o seu estado: com a fila
+     * cheia, quem publica espera no máximo {@link #ESPERA_MAXIMA_MS} ms e
+     * depois o assinante é ressincronizado na sua thread.
+     *
+     * @param ressincronizar reconstrói o estado do assinante a partir do estado atual
+     *                       (null = esperar sempre por lugar na fila)
+     */
+    public <E extends EventoDominio> Subscricao subscreverAssincrono(String nome, Class<E> tipo, int capacidade,
+                                                                     int tamanhoLote,
+                                                                     Consumer<List<E>> assinante,
+                                                                     Runnable ressincronizar) {
+        if (capacidade < 1 || tamanhoLote < 1) {
+            throw new IllegalArgumentException("Capacidade e tamanho do lote têm de ser positivos");
+        }
+        Assincrona<E> assinatura = new Assincrona<>(nome, tipo, capacidade, tamanhoLote, assinante, ressincronizar);
+        assinaturas.add(assinatura);
+        assinatura.iniciar();
+        return assinatura;
+    }
+
+    /**
+     * Entrega o evento aos assinantes do seu tipo: primeiro aos síncronos,
+     * depois às filas dos assíncronos.
+     */
+    public void publicar(EventoDominio evento) {
+        publicados.increment();
+        for (Assinatura<?> assinatura : assinaturas) {
+            if (assinatura.sincrona && assinatura.aceita(evento)) {
+                assinatura.receber(evento);
+            }
+        }
+        for (Assinatura<?> assinatura : assinaturas) {
+            if (!assinatura.sincrona && assinatura.aceita(evento)) {
+                assinatura.receber(evento);
+            }
+        }
+    }
+
+    /**
+     * Se algum assinante recebe eventos deste tipo (concreto); permite a quem
+     * publica saltar o trabalho de construir um evento que ninguém lê.
+     */
+    public boolean temAssinantes(Class<? extends EventoDominio> tipo) {
+        for (Assinatura<?> assinatura : assinaturas) {
+            if (assinatura.getTipo().isAssignableFrom(tipo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Subscricao> getSubscricoes() {
+        return new ArrayList<>(assinaturas);
+    }
+
+    public long getPublicados() {
+        return publicados.sum();
+    }
+
+    // === ASSINATURAS ===
+
+    private abstract class Assinatura<E extends EventoDominio> extends Subscricao {
+        final Class<E> classe;
+        final boolean sincrona;
+
+        Assinatura(String nome, Class<E> classe, boolean sincrona) {
+            super(nome, classe);
+            this.classe = classe;
+            this.sincrona = sincrona;
+        }
+
+        boolean aceita(EventoDominio evento) {
+            return classe.isInstance(evento);
+        }
+
+        abstract void receber(EventoDominio evento);
+
+        @Override
+        public void cancelar() {
+            assinaturas.remove(this);
+        }
+    }
+
+    private final class Sincrona<E extends EventoDominio> extends Assinatura<E> {
+        private final Consumer<? super E> assinante;
+
+        Sincrona(String nome, Class<E> classe, Consumer<? super E> assinante) {
+            super(nome, classe, true);
+            this.assinante = assinante;
+        }
+
+        @Override
+        void receber(EventoDominio evento) {
+            try {
+                assinante.accept(classe.cast(evento));
+                entregues.increment();
+            } catch (RuntimeException e) {
+                falhas.increment();
+                System.err.println("Erro no assinante " + getNome() + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public int getPendentes() {
+            return 0;
+        }
+    }
+
+    private final class Assincrona<E extends EventoDominio> extends Assinatura<E> implements Runnable {
+        private final BlockingQueue<E> fila;
+        private final int tamanhoLote;
+        private final Consumer<List<E>> assinante;
+        private final Runnable ressincronizar;
+        private final Thread thread;
+        private volatile boolean ativa = true;
+        // Houve eventos descartados: a thread de entrega ressincroniza
+        private volatile boolean desatualizada;
+
+        Assincrona(String nome, Class<E> classe, int capacidade, int tamanhoLote, Consumer<List<E>> assinante,
+                   Runnable ressincronizar) {
+            super(nome, classe, false);
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+            this.tamanhoLote = tamanhoLote;
+            this.assinante = assinante;
+            this.ressincronizar = ressincronizar;
+            this.thread = new Thread(this, nome);
+            this.thread.setDaemon(true);
+        }
+
+        void iniciar() {
+            thread.start();
+        }
+
+        @Override
+        void receber(EventoDominio evento) {
+            E tipado = classe.cast(evento);
+            try {
+                if (ressincronizar != null) {
+                    if (!fila.offer(tipado, ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS)) {
+                        descartar(evento);
+                    }
+                } else if (Thread.currentThread() == thread) {
+                    // Publicado pelo próprio assinante: esperar pela sua fila seria um impasse
+                    if (!fila.offer(tipado)) {
+                        descartar(evento);
+                    }
+                } else {
+                    fila.put(tipado);
+                }
+            } catch (InterruptedException e) {
+                descartar(evento);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void descartar(EventoDominio evento) {
+            descartados.increment();
+            if (ressincronizar != null) {
+                desatualizada = true;
+            } else {
+                System.err.println("Fila do assinante " + getNome() + " cheia; evento descartado: " + evento);
+            }
+        }
+
+        /** Corpo da thread de entrega */
+        @Override
+        public void run() {
+            List<E> lote = new ArrayList<>(tamanhoLote);
+            while (ativa || !fila.isEmpty() || desatualizada) {
+                if (desatualizada) {
+                    if (!ressincronizarAgora()) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    E primeiro = fila.poll(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS);
+                    if (primeiro == null) {
+                        continue;
+                    }
+                    lote.add(primeiro);
+                    fila.drainTo(lote, tamanhoLote - 1);
+                    assinante.accept(new ArrayList<>(lote));
+                    entregues.add(lote.size());
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    falhas.increment();
+                    System.err.println("Erro no assinante " + getNome() + ": " + e.getMessage());
+                } finally {
+                    lote.clear();
+                }
+            }
+        }
+
+        /**
+         * O que está na fila é anterior ao estado que a ressincronização lê:
+         * é descartado. Os eventos publicados depois voltam a ser entregues.
+         *
+         * @return false se a thread foi interrompida
+         */
+        private boolean ressincronizarAgora() {
+            desatualizada = false;
+            fila.clear();
+            try {
+                ressincronizar.run();
+                ressincronizacoes.increment();
+                return true;
+            } catch (RuntimeException e) {
+                falhas.increment();
+                desatualizada = true;
+                System.err.println("Erro ao ressincronizar o assinante " + getNome() + ": " + e.getMessage());
+                try {
+                    Thread.sleep(ESPERA_MAXIMA_MS);
+                    return true;
+                } catch (InterruptedException interrompida) {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public int getPendentes() {
+            return fila.size();
+        }
+
+        @Override
+        public void cancelar() {
+            super.cancelar();
+            ativa = false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package isptec.biblioteca.eventos;
+
+import java.time.LocalDate;
+
+/**
+ * Um livro foi emprestado a um membro.
+ */
+public final class EmprestimoCriado extends EventoLivro {
+
+    private final int emprestimoId;
+    private final int membroId;
+    private final LocalDate dataDevolucaoPrevista;
+
+    public EmprestimoCriado(int emprestimoId, int livroId, int membroId, LocalDate dataDevolucaoPrevista,
+                            boolean livroDisponivel) {
+        super(livroId, livroDisponivel);
+        this.emprestimoId = emprestimoId;
+        this.membroId = membroId;
+        this.dataDevolucaoPrevista = dataDevolucaoPrevista;
+    }
+
+    /** ID do empréstimo (negativo se ainda provisório, em escrita diferida) */
+    public int getEmprestimoId() {
+        return emprestimoId;
+    }
+
+    public int getMembroId() {
+        return membroId;
+    }
+
+    public LocalDate getDataDevolucaoPrevista() {
+        return dataDevolucaoPrevista;
+    }
+
+    @Override
+    public String toString() {
+        return "EmprestimoCriado{emprestimo=" + emprestimoId + ", livro=" + getLivroId() +
+               ", membro=" + membroId + ", previsto=" + dataDevolucaoPrevista + "}";
+    }
+}
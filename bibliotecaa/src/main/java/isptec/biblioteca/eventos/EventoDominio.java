@@ -0,0 +1,17 @@
+package isptec.biblioteca.eventos;
+
+import java.time.Instant;
+
+/**
+ * Evento de domínio publicado no {@link BarramentoEventos} depois de uma
+ * alteração confirmada. Os eventos são imutáveis e levam apenas IDs e
+ * valores, nunca as entidades (que os assinantes poderiam alterar).
+ */
+public abstract class EventoDominio {
+
+    private final Instant instante = Instant.now();
+
+    public Instant getInstante() {
+        return instante;
+    }
+}
@@ -0,0 +1,24 @@
+package isptec.biblioteca.eventos;
+
+/**
+ * Evento que muda um livro, com a disponibilidade em que o deixou.
+ */
+public abstract class EventoLivro extends EventoDominio {
+
+    private final int livroId;
+    private final boolean livroDisponivel;
+
+    protected EventoLivro(int livroId, boolean livroDisponivel) {
+        this.livroId = livroId;
+        this.livroDisponivel = livroDisponivel;
+    }
+
+    public int getLivroId() {
+        return livroId;
+    }
+
+    /** Se o livro ficou com exemplares disponíveis */
+    public boolean isLivroDisponivel() {
+        return livroDisponivel;
+    }
+}
@@ -0,0 +1,29 @@
+package isptec.biblioteca.eventos;
+
+/**
+ * Um livro foi cadastrado, alterado ou removido do catálogo.
+ */
+public final class LivroAtualizado extends EventoLivro {
+
+    public enum Tipo {
+        CADASTRADO,
+        ALTERADO,
+        REMOVIDO
+    }
+
+    private final Tipo tipo;
+
+    public LivroAtualizado(int livroId, Tipo tipo, boolean livroDisponivel) {
+        super(livroId, livroDisponivel);
+        this.tipo = tipo;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    @Override
+    public String toString() {
+        return "LivroAtualizado{livro=" + getLivroId() + ", tipo=" + tipo + "}";
+    }
+}
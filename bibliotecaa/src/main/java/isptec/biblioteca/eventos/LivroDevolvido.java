@@ -0,0 +1,46 @@
+package isptec.biblioteca.eventos;
+
+import java.time.LocalDate;
+
+/**
+ * Um empréstimo foi devolvido; o livro tem mais um exemplar disponível.
+ */
+public final class LivroDevolvido extends EventoLivro {
+
+    private final int emprestimoId;
+    private final int membroId;
+    private final LocalDate dataDevolucao;
+    private final double multa;
+
+    public LivroDevolvido(int emprestimoId, int livroId, int membroId, LocalDate dataDevolucao, double multa,
+                          boolean livroDisponivel) {
+        super(livroId, livroDisponivel);
+        this.emprestimoId = emprestimoId;
+        this.membroId = membroId;
+        this.dataDevolucao = dataDevolucao;
+        this.multa = multa;
+    }
+
+    public int getEmprestimoId() {
+        return emprestimoId;
+    }
+
+    public int getMembroId() {
+        return membroId;
+    }
+
+    public LocalDate getDataDevolucao() {
+        return dataDevolucao;
+    }
+
+    /** Multa por atraso cobrada na devolução (0 se dentro do prazo) */
+    public double getMulta() {
+        return multa;
+    }
+
+    @Override
+    public String toString() {
+        return "LivroDevolvido{emprestimo=" + emprestimoId + ", livro=" + getLivroId() +
+               ", membro=" + membroId + ", data=" + dataDevolucao + ", multa=" + multa + "}";
+    }
+}
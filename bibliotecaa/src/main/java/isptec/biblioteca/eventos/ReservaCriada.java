@@ -0,0 +1,34 @@
+package isptec.biblioteca.eventos;
+
+/**
+ * Um membro entrou na fila de reservas de um livro.
+ */
+public final class ReservaCriada extends EventoDominio {
+
+    private final int reservaId;
+    private final int livroId;
+    private final int membroId;
+
+    public ReservaCriada(int reservaId, int livroId, int membroId) {
+        this.reservaId = reservaId;
+        this.livroId = livroId;
+        this.membroId = membroId;
+    }
+
+    public int getReservaId() {
+        return reservaId;
+    }
+
+    public int getLivroId() {
+        return livroId;
+    }
+
+    public int getMembroId() {
+        return membroId;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservaCriada{reserva=" + reservaId + ", livro=" + livroId + ", membro=" + membroId + "}";
+    }
+}
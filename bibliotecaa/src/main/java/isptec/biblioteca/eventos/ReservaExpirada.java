@@ -0,0 +1,29 @@
+package isptec.biblioteca.eventos;
+
+/**
+ * Uma reserva venceu sem ser levantada e saiu da fila do livro.
+ */
+public final class ReservaExpirada extends EventoDominio {
+
+    private final int reservaId;
+    private final int livroId;
+
+    public ReservaExpirada(int reservaId, int livroId) {
+        this.reservaId = reservaId;
+        this.livroId = livroId;
+    }
+
+    public int getReservaId() {
+        return reservaId;
+    }
+
+    /** Livro da reserva (0 se a reserva não estava no índice de filas) */
+    public int getLivroId() {
+        return livroId;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservaExpirada{reserva=" + reservaId + ", livro=" + livroId + "}";
+    }
+}
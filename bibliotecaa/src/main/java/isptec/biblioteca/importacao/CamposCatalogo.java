@@ -0,0 +1,117 @@
+package isptec.biblioteca.importacao;
+
+import isptec.biblioteca.util.TextoUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Nomes de campos aceites nos ficheiros CSV e JSONL e atribuição de
+ * valores a um {@link RegistoCatalogo}.
+ */
+final class CamposCatalogo {
+
+    static final String TITULO = "titulo";
+    static final String ISBN = "isbn";
+    static final String AUTORES = "autores";
+    static final String CATEGORIAS = "categorias";
+    static final String EDITORA = "editora";
+    static final String ANO = "ano";
+    static final String QUANTIDADE = "quantidade";
+    static final String DESCRICAO = "descricao";
+    static final String LOCALIZACAO = "localizacao";
+
+    /** Separador de valores múltiplos (autores, categorias) dentro de um campo */
+    private static final Pattern SEPARADOR_LISTA = Pattern.compile("[|;]");
+
+    private static final Map<String, String> SINONIMOS = new HashMap<>();
+
+    static {
+        sinonimos(TITULO, "titulo", "title");
+        sinonimos(ISBN, "isbn", "isbn13", "isbn10");
+        sinonimos(AUTORES, "autores", "autor", "authors", "author");
+        sinonimos(CATEGORIAS, "categorias", "categoria", "assuntos", "assunto", "subjects", "subject");
+        sinonimos(EDITORA, "editora", "publisher");
+        sinonimos(ANO, "ano", "ano_publicacao", "ano publicacao", "year");
+        sinonimos(QUANTIDADE, "quantidade", "exemplares", "copies");
+        sinonimos(DESCRICAO, "descricao", "description");
+        sinonimos(LOCALIZACAO, "localizacao", "location");
+    }
+
+    private CamposCatalogo() {
+        // Impede instanciação
+    }
+
+    /**
+     * Nome canónico do campo ("Título" -> "titulo"), ou null se desconhecido.
+     */
+    static String canonico(String nome) {
+        return SINONIMOS.get(TextoUtil.chave(nome));
+    }
+
+    /**
+     * Atribui o valor textual ao campo do registo.
+     *
+     * @return mensagem de erro se o valor for inválido, ou null
+     */
+    static String aplicar(RegistoCatalogo registo, String campo, String valor) {
+        if (campo == null || valor == null) {
+            return null;
+        }
+        String texto = valor.trim();
+        if (texto.isEmpty()) {
+            return null;
+        }
+        switch (campo) {
+            case TITULO:
+                registo.setTitulo(texto);
+                break;
+            case ISBN:
+                registo.setIsbn(texto);
+                break;
+            case EDITORA:
+                registo.setEditora(texto);
+                break;
+            case DESCRICAO:
+                registo.setDescricao(texto);
+                break;
+            case LOCALIZACAO:
+                registo.setLocalizacao(texto);
+                break;
+            case AUTORES:
+                for (String nome : SEPARADOR_LISTA.split(texto)) {
+                    registo.adicionarAutor(nome);
+                }
+                break;
+            case CATEGORIAS:
+                for (String nome : SEPARADOR_LISTA.split(texto)) {
+                    registo.adicionarCategoria(nome);
+                }
+                break;
+            case ANO:
+                try {
+                    registo.setAnoPublicacao(Integer.parseInt(texto));
+                } catch (NumberFormatException e) {
+                    return "Ano inválido: " + texto;
+                }
+                break;
+            case QUANTIDADE:
+                try {
+                    registo.setQuantidade(Integer.parseInt(texto));
+                } catch (NumberFormatException e) {
+                    return "Quantidade inválida: " + texto;
+                }
+                break;
+            default:
+                break;
+        }
+        return null;
+    }
+
+    private static void sinonimos(String canonico, String... nomes) {
+        for (String nome : nomes) {
+            SINONIMOS.put(nome, canonico);
+        }
+    }
+}
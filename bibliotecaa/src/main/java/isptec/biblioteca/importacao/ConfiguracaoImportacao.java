@@ -0,0 +1,70 @@
+package isptec.biblioteca.importacao;
+
+/**
+ * Parâmetros do importador de catálogo.
+ */
+public class ConfiguracaoImportacao {
+
+    /** Registos por batch JDBC */
+    private int tamanhoLote = 500;
+
+    /** Registos gravados entre commits */
+    private int tamanhoCommit = 5000;
+
+    /** Registos lidos em espera entre a thread de leitura e a de escrita */
+    private int capacidadeFila = 2000;
+
+    /** Máximo de rejeições guardadas com detalhe no relatório */
+    private int limiteRejeicoesDetalhadas = 10000;
+
+    private OuvinteProgresso ouvinte;
+
+    public int getTamanhoLote() {
+        return tamanhoLote;
+    }
+
+    public void setTamanhoLote(int tamanhoLote) {
+        if (tamanhoLote <= 0) {
+            throw new IllegalArgumentException("Tamanho do lote deve ser positivo");
+        }
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public int getTamanhoCommit() {
+        return tamanhoCommit;
+    }
+
+    public void setTamanhoCommit(int tamanhoCommit) {
+        if (tamanhoCommit <= 0) {
+            throw new IllegalArgumentException("Tamanho do commit deve ser positivo");
+        }
+        this.tamanhoCommit = tamanhoCommit;
+    }
+
+    public int getCapacidadeFila() {
+        return capacidadeFila;
+    }
+
+    public void setCapacidadeFila(int capacidadeFila) {
+        if (capacidadeFila <= 0) {
+            throw new IllegalArgumentException("Capacidade da fila deve ser positiva");
+        }
+        this.capacidadeFila = capacidadeFila;
+    }
+
+    public int getLimiteRejeicoesDetalhadas() {
+        return limiteRejeicoesDetalhadas;
+    }
+
+    public void setLimiteRejeicoesDetalhadas(int limiteRejeicoesDetalhadas) {
+        this.limiteRejeicoesDetalhadas = Math.max(0, limiteRejeicoesDetalhadas);
+    }
+
+    public OuvinteProgresso getOuvinte() {
+        return ouvinte;
+    }
+
+    public void setOuvinte(OuvinteProgresso ouvinte) {
+        this.ouvinte = ouvinte;
+    }
+}
@@ -0,0 +1,50 @@
+package isptec.biblioteca.importacao;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formatos de ficheiro aceites pelo importador de catálogo.
+ */
+public enum FormatoCatalogo {
+    CSV,
+    MARC21,
+    JSONL;
+
+    /**
+     * Cria o leitor deste formato sobre o fluxo (texto em UTF-8).
+     */
+    public LeitorCatalogo abrir(InputStream entrada) {
+        switch (this) {
+            case MARC21:
+                return new LeitorMarc21(entrada);
+            case JSONL:
+                return new LeitorJsonl(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+            case CSV:
+            default:
+                return new LeitorCsv(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Deduz o formato pela extensão do ficheiro (.csv, .mrc/.marc, .jsonl/.ndjson).
+     *
+     * @throws IllegalArgumentException se a extensão não for reconhecida
+     */
+    public static FormatoCatalogo porExtensao(Path ficheiro) {
+        String nome = ficheiro.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (nome.endsWith(".csv")) {
+            return CSV;
+        }
+        if (nome.endsWith(".mrc") || nome.endsWith(".marc")) {
+            return MARC21;
+        }
+        if (nome.endsWith(".jsonl") || nome.endsWith(".ndjson")) {
+            return JSONL;
+        }
+        throw new IllegalArgumentException("Formato de catálogo não reconhecido: " + nome);
+    }
+}
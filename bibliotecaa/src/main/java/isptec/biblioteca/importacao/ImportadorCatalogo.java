@@ -0,0 +1,507 @@
+package isptec.biblioteca.importacao;
+
+import isptec.biblioteca.dao.CatalogoBatchDAO;
+import isptec.biblioteca.dao.RegistroReferencia;
+import isptec.biblioteca.enumeracao.EstadoLivro;
+import isptec.biblioteca.eventos.BarramentoEventos;
+import isptec.biblioteca.eventos.LivroAtualizado;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.util.DatabaseManager;
+import isptec.biblioteca.util.TextoUtil;
+import isptec.biblioteca.util.ValidacaoUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Importação em massa de catálogo (CSV, MARC21, JSONL).
+ *
+ * Uma thread lê e interpreta o ficheiro e entrega os registos por uma fila
+ * limitada; a thread chamadora valida, elimina duplicados e grava em lotes
+ * com JDBC batch numa única conexão. Por lote:
+ * <ol>
+ *   <li>ISBNs já existentes são descartados (uma consulta IN por lote,
+ *       comparando sem hífenes nem espaços)</li>
+ *   <li>autores e categorias são resolvidos por nome em bloco e os que
+ *       faltam são criados de uma vez</li>
+ *   <li>livros e associações são inseridos em batch</li>
+ * </ol>
+ * Cada lote corre num savepoint; se falhar, é repetido registo a registo
+ * para isolar as linhas problemáticas. O commit é feito a cada
+ * {@link ConfiguracaoImportacao#getTamanhoCommit()} registos, e os livros
+ * confirmados em cada commit são publicados no {@link BarramentoEventos}
+ * ({@link LivroAtualizado} CADASTRADO), para chegarem ao índice do catálogo.
+ */
+public class ImportadorCatalogo {
+
+    /** Marca o fim dos registos na fila */
+    private static final RegistoCatalogo FIM = new RegistoCatalogo(-1);
+
+    private final DatabaseManager dbManager;
+    private final CatalogoBatchDAO batchDAO;
+    private final ConfiguracaoImportacao configuracao;
+
+    public ImportadorCatalogo() {
+        this(new ConfiguracaoImportacao());
+    }
+
+    public ImportadorCatalogo(ConfiguracaoImportacao configuracao) {
+        this.dbManager = DatabaseManager.getInstance();
+        this.batchDAO = new CatalogoBatchDAO();
+        this.configuracao = configuracao;
+    }
+
+    /**
+     * Importa um ficheiro, deduzindo o formato pela extensão.
+     */
+    public RelatorioImportacao importar(Path ficheiro) throws IOException {
+        FormatoCatalogo formato = FormatoCatalogo.porExtensao(ficheiro);
+        try (InputStream entrada = Files.newInputStream(ficheiro)) {
+            return importar(formato.abrir(entrada));
+        }
+    }
+
+    /**
+     * Importa todos os registos do leitor (que é fechado no fim).
+     * Erros em registos individuais constam do relatório; um erro de
+     * leitura ou de conexão interrompe a importação e desfaz o que ainda
+     * não tinha sido confirmado.
+     */
+    public RelatorioImportacao importar(LeitorCatalogo leitor) {
+        return new Execucao(leitor).executar();
+    }
+
+    // === EXECUÇÃO ===
+
+    /**
+     * Estado de uma importação.
+     */
+    private class Execucao {
+
+        private final LeitorCatalogo leitor;
+        private final BlockingQueue<RegistoCatalogo> fila;
+        private final RelatorioImportacao relatorio;
+
+        /** ISBN-13 dos registos já vistos no ficheiro */
+        private final Set<Long> isbnsVistos = new HashSet<>();
+
+        /** Cache de IDs por chave de nome (sem acentos, minúsculas) */
+        private final Map<String, Integer> autores = new HashMap<>();
+        private final Map<String, Integer> categorias = new HashMap<>();
+
+        // Qualquer falha da thread de leitura (IOException, JSON malformado, StackOverflowError...)
+        private volatile Throwable erroLeitura;
+        private long inicio;
+
+        // Contadores ainda não confirmados por commit
+        private long livrosPendentes;
+        private long autoresPendentes;
+        private long categoriasPendentes;
+        private final List<Integer> livrosPorPublicar = new ArrayList<>();
+
+        Execucao(LeitorCatalogo leitor) {
+            this.leitor = leitor;
+            this.fila = new ArrayBlockingQueue<>(configuracao.getCapacidadeFila());
+            this.relatorio = new RelatorioImportacao(configuracao.getLimiteRejeicoesDetalhadas());
+        }
+
+        RelatorioImportacao executar() {
+            inicio = System.nanoTime();
+            Thread leitura = new Thread(this::ler, "importacao-catalogo-leitor");
+            leitura.setDaemon(true);
+            leitura.start();
+
+            Connection conn = null;
+            try {
+                conn = dbManager.getConnection();
+                conn.setAutoCommit(false);
+                processar(conn);
+                Throwable erro = erroLeitura;
+                if (erro instanceof IOException) {
+                    throw (IOException) erro;
+                }
+                if (erro != null) {
+                    throw new IOException("Erro na leitura do catálogo: " + erro, erro);
+                }
+                conn.commit();
+                confirmar();
+            } catch (Exception e) {
+                relatorio.setErroFatal(e.getMessage());
+                System.err.println("Erro ao importar catálogo: " + e.getMessage());
+                desfazer(conn);
+                leitura.interrupt();
+            } finally {
+                if (conn != null) {
+                    try {
+                        conn.setAutoCommit(true);
+                        conn.close();
+                    } catch (SQLException e) {
+                        System.err.println("Erro ao fechar conexão: " + e.getMessage());
+                    }
+                }
+                fecharLeitor();
+                relatorio.setDuracao(Duration.ofNanos(System.nanoTime() - inicio));
+            }
+            return relatorio;
+        }
+
+        /**
+         * Corpo da thread de leitura. O FIM vai sempre para a fila, mesmo
+         * depois de uma falha, para o processamento nunca ficar à espera.
+         */
+        private void ler() {
+            try {
+                RegistoCatalogo registo;
+                while ((registo = leitor.proximo()) != null) {
+                    fila.put(registo);
+                }
+            } catch (InterruptedException e) {
+                // Interrompida pelo processamento, que já não lê a fila
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                erroLeitura = e;
+            } finally {
+                if (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        fila.put(FIM);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        private void processar(Connection conn) throws SQLException, InterruptedException {
+            List<RegistoCatalogo> lote = new ArrayList<>(configuracao.getTamanhoLote());
+            long desdeCommit = 0;
+
+            while (true) {
+                RegistoCatalogo registo = fila.take();
+                if (registo == FIM) {
+                    break;
+                }
+                relatorio.registarLido();
+                if (!validar(registo)) {
+                    continue;
+                }
+                lote.add(registo);
+
+                if (lote.size() >= configuracao.getTamanhoLote()) {
+                    gravarLote(conn, lote);
+                    desdeCommit += lote.size();
+                    lote.clear();
+                    if (desdeCommit >= configuracao.getTamanhoCommit()) {
+                        conn.commit();
+                        confirmar();
+                        desdeCommit = 0;
+                    }
+                    notificar();
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravarLote(conn, lote);
+                notificar();
+            }
+        }
+
+        /**
+         * Valida o registo, normaliza o ISBN e elimina duplicados no ficheiro.
+         */
+        private boolean validar(RegistoCatalogo registo) {
+            if (registo.getErroLeitura() != null) {
+                relatorio.registarRejeitado(registo, registo.getErroLeitura());
+                return false;
+            }
+            if (!ValidacaoUtil.naoVazio(registo.getTitulo())) {
+                relatorio.registarRejeitado(registo, "Título em falta");
+                return false;
+            }
+            if (!ValidacaoUtil.naoVazio(registo.getIsbn())) {
+                relatorio.registarRejeitado(registo, "ISBN em falta");
+                return false;
+            }
+            if (!ValidacaoUtil.isbnChecksumValido(registo.getIsbn())) {
+                relatorio.registarRejeitado(registo, "ISBN inválido: " + registo.getIsbn());
+                return false;
+            }
+            if (!ValidacaoUtil.positivo(registo.getQuantidade())) {
+                relatorio.registarRejeitado(registo, "Quantidade inválida: " + registo.getQuantidade());
+                return false;
+            }
+
+            registo.setIsbn(ValidacaoUtil.normalizarIsbn(registo.getIsbn()));
+            long chave = Long.parseLong(ValidacaoUtil.isbn13(registo.getIsbn()));
+            if (!isbnsVistos.add(chave)) {
+                relatorio.registarDuplicadoFicheiro(registo);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Grava um lote num savepoint; em caso de erro repete registo a registo.
+         */
+        private void gravarLote(Connection conn, List<RegistoCatalogo> lote) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            Map<String, Integer> novosAutores = new HashMap<>();
+            Map<String, Integer> novasCategorias = new HashMap<>();
+            List<RegistoCatalogo> duplicados = new ArrayList<>();
+            List<Integer> novosLivros = new ArrayList<>();
+            try {
+                int gravados = inserir(conn, lote, duplicados, novosAutores, novasCategorias, novosLivros);
+                conn.releaseSavepoint(savepoint);
+                for (RegistoCatalogo duplicado : duplicados) {
+                    relatorio.registarDuplicadoBase(duplicado);
+                }
+                autores.putAll(novosAutores);
+                categorias.putAll(novasCategorias);
+                livrosPendentes += gravados;
+                livrosPorPublicar.addAll(novosLivros);
+                relatorio.registarImportados(gravados);
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+                if (!conn.isValid(5)) {
+                    throw e;
+                }
+                if (lote.size() == 1) {
+                    relatorio.registarRejeitado(lote.get(0), "Erro ao gravar: " + e.getMessage());
+                } else {
+                    for (RegistoCatalogo registo : lote) {
+                        gravarLote(conn, Collections.singletonList(registo));
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param novosLivros recebe os IDs dos livros inseridos
+         * @return número de livros inseridos
+         */
+        private int inserir(Connection conn, List<RegistoCatalogo> lote,
+                            List<RegistoCatalogo> duplicados,
+                            Map<String, Integer> novosAutores,
+                            Map<String, Integer> novasCategorias,
+                            List<Integer> novosLivros) throws SQLException {
+            List<RegistoCatalogo> novos = descartarExistentes(conn, lote, duplicados);
+            if (novos.isEmpty()) {
+                return 0;
+            }
+
+            Set<String> nomesAutores = new LinkedHashSet<>();
+            Set<String> nomesCategorias = new LinkedHashSet<>();
+            for (RegistoCatalogo registo : novos) {
+                nomesAutores.addAll(registo.getAutores());
+                nomesCategorias.addAll(registo.getCategorias());
+            }
+            long autoresCriados = resolverNomes(conn, nomesAutores, autores, novosAutores, true);
+            long categoriasCriadas = resolverNomes(conn, nomesCategorias, categorias, novasCategorias, false);
+
+            List<Livro> livros = new ArrayList<>(novos.size());
+            for (RegistoCatalogo registo : novos) {
+                livros.add(paraLivro(registo));
+            }
+            Map<String, Integer> ids = batchDAO.inserirLivros(conn, livros);
+
+            List<int[]> livroAutores = new ArrayList<>();
+            List<int[]> livroCategorias = new ArrayList<>();
+            for (RegistoCatalogo registo : novos) {
+                int livroId = ids.get(registo.getIsbn());
+                novosLivros.add(livroId);
+                associar(livroId, registo.getAutores(), autores, novosAutores, livroAutores);
+                associar(livroId, registo.getCategorias(), categorias, novasCategorias, livroCategorias);
+            }
+            batchDAO.inserirLivroAutores(conn, livroAutores);
+            batchDAO.inserirLivroCategorias(conn, livroCategorias);
+
+            autoresPendentes += autoresCriados;
+            categoriasPendentes += categoriasCriadas;
+            relatorio.registarAutoresCriados(autoresCriados);
+            relatorio.registarCategoriasCriadas(categoriasCriadas);
+            return novos.size();
+        }
+
+        /**
+         * Remove do lote os livros cujo ISBN (na forma de 10 ou 13 dígitos) já
+         * existe, esteja gravado com ou sem hífenes e espaços.
+         */
+        private List<RegistoCatalogo> descartarExistentes(Connection conn, List<RegistoCatalogo> lote,
+                                                          List<RegistoCatalogo> duplicados)
+                throws SQLException {
+            Set<String> candidatos = new HashSet<>();
+            for (RegistoCatalogo registo : lote) {
+                candidatos.addAll(formasIsbn(registo.getIsbn()));
+            }
+            Set<String> existentes = batchDAO.findIsbnsExistentes(conn, candidatos);
+            if (existentes.isEmpty()) {
+                return lote;
+            }
+
+            List<RegistoCatalogo> novos = new ArrayList<>(lote.size());
+            for (RegistoCatalogo registo : lote) {
+                if (Collections.disjoint(formasIsbn(registo.getIsbn()), existentes)) {
+                    novos.add(registo);
+                } else {
+                    duplicados.add(registo);
+                }
+            }
+            return novos;
+        }
+
+        /**
+         * Garante um ID para cada nome: procura na cache, depois no banco,
+         * e cria os que faltam.
+         *
+         * @return número de registos criados
+         */
+        private long resolverNomes(Connection conn, Set<String> nomes, Map<String, Integer> cache,
+                                   Map<String, Integer> novos, boolean autor) throws SQLException {
+            Map<String, String> emFalta = new LinkedHashMap<>(); // chave -> nome original
+            for (String nome : nomes) {
+                String chave = TextoUtil.chave(nome);
+                if (!cache.containsKey(chave) && !novos.containsKey(chave)) {
+                    emFalta.putIfAbsent(chave, nome);
+                }
+            }
+            if (emFalta.isEmpty()) {
+                return 0;
+            }
+
+            procurarIds(conn, emFalta.values(), novos, autor);
+            List<String> criar = new ArrayList<>();
+            for (Map.Entry<String, String> entrada : emFalta.entrySet()) {
+                if (!novos.containsKey(entrada.getKey())) {
+                    criar.add(entrada.getValue());
+                }
+            }
+            if (criar.isEmpty()) {
+                return 0;
+            }
+
+            if (autor) {
+                batchDAO.inserirAutores(conn, criar);
+            } else {
+                batchDAO.inserirCategorias(conn, criar);
+            }
+            procurarIds(conn, criar, novos, autor);
+            return criar.size();
+        }
+
+        private void procurarIds(Connection conn, Iterable<String> nomes, Map<String, Integer> destino,
+                                 boolean autor) throws SQLException {
+            List<String> lista = new ArrayList<>();
+            nomes.forEach(lista::add);
+            Map<String, Integer> encontrados = autor
+                    ? batchDAO.findAutoresPorNome(conn, lista)
+                    : batchDAO.findCategoriasPorNome(conn, lista);
+            for (Map.Entry<String, Integer> entrada : encontrados.entrySet()) {
+                destino.putIfAbsent(TextoUtil.chave(entrada.getKey()), entrada.getValue());
+            }
+        }
+
+        private void associar(int livroId, List<String> nomes, Map<String, Integer> cache,
+                              Map<String, Integer> novos, List<int[]> pares) {
+            Set<Integer> associados = new HashSet<>();
+            for (String nome : nomes) {
+                String chave = TextoUtil.chave(nome);
+                Integer id = novos.containsKey(chave) ? novos.get(chave) : cache.get(chave);
+                if (id != null && associados.add(id)) {
+                    pares.add(new int[]{livroId, id});
+                }
+            }
+        }
+
+        private Livro paraLivro(RegistoCatalogo registo) {
+            Livro livro = new Livro();
+            livro.setTitulo(registo.getTitulo());
+            livro.setIsbn(registo.getIsbn());
+            livro.setEditora(registo.getEditora() != null ? registo.getEditora() : "");
+            livro.setAnoPublicacao(registo.getAnoPublicacao());
+            livro.setQuantidadeTotal(registo.getQuantidade());
+            livro.setQuantidadeDisponivel(registo.getQuantidade());
+            livro.setEstado(EstadoLivro.DISPONIVEL);
+            livro.setDescricao(registo.getDescricao() != null ? registo.getDescricao() : "");
+            livro.setLocalizacao(registo.getLocalizacao() != null ? registo.getLocalizacao() : "");
+            return livro;
+        }
+
+        private Set<String> formasIsbn(String isbn) {
+            Set<String> formas = new HashSet<>();
+            formas.add(isbn);
+            formas.add(ValidacaoUtil.isbn13(isbn));
+            String isbn10 = ValidacaoUtil.isbn10(isbn);
+            if (isbn10 != null) {
+                formas.add(isbn10);
+            }
+            return formas;
+        }
+
+        /**
+         * Depois de um commit (ou de desfeitos os pendentes): os livros que
+         * ficaram gravados são publicados.
+         */
+        private void confirmar() {
+            if (autoresPendentes > 0 || categoriasPendentes > 0) {
+                RegistroReferencia.getInstance().marcarDesatualizado();
+            }
+            BarramentoEventos barramento = BarramentoEventos.getInstance();
+            for (int livroId : livrosPorPublicar) {
+                barramento.publicar(new LivroAtualizado(livroId, LivroAtualizado.Tipo.CADASTRADO, true));
+            }
+            livrosPorPublicar.clear();
+            livrosPendentes = 0;
+            autoresPendentes = 0;
+            categoriasPendentes = 0;
+        }
+
+        private void desfazer(Connection conn) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException e) {
+                    System.err.println("Erro ao fazer rollback: " + e.getMessage());
+                }
+            }
+            // O que não foi confirmado não conta como importado
+            livrosPorPublicar.clear();
+            relatorio.registarImportados(-livrosPendentes);
+            relatorio.registarAutoresCriados(-autoresPendentes);
+            relatorio.registarCategoriasCriadas(-categoriasPendentes);
+            confirmar();
+        }
+
+        private void notificar() {
+            OuvinteProgresso ouvinte = configuracao.getOuvinte();
+            if (ouvinte == null) {
+                return;
+            }
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            ouvinte.progresso(relatorio, segundos > 0 ? relatorio.getLidos() / segundos : 0);
+        }
+
+        private void fecharLeitor() {
+            try {
+                leitor.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar ficheiro de catálogo: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package isptec.biblioteca.importacao;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Leitor sequencial de registos de um ficheiro de catálogo.
+ */
+public interface LeitorCatalogo extends Closeable {
+
+    /**
+     * Lê o próximo registo.
+     * Registos malformados são devolvidos com {@link RegistoCatalogo#getErroLeitura()}
+     * preenchido, para constarem no relatório de rejeitados.
+     *
+     * @return o registo, ou null no fim do ficheiro
+     * @throws IOException em erro de leitura do ficheiro
+     */
+    RegistoCatalogo proximo() throws IOException;
+}
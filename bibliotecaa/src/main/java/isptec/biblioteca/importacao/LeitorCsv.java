@@ -0,0 +1,151 @@
+package isptec.biblioteca.importacao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitor de catálogo em CSV (RFC 4180).
+ *
+ * A primeira linha é o cabeçalho com os nomes dos campos (ver
+ * {@link CamposCatalogo}); colunas desconhecidas são ignoradas. O separador
+ * (',' ou ';') é detetado no cabeçalho. Campos entre aspas podem conter o
+ * separador, aspas duplicadas e quebras de linha. Autores e categorias
+ * múltiplos separam-se por '|' ou ';'.
+ */
+public class LeitorCsv implements LeitorCatalogo {
+
+    private final BufferedReader reader;
+    private char separador;
+    private String[] campos;
+    private long linhaAtual;
+
+    public LeitorCsv(Reader reader) {
+        this.reader = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+    }
+
+    @Override
+    public RegistoCatalogo proximo() throws IOException {
+        if (campos == null && !lerCabecalho()) {
+            return null;
+        }
+
+        List<String> valores;
+        long inicio;
+        do {
+            inicio = linhaAtual + 1;
+            valores = lerLinha();
+            if (valores == null) {
+                return null;
+            }
+        } while (valores.size() == 1 && valores.get(0).isEmpty()); // linhas em branco
+
+        RegistoCatalogo registo = new RegistoCatalogo(inicio);
+        for (int i = 0; i < campos.length && i < valores.size(); i++) {
+            String erro = CamposCatalogo.aplicar(registo, campos[i], valores.get(i));
+            if (erro != null) {
+                return RegistoCatalogo.invalido(inicio, erro);
+            }
+        }
+        return registo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private boolean lerCabecalho() throws IOException {
+        reader.mark(64 * 1024);
+        String primeira = reader.readLine();
+        if (primeira == null) {
+            return false;
+        }
+        reader.reset();
+
+        if (primeira.startsWith("\uFEFF")) {
+            reader.skip(1); // BOM
+            primeira = primeira.substring(1);
+        }
+        separador = contar(primeira, ';') > contar(primeira, ',') ? ';' : ',';
+
+        List<String> cabecalho = lerLinha();
+        campos = new String[cabecalho.size()];
+        for (int i = 0; i < campos.length; i++) {
+            campos[i] = CamposCatalogo.canonico(cabecalho.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * Lê um registo CSV (que pode ocupar várias linhas físicas).
+     */
+    private List<String> lerLinha() throws IOException {
+        String linha = reader.readLine();
+        if (linha == null) {
+            return null;
+        }
+        linhaAtual++;
+
+        List<String> valores = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        int i = 0;
+
+        while (true) {
+            if (i >= linha.length()) {
+                if (!entreAspas) {
+                    break;
+                }
+                // Quebra de linha dentro de um campo entre aspas
+                String seguinte = reader.readLine();
+                if (seguinte == null) {
+                    break;
+                }
+                linhaAtual++;
+                atual.append('\n');
+                linha = seguinte;
+                i = 0;
+                continue;
+            }
+
+            char c = linha.charAt(i++);
+            if (entreAspas) {
+                if (c == '"') {
+                    if (i < linha.length() && linha.charAt(i) == '"') {
+                        atual.append('"');
+                        i++;
+                    } else {
+                        entreAspas = false;
+                    }
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                valores.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        valores.add(atual.toString());
+        return valores;
+    }
+
+    private static int contar(String texto, char c) {
+        int total = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) == c) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,73 @@
+package isptec.biblioteca.importacao;
+
+import isptec.biblioteca.util.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitor de catálogo em JSON Lines: um objeto JSON por linha.
+ *
+ * Os nomes dos campos seguem {@link CamposCatalogo}; autores e categorias
+ * podem ser um array de textos ou um texto separado por '|' ou ';'.
+ */
+public class LeitorJsonl implements LeitorCatalogo {
+
+    private final BufferedReader reader;
+    private long linhaAtual;
+
+    public LeitorJsonl(Reader reader) {
+        this.reader = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+    }
+
+    @Override
+    public RegistoCatalogo proximo() throws IOException {
+        String linha;
+        do {
+            linha = reader.readLine();
+            if (linha == null) {
+                return null;
+            }
+            linhaAtual++;
+        } while (linha.trim().isEmpty());
+
+        Map<String, Object> objeto;
+        try {
+            objeto = Json.lerObjeto(linha);
+        } catch (IllegalArgumentException e) {
+            return RegistoCatalogo.invalido(linhaAtual, e.getMessage());
+        }
+
+        RegistoCatalogo registo = new RegistoCatalogo(linhaAtual);
+        for (Map.Entry<String, Object> entrada : objeto.entrySet()) {
+            String campo = CamposCatalogo.canonico(entrada.getKey());
+            Object valor = entrada.getValue();
+            if (campo == null || valor == null) {
+                continue;
+            }
+            String erro = null;
+            if (valor instanceof List) {
+                for (Object item : (List<?>) valor) {
+                    if (item != null) {
+                        erro = CamposCatalogo.aplicar(registo, campo, String.valueOf(item));
+                    }
+                }
+            } else {
+                erro = CamposCatalogo.aplicar(registo, campo, String.valueOf(valor));
+            }
+            if (erro != null) {
+                return RegistoCatalogo.invalido(linhaAtual, erro);
+            }
+        }
+        return registo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,246 @@
+package isptec.biblioteca.importacao;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitor de catálogo em MARC21 (formato de transmissão ISO 2709).
+ *
+ * Cada registo tem um leader de 24 bytes, um diretório de entradas de 12
+ * bytes (etiqueta, comprimento, posição) e os campos de dados com
+ * subcampos delimitados por 0x1F. Campos usados:
+ * <ul>
+ *   <li>020$a ISBN</li>
+ *   <li>245$a/$b título (e subtítulo)</li>
+ *   <li>100$a e 700$a autores</li>
+ *   <li>260$b/264$b editora, 260$c/264$c ano</li>
+ *   <li>650$a categorias (assuntos)</li>
+ *   <li>520$a descrição</li>
+ * </ul>
+ * A codificação é UTF-8 quando o leader indica Unicode (posição 9 = 'a');
+ * caso contrário os bytes são lidos como ISO-8859-1 (MARC-8 não é suportado).
+ */
+public class LeitorMarc21 implements LeitorCatalogo {
+
+    private static final int TAMANHO_LEADER = 24;
+    private static final int TAMANHO_ENTRADA_DIRETORIO = 12;
+    private static final byte FIM_CAMPO = 0x1E;
+    private static final byte DELIMITADOR_SUBCAMPO = 0x1F;
+
+    private final InputStream entrada;
+    private long numeroRegisto;
+
+    public LeitorMarc21(InputStream entrada) {
+        this.entrada = entrada instanceof BufferedInputStream
+                ? entrada : new BufferedInputStream(entrada, 64 * 1024);
+    }
+
+    @Override
+    public RegistoCatalogo proximo() throws IOException {
+        byte[] leader = lerLeader();
+        if (leader == null) {
+            return null;
+        }
+        numeroRegisto++;
+
+        int comprimento = lerNumero(leader, 0, 5);
+        int baseDados = lerNumero(leader, 12, 5);
+        if (comprimento < TAMANHO_LEADER || baseDados < TAMANHO_LEADER || baseDados > comprimento) {
+            throw new IOException("Leader MARC inválido no registo " + numeroRegisto);
+        }
+
+        byte[] registo = new byte[comprimento];
+        System.arraycopy(leader, 0, registo, 0, TAMANHO_LEADER);
+        lerCompleto(registo, TAMANHO_LEADER, comprimento - TAMANHO_LEADER);
+
+        Charset charset = leader[9] == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        try {
+            return interpretar(registo, baseDados, charset);
+        } catch (RuntimeException e) {
+            return RegistoCatalogo.invalido(numeroRegisto, "Registo MARC malformado: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private RegistoCatalogo interpretar(byte[] registo, int baseDados, Charset charset) {
+        RegistoCatalogo resultado = new RegistoCatalogo(numeroRegisto);
+        String subtitulo = null;
+
+        for (int pos = TAMANHO_LEADER; pos + TAMANHO_ENTRADA_DIRETORIO <= baseDados
+                && registo[pos] != FIM_CAMPO; pos += TAMANHO_ENTRADA_DIRETORIO) {
+
+            String etiqueta = new String(registo, pos, 3, StandardCharsets.US_ASCII);
+            int tamanho = lerNumero(registo, pos + 3, 4);
+            int inicio = baseDados + lerNumero(registo, pos + 7, 5);
+            if (etiqueta.startsWith("00") || inicio + tamanho > registo.length) {
+                continue; // campos de controlo não são usados
+            }
+
+            List<String[]> subcampos = lerSubcampos(registo, inicio, tamanho, charset);
+            switch (etiqueta) {
+                case "020":
+                    if (resultado.getIsbn() == null) {
+                        resultado.setIsbn(limparIsbn(subcampo(subcampos, 'a')));
+                    }
+                    break;
+                case "245":
+                    resultado.setTitulo(limparPontuacao(subcampo(subcampos, 'a')));
+                    subtitulo = limparPontuacao(subcampo(subcampos, 'b'));
+                    break;
+                case "100":
+                case "700":
+                    resultado.adicionarAutor(limparPontuacao(subcampo(subcampos, 'a')));
+                    break;
+                case "260":
+                case "264":
+                    if (resultado.getEditora() == null) {
+                        resultado.setEditora(limparPontuacao(subcampo(subcampos, 'b')));
+                    }
+                    if (resultado.getAnoPublicacao() == 0) {
+                        resultado.setAnoPublicacao(extrairAno(subcampo(subcampos, 'c')));
+                    }
+                    break;
+                case "650":
+                    resultado.adicionarCategoria(limparPontuacao(subcampo(subcampos, 'a')));
+                    break;
+                case "520":
+                    resultado.setDescricao(subcampo(subcampos, 'a'));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (resultado.getTitulo() != null && subtitulo != null && !subtitulo.isEmpty()) {
+            resultado.setTitulo(resultado.getTitulo() + ": " + subtitulo);
+        }
+        return resultado;
+    }
+
+    /**
+     * Lê os subcampos de um campo de dados (após os 2 indicadores).
+     * Cada elemento é {código, valor}.
+     */
+    private List<String[]> lerSubcampos(byte[] registo, int inicio, int tamanho, Charset charset) {
+        List<String[]> subcampos = new ArrayList<>();
+        int fim = inicio + tamanho;
+        if (fim > inicio && registo[fim - 1] == FIM_CAMPO) {
+            fim--;
+        }
+        int pos = inicio + 2; // indicadores
+        while (pos < fim) {
+            if (registo[pos] != DELIMITADOR_SUBCAMPO || pos + 1 >= fim) {
+                pos++;
+                continue;
+            }
+            char codigo = (char) registo[pos + 1];
+            int valorInicio = pos + 2;
+            int valorFim = valorInicio;
+            while (valorFim < fim && registo[valorFim] != DELIMITADOR_SUBCAMPO) {
+                valorFim++;
+            }
+            String valor = new String(registo, valorInicio, valorFim - valorInicio, charset).trim();
+            subcampos.add(new String[]{String.valueOf(codigo), valor});
+            pos = valorFim;
+        }
+        return subcampos;
+    }
+
+    private static String subcampo(List<String[]> subcampos, char codigo) {
+        for (String[] subcampo : subcampos) {
+            if (subcampo[0].charAt(0) == codigo) {
+                return subcampo[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lê o leader, ignorando quebras de linha entre registos.
+     *
+     * @return o leader, ou null no fim do ficheiro
+     */
+    private byte[] lerLeader() throws IOException {
+        int b;
+        do {
+            b = entrada.read();
+            if (b == -1) {
+                return null;
+            }
+        } while (b == '\n' || b == '\r' || b == 0x1D || b == ' ');
+
+        byte[] leader = new byte[TAMANHO_LEADER];
+        leader[0] = (byte) b;
+        lerCompleto(leader, 1, TAMANHO_LEADER - 1);
+        return leader;
+    }
+
+    private void lerCompleto(byte[] destino, int inicio, int quantidade) throws IOException {
+        int lidos = 0;
+        while (lidos < quantidade) {
+            int n = entrada.read(destino, inicio + lidos, quantidade - lidos);
+            if (n == -1) {
+                throw new IOException("Ficheiro MARC truncado no registo " + numeroRegisto);
+            }
+            lidos += n;
+        }
+    }
+
+    private static int lerNumero(byte[] dados, int inicio, int tamanho) {
+        int valor = 0;
+        for (int i = inicio; i < inicio + tamanho; i++) {
+            byte b = dados[i];
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("número inválido no diretório/leader");
+            }
+            valor = valor * 10 + (b - '0');
+        }
+        return valor;
+    }
+
+    /** "9780306406157 (pbk.)" -> "9780306406157" */
+    private static String limparIsbn(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        int espaco = valor.indexOf(' ');
+        return espaco > 0 ? valor.substring(0, espaco) : valor;
+    }
+
+    /** Remove a pontuação ISBD final (" /", " :", ",", ".") */
+    private static String limparPontuacao(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String texto = valor.trim();
+        while (!texto.isEmpty() && "/:;,.=".indexOf(texto.charAt(texto.length() - 1)) >= 0) {
+            texto = texto.substring(0, texto.length() - 1).trim();
+        }
+        return texto;
+    }
+
+    /** "c2019." ou "[2019]" -> 2019 */
+    private static int extrairAno(String valor) {
+        if (valor == null) {
+            return 0;
+        }
+        for (int i = 0; i + 4 <= valor.length(); i++) {
+            String quatro = valor.substring(i, i + 4);
+            if (quatro.chars().allMatch(Character::isDigit)) {
+                return Integer.parseInt(quatro);
+            }
+        }
+        return 0;
+    }
+}
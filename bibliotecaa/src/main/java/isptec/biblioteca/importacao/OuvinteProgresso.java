@@ -0,0 +1,13 @@
+package isptec.biblioteca.importacao;
+
+/**
+ * Recebe o progresso de uma importação após cada lote gravado.
+ */
+public interface OuvinteProgresso {
+
+    /**
+     * @param relatorio contadores acumulados até agora
+     * @param registosPorSegundo ritmo médio de leitura desde o início
+     */
+    void progresso(RelatorioImportacao relatorio, double registosPorSegundo);
+}
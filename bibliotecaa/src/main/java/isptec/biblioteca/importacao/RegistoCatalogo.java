@@ -0,0 +1,132 @@
+package isptec.biblioteca.importacao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registo de livro lido de um ficheiro de catálogo, antes da validação.
+ * Autores e categorias vêm por nome e são resolvidos na gravação.
+ */
+public class RegistoCatalogo {
+
+    /** Linha (CSV/JSONL) ou número do registo (MARC21) no ficheiro de origem */
+    private final long posicao;
+
+    private String titulo;
+    private String isbn;
+    private String editora;
+    private int anoPublicacao;
+    private int quantidade;
+    private String descricao;
+    private String localizacao;
+    private final List<String> autores;
+    private final List<String> categorias;
+
+    /** Motivo de rejeição detetado na leitura (formato inválido), ou null */
+    private String erroLeitura;
+
+    public RegistoCatalogo(long posicao) {
+        this.posicao = posicao;
+        this.quantidade = 1;
+        this.autores = new ArrayList<>();
+        this.categorias = new ArrayList<>();
+    }
+
+    /**
+     * Registo que não pôde ser interpretado.
+     */
+    public static RegistoCatalogo invalido(long posicao, String motivo) {
+        RegistoCatalogo registo = new RegistoCatalogo(posicao);
+        registo.erroLeitura = motivo;
+        return registo;
+    }
+
+    public long getPosicao() {
+        return posicao;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public void setTitulo(String titulo) {
+        this.titulo = titulo;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    public String getEditora() {
+        return editora;
+    }
+
+    public void setEditora(String editora) {
+        this.editora = editora;
+    }
+
+    public int getAnoPublicacao() {
+        return anoPublicacao;
+    }
+
+    public void setAnoPublicacao(int anoPublicacao) {
+        this.anoPublicacao = anoPublicacao;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public void setQuantidade(int quantidade) {
+        this.quantidade = quantidade;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public void setDescricao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getLocalizacao() {
+        return localizacao;
+    }
+
+    public void setLocalizacao(String localizacao) {
+        this.localizacao = localizacao;
+    }
+
+    public List<String> getAutores() {
+        return autores;
+    }
+
+    public void adicionarAutor(String nome) {
+        if (nome != null && !nome.trim().isEmpty()) {
+            autores.add(nome.trim());
+        }
+    }
+
+    public List<String> getCategorias() {
+        return categorias;
+    }
+
+    public void adicionarCategoria(String nome) {
+        if (nome != null && !nome.trim().isEmpty()) {
+            categorias.add(nome.trim());
+        }
+    }
+
+    public String getErroLeitura() {
+        return erroLeitura;
+    }
+
+    @Override
+    public String toString() {
+        return "RegistoCatalogo{posicao=" + posicao + ", isbn='" + isbn + "', titulo='" + titulo + "'}";
+    }
+}
@@ -0,0 +1,195 @@
+package isptec.biblioteca.importacao;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de uma importação de catálogo: contadores e registos rejeitados.
+ */
+public class RelatorioImportacao {
+
+    /**
+     * Registo rejeitado e respetivo motivo.
+     */
+    public static class Rejeicao {
+        private final long posicao;
+        private final String isbn;
+        private final String titulo;
+        private final String motivo;
+
+        public Rejeicao(long posicao, String isbn, String titulo, String motivo) {
+            this.posicao = posicao;
+            this.isbn = isbn;
+            this.titulo = titulo;
+            this.motivo = motivo;
+        }
+
+        public long getPosicao() {
+            return posicao;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public String getTitulo() {
+            return titulo;
+        }
+
+        public String getMotivo() {
+            return motivo;
+        }
+    }
+
+    private final int limiteRejeicoes;
+    private final List<Rejeicao> rejeicoes = new ArrayList<>();
+
+    private long lidos;
+    private long importados;
+    private long duplicadosFicheiro;
+    private long duplicadosBase;
+    private long rejeitados;
+    private long autoresCriados;
+    private long categoriasCriadas;
+    private Duration duracao = Duration.ZERO;
+    private String erroFatal;
+
+    public RelatorioImportacao(int limiteRejeicoes) {
+        this.limiteRejeicoes = limiteRejeicoes;
+    }
+
+    // === REGISTO (usado pelo importador) ===
+
+    void registarLido() {
+        lidos++;
+    }
+
+    void registarImportados(long quantidade) {
+        importados += quantidade;
+    }
+
+    void registarDuplicadoFicheiro(RegistoCatalogo registo) {
+        duplicadosFicheiro++;
+        rejeitar(registo, "ISBN repetido no ficheiro");
+    }
+
+    void registarDuplicadoBase(RegistoCatalogo registo) {
+        duplicadosBase++;
+        rejeitar(registo, "ISBN já existe no catálogo");
+    }
+
+    void registarRejeitado(RegistoCatalogo registo, String motivo) {
+        rejeitados++;
+        rejeitar(registo, motivo);
+    }
+
+    void registarAutoresCriados(long quantidade) {
+        autoresCriados += quantidade;
+    }
+
+    void registarCategoriasCriadas(long quantidade) {
+        categoriasCriadas += quantidade;
+    }
+
+    void setDuracao(Duration duracao) {
+        this.duracao = duracao;
+    }
+
+    void setErroFatal(String erroFatal) {
+        this.erroFatal = erroFatal;
+    }
+
+    private void rejeitar(RegistoCatalogo registo, String motivo) {
+        if (rejeicoes.size() < limiteRejeicoes) {
+            rejeicoes.add(new Rejeicao(registo.getPosicao(), registo.getIsbn(), registo.getTitulo(), motivo));
+        }
+    }
+
+    // === CONSULTA ===
+
+    public long getLidos() {
+        return lidos;
+    }
+
+    public long getImportados() {
+        return importados;
+    }
+
+    public long getDuplicadosFicheiro() {
+        return duplicadosFicheiro;
+    }
+
+    public long getDuplicadosBase() {
+        return duplicadosBase;
+    }
+
+    public long getRejeitados() {
+        return rejeitados;
+    }
+
+    /** Total de registos não importados (rejeitados e duplicados) */
+    public long getNaoImportados() {
+        return rejeitados + duplicadosFicheiro + duplicadosBase;
+    }
+
+    public long getAutoresCriados() {
+        return autoresCriados;
+    }
+
+    public long getCategoriasCriadas() {
+        return categoriasCriadas;
+    }
+
+    public Duration getDuracao() {
+        return duracao;
+    }
+
+    /** Erro que interrompeu a importação, ou null se terminou normalmente */
+    public String getErroFatal() {
+        return erroFatal;
+    }
+
+    public boolean isConcluida() {
+        return erroFatal == null;
+    }
+
+    /** Rejeições com detalhe (até ao limite configurado) */
+    public List<Rejeicao> getRejeicoes() {
+        return Collections.unmodifiableList(rejeicoes);
+    }
+
+    /**
+     * Escreve os registos rejeitados em CSV (posicao;isbn;titulo;motivo).
+     */
+    public void escreverRejeitados(Writer writer) throws IOException {
+        writer.write("posicao;isbn;titulo;motivo\n");
+        for (Rejeicao rejeicao : rejeicoes) {
+            writer.write(rejeicao.getPosicao() + ";" + csv(rejeicao.getIsbn()) + ";" +
+                         csv(rejeicao.getTitulo()) + ";" + csv(rejeicao.getMotivo()) + "\n");
+        }
+        writer.flush();
+    }
+
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(';') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+
+    @Override
+    public String toString() {
+        return "RelatorioImportacao{lidos=" + lidos + ", importados=" + importados +
+               ", duplicadosFicheiro=" + duplicadosFicheiro + ", duplicadosBase=" + duplicadosBase +
+               ", rejeitados=" + rejeitados + ", autoresCriados=" + autoresCriados +
+               ", categoriasCriadas=" + categoriasCriadas + ", duracao=" + duracao.toMillis() + "ms" +
+               (erroFatal != null ? ", erroFatal='" + erroFatal + "'" : "") + "}";
+    }
+}
@@ -0,0 +1,58 @@
+package isptec.biblioteca.metricas;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registo de uma instrução que excedeu o limite de consulta lenta.
+ */
+public final class ConsultaLenta {
+
+    private final LocalDateTime instante;
+    private final String sql;
+    private final long duracaoNanos;
+    private final long linhas;
+    private final String chamador;
+
+    ConsultaLenta(LocalDateTime instante, String sql, long duracaoNanos, long linhas, String chamador) {
+        this.instante = instante;
+        this.sql = sql;
+        this.duracaoNanos = duracaoNanos;
+        this.linhas = linhas;
+        this.chamador = chamador;
+    }
+
+    public LocalDateTime getInstante() {
+        return instante;
+    }
+
+    /**
+     * Texto SQL normalizado.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Execução mais iteração do ResultSet, em nanossegundos.
+     */
+    public long getDuracaoNanos() {
+        return duracaoNanos;
+    }
+
+    public long getLinhas() {
+        return linhas;
+    }
+
+    /**
+     * Método da aplicação que executou a instrução (ex.: "LivroDAO.findAll:57").
+     */
+    public String getChamador() {
+        return chamador;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %.1f ms, %d linhas, %s: %s", instante,
+                HistogramaLatencia.emMs(duracaoNanos), linhas, chamador, sql);
+    }
+}
@@ -0,0 +1,101 @@
+package isptec.biblioteca.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas acumuladas de uma instrução SQL normalizada.
+ *
+ * - aquisição: tempo a obter a conexão do pool, atribuído à primeira
+ *   instrução executada nessa conexão;
+ * - execução: chamada execute/executeQuery/executeUpdate/executeBatch;
+ * - iteração: da abertura ao fecho do ResultSet (inclui o mapeamento feito
+ *   pelo DAO enquanto percorre as linhas).
+ */
+public final class EstatisticaSql {
+
+    private final String sql;
+    private final LongAdder execucoes = new LongAdder();
+    private final LongAdder erros = new LongAdder();
+    private final LongAdder linhas = new LongAdder();
+    private final HistogramaLatencia aquisicao = new HistogramaLatencia();
+    private final HistogramaLatencia execucao = new HistogramaLatencia();
+    private final HistogramaLatencia iteracao = new HistogramaLatencia();
+
+    EstatisticaSql(String sql) {
+        this.sql = sql;
+    }
+
+    void registarAquisicao(long nanos) {
+        aquisicao.registar(nanos);
+    }
+
+    void registarExecucao(long nanos, long linhasAfetadas, boolean erro) {
+        execucoes.increment();
+        execucao.registar(nanos);
+        linhas.add(linhasAfetadas);
+        if (erro) {
+            erros.increment();
+        }
+    }
+
+    void registarIteracao(long nanos, long linhasLidas) {
+        iteracao.registar(nanos);
+        linhas.add(linhasLidas);
+    }
+
+    /**
+     * Texto SQL normalizado (literais e listas IN substituídos por ?).
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecucoes() {
+        return execucoes.sum();
+    }
+
+    public long getErros() {
+        return erros.sum();
+    }
+
+    /**
+     * Linhas lidas (consultas) ou afetadas (atualizações).
+     */
+    public long getLinhas() {
+        return linhas.sum();
+    }
+
+    public HistogramaLatencia getAquisicao() {
+        return aquisicao;
+    }
+
+    public HistogramaLatencia getExecucao() {
+        return execucao;
+    }
+
+    public HistogramaLatencia getIteracao() {
+        return iteracao;
+    }
+
+    /**
+     * Tempo total no banco: execução mais iteração.
+     */
+    public long getTempoTotalNanos() {
+        return execucao.getSomaNanos() + iteracao.getSomaNanos();
+    }
+
+    void reiniciar() {
+        execucoes.reset();
+        erros.reset();
+        linhas.reset();
+        aquisicao.reiniciar();
+        execucao.reiniciar();
+        iteracao.reiniciar();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s | execuções: %d, erros: %d, linhas: %d | execução %s | iteração %s",
+                sql, getExecucoes(), getErros(), getLinhas(), execucao.resumoMs(), iteracao.resumoMs());
+    }
+}
@@ -0,0 +1,138 @@
+package isptec.biblioteca.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em nanossegundos, ao estilo HDR: baldes
+ * log-lineares (64 sub-baldes por potência de 2), pelo que qualquer
+ * percentil tem erro relativo inferior a ~3% com memória fixa (~10 KB).
+ *
+ * Seguro para gravação concorrente sem bloqueios; as leituras são uma
+ * fotografia aproximada enquanto houver gravações em curso.
+ */
+public final class HistogramaLatencia {
+
+    private static final int BITS_SUB = 6;
+    private static final int SUB = 1 << BITS_SUB;
+    private static final int METADE = SUB >> 1;
+
+    /** Maior valor distinguível (~36 minutos); acima disto conta no último balde */
+    private static final long VALOR_MAXIMO = (1L << 41) - 1;
+    private static final int BALDES = indice(VALOR_MAXIMO) + 1;
+
+    private final AtomicLongArray baldes = new AtomicLongArray(BALDES);
+    private final LongAdder contagem = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Regista uma medição.
+     *
+     * @param nanos duração em nanossegundos (negativos contam como 0)
+     */
+    public void registar(long nanos) {
+        long valor = Math.max(0, nanos);
+        baldes.incrementAndGet(indice(Math.min(valor, VALOR_MAXIMO)));
+        contagem.increment();
+        soma.add(valor);
+        maximo.accumulateAndGet(valor, Math::max);
+    }
+
+    public long getContagem() {
+        return contagem.sum();
+    }
+
+    public long getSomaNanos() {
+        return soma.sum();
+    }
+
+    public long getMaximoNanos() {
+        return maximo.get();
+    }
+
+    public long getMediaNanos() {
+        long n = contagem.sum();
+        return n == 0 ? 0 : soma.sum() / n;
+    }
+
+    /**
+     * Valor abaixo do qual está a percentagem indicada das medições.
+     *
+     * @param percentil entre 0 e 100 (ex.: 99.9)
+     * @return limite superior do balde correspondente, em nanossegundos
+     */
+    public long percentilNanos(double percentil) {
+        if (percentil < 0 || percentil > 100) {
+            throw new IllegalArgumentException("Percentil inválido: " + percentil);
+        }
+        long[] copia = new long[BALDES];
+        long total = 0;
+        for (int i = 0; i < BALDES; i++) {
+            copia[i] = baldes.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(percentil / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < BALDES; i++) {
+            acumulado += copia[i];
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Resumo "p50/p95/p99/max" em milissegundos.
+     */
+    public String resumoMs() {
+        return String.format("p50=%.2f p95=%.2f p99=%.2f max=%.2f ms",
+                emMs(percentilNanos(50)), emMs(percentilNanos(95)),
+                emMs(percentilNanos(99)), emMs(getMaximoNanos()));
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < BALDES; i++) {
+            baldes.set(i, 0);
+        }
+        contagem.reset();
+        soma.reset();
+        maximo.set(0);
+    }
+
+    public static double emMs(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Abaixo de 64 cada valor tem o seu balde; acima, cada potência de 2
+     * é dividida em 32 baldes iguais.
+     */
+    static int indice(long valor) {
+        if (valor < SUB) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int deslocamento = expoente - (BITS_SUB - 1);
+        int sub = (int) (valor >>> deslocamento);
+        return SUB + (expoente - BITS_SUB) * METADE + (sub - METADE);
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUB) {
+            return indice;
+        }
+        int k = indice - SUB;
+        int expoente = k / METADE + BITS_SUB;
+        long sub = k % METADE + METADE;
+        int deslocamento = expoente - (BITS_SUB - 1);
+        return ((sub + 1) << deslocamento) - 1;
+    }
+}
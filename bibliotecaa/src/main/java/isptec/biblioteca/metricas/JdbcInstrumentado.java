@@ -0,0 +1,277 @@
+package isptec.biblioteca.metricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Proxies JDBC que alimentam o {@link MetricasJdbc}.
+ *
+ * A conexão devolvida pelo DatabaseManager é envolvida; as instruções que
+ * ela cria e os ResultSet das consultas também, medindo a execução, a
+ * iteração e as linhas. Os restantes métodos passam diretamente para o
+ * objeto do driver.
+ */
+public final class JdbcInstrumentado {
+
+    private JdbcInstrumentado() {
+    }
+
+    /**
+     * Envolve uma conexão acabada de obter do pool.
+     *
+     * @param nanosAquisicao tempo que demorou a obter a conexão
+     */
+    public static Connection envolver(Connection conexao, long nanosAquisicao) {
+        MetricasJdbc.getInstance().getAquisicao().registar(nanosAquisicao);
+        return proxy(Connection.class, new ConexaoInstrumentada(conexao, nanosAquisicao));
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static <T> T proxy(Class<T> tipo, InvocationHandler handler) {
+        return tipo.cast(Proxy.newProxyInstance(JdbcInstrumentado.class.getClassLoader(),
+                new Class<?>[]{tipo}, handler));
+    }
+
+    private static Object chamar(Object alvo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Linhas afetadas de executeUpdate/executeBatch (contagens negativas,
+     * como SUCCESS_NO_INFO, são ignoradas).
+     */
+    private static long linhasAfetadas(Object resultado) {
+        if (resultado instanceof Integer || resultado instanceof Long) {
+            return Math.max(0, ((Number) resultado).longValue());
+        }
+        long total = 0;
+        if (resultado instanceof int[]) {
+            for (int n : (int[]) resultado) {
+                total += Math.max(0, n);
+            }
+        } else if (resultado instanceof long[]) {
+            for (long n : (long[]) resultado) {
+                total += Math.max(0, n);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Conexão: envolve as instruções criadas e guarda o tempo de aquisição
+     * até à primeira execução.
+     */
+    private static final class ConexaoInstrumentada implements InvocationHandler {
+
+        private final Connection alvo;
+        private long nanosAquisicao;
+
+        ConexaoInstrumentada(Connection alvo, long nanosAquisicao) {
+            this.alvo = alvo;
+            this.nanosAquisicao = nanosAquisicao;
+        }
+
+        /**
+         * Tempo de aquisição, só para a primeira instrução executada.
+         *
+         * @return nanossegundos, ou -1 se já foi atribuído
+         */
+        long consumirAquisicao() {
+            long nanos = nanosAquisicao;
+            nanosAquisicao = -1;
+            return nanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = chamar(alvo, metodo, args);
+            if (!(resultado instanceof Statement)) {
+                return resultado;
+            }
+            String sql = metodo.getName().startsWith("prepare") && args != null && args[0] instanceof String
+                    ? (String) args[0] : null;
+            InstrucaoInstrumentada handler = new InstrucaoInstrumentada(this, (Statement) resultado, sql);
+            if (resultado instanceof CallableStatement) {
+                return proxy(CallableStatement.class, handler);
+            }
+            if (resultado instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class, handler);
+            }
+            return proxy(Statement.class, handler);
+        }
+    }
+
+    /**
+     * Statement, PreparedStatement ou CallableStatement: mede as execuções.
+     */
+    private static final class InstrucaoInstrumentada implements InvocationHandler {
+
+        private final MetricasJdbc metricas = MetricasJdbc.getInstance();
+        private final ConexaoInstrumentada conexao;
+        private final Statement alvo;
+        private final String sqlPreparado;
+
+        /** Primeira instrução de um lote de Statement.addBatch(String) */
+        private String sqlLote;
+
+        /** Última execução, para o ResultSet obtido por getResultSet() */
+        private EstatisticaSql ultima;
+        private long ultimaNanos;
+        private LeituraInstrumentada leitura;
+
+        InstrucaoInstrumentada(ConexaoInstrumentada conexao, Statement alvo, String sqlPreparado) {
+            this.conexao = conexao;
+            this.alvo = alvo;
+            this.sqlPreparado = sqlPreparado;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nome = metodo.getName();
+            if (nome.startsWith("execute")) {
+                return executar(metodo, args);
+            }
+            switch (nome) {
+                case "addBatch":
+                    if (sqlLote == null && args != null && args[0] instanceof String) {
+                        sqlLote = (String) args[0];
+                    }
+                    break;
+                case "clearBatch":
+                    sqlLote = null;
+                    break;
+                case "close":
+                    terminarLeitura();
+                    break;
+                case "getResultSet":
+                    ResultSet rs = (ResultSet) chamar(alvo, metodo, args);
+                    if (rs == null || ultima == null || leitura != null) {
+                        return rs;
+                    }
+                    return abrirLeitura(rs, ultima, ultimaNanos);
+                default:
+                    break;
+            }
+            return chamar(alvo, metodo, args);
+        }
+
+        private Object executar(Method metodo, Object[] args) throws Throwable {
+            String sql;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            } else if (sqlPreparado == null && metodo.getName().contains("Batch")) {
+                sql = sqlLote;
+            } else {
+                sql = sqlPreparado;
+            }
+            EstatisticaSql estatistica = metricas.estatistica(metricas.normalizar(sql));
+            long aquisicao = conexao.consumirAquisicao();
+            if (aquisicao >= 0) {
+                estatistica.registarAquisicao(aquisicao);
+            }
+            terminarLeitura();
+            ultima = null;
+
+            long inicio = System.nanoTime();
+            Object resultado;
+            try {
+                resultado = chamar(alvo, metodo, args);
+            } catch (SQLException e) {
+                estatistica.registarExecucao(System.nanoTime() - inicio, 0, true);
+                throw e;
+            }
+            long duracao = System.nanoTime() - inicio;
+
+            if (resultado instanceof ResultSet) {
+                estatistica.registarExecucao(duracao, 0, false);
+                return abrirLeitura((ResultSet) resultado, estatistica, duracao);
+            }
+            long linhas = linhasAfetadas(resultado);
+            estatistica.registarExecucao(duracao, linhas, false);
+            if (Boolean.TRUE.equals(resultado)) {
+                // execute() com ResultSet: a iteração conta a partir de getResultSet()
+                ultima = estatistica;
+                ultimaNanos = duracao;
+            } else {
+                metricas.verificarLenta(estatistica, duracao, linhas);
+            }
+            return resultado;
+        }
+
+        private ResultSet abrirLeitura(ResultSet rs, EstatisticaSql estatistica, long nanosExecucao) {
+            leitura = new LeituraInstrumentada(rs, estatistica, nanosExecucao);
+            ultima = null;
+            return proxy(ResultSet.class, leitura);
+        }
+
+        /**
+         * Fechar ou reexecutar a instrução fecha implicitamente o ResultSet.
+         */
+        private void terminarLeitura() {
+            if (leitura != null) {
+                leitura.terminar();
+                leitura = null;
+            }
+        }
+    }
+
+    /**
+     * ResultSet: conta as linhas e mede o tempo até ao fecho.
+     */
+    private static final class LeituraInstrumentada implements InvocationHandler {
+
+        private final ResultSet alvo;
+        private final EstatisticaSql estatistica;
+        private final long nanosExecucao;
+        private final long abertura = System.nanoTime();
+        private long linhas;
+        private boolean terminada;
+
+        LeituraInstrumentada(ResultSet alvo, EstatisticaSql estatistica, long nanosExecucao) {
+            this.alvo = alvo;
+            this.estatistica = estatistica;
+            this.nanosExecucao = nanosExecucao;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "next":
+                    Object resultado = chamar(alvo, metodo, args);
+                    if (Boolean.TRUE.equals(resultado)) {
+                        linhas++;
+                    }
+                    return resultado;
+                case "close":
+                    terminar();
+                    break;
+                default:
+                    break;
+            }
+            return chamar(alvo, metodo, args);
+        }
+
+        void terminar() {
+            if (terminada) {
+                return;
+            }
+            terminada = true;
+            long iteracao = System.nanoTime() - abertura;
+            estatistica.registarIteracao(iteracao, linhas);
+            MetricasJdbc.getInstance().verificarLenta(estatistica, nanosExecucao + iteracao, linhas);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package isptec.biblioteca.metricas;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Registo central das métricas JDBC recolhidas por {@link JdbcInstrumentado}.
+ *
+ * Agrupa por texto SQL normalizado (literais, números e listas IN
+ * substituídos por ?), para que a mesma consulta com parâmetros diferentes
+ * conte como uma só. Guarda também as últimas consultas lentas com o
+ * método da aplicação que as executou.
+ *
+ * Configurado pelo DatabaseManager (db.metricas, db.metricas.lentaMs).
+ */
+public final class MetricasJdbc {
+
+    /** Número máximo de instruções distintas; as restantes são agregadas */
+    public static final int MAXIMO_INSTRUCOES = 1000;
+
+    /** Consultas lentas mantidas em memória */
+    public static final int MAXIMO_LENTAS = 200;
+
+    private static final String OUTRAS = "(outras instruções)";
+    private static final int MAXIMO_CACHE_NORMALIZACAO = 5000;
+
+    private static final Pattern LISTA_IN = Pattern.compile("(?i)\\bIN ?\\(\\?(?: ?, ?\\?)*\\)");
+    private static final Pattern TUPLOS = Pattern.compile("\\(\\?(?: ?, ?\\?)+\\)(?: ?, ?\\(\\?(?: ?, ?\\?)+\\))+");
+
+    private static final MetricasJdbc INSTANCIA = new MetricasJdbc();
+
+    private final ConcurrentHashMap<String, EstatisticaSql> estatisticas = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> normalizadas = new ConcurrentHashMap<>();
+    private final HistogramaLatencia aquisicao = new HistogramaLatencia();
+    private final ArrayDeque<ConsultaLenta> lentas = new ArrayDeque<>();
+
+    private volatile boolean ativo = true;
+    private volatile long limiteLentaNanos = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private MetricasJdbc() {
+    }
+
+    public static MetricasJdbc getInstance() {
+        return INSTANCIA;
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    /**
+     * Liga ou desliga a instrumentação das novas conexões.
+     */
+    public void setAtivo(boolean ativo) {
+        this.ativo = ativo;
+    }
+
+    public long getLimiteLentaMs() {
+        return TimeUnit.NANOSECONDS.toMillis(limiteLentaNanos);
+    }
+
+    public void setLimiteLentaMs(long limiteMs) {
+        if (limiteMs < 0) {
+            throw new IllegalArgumentException("Limite de consulta lenta inválido: " + limiteMs);
+        }
+        this.limiteLentaNanos = TimeUnit.MILLISECONDS.toNanos(limiteMs);
+    }
+
+    /**
+     * Tempo de obtenção de conexões do pool, de todas as instruções.
+     */
+    public HistogramaLatencia getAquisicao() {
+        return aquisicao;
+    }
+
+    /**
+     * Estatísticas por instrução, da que ocupou mais tempo no banco à que
+     * ocupou menos.
+     */
+    public List<EstatisticaSql> getEstatisticas() {
+        List<EstatisticaSql> lista = new ArrayList<>(estatisticas.values());
+        lista.sort(Comparator.comparingLong(EstatisticaSql::getTempoTotalNanos).reversed());
+        return lista;
+    }
+
+    /**
+     * Estatística de uma instrução (o texto é normalizado antes da procura).
+     *
+     * @return a estatística, ou null se a instrução nunca foi executada
+     */
+    public EstatisticaSql getEstatistica(String sql) {
+        return estatisticas.get(normalizar(sql));
+    }
+
+    /**
+     * Últimas consultas lentas, da mais antiga para a mais recente.
+     */
+    public List<ConsultaLenta> getConsultasLentas() {
+        synchronized (lentas) {
+            return new ArrayList<>(lentas);
+        }
+    }
+
+    /**
+     * Apaga todas as métricas e consultas lentas.
+     */
+    public void reiniciar() {
+        aquisicao.reiniciar();
+        for (EstatisticaSql estatistica : estatisticas.values()) {
+            estatistica.reiniciar();
+        }
+        estatisticas.clear();
+        synchronized (lentas) {
+            lentas.clear();
+        }
+    }
+
+    /**
+     * Relatório das instruções que mais tempo ocuparam no banco.
+     *
+     * @param limite número máximo de instruções listadas
+     */
+    public String getResumo(int limite) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Aquisição de conexões (").append(aquisicao.getContagem()).append("): ")
+          .append(aquisicao.resumoMs()).append(System.lineSeparator());
+
+        int n = 0;
+        for (EstatisticaSql estatistica : getEstatisticas()) {
+            if (n++ >= limite) {
+                break;
+            }
+            sb.append(String.format("%8d x %10.1f ms total | %s%n         execução %s | iteração %s | linhas %d%n",
+                    estatistica.getExecucoes(), HistogramaLatencia.emMs(estatistica.getTempoTotalNanos()),
+                    estatistica.getSql(), estatistica.getExecucao().resumoMs(),
+                    estatistica.getIteracao().resumoMs(), estatistica.getLinhas()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Normaliza o texto SQL: literais de texto e números passam a ?, os
+     * espaços são compactados e listas IN (?, ?, ...) e tuplos VALUES
+     * repetidos ficam com uma só forma.
+     */
+    public String normalizar(String sql) {
+        if (sql == null) {
+            return "(sem SQL)";
+        }
+        String normalizada = normalizadas.get(sql);
+        if (normalizada == null) {
+            normalizada = normalizarTexto(sql);
+            if (normalizadas.size() >= MAXIMO_CACHE_NORMALIZACAO) {
+                normalizadas.clear();
+            }
+            normalizadas.put(sql, normalizada);
+        }
+        return normalizada;
+    }
+
+    // === MÉTODOS USADOS PELOS PROXIES ===
+
+    /**
+     * Estatística da instrução já normalizada, criada se necessário.
+     */
+    EstatisticaSql estatistica(String normalizada) {
+        EstatisticaSql estatistica = estatisticas.get(normalizada);
+        if (estatistica != null) {
+            return estatistica;
+        }
+        String chave = estatisticas.size() < MAXIMO_INSTRUCOES ? normalizada : OUTRAS;
+        return estatisticas.computeIfAbsent(chave, EstatisticaSql::new);
+    }
+
+    /**
+     * Regista a instrução como lenta se a duração exceder o limite.
+     */
+    void verificarLenta(EstatisticaSql estatistica, long nanos, long linhas) {
+        if (nanos < limiteLentaNanos) {
+            return;
+        }
+        ConsultaLenta lenta = new ConsultaLenta(LocalDateTime.now(), estatistica.getSql(), nanos, linhas, chamador());
+        System.err.println("Consulta lenta: " + lenta);
+        synchronized (lentas) {
+            if (lentas.size() >= MAXIMO_LENTAS) {
+                lentas.removeFirst();
+            }
+            lentas.addLast(lenta);
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Primeiro método da aplicação na pilha, ignorando a instrumentação,
+     * o DatabaseManager e o SqlUtil (para apontar o DAO ou repositório).
+     */
+    private static String chamador() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> {
+                    String classe = f.getClassName();
+                    return classe.startsWith("isptec.biblioteca.")
+                            && !classe.startsWith("isptec.biblioteca.metricas.")
+                            && !classe.equals("isptec.biblioteca.util.DatabaseManager")
+                            && !classe.equals("isptec.biblioteca.dao.SqlUtil");
+                })
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1)
+                        + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .orElse("(desconhecido)"));
+    }
+
+    private static String normalizarTexto(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        boolean espaco = false;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                espaco = true;
+                i++;
+                continue;
+            }
+            if (espaco && sb.length() > 0) {
+                sb.append(' ');
+            }
+            espaco = false;
+
+            if (c == '\'') {
+                i = fimDeTexto(sql, i + 1);
+                sb.append('?');
+            } else if (Character.isDigit(c) && (sb.length() == 0 || !isIdentificador(sb.charAt(sb.length() - 1)))) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                sb.append('?');
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        String resultado = LISTA_IN.matcher(sb).replaceAll("IN (?...)");
+        return TUPLOS.matcher(resultado).replaceAll("(?...), ...");
+    }
+
+    /**
+     * Posição a seguir à aspa que fecha o literal iniciado antes de inicio.
+     */
+    private static int fimDeTexto(String sql, int inicio) {
+        int i = inicio;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isIdentificador(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '`';
+    }
+}
@@ -28,6 +28,20 @@ public class Emprestimo {
         this.multa = 0.0;
     }
 
+    /** Cópia, para registar devolução, renovação ou multa numa versão nova */
+    public Emprestimo(Emprestimo outro) {
+        this.id = outro.id;
+        this.livroId = outro.livroId;
+        this.membroId = outro.membroId;
+        this.tituloLivro = outro.tituloLivro;
+        this.nomeMembro = outro.nomeMembro;
+        this.dataEmprestimo = outro.dataEmprestimo;
+        this.dataDevolucaoPrevista = outro.dataDevolucaoPrevista;
+        this.dataDevolucaoReal = outro.dataDevolucaoReal;
+        this.numeroRenovacoes = outro.numeroRenovacoes;
+        this.multa = outro.multa;
+    }
+
     // Getters e Setters
     public String getId() {
         return id;
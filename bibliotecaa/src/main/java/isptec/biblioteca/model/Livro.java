@@ -26,6 +26,23 @@ public class Livro {
         this.descricao = descricao;
     }
 
+    /**
+     * Cópia campo a campo: o LibraryService altera cópias, nunca o livro de
+     * uma versão já publicada.
+     */
+    public Livro(Livro outro) {
+        this.id = outro.id;
+        this.titulo = outro.titulo;
+        this.autor = outro.autor;
+        this.isbn = outro.isbn;
+        this.editora = outro.editora;
+        this.ano = outro.ano;
+        this.categoria = outro.categoria;
+        this.quantidade = outro.quantidade;
+        this.quantidadeDisponivel = outro.quantidadeDisponivel;
+        this.descricao = outro.descricao;
+    }
+
     // Getters e Setters
     public String getId() {
         return id;
@@ -27,6 +27,19 @@ public class Membro {
         this.status = StatusMembro.ATIVO;
     }
 
+    /** Cópia, para bloquear ou desbloquear o membro numa versão nova */
+    public Membro(Membro outro) {
+        this.id = outro.id;
+        this.nome = outro.nome;
+        this.email = outro.email;
+        this.telefone = outro.telefone;
+        this.matricula = outro.matricula;
+        this.senha = outro.senha;
+        this.primeiraSenha = outro.primeiraSenha;
+        this.dataIngresso = outro.dataIngresso;
+        this.status = outro.status;
+    }
+
     // Getters e Setters
     public String getId() {
         return id;
@@ -25,6 +25,17 @@ public class Reserva {
         this.status = StatusReserva.PENDENTE;
     }
 
+    /** Cópia, para cancelar ou concluir a reserva numa versão nova */
+    public Reserva(Reserva outro) {
+        this.id = outro.id;
+        this.livroId = outro.livroId;
+        this.membroId = outro.membroId;
+        this.tituloLivro = outro.tituloLivro;
+        this.nomeMembro = outro.nomeMembro;
+        this.dataReserva = outro.dataReserva;
+        this.status = outro.status;
+    }
+
     // Getters e Setters
     public String getId() {
         return id;
@@ -78,6 +78,31 @@ public class Livro {
         this.localizacao = "";
     }
 
+    /**
+     * Cópia independente (autores e categorias incluídos), para quem guarda
+     * livros partilhados, como as caches.
+     */
+    public Livro(Livro outro) {
+        this.id = outro.id;
+        this.titulo = outro.titulo;
+        this.isbn = outro.isbn;
+        this.editora = outro.editora;
+        this.anoPublicacao = outro.anoPublicacao;
+        this.quantidadeTotal = outro.quantidadeTotal;
+        this.quantidadeDisponivel = outro.quantidadeDisponivel;
+        this.autores = new ArrayList<>();
+        for (Autor autor : outro.autores) {
+            this.autores.add(new Autor(autor.getId(), autor.getNome(), autor.getNacionalidade(), autor.getBiografia()));
+        }
+        this.categorias = new ArrayList<>();
+        for (Categoria categoria : outro.categorias) {
+            this.categorias.add(new Categoria(categoria.getId(), categoria.getNome(), categoria.getDescricao()));
+        }
+        this.estado = outro.estado;
+        this.descricao = outro.descricao;
+        this.localizacao = outro.localizacao;
+    }
+
     // === MÉTODOS DE NEGÓCIO ===
 
     /**
@@ -41,6 +41,19 @@ public class Membro extends Pessoa {
         this.multaPendente = 0.0;
     }
 
+    /**
+     * Cópia independente, para quem guarda membros partilhados, como as
+     * caches. O histórico é uma lista nova com os mesmos empréstimos.
+     */
+    public Membro(Membro outro) {
+        super(outro.id, outro.nome, outro.email, outro.perfil);
+        this.senha = outro.senha;
+        this.matricula = outro.matricula;
+        this.historicoEmprestimos = new ArrayList<>(outro.historicoEmprestimos);
+        this.bloqueado = outro.bloqueado;
+        this.multaPendente = outro.multaPendente;
+    }
+
     // === MÉTODOS DE NEGÓCIO ===
 
     /**
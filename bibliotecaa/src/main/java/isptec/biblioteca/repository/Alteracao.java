@@ -0,0 +1,80 @@
+package isptec.biblioteca.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Conjunto imutável de alterações para um UPDATE em massa (cláusula SET).
+ *
+ * Exemplo: {@code Alteracao.definir("estado", EstadoLivro.INDISPONIVEL).e(Alteracao.definir("localizacao", "Arquivo"))}
+ * Os nomes de colunas seguem as mesmas regras e aliases do {@link Criterio}
+ * do DAO da entidade; os valores seguem como parâmetros.
+ */
+public final class Alteracao {
+
+    private final List<String> atribuicoes;
+    private final List<Object> parametros;
+
+    private Alteracao(List<String> atribuicoes, List<Object> parametros) {
+        this.atribuicoes = atribuicoes;
+        this.parametros = parametros;
+    }
+
+    // === FÁBRICAS ===
+
+    /**
+     * coluna = valor (valor null grava NULL).
+     */
+    public static Alteracao definir(String coluna, Object valor) {
+        return new Alteracao(lista(Criterio.validarColuna(coluna) + " = ?"), lista(valor));
+    }
+
+    /**
+     * coluna = coluna + delta.
+     */
+    public static Alteracao incrementar(String coluna, int delta) {
+        String col = Criterio.validarColuna(coluna);
+        return new Alteracao(lista(col + " = " + col + " + ?"), lista(delta));
+    }
+
+    // === COMBINAÇÃO ===
+
+    /**
+     * Alteração com as atribuições desta seguidas das da outra.
+     */
+    public Alteracao e(Alteracao outra) {
+        List<String> novasAtribuicoes = new ArrayList<>(atribuicoes);
+        novasAtribuicoes.addAll(outra.atribuicoes);
+        List<Object> novosParametros = new ArrayList<>(parametros);
+        novosParametros.addAll(outra.parametros);
+        return new Alteracao(Collections.unmodifiableList(novasAtribuicoes),
+                Collections.unmodifiableList(novosParametros));
+    }
+
+    // === USO PELOS DAOs ===
+
+    /**
+     * Lista de atribuições "a = ?, b = b + ?".
+     */
+    public String getSql() {
+        return String.join(", ", atribuicoes);
+    }
+
+    public List<Object> getParametros() {
+        return parametros;
+    }
+
+    @Override
+    public String toString() {
+        return getSql() + " " + parametros;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static <T> List<T> lista(T valor) {
+        List<T> lista = new ArrayList<>(1);
+        lista.add(valor);
+        return Collections.unmodifiableList(lista);
+    }
+}
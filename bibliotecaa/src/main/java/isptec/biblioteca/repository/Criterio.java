@@ -0,0 +1,233 @@
+package isptec.biblioteca.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Critério de consulta imutável, compilado para SQL parametrizado.
+ *
+ * Permite descrever filtros (igualdade, intervalos, LIKE, combinações E/OU)
+ * no repositório e executá-los no banco, em vez de carregar a tabela e
+ * filtrar em Java. Os nomes de colunas são validados; os valores seguem
+ * sempre como parâmetros do PreparedStatement.
+ *
+ * Exemplo: {@code Criterio.contem("editora", "Porto").e(Criterio.igual("ano_publicacao", 2020))}
+ */
+public final class Criterio {
+
+    /** Coluna simples ou qualificada pelo alias da tabela (ex.: "m.bloqueado") */
+    private static final Pattern COLUNA = Pattern.compile("[a-z_][a-z0-9_]*(\\.[a-z_][a-z0-9_]*)?");
+
+    /** Lista de ordenação: colunas separadas por vírgula, cada uma com ASC/DESC opcional */
+    private static final Pattern ORDENACAO = Pattern.compile(
+            "[a-z_][a-z0-9_.]*( (ASC|DESC))?(, [a-z_][a-z0-9_.]*( (ASC|DESC))?)*");
+
+    private static final Criterio TODOS = new Criterio("", Collections.emptyList());
+
+    private final String sql;
+    private final List<Object> parametros;
+
+    private Criterio(String sql, List<Object> parametros) {
+        this.sql = sql;
+        this.parametros = parametros;
+    }
+
+    // === FÁBRICAS ===
+
+    /**
+     * Critério sem filtro (todas as linhas).
+     */
+    public static Criterio todos() {
+        return TODOS;
+    }
+
+    public static Criterio igual(String coluna, Object valor) {
+        return comparacao(coluna, "=", valor);
+    }
+
+    public static Criterio diferente(String coluna, Object valor) {
+        return comparacao(coluna, "<>", valor);
+    }
+
+    public static Criterio maiorQue(String coluna, Object valor) {
+        return comparacao(coluna, ">", valor);
+    }
+
+    public static Criterio maiorOuIgual(String coluna, Object valor) {
+        return comparacao(coluna, ">=", valor);
+    }
+
+    public static Criterio menorQue(String coluna, Object valor) {
+        return comparacao(coluna, "<", valor);
+    }
+
+    public static Criterio menorOuIgual(String coluna, Object valor) {
+        return comparacao(coluna, "<=", valor);
+    }
+
+    /**
+     * Coluna entre dois valores (inclusive).
+     */
+    public static Criterio entre(String coluna, Object inicio, Object fim) {
+        return new Criterio(validarColuna(coluna) + " BETWEEN ? AND ?", lista(inicio, fim));
+    }
+
+    /**
+     * Coluna contém o texto (LIKE '%texto%'), com os curingas do texto escapados.
+     */
+    public static Criterio contem(String coluna, String texto) {
+        return new Criterio(validarColuna(coluna) + " LIKE ?", lista(padraoContem(texto)));
+    }
+
+    /**
+     * Coluna pertence à lista de valores. Com lista vazia, nenhuma linha corresponde.
+     */
+    public static Criterio em(String coluna, Collection<?> valores) {
+        if (valores.isEmpty()) {
+            return new Criterio("1 = 0", Collections.emptyList());
+        }
+        StringBuilder sb = new StringBuilder(validarColuna(coluna)).append(" IN (");
+        for (int i = 0; i < valores.size(); i++) {
+            sb.append(i > 0 ? ", ?" : "?");
+        }
+        return new Criterio(sb.append(')').toString(), lista(valores.toArray()));
+    }
+
+    public static Criterio nulo(String coluna) {
+        return new Criterio(validarColuna(coluna) + " IS NULL", Collections.emptyList());
+    }
+
+    /**
+     * Compara duas colunas da mesma linha (ex.: quantidade_disponivel &lt; quantidade_total).
+     */
+    public static Criterio colunas(String coluna, String operador, String outraColuna) {
+        validarOperador(operador);
+        return new Criterio(validarColuna(coluna) + " " + operador + " " + validarColuna(outraColuna),
+                Collections.emptyList());
+    }
+
+    /**
+     * Fragmento SQL livre com parâmetros, para casos que as fábricas não cobrem
+     * (ex.: subconsultas EXISTS). O fragmento deve ser constante no código;
+     * nunca concatenar dados do utilizador.
+     */
+    public static Criterio sql(String fragmento, Object... parametros) {
+        return new Criterio(fragmento, lista(parametros));
+    }
+
+    // === COMBINAÇÃO ===
+
+    public Criterio e(Criterio outro) {
+        return combinar(this, "AND", outro);
+    }
+
+    public Criterio ou(Criterio outro) {
+        return combinar(this, "OR", outro);
+    }
+
+    public Criterio negar() {
+        if (isVazio()) {
+            return new Criterio("1 = 0", Collections.emptyList());
+        }
+        return new Criterio("NOT (" + sql + ")", parametros);
+    }
+
+    // === USO PELOS DAOs ===
+
+    public boolean isVazio() {
+        return sql.isEmpty();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParametros() {
+        return parametros;
+    }
+
+    /**
+     * Cláusula " WHERE ..." (ou vazia, se o critério não filtra).
+     */
+    public String clausulaWhere() {
+        return isVazio() ? "" : " WHERE " + sql;
+    }
+
+    /**
+     * Valida uma ordenação ("titulo, id" ou "e.data_emprestimo DESC").
+     *
+     * @throws IllegalArgumentException se contiver algo além de colunas e ASC/DESC
+     */
+    public static String validarOrdenacao(String ordenacao) {
+        if (ordenacao == null || !ORDENACAO.matcher(ordenacao).matches()) {
+            throw new IllegalArgumentException("Ordenação inválida: " + ordenacao);
+        }
+        return ordenacao;
+    }
+
+    /**
+     * Padrão LIKE '%texto%' com '\', '%' e '_' escapados.
+     */
+    public static String padraoContem(String texto) {
+        String escapado = texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escapado + "%";
+    }
+
+    @Override
+    public String toString() {
+        return isVazio() ? "(todos)" : sql + " " + parametros;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static Criterio comparacao(String coluna, String operador, Object valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("Valor nulo em comparação; use Criterio.nulo");
+        }
+        return new Criterio(validarColuna(coluna) + " " + operador + " ?", lista(valor));
+    }
+
+    private static Criterio combinar(Criterio a, String operador, Criterio b) {
+        // "todos" é neutro no AND e absorvente no OR
+        if (a.isVazio() || b.isVazio()) {
+            if ("OR".equals(operador)) {
+                return TODOS;
+            }
+            return a.isVazio() ? b : a;
+        }
+        List<Object> parametros = new ArrayList<>(a.parametros);
+        parametros.addAll(b.parametros);
+        return new Criterio("(" + a.sql + ") " + operador + " (" + b.sql + ")",
+                Collections.unmodifiableList(parametros));
+    }
+
+    static String validarColuna(String coluna) {
+        if (coluna == null || !COLUNA.matcher(coluna).matches()) {
+            throw new IllegalArgumentException("Nome de coluna inválido: " + coluna);
+        }
+        return coluna;
+    }
+
+    private static void validarOperador(String operador) {
+        switch (operador) {
+            case "=":
+            case "<>":
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return;
+            default:
+                throw new IllegalArgumentException("Operador inválido: " + operador);
+        }
+    }
+
+    private static List<Object> lista(Object... valores) {
+        List<Object> lista = new ArrayList<>(valores.length);
+        Collections.addAll(lista, valores);
+        return Collections.unmodifiableList(lista);
+    }
+}
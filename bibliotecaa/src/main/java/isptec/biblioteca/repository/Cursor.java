@@ -0,0 +1,67 @@
+package isptec.biblioteca.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codificação dos cursores opacos usados na paginação keyset.
+ *
+ * Um cursor guarda os valores da chave de ordenação da última linha
+ * devolvida (ex.: título e ID). Cada valor é codificado em Base64 URL-safe
+ * e os valores são separados por '.', para que o cliente não dependa do formato.
+ */
+public final class Cursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private Cursor() {
+        // Impede instanciação
+    }
+
+    /**
+     * Codifica os valores da chave num cursor opaco.
+     */
+    public static String codificar(Object... valores) {
+        StringBuilder sb = new StringBuilder();
+        for (Object valor : valores) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(ENCODER.encodeToString(String.valueOf(valor).getBytes(StandardCharsets.UTF_8)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Descodifica um cursor, validando o número de valores esperado.
+     *
+     * @throws IllegalArgumentException se o cursor for inválido
+     */
+    public static String[] decodificar(String cursor, int quantidade) {
+        String[] partes = cursor.split("\\.", -1);
+        if (partes.length != quantidade) {
+            throw new IllegalArgumentException("Cursor de paginação inválido");
+        }
+        try {
+            String[] valores = new String[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                valores[i] = new String(DECODER.decode(partes[i]), StandardCharsets.UTF_8);
+            }
+            return valores;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido", e);
+        }
+    }
+
+    /**
+     * Lê o ID (último valor da chave) de um cursor descodificado.
+     */
+    public static int lerId(String[] valores) {
+        try {
+            return Integer.parseInt(valores[valores.length - 1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido", e);
+        }
+    }
+}
@@ -17,6 +17,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      * @param membro o membro
      * @return lista de empréstimos do membro
      */
+    @SomenteLeitura
     List<Emprestimo> findByMembro(Membro membro);
 
     /**
@@ -25,6 +26,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      * @param livro o livro
      * @return lista de empréstimos do livro
      */
+    @SomenteLeitura
     List<Emprestimo> findByLivro(Livro livro);
 
     /**
@@ -32,6 +34,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      *
      * @return lista de empréstimos ativos
      */
+    @SomenteLeitura
     List<Emprestimo> findAtivos();
 
     /**
@@ -39,6 +42,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      *
      * @return lista de empréstimos atrasados
      */
+    @SomenteLeitura
     List<Emprestimo> findAtrasados();
 
     /**
@@ -47,6 +51,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      * @param data a data de vencimento
      * @return lista de empréstimos que vencem na data
      */
+    @SomenteLeitura
     List<Emprestimo> findByDataDevolucaoPrevista(LocalDate data);
 
     /**
@@ -56,6 +61,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      * @param fim data final
      * @return lista de empréstimos no período
      */
+    @SomenteLeitura
     List<Emprestimo> findByPeriodo(LocalDate inicio, LocalDate fim);
 
     /**
@@ -64,6 +70,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      * @param membro o membro
      * @return lista de empréstimos ativos do membro
      */
+    @SomenteLeitura
     List<Emprestimo> findAtivosByMembro(Membro membro);
 
     /**
@@ -71,6 +78,7 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      *
      * @return número de empréstimos ativos
      */
+    @SomenteLeitura
     long countAtivos();
 
     /**
@@ -78,6 +86,37 @@ public interface EmprestimoRepository extends Repository<Emprestimo, Integer> {
      *
      * @return número de empréstimos atrasados
      */
+    @SomenteLeitura
     long countAtrasados();
+
+    /**
+     * Empresta o livro ao membro numa só operação atómica no banco
+     * (verificações e alterações na mesma transação).
+     *
+     * @return resultado com o ID do empréstimo criado
+     */
+    ResultadoCirculacao emprestarAtomico(int livroId, int membroId);
+
+    /**
+     * Regista a devolução numa só operação atómica no banco.
+     *
+     * @param dataDevolucao data da devolução (null para a data atual do servidor)
+     * @return resultado com a multa aplicada
+     */
+    ResultadoCirculacao devolverAtomico(int emprestimoId, LocalDate dataDevolucao);
+
+    /**
+     * Renova o empréstimo numa só operação atómica no banco.
+     *
+     * @param novaData nova data prevista (null para o prazo padrão)
+     */
+    ResultadoCirculacao renovarAtomico(int emprestimoId, LocalDate novaData);
+
+    /**
+     * Marca como atrasados os empréstimos ativos com prazo vencido.
+     *
+     * @return número de empréstimos marcados
+     */
+    long marcarAtrasados();
 }
 
@@ -2,6 +2,7 @@ package isptec.biblioteca.repository;
 
 import isptec.biblioteca.model.entities.Livro;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface de repositório específica para Livro.
@@ -14,6 +15,7 @@ public interface LivroRepository extends Repository<Livro, Integer> {
      * @param isbn o ISBN do livro
      * @return o livro ou null se não encontrado
      */
+    @SomenteLeitura
     Livro findByIsbn(String isbn);
 
     /**
@@ -22,6 +24,7 @@ public interface LivroRepository extends Repository<Livro, Integer> {
      * @param titulo o título ou parte dele
      * @return lista de livros que correspondem
      */
+    @SomenteLeitura
     List<Livro> findByTituloContaining(String titulo);
 
     /**
@@ -30,6 +33,7 @@ public interface LivroRepository extends Repository<Livro, Integer> {
      * @param nomeAutor o nome do autor
      * @return lista de livros do autor
      */
+    @SomenteLeitura
     List<Livro> findByAutor(String nomeAutor);
 
     /**
@@ -38,6 +42,7 @@ public interface LivroRepository extends Repository<Livro, Integer> {
      * @param nomeCategoria o nome da categoria
      * @return lista de livros da categoria
      */
+    @SomenteLeitura
     List<Livro> findByCategoria(String nomeCategoria);
 
     /**
@@ -45,6 +50,7 @@ public interface LivroRepository extends Repository<Livro, Integer> {
      *
      * @return lista de livros disponíveis
      */
+    @SomenteLeitura
     List<Livro> findDisponiveis();
 
     /**
@@ -52,13 +58,25 @@ public interface LivroRepository extends Repository<Livro, Integer> {
      *
      * @return lista de livros emprestados
      */
+    @SomenteLeitura
     List<Livro> findEmprestados();
 
+    /**
+     * Percorre todos os livros, com autores e categorias, sem carregar a
+     * tabela inteira em memória.
+     *
+     * @param acao ação aplicada a cada livro
+     * @return false se a leitura falhou a meio
+     */
+    @SomenteLeitura
+    boolean forEach(Consumer<Livro> acao);
+
     /**
      * Conta livros disponíveis.
      *
      * @return número de livros disponíveis
      */
+    @SomenteLeitura
     long countDisponiveis();
 }
 
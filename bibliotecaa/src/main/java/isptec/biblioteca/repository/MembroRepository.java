@@ -14,6 +14,7 @@ public interface MembroRepository extends Repository<Membro, Integer> {
      * @param matricula a matrícula do membro
      * @return o membro ou null se não encontrado
      */
+    @SomenteLeitura
     Membro findByMatricula(String matricula);
 
     /**
@@ -22,6 +23,7 @@ public interface MembroRepository extends Repository<Membro, Integer> {
      * @param email o email do membro
      * @return o membro ou null se não encontrado
      */
+    @SomenteLeitura
     Membro findByEmail(String email);
 
     /**
@@ -30,6 +32,7 @@ public interface MembroRepository extends Repository<Membro, Integer> {
      * @param nome o nome ou parte dele
      * @return lista de membros que correspondem
      */
+    @SomenteLeitura
     List<Membro> findByNomeContaining(String nome);
 
     /**
@@ -37,6 +40,7 @@ public interface MembroRepository extends Repository<Membro, Integer> {
      *
      * @return lista de membros com empréstimos
      */
+    @SomenteLeitura
     List<Membro> findComEmprestimosAtivos();
 
     /**
@@ -44,6 +48,7 @@ public interface MembroRepository extends Repository<Membro, Integer> {
      *
      * @return lista de membros bloqueados
      */
+    @SomenteLeitura
     List<Membro> findBloqueados();
 
     /**
@@ -51,6 +56,7 @@ public interface MembroRepository extends Repository<Membro, Integer> {
      *
      * @return lista de membros com multas
      */
+    @SomenteLeitura
     List<Membro> findComMultasPendentes();
 }
 
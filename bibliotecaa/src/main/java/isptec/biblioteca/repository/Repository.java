@@ -26,6 +26,7 @@ public interface Repository<T, ID> {
      * @param id o identificador da entidade
      * @return Optional contendo a entidade ou vazio
      */
+    @SomenteLeitura
     Optional<T> findById(ID id);
 
     /**
@@ -33,8 +34,39 @@ public interface Repository<T, ID> {
      *
      * @return lista de todas as entidades
      */
+    @SomenteLeitura
     List<T> findAll();
 
+    /**
+     * Lista uma fatia de entidades por paginação keyset, na ordem natural
+     * do repositório. O custo não depende da profundidade da página.
+     *
+     * @param cursor  cursor devolvido pela fatia anterior, ou null para a primeira
+     * @param tamanho número máximo de entidades na fatia
+     * @return a fatia e o cursor da seguinte
+     * @throws IllegalArgumentException se o cursor for inválido
+     */
+    @SomenteLeitura
+    Slice<T> findSlice(String cursor, int tamanho);
+
+    /**
+     * Lista as entidades que satisfazem o critério, filtradas no banco.
+     *
+     * @param criterio o critério (colunas conforme o DAO da entidade)
+     * @return lista de entidades que correspondem
+     */
+    @SomenteLeitura
+    List<T> findWhere(Criterio criterio);
+
+    /**
+     * Conta as entidades que satisfazem o critério, sem as carregar.
+     *
+     * @param criterio o critério
+     * @return número de entidades que correspondem
+     */
+    @SomenteLeitura
+    long count(Criterio criterio);
+
     /**
      * Remove uma entidade pelo ID.
      *
@@ -55,6 +87,7 @@ public interface Repository<T, ID> {
      * @param id o identificador
      * @return true se existe
      */
+    @SomenteLeitura
     boolean existsById(ID id);
 
     /**
@@ -62,10 +95,37 @@ public interface Repository<T, ID> {
      *
      * @return número total de entidades
      */
+    @SomenteLeitura
     long count();
 
     /**
      * Remove todas as entidades.
      */
     void deleteAll();
+
+    /**
+     * Remove as entidades que satisfazem o critério sem as carregar,
+     * em blocos de IDs (cada bloco na sua transação).
+     *
+     * @param criterio o critério (colunas conforme o DAO da entidade)
+     * @return número de entidades removidas
+     */
+    long deleteWhere(Criterio criterio);
+
+    /**
+     * Altera numa só instrução as entidades que satisfazem o critério.
+     *
+     * @param criterio  o critério
+     * @param alteracao as colunas a alterar
+     * @return número de linhas alteradas
+     */
+    long updateWhere(Criterio criterio, Alteracao alteracao);
+
+    /**
+     * Esvazia as tabelas da entidade (e as que dela dependem) com TRUNCATE.
+     * Apenas para testes: exige db.permitirTruncate=true.
+     *
+     * @throws IllegalStateException se o TRUNCATE não estiver permitido
+     */
+    void truncate();
 }
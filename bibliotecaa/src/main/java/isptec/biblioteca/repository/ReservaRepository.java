@@ -16,6 +16,7 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      * @param membro o membro
      * @return lista de reservas do membro
      */
+    @SomenteLeitura
     List<Reserva> findByMembro(Membro membro);
 
     /**
@@ -24,6 +25,7 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      * @param livro o livro
      * @return lista de reservas do livro
      */
+    @SomenteLeitura
     List<Reserva> findByLivro(Livro livro);
 
     /**
@@ -31,6 +33,7 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      *
      * @return lista de reservas ativas
      */
+    @SomenteLeitura
     List<Reserva> findAtivas();
 
     /**
@@ -39,6 +42,7 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      * @param livro o livro
      * @return lista de reservas ativas do livro
      */
+    @SomenteLeitura
     List<Reserva> findAtivasByLivro(Livro livro);
 
     /**
@@ -47,6 +51,7 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      * @param membro o membro
      * @return lista de reservas ativas do membro
      */
+    @SomenteLeitura
     List<Reserva> findAtivasByMembro(Membro membro);
 
     /**
@@ -54,6 +59,7 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      *
      * @return lista de reservas expiradas
      */
+    @SomenteLeitura
     List<Reserva> findExpiradas();
 
     /**
@@ -63,6 +69,7 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      * @param livro o livro
      * @return true se existe reserva ativa
      */
+    @SomenteLeitura
     boolean existsAtivaByMembroAndLivro(Membro membro, Livro livro);
 
     /**
@@ -70,6 +77,22 @@ public interface ReservaRepository extends Repository<Reserva, Integer> {
      *
      * @return número de reservas ativas
      */
+    @SomenteLeitura
     long countAtivas();
+
+    /**
+     * Desativa as reservas ativas cujo prazo já passou.
+     *
+     * @return IDs das reservas desativadas
+     */
+    List<Integer> expirarVencidas();
+
+    /**
+     * Chaves das reservas ativas, por livro e ordem de fila, sem carregar
+     * livros e membros (para reconstruir índices em memória).
+     *
+     * @return cada elemento é {id, livroId, membroId, dataReserva (epoch day)}
+     */
+    List<long[]> findChavesAtivas();
 }
 
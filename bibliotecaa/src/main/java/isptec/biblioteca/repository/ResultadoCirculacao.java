@@ -0,0 +1,49 @@
+package isptec.biblioteca.repository;
+
+/**
+ * Resultado de uma operação de circulação atómica (empréstimo, devolução
+ * ou renovação): a mensagem de estado devolvida pelo procedimento
+ * ("SUCESSO: ..." ou "ERRO: ...").
+ */
+public final class ResultadoCirculacao {
+
+    private final String mensagem;
+    private final int emprestimoId;
+    private final double multa;
+
+    public ResultadoCirculacao(String mensagem, int emprestimoId, double multa) {
+        this.mensagem = mensagem;
+        this.emprestimoId = emprestimoId;
+        this.multa = multa;
+    }
+
+    /**
+     * Resultado de uma operação que não chegou a ser executada.
+     */
+    public static ResultadoCirculacao erro(String mensagem) {
+        return new ResultadoCirculacao("ERRO: " + mensagem, 0, 0);
+    }
+
+    public boolean isSucesso() {
+        return mensagem != null && mensagem.startsWith("SUCESSO");
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+
+    /** ID do empréstimo criado (0 se não houve empréstimo) */
+    public int getEmprestimoId() {
+        return emprestimoId;
+    }
+
+    /** Multa aplicada na devolução */
+    public double getMulta() {
+        return multa;
+    }
+
+    @Override
+    public String toString() {
+        return mensagem;
+    }
+}
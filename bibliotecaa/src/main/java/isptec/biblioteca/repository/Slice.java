@@ -0,0 +1,88 @@
+package isptec.biblioteca.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Fatia de resultados obtida por paginação keyset (seek).
+ *
+ * Não tem número de página nem total: apenas o conteúdo e um cursor opaco
+ * para pedir a fatia seguinte. Ler a página 1000 custa o mesmo que a primeira.
+ *
+ * @param <T> tipo da entidade
+ */
+public class Slice<T> {
+
+    private final List<T> conteudo;
+    private final String proximoCursor;
+
+    public Slice(List<T> conteudo, String proximoCursor) {
+        this.conteudo = Collections.unmodifiableList(conteudo);
+        this.proximoCursor = proximoCursor;
+    }
+
+    /**
+     * Fatia vazia, sem página seguinte.
+     */
+    public static <T> Slice<T> vazia() {
+        return new Slice<>(Collections.emptyList(), null);
+    }
+
+    /**
+     * Monta a fatia a partir de uma consulta que pediu {@code tamanho + 1} linhas:
+     * a linha extra só indica que existe fatia seguinte e é descartada.
+     *
+     * @param linhas      linhas lidas (até tamanho + 1)
+     * @param tamanho     tamanho pedido
+     * @param chaveCursor extrai o cursor da última linha da fatia
+     */
+    public static <T> Slice<T> deLinhas(List<T> linhas, int tamanho, Function<T, String> chaveCursor) {
+        if (linhas.size() <= tamanho) {
+            return new Slice<>(linhas, null);
+        }
+        List<T> pagina = new ArrayList<>(linhas.subList(0, tamanho));
+        return new Slice<>(pagina, chaveCursor.apply(pagina.get(tamanho - 1)));
+    }
+
+    /**
+     * Valida o tamanho pedido de uma fatia.
+     *
+     * @throws IllegalArgumentException se o tamanho não for positivo
+     */
+    public static void validarTamanho(int tamanho) {
+        if (tamanho <= 0) {
+            throw new IllegalArgumentException("Tamanho da fatia deve ser positivo: " + tamanho);
+        }
+    }
+
+    public List<T> getConteudo() {
+        return conteudo;
+    }
+
+    /**
+     * Cursor a passar a {@code findSlice} para obter a fatia seguinte,
+     * ou null se esta for a última.
+     */
+    public String getProximoCursor() {
+        return proximoCursor;
+    }
+
+    public boolean temProxima() {
+        return proximoCursor != null;
+    }
+
+    public int getTamanho() {
+        return conteudo.size();
+    }
+
+    public boolean isVazia() {
+        return conteudo.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Slice{tamanho=" + conteudo.size() + ", temProxima=" + temProxima() + "}";
+    }
+}
@@ -0,0 +1,21 @@
+package isptec.biblioteca.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca um método de repositório que só lê dados.
+ *
+ * Quando o repositório é obtido através de
+ * {@link isptec.biblioteca.repository.impl.Repositorios}, as chamadas a
+ * estes métodos podem ser servidas pela réplica de leitura configurada em
+ * database.properties (db.read.url).
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SomenteLeitura {
+}
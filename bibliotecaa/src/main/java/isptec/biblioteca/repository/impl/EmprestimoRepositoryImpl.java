@@ -1,13 +1,21 @@
 package isptec.biblioteca.repository.impl;
 
+import isptec.biblioteca.dao.CirculacaoDAO;
 import isptec.biblioteca.dao.EmprestimoDAO;
+import isptec.biblioteca.enumeracao.EstadoEmprestimo;
 import isptec.biblioteca.model.entities.Emprestimo;
 import isptec.biblioteca.model.entities.Livro;
 import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.Cursor;
 import isptec.biblioteca.repository.EmprestimoRepository;
+import isptec.biblioteca.repository.ResultadoCirculacao;
+import isptec.biblioteca.repository.Slice;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -17,10 +25,16 @@ import java.util.Optional;
  */
 public class EmprestimoRepositoryImpl implements EmprestimoRepository {
 
+    private static final Criterio ATIVOS = Criterio.igual("e.estado", EstadoEmprestimo.ATIVO);
+    private static final Criterio ATRASADOS = Criterio.igual("e.estado", EstadoEmprestimo.ATRASADO);
+    private static final String POR_VENCIMENTO = "e.data_devolucao_prevista, e.id";
+
     private final EmprestimoDAO emprestimoDAO;
+    private final CirculacaoDAO circulacaoDAO;
 
     public EmprestimoRepositoryImpl() {
         this.emprestimoDAO = new EmprestimoDAO();
+        this.circulacaoDAO = new CirculacaoDAO();
     }
 
     @Override
@@ -48,21 +62,32 @@ public class EmprestimoRepositoryImpl implements EmprestimoRepository {
 
     @Override
     public Optional<Emprestimo> findById(Integer id) {
-        try {
-            return Optional.ofNullable(emprestimoDAO.findById(id));
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimo por ID: " + e.getMessage());
-            return Optional.empty();
-        }
+        List<Emprestimo> emprestimos = buscar(Criterio.igual("e.id", id), "Erro ao buscar empréstimo por ID: ");
+        return emprestimos.isEmpty() ? Optional.empty() : Optional.of(emprestimos.get(0));
     }
 
     @Override
     public List<Emprestimo> findAll() {
+        return buscar(Criterio.todos(), "Erro ao listar empréstimos: ");
+    }
+
+    @Override
+    public Slice<Emprestimo> findSlice(String cursor, int tamanho) {
+        Slice.validarTamanho(tamanho);
         try {
-            return emprestimoDAO.findAll();
+            List<Emprestimo> emprestimos;
+            if (cursor == null) {
+                emprestimos = emprestimoDAO.findPaginaApos(null, 0, tamanho + 1);
+            } else {
+                String[] chave = Cursor.decodificar(cursor, 2);
+                LocalDate data = lerData(chave[0]);
+                emprestimos = emprestimoDAO.findPaginaApos(data, Cursor.lerId(chave), tamanho + 1);
+            }
+            return Slice.deLinhas(emprestimos, tamanho,
+                    emp -> Cursor.codificar(emp.getDataEmprestimo(), emp.getId()));
         } catch (SQLException e) {
-            System.err.println("Erro ao listar empréstimos: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao paginar empréstimos: " + e.getMessage());
+            return Slice.vazia();
         }
     }
 
@@ -84,141 +109,191 @@ public class EmprestimoRepositoryImpl implements EmprestimoRepository {
 
     @Override
     public void deleteAll() {
+        deleteWhere(Criterio.todos());
+    }
+
+    @Override
+    public long deleteWhere(Criterio criterio) {
         try {
-            List<Emprestimo> emprestimos = emprestimoDAO.findAll();
-            for (Emprestimo emp : emprestimos) {
-                emprestimoDAO.delete(emp.getId());
-            }
+            return emprestimoDAO.deleteWhere(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao deletar todos os empréstimos: " + e.getMessage());
+            System.err.println("Erro ao deletar empréstimos: " + e.getMessage());
+            return 0;
         }
     }
 
     @Override
-    public long count() {
+    public long updateWhere(Criterio criterio, Alteracao alteracao) {
         try {
-            return emprestimoDAO.findAll().size();
+            return emprestimoDAO.updateWhere(criterio, alteracao);
         } catch (SQLException e) {
-            System.err.println("Erro ao contar empréstimos: " + e.getMessage());
+            System.err.println("Erro ao atualizar empréstimos: " + e.getMessage());
             return 0;
         }
     }
 
     @Override
-    public boolean existsById(Integer id) {
+    public void truncate() {
         try {
-            return emprestimoDAO.findById(id) != null;
+            emprestimoDAO.truncate();
         } catch (SQLException e) {
-            return false;
+            System.err.println("Erro ao esvaziar empréstimos: " + e.getMessage());
         }
     }
 
+    @Override
+    public long count() {
+        return contar(Criterio.todos(), "Erro ao contar empréstimos: ");
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return contar(Criterio.igual("e.id", id), "Erro ao verificar empréstimo: ") > 0;
+    }
+
     @Override
     public List<Emprestimo> findByMembro(Membro membro) {
-        try {
-            return emprestimoDAO.findByMembro(membro.getId());
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimos por membro: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return buscar(Criterio.igual("e.membro_id", membro.getId()),
+                "Erro ao buscar empréstimos por membro: ");
     }
 
     @Override
     public List<Emprestimo> findByLivro(Livro livro) {
+        return buscar(Criterio.igual("e.livro_id", livro.getId()),
+                "Erro ao buscar empréstimos por livro: ");
+    }
+
+    @Override
+    public List<Emprestimo> findAtivos() {
+        return buscar(ATIVOS, POR_VENCIMENTO, "Erro ao buscar empréstimos ativos: ");
+    }
+
+    @Override
+    public List<Emprestimo> findAtrasados() {
+        return buscar(ATRASADOS, POR_VENCIMENTO, "Erro ao buscar empréstimos atrasados: ");
+    }
+
+    @Override
+    public List<Emprestimo> findAtivosByMembro(Membro membro) {
+        Criterio criterio = ATIVOS.e(Criterio.igual("e.membro_id", membro.getId()));
+        return buscar(criterio, POR_VENCIMENTO, "Erro ao buscar empréstimos ativos por membro: ");
+    }
+
+    @Override
+    public List<Emprestimo> findByDataDevolucaoPrevista(LocalDate data) {
+        Criterio criterio = ATIVOS.e(Criterio.igual("e.data_devolucao_prevista", data));
+        return buscar(criterio, POR_VENCIMENTO, "Erro ao buscar empréstimos por data de devolução: ");
+    }
+
+    @Override
+    public List<Emprestimo> findByPeriodo(LocalDate inicio, LocalDate fim) {
+        return buscar(Criterio.entre("e.data_emprestimo", inicio, fim),
+                "Erro ao buscar empréstimos por período: ");
+    }
+
+    @Override
+    public long countAtivos() {
+        return contar(ATIVOS, "Erro ao contar empréstimos ativos: ");
+    }
+
+    @Override
+    public long countAtrasados() {
+        return contar(ATRASADOS, "Erro ao contar empréstimos atrasados: ");
+    }
+
+    @Override
+    public List<Emprestimo> findWhere(Criterio criterio) {
+        return buscar(criterio, "Erro ao buscar empréstimos por critério: ");
+    }
+
+    @Override
+    public long count(Criterio criterio) {
+        return contar(criterio, "Erro ao contar empréstimos por critério: ");
+    }
+
+    @Override
+    public ResultadoCirculacao emprestarAtomico(int livroId, int membroId) {
         try {
-            return emprestimoDAO.findByLivro(livro.getId());
+            return circulacaoDAO.realizarEmprestimo(livroId, membroId);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimos por livro: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao realizar empréstimo: " + e.getMessage());
+            return ResultadoCirculacao.erro(e.getMessage());
         }
     }
 
     @Override
-    public List<Emprestimo> findAtivos() {
+    public ResultadoCirculacao devolverAtomico(int emprestimoId, LocalDate dataDevolucao) {
         try {
-            return emprestimoDAO.findAtivos();
+            return circulacaoDAO.devolverLivro(emprestimoId, dataDevolucao);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimos ativos: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao devolver livro: " + e.getMessage());
+            return ResultadoCirculacao.erro(e.getMessage());
         }
     }
 
     @Override
-    public List<Emprestimo> findAtrasados() {
+    public ResultadoCirculacao renovarAtomico(int emprestimoId, LocalDate novaData) {
         try {
-            return emprestimoDAO.findAtrasados();
+            return circulacaoDAO.renovarEmprestimo(emprestimoId, novaData);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimos atrasados: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao renovar empréstimo: " + e.getMessage());
+            return ResultadoCirculacao.erro(e.getMessage());
         }
     }
 
     @Override
-    public List<Emprestimo> findAtivosByMembro(Membro membro) {
+    public long marcarAtrasados() {
         try {
-            return emprestimoDAO.findAtivosByMembro(membro.getId());
+            return emprestimoDAO.marcarEmprestimosAtrasados();
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimos ativos por membro: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao marcar empréstimos atrasados: " + e.getMessage());
+            return 0;
         }
     }
 
-    @Override
-    public List<Emprestimo> findByDataDevolucaoPrevista(LocalDate data) {
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Busca empréstimos pelo critério; em caso de erro regista a mensagem e devolve lista vazia.
+     */
+    private List<Emprestimo> buscar(Criterio criterio, String mensagemErro) {
         try {
-            List<Emprestimo> todos = emprestimoDAO.findAtivos();
-            List<Emprestimo> resultado = new ArrayList<>();
-            for (Emprestimo emp : todos) {
-                if (emp.getDataDevolucaoPrevista() != null &&
-                    emp.getDataDevolucaoPrevista().equals(data)) {
-                    resultado.add(emp);
-                }
-            }
-            return resultado;
+            return emprestimoDAO.findWhere(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimos por data de devolução: " + e.getMessage());
+            System.err.println(mensagemErro + e.getMessage());
             return new ArrayList<>();
         }
     }
 
-    @Override
-    public List<Emprestimo> findByPeriodo(LocalDate inicio, LocalDate fim) {
+    /**
+     * Busca empréstimos pelo critério, com ordenação própria.
+     */
+    private List<Emprestimo> buscar(Criterio criterio, String ordenacao, String mensagemErro) {
         try {
-            List<Emprestimo> todos = emprestimoDAO.findAll();
-            List<Emprestimo> resultado = new ArrayList<>();
-            for (Emprestimo emp : todos) {
-                LocalDate dataEmp = emp.getDataEmprestimo();
-                if (dataEmp != null &&
-                    !dataEmp.isBefore(inicio) &&
-                    !dataEmp.isAfter(fim)) {
-                    resultado.add(emp);
-                }
-            }
-            return resultado;
+            return emprestimoDAO.findWhere(criterio, ordenacao);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar empréstimos por período: " + e.getMessage());
+            System.err.println(mensagemErro + e.getMessage());
             return new ArrayList<>();
         }
     }
 
-    @Override
-    public long countAtivos() {
+    /**
+     * Conta empréstimos pelo critério; em caso de erro regista a mensagem e devolve 0.
+     */
+    private long contar(Criterio criterio, String mensagemErro) {
         try {
-            return emprestimoDAO.findAtivos().size();
+            return emprestimoDAO.count(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao contar empréstimos ativos: " + e.getMessage());
+            System.err.println(mensagemErro + e.getMessage());
             return 0;
         }
     }
 
-    @Override
-    public long countAtrasados() {
+    private LocalDate lerData(String valor) {
         try {
-            return emprestimoDAO.findAtrasados().size();
-        } catch (SQLException e) {
-            System.err.println("Erro ao contar empréstimos atrasados: " + e.getMessage());
-            return 0;
+            return LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido", e);
         }
     }
 }
-
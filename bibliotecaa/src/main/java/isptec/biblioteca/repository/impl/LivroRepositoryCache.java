@@ -0,0 +1,86 @@
+package isptec.biblioteca.repository.impl;
+
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.repository.LivroRepository;
+import isptec.biblioteca.util.CacheLimitado;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Repositório de Livro com cache de entidades por ID e por ISBN.
+ *
+ * O ISBN é traduzido para o ID por um mapa próprio e o livro vem da mesma
+ * cache de findById; se o livro em cache já tiver outro ISBN a tradução é
+ * descartada e a pesquisa vai ao banco.
+ */
+public class LivroRepositoryCache extends RepositoryCache<Livro, LivroRepository> implements LivroRepository {
+
+    private final ConcurrentHashMap<String, Integer> idsPorIsbn = new ConcurrentHashMap<>();
+
+    public LivroRepositoryCache(LivroRepository origem, CacheLimitado<Integer, Livro> cache) {
+        super(origem, cache, Livro::getId);
+    }
+
+    @Override
+    public Livro findByIsbn(String isbn) {
+        if (isbn == null) {
+            return origem.findByIsbn(null);
+        }
+        Integer id = idsPorIsbn.get(isbn);
+        if (id != null) {
+            Livro emCache = cache.obter(id);
+            if (emCache != null && isbn.equals(emCache.getIsbn())) {
+                return emCache;
+            }
+            idsPorIsbn.remove(isbn, id);
+        }
+        long marca = cache.marca();
+        Livro lido = carregar(() -> origem.findByIsbn(isbn));
+        if (lido != null) {
+            guardar(lido, marca);
+            // Limitado pela cache: só se mantêm as traduções de livros ainda em cache
+            if (idsPorIsbn.size() >= cache.getMaximo()) {
+                idsPorIsbn.clear();
+            }
+            idsPorIsbn.put(isbn, lido.getId());
+        }
+        return lido;
+    }
+
+    @Override
+    public List<Livro> findByTituloContaining(String titulo) {
+        return origem.findByTituloContaining(titulo);
+    }
+
+    @Override
+    public List<Livro> findByAutor(String nomeAutor) {
+        return origem.findByAutor(nomeAutor);
+    }
+
+    @Override
+    public List<Livro> findByCategoria(String nomeCategoria) {
+        return origem.findByCategoria(nomeCategoria);
+    }
+
+    @Override
+    public List<Livro> findDisponiveis() {
+        return origem.findDisponiveis();
+    }
+
+    @Override
+    public List<Livro> findEmprestados() {
+        return origem.findEmprestados();
+    }
+
+    @Override
+    public boolean forEach(Consumer<Livro> acao) {
+        return origem.forEach(acao);
+    }
+
+    @Override
+    public long countDisponiveis() {
+        return origem.countDisponiveis();
+    }
+}
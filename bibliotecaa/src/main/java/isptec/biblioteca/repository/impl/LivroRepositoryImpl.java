@@ -2,18 +2,29 @@ package isptec.biblioteca.repository.impl;
 
 import isptec.biblioteca.dao.LivroDAO;
 import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.Cursor;
 import isptec.biblioteca.repository.LivroRepository;
+import isptec.biblioteca.repository.Slice;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Implementação do repositório de Livro usando DAO.
  */
 public class LivroRepositoryImpl implements LivroRepository {
 
+    /** Livros com pelo menos um exemplar disponível */
+    private static final Criterio DISPONIVEIS = Criterio.maiorQue("quantidade_disponivel", 0);
+
+    /** Livros com exemplares fora da biblioteca (o mesmo teste que o filtro em Java fazia) */
+    private static final Criterio EMPRESTADOS = Criterio.colunas("quantidade_disponivel", "<", "quantidade_total");
+
     private final LivroDAO livroDAO;
 
     public LivroRepositoryImpl() {
@@ -45,21 +56,31 @@ public class LivroRepositoryImpl implements LivroRepository {
 
     @Override
     public Optional<Livro> findById(Integer id) {
-        try {
-            return Optional.ofNullable(livroDAO.findById(id));
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar livro por ID: " + e.getMessage());
-            return Optional.empty();
-        }
+        List<Livro> livros = buscar(Criterio.igual("id", id), "Erro ao buscar livro por ID: ");
+        return livros.isEmpty() ? Optional.empty() : Optional.of(livros.get(0));
     }
 
     @Override
     public List<Livro> findAll() {
+        return buscar(Criterio.todos(), "Erro ao listar livros: ");
+    }
+
+    @Override
+    public Slice<Livro> findSlice(String cursor, int tamanho) {
+        Slice.validarTamanho(tamanho);
         try {
-            return livroDAO.findAll();
+            List<Livro> livros;
+            if (cursor == null) {
+                livros = livroDAO.findPaginaApos(null, 0, tamanho + 1);
+            } else {
+                String[] chave = Cursor.decodificar(cursor, 2);
+                livros = livroDAO.findPaginaApos(chave[0], Cursor.lerId(chave), tamanho + 1);
+            }
+            return Slice.deLinhas(livros, tamanho,
+                    livro -> Cursor.codificar(livro.getTitulo(), livro.getId()));
         } catch (SQLException e) {
-            System.err.println("Erro ao listar livros: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao paginar livros: " + e.getMessage());
+            return Slice.vazia();
         }
     }
 
@@ -81,147 +102,142 @@ public class LivroRepositoryImpl implements LivroRepository {
 
     @Override
     public void deleteAll() {
+        deleteWhere(Criterio.todos());
+    }
+
+    @Override
+    public long deleteWhere(Criterio criterio) {
         try {
-            List<Livro> livros = livroDAO.findAll();
-            for (Livro livro : livros) {
-                livroDAO.delete(livro.getId());
-            }
+            return livroDAO.deleteWhere(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao deletar todos os livros: " + e.getMessage());
+            System.err.println("Erro ao deletar livros: " + e.getMessage());
+            return 0;
         }
     }
 
     @Override
-    public long count() {
+    public long updateWhere(Criterio criterio, Alteracao alteracao) {
         try {
-            return livroDAO.findAll().size();
+            return livroDAO.updateWhere(criterio, alteracao);
         } catch (SQLException e) {
-            System.err.println("Erro ao contar livros: " + e.getMessage());
+            System.err.println("Erro ao atualizar livros: " + e.getMessage());
             return 0;
         }
     }
 
     @Override
-    public boolean existsById(Integer id) {
+    public void truncate() {
         try {
-            return livroDAO.findById(id) != null;
+            livroDAO.truncate();
         } catch (SQLException e) {
-            return false;
+            System.err.println("Erro ao esvaziar livros: " + e.getMessage());
         }
     }
 
+    @Override
+    public long count() {
+        return contar(Criterio.todos(), "Erro ao contar livros: ");
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return contar(Criterio.igual("id", id), "Erro ao verificar livro: ") > 0;
+    }
+
     @Override
     public Livro findByIsbn(String isbn) {
-        try {
-            return livroDAO.findByIsbn(isbn);
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar livro por ISBN: " + e.getMessage());
-            return null;
-        }
+        List<Livro> livros = buscar(Criterio.igual("isbn", isbn), "Erro ao buscar livro por ISBN: ");
+        return livros.isEmpty() ? null : livros.get(0);
     }
 
     @Override
     public List<Livro> findByTituloContaining(String titulo) {
-        try {
-            return livroDAO.findByTituloContaining(titulo);
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar livros por título: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return buscar(Criterio.contem("titulo", titulo), "Erro ao buscar livros por título: ");
     }
 
     @Override
     public List<Livro> findByAutor(String nomeAutor) {
-        try {
-            return livroDAO.findByAutor(nomeAutor);
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar livros por autor: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        Criterio criterio = Criterio.sql(
+                "EXISTS (SELECT 1 FROM livro_autor la INNER JOIN autor a ON a.id = la.autor_id " +
+                "WHERE la.livro_id = livro.id AND a.nome LIKE ?)", Criterio.padraoContem(nomeAutor));
+        return buscar(criterio, "Erro ao buscar livros por autor: ");
     }
 
     @Override
     public List<Livro> findByCategoria(String nomeCategoria) {
-        try {
-            return livroDAO.findByCategoria(nomeCategoria);
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar livros por categoria: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        Criterio criterio = Criterio.sql(
+                "EXISTS (SELECT 1 FROM livro_categoria lc INNER JOIN categoria c ON c.id = lc.categoria_id " +
+                "WHERE lc.livro_id = livro.id AND c.nome LIKE ?)", Criterio.padraoContem(nomeCategoria));
+        return buscar(criterio, "Erro ao buscar livros por categoria: ");
     }
 
     @Override
     public List<Livro> findDisponiveis() {
-        try {
-            return livroDAO.findDisponiveis();
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar livros disponíveis: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return buscar(DISPONIVEIS, "Erro ao buscar livros disponíveis: ");
     }
 
     public List<Livro> findByEditora(String editora) {
-        try {
-            List<Livro> todos = livroDAO.findAll();
-            List<Livro> resultado = new ArrayList<>();
-            String editoraLower = editora.toLowerCase();
-
-            for (Livro livro : todos) {
-                if (livro.getEditora() != null &&
-                    livro.getEditora().toLowerCase().contains(editoraLower)) {
-                    resultado.add(livro);
-                }
-            }
-            return resultado;
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar livros por editora: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return buscar(Criterio.contem("editora", editora), "Erro ao buscar livros por editora: ");
     }
 
     public List<Livro> findByAno(int ano) {
-        try {
-            List<Livro> todos = livroDAO.findAll();
-            List<Livro> resultado = new ArrayList<>();
+        return buscar(Criterio.igual("ano_publicacao", ano), "Erro ao buscar livros por ano: ");
+    }
 
-            for (Livro livro : todos) {
-                if (livro.getAnoPublicacao() == ano) {
-                    resultado.add(livro);
-                }
-            }
-            return resultado;
+    @Override
+    public List<Livro> findEmprestados() {
+        return buscar(EMPRESTADOS, "Erro ao buscar livros emprestados: ");
+    }
+
+    @Override
+    public boolean forEach(Consumer<Livro> acao) {
+        try {
+            livroDAO.forEach(acao);
+            return true;
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar livros por ano: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao percorrer livros: " + e.getMessage());
+            return false;
         }
     }
 
     @Override
-    public List<Livro> findEmprestados() {
-        try {
-            List<Livro> todos = livroDAO.findAll();
-            List<Livro> resultado = new ArrayList<>();
+    public long countDisponiveis() {
+        return contar(DISPONIVEIS, "Erro ao contar livros disponíveis: ");
+    }
 
-            for (Livro livro : todos) {
-                if (livro.getQuantidadeDisponivel() < livro.getQuantidadeTotal()) {
-                    resultado.add(livro);
-                }
-            }
-            return resultado;
+    @Override
+    public List<Livro> findWhere(Criterio criterio) {
+        return buscar(criterio, "Erro ao buscar livros por critério: ");
+    }
+
+    @Override
+    public long count(Criterio criterio) {
+        return contar(criterio, "Erro ao contar livros por critério: ");
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Busca livros pelo critério; em caso de erro regista a mensagem e devolve lista vazia.
+     */
+    private List<Livro> buscar(Criterio criterio, String mensagemErro) {
+        try {
+            return livroDAO.findWhere(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar livros emprestados: " + e.getMessage());
+            System.err.println(mensagemErro + e.getMessage());
             return new ArrayList<>();
         }
     }
 
-    @Override
-    public long countDisponiveis() {
+    /**
+     * Conta livros pelo critério; em caso de erro regista a mensagem e devolve 0.
+     */
+    private long contar(Criterio criterio, String mensagemErro) {
         try {
-            return livroDAO.findDisponiveis().size();
+            return livroDAO.count(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao contar livros disponíveis: " + e.getMessage());
+            System.err.println(mensagemErro + e.getMessage());
             return 0;
         }
     }
 }
-
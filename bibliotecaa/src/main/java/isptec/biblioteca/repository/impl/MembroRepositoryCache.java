@@ -0,0 +1,55 @@
+package isptec.biblioteca.repository.impl;
+
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.MembroRepository;
+import isptec.biblioteca.util.CacheLimitado;
+
+import java.util.List;
+
+/**
+ * Repositório de Membro com cache de entidades por ID.
+ */
+public class MembroRepositoryCache extends RepositoryCache<Membro, MembroRepository> implements MembroRepository {
+
+    public MembroRepositoryCache(MembroRepository origem, CacheLimitado<Integer, Membro> cache) {
+        super(origem, cache, Membro::getId);
+    }
+
+    @Override
+    public Membro findByMatricula(String matricula) {
+        return origem.findByMatricula(matricula);
+    }
+
+    @Override
+    public Membro findByEmail(String email) {
+        return origem.findByEmail(email);
+    }
+
+    @Override
+    public List<Membro> findByNomeContaining(String nome) {
+        return origem.findByNomeContaining(nome);
+    }
+
+    @Override
+    public List<Membro> findComEmprestimosAtivos() {
+        return origem.findComEmprestimosAtivos();
+    }
+
+    @Override
+    public List<Membro> findBloqueados() {
+        return origem.findBloqueados();
+    }
+
+    @Override
+    public List<Membro> findComMultasPendentes() {
+        return origem.findComMultasPendentes();
+    }
+
+    @Override
+    protected void guardar(Membro membro, long marca) {
+        // A cópia é de Membro: subclasses como Estudante não são guardadas
+        if (membro.getClass() == Membro.class) {
+            super.guardar(membro, marca);
+        }
+    }
+}
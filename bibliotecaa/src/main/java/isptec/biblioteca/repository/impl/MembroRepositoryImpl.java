@@ -2,7 +2,11 @@ package isptec.biblioteca.repository.impl;
 
 import isptec.biblioteca.dao.MembroDAO;
 import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.Cursor;
 import isptec.biblioteca.repository.MembroRepository;
+import isptec.biblioteca.repository.Slice;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -45,21 +49,30 @@ public class MembroRepositoryImpl implements MembroRepository {
 
     @Override
     public Optional<Membro> findById(Integer id) {
-        try {
-            return Optional.ofNullable(membroDAO.findById(id));
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar membro por ID: " + e.getMessage());
-            return Optional.empty();
-        }
+        return primeiro(buscar(Criterio.igual("m.id", id), "Erro ao buscar membro por ID: "));
     }
 
     @Override
     public List<Membro> findAll() {
+        return buscar(Criterio.todos(), "Erro ao listar membros: ");
+    }
+
+    @Override
+    public Slice<Membro> findSlice(String cursor, int tamanho) {
+        Slice.validarTamanho(tamanho);
         try {
-            return membroDAO.findAll();
+            List<Membro> membros;
+            if (cursor == null) {
+                membros = membroDAO.findPaginaApos(null, 0, tamanho + 1);
+            } else {
+                String[] chave = Cursor.decodificar(cursor, 2);
+                membros = membroDAO.findPaginaApos(chave[0], Cursor.lerId(chave), tamanho + 1);
+            }
+            return Slice.deLinhas(membros, tamanho,
+                    membro -> Cursor.codificar(membro.getNome(), membro.getId()));
         } catch (SQLException e) {
-            System.err.println("Erro ao listar membros: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println("Erro ao paginar membros: " + e.getMessage());
+            return Slice.vazia();
         }
     }
 
@@ -81,118 +94,120 @@ public class MembroRepositoryImpl implements MembroRepository {
 
     @Override
     public void deleteAll() {
+        deleteWhere(Criterio.todos());
+    }
+
+    @Override
+    public long deleteWhere(Criterio criterio) {
         try {
-            List<Membro> membros = membroDAO.findAll();
-            for (Membro membro : membros) {
-                membroDAO.delete(membro.getId());
-            }
+            return membroDAO.deleteWhere(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao deletar todos os membros: " + e.getMessage());
+            System.err.println("Erro ao deletar membros: " + e.getMessage());
+            return 0;
         }
     }
 
     @Override
-    public long count() {
+    public long updateWhere(Criterio criterio, Alteracao alteracao) {
         try {
-            return membroDAO.findAll().size();
+            return membroDAO.updateWhere(criterio, alteracao);
         } catch (SQLException e) {
-            System.err.println("Erro ao contar membros: " + e.getMessage());
+            System.err.println("Erro ao atualizar membros: " + e.getMessage());
             return 0;
         }
     }
 
     @Override
-    public boolean existsById(Integer id) {
+    public void truncate() {
         try {
-            return membroDAO.findById(id) != null;
+            membroDAO.truncate();
         } catch (SQLException e) {
-            return false;
+            System.err.println("Erro ao esvaziar membros: " + e.getMessage());
         }
     }
 
+    @Override
+    public long count() {
+        return contar(Criterio.todos(), "Erro ao contar membros: ");
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return contar(Criterio.igual("m.id", id), "Erro ao verificar membro: ") > 0;
+    }
+
     @Override
     public Membro findByMatricula(String matricula) {
-        try {
-            return membroDAO.findByMatricula(matricula);
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar membro por matrícula: " + e.getMessage());
-            return null;
-        }
+        return primeiro(buscar(Criterio.igual("m.matricula", matricula),
+                "Erro ao buscar membro por matrícula: ")).orElse(null);
     }
 
     @Override
     public Membro findByEmail(String email) {
-        try {
-            return membroDAO.findByEmail(email);
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar membro por email: " + e.getMessage());
-            return null;
-        }
+        return primeiro(buscar(Criterio.igual("p.email", email),
+                "Erro ao buscar membro por email: ")).orElse(null);
     }
 
     @Override
     public List<Membro> findByNomeContaining(String nome) {
-        try {
-            List<Membro> todos = membroDAO.findAll();
-            List<Membro> resultado = new ArrayList<>();
-            String nomeLower = nome.toLowerCase();
-
-            for (Membro membro : todos) {
-                if (membro.getNome().toLowerCase().contains(nomeLower)) {
-                    resultado.add(membro);
-                }
-            }
-            return resultado;
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar membros por nome: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        return buscar(Criterio.contem("p.nome", nome), "Erro ao buscar membros por nome: ");
     }
 
     @Override
     public List<Membro> findComEmprestimosAtivos() {
-        try {
-            return membroDAO.findAtivos();
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar membros ativos: " + e.getMessage());
-            return new ArrayList<>();
-        }
+        Criterio criterio = Criterio.sql(
+                "EXISTS (SELECT 1 FROM emprestimo e WHERE e.membro_id = m.id AND e.estado = 'ATIVO')");
+        return buscar(criterio, "Erro ao buscar membros com empréstimos ativos: ");
     }
 
     @Override
     public List<Membro> findBloqueados() {
-        try {
-            List<Membro> todos = membroDAO.findAll();
-            List<Membro> bloqueados = new ArrayList<>();
+        return buscar(Criterio.igual("m.bloqueado", true), "Erro ao buscar membros bloqueados: ");
+    }
 
-            for (Membro membro : todos) {
-                if (membro.isBloqueado()) {
-                    bloqueados.add(membro);
-                }
-            }
-            return bloqueados;
+    @Override
+    public List<Membro> findComMultasPendentes() {
+        return buscar(Criterio.maiorQue("m.multa_pendente", 0),
+                "Erro ao buscar membros com multas pendentes: ");
+    }
+
+    @Override
+    public List<Membro> findWhere(Criterio criterio) {
+        return buscar(criterio, "Erro ao buscar membros por critério: ");
+    }
+
+    @Override
+    public long count(Criterio criterio) {
+        return contar(criterio, "Erro ao contar membros por critério: ");
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Busca membros pelo critério; em caso de erro regista a mensagem e devolve lista vazia.
+     */
+    private List<Membro> buscar(Criterio criterio, String mensagemErro) {
+        try {
+            return membroDAO.findWhere(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar membros bloqueados: " + e.getMessage());
+            System.err.println(mensagemErro + e.getMessage());
             return new ArrayList<>();
         }
     }
 
-    @Override
-    public List<Membro> findComMultasPendentes() {
+    /**
+     * Conta membros pelo critério; em caso de erro regista a mensagem e devolve 0.
+     */
+    private long contar(Criterio criterio, String mensagemErro) {
         try {
-            List<Membro> todos = membroDAO.findAll();
-            List<Membro> comMultas = new ArrayList<>();
-
-            for (Membro membro : todos) {
-                if (membro.getMultaPendente() > 0) {
-                    comMultas.add(membro);
-                }
-            }
-            return comMultas;
+            return membroDAO.count(criterio);
         } catch (SQLException e) {
-            System.err.println("Erro ao buscar membros com multas pendentes: " + e.getMessage());
-            return new ArrayList<>();
+            System.err.println(mensagemErro + e.getMessage());
+            return 0;
         }
     }
-}
 
+    private Optional<Membro> primeiro(List<Membro> membros) {
+        return membros.isEmpty() ? Optional.empty() : Optional.of(membros.get(0));
+    }
+}
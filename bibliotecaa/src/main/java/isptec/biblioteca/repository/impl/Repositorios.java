@@ -0,0 +1,175 @@
+package isptec.biblioteca.repository.impl;
+
+import isptec.biblioteca.dao.CacheConsultas;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.EmprestimoRepository;
+import isptec.biblioteca.repository.LivroRepository;
+import isptec.biblioteca.repository.MembroRepository;
+import isptec.biblioteca.repository.ReservaRepository;
+import isptec.biblioteca.repository.SomenteLeitura;
+import isptec.biblioteca.util.CacheLimitado;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Fábrica de repositórios com encaminhamento de leituras.
+ *
+ * Os métodos marcados com {@link SomenteLeitura} correm dentro de
+ * {@link DatabaseManager#iniciarLeitura()} e podem usar a réplica; os
+ * restantes usam sempre o primário. Sem réplica configurada o
+ * comportamento é o do repositório original.
+ *
+ * Livros e membros passam ainda por uma cache de entidades partilhada por
+ * todos os repositórios criados aqui (cache.entidades.maximo e
+ * cache.entidades.validadeSegundos em database.properties; máximo 0
+ * desativa). As escritas feitas fora do repositório (importador,
+ * procedimentos, DAOs) são vistas pelo mesmo gancho da
+ * {@link CacheConsultas}; como o SQL não diz que IDs mudaram, uma escrita
+ * nas tabelas de livros ou de membros esvazia a respetiva cache. Quem
+ * souber o ID pode chamar antes {@link #invalidarLivro} ou
+ * {@link #invalidarMembro}.
+ * As leituras que enchem a cache vão ao primário (ver {@link RepositoryCache}).
+ */
+public final class Repositorios {
+
+    private static final CacheLimitado<Integer, Livro> CACHE_LIVROS = criarCache(Livro::new);
+    private static final CacheLimitado<Integer, Membro> CACHE_MEMBROS = criarCache(Membro::new);
+
+    static {
+        if (CACHE_LIVROS != null || CACHE_MEMBROS != null) {
+            CacheConsultas.getInstance().aoEscrever(Repositorios::aposEscrita);
+        }
+    }
+
+    private Repositorios() {
+    }
+
+    public static LivroRepository livros() {
+        LivroRepository repositorio = comRoteamento(LivroRepository.class, new LivroRepositoryImpl());
+        return CACHE_LIVROS != null ? new LivroRepositoryCache(repositorio, CACHE_LIVROS) : repositorio;
+    }
+
+    public static MembroRepository membros() {
+        MembroRepository repositorio = comRoteamento(MembroRepository.class, new MembroRepositoryImpl());
+        return CACHE_MEMBROS != null ? new MembroRepositoryCache(repositorio, CACHE_MEMBROS) : repositorio;
+    }
+
+    public static EmprestimoRepository emprestimos() {
+        return comRoteamento(EmprestimoRepository.class, new EmprestimoRepositoryImpl());
+    }
+
+    public static ReservaRepository reservas() {
+        return comRoteamento(ReservaRepository.class, new ReservaRepositoryImpl());
+    }
+
+    /**
+     * Descarta o livro da cache de entidades (alterado fora do repositório).
+     */
+    public static void invalidarLivro(int livroId) {
+        if (CACHE_LIVROS != null) {
+            CACHE_LIVROS.invalidar(livroId);
+        }
+    }
+
+    /**
+     * Descarta o membro da cache de entidades (alterado fora do repositório).
+     */
+    public static void invalidarMembro(int membroId) {
+        if (CACHE_MEMBROS != null) {
+            CACHE_MEMBROS.invalidar(membroId);
+        }
+    }
+
+    /**
+     * Esvazia as caches de livros e membros.
+     */
+    public static void limparCaches() {
+        if (CACHE_LIVROS != null) {
+            CACHE_LIVROS.limpar();
+        }
+        if (CACHE_MEMBROS != null) {
+            CACHE_MEMBROS.limpar();
+        }
+    }
+
+    /**
+     * Cache de livros, para consultar as estatísticas (null se desativada).
+     */
+    public static CacheLimitado<Integer, Livro> getCacheLivros() {
+        return CACHE_LIVROS;
+    }
+
+    /**
+     * Cache de membros, para consultar as estatísticas (null se desativada).
+     */
+    public static CacheLimitado<Integer, Membro> getCacheMembros() {
+        return CACHE_MEMBROS;
+    }
+
+    /**
+     * Envolve o repositório num proxy que encaminha as leituras.
+     *
+     * @param tipo interface do repositório
+     * @param alvo implementação a envolver
+     */
+    public static <R> R comRoteamento(Class<R> tipo, R alvo) {
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        if (!dbManager.isReplicaConfigurada()) {
+            return alvo;
+        }
+        Object proxy = Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+                (instancia, metodo, args) -> invocar(dbManager, alvo, metodo, args));
+        return tipo.cast(proxy);
+    }
+
+    /**
+     * Escrita vista numa conexão: esvazia as caches cujas tabelas (com as
+     * de autores e categorias do livro) foram escritas.
+     */
+    private static void aposEscrita(Set<String> tabelas) {
+        boolean desconhecidas = tabelas.contains("*");
+        if (CACHE_LIVROS != null && (desconhecidas || tabelas.contains("livro")
+                || tabelas.contains("livro_autor") || tabelas.contains("livro_categoria"))) {
+            CACHE_LIVROS.limpar();
+        }
+        if (CACHE_MEMBROS != null && (desconhecidas || tabelas.contains("membro"))) {
+            CACHE_MEMBROS.limpar();
+        }
+    }
+
+    private static <T> CacheLimitado<Integer, T> criarCache(UnaryOperator<T> copiador) {
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        String maximo = dbManager.getPropriedade("cache.entidades.maximo");
+        String validade = dbManager.getPropriedade("cache.entidades.validadeSegundos");
+        int tamanho = maximo != null && !maximo.isBlank() ? Integer.parseInt(maximo.trim()) : 10_000;
+        if (tamanho <= 0) {
+            return null;
+        }
+        long segundos = validade != null && !validade.isBlank() ? Long.parseLong(validade.trim()) : 60;
+        return new CacheLimitado<>(tamanho, segundos, TimeUnit.SECONDS, copiador);
+    }
+
+    private static Object invocar(DatabaseManager dbManager, Object alvo, Method metodo, Object[] args)
+            throws Throwable {
+        boolean leitura = metodo.isAnnotationPresent(SomenteLeitura.class);
+        if (leitura) {
+            dbManager.iniciarLeitura();
+        }
+        try {
+            return metodo.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            if (leitura) {
+                dbManager.terminarLeitura();
+            }
+        }
+    }
+}
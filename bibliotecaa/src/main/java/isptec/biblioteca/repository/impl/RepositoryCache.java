@@ -0,0 +1,158 @@
+package isptec.biblioteca.repository.impl;
+
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.Repository;
+import isptec.biblioteca.repository.Slice;
+import isptec.biblioteca.util.CacheLimitado;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Base dos repositórios com cache de entidades por ID à frente de outro
+ * repositório.
+ *
+ * findById é servido pela {@link CacheLimitado} (que devolve sempre uma
+ * cópia); as restantes leituras vão ao repositório de origem. save,
+ * deleteById e delete invalidam o ID afetado, e as escritas em massa
+ * (deleteWhere, updateWhere, deleteAll, truncate) esvaziam a cache.
+ *
+ * O que vai ficar em cache é lido sempre do primário: uma falha logo após
+ * uma invalidação iria à réplica e guardaria o valor antigo.
+ *
+ * @param <T> tipo da entidade
+ * @param <R> tipo do repositório de origem
+ */
+abstract class RepositoryCache<T, R extends Repository<T, Integer>> implements Repository<T, Integer> {
+
+    protected final R origem;
+    protected final CacheLimitado<Integer, T> cache;
+    private final ToIntFunction<T> id;
+
+    protected RepositoryCache(R origem, CacheLimitado<Integer, T> cache, ToIntFunction<T> id) {
+        this.origem = origem;
+        this.cache = cache;
+        this.id = id;
+    }
+
+    @Override
+    public T save(T entity) {
+        T salvo = origem.save(entity);
+        if (entity != null) {
+            cache.invalidar(id.applyAsInt(entity));
+        }
+        return salvo;
+    }
+
+    @Override
+    public Optional<T> findById(Integer chave) {
+        if (chave == null) {
+            return origem.findById(null);
+        }
+        T emCache = cache.obter(chave);
+        if (emCache != null) {
+            return Optional.of(emCache);
+        }
+        long marca = cache.marca();
+        Optional<T> lido = carregar(() -> origem.findById(chave));
+        lido.ifPresent(entidade -> guardar(entidade, marca));
+        return lido;
+    }
+
+    @Override
+    public List<T> findAll() {
+        return origem.findAll();
+    }
+
+    @Override
+    public Slice<T> findSlice(String cursor, int tamanho) {
+        return origem.findSlice(cursor, tamanho);
+    }
+
+    @Override
+    public List<T> findWhere(Criterio criterio) {
+        return origem.findWhere(criterio);
+    }
+
+    @Override
+    public long count(Criterio criterio) {
+        return origem.count(criterio);
+    }
+
+    @Override
+    public void deleteById(Integer chave) {
+        origem.deleteById(chave);
+        if (chave != null) {
+            cache.invalidar(chave);
+        }
+    }
+
+    @Override
+    public void delete(T entity) {
+        origem.delete(entity);
+        if (entity != null) {
+            cache.invalidar(id.applyAsInt(entity));
+        }
+    }
+
+    @Override
+    public boolean existsById(Integer chave) {
+        return origem.existsById(chave);
+    }
+
+    @Override
+    public long count() {
+        return origem.count();
+    }
+
+    @Override
+    public void deleteAll() {
+        origem.deleteAll();
+        cache.limpar();
+    }
+
+    @Override
+    public long deleteWhere(Criterio criterio) {
+        long removidos = origem.deleteWhere(criterio);
+        cache.limpar();
+        return removidos;
+    }
+
+    @Override
+    public long updateWhere(Criterio criterio, Alteracao alteracao) {
+        long alterados = origem.updateWhere(criterio, alteracao);
+        cache.limpar();
+        return alterados;
+    }
+
+    @Override
+    public void truncate() {
+        origem.truncate();
+        cache.limpar();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Leitura da origem para guardar em cache, feita no primário.
+     */
+    protected <X> X carregar(Supplier<X> leitura) {
+        DatabaseManager.iniciarPrimario();
+        try {
+            return leitura.get();
+        } finally {
+            DatabaseManager.terminarPrimario();
+        }
+    }
+
+    /**
+     * Guarda a entidade lida da origem, se não houve escritas desde a marca.
+     */
+    protected void guardar(T entidade, long marca) {
+        cache.colocar(id.applyAsInt(entidade), entidade, marca);
+    }
+}
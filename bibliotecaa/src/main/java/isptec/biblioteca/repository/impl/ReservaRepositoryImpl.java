@@ -0,0 +1,259 @@
+package isptec.biblioteca.repository.impl;
+
+import isptec.biblioteca.dao.ReservaDAO;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.model.entities.Reserva;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.Cursor;
+import isptec.biblioteca.repository.ReservaRepository;
+import isptec.biblioteca.repository.Slice;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementação do repositório de Reserva usando DAO.
+ */
+public class ReservaRepositoryImpl implements ReservaRepository {
+
+    private static final Criterio ATIVAS = Criterio.igual("r.ativa", true);
+
+    private final ReservaDAO reservaDAO;
+
+    public ReservaRepositoryImpl() {
+        this.reservaDAO = new ReservaDAO();
+    }
+
+    @Override
+    public Reserva save(Reserva entity) {
+        try {
+            if (entity.getId() == 0) {
+                // Insert
+                int id = reservaDAO.insert(entity);
+                if (id > 0) {
+                    entity.setId(id);
+                    return entity;
+                }
+            } else {
+                // Update
+                if (reservaDAO.update(entity)) {
+                    return entity;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao salvar reserva: " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public Optional<Reserva> findById(Integer id) {
+        try {
+            return Optional.ofNullable(reservaDAO.findById(id));
+        } catch (SQLException e) {
+            System.err.println("Erro ao buscar reserva por ID: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<Reserva> findAll() {
+        return buscar(Criterio.todos(), "Erro ao listar reservas: ");
+    }
+
+    @Override
+    public Slice<Reserva> findSlice(String cursor, int tamanho) {
+        Slice.validarTamanho(tamanho);
+        try {
+            List<Reserva> reservas;
+            if (cursor == null) {
+                reservas = reservaDAO.findPaginaApos(null, 0, tamanho + 1);
+            } else {
+                String[] chave = Cursor.decodificar(cursor, 2);
+                reservas = reservaDAO.findPaginaApos(lerData(chave[0]), Cursor.lerId(chave), tamanho + 1);
+            }
+            return Slice.deLinhas(reservas, tamanho,
+                    reserva -> Cursor.codificar(reserva.getDataReserva(), reserva.getId()));
+        } catch (SQLException e) {
+            System.err.println("Erro ao paginar reservas: " + e.getMessage());
+            return Slice.vazia();
+        }
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        try {
+            reservaDAO.delete(id);
+        } catch (SQLException e) {
+            System.err.println("Erro ao deletar reserva: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void delete(Reserva reserva) {
+        if (reserva != null) {
+            deleteById(reserva.getId());
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        deleteWhere(Criterio.todos());
+    }
+
+    @Override
+    public long deleteWhere(Criterio criterio) {
+        try {
+            return reservaDAO.deleteWhere(criterio);
+        } catch (SQLException e) {
+            System.err.println("Erro ao deletar reservas: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public long updateWhere(Criterio criterio, Alteracao alteracao) {
+        try {
+            return reservaDAO.updateWhere(criterio, alteracao);
+        } catch (SQLException e) {
+            System.err.println("Erro ao atualizar reservas: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public void truncate() {
+        try {
+            reservaDAO.truncate();
+        } catch (SQLException e) {
+            System.err.println("Erro ao esvaziar reservas: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long count() {
+        return contar(Criterio.todos(), "Erro ao contar reservas: ");
+    }
+
+    @Override
+    public boolean existsById(Integer id) {
+        return contar(Criterio.igual("r.id", id), "Erro ao verificar reserva: ") > 0;
+    }
+
+    @Override
+    public List<Reserva> findByMembro(Membro membro) {
+        return buscar(Criterio.igual("r.membro_id", membro.getId()), "Erro ao buscar reservas por membro: ");
+    }
+
+    @Override
+    public List<Reserva> findByLivro(Livro livro) {
+        return buscar(Criterio.igual("r.livro_id", livro.getId()), "Erro ao buscar reservas por livro: ");
+    }
+
+    @Override
+    public List<Reserva> findAtivas() {
+        return buscar(ATIVAS, "Erro ao buscar reservas ativas: ");
+    }
+
+    @Override
+    public List<Reserva> findAtivasByLivro(Livro livro) {
+        // (livro_id, ativa, data_reserva) coincide com o índice da fila
+        Criterio criterio = Criterio.igual("r.livro_id", livro.getId()).e(ATIVAS);
+        return buscar(criterio, "Erro ao buscar reservas ativas por livro: ");
+    }
+
+    @Override
+    public List<Reserva> findAtivasByMembro(Membro membro) {
+        Criterio criterio = Criterio.igual("r.membro_id", membro.getId()).e(ATIVAS);
+        return buscar(criterio, "Erro ao buscar reservas ativas por membro: ");
+    }
+
+    @Override
+    public List<Reserva> findExpiradas() {
+        Criterio criterio = ATIVAS.e(Criterio.menorQue("r.data_expiracao", LocalDate.now()));
+        return buscar(criterio, "Erro ao buscar reservas expiradas: ");
+    }
+
+    @Override
+    public boolean existsAtivaByMembroAndLivro(Membro membro, Livro livro) {
+        Criterio criterio = Criterio.igual("r.livro_id", livro.getId())
+                .e(ATIVAS)
+                .e(Criterio.igual("r.membro_id", membro.getId()));
+        return contar(criterio, "Erro ao verificar reserva ativa: ") > 0;
+    }
+
+    @Override
+    public long countAtivas() {
+        return contar(ATIVAS, "Erro ao contar reservas ativas: ");
+    }
+
+    @Override
+    public List<Integer> expirarVencidas() {
+        try {
+            return reservaDAO.expirarVencidas();
+        } catch (SQLException e) {
+            System.err.println("Erro ao expirar reservas: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<long[]> findChavesAtivas() {
+        try {
+            return reservaDAO.findChavesAtivas();
+        } catch (SQLException e) {
+            System.err.println("Erro ao ler filas de reservas: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Reserva> findWhere(Criterio criterio) {
+        return buscar(criterio, "Erro ao buscar reservas por critério: ");
+    }
+
+    @Override
+    public long count(Criterio criterio) {
+        return contar(criterio, "Erro ao contar reservas por critério: ");
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Busca reservas pelo critério; em caso de erro regista a mensagem e devolve lista vazia.
+     */
+    private List<Reserva> buscar(Criterio criterio, String mensagemErro) {
+        try {
+            return reservaDAO.findWhere(criterio);
+        } catch (SQLException e) {
+            System.err.println(mensagemErro + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Conta reservas pelo critério; em caso de erro regista a mensagem e devolve 0.
+     */
+    private long contar(Criterio criterio, String mensagemErro) {
+        try {
+            return reservaDAO.count(criterio);
+        } catch (SQLException e) {
+            System.err.println(mensagemErro + e.getMessage());
+            return 0;
+        }
+    }
+
+    private LocalDate lerData(String valor) {
+        try {
+            return LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido", e);
+        }
+    }
+}
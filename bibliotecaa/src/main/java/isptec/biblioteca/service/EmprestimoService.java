@@ -25,6 +25,12 @@ public interface EmprestimoService {
      */
     boolean emprestarLivro(Membro membro, Livro livro);
 
+    /**
+     * Realiza o empréstimo e devolve o empréstimo criado, ou null se não
+     * foi permitido.
+     */
+    Emprestimo realizarEmprestimo(Membro membro, Livro livro);
+
     /**
      * Registra um empréstimo já criado.
      */
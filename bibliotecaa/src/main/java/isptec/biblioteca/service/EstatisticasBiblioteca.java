@@ -0,0 +1,259 @@
+package isptec.biblioteca.service;
+
+import isptec.biblioteca.model.Emprestimo;
+import isptec.biblioteca.model.Livro;
+import isptec.biblioteca.model.Membro;
+import isptec.biblioteca.model.Reserva;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Estatísticas do {@link LibraryService} mantidas por incremento: cada
+ * empréstimo, devolução, renovação, multa, reserva ou alteração de livro e
+ * membro ajusta os contadores, e a leitura é O(1) em vez de percorrer as
+ * listas a cada painel ou pergunta ao chatbot.
+ *
+ * As multas dos empréstimos atrasados crescem com os dias, e os objetos do
+ * modelo podem ser alterados diretamente pelas vistas; por isso os valores
+ * são reconciliados com as listas (a fonte de verdade) na primeira leitura
+ * de cada dia e, no máximo, a cada {@link #INTERVALO_RECONCILIACAO_MINUTOS}
+ * minutos. A reconciliação corrige os contadores com um único ajuste, sem
+ * perder eventos que ocorram entretanto (um eventual desvio é corrigido na
+ * seguinte) e conta as divergências encontradas.
+ */
+final class EstatisticasBiblioteca {
+
+    static final long INTERVALO_RECONCILIACAO_MINUTOS = 5;
+
+    private final Supplier<List<Livro>> livros;
+    private final Supplier<List<Membro>> membros;
+    private final Supplier<List<Emprestimo>> emprestimos;
+    private final Supplier<List<Reserva>> reservas;
+
+    // Exemplares por livro, para ajustar o total quando um livro é alterado no próprio objeto
+    private final Map<String, Integer> exemplaresPorLivro = new ConcurrentHashMap<>();
+    private final Set<String> membrosAtivos = ConcurrentHashMap.newKeySet();
+    private final LongAdder exemplares = new LongAdder();
+    private final LongAdder emprestimosAtivos = new LongAdder();
+    private final LongAdder emprestimosAtrasados = new LongAdder();
+    private final LongAdder reservasPendentes = new LongAdder();
+    private final DoubleAdder multas = new DoubleAdder();
+
+    private final Object lockReconciliacao = new Object();
+    private volatile LocalDate dia = LocalDate.now();
+    private volatile long proximaReconciliacao = System.nanoTime() + intervalo();
+    private final LongAdder reconciliacoes = new LongAdder();
+    private final LongAdder divergencias = new LongAdder();
+
+    EstatisticasBiblioteca(Supplier<List<Livro>> livros, Supplier<List<Membro>> membros,
+                           Supplier<List<Emprestimo>> emprestimos, Supplier<List<Reserva>> reservas) {
+        this.livros = livros;
+        this.membros = membros;
+        this.emprestimos = emprestimos;
+        this.reservas = reservas;
+    }
+
+    // === EVENTOS ===
+
+    /** Livro adicionado ou alterado */
+    void livroGuardado(Livro livro) {
+        Integer antes = exemplaresPorLivro.put(livro.getId(), livro.getQuantidade());
+        exemplares.add(livro.getQuantidade() - (antes != null ? antes : 0));
+    }
+
+    void livroRemovido(String livroId) {
+        Integer antes = exemplaresPorLivro.remove(livroId);
+        if (antes != null) {
+            exemplares.add(-antes);
+        }
+    }
+
+    /** Membro adicionado, alterado, bloqueado ou desbloqueado */
+    void membroGuardado(Membro membro) {
+        if (membro.isAtivo()) {
+            membrosAtivos.add(membro.getId());
+        } else {
+            membrosAtivos.remove(membro.getId());
+        }
+    }
+
+    void emprestimoCriado(Emprestimo emprestimo) {
+        somar(emprestimo, 1);
+    }
+
+    /**
+     * Aplica a alteração (devolução, renovação, multa) e ajusta os
+     * contadores pela diferença entre o estado anterior e o novo.
+     */
+    void alterarEmprestimo(Emprestimo emprestimo, Runnable alteracao) {
+        somar(emprestimo, -1);
+        alteracao.run();
+        somar(emprestimo, 1);
+    }
+
+    void reservaCriada(Reserva reserva) {
+        if (reserva.isPendente()) {
+            reservasPendentes.increment();
+        }
+    }
+
+    /** Aplica a alteração (cancelamento, conclusão) e ajusta as reservas pendentes */
+    void alterarReserva(Reserva reserva, Runnable alteracao) {
+        boolean antes = reserva.isPendente();
+        alteracao.run();
+        boolean depois = reserva.isPendente();
+        if (antes != depois) {
+            reservasPendentes.add(depois ? 1 : -1);
+        }
+    }
+
+    // === LEITURA ===
+
+    int getTotalExemplares() {
+        verificar();
+        return (int) exemplares.sum();
+    }
+
+    int getEmprestimosAtivos() {
+        verificar();
+        return (int) emprestimosAtivos.sum();
+    }
+
+    int getEmprestimosAtrasados() {
+        verificar();
+        return (int) emprestimosAtrasados.sum();
+    }
+
+    int getReservasPendentes() {
+        verificar();
+        return (int) reservasPendentes.sum();
+    }
+
+    int getMembrosAtivos() {
+        verificar();
+        return membrosAtivos.size();
+    }
+
+    double getTotalMultas() {
+        verificar();
+        return multas.sum();
+    }
+
+    long getReconciliacoes() {
+        return reconciliacoes.sum();
+    }
+
+    /** Reconciliações em que algum contador estava errado */
+    long getDivergencias() {
+        return divergencias.sum();
+    }
+
+    /**
+     * Recalcula tudo a partir das listas e corrige os contadores.
+     */
+    void reconciliar() {
+        synchronized (lockReconciliacao) {
+            LocalDate hoje = LocalDate.now();
+            Map<String, Integer> porLivro = new HashMap<>();
+            long totalExemplares = 0;
+            for (Livro livro : livros.get()) {
+                porLivro.put(livro.getId(), livro.getQuantidade());
+                totalExemplares += livro.getQuantidade();
+            }
+            Set<String> ativos = new HashSet<>();
+            for (Membro membro : membros.get()) {
+                if (membro.isAtivo()) {
+                    ativos.add(membro.getId());
+                }
+            }
+            long totalAtivos = 0;
+            long totalAtrasados = 0;
+            double totalMultas = 0;
+            for (Emprestimo emprestimo : emprestimos.get()) {
+                if (emprestimo.isAtivo()) {
+                    totalAtivos++;
+                    totalMultas += emprestimo.getMulta();
+                    if (emprestimo.isAtrasado()) {
+                        totalAtrasados++;
+                    }
+                }
+            }
+            long totalPendentes = 0;
+            for (Reserva reserva : reservas.get()) {
+                if (reserva.isPendente()) {
+                    totalPendentes++;
+                }
+            }
+
+            exemplaresPorLivro.keySet().retainAll(porLivro.keySet());
+            exemplaresPorLivro.putAll(porLivro);
+            boolean divergiu = !membrosAtivos.equals(ativos);
+            membrosAtivos.retainAll(ativos);
+            membrosAtivos.addAll(ativos);
+            divergiu |= corrigir(exemplares, totalExemplares);
+            divergiu |= corrigir(emprestimosAtivos, totalAtivos);
+            divergiu |= corrigir(emprestimosAtrasados, totalAtrasados);
+            divergiu |= corrigir(reservasPendentes, totalPendentes);
+            double diferencaMultas = totalMultas - multas.sum();
+            if (Math.abs(diferencaMultas) > 0.005) {
+                multas.add(diferencaMultas);
+                // A passagem do dia muda as multas sem ser divergência
+                divergiu |= hoje.equals(dia);
+            }
+
+            if (divergiu) {
+                divergencias.increment();
+            }
+            reconciliacoes.increment();
+            dia = hoje;
+            proximaReconciliacao = System.nanoTime() + intervalo();
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /** Reconcilia se mudou o dia ou passou o intervalo */
+    private void verificar() {
+        if (System.nanoTime() - proximaReconciliacao >= 0 || !LocalDate.now().equals(dia)) {
+            reconciliar();
+        }
+    }
+
+    /** Soma (sinal 1) ou retira (sinal -1) a contribuição do empréstimo */
+    private void somar(Emprestimo emprestimo, int sinal) {
+        if (!emprestimo.isAtivo()) {
+            return;
+        }
+        emprestimosAtivos.add(sinal);
+        if (emprestimo.isAtrasado()) {
+            emprestimosAtrasados.add(sinal);
+        }
+        double multa = emprestimo.getMulta();
+        if (multa != 0) {
+            multas.add(sinal * multa);
+        }
+    }
+
+    private static boolean corrigir(LongAdder contador, long valor) {
+        long diferenca = valor - contador.sum();
+        if (diferenca == 0) {
+            return false;
+        }
+        contador.add(diferenca);
+        return true;
+    }
+
+    private static long intervalo() {
+        return TimeUnit.MINUTES.toNanos(INTERVALO_RECONCILIACAO_MINUTOS);
+    }
+}
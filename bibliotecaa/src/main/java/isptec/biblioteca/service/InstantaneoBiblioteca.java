@@ -0,0 +1,348 @@
+package isptec.biblioteca.service;
+
+import isptec.biblioteca.model.Emprestimo;
+import isptec.biblioteca.model.Livro;
+import isptec.biblioteca.model.Membro;
+import isptec.biblioteca.model.Reserva;
+import isptec.biblioteca.repository.Cursor;
+import isptec.biblioteca.repository.Slice;
+import isptec.biblioteca.util.MapaPersistente;
+import isptec.biblioteca.util.VetorPersistente;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versão imutável dos livros, membros, empréstimos e reservas do
+ * {@link LibraryService}.
+ *
+ * Cada escrita do serviço publica uma versão nova de uma só vez; quem tem
+ * uma versão continua a ver as mesmas listas, sem locks e sem cópias, mesmo
+ * com escritas a decorrer noutra thread. As coleções são estruturas
+ * persistentes, por isso a versão nova partilha com a anterior tudo o que
+ * não mudou, e a busca por ID é por hash.
+ *
+ * As entidades são os objetos do modelo, partilhados entre versões enquanto
+ * não mudam: o serviço altera sempre uma cópia e põe-na na versão nova, pelo
+ * que uma entidade publicada não volta a ser alterada. Cada alteração feita
+ * pelo serviço fica registada em {@link #alteracoesDesde(long)}, para as
+ * telas se atualizarem por incremento.
+ */
+public final class InstantaneoBiblioteca {
+
+    // Alterações guardadas; quem ficar mais para trás recarrega tudo
+    private static final int LIMITE_ALTERACOES = 4096;
+
+    private static final InstantaneoBiblioteca VAZIO = new InstantaneoBiblioteca(0,
+            Colecao.<Livro>vazia(), Colecao.<Membro>vazia(), Colecao.<Emprestimo>vazia(), Colecao.<Reserva>vazia(),
+            VetorPersistente.<Alteracao>vazio(), 0);
+
+    /**
+     * Alteração de uma entidade numa versão.
+     */
+    public static final class Alteracao {
+
+        public enum Tipo {
+            LIVRO, MEMBRO, EMPRESTIMO, RESERVA
+        }
+
+        public enum Operacao {
+            INSERIDO, ALTERADO, REMOVIDO
+        }
+
+        private final long versao;
+        private final Tipo tipo;
+        private final String id;
+        private final Operacao operacao;
+
+        private Alteracao(long versao, Tipo tipo, String id, Operacao operacao) {
+            this.versao = versao;
+            this.tipo = tipo;
+            this.id = id;
+            this.operacao = operacao;
+        }
+
+        /** Versão que trouxe a alteração */
+        public long getVersao() {
+            return versao;
+        }
+
+        public Tipo getTipo() {
+            return tipo;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Operacao getOperacao() {
+            return operacao;
+        }
+
+        @Override
+        public String toString() {
+            return "v" + versao + " " + tipo + " " + id + " " + operacao;
+        }
+    }
+
+    /** Entidades pela ordem de inserção, com a posição de cada ID */
+    private static final class Colecao<T> {
+        private static final Colecao<?> VAZIA =
+                new Colecao<>(VetorPersistente.vazio(), VetorPersistente.vazio(), MapaPersistente.vazio());
+
+        final VetorPersistente<T> itens;
+        final VetorPersistente<String> ids;
+        final MapaPersistente<String, Integer> posicoes;
+
+        Colecao(VetorPersistente<T> itens, VetorPersistente<String> ids, MapaPersistente<String, Integer> posicoes) {
+            this.itens = itens;
+            this.ids = ids;
+            this.posicoes = posicoes;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Colecao<T> vazia() {
+            return (Colecao<T>) VAZIA;
+        }
+
+        T get(String id) {
+            Integer posicao = posicoes.get(id);
+            return posicao != null ? itens.get(posicao) : null;
+        }
+
+        /** Acrescenta no fim, ou substitui se o ID já existir */
+        Colecao<T> com(String id, T item) {
+            Integer posicao = posicoes.get(id);
+            if (posicao != null) {
+                return new Colecao<>(itens.com(posicao, item), ids, posicoes);
+            }
+            return new Colecao<>(itens.com(item), ids.com(id), posicoes.com(id, itens.tamanho()));
+        }
+
+        /** Retirar desloca as posições seguintes: reconstrói (O(n), raro) */
+        Colecao<T> sem(String id) {
+            Integer posicao = posicoes.get(id);
+            if (posicao == null) {
+                return this;
+            }
+            VetorPersistente<T> novosItens = VetorPersistente.vazio();
+            VetorPersistente<String> novosIds = VetorPersistente.vazio();
+            MapaPersistente<String, Integer> novasPosicoes = MapaPersistente.vazio();
+            for (int i = 0; i < itens.tamanho(); i++) {
+                if (i != posicao) {
+                    novasPosicoes = novasPosicoes.com(ids.get(i), novosItens.tamanho());
+                    novosItens = novosItens.com(itens.get(i));
+                    novosIds = novosIds.com(ids.get(i));
+                }
+            }
+            return new Colecao<>(novosItens, novosIds, novasPosicoes);
+        }
+    }
+
+    /**
+     * Alterações a juntar numa só versão nova. Usada pelo serviço com o lock
+     * de escrita; a versão só fica visível em {@link #publicar()}.
+     */
+    final class Edicao {
+        private Colecao<Livro> livros = InstantaneoBiblioteca.this.livros;
+        private Colecao<Membro> membros = InstantaneoBiblioteca.this.membros;
+        private Colecao<Emprestimo> emprestimos = InstantaneoBiblioteca.this.emprestimos;
+        private Colecao<Reserva> reservas = InstantaneoBiblioteca.this.reservas;
+        private final List<Alteracao> pendentes = new ArrayList<>();
+        private final long versaoNova = versao + 1;
+
+        Edicao inserirLivro(Livro livro) {
+            livros = livros.com(livro.getId(), livro);
+            return registar(Alteracao.Tipo.LIVRO, livro.getId(), Alteracao.Operacao.INSERIDO);
+        }
+
+        Edicao alterarLivro(Livro livro) {
+            livros = livros.com(livro.getId(), livro);
+            return registar(Alteracao.Tipo.LIVRO, livro.getId(), Alteracao.Operacao.ALTERADO);
+        }
+
+        Edicao removerLivro(String id) {
+            livros = livros.sem(id);
+            return registar(Alteracao.Tipo.LIVRO, id, Alteracao.Operacao.REMOVIDO);
+        }
+
+        Edicao inserirMembro(Membro membro) {
+            membros = membros.com(membro.getId(), membro);
+            return registar(Alteracao.Tipo.MEMBRO, membro.getId(), Alteracao.Operacao.INSERIDO);
+        }
+
+        Edicao alterarMembro(Membro membro) {
+            membros = membros.com(membro.getId(), membro);
+            return registar(Alteracao.Tipo.MEMBRO, membro.getId(), Alteracao.Operacao.ALTERADO);
+        }
+
+        Edicao inserirEmprestimo(Emprestimo emprestimo) {
+            emprestimos = emprestimos.com(emprestimo.getId(), emprestimo);
+            return registar(Alteracao.Tipo.EMPRESTIMO, emprestimo.getId(), Alteracao.Operacao.INSERIDO);
+        }
+
+        Edicao alterarEmprestimo(Emprestimo emprestimo) {
+            emprestimos = emprestimos.com(emprestimo.getId(), emprestimo);
+            return registar(Alteracao.Tipo.EMPRESTIMO, emprestimo.getId(), Alteracao.Operacao.ALTERADO);
+        }
+
+        Edicao inserirReserva(Reserva reserva) {
+            reservas = reservas.com(reserva.getId(), reserva);
+            return registar(Alteracao.Tipo.RESERVA, reserva.getId(), Alteracao.Operacao.INSERIDO);
+        }
+
+        Edicao alterarReserva(Reserva reserva) {
+            reservas = reservas.com(reserva.getId(), reserva);
+            return registar(Alteracao.Tipo.RESERVA, reserva.getId(), Alteracao.Operacao.ALTERADO);
+        }
+
+        /** A versão nova, ou a mesma se não houve alterações */
+        InstantaneoBiblioteca publicar() {
+            if (pendentes.isEmpty()) {
+                return InstantaneoBiblioteca.this;
+            }
+            VetorPersistente<Alteracao> registo = alteracoes;
+            for (Alteracao alteracao : pendentes) {
+                registo = registo.com(alteracao);
+            }
+            long base = versaoBase;
+            if (registo.tamanho() > 2 * LIMITE_ALTERACOES) {
+                // Corta em lote para a reconstrução ficar amortizada
+                registo = registo.desde(registo.tamanho() - LIMITE_ALTERACOES);
+                base = registo.get(0).getVersao();
+            }
+            return new InstantaneoBiblioteca(versaoNova, livros, membros, emprestimos, reservas, registo, base);
+        }
+
+        private Edicao registar(Alteracao.Tipo tipo, String id, Alteracao.Operacao operacao) {
+            pendentes.add(new Alteracao(versaoNova, tipo, id, operacao));
+            return this;
+        }
+    }
+
+    private final long versao;
+    private final Colecao<Livro> livros;
+    private final Colecao<Membro> membros;
+    private final Colecao<Emprestimo> emprestimos;
+    private final Colecao<Reserva> reservas;
+    private final VetorPersistente<Alteracao> alteracoes;
+    // Versão a partir da qual as alterações guardadas estão completas
+    private final long versaoBase;
+
+    private InstantaneoBiblioteca(long versao, Colecao<Livro> livros, Colecao<Membro> membros,
+                                  Colecao<Emprestimo> emprestimos, Colecao<Reserva> reservas,
+                                  VetorPersistente<Alteracao> alteracoes, long versaoBase) {
+        this.versao = versao;
+        this.livros = livros;
+        this.membros = membros;
+        this.emprestimos = emprestimos;
+        this.reservas = reservas;
+        this.alteracoes = alteracoes;
+        this.versaoBase = versaoBase;
+    }
+
+    static InstantaneoBiblioteca vazio() {
+        return VAZIO;
+    }
+
+    Edicao editar() {
+        return new Edicao();
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    // === CONSULTAS ===
+    // Listas só de leitura, sem cópia, pela ordem de inserção
+
+    public List<Livro> getLivros() {
+        return livros.itens.comoLista();
+    }
+
+    /**
+     * Livros pela ordem de inserção, uma fatia de cada vez. O cursor é a
+     * posição do livro seguinte nesta versão: as fatias seguintes pedem-se
+     * à mesma versão, que não muda entre páginas.
+     *
+     * @param cursor  cursor da fatia anterior desta versão, ou null para a primeira
+     * @param tamanho número máximo de livros na fatia
+     * @throws IllegalArgumentException se o cursor for inválido
+     */
+    public Slice<Livro> getLivros(String cursor, int tamanho) {
+        Slice.validarTamanho(tamanho);
+        int total = livros.itens.tamanho();
+        int inicio = cursor != null ? lerPosicao(cursor, total) : 0;
+        int fim = (int) Math.min((long) inicio + tamanho, total);
+        // Vista sem cópia: a versão é imutável
+        return new Slice<>(livros.itens.comoLista(inicio, fim), fim < total ? Cursor.codificar(fim) : null);
+    }
+
+    public Livro getLivro(String id) {
+        return livros.get(id);
+    }
+
+    public List<Membro> getMembros() {
+        return membros.itens.comoLista();
+    }
+
+    public Membro getMembro(String id) {
+        return membros.get(id);
+    }
+
+    public List<Emprestimo> getEmprestimos() {
+        return emprestimos.itens.comoLista();
+    }
+
+    public Emprestimo getEmprestimo(String id) {
+        return emprestimos.get(id);
+    }
+
+    public List<Reserva> getReservas() {
+        return reservas.itens.comoLista();
+    }
+
+    public Reserva getReserva(String id) {
+        return reservas.get(id);
+    }
+
+    /**
+     * Alterações feitas depois da versão indicada até esta, pela ordem em
+     * que aconteceram (uma entidade pode aparecer mais de uma vez).
+     *
+     * @return null se a versão já é tão antiga que as alterações não foram
+     *         guardadas: quem chama deve recarregar as listas
+     */
+    public List<Alteracao> alteracoesDesde(long versaoAnterior) {
+        if (versaoAnterior < versaoBase || versaoAnterior > versao) {
+            return null;
+        }
+        // Primeira alteração com versão posterior (pesquisa binária: o registo está ordenado)
+        int inicio = 0;
+        int fim = alteracoes.tamanho();
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (alteracoes.get(meio).getVersao() <= versaoAnterior) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return alteracoes.comoLista(inicio, alteracoes.tamanho());
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static int lerPosicao(String cursor, int total) {
+        String valor = Cursor.decodificar(cursor, 1)[0];
+        try {
+            int posicao = Integer.parseInt(valor);
+            if (posicao >= 0 && posicao <= total) {
+                return posicao;
+            }
+        } catch (NumberFormatException e) {
+            // Cursor inválido, como fora do intervalo
+        }
+        throw new IllegalArgumentException("Cursor de paginação inválido");
+    }
+}
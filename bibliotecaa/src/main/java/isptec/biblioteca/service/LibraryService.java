@@ -1,32 +1,87 @@
 package isptec.biblioteca.service;
 
+import isptec.biblioteca.busca.AnalisadorPortugues;
+import isptec.biblioteca.busca.Campo;
+import isptec.biblioteca.busca.DescritoresLivro;
+import isptec.biblioteca.busca.Faceta;
+import isptec.biblioteca.busca.IndiceCatalogo;
+import isptec.biblioteca.busca.ResultadoPesquisa;
+import isptec.biblioteca.busca.Sugestao;
+import isptec.biblioteca.busca.TrieSugestoes;
 import isptec.biblioteca.model.*;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Serviço em memória usado pelas telas.
+ *
+ * Os dados vivem num {@link InstantaneoBiblioteca} imutável: as leituras
+ * usam a versão atual sem locks nem cópias, e cada escrita (serializada por
+ * um lock) publica uma versão nova de uma só vez. As escritas nunca alteram
+ * uma entidade já publicada: alteram uma cópia e publicam-na. Quem passa
+ * uma entidade a adicionar* ou atualizar* entrega-a ao serviço (para
+ * editar, copia-se a da versão).
+ */
 public class LibraryService {
-    private static LibraryService instance;
-    private List<Livro> livros;
-    private List<Membro> membros;
-    private List<Emprestimo> emprestimos;
-    private List<Reserva> reservas;
+    private static final LibraryService INSTANCIA = new LibraryService();
+
+    // Empréstimos só reordenam as sugestões: por eles a trie é refeita no máximo uma vez neste intervalo
+    private static final long INTERVALO_POPULARIDADE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Object lockEscrita = new Object();
+    private volatile InstantaneoBiblioteca atual = InstantaneoBiblioteca.vazio();
+    private final IndiceCatalogo<Livro> indice = new IndiceCatalogo<>(DescritoresLivro.MODELO);
+    private final EstatisticasBiblioteca estatisticas = new EstatisticasBiblioteca(
+            () -> atual.getLivros(), () -> atual.getMembros(), () -> atual.getEmprestimos(), () -> atual.getReservas());
+
+    // Sugestões ao escrever: reconstruídas quando o texto do catálogo muda, ou
+    // quando a popularidade mudou e já passou INTERVALO_POPULARIDADE_NANOS
+    private final Map<String, Integer> emprestimosPorLivro = new ConcurrentHashMap<>();
+    private final AtomicLong versaoPopularidade = new AtomicLong();
+    private final Object lockSugestoes = new Object();
+    private volatile TrieSugestoes sugestoes;
+    private volatile long versaoSugestoes = -1;
+    private volatile long popularidadeSugestoes = -1;
+    private volatile long instanteSugestoes;
 
     private LibraryService() {
-        livros = new ArrayList<>();
-        membros = new ArrayList<>();
-        emprestimos = new ArrayList<>();
-        reservas = new ArrayList<>();
         carregarDadosMock();
+        indice.marcarPronto();
     }
 
     public static LibraryService getInstance() {
-        if (instance == null) {
-            instance = new LibraryService();
-        }
-        return instance;
+        return INSTANCIA;
+    }
+
+    // === VERSÕES ===
+
+    /**
+     * Versão atual dos dados: várias leituras sobre o mesmo instantâneo são
+     * consistentes entre si, mesmo com escritas a decorrer (as entidades de
+     * uma versão publicada não voltam a ser alteradas).
+     */
+    public InstantaneoBiblioteca getInstantaneo() {
+        return atual;
+    }
+
+    public long getVersao() {
+        return atual.getVersao();
+    }
+
+    /**
+     * Alterações desde a versão indicada, para as telas se atualizarem por
+     * incremento em vez de recarregarem as listas.
+     *
+     * @return null se a versão é demasiado antiga: recarregar tudo
+     */
+    public List<InstantaneoBiblioteca.Alteracao> alteracoesDesde(long versao) {
+        return atual.alteracoesDesde(versao);
     }
 
     private void carregarDadosMock() {
@@ -91,249 +146,366 @@ public class LibraryService {
 
     // === LIVROS ===
     public void adicionarLivro(Livro livro) {
-        livros.add(livro);
+        synchronized (lockEscrita) {
+            atual = atual.editar().inserirLivro(livro).publicar();
+            indice.indexar(livro);
+            estatisticas.livroGuardado(livro);
+        }
     }
 
     public void atualizarLivro(Livro livro) {
-        for (int i = 0; i < livros.size(); i++) {
-            if (livros.get(i).getId().equals(livro.getId())) {
-                livros.set(i, livro);
-                break;
+        synchronized (lockEscrita) {
+            if (atual.getLivro(livro.getId()) != null) {
+                atual = atual.editar().alterarLivro(livro).publicar();
+                indice.indexar(livro);
+                estatisticas.livroGuardado(livro);
             }
         }
     }
 
     public void removerLivro(String livroId) {
-        livros.removeIf(l -> l.getId().equals(livroId));
+        synchronized (lockEscrita) {
+            if (atual.getLivro(livroId) != null) {
+                atual = atual.editar().removerLivro(livroId).publicar();
+            }
+            indice.remover(livroId);
+            estatisticas.livroRemovido(livroId);
+        }
     }
 
     public Livro buscarLivroPorId(String id) {
-        return livros.stream()
-                .filter(l -> l.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return atual.getLivro(id);
     }
 
     public List<Livro> listarLivros() {
-        return new ArrayList<>(livros);
+        return atual.getLivros();
     }
 
     public List<Livro> buscarLivros(String termo) {
-        String termoLower = termo.toLowerCase();
-        return livros.stream()
-                .filter(l -> l.getTitulo().toLowerCase().contains(termoLower) ||
-                           l.getAutor().toLowerCase().contains(termoLower) ||
-                           l.getCategoria().toLowerCase().contains(termoLower))
+        // Mesmo analisador do índice do catálogo: sem acentos, cada palavra como prefixo
+        List<String> termos = AnalisadorPortugues.analisar(termo);
+        return atual.getLivros().stream()
+                .filter(l -> contemTodos(AnalisadorPortugues.analisar(
+                        l.getTitulo() + " " + l.getAutor() + " " + l.getCategoria()), termos))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Pesquisa do catálogo para as telas: os primeiros livros por relevância
+     * e as contagens por categoria, editora, ano e disponibilidade numa só
+     * chamada. Uma consulta vazia devolve o catálogo por título.
+     *
+     * @param filtros valor exigido por faceta (pode ser null)
+     */
+    public ResultadoPesquisa<Livro> pesquisarCatalogo(String consulta, int limite, Map<Faceta, String> filtros) {
+        return indice.pesquisar(consulta, limite, filtros);
+    }
+
+    /**
+     * Consultas "quis dizer" para uma pesquisa sem resultados, com os termos
+     * mal escritos trocados pelos do catálogo mais próximos (sem acentos).
+     */
+    public List<String> sugerirCorrecoes(String consulta, int limite) {
+        return indice.corrigir(consulta, limite);
+    }
+
+    /**
+     * Títulos, autores e categorias que começam pelo prefixo (ou com uma
+     * palavra que começa por ele), dos mais emprestados para os menos.
+     * Pode ser chamado fora da thread da interface.
+     */
+    public List<Sugestao> sugerir(String prefixo, int limite) {
+        return sugestoesAtualizadas().sugerir(prefixo, limite);
+    }
+
+    private TrieSugestoes sugestoesAtualizadas() {
+        TrieSugestoes trie = sugestoes;
+        if (trie != null && !sugestoesDesatualizadas()) {
+            return trie;
+        }
+        synchronized (lockSugestoes) {
+            if (sugestoes == null || sugestoesDesatualizadas()) {
+                long versao = indice.getVersaoTexto();
+                long popularidadeAtual = versaoPopularidade.get();
+                TrieSugestoes.Construtor construtor = new TrieSugestoes.Construtor();
+                indice.paraCada(livro -> {
+                    int popularidade = 1 + emprestimosPorLivro.getOrDefault(livro.getId(), 0);
+                    construtor.adicionar(livro.getTitulo(), Campo.TITULO, popularidade);
+                    construtor.adicionar(livro.getAutor(), Campo.AUTOR, popularidade);
+                    construtor.adicionar(livro.getCategoria(), Campo.CATEGORIA, popularidade);
+                });
+                versaoSugestoes = versao;
+                popularidadeSugestoes = popularidadeAtual;
+                instanteSugestoes = System.nanoTime();
+                sugestoes = construtor.construir();
+            }
+            return sugestoes;
+        }
+    }
+
+    /**
+     * A disponibilidade não entra nas sugestões: só o texto indexado conta
+     * logo, e a popularidade espera pelo intervalo.
+     */
+    private boolean sugestoesDesatualizadas() {
+        if (versaoSugestoes != indice.getVersaoTexto()) {
+            return true;
+        }
+        return popularidadeSugestoes != versaoPopularidade.get()
+                && System.nanoTime() - instanteSugestoes >= INTERVALO_POPULARIDADE_NANOS;
+    }
+
+    private boolean contemTodos(List<String> palavras, List<String> termos) {
+        for (String termo : termos) {
+            if (palavras.stream().noneMatch(p -> p.startsWith(termo))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // === MEMBROS ===
     public void adicionarMembro(Membro membro) {
-        membros.add(membro);
+        synchronized (lockEscrita) {
+            atual = atual.editar().inserirMembro(membro).publicar();
+            estatisticas.membroGuardado(membro);
+        }
     }
 
     public void atualizarMembro(Membro membro) {
-        for (int i = 0; i < membros.size(); i++) {
-            if (membros.get(i).getId().equals(membro.getId())) {
-                membros.set(i, membro);
-                break;
+        synchronized (lockEscrita) {
+            if (atual.getMembro(membro.getId()) != null) {
+                atual = atual.editar().alterarMembro(membro).publicar();
+                estatisticas.membroGuardado(membro);
             }
         }
     }
 
     public Membro buscarMembroPorId(String id) {
-        return membros.stream()
-                .filter(m -> m.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return atual.getMembro(id);
     }
 
     public List<Membro> listarMembros() {
-        return new ArrayList<>(membros);
+        return atual.getMembros();
     }
 
     public void bloquearMembro(String membroId) {
-        Membro membro = buscarMembroPorId(membroId);
-        if (membro != null) {
-            membro.bloquear();
+        synchronized (lockEscrita) {
+            Membro membro = atual.getMembro(membroId);
+            if (membro != null) {
+                Membro bloqueado = new Membro(membro);
+                bloqueado.bloquear();
+                atual = atual.editar().alterarMembro(bloqueado).publicar();
+                estatisticas.membroGuardado(bloqueado);
+            }
         }
     }
 
     public void desbloquearMembro(String membroId) {
-        Membro membro = buscarMembroPorId(membroId);
-        if (membro != null) {
-            membro.desbloquear();
+        synchronized (lockEscrita) {
+            Membro membro = atual.getMembro(membroId);
+            if (membro != null) {
+                Membro desbloqueado = new Membro(membro);
+                desbloqueado.desbloquear();
+                atual = atual.editar().alterarMembro(desbloqueado).publicar();
+                estatisticas.membroGuardado(desbloqueado);
+            }
         }
     }
 
     // === EMPRÉSTIMOS ===
     public boolean realizarEmprestimo(String livroId, String membroId) {
-        Livro livro = buscarLivroPorId(livroId);
-        Membro membro = buscarMembroPorId(membroId);
+        synchronized (lockEscrita) {
+            Livro livro = atual.getLivro(livroId);
+            Membro membro = atual.getMembro(membroId);
 
-        if (livro == null || membro == null || !livro.isDisponivel() || !membro.isAtivo()) {
-            return false;
-        }
-
-        String id = UUID.randomUUID().toString();
-        Emprestimo emprestimo = new Emprestimo(id, livroId, membroId, 
-                                              livro.getTitulo(), membro.getNome());
-        emprestimos.add(emprestimo);
+            if (livro == null || membro == null || !livro.isDisponivel() || !membro.isAtivo()) {
+                return false;
+            }
 
-        livro.setQuantidadeDisponivel(livro.getQuantidadeDisponivel() - 1);
-        return true;
+            String id = UUID.randomUUID().toString();
+            Emprestimo emprestimo = new Emprestimo(id, livroId, membroId, 
+                                                  livro.getTitulo(), membro.getNome());
+            Livro emprestado = new Livro(livro);
+            emprestado.setQuantidadeDisponivel(livro.getQuantidadeDisponivel() - 1);
+            // Empréstimo e livro na mesma versão
+            atual = atual.editar().inserirEmprestimo(emprestimo).alterarLivro(emprestado).publicar();
+            estatisticas.emprestimoCriado(emprestimo);
+
+            indice.atualizarDisponibilidade(emprestado);
+            emprestimosPorLivro.merge(livroId, 1, Integer::sum);
+            versaoPopularidade.incrementAndGet();
+            return true;
+        }
     }
 
     public void devolverLivro(String emprestimoId) {
-        Emprestimo emprestimo = buscarEmprestimoPorId(emprestimoId);
-        if (emprestimo != null && emprestimo.isAtivo()) {
-            emprestimo.setDataDevolucaoReal(java.time.LocalDate.now());
-            emprestimo.calcularMulta();
-
-            Livro livro = buscarLivroPorId(emprestimo.getLivroId());
-            if (livro != null) {
-                livro.setQuantidadeDisponivel(livro.getQuantidadeDisponivel() + 1);
+        synchronized (lockEscrita) {
+            Emprestimo emprestimo = atual.getEmprestimo(emprestimoId);
+            if (emprestimo != null && emprestimo.isAtivo()) {
+                Emprestimo devolvido = new Emprestimo(emprestimo);
+                estatisticas.alterarEmprestimo(devolvido, () -> {
+                    devolvido.setDataDevolucaoReal(java.time.LocalDate.now());
+                    devolvido.calcularMulta();
+                });
+                InstantaneoBiblioteca.Edicao edicao = atual.editar().alterarEmprestimo(devolvido);
+
+                Livro livro = atual.getLivro(emprestimo.getLivroId());
+                if (livro != null) {
+                    Livro livroDevolvido = new Livro(livro);
+                    livroDevolvido.setQuantidadeDisponivel(livro.getQuantidadeDisponivel() + 1);
+                    edicao.alterarLivro(livroDevolvido);
+                    indice.atualizarDisponibilidade(livroDevolvido);
+                }
+                atual = edicao.publicar();
             }
         }
     }
 
     public boolean renovarEmprestimo(String emprestimoId) {
-        Emprestimo emprestimo = buscarEmprestimoPorId(emprestimoId);
-        if (emprestimo == null || !emprestimo.podeRenovar()) {
-            return false;
-        }
+        synchronized (lockEscrita) {
+            Emprestimo emprestimo = atual.getEmprestimo(emprestimoId);
+            if (emprestimo == null || !emprestimo.podeRenovar()) {
+                return false;
+            }
 
-        // Verificar se há reservas pendentes para este livro
-        boolean temReservas = reservas.stream()
-                .anyMatch(r -> r.getLivroId().equals(emprestimo.getLivroId()) && r.isPendente());
+            // Verificar se há reservas pendentes para este livro
+            boolean temReservas = atual.getReservas().stream()
+                    .anyMatch(r -> r.getLivroId().equals(emprestimo.getLivroId()) && r.isPendente());
 
-        if (temReservas) {
-            return false;
-        }
+            if (temReservas) {
+                return false;
+            }
 
-        emprestimo.renovar();
-        return true;
+            Emprestimo renovado = new Emprestimo(emprestimo);
+            estatisticas.alterarEmprestimo(renovado, renovado::renovar);
+            atual = atual.editar().alterarEmprestimo(renovado).publicar();
+            return true;
+        }
     }
 
     public void aplicarMulta(String emprestimoId, double valor) {
-        Emprestimo emprestimo = buscarEmprestimoPorId(emprestimoId);
-        if (emprestimo != null) {
-            emprestimo.setMulta(valor);
+        synchronized (lockEscrita) {
+            Emprestimo emprestimo = atual.getEmprestimo(emprestimoId);
+            if (emprestimo != null) {
+                Emprestimo multado = new Emprestimo(emprestimo);
+                estatisticas.alterarEmprestimo(multado, () -> multado.setMulta(valor));
+                atual = atual.editar().alterarEmprestimo(multado).publicar();
+            }
         }
     }
 
     public Emprestimo buscarEmprestimoPorId(String id) {
-        return emprestimos.stream()
-                .filter(e -> e.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return atual.getEmprestimo(id);
     }
 
     public List<Emprestimo> listarEmprestimos() {
-        return new ArrayList<>(emprestimos);
+        return atual.getEmprestimos();
     }
 
     public List<Emprestimo> listarEmprestimosAtivos() {
-        return emprestimos.stream()
+        return atual.getEmprestimos().stream()
                 .filter(Emprestimo::isAtivo)
                 .collect(Collectors.toList());
     }
 
     public List<Emprestimo> listarEmprestimosAtrasados() {
-        return emprestimos.stream()
+        return atual.getEmprestimos().stream()
                 .filter(Emprestimo::isAtrasado)
                 .collect(Collectors.toList());
     }
 
     public List<Emprestimo> listarEmprestimosPorMembro(String membroId) {
-        return emprestimos.stream()
+        return atual.getEmprestimos().stream()
                 .filter(e -> e.getMembroId().equals(membroId) && e.isAtivo())
                 .collect(Collectors.toList());
     }
 
     // === RESERVAS ===
     public boolean realizarReserva(String livroId, String membroId) {
-        Livro livro = buscarLivroPorId(livroId);
-        Membro membro = buscarMembroPorId(membroId);
+        synchronized (lockEscrita) {
+            Livro livro = atual.getLivro(livroId);
+            Membro membro = atual.getMembro(membroId);
 
-        if (livro == null || membro == null) {
-            return false;
-        }
+            if (livro == null || membro == null) {
+                return false;
+            }
 
-        String id = UUID.randomUUID().toString();
-        Reserva reserva = new Reserva(id, livroId, membroId, 
-                                     livro.getTitulo(), membro.getNome());
-        reservas.add(reserva);
-        return true;
+            String id = UUID.randomUUID().toString();
+            Reserva reserva = new Reserva(id, livroId, membroId, 
+                                         livro.getTitulo(), membro.getNome());
+            atual = atual.editar().inserirReserva(reserva).publicar();
+            estatisticas.reservaCriada(reserva);
+            return true;
+        }
     }
 
     public void cancelarReserva(String reservaId) {
-        Reserva reserva = buscarReservaPorId(reservaId);
-        if (reserva != null) {
-            reserva.cancelar();
+        synchronized (lockEscrita) {
+            Reserva reserva = atual.getReserva(reservaId);
+            if (reserva != null) {
+                Reserva cancelada = new Reserva(reserva);
+                estatisticas.alterarReserva(cancelada, cancelada::cancelar);
+                atual = atual.editar().alterarReserva(cancelada).publicar();
+            }
         }
     }
 
     public void atenderReserva(String reservaId) {
-        Reserva reserva = buscarReservaPorId(reservaId);
-        if (reserva != null) {
-            reserva.concluir();
+        synchronized (lockEscrita) {
+            Reserva reserva = atual.getReserva(reservaId);
+            if (reserva != null) {
+                Reserva atendida = new Reserva(reserva);
+                estatisticas.alterarReserva(atendida, atendida::concluir);
+                atual = atual.editar().alterarReserva(atendida).publicar();
+            }
         }
     }
 
     public Reserva buscarReservaPorId(String id) {
-        return reservas.stream()
-                .filter(r -> r.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return atual.getReserva(id);
     }
 
     public List<Reserva> listarReservas() {
-        return new ArrayList<>(reservas);
+        return atual.getReservas();
     }
 
     public List<Reserva> listarReservasPendentes() {
-        return reservas.stream()
+        return atual.getReservas().stream()
                 .filter(Reserva::isPendente)
                 .collect(Collectors.toList());
     }
 
     public List<Reserva> listarReservasPorMembro(String membroId) {
-        return reservas.stream()
+        return atual.getReservas().stream()
                 .filter(r -> r.getMembroId().equals(membroId))
                 .collect(Collectors.toList());
     }
 
     // === ESTATÍSTICAS ===
+    // Mantidas por incremento a cada evento (ver EstatisticasBiblioteca): leitura O(1)
+
     public int getTotalLivros() {
-        return livros.stream()
-                .mapToInt(Livro::getQuantidade)
-                .sum();
+        return estatisticas.getTotalExemplares();
     }
 
     public int getLivrosEmprestados() {
-        return (int) emprestimos.stream()
-                .filter(Emprestimo::isAtivo)
-                .count();
+        return estatisticas.getEmprestimosAtivos();
+    }
+
+    public int getEmprestimosAtrasados() {
+        return estatisticas.getEmprestimosAtrasados();
     }
 
     public int getReservasPendentes() {
-        return (int) reservas.stream()
-                .filter(Reserva::isPendente)
-                .count();
+        return estatisticas.getReservasPendentes();
     }
 
     public int getMembrosAtivos() {
-        return (int) membros.stream()
-                .filter(Membro::isAtivo)
-                .count();
+        return estatisticas.getMembrosAtivos();
     }
 
     public double getTotalMultas() {
-        return emprestimos.stream()
-                .filter(Emprestimo::isAtivo)
-                .peek(Emprestimo::calcularMulta)
-                .mapToDouble(Emprestimo::getMulta)
-                .sum();
+        return estatisticas.getTotalMultas();
     }
 }
\ No newline at end of file
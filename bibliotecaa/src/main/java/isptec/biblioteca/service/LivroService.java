@@ -1,8 +1,12 @@
 package isptec.biblioteca.service;
 
+import isptec.biblioteca.busca.Faceta;
+import isptec.biblioteca.busca.ResultadoPesquisa;
 import isptec.biblioteca.model.entities.Categoria;
 import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.repository.Slice;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface de serviço para gestão de livros.
@@ -61,6 +65,15 @@ public interface LivroService {
      */
     List<Livro> listarTodosOsLivros();
 
+    /**
+     * Lista os livros por título, uma fatia de cada vez (paginação keyset).
+     *
+     * @param cursor  cursor da fatia anterior, ou null para a primeira
+     * @param tamanho número máximo de livros na fatia
+     * @return a fatia de livros e o cursor da seguinte
+     */
+    Slice<Livro> listarLivros(String cursor, int tamanho);
+
     /**
      * Busca livros pelo título (busca parcial).
      *
@@ -101,6 +114,41 @@ public interface LivroService {
      */
     List<Livro> buscarPorNomeCategoria(String nomeCategoria);
 
+    /**
+     * Pesquisa de texto livre no título, autores, categorias, editora, ISBN
+     * e descrição, sem distinguir acentos nem maiúsculas. A última palavra
+     * conta como prefixo.
+     *
+     * @param consulta o texto a pesquisar
+     * @param limite   número máximo de livros
+     * @return livros encontrados, por título
+     */
+    List<Livro> pesquisar(String consulta, int limite);
+
+    /**
+     * Pesquisa ranqueada por relevância (BM25; o título pesa mais do que o
+     * autor, a categoria e a descrição), com as contagens por categoria,
+     * editora, ano de publicação e disponibilidade de todos os resultados.
+     * Uma consulta vazia devolve o catálogo por título.
+     *
+     * @param consulta o texto a pesquisar
+     * @param limite   número máximo de livros
+     * @param filtros  valor exigido por faceta (pode ser null)
+     * @return os primeiros livros, o total e as facetas
+     */
+    ResultadoPesquisa<Livro> pesquisarComFacetas(String consulta, int limite, Map<Faceta, String> filtros);
+
+    /**
+     * Sugestões "quis dizer" para uma consulta sem resultados: a consulta
+     * com os termos mal escritos trocados pelos mais próximos do catálogo
+     * (até duas edições), apenas as que encontram livros.
+     *
+     * @param consulta o texto pesquisado
+     * @param limite   número máximo de sugestões
+     * @return consultas corrigidas, das mais próximas para as menos
+     */
+    List<String> sugerirCorrecoes(String consulta, int limite);
+
     /**
      * Lista apenas os livros disponíveis.
      *
@@ -86,6 +86,16 @@ public interface ReservaService {
      */
     Reserva obterProximaReservaFila(Livro livro);
 
+    /**
+     * Posição do membro na fila do livro (1 para o primeiro), ou 0 se não estiver na fila.
+     */
+    int obterPosicaoFila(Membro membro, Livro livro);
+
+    /**
+     * Conta as reservas ativas na fila de um livro.
+     */
+    int contarReservasFila(Livro livro);
+
     /**
      * Processa reservas expiradas (cancela automaticamente).
      */
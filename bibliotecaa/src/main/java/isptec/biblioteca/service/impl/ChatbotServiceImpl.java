@@ -227,21 +227,20 @@ public class ChatbotServiceImpl implements ChatbotService {
             String termo = msg.replaceFirst("(buscar|procurar|encontrar)\\s+", "").trim();
             List<Livro> resultados = libraryService.buscarLivros(termo);
             if (resultados.isEmpty()) {
+                List<String> correcoes = libraryService.sugerirCorrecoes(termo, 1);
+                if (!correcoes.isEmpty()) {
+                    resultados = libraryService.buscarLivros(correcoes.get(0));
+                }
+                if (!resultados.isEmpty()) {
+                    return "🔎 Você quis dizer \"" + correcoes.get(0) + "\"?\n\n" + listarLivros(resultados);
+                }
                 return "📚 Não encontrei livros com \"" + termo + "\".\n\n" +
                        "💡 Dicas:\n" +
                        "• Verifique a ortografia\n" +
                        "• Tente palavras-chave diferentes\n" +
                        "• Busque pelo autor ou categoria";
             }
-            StringBuilder sb = new StringBuilder("📚 Encontrei " + resultados.size() + " livro(s):\n\n");
-            for (Livro livro : resultados) {
-                sb.append(livro.isDisponivel() ? "✅ " : "❌ ")
-                  .append("**").append(livro.getTitulo()).append("**\n")
-                  .append("   📝 ").append(livro.getAutor())
-                  .append(" | 📂 ").append(livro.getCategoria())
-                  .append("\n\n");
-            }
-            return sb.toString();
+            return listarLivros(resultados);
         }
 
         // Estatísticas
@@ -447,6 +446,18 @@ public class ChatbotServiceImpl implements ChatbotService {
             """;
     }
 
+    private String listarLivros(List<Livro> resultados) {
+        StringBuilder sb = new StringBuilder("📚 Encontrei " + resultados.size() + " livro(s):\n\n");
+        for (Livro livro : resultados) {
+            sb.append(livro.isDisponivel() ? "✅ " : "❌ ")
+              .append("**").append(livro.getTitulo()).append("**\n")
+              .append("   📝 ").append(livro.getAutor())
+              .append(" | 📂 ").append(livro.getCategoria())
+              .append("\n\n");
+        }
+        return sb.toString();
+    }
+
     private double calcularTaxaUtilizacao() {
         int total = libraryService.getTotalLivros();
         if (total == 0) return 0;
@@ -0,0 +1,316 @@
+package isptec.biblioteca.service.impl;
+
+import isptec.biblioteca.agendamento.Agendador;
+import isptec.biblioteca.agendamento.RodaTemporal;
+import isptec.biblioteca.enumeracao.EstadoEmprestimo;
+import isptec.biblioteca.eventos.BarramentoEventos;
+import isptec.biblioteca.eventos.EmprestimoCriado;
+import isptec.biblioteca.eventos.LivroDevolvido;
+import isptec.biblioteca.model.entities.Emprestimo;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.EmprestimoRepository;
+import isptec.biblioteca.repository.ResultadoCirculacao;
+import isptec.biblioteca.repository.impl.Repositorios;
+import isptec.biblioteca.service.EmprestimoService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementação do serviço de empréstimos com circulação atómica no banco.
+ *
+ * Empréstimo, devolução e renovação são uma única chamada aos procedimentos
+ * sp_realizar_emprestimo, sp_devolver_livro e sp_renovar_emprestimo, que
+ * verificam as regras e alteram os dados na mesma transação: dois balcões
+ * não conseguem emprestar o mesmo último exemplar. As regras de negócio são
+ * as de {@link EmprestimoServiceImpl}, aplicadas pelo servidor.
+ *
+ * Os objetos Livro e Membro recebidos são atualizados apenas depois de o
+ * banco confirmar a operação. Como os procedimentos alteram livro e membro
+ * sem passar pelos seus repositórios, as entradas correspondentes são
+ * retiradas da cache de entidades.
+ *
+ * Empréstimos e devoluções confirmados são publicados no
+ * {@link BarramentoEventos}.
+ *
+ * Com {@link #ativarAgendamento} os empréstimos feitos aqui passam a
+ * ATRASADO por um temporizador no dia a seguir à data prevista, e as
+ * listagens e contagens de atrasados deixam de atualizar a tabela; os de
+ * outros postos são marcados pela tarefa diária que chama
+ * {@link #atualizarEstadoEmprestimos()}.
+ */
+public class EmprestimoServiceAtomicoImpl implements EmprestimoService {
+
+    private static final Criterio EM_CURSO = Criterio.em("e.estado",
+            Arrays.asList(EstadoEmprestimo.ATIVO, EstadoEmprestimo.ATRASADO));
+
+    private final EmprestimoRepository emprestimoRepository;
+
+    private Agendador agendador;
+    /** Temporizador de atraso dos empréstimos feitos aqui (ID -> temporizador) */
+    private final Map<Integer, RodaTemporal.Temporizador> vencimentos = new ConcurrentHashMap<>();
+
+    public EmprestimoServiceAtomicoImpl() {
+        this(Repositorios.emprestimos());
+    }
+
+    public EmprestimoServiceAtomicoImpl(EmprestimoRepository emprestimoRepository) {
+        this.emprestimoRepository = emprestimoRepository;
+    }
+
+    /**
+     * Passa a marcar os atrasos por temporizadores do agendador.
+     */
+    public void ativarAgendamento(Agendador agendador) {
+        this.agendador = agendador;
+    }
+
+    @Override
+    public boolean emprestarLivro(Membro membro, Livro livro) {
+        return realizarEmprestimo(membro, livro) != null;
+    }
+
+    @Override
+    public Emprestimo realizarEmprestimo(Membro membro, Livro livro) {
+        if (membro == null || livro == null) {
+            return null;
+        }
+
+        ResultadoCirculacao resultado = emprestimoRepository.emprestarAtomico(livro.getId(), membro.getId());
+        if (!resultado.isSucesso()) {
+            return null;
+        }
+
+        // Reflete nos objetos em memória o que o banco já fez
+        invalidarCache(livro.getId(), membro.getId());
+        livro.emprestar();
+        Emprestimo emprestimo = new Emprestimo(resultado.getEmprestimoId(), livro, membro);
+        membro.adicionarEmprestimo(emprestimo);
+        agendarVencimento(emprestimo.getId(), emprestimo.getDataDevolucaoPrevista());
+        publicarEmprestimo(emprestimo);
+        return emprestimo;
+    }
+
+    @Override
+    public void registrarEmprestimo(Emprestimo emprestimo) {
+        if (emprestimo == null || emprestimo.getId() != 0 ||
+            emprestimo.getLivro() == null || emprestimo.getMembro() == null) {
+            return;
+        }
+        ResultadoCirculacao resultado = emprestimoRepository.emprestarAtomico(
+                emprestimo.getLivro().getId(), emprestimo.getMembro().getId());
+        if (resultado.isSucesso()) {
+            invalidarCache(emprestimo.getLivro().getId(), emprestimo.getMembro().getId());
+            emprestimo.setId(resultado.getEmprestimoId());
+            agendarVencimento(emprestimo.getId(), emprestimo.getDataDevolucaoPrevista());
+            publicarEmprestimo(emprestimo);
+        }
+    }
+
+    @Override
+    public void devolverLivro(int emprestimoId, LocalDate dataDevolucao) {
+        ResultadoCirculacao resultado = emprestimoRepository.devolverAtomico(emprestimoId, dataDevolucao);
+        if (resultado.isSucesso()) {
+            cancelarVencimento(emprestimoId);
+            // Só com o ID não se sabe que livro e membro mudaram
+            Repositorios.limparCaches();
+            if (BarramentoEventos.getInstance().temAssinantes(LivroDevolvido.class)) {
+                Emprestimo emprestimo = buscarEmprestimoPorId(emprestimoId);
+                if (emprestimo != null && emprestimo.getLivro() != null) {
+                    publicarDevolucao(emprestimo, dataDevolucao, resultado.getMulta());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void devolverLivro(int emprestimoId) {
+        devolverLivro(emprestimoId, LocalDate.now());
+    }
+
+    @Override
+    public void devolverLivro(Emprestimo emprestimo) {
+        if (emprestimo == null) {
+            return;
+        }
+        LocalDate hoje = LocalDate.now();
+        ResultadoCirculacao resultado = emprestimoRepository.devolverAtomico(emprestimo.getId(), hoje);
+        if (resultado.isSucesso()) {
+            cancelarVencimento(emprestimo.getId());
+            if (emprestimo.getLivro() != null && emprestimo.getMembro() != null) {
+                invalidarCache(emprestimo.getLivro().getId(), emprestimo.getMembro().getId());
+            } else {
+                Repositorios.limparCaches();
+            }
+            emprestimo.registrarDevolucao(hoje);
+            if (emprestimo.getLivro() != null) {
+                emprestimo.getLivro().devolver();
+                publicarDevolucao(emprestimo, hoje, resultado.getMulta());
+            }
+        }
+    }
+
+    @Override
+    public boolean renovarEmprestimo(Emprestimo emprestimo) {
+        if (emprestimo == null) {
+            return false;
+        }
+        if (!renovarEmprestimo(emprestimo.getId())) {
+            return false;
+        }
+        emprestimo.incrementarRenovacoes();
+        emprestimo.setDataDevolucaoPrevista(
+                emprestimo.getDataDevolucaoPrevista().plusDays(Emprestimo.PRAZO_PADRAO_DIAS));
+        agendarVencimento(emprestimo.getId(), emprestimo.getDataDevolucaoPrevista());
+        return true;
+    }
+
+    @Override
+    public boolean renovarEmprestimo(int emprestimoId) {
+        return emprestimoRepository.renovarAtomico(emprestimoId, null).isSucesso();
+    }
+
+    @Override
+    public boolean renovarEmprestimo(int emprestimoId, LocalDate novaDataDevolucao) {
+        if (!emprestimoRepository.renovarAtomico(emprestimoId, novaDataDevolucao).isSucesso()) {
+            return false;
+        }
+        if (novaDataDevolucao != null) {
+            agendarVencimento(emprestimoId, novaDataDevolucao);
+        }
+        return true;
+    }
+
+    @Override
+    public Emprestimo buscarEmprestimoPorId(int emprestimoId) {
+        return emprestimoRepository.findById(emprestimoId).orElse(null);
+    }
+
+    @Override
+    public List<Emprestimo> listarEmprestimosAtivos() {
+        return emprestimoRepository.findWhere(EM_CURSO);
+    }
+
+    @Override
+    public List<Emprestimo> listarEmprestimosAtrasados() {
+        if (agendador == null) {
+            atualizarEstadoEmprestimos();
+        }
+        return emprestimoRepository.findAtrasados();
+    }
+
+    @Override
+    public List<Emprestimo> listarEmprestimosPorMembro(Membro membro) {
+        if (membro == null) return new ArrayList<>();
+        return emprestimoRepository.findByMembro(membro);
+    }
+
+    @Override
+    public List<Emprestimo> listarEmprestimosPorLivro(Livro livro) {
+        if (livro == null) return new ArrayList<>();
+        return emprestimoRepository.findByLivro(livro);
+    }
+
+    @Override
+    public List<Emprestimo> listarTodosEmprestimos() {
+        return emprestimoRepository.findAll();
+    }
+
+    @Override
+    public double calcularMulta(int emprestimoId) {
+        Emprestimo emprestimo = buscarEmprestimoPorId(emprestimoId);
+        if (emprestimo == null) {
+            return 0.0;
+        }
+        return emprestimo.calcularMulta();
+    }
+
+    @Override
+    public double calcularTotalMultasMembro(Membro membro) {
+        if (membro == null) return 0.0;
+        return listarEmprestimosPorMembro(membro).stream()
+                .mapToDouble(Emprestimo::calcularMulta)
+                .sum();
+    }
+
+    @Override
+    public void atualizarEstadoEmprestimos() {
+        emprestimoRepository.marcarAtrasados();
+    }
+
+    @Override
+    public int contarEmprestimosAtivos() {
+        return (int) emprestimoRepository.countAtivos();
+    }
+
+    @Override
+    public int contarEmprestimosAtrasados() {
+        if (agendador == null) {
+            atualizarEstadoEmprestimos();
+        }
+        return (int) emprestimoRepository.countAtrasados();
+    }
+
+    @Override
+    public void registrarDevolucao(int emprestimoId, LocalDate dataDevolucao) {
+        devolverLivro(emprestimoId, dataDevolucao);
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void invalidarCache(int livroId, int membroId) {
+        Repositorios.invalidarLivro(livroId);
+        Repositorios.invalidarMembro(membroId);
+    }
+
+    /**
+     * Agenda a passagem a ATRASADO para o dia seguinte à data prevista. Uma
+     * renovação sem data conhecida deixa o temporizador antigo, que não
+     * altera nada porque só marca empréstimos com a data prevista passada.
+     */
+    private void agendarVencimento(int emprestimoId, LocalDate dataPrevista) {
+        if (agendador == null || emprestimoId <= 0 || dataPrevista == null) {
+            return;
+        }
+        RodaTemporal.Temporizador anterior = vencimentos.put(emprestimoId,
+                agendador.agendarEm(dataPrevista.plusDays(1), () -> vencer(emprestimoId)));
+        if (anterior != null) {
+            anterior.cancelar();
+        }
+    }
+
+    private void cancelarVencimento(int emprestimoId) {
+        RodaTemporal.Temporizador temporizador = vencimentos.remove(emprestimoId);
+        if (temporizador != null) {
+            temporizador.cancelar();
+        }
+    }
+
+    /** Corre numa thread do agendador quando o prazo do empréstimo acaba */
+    private void vencer(int emprestimoId) {
+        vencimentos.remove(emprestimoId);
+        emprestimoRepository.updateWhere(Criterio.igual("e.id", emprestimoId)
+                        .e(Criterio.igual("e.estado", EstadoEmprestimo.ATIVO))
+                        .e(Criterio.menorQue("e.data_devolucao_prevista", LocalDate.now())),
+                Alteracao.definir("e.estado", EstadoEmprestimo.ATRASADO));
+    }
+
+    private void publicarEmprestimo(Emprestimo emprestimo) {
+        BarramentoEventos.getInstance().publicar(new EmprestimoCriado(emprestimo.getId(),
+                emprestimo.getLivro().getId(), emprestimo.getMembro().getId(),
+                emprestimo.getDataDevolucaoPrevista(), emprestimo.getLivro().estaDisponivel()));
+    }
+
+    private void publicarDevolucao(Emprestimo emprestimo, LocalDate dataDevolucao, double multa) {
+        BarramentoEventos.getInstance().publicar(new LivroDevolvido(emprestimo.getId(),
+                emprestimo.getLivro().getId(),
+                emprestimo.getMembro() != null ? emprestimo.getMembro().getId() : 0,
+                dataDevolucao, multa, emprestimo.getLivro().estaDisponivel()));
+    }
+}
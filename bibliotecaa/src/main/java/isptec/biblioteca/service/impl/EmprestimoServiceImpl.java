@@ -1,15 +1,36 @@
 package isptec.biblioteca.service.impl;
 
+import isptec.biblioteca.agendamento.Agendador;
+import isptec.biblioteca.agendamento.RodaTemporal;
+import isptec.biblioteca.diario.EscritorDiferido;
+import isptec.biblioteca.diario.OperacaoCirculacao;
+import isptec.biblioteca.eventos.BarramentoEventos;
+import isptec.biblioteca.eventos.EmprestimoCriado;
+import isptec.biblioteca.eventos.LivroDevolvido;
 import isptec.biblioteca.model.entities.Emprestimo;
 import isptec.biblioteca.model.entities.Livro;
 import isptec.biblioteca.model.entities.Membro;
 import isptec.biblioteca.enumeracao.EstadoEmprestimo;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.impl.EmprestimoRepositoryImpl;
+import isptec.biblioteca.repository.impl.LivroRepositoryImpl;
+import isptec.biblioteca.repository.impl.MembroRepositoryImpl;
 import isptec.biblioteca.service.EmprestimoService;
 import isptec.biblioteca.service.ReservaService;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementação do serviço de gestão de empréstimos.
@@ -22,13 +43,46 @@ import java.util.stream.Collectors;
  * - Máximo 2 renovações
  * - Não pode renovar se existir reserva ativa para o livro
  * - Multa de 50 KZ por dia de atraso
+ *
+ * Por omissão os empréstimos vivem só em memória. Com
+ * {@link #ativarEscritaDiferida} cada empréstimo, devolução e renovação é
+ * registado num diário local e confirmado logo após o fsync; o
+ * {@link EscritorDiferido} grava-os depois no banco. Empréstimos ainda não
+ * gravados têm IDs provisórios negativos.
+ *
+ * Cada empréstimo e devolução confirmados são publicados no
+ * {@link BarramentoEventos} ({@link EmprestimoCriado}, {@link LivroDevolvido}).
+ *
+ * Com {@link #ativarAgendamento} cada empréstimo em curso tem um
+ * temporizador para o dia a seguir à data prevista, que o passa a
+ * ATRASADO; as listagens e contagens de atrasados deixam de percorrer
+ * todos os empréstimos para atualizar o estado.
+ *
+ * Os empréstimos ficam em índices concorrentes ({@link IndiceEmprestimos})
+ * e os IDs são atribuídos atomicamente, para vários balcões operarem ao
+ * mesmo tempo. Livros e membros recebidos são trocados pela instância
+ * canónica do índice com o mesmo ID, que guarda a disponibilidade e o
+ * histórico em memória e serve de lock. O empréstimo bloqueia o membro e depois o livro (o
+ * empréstimo novo ainda não é visível a outras threads); a devolução
+ * bloqueia o empréstimo e depois o livro; a renovação só o empréstimo. O
+ * livro é sempre o último lock e nunca se pede o membro com o empréstimo
+ * bloqueado, por isso não há ciclos entre balcões.
  */
 public class EmprestimoServiceImpl implements EmprestimoService {
 
-    private final List<Emprestimo> emprestimos = new ArrayList<>();
-    private int nextId = 1;
+    private final IndiceEmprestimos emprestimos = new IndiceEmprestimos();
+    private final AtomicInteger nextId = new AtomicInteger(1);
     private ReservaService reservaService;
 
+    private volatile EscritorDiferido escritor;
+    /** Chave de operação dos empréstimos criados através do diário (ID -> chave) */
+    private final Map<Integer, Long> chavesOperacao = new ConcurrentHashMap<>();
+    private final AtomicInteger proximoIdProvisorio = new AtomicInteger(-1);
+
+    private Agendador agendador;
+    /** Temporizador de atraso de cada empréstimo em curso */
+    private final Map<Emprestimo, RodaTemporal.Temporizador> vencimentos = new IdentityHashMap<>();
+
     public EmprestimoServiceImpl() {
     }
 
@@ -40,47 +94,114 @@ public class EmprestimoServiceImpl implements EmprestimoService {
         this.reservaService = reservaService;
     }
 
-    @Override
-    public boolean emprestarLivro(Membro membro, Livro livro) {
-        // Validações
-        if (membro == null || livro == null) {
-            return false;
+    /**
+     * Ativa o modo de escrita diferida: carrega do banco os empréstimos em
+     * curso, reaplica por cima as operações do diário ainda não gravadas e
+     * passa a registar as novas operações no diário.
+     */
+    public void ativarEscritaDiferida(EscritorDiferido escritor) throws SQLException, IOException {
+        List<OperacaoCirculacao> pendentes = escritor.iniciar();
+
+        emprestimos.limpar();
+        chavesOperacao.clear();
+        for (Emprestimo emprestimo : new EmprestimoRepositoryImpl().findWhere(Criterio.em("e.estado",
+                Arrays.asList(EstadoEmprestimo.ATIVO, EstadoEmprestimo.ATRASADO)))) {
+            if (emprestimos.adicionar(emprestimo) && emprestimo.getMembro() != null) {
+                emprestimo.getMembro().adicionarEmprestimo(emprestimo);
+            }
         }
+        reaplicar(escritor, pendentes);
+        agendarVencimentos();
 
-        // Verifica se o membro pode emprestar (regra: máx 3 empréstimos, não bloqueado)
-        if (!membro.podeEmprestar()) {
-            return false;
-        }
+        this.escritor = escritor;
+    }
 
-        // Verifica se o livro está disponível
-        if (!livro.estaDisponivel()) {
-            return false;
-        }
+    /**
+     * Passa a marcar os empréstimos como atrasados por temporizadores do
+     * agendador, em vez de o fazer a cada listagem ou contagem.
+     */
+    public void ativarAgendamento(Agendador agendador) {
+        this.agendador = agendador;
+        atualizarEstadoEmprestimos();
+        agendarVencimentos();
+    }
 
-        // Cria o empréstimo
-        Emprestimo emprestimo = new Emprestimo(nextId++, livro, membro);
+    @Override
+    public boolean emprestarLivro(Membro membro, Livro livro) {
+        return realizarEmprestimo(membro, livro) != null;
+    }
 
-        // Realiza o empréstimo no livro (decrementa quantidade)
-        if (!livro.emprestar()) {
-            return false;
+    @Override
+    public Emprestimo realizarEmprestimo(Membro membro, Livro livro) {
+        // Validações
+        if (membro == null || livro == null) {
+            return null;
         }
+        // Cópias trazidas pelo chamador: o estado e o lock partilhados estão nas canónicas
+        Membro copiaMembro = membro;
+        membro = emprestimos.membro(membro);
+        livro = emprestimos.livro(livro);
+
+        Emprestimo emprestimo;
+        synchronized (membro) {
+            synchronized (livro) {
+                // O bloqueio e a multa vêm da leitura mais recente
+                if (copiaMembro != membro) {
+                    membro.setBloqueado(copiaMembro.isBloqueado());
+                    membro.setMultaPendente(copiaMembro.getMultaPendente());
+                }
+
+                // Verifica se o membro pode emprestar (regra: máx 3 empréstimos, não bloqueado)
+                if (!membro.podeEmprestar()) {
+                    return null;
+                }
+
+                // Verifica se o livro está disponível
+                if (!livro.estaDisponivel()) {
+                    return null;
+                }
+
+                // Cria o empréstimo
+                emprestimo = new Emprestimo(novoId(), livro, membro);
+
+                // Realiza o empréstimo no livro (decrementa quantidade)
+                if (!livro.emprestar()) {
+                    return null;
+                }
+
+                // Em escrita diferida só confirma depois de gravado no diário
+                if (escritor != null && !registarEmprestimoNoDiario(emprestimo)) {
+                    livro.devolver();
+                    return null;
+                }
+
+                // Adiciona ao histórico do membro
+                membro.adicionarEmprestimo(emprestimo);
+
+                // Registra o empréstimo
+                emprestimos.adicionar(emprestimo);
+            }
+        }
+        agendarVencimento(emprestimo);
+        publicarEmprestimo(emprestimo);
 
-        // Adiciona ao histórico do membro
-        membro.adicionarEmprestimo(emprestimo);
-
-        // Registra o empréstimo
-        emprestimos.add(emprestimo);
-
-        return true;
+        return emprestimo;
     }
 
     @Override
     public void registrarEmprestimo(Emprestimo emprestimo) {
         if (emprestimo != null) {
             if (emprestimo.getId() == 0) {
-                emprestimo.setId(nextId++);
+                emprestimo.setId(novoId());
+                if (escritor != null && !registarEmprestimoNoDiario(emprestimo)) {
+                    return;
+                }
             }
-            emprestimos.add(emprestimo);
+            if (!emprestimos.adicionar(emprestimo)) {
+                return;
+            }
+            agendarVencimento(emprestimo);
+            publicarEmprestimo(emprestimo);
         }
     }
 
@@ -88,12 +209,31 @@ public class EmprestimoServiceImpl implements EmprestimoService {
     public void devolverLivro(int emprestimoId, LocalDate dataDevolucao) {
         Emprestimo emprestimo = buscarEmprestimoPorId(emprestimoId);
         if (emprestimo != null) {
-            emprestimo.registrarDevolucao(dataDevolucao);
-
-            // Devolve o livro (incrementa quantidade disponível)
-            if (emprestimo.getLivro() != null) {
-                emprestimo.getLivro().devolver();
+            double multa = multaDevolucao(emprestimo, dataDevolucao);
+            synchronized (emprestimo) {
+                // Outro balcão pode já o ter devolvido
+                if (emprestimo.getEstado() == EstadoEmprestimo.DEVOLVIDO) {
+                    return;
+                }
+                if (escritor != null && !registarNoDiario(OperacaoCirculacao.devolucao(
+                        chaveOperacao(emprestimo), idGravado(emprestimo), idLivro(emprestimo), idMembro(emprestimo),
+                        dataDevolucao, multa))) {
+                    return;
+                }
+                emprestimo.registrarDevolucao(dataDevolucao);
+                emprestimos.atualizarEstado(emprestimo);
+
+                // Devolve o livro (incrementa quantidade disponível)
+                if (emprestimo.getLivro() != null) {
+                    synchronized (emprestimo.getLivro()) {
+                        emprestimo.getLivro().devolver();
+                    }
+                }
             }
+            cancelarVencimento(emprestimo);
+            BarramentoEventos.getInstance().publicar(new LivroDevolvido(emprestimo.getId(), idLivro(emprestimo),
+                    idMembro(emprestimo), dataDevolucao, multa,
+                    emprestimo.getLivro() != null && emprestimo.getLivro().estaDisponivel()));
         }
     }
 
@@ -123,7 +263,13 @@ public class EmprestimoServiceImpl implements EmprestimoService {
             }
         }
 
-        return emprestimo.renovar();
+        synchronized (emprestimo) {
+            LocalDate dataAnterior = emprestimo.getDataDevolucaoPrevista();
+            if (!emprestimo.renovar()) {
+                return false;
+            }
+            return registarRenovacao(emprestimo, dataAnterior);
+        }
     }
 
     @Override
@@ -140,7 +286,13 @@ public class EmprestimoServiceImpl implements EmprestimoService {
             }
         }
 
-        return emprestimo.renovar(novaDataDevolucao);
+        synchronized (emprestimo) {
+            LocalDate dataAnterior = emprestimo.getDataDevolucaoPrevista();
+            if (!emprestimo.renovar(novaDataDevolucao)) {
+                return false;
+            }
+            return registarRenovacao(emprestimo, dataAnterior);
+        }
     }
 
     @Override
@@ -153,47 +305,37 @@ public class EmprestimoServiceImpl implements EmprestimoService {
 
     @Override
     public Emprestimo buscarEmprestimoPorId(int emprestimoId) {
-        return emprestimos.stream()
-                .filter(e -> e.getId() == emprestimoId)
-                .findFirst()
-                .orElse(null);
+        return emprestimos.porId(emprestimoId);
     }
 
     @Override
     public List<Emprestimo> listarEmprestimosAtivos() {
-        return emprestimos.stream()
-                .filter(e -> e.getEstado() == EstadoEmprestimo.ATIVO ||
-                            e.getEstado() == EstadoEmprestimo.ATRASADO)
-                .collect(Collectors.toList());
+        return emprestimos.emCurso();
     }
 
     @Override
     public List<Emprestimo> listarEmprestimosAtrasados() {
-        atualizarEstadoEmprestimos();
-        return emprestimos.stream()
-                .filter(Emprestimo::estaAtrasado)
-                .collect(Collectors.toList());
+        if (agendador == null) {
+            atualizarEstadoEmprestimos();
+        }
+        return emprestimos.atrasados();
     }
 
     @Override
     public List<Emprestimo> listarEmprestimosPorMembro(Membro membro) {
         if (membro == null) return new ArrayList<>();
-        return emprestimos.stream()
-                .filter(e -> e.getMembro() != null && e.getMembro().getId() == membro.getId())
-                .collect(Collectors.toList());
+        return emprestimos.porMembro(membro.getId());
     }
 
     @Override
     public List<Emprestimo> listarEmprestimosPorLivro(Livro livro) {
         if (livro == null) return new ArrayList<>();
-        return emprestimos.stream()
-                .filter(e -> e.getLivro() != null && e.getLivro().getId() == livro.getId())
-                .collect(Collectors.toList());
+        return emprestimos.porLivro(livro.getId());
     }
 
     @Override
     public List<Emprestimo> listarTodosEmprestimos() {
-        return new ArrayList<>(emprestimos);
+        return emprestimos.todos();
     }
 
     @Override
@@ -215,28 +357,254 @@ public class EmprestimoServiceImpl implements EmprestimoService {
 
     @Override
     public void atualizarEstadoEmprestimos() {
-        for (Emprestimo emp : emprestimos) {
-            emp.atualizarEstado();
+        // Só os em curso podem passar a atrasados
+        for (Emprestimo emp : emprestimos.emCurso()) {
+            synchronized (emp) {
+                emp.atualizarEstado();
+            }
+            emprestimos.atualizarEstado(emp);
         }
     }
 
     @Override
     public int contarEmprestimosAtivos() {
-        return (int) emprestimos.stream()
-                .filter(e -> e.getEstado() == EstadoEmprestimo.ATIVO)
-                .count();
+        return emprestimos.contarAtivos();
     }
 
     @Override
     public int contarEmprestimosAtrasados() {
-        atualizarEstadoEmprestimos();
-        return (int) emprestimos.stream()
-                .filter(Emprestimo::estaAtrasado)
-                .count();
+        if (agendador == null) {
+            atualizarEstadoEmprestimos();
+        }
+        return emprestimos.contarAtrasados();
     }
 
     @Override
     public void registrarDevolucao(int emprestimoId, LocalDate dataDevolucao) {
         devolverLivro(emprestimoId, dataDevolucao);
     }
+
+    // === ESCRITA DIFERIDA ===
+
+    private boolean registarEmprestimoNoDiario(Emprestimo emprestimo) {
+        long chave = escritor.novaChave();
+        if (!registarNoDiario(OperacaoCirculacao.emprestimo(chave, idLivro(emprestimo), idMembro(emprestimo),
+                emprestimo.getDataEmprestimo(), emprestimo.getDataDevolucaoPrevista()))) {
+            return false;
+        }
+        chavesOperacao.put(emprestimo.getId(), chave);
+        return true;
+    }
+
+    /**
+     * Regista a renovação já aplicada ao empréstimo; se o diário falhar,
+     * repõe a data e o contador anteriores.
+     */
+    private boolean registarRenovacao(Emprestimo emprestimo, LocalDate dataAnterior) {
+        if (escritor == null || registarNoDiario(OperacaoCirculacao.renovacao(
+                chaveOperacao(emprestimo), idGravado(emprestimo), idLivro(emprestimo), idMembro(emprestimo),
+                emprestimo.getDataDevolucaoPrevista(), emprestimo.getNumeroRenovacoes()))) {
+            agendarVencimento(emprestimo);
+            return true;
+        }
+        emprestimo.setDataDevolucaoPrevista(dataAnterior);
+        emprestimo.setNumeroRenovacoes(emprestimo.getNumeroRenovacoes() - 1);
+        return false;
+    }
+
+    private boolean registarNoDiario(OperacaoCirculacao operacao) {
+        try {
+            escritor.registar(operacao);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Erro ao registar no diário de circulação: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reconstrói em memória o efeito das operações do diário que o banco
+     * ainda não tem.
+     */
+    private void reaplicar(EscritorDiferido escritor, List<OperacaoCirculacao> pendentes) {
+        Map<Integer, Livro> livros = new HashMap<>();
+        Map<Integer, Membro> membros = new HashMap<>();
+        for (Emprestimo emprestimo : emprestimos.todos()) {
+            livros.put(emprestimo.getLivro().getId(), emprestimo.getLivro());
+            membros.put(emprestimo.getMembro().getId(), emprestimo.getMembro());
+        }
+
+        // Empréstimos já gravados referidos pela chave em devoluções ou renovações pendentes
+        Set<Long> chavesCriadas = new HashSet<>();
+        Set<Long> chavesGravadas = new HashSet<>();
+        for (OperacaoCirculacao operacao : pendentes) {
+            if (operacao.getTipo() == OperacaoCirculacao.Tipo.EMPRESTIMO) {
+                chavesCriadas.add(operacao.getChave());
+            } else if (operacao.getChave() != 0) {
+                chavesGravadas.add(operacao.getChave());
+            }
+        }
+        chavesGravadas.removeAll(chavesCriadas);
+
+        Map<Long, Emprestimo> porChave = new HashMap<>();
+        if (!chavesGravadas.isEmpty()) {
+            try {
+                for (Map.Entry<Long, Integer> id : escritor.resolverChaves(chavesGravadas).entrySet()) {
+                    Emprestimo emprestimo = buscarEmprestimoPorId(id.getValue());
+                    if (emprestimo != null) {
+                        porChave.put(id.getKey(), emprestimo);
+                        chavesOperacao.put(emprestimo.getId(), id.getKey());
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Erro ao resolver chaves do diário de circulação: " + e.getMessage());
+            }
+        }
+
+        for (OperacaoCirculacao operacao : pendentes) {
+            Emprestimo emprestimo;
+            switch (operacao.getTipo()) {
+                case EMPRESTIMO:
+                    Livro livro = livros.computeIfAbsent(operacao.getLivroId(),
+                            id -> emprestimos.livro(new LivroRepositoryImpl().findById(id).orElse(null)));
+                    Membro membro = membros.computeIfAbsent(operacao.getMembroId(),
+                            id -> emprestimos.membro(new MembroRepositoryImpl().findById(id).orElse(null)));
+                    emprestimo = new Emprestimo(proximoIdProvisorio.getAndDecrement(), livro, membro,
+                            operacao.getData(), operacao.getDataPrevista());
+                    if (livro != null) {
+                        livro.emprestar();
+                    }
+                    if (membro != null) {
+                        membro.adicionarEmprestimo(emprestimo);
+                    }
+                    emprestimos.adicionar(emprestimo);
+                    chavesOperacao.put(emprestimo.getId(), operacao.getChave());
+                    porChave.put(operacao.getChave(), emprestimo);
+                    break;
+                case DEVOLUCAO:
+                    emprestimo = localizar(operacao, porChave);
+                    if (emprestimo != null) {
+                        emprestimo.registrarDevolucao(operacao.getData());
+                        emprestimos.atualizarEstado(emprestimo);
+                        if (emprestimo.getLivro() != null) {
+                            emprestimo.getLivro().devolver();
+                        }
+                    }
+                    break;
+                case RENOVACAO:
+                    emprestimo = localizar(operacao, porChave);
+                    if (emprestimo != null) {
+                        emprestimo.setDataDevolucaoPrevista(operacao.getDataPrevista());
+                        emprestimo.setNumeroRenovacoes(operacao.getNumeroRenovacoes());
+                        emprestimo.setEstado(EstadoEmprestimo.ATIVO);
+                        emprestimos.atualizarEstado(emprestimo);
+                    }
+                    break;
+            }
+        }
+    }
+
+    // === VENCIMENTOS ===
+
+    /** (Re)agenda o vencimento de todos os empréstimos em curso */
+    private void agendarVencimentos() {
+        if (agendador == null) {
+            return;
+        }
+        synchronized (vencimentos) {
+            for (RodaTemporal.Temporizador temporizador : vencimentos.values()) {
+                temporizador.cancelar();
+            }
+            vencimentos.clear();
+        }
+        for (Emprestimo emprestimo : emprestimos.emCurso()) {
+            agendarVencimento(emprestimo);
+        }
+    }
+
+    /**
+     * Agenda a passagem a ATRASADO para o dia seguinte à data prevista
+     * (como {@link Emprestimo#estaAtrasado()}); substitui o anterior.
+     */
+    private void agendarVencimento(Emprestimo emprestimo) {
+        if (agendador == null) {
+            return;
+        }
+        cancelarVencimento(emprestimo);
+        if (emprestimo.getEstado() != EstadoEmprestimo.ATIVO || emprestimo.getDataDevolucaoPrevista() == null) {
+            return;
+        }
+        RodaTemporal.Temporizador temporizador = agendador.agendarEm(
+                emprestimo.getDataDevolucaoPrevista().plusDays(1), () -> vencer(emprestimo));
+        synchronized (vencimentos) {
+            vencimentos.put(emprestimo, temporizador);
+        }
+    }
+
+    private void cancelarVencimento(Emprestimo emprestimo) {
+        RodaTemporal.Temporizador temporizador;
+        synchronized (vencimentos) {
+            temporizador = vencimentos.remove(emprestimo);
+        }
+        if (temporizador != null) {
+            temporizador.cancelar();
+        }
+    }
+
+    /** Corre numa thread do agendador quando o prazo do empréstimo acaba */
+    private void vencer(Emprestimo emprestimo) {
+        synchronized (vencimentos) {
+            vencimentos.remove(emprestimo);
+        }
+        synchronized (emprestimo) {
+            emprestimo.atualizarEstado();
+        }
+        emprestimos.atualizarEstado(emprestimo);
+    }
+
+    private void publicarEmprestimo(Emprestimo emprestimo) {
+        BarramentoEventos.getInstance().publicar(new EmprestimoCriado(emprestimo.getId(), idLivro(emprestimo),
+                idMembro(emprestimo), emprestimo.getDataDevolucaoPrevista(),
+                emprestimo.getLivro() != null && emprestimo.getLivro().estaDisponivel()));
+    }
+
+    private Emprestimo localizar(OperacaoCirculacao operacao, Map<Long, Emprestimo> porChave) {
+        if (operacao.getChave() != 0) {
+            return porChave.get(operacao.getChave());
+        }
+        return buscarEmprestimoPorId(operacao.getEmprestimoId());
+    }
+
+    /** ID provisório negativo em escrita diferida, sequencial sem ela */
+    private int novoId() {
+        return escritor != null ? proximoIdProvisorio.getAndDecrement() : nextId.getAndIncrement();
+    }
+
+    private long chaveOperacao(Emprestimo emprestimo) {
+        Long chave = chavesOperacao.get(emprestimo.getId());
+        return chave != null ? chave : 0;
+    }
+
+    /**
+     * ID do empréstimo no banco, ou 0 se ainda for provisório.
+     */
+    private int idGravado(Emprestimo emprestimo) {
+        return Math.max(emprestimo.getId(), 0);
+    }
+
+    private int idLivro(Emprestimo emprestimo) {
+        return emprestimo.getLivro() != null ? emprestimo.getLivro().getId() : 0;
+    }
+
+    private int idMembro(Emprestimo emprestimo) {
+        return emprestimo.getMembro() != null ? emprestimo.getMembro().getId() : 0;
+    }
+
+    /**
+     * Multa de uma devolução na data indicada (como sp_devolver_livro).
+     */
+    private double multaDevolucao(Emprestimo emprestimo, LocalDate dataDevolucao) {
+        long diasAtraso = ChronoUnit.DAYS.between(emprestimo.getDataDevolucaoPrevista(), dataDevolucao);
+        return diasAtraso > 0 ? diasAtraso * Emprestimo.MULTA_DIARIA : 0.0;
+    }
 }
@@ -0,0 +1,131 @@
+package isptec.biblioteca.service.impl;
+
+import isptec.biblioteca.util.ArvoreOrdenada;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice em memória das filas de reservas ativas, uma por livro.
+ *
+ * Cada fila é uma árvore ordenada por (data_reserva, id), a mesma ordem do
+ * banco, pelo que o próximo da fila e a posição de um membro custam
+ * O(log n). O índice é reconstruído a partir da tabela reserva (ver
+ * {@link #reconstruir}) e mantido pelo serviço a cada alteração.
+ */
+class FilaReservas {
+
+    /**
+     * Entrada de uma fila.
+     */
+    static final class Entrada {
+        final int reservaId;
+        final int livroId;
+        final int membroId;
+        final long dataReserva; // epoch day
+
+        Entrada(int reservaId, int livroId, int membroId, long dataReserva) {
+            this.reservaId = reservaId;
+            this.livroId = livroId;
+            this.membroId = membroId;
+            this.dataReserva = dataReserva;
+        }
+    }
+
+    private static final Comparator<Entrada> ORDEM_FILA =
+            Comparator.comparingLong((Entrada e) -> e.dataReserva).thenComparingInt(e -> e.reservaId);
+
+    private final Map<Integer, ArvoreOrdenada<Entrada>> filas = new HashMap<>();
+    private final Map<Integer, Entrada> porReserva = new HashMap<>();
+
+    /** Chave (livroId, membroId) -> entrada, para localizar o membro na fila */
+    private final Map<Long, Entrada> porMembroLivro = new HashMap<>();
+
+    /**
+     * Substitui o conteúdo pelas chaves lidas do banco.
+     *
+     * @param chaves cada elemento é {id, livroId, membroId, dataReserva (epoch day)}
+     */
+    synchronized void reconstruir(List<long[]> chaves) {
+        filas.clear();
+        porReserva.clear();
+        porMembroLivro.clear();
+        for (long[] chave : chaves) {
+            adicionarEntrada(new Entrada((int) chave[0], (int) chave[1], (int) chave[2], chave[3]));
+        }
+    }
+
+    synchronized void adicionar(int reservaId, int livroId, int membroId, LocalDate dataReserva) {
+        adicionarEntrada(new Entrada(reservaId, livroId, membroId, dataReserva.toEpochDay()));
+    }
+
+    /**
+     * Retira a reserva da fila do seu livro (cancelada, confirmada ou expirada).
+     *
+     * @return ID do livro da reserva, ou 0 se não estava em nenhuma fila
+     */
+    synchronized int remover(int reservaId) {
+        Entrada entrada = porReserva.remove(reservaId);
+        if (entrada == null) {
+            return 0;
+        }
+        porMembroLivro.remove(chave(entrada.livroId, entrada.membroId));
+        ArvoreOrdenada<Entrada> fila = filas.get(entrada.livroId);
+        fila.remover(entrada);
+        if (fila.isVazia()) {
+            filas.remove(entrada.livroId);
+        }
+        return entrada.livroId;
+    }
+
+    /**
+     * ID da reserva à frente da fila do livro, ou 0 se não houver.
+     */
+    synchronized int proxima(int livroId) {
+        ArvoreOrdenada<Entrada> fila = filas.get(livroId);
+        return fila == null ? 0 : fila.primeiro().reservaId;
+    }
+
+    /**
+     * Posição do membro na fila do livro (1 para o primeiro).
+     *
+     * @return a posição, ou 0 se o membro não tiver reserva ativa para o livro
+     */
+    synchronized int posicao(int livroId, int membroId) {
+        Entrada entrada = porMembroLivro.get(chave(livroId, membroId));
+        if (entrada == null) {
+            return 0;
+        }
+        return filas.get(livroId).posicao(entrada) + 1;
+    }
+
+    synchronized int tamanho(int livroId) {
+        ArvoreOrdenada<Entrada> fila = filas.get(livroId);
+        return fila == null ? 0 : fila.tamanho();
+    }
+
+    /**
+     * Total de reservas ativas em todas as filas.
+     */
+    synchronized int total() {
+        return porReserva.size();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void adicionarEntrada(Entrada entrada) {
+        if (porReserva.containsKey(entrada.reservaId)) {
+            return;
+        }
+        filas.computeIfAbsent(entrada.livroId, id -> new ArvoreOrdenada<>(ORDEM_FILA)).inserir(entrada);
+        porReserva.put(entrada.reservaId, entrada);
+        porMembroLivro.put(chave(entrada.livroId, entrada.membroId), entrada);
+    }
+
+    private static long chave(int livroId, int membroId) {
+        return ((long) livroId << 32) | (membroId & 0xFFFFFFFFL);
+    }
+}
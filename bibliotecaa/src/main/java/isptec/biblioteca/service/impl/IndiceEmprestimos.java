@@ -0,0 +1,193 @@
+package isptec.biblioteca.service.impl;
+
+import isptec.biblioteca.enumeracao.EstadoEmprestimo;
+import isptec.biblioteca.model.entities.Emprestimo;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índices concorrentes dos empréstimos em memória de
+ * {@link EmprestimoServiceImpl}: por ID, por membro, por livro e por estado
+ * (em curso e atrasados).
+ *
+ * Cada empréstimo recebe um número de ordem ao entrar, e as listas
+ * devolvidas seguem essa ordem (a de registo, como a antiga lista). As
+ * leituras não bloqueiam e podem correr ao mesmo tempo que as escritas de
+ * outros balcões. Os empréstimos nunca saem dos índices (ficam no
+ * histórico); quem altera o estado de um empréstimo chama
+ * {@link #atualizarEstado}.
+ *
+ * Guarda também a instância canónica de cada livro e membro (a primeira
+ * vista com o mesmo ID). Os serviços de livros e membros devolvem cópias
+ * (a cache de entidades dá uma nova a cada leitura), por isso a
+ * disponibilidade, o histórico de empréstimos e o lock de cada livro e
+ * membro ficam na instância canónica e não na que o balcão trouxe.
+ */
+final class IndiceEmprestimos {
+
+    /**
+     * Empréstimo indexado, com a ordem de registo e o estado com que está
+     * nos índices de estado.
+     */
+    private static final class Entrada {
+        final Emprestimo emprestimo;
+        final long ordem;
+        EstadoEmprestimo estado;
+
+        Entrada(Emprestimo emprestimo, long ordem) {
+            this.emprestimo = emprestimo;
+            this.ordem = ordem;
+        }
+    }
+
+    private final AtomicLong sequencia = new AtomicLong();
+    private final Map<Integer, Entrada> porId = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentSkipListMap<Long, Emprestimo>> porMembro = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentSkipListMap<Long, Emprestimo>> porLivro = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Emprestimo> todos = new ConcurrentSkipListMap<>();
+    // ATIVO ou ATRASADO
+    private final ConcurrentSkipListMap<Long, Emprestimo> emCurso = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, Emprestimo> atrasados = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Livro> livros = new ConcurrentHashMap<>();
+    private final Map<Integer, Membro> membros = new ConcurrentHashMap<>();
+
+    /**
+     * Indexa um empréstimo novo; um ID já indexado é ignorado.
+     *
+     * @return false se o ID já existia
+     */
+    boolean adicionar(Emprestimo emprestimo) {
+        emprestimo.setLivro(livro(emprestimo.getLivro()));
+        emprestimo.setMembro(membro(emprestimo.getMembro()));
+        Entrada entrada = new Entrada(emprestimo, sequencia.incrementAndGet());
+        if (porId.putIfAbsent(emprestimo.getId(), entrada) != null) {
+            return false;
+        }
+        todos.put(entrada.ordem, emprestimo);
+        if (emprestimo.getMembro() != null) {
+            porMembro.computeIfAbsent(emprestimo.getMembro().getId(), id -> new ConcurrentSkipListMap<>())
+                    .put(entrada.ordem, emprestimo);
+        }
+        if (emprestimo.getLivro() != null) {
+            porLivro.computeIfAbsent(emprestimo.getLivro().getId(), id -> new ConcurrentSkipListMap<>())
+                    .put(entrada.ordem, emprestimo);
+        }
+        atualizar(entrada);
+        return true;
+    }
+
+    /**
+     * Instância canónica do livro com o ID deste; o próprio se for o
+     * primeiro ou ainda não tiver ID.
+     */
+    Livro livro(Livro livro) {
+        if (livro == null || livro.getId() <= 0) {
+            return livro;
+        }
+        Livro canonico = livros.putIfAbsent(livro.getId(), livro);
+        return canonico != null ? canonico : livro;
+    }
+
+    /**
+     * Instância canónica do membro com o ID deste; o próprio se for o
+     * primeiro ou ainda não tiver ID.
+     */
+    Membro membro(Membro membro) {
+        if (membro == null || membro.getId() <= 0) {
+            return membro;
+        }
+        Membro canonico = membros.putIfAbsent(membro.getId(), membro);
+        return canonico != null ? canonico : membro;
+    }
+
+    /**
+     * Move o empréstimo para os índices do seu estado atual.
+     */
+    void atualizarEstado(Emprestimo emprestimo) {
+        Entrada entrada = porId.get(emprestimo.getId());
+        if (entrada != null && entrada.emprestimo == emprestimo) {
+            atualizar(entrada);
+        }
+    }
+
+    Emprestimo porId(int id) {
+        Entrada entrada = porId.get(id);
+        return entrada != null ? entrada.emprestimo : null;
+    }
+
+    List<Emprestimo> porMembro(int membroId) {
+        return valores(porMembro.get(membroId));
+    }
+
+    List<Emprestimo> porLivro(int livroId) {
+        return valores(porLivro.get(livroId));
+    }
+
+    List<Emprestimo> todos() {
+        return valores(todos);
+    }
+
+    /** Empréstimos ATIVO ou ATRASADO */
+    List<Emprestimo> emCurso() {
+        return valores(emCurso);
+    }
+
+    List<Emprestimo> atrasados() {
+        return valores(atrasados);
+    }
+
+    int contarAtivos() {
+        return Math.max(emCurso.size() - atrasados.size(), 0);
+    }
+
+    int contarAtrasados() {
+        return atrasados.size();
+    }
+
+    void limpar() {
+        porId.clear();
+        porMembro.clear();
+        porLivro.clear();
+        todos.clear();
+        emCurso.clear();
+        atrasados.clear();
+        livros.clear();
+        membros.clear();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void atualizar(Entrada entrada) {
+        // A entrada serializa as mudanças de estado do mesmo empréstimo
+        synchronized (entrada) {
+            EstadoEmprestimo estado = entrada.emprestimo.getEstado();
+            if (estado == entrada.estado) {
+                return;
+            }
+            // Atrasados sai antes e entra depois de emCurso: contarAtivos nunca fica negativo
+            if (estado != EstadoEmprestimo.ATRASADO) {
+                atrasados.remove(entrada.ordem);
+            }
+            if (estado == EstadoEmprestimo.ATIVO || estado == EstadoEmprestimo.ATRASADO) {
+                emCurso.put(entrada.ordem, entrada.emprestimo);
+            } else {
+                emCurso.remove(entrada.ordem);
+            }
+            if (estado == EstadoEmprestimo.ATRASADO) {
+                atrasados.put(entrada.ordem, entrada.emprestimo);
+            }
+            entrada.estado = estado;
+        }
+    }
+
+    private static List<Emprestimo> valores(ConcurrentSkipListMap<Long, Emprestimo> mapa) {
+        return mapa != null ? new ArrayList<>(mapa.values()) : new ArrayList<>();
+    }
+}
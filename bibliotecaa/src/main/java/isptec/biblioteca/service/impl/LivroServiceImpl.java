@@ -1,38 +1,77 @@
 package isptec.biblioteca.service.impl;
 
+import isptec.biblioteca.busca.Campo;
+import isptec.biblioteca.busca.DescritoresLivro;
+import isptec.biblioteca.busca.Faceta;
+import isptec.biblioteca.busca.IndiceCatalogo;
+import isptec.biblioteca.busca.ResultadoPesquisa;
+import isptec.biblioteca.eventos.BarramentoEventos;
+import isptec.biblioteca.eventos.LivroAtualizado;
 import isptec.biblioteca.model.entities.Categoria;
 import isptec.biblioteca.model.entities.Livro;
-import isptec.biblioteca.enumeracao.EstadoLivro;
+import isptec.biblioteca.repository.Criterio;
 import isptec.biblioteca.repository.LivroRepository;
-import isptec.biblioteca.repository.impl.LivroRepositoryImpl;
+import isptec.biblioteca.repository.Slice;
+import isptec.biblioteca.repository.impl.Repositorios;
 import isptec.biblioteca.service.LivroService;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementação do serviço de gestão de livros.
  * Utiliza banco de dados MySQL via repositório.
+ *
+ * As buscas por título, autor, categoria e a pesquisa livre usam um
+ * {@link IndiceCatalogo} em memória, carregado numa thread ao arrancar e
+ * atualizado a cada cadastro, alteração ou remoção feita por este serviço.
+ * Enquanto a carga não termina, as buscas vão ao banco (LIKE).
+ *
+ * Cadastros, alterações e remoções são publicados no {@link BarramentoEventos};
+ * a disponibilidade muda também com empréstimos e devoluções, que chegam ao
+ * índice por {@link #atualizarDisponibilidade(int, boolean)}, e os livros
+ * importados em massa por {@link #indexarCadastrados(Collection)}.
  */
 public class LivroServiceImpl implements LivroService {
 
     private final LivroRepository livroRepository;
+    private final IndiceCatalogo<Livro> indice = new IndiceCatalogo<>(DescritoresLivro.ENTIDADE);
+
+    /** Livros alterados durante a carga do índice, a reindexar no fim */
+    private final Set<Integer> alteradosDuranteCarga = new HashSet<>();
 
     public LivroServiceImpl() {
-        this.livroRepository = new LivroRepositoryImpl();
+        this(Repositorios.livros());
+    }
+
+    /**
+     * Serviço sobre o repositório indicado (para testes sem banco).
+     */
+    LivroServiceImpl(LivroRepository livroRepository) {
+        this.livroRepository = livroRepository;
+
+        Thread carga = new Thread(this::carregarIndice, "indice-catalogo");
+        carga.setDaemon(true);
+        carga.start();
     }
 
     @Override
     public void cadastrarLivro(Livro livro) {
-        if (livro != null) {
-            livroRepository.save(livro);
+        if (livro != null && livroRepository.save(livro) != null) {
+            indexar(livro);
+            publicar(livro.getId(), LivroAtualizado.Tipo.CADASTRADO, livro.estaDisponivel());
         }
     }
 
     @Override
     public void atualizarLivro(Livro livro) {
-        if (livro != null) {
-            livroRepository.save(livro);
+        if (livro != null && livroRepository.save(livro) != null) {
+            indexar(livro);
+            publicar(livro.getId(), LivroAtualizado.Tipo.ALTERADO, livro.estaDisponivel());
         }
     }
 
@@ -40,13 +79,50 @@ public class LivroServiceImpl implements LivroService {
     public void removerLivro(String isbn) {
         Livro livro = buscarLivroPorIsbn(isbn);
         if (livro != null) {
-            livroRepository.deleteById(livro.getId());
+            removerLivroPorId(livro.getId());
         }
     }
 
     @Override
     public void removerLivroPorId(int id) {
         livroRepository.deleteById(id);
+        if (!livroRepository.existsById(id)) {
+            registarAlteracao(id);
+            indice.remover(id);
+            publicar(id, LivroAtualizado.Tipo.REMOVIDO, false);
+        }
+    }
+
+    /**
+     * Atualiza no índice a disponibilidade de um livro emprestado ou
+     * devolvido, sem o reler do banco.
+     */
+    public void atualizarDisponibilidade(int livroId, boolean disponivel) {
+        registarAlteracao(livroId);
+        indice.atualizarDisponibilidade(livroId, disponivel);
+    }
+
+    /**
+     * Lê do banco e indexa livros cadastrados fora deste serviço (importação
+     * de catálogo), numa só consulta.
+     */
+    public void indexarCadastrados(Collection<Integer> livroIds) {
+        if (livroIds.isEmpty()) {
+            return;
+        }
+        for (Livro livro : livroRepository.findWhere(Criterio.em("id", livroIds))) {
+            indexar(livro);
+        }
+    }
+
+    /**
+     * Relê do banco e reindexa todos os livros (depois de eventos perdidos:
+     * empréstimos, devoluções ou livros importados).
+     */
+    public void ressincronizarIndice() {
+        if (!livroRepository.forEach(this::indexar)) {
+            System.err.println("Erro ao ressincronizar o índice do catálogo");
+        }
     }
 
     @Override
@@ -65,15 +141,26 @@ public class LivroServiceImpl implements LivroService {
         return livroRepository.findAll();
     }
 
+    @Override
+    public Slice<Livro> listarLivros(String cursor, int tamanho) {
+        return livroRepository.findSlice(cursor, tamanho);
+    }
+
     @Override
     public List<Livro> buscarPorTitulo(String titulo) {
         if (titulo == null || titulo.isEmpty()) return new ArrayList<>();
+        if (indice.isPronto()) {
+            return indice.buscar(titulo, Campo.TITULO, Integer.MAX_VALUE);
+        }
         return livroRepository.findByTituloContaining(titulo);
     }
 
     @Override
     public List<Livro> buscarPorAutor(String autor) {
         if (autor == null || autor.isEmpty()) return new ArrayList<>();
+        if (indice.isPronto()) {
+            return indice.buscar(autor, Campo.AUTOR, Integer.MAX_VALUE);
+        }
         return livroRepository.findByAutor(autor);
     }
 
@@ -97,9 +184,43 @@ public class LivroServiceImpl implements LivroService {
     @Override
     public List<Livro> buscarPorNomeCategoria(String nomeCategoria) {
         if (nomeCategoria == null || nomeCategoria.isEmpty()) return new ArrayList<>();
+        if (indice.isPronto()) {
+            return indice.buscar(nomeCategoria, Campo.CATEGORIA, Integer.MAX_VALUE);
+        }
         return livroRepository.findByCategoria(nomeCategoria);
     }
 
+    @Override
+    public List<Livro> pesquisar(String consulta, int limite) {
+        if (consulta == null || consulta.isBlank()) return new ArrayList<>();
+        if (indice.isPronto()) {
+            return indice.buscar(consulta, limite);
+        }
+        List<Livro> livros = livroRepository.findByTituloContaining(consulta.trim());
+        return livros.size() > limite ? new ArrayList<>(livros.subList(0, limite)) : livros;
+    }
+
+    @Override
+    public ResultadoPesquisa<Livro> pesquisarComFacetas(String consulta, int limite, Map<Faceta, String> filtros) {
+        if (indice.isPronto()) {
+            return indice.pesquisar(consulta, limite, filtros);
+        }
+        // Sem índice não há relevância nem facetas: os primeiros por título
+        List<Livro> livros = consulta == null || consulta.isBlank() ?
+                livroRepository.findAll() : livroRepository.findByTituloContaining(consulta.trim());
+        int total = livros.size();
+        if (total > limite) {
+            livros = new ArrayList<>(livros.subList(0, limite));
+        }
+        return new ResultadoPesquisa<>(livros, new double[livros.size()], total, new EnumMap<>(Faceta.class));
+    }
+
+    @Override
+    public List<String> sugerirCorrecoes(String consulta, int limite) {
+        if (consulta == null || consulta.isBlank() || !indice.isPronto()) return new ArrayList<>();
+        return indice.corrigir(consulta, limite);
+    }
+
     @Override
     public List<Livro> listarLivrosDisponiveis() {
         return livroRepository.findDisponiveis();
@@ -107,10 +228,7 @@ public class LivroServiceImpl implements LivroService {
 
     @Override
     public List<Livro> listarLivrosEmprestados() {
-        return livroRepository.findAll().stream()
-                .filter(l -> l.getEstado() == EstadoLivro.EMPRESTADO ||
-                            l.getQuantidadeDisponivel() < l.getQuantidadeTotal())
-                .collect(Collectors.toList());
+        return livroRepository.findEmprestados();
     }
 
     @Override
@@ -120,6 +238,50 @@ public class LivroServiceImpl implements LivroService {
 
     @Override
     public int contarLivrosDisponiveis() {
-        return livroRepository.findDisponiveis().size();
+        return (int) livroRepository.countDisponiveis();
+    }
+
+    // === ÍNDICE DO CATÁLOGO ===
+
+    /**
+     * Carga inicial do índice em streaming; no fim reindexa os livros
+     * alterados entretanto, que podem ter sido lidos numa versão antiga.
+     */
+    private void carregarIndice() {
+        if (!livroRepository.forEach(indice::indexar)) {
+            System.err.println("Índice do catálogo não carregado; as buscas continuam no banco");
+            return;
+        }
+        Set<Integer> alterados;
+        synchronized (alteradosDuranteCarga) {
+            alterados = new HashSet<>(alteradosDuranteCarga);
+            alteradosDuranteCarga.clear();
+            indice.marcarPronto();
+        }
+        for (int id : alterados) {
+            Livro livro = livroRepository.findById(id).orElse(null);
+            if (livro != null) {
+                indice.indexar(livro);
+            } else {
+                indice.remover(id);
+            }
+        }
+    }
+
+    private void indexar(Livro livro) {
+        registarAlteracao(livro.getId());
+        indice.indexar(livro);
+    }
+
+    private void publicar(int livroId, LivroAtualizado.Tipo tipo, boolean disponivel) {
+        BarramentoEventos.getInstance().publicar(new LivroAtualizado(livroId, tipo, disponivel));
+    }
+
+    private void registarAlteracao(int livroId) {
+        synchronized (alteradosDuranteCarga) {
+            if (!indice.isPronto()) {
+                alteradosDuranteCarga.add(livroId);
+            }
+        }
     }
 }
@@ -3,92 +3,100 @@ package isptec.biblioteca.service.impl;
 import isptec.biblioteca.model.entities.Membro;
 import isptec.biblioteca.service.MembroService;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * Implementação do serviço de gestão de membros.
- * Utiliza lista em memória (pode ser substituída por base de dados).
+ * Utiliza memória (pode ser substituída por base de dados), com índices
+ * concorrentes por ID e por matrícula: as buscas são O(1) e não bloqueiam.
+ * As escritas são serializadas para manter os dois índices coerentes.
  */
 public class MembroServiceImpl implements MembroService {
 
-    private final List<Membro> membros = new ArrayList<>();
-    private int nextId = 1;
+    private final Map<Integer, Membro> porId = new ConcurrentHashMap<>();
+    private final Map<String, Membro> porMatricula = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
 
     @Override
-    public boolean cadastrarMembro(Membro membro) {
+    public synchronized boolean cadastrarMembro(Membro membro) {
         if (membro == null) {
             return false;
         }
 
         // Verifica se já existe membro com a mesma matrícula
-        if (membro.getMatricula() != null && buscarPorMatricula(membro.getMatricula()) != null) {
+        if (membro.getMatricula() != null && porMatricula.containsKey(membro.getMatricula())) {
             return false;
         }
 
         if (membro.getId() == 0) {
-            membro.setId(nextId++);
+            membro.setId(nextId.getAndIncrement());
         }
 
-        membros.add(membro);
+        indexar(membro);
         return true;
     }
 
     @Override
-    public boolean atualizarMembro(Membro membro) {
+    public synchronized boolean atualizarMembro(Membro membro) {
         if (membro == null || membro.getMatricula() == null) {
             return false;
         }
 
-        Membro existente = buscarPorMatricula(membro.getMatricula());
+        Membro existente = porMatricula.get(membro.getMatricula());
         if (existente != null) {
-            membros.remove(existente);
-            membros.add(membro);
+            desindexar(existente);
+            indexar(membro);
             return true;
         }
         return false;
     }
 
     @Override
-    public boolean removerMembro(String matricula) {
+    public synchronized boolean removerMembro(String matricula) {
         if (matricula == null) {
             return false;
         }
-        return membros.removeIf(m -> matricula.equals(m.getMatricula()));
+        Membro existente = porMatricula.get(matricula);
+        if (existente == null) {
+            return false;
+        }
+        desindexar(existente);
+        return true;
     }
 
     @Override
     public Membro buscarPorMatricula(String matricula) {
         if (matricula == null) return null;
-        return membros.stream()
-                .filter(m -> matricula.equals(m.getMatricula()))
-                .findFirst()
-                .orElse(null);
+        return porMatricula.get(matricula);
     }
 
     @Override
     public Membro buscarPorId(int id) {
-        return membros.stream()
-                .filter(m -> m.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return porId.get(id);
     }
 
     @Override
     public List<Membro> listarMembros() {
-        return new ArrayList<>(membros);
+        List<Membro> membros = new ArrayList<>(porId.values());
+        membros.sort(Comparator.comparingInt(Membro::getId));
+        return membros;
     }
 
     @Override
     public List<Membro> listarMembrosComEmprestimosAtivos() {
-        return membros.stream()
+        return listarMembros().stream()
                 .filter(m -> m.numeroEmprestimosAtivos() > 0)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<Membro> listarMembrosBloqueados() {
-        return membros.stream()
+        return listarMembros().stream()
                 .filter(Membro::isBloqueado)
                 .collect(Collectors.toList());
     }
@@ -118,5 +126,22 @@ public class MembroServiceImpl implements MembroService {
         Membro membro = buscarPorMatricula(matricula);
         return membro != null && membro.podeEmprestar();
     }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void indexar(Membro membro) {
+        porId.put(membro.getId(), membro);
+        if (membro.getMatricula() != null) {
+            porMatricula.put(membro.getMatricula(), membro);
+        }
+    }
+
+    /** Retira o membro, sem apagar outro que tenha entretanto o mesmo ID ou matrícula */
+    private void desindexar(Membro membro) {
+        porId.remove(membro.getId(), membro);
+        if (membro.getMatricula() != null) {
+            porMatricula.remove(membro.getMatricula(), membro);
+        }
+    }
 }
 
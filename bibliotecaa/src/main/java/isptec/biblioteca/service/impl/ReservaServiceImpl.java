@@ -1,29 +1,71 @@
 package isptec.biblioteca.service.impl;
 
+import isptec.biblioteca.agendamento.Agendador;
+import isptec.biblioteca.agendamento.RodaTemporal;
+import isptec.biblioteca.eventos.BarramentoEventos;
+import isptec.biblioteca.eventos.ReservaCriada;
+import isptec.biblioteca.eventos.ReservaExpirada;
 import isptec.biblioteca.model.entities.Estudante;
 import isptec.biblioteca.model.entities.Livro;
 import isptec.biblioteca.model.entities.Membro;
 import isptec.biblioteca.model.entities.Reserva;
+import isptec.biblioteca.repository.Alteracao;
+import isptec.biblioteca.repository.Criterio;
+import isptec.biblioteca.repository.ReservaRepository;
+import isptec.biblioteca.repository.impl.Repositorios;
 import isptec.biblioteca.service.ReservaService;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementação do serviço de gestão de reservas.
+ * Utiliza banco de dados MySQL via repositório; as filas por livro são
+ * mantidas num índice em memória ({@link FilaReservas}) reconstruído a
+ * partir da tabela no primeiro uso.
  *
  * REGRAS DE NEGÓCIO IMPLEMENTADAS:
  * - Só é possível reservar livro indisponível
  * - Reservas são atendidas por ordem de data
  * - Reserva expira após 3 dias se não for retirada
  * - Membro não pode ter múltiplas reservas ativas para o mesmo livro
+ *
+ * Reservas criadas e expiradas são publicadas no {@link BarramentoEventos}.
+ *
+ * Sem agendador, as reservas vencidas são expiradas na primeira operação
+ * de cada dia. Com {@link #ativarAgendamento} cada reserva tem um
+ * temporizador para o fim do seu prazo e as leituras deixam de fazer
+ * manutenção.
  */
 public class ReservaServiceImpl implements ReservaService {
 
-    private final List<Reserva> reservas = new ArrayList<>();
-    private int nextId = 1;
+    // Reservas ativas por notificar cujo livro está disponível
+    private static final Criterio POR_NOTIFICAR = Criterio.igual("r.ativa", true)
+            .e(Criterio.igual("r.notificado", false))
+            .e(Criterio.maiorQue("l.quantidade_disponivel", 0))
+            .e(Criterio.diferente("l.estado", "INDISPONIVEL"));
+
+    private final ReservaRepository reservaRepository;
+    private final FilaReservas filas;
+
+    private boolean filasCarregadas;
+    private LocalDate ultimaExpiracao;
+
+    private Agendador agendador;
+    /** Temporizador de expiração de cada reserva ativa (ID -> temporizador) */
+    private final Map<Integer, RodaTemporal.Temporizador> expiracoes = new ConcurrentHashMap<>();
+
+    public ReservaServiceImpl() {
+        this(Repositorios.reservas());
+    }
+
+    public ReservaServiceImpl(ReservaRepository reservaRepository) {
+        this.reservaRepository = reservaRepository;
+        this.filas = new FilaReservas();
+    }
 
     @Override
     public boolean reservarLivro(Membro membro, Livro livro) {
@@ -38,8 +80,13 @@ public class ReservaServiceImpl implements ReservaService {
         }
 
         // Cria a reserva
-        Reserva reserva = new Reserva(nextId++, livro, membro, LocalDate.now());
-        reservas.add(reserva);
+        Reserva reserva = reservaRepository.save(new Reserva(0, livro, membro, LocalDate.now()));
+        if (reserva == null) {
+            return false;
+        }
+        filas.adicionar(reserva.getId(), livro.getId(), membro.getId(), reserva.getDataReserva());
+        agendarExpiracao(reserva.getId(), reserva.getDataReserva().toEpochDay());
+        BarramentoEventos.getInstance().publicar(new ReservaCriada(reserva.getId(), livro.getId(), membro.getId()));
 
         return true;
     }
@@ -49,149 +96,246 @@ public class ReservaServiceImpl implements ReservaService {
         reservarLivro((Membro) estudante, livro);
     }
 
+    /**
+     * Passa a expirar cada reserva no fim do prazo por um temporizador do
+     * agendador, em vez de verificar as vencidas nas leituras. As reservas
+     * criadas por outros postos são expiradas pela tarefa diária que chama
+     * {@link #processarReservasExpiradas()}.
+     */
+    public synchronized void ativarAgendamento(Agendador agendador) {
+        this.agendador = agendador;
+        // A próxima carga das filas agenda as reservas ativas
+        filasCarregadas = false;
+    }
+
     @Override
     public void cancelarReserva(int reservaId) {
-        Reserva reserva = buscarReservaPorId(reservaId);
-        if (reserva != null) {
-            reserva.cancelar();
-        }
+        prepararFilas();
+        reservaRepository.updateWhere(Criterio.igual("r.id", reservaId),
+                Alteracao.definir("r.ativa", false));
+        filas.remover(reservaId);
+        cancelarExpiracao(reservaId);
     }
 
     @Override
     public void cancelarReserva(Reserva reserva) {
         if (reserva != null) {
             reserva.cancelar();
+            cancelarReserva(reserva.getId());
         }
     }
 
     @Override
     public void confirmarReserva(int reservaId) {
-        Reserva reserva = buscarReservaPorId(reservaId);
-        if (reserva != null) {
-            reserva.confirmar();
-        }
+        prepararFilas();
+        reservaRepository.updateWhere(Criterio.igual("r.id", reservaId),
+                Alteracao.definir("r.confirmada", true).e(Alteracao.definir("r.ativa", false)));
+        filas.remover(reservaId);
+        cancelarExpiracao(reservaId);
     }
 
     @Override
     public Reserva buscarReservaPorId(int reservaId) {
-        return reservas.stream()
-                .filter(r -> r.getId() == reservaId)
-                .findFirst()
-                .orElse(null);
+        return reservaRepository.findById(reservaId).orElse(null);
     }
 
     @Override
     public List<Reserva> listarReservasAtivas() {
-        processarReservasExpiradas();
-        return reservas.stream()
-                .filter(Reserva::estaValida)
-                .collect(Collectors.toList());
+        prepararFilas();
+        return reservaRepository.findAtivas();
     }
 
     @Override
     public List<Reserva> listarReservas() {
-        return new ArrayList<>(reservas);
+        return reservaRepository.findAll();
     }
 
     @Override
     public List<Reserva> listarReservasLivro(Livro livro) {
         if (livro == null) return new ArrayList<>();
-        return reservas.stream()
-                .filter(r -> r.getLivro() != null && r.getLivro().getId() == livro.getId())
-                .collect(Collectors.toList());
+        return reservaRepository.findByLivro(livro);
     }
 
     @Override
     public List<Reserva> listarReservasAtivasLivro(Livro livro) {
         if (livro == null) return new ArrayList<>();
-        processarReservasExpiradas();
-        return reservas.stream()
-                .filter(r -> r.getLivro() != null && r.getLivro().getId() == livro.getId())
-                .filter(Reserva::estaValida)
-                .sorted(Comparator.comparing(Reserva::getDataReserva))
-                .collect(Collectors.toList());
+        prepararFilas();
+        if (filas.tamanho(livro.getId()) == 0) {
+            return new ArrayList<>();
+        }
+        return reservaRepository.findAtivasByLivro(livro);
     }
 
     @Override
     public List<Reserva> listarReservasMembro(Membro membro) {
         if (membro == null) return new ArrayList<>();
-        return reservas.stream()
-                .filter(r -> r.getMembro() != null && r.getMembro().getId() == membro.getId())
-                .collect(Collectors.toList());
+        return reservaRepository.findByMembro(membro);
     }
 
     @Override
     public List<Reserva> listarReservasAtivasMembro(Membro membro) {
         if (membro == null) return new ArrayList<>();
-        processarReservasExpiradas();
-        return reservas.stream()
-                .filter(r -> r.getMembro() != null && r.getMembro().getId() == membro.getId())
-                .filter(Reserva::estaValida)
-                .collect(Collectors.toList());
+        prepararFilas();
+        return reservaRepository.findAtivasByMembro(membro);
     }
 
     @Override
     public boolean existeReservaAtivaParaLivro(Livro livro) {
         if (livro == null) return false;
-        processarReservasExpiradas();
-        return reservas.stream()
-                .anyMatch(r -> r.getLivro() != null &&
-                              r.getLivro().getId() == livro.getId() &&
-                              r.estaValida());
+        prepararFilas();
+        return filas.tamanho(livro.getId()) > 0;
     }
 
     @Override
     public boolean membroTemReservaAtivaParaLivro(Membro membro, Livro livro) {
         if (membro == null || livro == null) return false;
-        processarReservasExpiradas();
-        return reservas.stream()
-                .anyMatch(r -> r.getMembro() != null &&
-                              r.getMembro().getId() == membro.getId() &&
-                              r.getLivro() != null &&
-                              r.getLivro().getId() == livro.getId() &&
-                              r.estaValida());
+        prepararFilas();
+        return filas.posicao(livro.getId(), membro.getId()) > 0;
     }
 
     @Override
     public Reserva obterProximaReservaFila(Livro livro) {
         if (livro == null) return null;
-        processarReservasExpiradas();
-        return reservas.stream()
-                .filter(r -> r.getLivro() != null && r.getLivro().getId() == livro.getId())
-                .filter(Reserva::estaValida)
-                .min(Comparator.comparing(Reserva::getDataReserva))
-                .orElse(null);
+        prepararFilas();
+        int reservaId = filas.proxima(livro.getId());
+        return reservaId == 0 ? null : buscarReservaPorId(reservaId);
+    }
+
+    @Override
+    public int obterPosicaoFila(Membro membro, Livro livro) {
+        if (membro == null || livro == null) return 0;
+        prepararFilas();
+        return filas.posicao(livro.getId(), membro.getId());
+    }
+
+    @Override
+    public int contarReservasFila(Livro livro) {
+        if (livro == null) return 0;
+        prepararFilas();
+        return filas.tamanho(livro.getId());
     }
 
     @Override
     public void processarReservasExpiradas() {
+        carregarFilas();
         // Cancela automaticamente reservas expiradas
-        for (Reserva reserva : reservas) {
-            if (reserva.isAtiva() && reserva.estaExpirada()) {
-                reserva.cancelar();
-            }
+        BarramentoEventos barramento = BarramentoEventos.getInstance();
+        for (int reservaId : reservaRepository.expirarVencidas()) {
+            int livroId = filas.remover(reservaId);
+            cancelarExpiracao(reservaId);
+            barramento.publicar(new ReservaExpirada(reservaId, livroId));
         }
+        ultimaExpiracao = LocalDate.now();
     }
 
     @Override
     public void notificarDisponibilidade() {
-        // Marca reservas como notificadas quando o livro está disponível
-        for (Reserva reserva : reservas) {
-            if (reserva.estaValida() && !reserva.isNotificado()) {
-                if (reserva.getLivro() != null && reserva.getLivro().estaDisponivel()) {
-                    reserva.marcarNotificado();
-                    // Aqui seria enviada uma notificação ao membro
-                    System.out.println("NOTIFICAÇÃO: " + reserva.getMembro().getNome() +
-                                     " - O livro '" + reserva.getLivro().getTitulo() +
-                                     "' está disponível para retirada!");
-                }
-            }
+        prepararFilas();
+        notificar(POR_NOTIFICAR);
+    }
+
+    /**
+     * Notifica só as reservas dos livros indicados (por exemplo, os que
+     * acabaram de ser devolvidos), sem percorrer todas as reservas ativas.
+     */
+    public void notificarDisponibilidade(Collection<Integer> livroIds) {
+        if (livroIds == null || livroIds.isEmpty()) {
+            return;
         }
+        prepararFilas();
+        notificar(POR_NOTIFICAR.e(Criterio.em("r.livro_id", new ArrayList<>(livroIds))));
     }
 
     @Override
     public int contarReservasAtivas() {
-        processarReservasExpiradas();
-        return (int) reservas.stream().filter(Reserva::estaValida).count();
+        prepararFilas();
+        return filas.total();
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /** Marca como notificadas as reservas do critério cujo livro está disponível */
+    private void notificar(Criterio criterio) {
+        List<Reserva> pendentes = reservaRepository.findWhere(criterio);
+        List<Integer> notificadas = new ArrayList<>();
+
+        for (Reserva reserva : pendentes) {
+            reserva.marcarNotificado();
+            notificadas.add(reserva.getId());
+            // Aqui seria enviada uma notificação ao membro
+            System.out.println("NOTIFICAÇÃO: " + reserva.getMembro().getNome() +
+                             " - O livro '" + reserva.getLivro().getTitulo() +
+                             "' está disponível para retirada!");
+        }
+        if (!notificadas.isEmpty()) {
+            reservaRepository.updateWhere(Criterio.em("r.id", notificadas),
+                    Alteracao.definir("r.notificado", true));
+        }
+    }
+
+    /**
+     * Garante que o índice de filas está carregado e sem reservas vencidas.
+     * As reservas expiram por data, por isso basta processá-las uma vez por
+     * dia; com agendador são os temporizadores que as expiram.
+     */
+    private synchronized void prepararFilas() {
+        if (agendador != null) {
+            carregarFilas();
+        } else if (!LocalDate.now().equals(ultimaExpiracao)) {
+            processarReservasExpiradas();
+        }
+    }
+
+    private synchronized void carregarFilas() {
+        if (!filasCarregadas) {
+            List<long[]> chaves = reservaRepository.findChavesAtivas();
+            filas.reconstruir(chaves);
+            filasCarregadas = true;
+            if (agendador != null) {
+                for (RodaTemporal.Temporizador temporizador : expiracoes.values()) {
+                    temporizador.cancelar();
+                }
+                expiracoes.clear();
+                for (long[] chave : chaves) {
+                    agendarExpiracao((int) chave[0], chave[3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Agenda a expiração para o dia seguinte ao fim do prazo (como
+     * {@link Reserva#estaExpirada()}).
+     */
+    private void agendarExpiracao(int reservaId, long diaReserva) {
+        if (agendador == null) {
+            return;
+        }
+        LocalDate dia = LocalDate.ofEpochDay(diaReserva + Reserva.DIAS_EXPIRACAO + 1);
+        RodaTemporal.Temporizador anterior = expiracoes.put(reservaId,
+                agendador.agendarEm(dia, () -> expirar(reservaId)));
+        if (anterior != null) {
+            anterior.cancelar();
+        }
+    }
+
+    private void cancelarExpiracao(int reservaId) {
+        RodaTemporal.Temporizador temporizador = expiracoes.remove(reservaId);
+        if (temporizador != null) {
+            temporizador.cancelar();
+        }
+    }
+
+    /** Corre numa thread do agendador quando o prazo da reserva acaba */
+    private void expirar(int reservaId) {
+        expiracoes.remove(reservaId);
+        long expiradas = reservaRepository.updateWhere(Criterio.igual("r.id", reservaId)
+                        .e(Criterio.igual("r.ativa", true))
+                        .e(Criterio.menorQue("r.data_expiracao", LocalDate.now())),
+                Alteracao.definir("r.ativa", false));
+        if (expiradas > 0) {
+            int livroId = filas.remover(reservaId);
+            BarramentoEventos.getInstance().publicar(new ReservaExpirada(reservaId, livroId));
+        }
     }
 }
@@ -0,0 +1,129 @@
+package isptec.biblioteca.servidor;
+
+import isptec.biblioteca.importacao.RelatorioImportacao;
+import isptec.biblioteca.model.entities.Emprestimo;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.model.entities.Pessoa;
+import isptec.biblioteca.model.entities.Reserva;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entidades em objetos JSON (mapas para {@link isptec.biblioteca.util.Json}).
+ * Livros e membros referenciados aparecem só pelo ID e nome, e as
+ * enumerações pelo nome da constante.
+ */
+final class ConversorJson {
+
+    private ConversorJson() {
+    }
+
+    static Map<String, Object> livro(Livro livro) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", livro.getId());
+        json.put("titulo", livro.getTitulo());
+        json.put("isbn", livro.getIsbn());
+        json.put("autores", livro.getAutoresFormatados());
+        json.put("categorias", livro.getCategoriasFormatadas());
+        json.put("editora", livro.getEditora());
+        json.put("anoPublicacao", livro.getAnoPublicacao());
+        json.put("quantidadeTotal", livro.getQuantidadeTotal());
+        json.put("quantidadeDisponivel", livro.getQuantidadeDisponivel());
+        json.put("estado", nome(livro.getEstado()));
+        json.put("localizacao", livro.getLocalizacao());
+        json.put("descricao", livro.getDescricao());
+        return json;
+    }
+
+    static Map<String, Object> membro(Membro membro) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", membro.getId());
+        json.put("nome", membro.getNome());
+        json.put("email", membro.getEmail());
+        json.put("matricula", membro.getMatricula());
+        json.put("bloqueado", membro.isBloqueado());
+        json.put("multaPendente", membro.getMultaPendente());
+        json.put("emprestimosAtivos", membro.getEmprestimosAtivos().size());
+        return json;
+    }
+
+    static Map<String, Object> emprestimo(Emprestimo emprestimo) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", emprestimo.getId());
+        json.put("livroId", emprestimo.getLivro() != null ? emprestimo.getLivro().getId() : null);
+        json.put("livroTitulo", emprestimo.getLivro() != null ? emprestimo.getLivro().getTitulo() : null);
+        json.put("membroId", emprestimo.getMembro() != null ? emprestimo.getMembro().getId() : null);
+        json.put("membroNome", emprestimo.getMembro() != null ? emprestimo.getMembro().getNome() : null);
+        json.put("dataEmprestimo", texto(emprestimo.getDataEmprestimo()));
+        json.put("dataDevolucaoPrevista", texto(emprestimo.getDataDevolucaoPrevista()));
+        json.put("dataDevolucaoReal", texto(emprestimo.getDataDevolucaoReal()));
+        json.put("numeroRenovacoes", emprestimo.getNumeroRenovacoes());
+        json.put("estado", nome(emprestimo.getEstado()));
+        json.put("diasAtraso", emprestimo.getDiasAtraso());
+        return json;
+    }
+
+    static Map<String, Object> reserva(Reserva reserva) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", reserva.getId());
+        json.put("livroId", reserva.getLivro() != null ? reserva.getLivro().getId() : null);
+        json.put("livroTitulo", reserva.getLivro() != null ? reserva.getLivro().getTitulo() : null);
+        json.put("membroId", reserva.getMembro() != null ? reserva.getMembro().getId() : null);
+        json.put("membroNome", reserva.getMembro() != null ? reserva.getMembro().getNome() : null);
+        json.put("dataReserva", texto(reserva.getDataReserva()));
+        json.put("dataExpiracao", texto(reserva.getDataExpiracao()));
+        json.put("ativa", reserva.isAtiva());
+        json.put("confirmada", reserva.isConfirmada());
+        json.put("notificado", reserva.isNotificado());
+        return json;
+    }
+
+    /** Utilizador de uma sessão (sem a senha) */
+    static Map<String, Object> pessoa(Pessoa pessoa) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", pessoa.getId());
+        json.put("nome", pessoa.getNome());
+        json.put("email", pessoa.getEmail());
+        json.put("perfil", nome(pessoa.getPerfil()));
+        return json;
+    }
+
+    static Map<String, Object> relatorio(RelatorioImportacao relatorio) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("concluida", relatorio.isConcluida());
+        json.put("lidos", relatorio.getLidos());
+        json.put("importados", relatorio.getImportados());
+        json.put("duplicadosFicheiro", relatorio.getDuplicadosFicheiro());
+        json.put("duplicadosBase", relatorio.getDuplicadosBase());
+        json.put("rejeitados", relatorio.getRejeitados());
+        json.put("autoresCriados", relatorio.getAutoresCriados());
+        json.put("categoriasCriadas", relatorio.getCategoriasCriadas());
+        json.put("duracaoMs", relatorio.getDuracao() != null ? relatorio.getDuracao().toMillis() : null);
+        json.put("erroFatal", relatorio.getErroFatal());
+        List<Object> rejeicoes = new ArrayList<>();
+        for (RelatorioImportacao.Rejeicao rejeicao : relatorio.getRejeicoes()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("posicao", rejeicao.getPosicao());
+            item.put("isbn", rejeicao.getIsbn());
+            item.put("titulo", rejeicao.getTitulo());
+            item.put("motivo", rejeicao.getMotivo());
+            rejeicoes.add(item);
+        }
+        json.put("rejeicoes", rejeicoes);
+        return json;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static String nome(Enum<?> valor) {
+        return valor != null ? valor.name() : null;
+    }
+
+    private static String texto(Object valor) {
+        return valor != null ? valor.toString() : null;
+    }
+}
@@ -0,0 +1,221 @@
+package isptec.biblioteca.servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import isptec.biblioteca.model.entities.Pessoa;
+import isptec.biblioteca.util.Json;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pedido HTTP recebido pelo {@link ServidorApi}: parâmetros do caminho e da
+ * consulta, corpo e a resposta.
+ *
+ * Respostas pequenas levam Content-Length, para a ligação ficar aberta para
+ * o pedido seguinte (keep-alive). Listas grandes são escritas à medida que
+ * são produzidas, em chunked, com {@link #responderLista(int)}.
+ */
+public final class PedidoHttp {
+
+    // Corpos JSON maiores são recusados (as importações leem o corpo em fluxo)
+    private static final int LIMITE_CORPO = 1 << 20;
+    private static final String TIPO_JSON = "application/json; charset=utf-8";
+
+    private final HttpExchange troca;
+    private final Map<String, String> parametros;
+    private Map<String, String> consulta;
+    private Pessoa utilizador;
+    private int estado;
+
+    PedidoHttp(HttpExchange troca, Map<String, String> parametros) {
+        this.troca = troca;
+        this.parametros = parametros;
+    }
+
+    public String getMetodo() {
+        return troca.getRequestMethod();
+    }
+
+    public String getCaminho() {
+        return troca.getRequestURI().getPath();
+    }
+
+    /** Parâmetro do caminho ({id} em /api/livros/{id}) */
+    public String parametro(String nome) {
+        return parametros.get(nome);
+    }
+
+    /**
+     * @throws IllegalArgumentException se o parâmetro não for um número
+     */
+    public int parametroInt(String nome) {
+        return inteiro(nome, parametros.get(nome));
+    }
+
+    /** Parâmetro da consulta (?nome=valor), ou null */
+    public String consulta(String nome) {
+        if (consulta == null) {
+            consulta = lerConsulta(troca.getRequestURI().getRawQuery());
+        }
+        return consulta.get(nome);
+    }
+
+    /**
+     * @throws IllegalArgumentException se o parâmetro existir e não for um número
+     */
+    public int consultaInt(String nome, int padrao) {
+        String valor = consulta(nome);
+        return valor == null || valor.isEmpty() ? padrao : inteiro(nome, valor);
+    }
+
+    public String cabecalho(String nome) {
+        return troca.getRequestHeaders().getFirst(nome);
+    }
+
+    /** Corpo em fluxo, para pedidos grandes */
+    public InputStream getCorpo() {
+        return troca.getRequestBody();
+    }
+
+    /**
+     * Corpo como objeto JSON.
+     *
+     * @throws IllegalArgumentException se não for um objeto JSON ou passar do limite
+     */
+    public Map<String, Object> corpoJson() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        InputStream entrada = troca.getRequestBody();
+        int lidos;
+        while ((lidos = entrada.read(buffer)) != -1) {
+            if (bytes.size() + lidos > LIMITE_CORPO) {
+                throw new IllegalArgumentException("Corpo do pedido excede " + LIMITE_CORPO + " bytes");
+            }
+            bytes.write(buffer, 0, lidos);
+        }
+        if (bytes.size() == 0) {
+            return new LinkedHashMap<>();
+        }
+        return Json.lerObjeto(bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    /** Utilizador da sessão, se o pedido a indicou */
+    public Pessoa getUtilizador() {
+        return utilizador;
+    }
+
+    void setUtilizador(Pessoa utilizador) {
+        this.utilizador = utilizador;
+    }
+
+    // === RESPOSTA ===
+
+    /**
+     * Responde com um valor JSON (Map, List, String, número...) de tamanho conhecido.
+     */
+    public void responder(int estado, Object valor) throws IOException {
+        byte[] corpo = Json.escrever(valor).getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", TIPO_JSON);
+        enviarCabecalhos(estado, corpo.length);
+        troca.getResponseBody().write(corpo);
+    }
+
+    /** Resposta sem corpo (ex.: 204) */
+    public void responderVazio(int estado) throws IOException {
+        enviarCabecalhos(estado, -1);
+    }
+
+    /**
+     * Responde com um array JSON escrito à medida que os elementos chegam
+     * (chunked): nem a lista inteira nem o JSON ficam em memória. Fechar a
+     * lista termina a resposta.
+     */
+    public ListaJson responderLista(int estado) throws IOException {
+        troca.getResponseHeaders().set("Content-Type", TIPO_JSON);
+        enviarCabecalhos(estado, 0);
+        return new ListaJson(new BufferedWriter(
+                new OutputStreamWriter(troca.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024));
+    }
+
+    /** Estado enviado, ou 0 se ainda não respondeu */
+    public int getEstado() {
+        return estado;
+    }
+
+    public boolean isRespondido() {
+        return estado != 0;
+    }
+
+    /**
+     * Array JSON em fluxo.
+     */
+    public static final class ListaJson implements Closeable {
+        private final Writer saida;
+        private final StringBuilder elemento = new StringBuilder(256);
+        private boolean primeiro = true;
+
+        private ListaJson(Writer saida) throws IOException {
+            this.saida = saida;
+            saida.write('[');
+        }
+
+        public void adicionar(Object valor) throws IOException {
+            if (!primeiro) {
+                saida.write(',');
+            }
+            primeiro = false;
+            elemento.setLength(0);
+            Json.escrever(elemento, valor);
+            saida.append(elemento);
+        }
+
+        @Override
+        public void close() throws IOException {
+            saida.write(']');
+            saida.close();
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private void enviarCabecalhos(int estado, long tamanho) throws IOException {
+        if (this.estado != 0) {
+            throw new IllegalStateException("Pedido já respondido");
+        }
+        this.estado = estado;
+        troca.sendResponseHeaders(estado, tamanho);
+    }
+
+    private static int inteiro(String nome, String valor) {
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parâmetro " + nome + " inválido: " + valor);
+        }
+    }
+
+    private static Map<String, String> lerConsulta(String consulta) {
+        if (consulta == null || consulta.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> valores = new LinkedHashMap<>();
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nome = igual >= 0 ? par.substring(0, igual) : par;
+            String valor = igual >= 0 ? par.substring(igual + 1) : "";
+            valores.putIfAbsent(URLDecoder.decode(nome, StandardCharsets.UTF_8),
+                    URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return valores;
+    }
+}
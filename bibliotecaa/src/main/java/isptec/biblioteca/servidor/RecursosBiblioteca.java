@@ -0,0 +1,410 @@
+package isptec.biblioteca.servidor;
+
+import isptec.biblioteca.ServiceFactory;
+import isptec.biblioteca.enumeracao.Perfil;
+import isptec.biblioteca.exception.AutenticacaoException;
+import isptec.biblioteca.importacao.FormatoCatalogo;
+import isptec.biblioteca.importacao.ImportadorCatalogo;
+import isptec.biblioteca.importacao.RelatorioImportacao;
+import isptec.biblioteca.model.entities.Emprestimo;
+import isptec.biblioteca.model.entities.Estudante;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.model.entities.Pessoa;
+import isptec.biblioteca.model.entities.Reserva;
+import isptec.biblioteca.repository.Slice;
+import isptec.biblioteca.service.AuthService;
+import isptec.biblioteca.service.EmprestimoService;
+import isptec.biblioteca.service.LivroService;
+import isptec.biblioteca.service.MembroService;
+import isptec.biblioteca.service.ReservaService;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Endpoints da biblioteca sobre os serviços da {@link ServiceFactory}.
+ *
+ * As leituras do catálogo são públicas (portal do estudante); o resto pede
+ * uma sessão (POST /api/sessoes, depois "Authorization: Bearer &lt;token&gt;").
+ * Empréstimos, membros e importações são só para funcionários; um
+ * estudante só reserva e consulta reservas em seu nome.
+ *
+ * <pre>
+ * POST   /api/sessoes                      {email, senha}
+ * DELETE /api/sessoes
+ * GET    /api/estado
+ * GET    /api/livros                       ?q=consulta&amp;limite=n (sem q: catálogo inteiro, em fluxo)
+ * GET    /api/livros/{id}
+ * POST   /api/livros/importacao            ?formato=jsonl|csv|marc21 (corpo em fluxo)
+ * GET    /api/membros
+ * GET    /api/membros/{id}
+ * GET    /api/emprestimos                  ?estado=ativos|atrasados&amp;membroId=n
+ * GET    /api/emprestimos/{id}
+ * POST   /api/emprestimos                  {membroId, livroId}
+ * POST   /api/emprestimos/{id}/devolucao
+ * POST   /api/emprestimos/{id}/renovacao
+ * GET    /api/reservas                     ?membroId=n
+ * POST   /api/reservas                     {membroId, livroId}
+ * DELETE /api/reservas/{id}
+ * </pre>
+ */
+public final class RecursosBiblioteca {
+
+    // Livros lidos do repositório de cada vez ao listar o catálogo inteiro
+    private static final int FATIA_CATALOGO = 500;
+
+    private final AuthService authService;
+    private final LivroService livroService;
+    private final MembroService membroService;
+    private final EmprestimoService emprestimoService;
+    private final ReservaService reservaService;
+
+    private final Map<String, Sessao> sessoes = new ConcurrentHashMap<>();
+    private final SecureRandom aleatorio = new SecureRandom();
+    private final long validadeSessaoMs;
+
+    /** Sessão de um utilizador; expira após um período sem uso */
+    private static final class Sessao {
+        final Pessoa pessoa;
+        volatile long ultimoUso;
+
+        Sessao(Pessoa pessoa) {
+            this.pessoa = pessoa;
+            this.ultimoUso = System.currentTimeMillis();
+        }
+    }
+
+    public RecursosBiblioteca(ServiceFactory fabrica) {
+        this.authService = fabrica.getAuthService();
+        this.livroService = fabrica.getLivroService();
+        this.membroService = fabrica.getMembroService();
+        this.emprestimoService = fabrica.getEmprestimoService();
+        this.reservaService = fabrica.getReservaService();
+        String minutos = DatabaseManager.getInstance().getPropriedade("servidor.sessaoMinutos");
+        this.validadeSessaoMs = (minutos == null || minutos.isBlank() ? 480 : Long.parseLong(minutos.trim())) * 60_000;
+    }
+
+    public void registar(ServidorApi servidor) {
+        servidor.registar("POST", "/api/sessoes", this::iniciarSessao);
+        servidor.registar("DELETE", "/api/sessoes", this::terminarSessao);
+        servidor.registar("GET", "/api/estado", this::estado);
+
+        servidor.registar("GET", "/api/livros", this::listarLivros);
+        servidor.registar("GET", "/api/livros/{id}", this::livro);
+        servidor.registar("POST", "/api/livros/importacao", this::importarLivros);
+
+        servidor.registar("GET", "/api/membros", this::listarMembros);
+        servidor.registar("GET", "/api/membros/{id}", this::membro);
+
+        servidor.registar("GET", "/api/emprestimos", this::listarEmprestimos);
+        servidor.registar("GET", "/api/emprestimos/{id}", this::emprestimo);
+        servidor.registar("POST", "/api/emprestimos", this::emprestar);
+        servidor.registar("POST", "/api/emprestimos/{id}/devolucao", this::devolver);
+        servidor.registar("POST", "/api/emprestimos/{id}/renovacao", this::renovar);
+
+        servidor.registar("GET", "/api/reservas", this::listarReservas);
+        servidor.registar("POST", "/api/reservas", this::reservar);
+        servidor.registar("DELETE", "/api/reservas/{id}", this::cancelarReserva);
+    }
+
+    // === SESSÕES ===
+
+    private void iniciarSessao(PedidoHttp pedido) throws IOException {
+        Map<String, Object> corpo = pedido.corpoJson();
+        Pessoa pessoa;
+        // AuthServiceImpl guarda os utilizadores em HashMap
+        synchronized (authService) {
+            pessoa = authService.login(texto(corpo, "email"), texto(corpo, "senha"));
+        }
+        if (pessoa == null) {
+            throw AutenticacaoException.credenciaisInvalidas();
+        }
+        limparSessoesExpiradas();
+        byte[] bytes = new byte[32];
+        aleatorio.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessoes.put(token, new Sessao(pessoa));
+
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        resposta.put("token", token);
+        resposta.put("utilizador", ConversorJson.pessoa(pessoa));
+        pedido.responder(201, resposta);
+    }
+
+    private void terminarSessao(PedidoHttp pedido) {
+        String token = token(pedido);
+        if (token != null) {
+            sessoes.remove(token);
+        }
+    }
+
+    // === CATÁLOGO ===
+
+    private void estado(PedidoHttp pedido) throws IOException {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("livros", livroService.contarLivros());
+        estado.put("livrosDisponiveis", livroService.contarLivrosDisponiveis());
+        estado.put("emprestimosAtivos", emprestimoService.contarEmprestimosAtivos());
+        estado.put("emprestimosAtrasados", emprestimoService.contarEmprestimosAtrasados());
+        estado.put("reservasAtivas", reservaService.contarReservasAtivas());
+        pedido.responder(200, estado);
+    }
+
+    private void listarLivros(PedidoHttp pedido) throws IOException {
+        String consulta = pedido.consulta("q");
+        if (consulta != null && !consulta.isBlank()) {
+            responderLista(pedido, livroService.pesquisar(consulta, pedido.consultaInt("limite", 50)),
+                    ConversorJson::livro);
+            return;
+        }
+        // Catálogo inteiro: fatia a fatia do repositório, escrito à medida que chega
+        try (PedidoHttp.ListaJson lista = pedido.responderLista(200)) {
+            String cursor = null;
+            do {
+                Slice<Livro> fatia = livroService.listarLivros(cursor, FATIA_CATALOGO);
+                for (Livro livro : fatia.getConteudo()) {
+                    lista.adicionar(ConversorJson.livro(livro));
+                }
+                cursor = fatia.getProximoCursor();
+            } while (cursor != null);
+        }
+    }
+
+    private void livro(PedidoHttp pedido) throws IOException {
+        pedido.responder(200, ConversorJson.livro(livroExistente(pedido.parametroInt("id"))));
+    }
+
+    /** O corpo vai diretamente para o importador, sem ficar inteiro em memória */
+    private void importarLivros(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        String formato = pedido.consulta("formato");
+        FormatoCatalogo formatoCatalogo = FormatoCatalogo.valueOf(
+                (formato == null ? "jsonl" : formato).trim().toUpperCase(Locale.ROOT));
+        RelatorioImportacao relatorio = new ImportadorCatalogo().importar(formatoCatalogo.abrir(pedido.getCorpo()));
+        pedido.responder(relatorio.isConcluida() ? 200 : 500, ConversorJson.relatorio(relatorio));
+    }
+
+    // === MEMBROS ===
+
+    private void listarMembros(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        responderLista(pedido, membroService.listarMembros(), ConversorJson::membro);
+    }
+
+    private void membro(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        pedido.responder(200, ConversorJson.membro(membroExistente(pedido.parametroInt("id"))));
+    }
+
+    // === EMPRÉSTIMOS ===
+
+    private void listarEmprestimos(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        int membroId = pedido.consultaInt("membroId", 0);
+        String estado = pedido.consulta("estado");
+        List<Emprestimo> emprestimos;
+        if (membroId != 0) {
+            emprestimos = emprestimoService.listarEmprestimosPorMembro(membroExistente(membroId));
+        } else if ("ativos".equals(estado)) {
+            emprestimos = emprestimoService.listarEmprestimosAtivos();
+        } else if ("atrasados".equals(estado)) {
+            emprestimos = emprestimoService.listarEmprestimosAtrasados();
+        } else if (estado == null) {
+            emprestimos = emprestimoService.listarTodosEmprestimos();
+        } else {
+            throw new IllegalArgumentException("Estado inválido: " + estado);
+        }
+        responderLista(pedido, emprestimos, ConversorJson::emprestimo);
+    }
+
+    private void emprestimo(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        pedido.responder(200, ConversorJson.emprestimo(emprestimoExistente(pedido.parametroInt("id"))));
+    }
+
+    private void emprestar(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        Map<String, Object> corpo = pedido.corpoJson();
+        Membro membro = membroExistente(inteiro(corpo, "membroId"));
+        Livro livro = livroExistente(inteiro(corpo, "livroId"));
+        Emprestimo criado = emprestimoService.realizarEmprestimo(membro, livro);
+        if (criado == null) {
+            throw new ServidorApi.ErroHttp(409, "Empréstimo não permitido (livro indisponível ou membro sem direito)");
+        }
+        pedido.responder(201, ConversorJson.emprestimo(criado));
+    }
+
+    private void devolver(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        Emprestimo emprestimo = emprestimoExistente(pedido.parametroInt("id"));
+        emprestimoService.devolverLivro(emprestimo.getId());
+        // Relido: no modo atómico a instância anterior não vê a devolução
+        pedido.responder(200, ConversorJson.emprestimo(emprestimoExistente(emprestimo.getId())));
+    }
+
+    private void renovar(PedidoHttp pedido) throws IOException {
+        exigirFuncionario(pedido);
+        Emprestimo emprestimo = emprestimoExistente(pedido.parametroInt("id"));
+        if (!emprestimoService.renovarEmprestimo(emprestimo.getId())) {
+            throw new ServidorApi.ErroHttp(409, "Renovação não permitida");
+        }
+        pedido.responder(200, ConversorJson.emprestimo(emprestimoExistente(emprestimo.getId())));
+    }
+
+    // === RESERVAS ===
+
+    private void listarReservas(PedidoHttp pedido) throws IOException {
+        Pessoa pessoa = exigirSessao(pedido);
+        List<Reserva> reservas;
+        if (!isFuncionario(pessoa)) {
+            reservas = reservaService.listarReservasMembro(membroDoEstudante(pessoa));
+        } else {
+            int membroId = pedido.consultaInt("membroId", 0);
+            reservas = membroId != 0
+                    ? reservaService.listarReservasMembro(membroExistente(membroId))
+                    : reservaService.listarReservas();
+        }
+        responderLista(pedido, reservas, ConversorJson::reserva);
+    }
+
+    private void reservar(PedidoHttp pedido) throws IOException {
+        Pessoa pessoa = exigirSessao(pedido);
+        Map<String, Object> corpo = pedido.corpoJson();
+        // Um estudante só reserva em seu nome
+        Membro membro = isFuncionario(pessoa) ? membroExistente(inteiro(corpo, "membroId")) : membroDoEstudante(pessoa);
+        Livro livro = livroExistente(inteiro(corpo, "livroId"));
+        if (!reservaService.reservarLivro(membro, livro)) {
+            throw new ServidorApi.ErroHttp(409, "Reserva não permitida");
+        }
+        pedido.responderVazio(201);
+    }
+
+    private void cancelarReserva(PedidoHttp pedido) {
+        Pessoa pessoa = exigirSessao(pedido);
+        Reserva reserva = reservaService.buscarReservaPorId(pedido.parametroInt("id"));
+        if (reserva == null) {
+            throw new ServidorApi.ErroHttp(404, "Reserva não encontrada");
+        }
+        if (!isFuncionario(pessoa)
+                && (reserva.getMembro() == null || reserva.getMembro().getId() != membroDoEstudante(pessoa).getId())) {
+            throw new ServidorApi.ErroHttp(403, "Reserva de outro membro");
+        }
+        reservaService.cancelarReserva(reserva);
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static <T> void responderLista(PedidoHttp pedido, List<T> itens,
+                                           Function<T, Map<String, Object>> conversor) throws IOException {
+        try (PedidoHttp.ListaJson lista = pedido.responderLista(200)) {
+            for (T item : itens) {
+                lista.adicionar(conversor.apply(item));
+            }
+        }
+    }
+
+    private Pessoa exigirSessao(PedidoHttp pedido) {
+        String token = token(pedido);
+        Sessao sessao = token != null ? sessoes.get(token) : null;
+        long agora = System.currentTimeMillis();
+        if (sessao == null || agora - sessao.ultimoUso > validadeSessaoMs) {
+            if (sessao != null) {
+                sessoes.remove(token);
+            }
+            throw new ServidorApi.ErroHttp(401, "Sessão inválida ou expirada");
+        }
+        sessao.ultimoUso = agora;
+        pedido.setUtilizador(sessao.pessoa);
+        return sessao.pessoa;
+    }
+
+    private void exigirFuncionario(PedidoHttp pedido) {
+        if (!isFuncionario(exigirSessao(pedido))) {
+            throw new ServidorApi.ErroHttp(403, "Operação reservada a funcionários");
+        }
+    }
+
+    private static boolean isFuncionario(Pessoa pessoa) {
+        return pessoa.getPerfil() != Perfil.USUARIO;
+    }
+
+    /**
+     * Membro da biblioteca de um estudante com sessão, pela matrícula (o ID
+     * do utilizador na autenticação não é o ID do membro).
+     */
+    private Membro membroDoEstudante(Pessoa pessoa) {
+        Membro membro = pessoa instanceof Estudante
+                ? membroService.buscarPorMatricula(((Estudante) pessoa).getMatricula())
+                : null;
+        if (membro == null) {
+            throw new ServidorApi.ErroHttp(403, "Utilizador sem registo de membro da biblioteca");
+        }
+        return membro;
+    }
+
+    private void limparSessoesExpiradas() {
+        long limite = System.currentTimeMillis() - validadeSessaoMs;
+        sessoes.values().removeIf(sessao -> sessao.ultimoUso < limite);
+    }
+
+    private static String token(PedidoHttp pedido) {
+        String autorizacao = pedido.cabecalho("Authorization");
+        if (autorizacao == null || !autorizacao.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return autorizacao.substring(7).trim();
+    }
+
+    private Livro livroExistente(int id) {
+        Livro livro = livroService.buscarLivroPorId(id);
+        if (livro == null) {
+            throw new ServidorApi.ErroHttp(404, "Livro não encontrado: " + id);
+        }
+        return livro;
+    }
+
+    private Membro membroExistente(int id) {
+        Membro membro = membroService.buscarPorId(id);
+        if (membro == null) {
+            throw new ServidorApi.ErroHttp(404, "Membro não encontrado: " + id);
+        }
+        return membro;
+    }
+
+    private Emprestimo emprestimoExistente(int id) {
+        Emprestimo emprestimo = emprestimoService.buscarEmprestimoPorId(id);
+        if (emprestimo == null) {
+            throw new ServidorApi.ErroHttp(404, "Empréstimo não encontrado: " + id);
+        }
+        return emprestimo;
+    }
+
+    private static String texto(Map<String, Object> corpo, String campo) {
+        Object valor = corpo.get(campo);
+        return valor != null ? valor.toString() : null;
+    }
+
+    private static int inteiro(Map<String, Object> corpo, String campo) {
+        Object valor = corpo.get(campo);
+        if (valor instanceof Number) {
+            return ((Number) valor).intValue();
+        }
+        if (valor instanceof String) {
+            try {
+                return Integer.parseInt((String) valor);
+            } catch (NumberFormatException e) {
+                // Cai no erro abaixo
+            }
+        }
+        throw new IllegalArgumentException("Campo " + campo + " em falta ou inválido");
+    }
+}
@@ -0,0 +1,309 @@
+package isptec.biblioteca.servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import isptec.biblioteca.ServiceFactory;
+import isptec.biblioteca.exception.AutenticacaoException;
+import isptec.biblioteca.exception.BibliotecaException;
+import isptec.biblioteca.metricas.HistogramaLatencia;
+import isptec.biblioteca.util.DatabaseManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Modo servidor: a API JSON sobre HTTP dos serviços da {@link ServiceFactory},
+ * para vários balcões e o portal do estudante partilharem um só estado.
+ *
+ * Usa o HttpServer do JDK com uma thread virtual por pedido, por isso um
+ * pedido à espera do banco não prende uma thread do sistema. As ligações
+ * ficam abertas entre pedidos (keep-alive, servidor.keepAliveSegundos) e
+ * cada endpoint tem o seu histograma de latência, consultável em
+ * GET /api/metricas.
+ */
+public final class ServidorApi {
+
+    /** Tratamento de um endpoint */
+    public interface Manipulador {
+        void tratar(PedidoHttp pedido) throws IOException;
+    }
+
+    /**
+     * Erro com estado HTTP próprio (401, 403, 404...).
+     */
+    public static final class ErroHttp extends RuntimeException {
+        private final int estado;
+
+        public ErroHttp(int estado, String mensagem) {
+            super(mensagem);
+            this.estado = estado;
+        }
+
+        public int getEstado() {
+            return estado;
+        }
+    }
+
+    /**
+     * Método e caminho com parâmetros ("/api/livros/{id}"), e as suas métricas.
+     */
+    public static final class Endpoint {
+        private final String metodo;
+        private final String padrao;
+        private final String[] segmentos;
+        private final Manipulador manipulador;
+        private final HistogramaLatencia latencia = new HistogramaLatencia();
+        private final LongAdder erros = new LongAdder();
+
+        private Endpoint(String metodo, String padrao, Manipulador manipulador) {
+            this.metodo = metodo;
+            this.padrao = padrao;
+            this.segmentos = segmentos(padrao);
+            this.manipulador = manipulador;
+        }
+
+        public String getMetodo() {
+            return metodo;
+        }
+
+        public String getPadrao() {
+            return padrao;
+        }
+
+        /** Latência do início do pedido ao fim da resposta */
+        public HistogramaLatencia getLatencia() {
+            return latencia;
+        }
+
+        /** Respostas 5xx */
+        public long getErros() {
+            return erros.sum();
+        }
+
+        /** Parâmetros do caminho, ou null se o caminho não corresponde */
+        private Map<String, String> corresponder(String[] caminho) {
+            if (caminho.length != segmentos.length) {
+                return null;
+            }
+            Map<String, String> parametros = null;
+            for (int i = 0; i < segmentos.length; i++) {
+                String segmento = segmentos[i];
+                if (segmento.startsWith("{") && segmento.endsWith("}")) {
+                    if (parametros == null) {
+                        parametros = new HashMap<>();
+                    }
+                    parametros.put(segmento.substring(1, segmento.length() - 1), caminho[i]);
+                } else if (!segmento.equals(caminho[i])) {
+                    return null;
+                }
+            }
+            return parametros != null ? parametros : Collections.emptyMap();
+        }
+    }
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final List<Endpoint> endpoints = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param porta porta TCP (0 = qualquer livre)
+     */
+    public ServidorApi(int porta) throws IOException {
+        this(porta, DatabaseManager.getInstance()::getPropriedade);
+    }
+
+    /**
+     * @param propriedades leitura da configuração (servidor.keepAliveSegundos...)
+     */
+    ServidorApi(int porta, UnaryOperator<String> propriedades) throws IOException {
+        configurarLigacoes(propriedades);
+        this.servidor = HttpServer.create(new InetSocketAddress(porta), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        servidor.setExecutor(executor);
+        servidor.createContext("/", this::tratar);
+        registar("GET", "/api/metricas", this::metricas);
+    }
+
+    /**
+     * Regista um endpoint; o primeiro registado que corresponder ao pedido trata-o.
+     */
+    public void registar(String metodo, String padrao, Manipulador manipulador) {
+        endpoints.add(new Endpoint(metodo, padrao, manipulador));
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return new ArrayList<>(endpoints);
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Deixa de aceitar pedidos e espera até ao tempo indicado pelos que
+     * estão em curso.
+     */
+    public void encerrar(int esperaSegundos) {
+        servidor.stop(esperaSegundos);
+        executor.shutdown();
+    }
+
+    /**
+     * Arranque a partir do {@link isptec.biblioteca.Launcher}: inicia os
+     * serviços e o servidor na porta indicada (ou servidor.porta) e fica a
+     * correr até o processo terminar.
+     */
+    public static void executar(String[] args) {
+        String porta = args.length > 1 ? args[1] : DatabaseManager.getInstance().getPropriedade("servidor.porta");
+        try {
+            ServiceFactory fabrica = ServiceFactory.getInstance();
+            ServidorApi servidorApi = new ServidorApi(
+                    porta == null || porta.isBlank() ? 8080 : Integer.parseInt(porta.trim()));
+            new RecursosBiblioteca(fabrica).registar(servidorApi);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                servidorApi.encerrar(5);
+                ServiceFactory.encerrar();
+            }, "servidor-encerrar"));
+            servidorApi.iniciar();
+            System.out.println("Servidor da biblioteca na porta " + servidorApi.getPorta());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Erro ao iniciar servidor: " + e.getMessage());
+            ServiceFactory.encerrar();
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /** Corre numa thread virtual, uma por pedido */
+    private void tratar(HttpExchange troca) {
+        long inicio = System.nanoTime();
+        String[] caminho = segmentos(troca.getRequestURI().getPath());
+        Endpoint endpoint = null;
+        Map<String, String> parametros = null;
+        boolean caminhoExiste = false;
+        for (Endpoint candidato : endpoints) {
+            Map<String, String> encontrados = candidato.corresponder(caminho);
+            if (encontrados != null) {
+                caminhoExiste = true;
+                if (candidato.metodo.equals(troca.getRequestMethod())) {
+                    endpoint = candidato;
+                    parametros = encontrados;
+                    break;
+                }
+            }
+        }
+
+        PedidoHttp pedido = new PedidoHttp(troca, parametros != null ? parametros : Collections.emptyMap());
+        // As leituras da sessão seguem as suas escritas recentes, seja qual for a thread
+        DatabaseManager.iniciarSessao(troca.getRequestHeaders().getFirst("Authorization"));
+        try {
+            if (endpoint == null) {
+                throw caminhoExiste
+                        ? new ErroHttp(405, "Método não suportado: " + troca.getRequestMethod())
+                        : new ErroHttp(404, "Recurso não encontrado: " + troca.getRequestURI().getPath());
+            }
+            endpoint.manipulador.tratar(pedido);
+            if (!pedido.isRespondido()) {
+                pedido.responderVazio(204);
+            }
+        } catch (ErroHttp e) {
+            responderErro(pedido, e.getEstado(), e.getMessage());
+        } catch (AutenticacaoException e) {
+            responderErro(pedido, 401, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            responderErro(pedido, 400, e.getMessage());
+        } catch (BibliotecaException e) {
+            responderErro(pedido, 409, e.getMessage());
+        } catch (IOException e) {
+            // Cliente desligou a meio da resposta
+            if (!pedido.isRespondido()) {
+                responderErro(pedido, 500, e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao tratar " + troca.getRequestMethod() + " "
+                    + troca.getRequestURI().getPath() + ": " + e.getMessage());
+            responderErro(pedido, 500, "Erro interno");
+        } finally {
+            DatabaseManager.terminarSessao();
+            troca.close();
+            if (endpoint != null) {
+                endpoint.latencia.registar(System.nanoTime() - inicio);
+                if (pedido.getEstado() >= 500) {
+                    endpoint.erros.increment();
+                }
+            }
+        }
+    }
+
+    private static void responderErro(PedidoHttp pedido, int estado, String mensagem) {
+        if (pedido.isRespondido()) {
+            // A meio de uma lista em fluxo: só resta fechar a ligação
+            return;
+        }
+        Map<String, Object> corpo = new LinkedHashMap<>();
+        corpo.put("erro", mensagem);
+        try {
+            pedido.responder(estado, corpo);
+        } catch (IOException e) {
+            // Cliente já desligou
+        }
+    }
+
+    /** GET /api/metricas: pedidos, erros e percentis de latência por endpoint */
+    private void metricas(PedidoHttp pedido) throws IOException {
+        List<Object> lista = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            HistogramaLatencia latencia = endpoint.latencia;
+            Map<String, Object> metrica = new LinkedHashMap<>();
+            metrica.put("endpoint", endpoint.metodo + " " + endpoint.padrao);
+            metrica.put("pedidos", latencia.getContagem());
+            metrica.put("erros", endpoint.getErros());
+            metrica.put("mediaMs", HistogramaLatencia.emMs(latencia.getMediaNanos()));
+            metrica.put("p50Ms", HistogramaLatencia.emMs(latencia.percentilNanos(50)));
+            metrica.put("p95Ms", HistogramaLatencia.emMs(latencia.percentilNanos(95)));
+            metrica.put("p99Ms", HistogramaLatencia.emMs(latencia.percentilNanos(99)));
+            metrica.put("maxMs", HistogramaLatencia.emMs(latencia.getMaximoNanos()));
+            lista.add(metrica);
+        }
+        pedido.responder(200, lista);
+    }
+
+    /**
+     * Keep-alive do HttpServer do JDK: lido das propriedades de sistema na
+     * primeira criação de um servidor, por isso tem de vir antes.
+     */
+    private static void configurarLigacoes(UnaryOperator<String> propriedades) {
+        definirSeAusente("sun.net.httpserver.idleInterval", propriedades.apply("servidor.keepAliveSegundos"));
+        definirSeAusente("sun.net.httpserver.maxIdleConnections",
+                propriedades.apply("servidor.maxLigacoesInativas"));
+    }
+
+    private static void definirSeAusente(String propriedade, String valor) {
+        if (valor != null && !valor.isBlank() && System.getProperty(propriedade) == null) {
+            System.setProperty(propriedade, valor.trim());
+        }
+    }
+
+    private static String[] segmentos(String caminho) {
+        String limpo = caminho.startsWith("/") ? caminho.substring(1) : caminho;
+        if (limpo.endsWith("/")) {
+            limpo = limpo.substring(0, limpo.length() - 1);
+        }
+        return limpo.isEmpty() ? new String[0] : limpo.split("/");
+    }
+}
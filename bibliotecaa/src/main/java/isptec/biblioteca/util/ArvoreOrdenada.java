@@ -0,0 +1,235 @@
+package isptec.biblioteca.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Árvore ordenada com estatísticas de ordem (treap com tamanho de subárvore).
+ *
+ * Inserção, remoção, mínimo, posição de um elemento e k-ésimo elemento em
+ * O(log n) esperado. Não é thread-safe; elementos iguais segundo o
+ * comparador não são duplicados.
+ *
+ * @param <T> tipo dos elementos
+ */
+public class ArvoreOrdenada<T> {
+
+    private static final class No<T> {
+        final T valor;
+        final int prioridade;
+        int tamanho;
+        No<T> esquerda;
+        No<T> direita;
+
+        No(T valor) {
+            this.valor = valor;
+            this.prioridade = ThreadLocalRandom.current().nextInt();
+            this.tamanho = 1;
+        }
+    }
+
+    private final Comparator<? super T> comparador;
+    private No<T> raiz;
+
+    public ArvoreOrdenada(Comparator<? super T> comparador) {
+        this.comparador = comparador;
+    }
+
+    /**
+     * Insere o elemento.
+     *
+     * @return false se já existia um elemento igual
+     */
+    public boolean inserir(T valor) {
+        if (contem(valor)) {
+            return false;
+        }
+        raiz = inserir(raiz, valor);
+        return true;
+    }
+
+    /**
+     * Remove o elemento.
+     *
+     * @return false se não existia
+     */
+    public boolean remover(T valor) {
+        if (!contem(valor)) {
+            return false;
+        }
+        raiz = remover(raiz, valor);
+        return true;
+    }
+
+    public boolean contem(T valor) {
+        No<T> no = raiz;
+        while (no != null) {
+            int c = comparador.compare(valor, no.valor);
+            if (c == 0) {
+                return true;
+            }
+            no = c < 0 ? no.esquerda : no.direita;
+        }
+        return false;
+    }
+
+    /**
+     * Menor elemento, ou null se vazia.
+     */
+    public T primeiro() {
+        No<T> no = raiz;
+        if (no == null) {
+            return null;
+        }
+        while (no.esquerda != null) {
+            no = no.esquerda;
+        }
+        return no.valor;
+    }
+
+    /**
+     * Posição do elemento na ordem (0 para o menor).
+     *
+     * @return a posição, ou -1 se não existir
+     */
+    public int posicao(T valor) {
+        int anteriores = 0;
+        No<T> no = raiz;
+        while (no != null) {
+            int c = comparador.compare(valor, no.valor);
+            if (c == 0) {
+                return anteriores + tamanho(no.esquerda);
+            }
+            if (c < 0) {
+                no = no.esquerda;
+            } else {
+                anteriores += tamanho(no.esquerda) + 1;
+                no = no.direita;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Elemento na posição indicada (0 para o menor).
+     *
+     * @throws IndexOutOfBoundsException se a posição for inválida
+     */
+    public T obter(int posicao) {
+        if (posicao < 0 || posicao >= tamanho()) {
+            throw new IndexOutOfBoundsException("Posição " + posicao + " de " + tamanho());
+        }
+        No<T> no = raiz;
+        while (true) {
+            int esquerda = tamanho(no.esquerda);
+            if (posicao < esquerda) {
+                no = no.esquerda;
+            } else if (posicao == esquerda) {
+                return no.valor;
+            } else {
+                posicao -= esquerda + 1;
+                no = no.direita;
+            }
+        }
+    }
+
+    public int tamanho() {
+        return tamanho(raiz);
+    }
+
+    public boolean isVazia() {
+        return raiz == null;
+    }
+
+    /**
+     * Elementos por ordem.
+     */
+    public List<T> paraLista() {
+        List<T> lista = new ArrayList<>(tamanho());
+        adicionarEmOrdem(raiz, lista);
+        return lista;
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private No<T> inserir(No<T> no, T valor) {
+        if (no == null) {
+            return new No<>(valor);
+        }
+        if (comparador.compare(valor, no.valor) < 0) {
+            no.esquerda = inserir(no.esquerda, valor);
+            if (no.esquerda.prioridade > no.prioridade) {
+                no = rodarDireita(no);
+            }
+        } else {
+            no.direita = inserir(no.direita, valor);
+            if (no.direita.prioridade > no.prioridade) {
+                no = rodarEsquerda(no);
+            }
+        }
+        atualizar(no);
+        return no;
+    }
+
+    private No<T> remover(No<T> no, T valor) {
+        int c = comparador.compare(valor, no.valor);
+        if (c < 0) {
+            no.esquerda = remover(no.esquerda, valor);
+        } else if (c > 0) {
+            no.direita = remover(no.direita, valor);
+        } else {
+            if (no.esquerda == null) {
+                return no.direita;
+            }
+            if (no.direita == null) {
+                return no.esquerda;
+            }
+            // Desce o nó pelo filho de maior prioridade até ficar com um só filho
+            if (no.esquerda.prioridade > no.direita.prioridade) {
+                no = rodarDireita(no);
+                no.direita = remover(no.direita, valor);
+            } else {
+                no = rodarEsquerda(no);
+                no.esquerda = remover(no.esquerda, valor);
+            }
+        }
+        atualizar(no);
+        return no;
+    }
+
+    private No<T> rodarDireita(No<T> no) {
+        No<T> esquerda = no.esquerda;
+        no.esquerda = esquerda.direita;
+        esquerda.direita = no;
+        atualizar(no);
+        atualizar(esquerda);
+        return esquerda;
+    }
+
+    private No<T> rodarEsquerda(No<T> no) {
+        No<T> direita = no.direita;
+        no.direita = direita.esquerda;
+        direita.esquerda = no;
+        atualizar(no);
+        atualizar(direita);
+        return direita;
+    }
+
+    private void atualizar(No<T> no) {
+        no.tamanho = 1 + tamanho(no.esquerda) + tamanho(no.direita);
+    }
+
+    private int tamanho(No<T> no) {
+        return no == null ? 0 : no.tamanho;
+    }
+
+    private void adicionarEmOrdem(No<T> no, List<T> lista) {
+        if (no != null) {
+            adicionarEmOrdem(no.esquerda, lista);
+            lista.add(no.valor);
+            adicionarEmOrdem(no.direita, lista);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package isptec.biblioteca.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache em memória com tamanho máximo, validade e política W-TinyLFU.
+ *
+ * As entradas novas passam por uma janela LRU pequena (1%); ao sair dela
+ * só entram na área principal (LRU segmentada: período de prova e
+ * protegida) se forem pedidas com mais frequência do que a vítima que
+ * iriam substituir. A frequência é estimada por um count-min sketch de
+ * contadores de 4 bits, reduzidos para metade periodicamente para esquecer
+ * o passado. Uma varredura de entradas pedidas uma só vez não expulsa as
+ * entradas populares.
+ *
+ * A consulta não bloqueia: o mapa é concorrente e a atualização da ordem
+ * de uso é saltada se outra thread estiver a alterar a cache. Os valores
+ * são copiados à entrada e à saída, pelo que quem os recebe pode alterá-los
+ * sem afetar a cache.
+ *
+ * Para não guardar um valor lido antes de uma invalidação concorrente,
+ * quem carrega da origem obtém primeiro uma {@link #marca()} e passa-a a
+ * {@link #colocar}; se entretanto houve invalidações o valor é descartado.
+ *
+ * @param <K> tipo da chave
+ * @param <V> tipo do valor
+ */
+public class CacheLimitado<K, V> {
+
+    /** Posição de uma entrada na política */
+    private static final int JANELA = 0;
+    private static final int PROVA = 1;
+    private static final int PROTEGIDA = 2;
+
+    private static final class No<K, V> {
+        final K chave;
+        final V valor;
+        final long expiraEm;
+        int fila;
+        No<K, V> anterior;
+        No<K, V> seguinte;
+
+        No(K chave, V valor, long expiraEm) {
+            this.chave = chave;
+            this.valor = valor;
+            this.expiraEm = expiraEm;
+        }
+    }
+
+    /**
+     * Lista duplamente ligada com sentinela; a cabeça é a entrada usada
+     * há mais tempo.
+     */
+    private static final class Fila<K, V> {
+        final No<K, V> sentinela = new No<>(null, null, 0);
+        int tamanho;
+
+        Fila() {
+            sentinela.anterior = sentinela;
+            sentinela.seguinte = sentinela;
+        }
+
+        void adicionar(No<K, V> no) {
+            no.anterior = sentinela.anterior;
+            no.seguinte = sentinela;
+            sentinela.anterior.seguinte = no;
+            sentinela.anterior = no;
+            tamanho++;
+        }
+
+        void retirar(No<K, V> no) {
+            no.anterior.seguinte = no.seguinte;
+            no.seguinte.anterior = no.anterior;
+            no.anterior = null;
+            no.seguinte = null;
+            tamanho--;
+        }
+
+        No<K, V> primeiro() {
+            return sentinela.seguinte == sentinela ? null : sentinela.seguinte;
+        }
+
+        void limpar() {
+            sentinela.anterior = sentinela;
+            sentinela.seguinte = sentinela;
+            tamanho = 0;
+        }
+    }
+
+    private final int maximo;
+    private final int maximoJanela;
+    private final int maximoProtegida;
+    private final long validadeNanos;
+    private final UnaryOperator<V> copiador;
+
+    private final ConcurrentHashMap<K, No<K, V>> entradas = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Fila<K, V> janela = new Fila<>();
+    private final Fila<K, V> prova = new Fila<>();
+    private final Fila<K, V> protegida = new Fila<>();
+    private final Frequencia frequencia;
+
+    /** Aumenta a cada invalidação (ver {@link #marca()}) */
+    private volatile long geracao;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+
+    /**
+     * @param maximo      número máximo de entradas
+     * @param validade    tempo de vida de cada entrada (0 = sem limite)
+     * @param unidade     unidade da validade
+     * @param copiador    cópia independente de um valor
+     */
+    public CacheLimitado(int maximo, long validade, TimeUnit unidade, UnaryOperator<V> copiador) {
+        if (maximo < 1) {
+            throw new IllegalArgumentException("Tamanho máximo inválido: " + maximo);
+        }
+        if (validade < 0) {
+            throw new IllegalArgumentException("Validade inválida: " + validade);
+        }
+        this.maximo = maximo;
+        this.maximoJanela = Math.max(1, maximo / 100);
+        this.maximoProtegida = (int) ((maximo - maximoJanela) * 0.8);
+        this.validadeNanos = unidade.toNanos(validade);
+        this.copiador = copiador;
+        this.frequencia = new Frequencia(maximo);
+    }
+
+    /**
+     * Cópia do valor em cache, ou null se não existir ou tiver expirado.
+     */
+    public V obter(K chave) {
+        No<K, V> no = entradas.get(chave);
+        if (no == null) {
+            falhas.increment();
+            if (lock.tryLock()) {
+                try {
+                    frequencia.incrementar(chave.hashCode());
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return null;
+        }
+        if (validadeNanos > 0 && System.nanoTime() - no.expiraEm > 0) {
+            falhas.increment();
+            lock.lock();
+            try {
+                if (entradas.remove(chave, no)) {
+                    filaDe(no).retirar(no);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        }
+        acertos.increment();
+        // Sob contenção a ordem de uso fica por atualizar: perde-se precisão, não correção
+        if (lock.tryLock()) {
+            try {
+                frequencia.incrementar(chave.hashCode());
+                if (entradas.get(chave) == no) {
+                    usar(no);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return copiador.apply(no.valor);
+    }
+
+    /**
+     * Marca a passar a {@link #colocar}; muda a cada invalidação.
+     */
+    public long marca() {
+        return geracao;
+    }
+
+    /**
+     * Guarda uma cópia do valor, a menos que tenha havido invalidações
+     * desde a marca (o valor pode ser anterior a uma escrita).
+     *
+     * @param marca resultado de {@link #marca()} obtido antes de ler o valor da origem
+     */
+    public void colocar(K chave, V valor, long marca) {
+        if (valor == null) {
+            return;
+        }
+        No<K, V> novo = new No<>(chave, copiador.apply(valor),
+                validadeNanos > 0 ? System.nanoTime() + validadeNanos : 0);
+        lock.lock();
+        try {
+            if (marca != geracao) {
+                return;
+            }
+            No<K, V> antigo = entradas.put(chave, novo);
+            if (antigo != null) {
+                // Substituição: o novo valor herda o lugar do antigo
+                Fila<K, V> fila = filaDe(antigo);
+                fila.retirar(antigo);
+                novo.fila = antigo.fila;
+                fila.adicionar(novo);
+                return;
+            }
+            frequencia.incrementar(chave.hashCode());
+            novo.fila = JANELA;
+            janela.adicionar(novo);
+            if (janela.tamanho > maximoJanela) {
+                admitir(janela.primeiro());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove a entrada, se existir.
+     */
+    public void invalidar(K chave) {
+        lock.lock();
+        try {
+            geracao++;
+            No<K, V> no = entradas.remove(chave);
+            if (no != null) {
+                filaDe(no).retirar(no);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove todas as entradas (as estatísticas mantêm-se).
+     */
+    public void limpar() {
+        lock.lock();
+        try {
+            geracao++;
+            entradas.clear();
+            janela.limpar();
+            prova.limpar();
+            protegida.limpar();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // === ESTATÍSTICAS ===
+
+    public int getTamanho() {
+        return entradas.size();
+    }
+
+    public int getMaximo() {
+        return maximo;
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    /** Entradas expulsas por falta de espaço */
+    public long getRemocoes() {
+        return remocoes.sum();
+    }
+
+    /**
+     * Fração dos pedidos servidos pela cache (0 se ainda não houve pedidos).
+     */
+    public double getTaxaAcerto() {
+        long a = acertos.sum();
+        long total = a + falhas.sum();
+        return total == 0 ? 0 : (double) a / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheLimitado{tamanho=%d/%d, acertos=%d, falhas=%d, taxa=%.1f%%, remocoes=%d}",
+                getTamanho(), maximo, getAcertos(), getFalhas(), getTaxaAcerto() * 100, getRemocoes());
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private Fila<K, V> filaDe(No<K, V> no) {
+        switch (no.fila) {
+            case JANELA:
+                return janela;
+            case PROVA:
+                return prova;
+            default:
+                return protegida;
+        }
+    }
+
+    /**
+     * Uma entrada existente foi pedida: passa a mais recente da sua fila;
+     * em período de prova sobe para a área protegida.
+     */
+    private void usar(No<K, V> no) {
+        Fila<K, V> fila = filaDe(no);
+        fila.retirar(no);
+        if (no.fila == PROVA) {
+            no.fila = PROTEGIDA;
+            protegida.adicionar(no);
+            if (protegida.tamanho > maximoProtegida) {
+                No<K, V> despromovido = protegida.primeiro();
+                protegida.retirar(despromovido);
+                despromovido.fila = PROVA;
+                prova.adicionar(despromovido);
+            }
+        } else {
+            fila.adicionar(no);
+        }
+    }
+
+    /**
+     * O candidato sai da janela para o período de prova; se a área
+     * principal ficar cheia, sai quem for menos frequente entre ele e a
+     * entrada de prova usada há mais tempo.
+     */
+    private void admitir(No<K, V> candidato) {
+        janela.retirar(candidato);
+        candidato.fila = PROVA;
+        prova.adicionar(candidato);
+        if (entradas.size() <= maximo) {
+            return;
+        }
+        No<K, V> vitima = prova.primeiro();
+        if (vitima == candidato) {
+            vitima = protegida.primeiro();
+        }
+        No<K, V> expulso = vitima != null &&
+                frequencia.estimar(candidato.chave.hashCode()) > frequencia.estimar(vitima.chave.hashCode()) ?
+                vitima : candidato;
+        filaDe(expulso).retirar(expulso);
+        entradas.remove(expulso.chave, expulso);
+        remocoes.increment();
+    }
+
+    /**
+     * Count-min sketch com quatro contadores de 4 bits por chave. Depois
+     * de 10 × máximo incrementos todos os contadores passam a metade.
+     */
+    private static final class Frequencia {
+        private final long[] tabela;
+        private final int mascara;
+        private final int periodo;
+        private int incrementos;
+
+        Frequencia(int maximo) {
+            int tamanho = Integer.highestOneBit(Math.max(16, maximo - 1) * 2);
+            this.tabela = new long[tamanho];
+            this.mascara = tamanho - 1;
+            this.periodo = 10 * maximo;
+        }
+
+        void incrementar(int hash) {
+            boolean incrementou = false;
+            for (int i = 0; i < 4; i++) {
+                int h = misturar(hash, i);
+                int indice = h & mascara;
+                int deslocamento = ((h >>> 24) & 15) << 2;
+                if (((tabela[indice] >>> deslocamento) & 15L) < 15) {
+                    tabela[indice] += 1L << deslocamento;
+                    incrementou = true;
+                }
+            }
+            if (incrementou && ++incrementos >= periodo) {
+                envelhecer();
+            }
+        }
+
+        int estimar(int hash) {
+            int minimo = 15;
+            for (int i = 0; i < 4; i++) {
+                int h = misturar(hash, i);
+                int deslocamento = ((h >>> 24) & 15) << 2;
+                minimo = Math.min(minimo, (int) ((tabela[h & mascara] >>> deslocamento) & 15L));
+            }
+            return minimo;
+        }
+
+        private void envelhecer() {
+            for (int i = 0; i < tabela.length; i++) {
+                tabela[i] = (tabela[i] >>> 1) & 0x7777777777777777L;
+            }
+            incrementos /= 2;
+        }
+
+        private static int misturar(int hash, int i) {
+            int h = (hash + i * 0x9E3779B9) * 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            return h ^ (h >>> 16);
+        }
+    }
+}
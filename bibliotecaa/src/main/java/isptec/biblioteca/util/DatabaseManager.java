@@ -2,16 +2,37 @@ package isptec.biblioteca.util;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import isptec.biblioteca.dao.CacheConsultas;
+import isptec.biblioteca.dao.RegistroReferencia;
+import isptec.biblioteca.metricas.JdbcInstrumentado;
+import isptec.biblioteca.metricas.MetricasJdbc;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Gerenciador de conexões com o banco de dados usando HikariCP.
  * Implementa o padrão Singleton para garantir uma única instância do pool.
+ *
+ * Com db.read.url configurado existe um segundo pool para uma réplica de
+ * leitura. As conexões pedidas dentro de {@link #iniciarLeitura()} /
+ * {@link #terminarLeitura()} (métodos de repositório marcados com
+ * {@code @SomenteLeitura}) vão para a réplica, exceto quando:
+ * - o atraso medido da réplica excede db.read.maxLagMs (ou é desconhecido);
+ * - a sessão atual (ou, fora de sessão, a thread atual) pediu uma conexão
+ *   de escrita há menos de db.read.stickyMs (lê o que acabou de escrever);
+ * - a thread está entre {@link #iniciarPrimario()} e {@link #terminarPrimario()}
+ *   (leituras que vão ser guardadas em cache).
  */
 public class DatabaseManager {
 
@@ -19,6 +40,31 @@ public class DatabaseManager {
     private final HikariDataSource dataSource;
     private final Properties properties;
 
+    // Réplica de leitura (null se não configurada)
+    private final HikariDataSource replica;
+    private final ScheduledExecutorService monitorReplica;
+    private final long atrasoMaximoMs;
+    private final long aderenciaNanos;
+    private volatile long atrasoReplicaMs = -1;
+
+    /** Profundidade de chamadas só de leitura na thread atual */
+    private static final ThreadLocal<int[]> LEITURA = ThreadLocal.withInitial(() -> new int[1]);
+
+    /** Profundidade de leituras que exigem o primário na thread atual */
+    private static final ThreadLocal<int[]> PRIMARIO = ThreadLocal.withInitial(() -> new int[1]);
+
+    /** Instante (nanoTime) da última conexão de escrita pedida pela thread atual */
+    private static final ThreadLocal<long[]> ULTIMA_ESCRITA = ThreadLocal.withInitial(() -> new long[1]);
+
+    /** Sessão a que pertence o trabalho da thread atual (null fora de sessão) */
+    private static final ThreadLocal<String> SESSAO = new ThreadLocal<>();
+
+    /** A partir deste número de sessões, as que já não aderem ao primário são descartadas */
+    private static final int MAXIMO_SESSOES_ADERENTES = 10_000;
+
+    /** Instante (nanoTime) da última conexão de escrita pedida por sessão */
+    private final ConcurrentHashMap<String, Long> escritasPorSessao = new ConcurrentHashMap<>();
+
     /**
      * Construtor privado - Singleton.
      * Inicializa o pool de conexões.
@@ -26,6 +72,36 @@ public class DatabaseManager {
     private DatabaseManager() {
         this.properties = loadProperties();
         this.dataSource = setupDataSource();
+
+        MetricasJdbc metricas = MetricasJdbc.getInstance();
+        metricas.setAtivo(Boolean.parseBoolean(properties.getProperty("db.metricas", "true")));
+        metricas.setLimiteLentaMs(Long.parseLong(properties.getProperty("db.metricas.lentaMs", "500")));
+
+        CacheConsultas.getInstance().configurar(
+            Long.parseLong(properties.getProperty("cache.consultas.memoriaMb", "16")) * 1024 * 1024,
+            Long.parseLong(properties.getProperty("cache.consultas.validadeSegundos", "30")) * 1000
+        );
+
+        String urlLeitura = properties.getProperty("db.read.url", "");
+        if (urlLeitura.isBlank()) {
+            this.replica = null;
+            this.monitorReplica = null;
+            this.atrasoMaximoMs = 0;
+            this.aderenciaNanos = 0;
+        } else {
+            this.replica = setupReplica(urlLeitura);
+            this.atrasoMaximoMs = Long.parseLong(properties.getProperty("db.read.maxLagMs", "2000"));
+            this.aderenciaNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.parseLong(properties.getProperty("db.read.stickyMs", "5000"))
+            );
+            long intervalo = Long.parseLong(properties.getProperty("db.read.lagCheckMs", "1000"));
+            this.monitorReplica = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-lag");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.monitorReplica.scheduleWithFixedDelay(this::medirAtrasoReplica, 0, intervalo, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -87,6 +163,42 @@ public class DatabaseManager {
         config.setMinimumIdle(
             Integer.parseInt(properties.getProperty("db.pool.minimumIdle", "3"))
         );
+        config.setPoolName("BibliotecaPool");
+
+        return configurarPool(config);
+    }
+
+    /**
+     * Configura o pool da réplica de leitura (db.read.*); credenciais e
+     * tamanhos em falta são os do primário.
+     *
+     * @return HikariDataSource da réplica
+     */
+    private HikariDataSource setupReplica(String url) {
+        HikariConfig config = new HikariConfig();
+
+        config.setJdbcUrl(url);
+        config.setUsername(properties.getProperty("db.read.username", properties.getProperty("db.username")));
+        config.setPassword(properties.getProperty("db.read.password", properties.getProperty("db.password")));
+        config.setReadOnly(true);
+
+        config.setMaximumPoolSize(
+            Integer.parseInt(properties.getProperty("db.read.pool.maximumPoolSize",
+                properties.getProperty("db.pool.maximumPoolSize", "10")))
+        );
+        config.setMinimumIdle(
+            Integer.parseInt(properties.getProperty("db.read.pool.minimumIdle",
+                properties.getProperty("db.pool.minimumIdle", "3")))
+        );
+        config.setPoolName("BibliotecaPoolLeitura");
+
+        return configurarPool(config);
+    }
+
+    /**
+     * Opções comuns aos dois pools.
+     */
+    private HikariDataSource configurarPool(HikariConfig config) {
         config.setConnectionTimeout(
             Long.parseLong(properties.getProperty("db.pool.connectionTimeout", "30000"))
         );
@@ -98,10 +210,10 @@ public class DatabaseManager {
         );
 
         // Configurações adicionais
-        config.setPoolName("BibliotecaPool");
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("cacheCallableStmts", "true");
         config.addDataSourceProperty("useServerPrepStmts", "true");
         config.addDataSourceProperty("useLocalSessionState", "true");
         config.addDataSourceProperty("rewriteBatchedStatements", "true");
@@ -115,14 +227,208 @@ public class DatabaseManager {
 
     /**
      * Obtém uma conexão do pool.
+     * Com db.metricas ativo, a conexão é instrumentada (ver {@link MetricasJdbc});
+     * com a cache de consultas ativa, as escritas feitas nela invalidam as
+     * consultas dependentes (ver {@link CacheConsultas}).
      *
      * @return Connection do banco de dados
      * @throws SQLException se não conseguir obter conexão
      */
     public Connection getConnection() throws SQLException {
+        if (!MetricasJdbc.getInstance().isAtivo()) {
+            return CacheConsultas.getInstance().vigiar(obterConexao());
+        }
+        long inicio = System.nanoTime();
+        Connection conn = obterConexao();
+        return CacheConsultas.getInstance().vigiar(JdbcInstrumentado.envolver(conn, System.nanoTime() - inicio));
+    }
+
+    /**
+     * Conexão da réplica ou do primário, conforme o contexto da thread.
+     */
+    private Connection obterConexao() throws SQLException {
+        if (replica != null) {
+            if (LEITURA.get()[0] == 0) {
+                registarEscrita();
+            } else if (PRIMARIO.get()[0] == 0 && isReplicaUtilizavel()) {
+                try {
+                    return replica.getConnection();
+                } catch (SQLException e) {
+                    System.err.println("Réplica indisponível, a usar o primário: " + e.getMessage());
+                }
+            }
+        }
         return dataSource.getConnection();
     }
 
+    /**
+     * Início de uma operação só de leitura na thread atual; as conexões
+     * pedidas até {@link #terminarLeitura()} podem vir da réplica.
+     * As chamadas podem ser aninhadas.
+     */
+    public void iniciarLeitura() {
+        LEITURA.get()[0]++;
+    }
+
+    /**
+     * Fim da operação iniciada com {@link #iniciarLeitura()}.
+     */
+    public void terminarLeitura() {
+        int[] profundidade = LEITURA.get();
+        if (profundidade[0] > 0) {
+            profundidade[0]--;
+        }
+    }
+
+    /**
+     * Início de leituras que têm de vir do primário mesmo dentro de
+     * {@link #iniciarLeitura()}: as que enchem caches, que de outro modo
+     * guardariam o estado atrasado da réplica durante toda a validade.
+     * As chamadas podem ser aninhadas. Estático para as caches o poderem
+     * usar sem obrigar a criar o pool.
+     */
+    public static void iniciarPrimario() {
+        PRIMARIO.get()[0]++;
+    }
+
+    /**
+     * Fim das leituras iniciadas com {@link #iniciarPrimario()}.
+     */
+    public static void terminarPrimario() {
+        int[] profundidade = PRIMARIO.get();
+        if (profundidade[0] > 0) {
+            profundidade[0]--;
+        }
+    }
+
+    /**
+     * Início do trabalho de uma sessão (um pedido da API) na thread atual.
+     * As escritas contam para a sessão e não só para a thread, por isso os
+     * pedidos seguintes da mesma sessão, noutras threads, também leem do
+     * primário durante db.read.stickyMs. Estático como {@link #iniciarPrimario()}.
+     *
+     * @param sessao identificador da sessão (o token, por exemplo); null não faz nada
+     */
+    public static void iniciarSessao(String sessao) {
+        SESSAO.set(sessao);
+    }
+
+    /**
+     * Fim do trabalho iniciado com {@link #iniciarSessao(String)}.
+     */
+    public static void terminarSessao() {
+        SESSAO.remove();
+    }
+
+    /**
+     * Indica se há réplica de leitura configurada.
+     */
+    public boolean isReplicaConfigurada() {
+        return replica != null;
+    }
+
+    /**
+     * Último atraso medido da réplica em milissegundos (-1 se desconhecido).
+     */
+    public long getAtrasoReplicaMs() {
+        return atrasoReplicaMs;
+    }
+
+    /**
+     * A réplica serve a thread atual se estiver em dia e nem a thread nem a
+     * sua sessão tiverem escrito recentemente.
+     */
+    private boolean isReplicaUtilizavel() {
+        long atraso = atrasoReplicaMs;
+        if (atraso < 0 || atraso > atrasoMaximoMs) {
+            return false;
+        }
+        long agora = System.nanoTime();
+        long ultimaEscrita = ULTIMA_ESCRITA.get()[0];
+        if (ultimaEscrita != 0 && agora - ultimaEscrita < aderenciaNanos) {
+            return false;
+        }
+        String sessao = SESSAO.get();
+        Long escritaSessao = sessao != null ? escritasPorSessao.get(sessao) : null;
+        return escritaSessao == null || agora - escritaSessao >= aderenciaNanos;
+    }
+
+    /**
+     * Marca a escrita na thread e na sessão atuais; as sessões cuja
+     * aderência já acabou saem quando o mapa enche.
+     */
+    private void registarEscrita() {
+        long agora = System.nanoTime();
+        ULTIMA_ESCRITA.get()[0] = agora;
+        String sessao = SESSAO.get();
+        if (sessao == null) {
+            return;
+        }
+        if (escritasPorSessao.size() >= MAXIMO_SESSOES_ADERENTES) {
+            escritasPorSessao.values().removeIf(escrita -> agora - escrita >= aderenciaNanos);
+        }
+        escritasPorSessao.put(sessao, agora);
+    }
+
+    /**
+     * Mede o atraso da réplica, pela tabela heartbeat_replica
+     * (db.read.lagMetodo=heartbeat) ou por SHOW REPLICA STATUS.
+     */
+    private void medirAtrasoReplica() {
+        try {
+            if ("heartbeat".equalsIgnoreCase(properties.getProperty("db.read.lagMetodo", "status"))) {
+                atrasoReplicaMs = medirAtrasoHeartbeat();
+            } else {
+                atrasoReplicaMs = medirAtrasoStatus();
+            }
+        } catch (SQLException e) {
+            atrasoReplicaMs = -1;
+            System.err.println("Erro ao medir atraso da réplica: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava o instante atual no primário e lê há quanto tempo a réplica
+     * tem a última marca.
+     */
+    private long medirAtrasoHeartbeat() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("REPLACE INTO heartbeat_replica (id, instante) VALUES (1, NOW(6))");
+        }
+        try (Connection conn = replica.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT TIMESTAMPDIFF(MICROSECOND, instante, NOW(6)) FROM heartbeat_replica WHERE id = 1");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? Math.max(0, rs.getLong(1) / 1000) : -1;
+        }
+    }
+
+    /**
+     * Seconds_Behind_Source (MySQL 8.0.22+) ou Seconds_Behind_Master;
+     * -1 se a replicação estiver parada.
+     */
+    private long medirAtrasoStatus() throws SQLException {
+        try (Connection conn = replica.getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+                return lerSegundosAtraso(rs, "Seconds_Behind_Source");
+            } catch (SQLException e) {
+                try (ResultSet rs = stmt.executeQuery("SHOW SLAVE STATUS")) {
+                    return lerSegundosAtraso(rs, "Seconds_Behind_Master");
+                }
+            }
+        }
+    }
+
+    private long lerSegundosAtraso(ResultSet rs, String coluna) throws SQLException {
+        if (!rs.next()) {
+            return -1;
+        }
+        long segundos = rs.getLong(coluna);
+        return rs.wasNull() ? -1 : TimeUnit.SECONDS.toMillis(segundos);
+    }
+
     /**
      * Testa a conexão com o banco de dados.
      *
@@ -142,6 +448,13 @@ public class DatabaseManager {
      * Deve ser chamado ao encerrar a aplicação.
      */
     public void closePool() {
+        RegistroReferencia.getInstance().parar();
+        if (monitorReplica != null) {
+            monitorReplica.shutdownNow();
+        }
+        if (replica != null && !replica.isClosed()) {
+            replica.close();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             System.out.println("Pool de conexões fechado.");
@@ -155,17 +468,46 @@ public class DatabaseManager {
      */
     public String getPoolStats() {
         if (dataSource != null) {
-            return String.format(
+            String stats = String.format(
                 "Pool Stats - Total: %d, Ativas: %d, Idle: %d, Aguardando: %d",
                 dataSource.getHikariPoolMXBean().getTotalConnections(),
                 dataSource.getHikariPoolMXBean().getActiveConnections(),
                 dataSource.getHikariPoolMXBean().getIdleConnections(),
                 dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection()
             );
+            if (replica != null) {
+                stats += String.format(
+                    " | Réplica - Total: %d, Ativas: %d, Idle: %d, Aguardando: %d, Atraso: %d ms",
+                    replica.getHikariPoolMXBean().getTotalConnections(),
+                    replica.getHikariPoolMXBean().getActiveConnections(),
+                    replica.getHikariPoolMXBean().getIdleConnections(),
+                    replica.getHikariPoolMXBean().getThreadsAwaitingConnection(),
+                    atrasoReplicaMs
+                );
+            }
+            return stats;
         }
         return "Pool não inicializado";
     }
 
+    /**
+     * Indica se operações de TRUNCATE (reposição de bases de teste) estão
+     * permitidas pela propriedade db.permitirTruncate (falso por omissão).
+     */
+    public boolean isTruncatePermitido() {
+        return Boolean.parseBoolean(properties.getProperty("db.permitirTruncate", "false"));
+    }
+
+    /**
+     * Retorna uma propriedade do database.properties.
+     *
+     * @param chave nome da propriedade
+     * @return o valor, ou null se não estiver definida
+     */
+    public String getPropriedade(String chave) {
+        return properties.getProperty(chave);
+    }
+
     /**
      * Retorna a URL do banco de dados.
      *
@@ -0,0 +1,293 @@
+package isptec.biblioteca.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitor e escritor mínimo de JSON, sem dependências externas.
+ *
+ * A leitura devolve Map (objetos), List (arrays), String, Long/Double
+ * (números), Boolean ou null. A escrita aceita os mesmos tipos.
+ */
+public final class Json {
+
+    private final String texto;
+    private int pos;
+
+    private Json(String texto) {
+        this.texto = texto;
+    }
+
+    /**
+     * Lê um valor JSON completo.
+     *
+     * @throws IllegalArgumentException se o texto não for JSON válido
+     */
+    public static Object ler(String texto) {
+        Json leitor = new Json(texto);
+        leitor.saltarEspacos();
+        Object valor = leitor.lerValor();
+        leitor.saltarEspacos();
+        if (leitor.pos != texto.length()) {
+            throw leitor.erro("conteúdo após o fim do valor");
+        }
+        return valor;
+    }
+
+    /**
+     * Lê um objeto JSON.
+     *
+     * @throws IllegalArgumentException se o texto não for um objeto JSON
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> lerObjeto(String texto) {
+        Object valor = ler(texto);
+        if (!(valor instanceof Map)) {
+            throw new IllegalArgumentException("JSON não é um objeto");
+        }
+        return (Map<String, Object>) valor;
+    }
+
+    /**
+     * Escreve um valor como JSON.
+     */
+    public static String escrever(Object valor) {
+        StringBuilder sb = new StringBuilder();
+        escrever(sb, valor);
+        return sb.toString();
+    }
+
+    /**
+     * Acrescenta um valor JSON ao StringBuilder.
+     */
+    public static void escrever(StringBuilder sb, Object valor) {
+        if (valor == null) {
+            sb.append("null");
+        } else if (valor instanceof String) {
+            escreverTexto(sb, (String) valor);
+        } else if (valor instanceof Number || valor instanceof Boolean) {
+            sb.append(valor);
+        } else if (valor instanceof Map) {
+            sb.append('{');
+            boolean primeiro = true;
+            for (Map.Entry<?, ?> entrada : ((Map<?, ?>) valor).entrySet()) {
+                if (!primeiro) {
+                    sb.append(',');
+                }
+                primeiro = false;
+                escreverTexto(sb, String.valueOf(entrada.getKey()));
+                sb.append(':');
+                escrever(sb, entrada.getValue());
+            }
+            sb.append('}');
+        } else if (valor instanceof Iterable) {
+            sb.append('[');
+            boolean primeiro = true;
+            for (Object item : (Iterable<?>) valor) {
+                if (!primeiro) {
+                    sb.append(',');
+                }
+                primeiro = false;
+                escrever(sb, item);
+            }
+            sb.append(']');
+        } else {
+            escreverTexto(sb, valor.toString());
+        }
+    }
+
+    // === LEITURA ===
+
+    private Object lerValor() {
+        if (pos >= texto.length()) {
+            throw erro("fim inesperado");
+        }
+        char c = texto.charAt(pos);
+        switch (c) {
+            case '{':
+                return lerObjeto();
+            case '[':
+                return lerArray();
+            case '"':
+                return lerTexto();
+            case 't':
+                return lerLiteral("true", Boolean.TRUE);
+            case 'f':
+                return lerLiteral("false", Boolean.FALSE);
+            case 'n':
+                return lerLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return lerNumero();
+                }
+                throw erro("carácter inesperado '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> lerObjeto() {
+        Map<String, Object> objeto = new LinkedHashMap<>();
+        pos++; // {
+        saltarEspacos();
+        if (consumir('}')) {
+            return objeto;
+        }
+        do {
+            saltarEspacos();
+            if (pos >= texto.length() || texto.charAt(pos) != '"') {
+                throw erro("esperado nome de campo");
+            }
+            String chave = lerTexto();
+            saltarEspacos();
+            if (!consumir(':')) {
+                throw erro("esperado ':'");
+            }
+            saltarEspacos();
+            objeto.put(chave, lerValor());
+            saltarEspacos();
+        } while (consumir(','));
+        if (!consumir('}')) {
+            throw erro("esperado '}'");
+        }
+        return objeto;
+    }
+
+    private List<Object> lerArray() {
+        List<Object> lista = new ArrayList<>();
+        pos++; // [
+        saltarEspacos();
+        if (consumir(']')) {
+            return lista;
+        }
+        do {
+            saltarEspacos();
+            lista.add(lerValor());
+            saltarEspacos();
+        } while (consumir(','));
+        if (!consumir(']')) {
+            throw erro("esperado ']'");
+        }
+        return lista;
+    }
+
+    private String lerTexto() {
+        StringBuilder sb = new StringBuilder();
+        pos++; // "
+        while (pos < texto.length()) {
+            char c = texto.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= texto.length()) {
+                break;
+            }
+            char escape = texto.charAt(pos++);
+            switch (escape) {
+                case '"': sb.append('"'); break;
+                case '\\': sb.append('\\'); break;
+                case '/': sb.append('/'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > texto.length()) {
+                        throw erro("escape \\u incompleto");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw erro("escape \\u inválido");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw erro("escape inválido '\\" + escape + "'");
+            }
+        }
+        throw erro("texto não terminado");
+    }
+
+    private Object lerNumero() {
+        int inicio = pos;
+        boolean decimal = false;
+        if (texto.charAt(pos) == '-') {
+            pos++;
+        }
+        while (pos < texto.length()) {
+            char c = texto.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                decimal = true;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String numero = texto.substring(inicio, pos);
+        try {
+            if (!decimal) {
+                return Long.parseLong(numero);
+            }
+            return Double.parseDouble(numero);
+        } catch (NumberFormatException e) {
+            throw erro("número inválido '" + numero + "'");
+        }
+    }
+
+    private Object lerLiteral(String literal, Object valor) {
+        if (!texto.startsWith(literal, pos)) {
+            throw erro("literal inválido");
+        }
+        pos += literal.length();
+        return valor;
+    }
+
+    private boolean consumir(char c) {
+        if (pos < texto.length() && texto.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void saltarEspacos() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException erro(String mensagem) {
+        return new IllegalArgumentException("JSON inválido na posição " + pos + ": " + mensagem);
+    }
+
+    // === ESCRITA ===
+
+    private static void escreverTexto(StringBuilder sb, String valor) {
+        sb.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
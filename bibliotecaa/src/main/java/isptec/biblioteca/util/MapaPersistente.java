@@ -0,0 +1,248 @@
+package isptec.biblioteca.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Mapa imutável e persistente (hash array mapped trie): cada alteração
+ * devolve um mapa novo que partilha quase toda a estrutura com o anterior.
+ *
+ * Cada nível consome 5 bits do hash da chave e guarda só os ramos ocupados
+ * (mapa de bits e array compacto), por isso uma busca visita no máximo 7
+ * nós e, na prática, 2 ou 3 para dezenas de milhares de chaves: O(1) como
+ * num HashMap, mas seguro para ler enquanto outra thread publica uma versão
+ * nova. Chaves com o mesmo hash ficam num nó de colisão.
+ */
+public final class MapaPersistente<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASCARA = (1 << BITS) - 1;
+
+    private static final MapaPersistente<?, ?> VAZIO = new MapaPersistente<>(new Ramo(0, new Object[0]), 0);
+
+    private final Ramo raiz;
+    private final int tamanho;
+
+    /** Par chave-valor */
+    private static final class Folha {
+        final int hash;
+        final Object chave;
+        final Object valor;
+
+        Folha(int hash, Object chave, Object valor) {
+            this.hash = hash;
+            this.chave = chave;
+            this.valor = valor;
+        }
+    }
+
+    /** Nó com os filhos (Folha, Ramo ou Colisao) das posições marcadas no mapa de bits */
+    private static final class Ramo {
+        final int mapa;
+        final Object[] filhos;
+
+        Ramo(int mapa, Object[] filhos) {
+            this.mapa = mapa;
+            this.filhos = filhos;
+        }
+    }
+
+    /** Chaves diferentes com o mesmo hash */
+    private static final class Colisao {
+        final int hash;
+        final Folha[] folhas;
+
+        Colisao(int hash, Folha[] folhas) {
+            this.hash = hash;
+            this.folhas = folhas;
+        }
+    }
+
+    private MapaPersistente(Ramo raiz, int tamanho) {
+        this.raiz = raiz;
+        this.tamanho = tamanho;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> MapaPersistente<K, V> vazio() {
+        return (MapaPersistente<K, V>) VAZIO;
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /** Valor da chave, ou null */
+    @SuppressWarnings("unchecked")
+    public V get(Object chave) {
+        int hash = hash(chave);
+        Object no = raiz;
+        int deslocamento = 0;
+        while (true) {
+            if (no instanceof Ramo) {
+                Ramo ramo = (Ramo) no;
+                int bit = 1 << ((hash >>> deslocamento) & MASCARA);
+                if ((ramo.mapa & bit) == 0) {
+                    return null;
+                }
+                no = ramo.filhos[Integer.bitCount(ramo.mapa & (bit - 1))];
+                deslocamento += BITS;
+            } else if (no instanceof Folha) {
+                Folha folha = (Folha) no;
+                return folha.hash == hash && Objects.equals(folha.chave, chave) ? (V) folha.valor : null;
+            } else {
+                Colisao colisao = (Colisao) no;
+                int i = procurar(colisao, chave);
+                return i >= 0 ? (V) colisao.folhas[i].valor : null;
+            }
+        }
+    }
+
+    public boolean contem(Object chave) {
+        return get(chave) != null;
+    }
+
+    /** Mapa com a chave associada ao valor (não aceita valores null) */
+    public MapaPersistente<K, V> com(K chave, V valor) {
+        Objects.requireNonNull(valor, "valor");
+        int[] acrescentadas = new int[1];
+        Ramo novaRaiz = (Ramo) comNo(raiz, 0, new Folha(hash(chave), chave, valor), acrescentadas);
+        return novaRaiz == raiz ? this : new MapaPersistente<>(novaRaiz, tamanho + acrescentadas[0]);
+    }
+
+    /** Mapa sem a chave */
+    public MapaPersistente<K, V> sem(Object chave) {
+        Object novaRaiz = semNo(raiz, 0, hash(chave), chave);
+        if (novaRaiz == raiz) {
+            return this;
+        }
+        return new MapaPersistente<>(novaRaiz != null ? (Ramo) novaRaiz : new Ramo(0, new Object[0]), tamanho - 1);
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static int hash(Object chave) {
+        int h = Objects.hashCode(chave);
+        // Espalha os bits altos, como o HashMap
+        return h ^ (h >>> 16);
+    }
+
+    private static int procurar(Colisao colisao, Object chave) {
+        for (int i = 0; i < colisao.folhas.length; i++) {
+            if (Objects.equals(colisao.folhas[i].chave, chave)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object comNo(Object no, int deslocamento, Folha nova, int[] acrescentadas) {
+        if (no instanceof Ramo) {
+            Ramo ramo = (Ramo) no;
+            int bit = 1 << ((nova.hash >>> deslocamento) & MASCARA);
+            int posicao = Integer.bitCount(ramo.mapa & (bit - 1));
+            if ((ramo.mapa & bit) == 0) {
+                Object[] filhos = new Object[ramo.filhos.length + 1];
+                System.arraycopy(ramo.filhos, 0, filhos, 0, posicao);
+                filhos[posicao] = nova;
+                System.arraycopy(ramo.filhos, posicao, filhos, posicao + 1, ramo.filhos.length - posicao);
+                acrescentadas[0] = 1;
+                return new Ramo(ramo.mapa | bit, filhos);
+            }
+            Object filho = ramo.filhos[posicao];
+            Object novoFilho = comNo(filho, deslocamento + BITS, nova, acrescentadas);
+            if (novoFilho == filho) {
+                return ramo;
+            }
+            Object[] filhos = ramo.filhos.clone();
+            filhos[posicao] = novoFilho;
+            return new Ramo(ramo.mapa, filhos);
+        }
+        if (no instanceof Folha) {
+            Folha folha = (Folha) no;
+            if (folha.hash == nova.hash && Objects.equals(folha.chave, nova.chave)) {
+                return folha.valor == nova.valor ? folha : nova;
+            }
+            acrescentadas[0] = 1;
+            if (folha.hash == nova.hash) {
+                return new Colisao(nova.hash, new Folha[] {folha, nova});
+            }
+            return juntar(folha, folha.hash, nova, deslocamento);
+        }
+        Colisao colisao = (Colisao) no;
+        if (colisao.hash != nova.hash) {
+            acrescentadas[0] = 1;
+            return juntar(colisao, colisao.hash, nova, deslocamento);
+        }
+        int i = procurar(colisao, nova.chave);
+        Folha[] folhas;
+        if (i >= 0) {
+            if (colisao.folhas[i].valor == nova.valor) {
+                return colisao;
+            }
+            folhas = colisao.folhas.clone();
+            folhas[i] = nova;
+        } else {
+            folhas = Arrays.copyOf(colisao.folhas, colisao.folhas.length + 1);
+            folhas[colisao.folhas.length] = nova;
+            acrescentadas[0] = 1;
+        }
+        return new Colisao(nova.hash, folhas);
+    }
+
+    /** Ramo com o nó existente e a folha nova, de hashes diferentes */
+    private static Ramo juntar(Object existente, int hashExistente, Folha nova, int deslocamento) {
+        int a = (hashExistente >>> deslocamento) & MASCARA;
+        int b = (nova.hash >>> deslocamento) & MASCARA;
+        if (a == b) {
+            return new Ramo(1 << a, new Object[] {juntar(existente, hashExistente, nova, deslocamento + BITS)});
+        }
+        Object[] filhos = a < b ? new Object[] {existente, nova} : new Object[] {nova, existente};
+        return new Ramo((1 << a) | (1 << b), filhos);
+    }
+
+    /** Nó sem a chave: o mesmo se não a tinha, null se ficou vazio */
+    private static Object semNo(Object no, int deslocamento, int hash, Object chave) {
+        if (no instanceof Ramo) {
+            Ramo ramo = (Ramo) no;
+            int bit = 1 << ((hash >>> deslocamento) & MASCARA);
+            if ((ramo.mapa & bit) == 0) {
+                return ramo;
+            }
+            int posicao = Integer.bitCount(ramo.mapa & (bit - 1));
+            Object filho = ramo.filhos[posicao];
+            Object novoFilho = semNo(filho, deslocamento + BITS, hash, chave);
+            if (novoFilho == filho) {
+                return ramo;
+            }
+            if (novoFilho != null) {
+                Object[] filhos = ramo.filhos.clone();
+                filhos[posicao] = novoFilho;
+                return new Ramo(ramo.mapa, filhos);
+            }
+            if (ramo.filhos.length == 1) {
+                return null;
+            }
+            Object[] filhos = new Object[ramo.filhos.length - 1];
+            System.arraycopy(ramo.filhos, 0, filhos, 0, posicao);
+            System.arraycopy(ramo.filhos, posicao + 1, filhos, posicao, filhos.length - posicao);
+            return new Ramo(ramo.mapa & ~bit, filhos);
+        }
+        if (no instanceof Folha) {
+            Folha folha = (Folha) no;
+            return folha.hash == hash && Objects.equals(folha.chave, chave) ? null : folha;
+        }
+        Colisao colisao = (Colisao) no;
+        int i = colisao.hash == hash ? procurar(colisao, chave) : -1;
+        if (i < 0) {
+            return colisao;
+        }
+        if (colisao.folhas.length == 2) {
+            return colisao.folhas[1 - i];
+        }
+        Folha[] folhas = new Folha[colisao.folhas.length - 1];
+        System.arraycopy(colisao.folhas, 0, folhas, 0, i);
+        System.arraycopy(colisao.folhas, i + 1, folhas, i, folhas.length - i);
+        return new Colisao(hash, folhas);
+    }
+}
@@ -0,0 +1,38 @@
+package isptec.biblioteca.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Utilitários de normalização de texto.
+ */
+public final class TextoUtil {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    private TextoUtil() {
+        // Impede instanciação
+    }
+
+    /**
+     * Remove acentos e outros diacríticos ("Ação" -> "Acao").
+     */
+    public static String removerAcentos(String texto) {
+        String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return MARCAS.matcher(decomposto).replaceAll("");
+    }
+
+    /**
+     * Chave de comparação de nomes: sem acentos, minúsculas e espaços
+     * colapsados. Aproxima a collation utf8mb4_unicode_ci do banco.
+     */
+    public static String chave(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = removerAcentos(texto.trim()).toLowerCase(Locale.ROOT);
+        return ESPACOS.matcher(semAcentos).replaceAll(" ");
+    }
+}
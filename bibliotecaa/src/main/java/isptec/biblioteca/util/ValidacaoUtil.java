@@ -50,6 +50,84 @@ public final class ValidacaoUtil {
                PATTERN_ISBN_13.matcher(isbnLimpo).matches();
     }
 
+    /**
+     * Remove hífens e espaços de um ISBN e põe o 'X' final em maiúscula.
+     */
+    public static String normalizarIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        return isbn.replaceAll("[\\s-]", "").toUpperCase();
+    }
+
+    /**
+     * Valida ISBN-10 ou ISBN-13 incluindo o dígito de controlo.
+     */
+    public static boolean isbnChecksumValido(String isbn) {
+        String limpo = normalizarIsbn(isbn);
+        if (limpo == null) {
+            return false;
+        }
+        if (PATTERN_ISBN_10.matcher(limpo).matches()) {
+            int soma = 0;
+            for (int i = 0; i < 10; i++) {
+                char c = limpo.charAt(i);
+                int digito = (c == 'X') ? 10 : c - '0';
+                soma += digito * (10 - i);
+            }
+            return soma % 11 == 0;
+        }
+        if (PATTERN_ISBN_13.matcher(limpo).matches()) {
+            int soma = 0;
+            for (int i = 0; i < 13; i++) {
+                int digito = limpo.charAt(i) - '0';
+                soma += (i % 2 == 0) ? digito : digito * 3;
+            }
+            return soma % 10 == 0;
+        }
+        return false;
+    }
+
+    /**
+     * Converte um ISBN normalizado (10 ou 13) para ISBN-13.
+     */
+    public static String isbn13(String isbn) {
+        if (isbn == null || isbn.length() != 10) {
+            return isbn;
+        }
+        String base = "978" + isbn.substring(0, 9);
+        int soma = 0;
+        for (int i = 0; i < 12; i++) {
+            int digito = base.charAt(i) - '0';
+            soma += (i % 2 == 0) ? digito : digito * 3;
+        }
+        return base + ((10 - soma % 10) % 10);
+    }
+
+    /**
+     * Converte um ISBN-13 normalizado com prefixo 978 para ISBN-10.
+     *
+     * @return o ISBN-10, ou null se não houver equivalente
+     */
+    public static String isbn10(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        if (isbn.length() == 10) {
+            return isbn;
+        }
+        if (isbn.length() != 13 || !isbn.startsWith("978")) {
+            return null;
+        }
+        String base = isbn.substring(3, 12);
+        int soma = 0;
+        for (int i = 0; i < 9; i++) {
+            soma += (base.charAt(i) - '0') * (10 - i);
+        }
+        int controlo = (11 - soma % 11) % 11;
+        return base + (controlo == 10 ? "X" : String.valueOf(controlo));
+    }
+
     /**
      * Valida formato de matrícula.
      */
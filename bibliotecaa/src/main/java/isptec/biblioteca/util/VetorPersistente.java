@@ -0,0 +1,197 @@
+package isptec.biblioteca.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Vetor imutável e persistente: cada alteração devolve um vetor novo que
+ * partilha quase toda a estrutura com o anterior, e as versões antigas
+ * continuam válidas para quem as tem.
+ *
+ * Árvore de ramificação 32 com os últimos elementos numa "cauda" à parte:
+ * acesso por posição, substituição e acrescento no fim custam O(log32 n)
+ * (no máximo 6 níveis até mil milhões de elementos). Retirar do meio
+ * reconstrói o vetor, O(n).
+ */
+public final class VetorPersistente<T> {
+
+    private static final int BITS = 5;
+    private static final int LARGURA = 1 << BITS;
+    private static final int MASCARA = LARGURA - 1;
+
+    private static final VetorPersistente<?> VAZIO =
+            new VetorPersistente<>(0, BITS, new Object[LARGURA], new Object[0]);
+
+    private final int tamanho;
+    private final int nivel;
+    private final Object[] raiz;
+    private final Object[] cauda;
+
+    private VetorPersistente(int tamanho, int nivel, Object[] raiz, Object[] cauda) {
+        this.tamanho = tamanho;
+        this.nivel = nivel;
+        this.raiz = raiz;
+        this.cauda = cauda;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> VetorPersistente<T> vazio() {
+        return (VetorPersistente<T>) VAZIO;
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        if (i < 0 || i >= tamanho) {
+            throw new IndexOutOfBoundsException("Posição " + i + " num vetor de " + tamanho);
+        }
+        if (i >= inicioCauda()) {
+            return (T) cauda[i & MASCARA];
+        }
+        Object[] no = raiz;
+        for (int n = nivel; n > 0; n -= BITS) {
+            no = (Object[]) no[(i >>> n) & MASCARA];
+        }
+        return (T) no[i & MASCARA];
+    }
+
+    /** Vetor com o elemento acrescentado no fim */
+    public VetorPersistente<T> com(T elemento) {
+        if (tamanho - inicioCauda() < LARGURA) {
+            Object[] novaCauda = Arrays.copyOf(cauda, cauda.length + 1);
+            novaCauda[cauda.length] = elemento;
+            return new VetorPersistente<>(tamanho + 1, nivel, raiz, novaCauda);
+        }
+        // Cauda cheia: passa para a árvore
+        Object[] novaRaiz;
+        int novoNivel = nivel;
+        if ((tamanho >>> BITS) > (1 << nivel)) {
+            novaRaiz = new Object[LARGURA];
+            novaRaiz[0] = raiz;
+            novaRaiz[1] = caminho(nivel, cauda);
+            novoNivel += BITS;
+        } else {
+            novaRaiz = empurrarCauda(nivel, raiz, cauda);
+        }
+        return new VetorPersistente<>(tamanho + 1, novoNivel, novaRaiz, new Object[] {elemento});
+    }
+
+    /** Vetor com o elemento da posição substituído */
+    public VetorPersistente<T> com(int i, T elemento) {
+        if (i < 0 || i >= tamanho) {
+            throw new IndexOutOfBoundsException("Posição " + i + " num vetor de " + tamanho);
+        }
+        if (i >= inicioCauda()) {
+            Object[] novaCauda = cauda.clone();
+            novaCauda[i & MASCARA] = elemento;
+            return new VetorPersistente<>(tamanho, nivel, raiz, novaCauda);
+        }
+        return new VetorPersistente<>(tamanho, nivel, substituir(nivel, raiz, i, elemento), cauda);
+    }
+
+    /** Vetor sem o elemento da posição (reconstrói, O(n)) */
+    public VetorPersistente<T> sem(int i) {
+        if (i < 0 || i >= tamanho) {
+            throw new IndexOutOfBoundsException("Posição " + i + " num vetor de " + tamanho);
+        }
+        VetorPersistente<T> novo = vazio();
+        for (int j = 0; j < tamanho; j++) {
+            if (j != i) {
+                novo = novo.com(get(j));
+            }
+        }
+        return novo;
+    }
+
+    /** Vetor só com os elementos a partir da posição (reconstrói) */
+    public VetorPersistente<T> desde(int inicio) {
+        VetorPersistente<T> novo = vazio();
+        for (int j = Math.max(inicio, 0); j < tamanho; j++) {
+            novo = novo.com(get(j));
+        }
+        return novo;
+    }
+
+    /**
+     * Vista de lista só de leitura, sem cópia.
+     */
+    public List<T> comoLista() {
+        return new Vista<>(this, 0, tamanho);
+    }
+
+    /** Vista dos elementos entre as posições [inicio, fim), sem cópia */
+    public List<T> comoLista(int inicio, int fim) {
+        if (inicio < 0 || fim > tamanho || inicio > fim) {
+            throw new IndexOutOfBoundsException("Intervalo [" + inicio + ", " + fim + ") num vetor de " + tamanho);
+        }
+        return new Vista<>(this, inicio, fim);
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private int inicioCauda() {
+        return tamanho < LARGURA ? 0 : ((tamanho - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] empurrarCauda(int n, Object[] pai, Object[] no) {
+        int indice = ((tamanho - 1) >>> n) & MASCARA;
+        Object[] copia = pai.clone();
+        if (n == BITS) {
+            copia[indice] = no;
+        } else {
+            Object[] filho = (Object[]) pai[indice];
+            copia[indice] = filho != null ? empurrarCauda(n - BITS, filho, no) : caminho(n - BITS, no);
+        }
+        return copia;
+    }
+
+    private static Object[] caminho(int n, Object[] no) {
+        if (n == 0) {
+            return no;
+        }
+        Object[] topo = new Object[LARGURA];
+        topo[0] = caminho(n - BITS, no);
+        return topo;
+    }
+
+    private static Object[] substituir(int n, Object[] no, int i, Object elemento) {
+        Object[] copia = no.clone();
+        if (n == 0) {
+            copia[i & MASCARA] = elemento;
+        } else {
+            int indice = (i >>> n) & MASCARA;
+            copia[indice] = substituir(n - BITS, (Object[]) no[indice], i, elemento);
+        }
+        return copia;
+    }
+
+    private static final class Vista<T> extends AbstractList<T> implements RandomAccess {
+        private final VetorPersistente<T> vetor;
+        private final int inicio;
+        private final int fim;
+
+        Vista(VetorPersistente<T> vetor, int inicio, int fim) {
+            this.vetor = vetor;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        public T get(int i) {
+            if (i < 0 || i >= fim - inicio) {
+                throw new IndexOutOfBoundsException("Posição " + i + " numa lista de " + (fim - inicio));
+            }
+            return vetor.get(inicio + i);
+        }
+
+        @Override
+        public int size() {
+            return fim - inicio;
+        }
+    }
+}
@@ -1,21 +1,81 @@
 package isptec.biblioteca.views;
 
 import isptec.biblioteca.ServiceFactory;
+import isptec.biblioteca.busca.ContagemFaceta;
+import isptec.biblioteca.busca.Faceta;
+import isptec.biblioteca.busca.ResultadoPesquisa;
+import isptec.biblioteca.busca.Sugestao;
 import isptec.biblioteca.model.Livro;
 import isptec.biblioteca.service.AuthService;
 import isptec.biblioteca.service.LibraryService;
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CatalogoUserView {
     private final BorderPane mainLayout;
     private final LibraryService libraryService;
     private final AuthService authService;
     private VBox catalogoBox;
+    private FlowPane facetasBox;
+    private Label totalLabel;
+
+    /** Livros mostrados por pesquisa e valores mostrados por faceta */
+    private static final int LIMITE_RESULTADOS = 50;
+    private static final int VALORES_POR_FACETA = 6;
+
+    /** Espera depois da última tecla antes de pesquisar, e sugestões mostradas */
+    private static final int ATRASO_DIGITACAO_MS = 200;
+    private static final int LIMITE_SUGESTOES = 8;
+    private static final int LIMITE_CORRECOES = 3;
+
+    /**
+     * Pesquisas fora da thread da interface; uma só thread, e as pedidas
+     * antes de começarem são canceladas quando chega outra.
+     */
+    private static final ExecutorService PESQUISAS = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "catalogo-pesquisa");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Faceta, String> filtros = new EnumMap<>(Faceta.class);
+    private String termoAtual = "";
+
+    private TextField searchField;
+    private ContextMenu sugestoesMenu;
+    private final PauseTransition esperaDigitacao = new PauseTransition(Duration.millis(ATRASO_DIGITACAO_MS));
+    private Task<Pesquisa> pesquisaEmCurso;
+
+    /**
+     * Resultado de uma pesquisa em fundo: livros, facetas, sugestões e,
+     * se nada foi encontrado, as correções "quis dizer".
+     */
+    private static final class Pesquisa {
+        final ResultadoPesquisa<Livro> resultado;
+        final List<Sugestao> sugestoes;
+        final List<String> correcoes;
+
+        Pesquisa(ResultadoPesquisa<Livro> resultado, List<Sugestao> sugestoes, List<String> correcoes) {
+            this.resultado = resultado;
+            this.sugestoes = sugestoes;
+            this.correcoes = correcoes;
+        }
+    }
 
     public CatalogoUserView(Stage stage, BorderPane mainLayout) {
         this.mainLayout = mainLayout;
@@ -39,7 +99,7 @@ public class CatalogoUserView {
         subtitle.setFont(Font.font("System", 14));
 
         HBox searchBox = new HBox(10);
-        TextField searchField = new TextField();
+        searchField = new TextField();
         searchField.setPromptText("Buscar por título, autor ou categoria...");
         searchField.setPrefHeight(40);
         HBox.setHgrow(searchField, Priority.ALWAYS);
@@ -47,16 +107,32 @@ public class CatalogoUserView {
         Button searchBtn = new Button("🔍 Buscar");
         searchBtn.setPrefHeight(40);
         searchBtn.setStyle("-fx-background-color: #2563eb; -fx-text-fill: white;");
-        searchBtn.setOnAction(e -> buscarLivros(searchField.getText()));
+        searchBtn.setOnAction(e -> {
+            esperaDigitacao.stop();
+            buscarLivros(searchField.getText());
+        });
 
         searchField.setOnAction(e -> searchBtn.fire());
 
+        // Pesquisa enquanto se escreve: só depois de uma pausa nas teclas
+        sugestoesMenu = new ContextMenu();
+        esperaDigitacao.setOnFinished(e -> {
+            termoAtual = searchField.getText();
+            filtros.clear();
+            pesquisar(true);
+        });
+        searchField.textProperty().addListener((obs, antigo, novo) -> esperaDigitacao.playFromStart());
+
         searchBox.getChildren().addAll(searchField, searchBtn);
 
+        totalLabel = new Label();
+        totalLabel.setStyle("-fx-text-fill: #6b7280;");
+        facetasBox = new FlowPane(8, 8);
+
         catalogoBox = new VBox(15);
         carregarTodosLivros();
 
-        content.getChildren().addAll(title, subtitle, searchBox, catalogoBox);
+        content.getChildren().addAll(title, subtitle, searchBox, totalLabel, facetasBox, catalogoBox);
 
         ScrollPane scrollPane = new ScrollPane(content);
         scrollPane.setFitToWidth(true);
@@ -65,17 +141,145 @@ public class CatalogoUserView {
     }
 
     private void carregarTodosLivros() {
-        catalogoBox.getChildren().clear();
-        for (Livro livro : libraryService.listarLivros()) {
-            catalogoBox.getChildren().add(criarCardLivro(livro));
-        }
+        buscarLivros("");
     }
 
     private void buscarLivros(String termo) {
+        termoAtual = termo != null ? termo : "";
+        filtros.clear();
+        sugestoesMenu.hide();
+        pesquisar(false);
+    }
+
+    /**
+     * Corre a pesquisa (livros mais relevantes e facetas numa só chamada,
+     * mais as sugestões se pedidas) na thread de pesquisas, cancelando a
+     * anterior; o resultado só é mostrado se ainda for o último pedido.
+     */
+    private void pesquisar(boolean comSugestoes) {
+        if (pesquisaEmCurso != null) {
+            pesquisaEmCurso.cancel();
+        }
+        String termo = termoAtual;
+        Map<Faceta, String> filtrosPedido = new EnumMap<>(filtros);
+
+        Task<Pesquisa> tarefa = new Task<>() {
+            @Override
+            protected Pesquisa call() {
+                List<Sugestao> sugestoes = comSugestoes && !termo.isBlank() ?
+                        libraryService.sugerir(termo, LIMITE_SUGESTOES) : Collections.emptyList();
+                if (isCancelled()) {
+                    return null;
+                }
+                ResultadoPesquisa<Livro> resultado =
+                        libraryService.pesquisarCatalogo(termo, LIMITE_RESULTADOS, filtrosPedido);
+                List<String> correcoes = resultado.getTotal() == 0 && !termo.isBlank() ?
+                        libraryService.sugerirCorrecoes(termo, LIMITE_CORRECOES) : Collections.emptyList();
+                return new Pesquisa(resultado, sugestoes, correcoes);
+            }
+        };
+        tarefa.setOnSucceeded(e -> {
+            if (tarefa == pesquisaEmCurso && tarefa.getValue() != null) {
+                mostrarResultado(tarefa.getValue().resultado);
+                mostrarCorrecoes(tarefa.getValue().correcoes);
+                if (comSugestoes) {
+                    mostrarSugestoes(tarefa.getValue().sugestoes);
+                }
+            }
+        });
+        tarefa.setOnFailed(e -> System.err.println("Erro ao pesquisar no catálogo: " +
+                tarefa.getException().getMessage()));
+        pesquisaEmCurso = tarefa;
+        PESQUISAS.execute(tarefa);
+    }
+
+    private void mostrarSugestoes(List<Sugestao> sugestoes) {
+        sugestoesMenu.getItems().clear();
+        for (Sugestao sugestao : sugestoes) {
+            MenuItem item = new MenuItem(sugestao.getTexto() + "  ·  " + rotulo(sugestao));
+            item.setOnAction(e -> {
+                searchField.setText(sugestao.getTexto());
+                searchField.positionCaret(sugestao.getTexto().length());
+                esperaDigitacao.stop();
+                buscarLivros(sugestao.getTexto());
+            });
+            sugestoesMenu.getItems().add(item);
+        }
+        if (sugestoes.isEmpty() || !searchField.isFocused()) {
+            sugestoesMenu.hide();
+        } else if (!sugestoesMenu.isShowing()) {
+            sugestoesMenu.show(searchField, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    private static String rotulo(Sugestao sugestao) {
+        switch (sugestao.getCampo()) {
+            case AUTOR:
+                return "autor";
+            case CATEGORIA:
+                return "categoria";
+            default:
+                return "título";
+        }
+    }
+
+    private void mostrarResultado(ResultadoPesquisa<Livro> resultado) {
         catalogoBox.getChildren().clear();
-        for (Livro livro : libraryService.buscarLivros(termo)) {
+        for (Livro livro : resultado.getLivros()) {
             catalogoBox.getChildren().add(criarCardLivro(livro));
         }
+        totalLabel.setText(resultado.getTotal() + " livro(s) encontrado(s)" +
+                (resultado.getTotal() > resultado.getLivros().size() ?
+                        " - a mostrar os " + resultado.getLivros().size() + " mais relevantes" : ""));
+        mostrarFacetas(resultado);
+    }
+
+    private void mostrarFacetas(ResultadoPesquisa<Livro> resultado) {
+        facetasBox.getChildren().clear();
+        for (Faceta faceta : Faceta.values()) {
+            List<ContagemFaceta> contagens = resultado.getFaceta(faceta);
+            for (int i = 0; i < contagens.size() && i < VALORES_POR_FACETA; i++) {
+                ContagemFaceta contagem = contagens.get(i);
+                boolean ativo = contagem.getValor().equals(filtros.get(faceta));
+                Button botao = new Button(contagem.toString());
+                botao.setStyle(ativo ?
+                        "-fx-background-color: #2563eb; -fx-text-fill: white; -fx-background-radius: 12;" :
+                        "-fx-background-color: #e5e7eb; -fx-background-radius: 12;");
+                botao.setOnAction(e -> {
+                    if (ativo) {
+                        filtros.remove(faceta);
+                    } else {
+                        filtros.put(faceta, contagem.getValor());
+                    }
+                    pesquisar(false);
+                });
+                facetasBox.getChildren().add(botao);
+            }
+        }
+        if (!filtros.isEmpty()) {
+            Button limpar = new Button("✖ Limpar filtros");
+            limpar.setOnAction(e -> {
+                filtros.clear();
+                pesquisar(false);
+            });
+            facetasBox.getChildren().add(limpar);
+        }
+    }
+
+    private void mostrarCorrecoes(List<String> correcoes) {
+        if (correcoes.isEmpty()) {
+            return;
+        }
+        facetasBox.getChildren().add(new Label("Você quis dizer:"));
+        for (String correcao : correcoes) {
+            Hyperlink link = new Hyperlink(correcao);
+            link.setOnAction(e -> {
+                searchField.setText(correcao);
+                esperaDigitacao.stop();
+                buscarLivros(correcao);
+            });
+            facetasBox.getChildren().add(link);
+        }
     }
 
     private VBox criarCardLivro(Livro livro) {
@@ -230,7 +230,7 @@ public class DashboardAdminView {
             "#8b5cf6");
 
         // Card 5: Multas em Atraso
-        int emprestimosAtrasados = libraryService.listarEmprestimosAtrasados().size();
+        int emprestimosAtrasados = libraryService.getEmprestimosAtrasados();
         VBox card5 = createStatCard("⚠️", "Multas em Atraso", 
             String.valueOf(emprestimosAtrasados), 
             emprestimosAtrasados > 0 ? "Total: R$ " + String.format("%.2f", libraryService.getTotalMultas()) : "Nenhuma multa",
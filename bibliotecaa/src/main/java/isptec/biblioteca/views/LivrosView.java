@@ -1,6 +1,11 @@
 package isptec.biblioteca.views;
 
+import isptec.biblioteca.busca.ContagemFaceta;
+import isptec.biblioteca.busca.Faceta;
+import isptec.biblioteca.busca.ResultadoPesquisa;
 import isptec.biblioteca.model.Livro;
+import isptec.biblioteca.repository.Slice;
+import isptec.biblioteca.service.InstantaneoBiblioteca;
 import isptec.biblioteca.service.LibraryService;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
@@ -10,12 +15,23 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 
+import java.util.List;
 import java.util.UUID;
 
 public class LivrosView {
     private final BorderPane mainLayout;
     private final LibraryService libraryService;
     private TableView<Livro> table;
+    private TextField pesquisaField;
+    private Label resumoLabel;
+    private Button maisBtn;
+
+    // Sem pesquisa, a lista é paginada sobre a versão lida no último refresh
+    private InstantaneoBiblioteca versaoListada;
+    private String proximoCursor;
+
+    private static final int LIMITE_RESULTADOS = 200;
+    private static final int TAMANHO_PAGINA = 100;
 
     public LivrosView(Stage stage, BorderPane mainLayout) {
         this.mainLayout = mainLayout;
@@ -59,7 +75,15 @@ public class LivrosView {
             }
         });
 
-        toolbar.getChildren().addAll(addBtn, addFotoBtn, editBtn, deleteBtn);
+        pesquisaField = new TextField();
+        pesquisaField.setPromptText("Pesquisar no catálogo...");
+        HBox.setHgrow(pesquisaField, Priority.ALWAYS);
+        pesquisaField.setOnAction(e -> refreshTable());
+
+        toolbar.getChildren().addAll(addBtn, addFotoBtn, editBtn, deleteBtn, pesquisaField);
+
+        resumoLabel = new Label();
+        resumoLabel.setStyle("-fx-text-fill: #6b7280;");
 
         table = new TableView<>();
         TableColumn<Livro, String> tituloCol = new TableColumn<>("Título");
@@ -83,16 +107,51 @@ public class LivrosView {
         disponivelCol.setCellValueFactory(new PropertyValueFactory<>("quantidadeDisponivel"));
 
         table.getColumns().addAll(tituloCol, autorCol, isbnCol, categoriaCol, quantidadeCol, disponivelCol);
+
+        maisBtn = new Button("Carregar mais");
+        maisBtn.setOnAction(e -> carregarPagina());
+        maisBtn.managedProperty().bind(maisBtn.visibleProperty());
         refreshTable();
 
-        content.getChildren().addAll(title, toolbar, table);
+        content.getChildren().addAll(title, toolbar, resumoLabel, table, maisBtn);
         VBox.setVgrow(table, Priority.ALWAYS);
         return content;
     }
 
     private void refreshTable() {
         table.getItems().clear();
-        table.getItems().addAll(libraryService.listarLivros());
+        String termo = pesquisaField.getText();
+        if (termo == null || termo.isBlank()) {
+            versaoListada = libraryService.getInstantaneo();
+            proximoCursor = null;
+            carregarPagina();
+            return;
+        }
+        maisBtn.setVisible(false);
+        // Livros por relevância e resumo das facetas na mesma chamada
+        ResultadoPesquisa<Livro> resultado = libraryService.pesquisarCatalogo(termo, LIMITE_RESULTADOS, null);
+        table.getItems().addAll(resultado.getLivros());
+        resumoLabel.setText(resultado.getTotal() + " livro(s) | Categorias: " +
+                resumir(resultado.getFaceta(Faceta.CATEGORIA)) + " | " +
+                resumir(resultado.getFaceta(Faceta.DISPONIBILIDADE)));
+    }
+
+    /** Acrescenta à tabela a fatia seguinte da versão listada */
+    private void carregarPagina() {
+        Slice<Livro> pagina = versaoListada.getLivros(proximoCursor, TAMANHO_PAGINA);
+        table.getItems().addAll(pagina.getConteudo());
+        proximoCursor = pagina.getProximoCursor();
+        maisBtn.setVisible(pagina.temProxima());
+        resumoLabel.setText(table.getItems().size() + " de " + versaoListada.getLivros().size() + " livro(s)");
+    }
+
+    private String resumir(List<ContagemFaceta> contagens) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < contagens.size() && i < 5; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(contagens.get(i));
+        }
+        return sb.length() > 0 ? sb.toString() : "-";
     }
 
     private void showAddDialog() {
@@ -383,12 +442,14 @@ public class LivrosView {
 
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == saveButtonType) {
-                livro.setTitulo(tituloField.getText());
-                livro.setAutor(autorField.getText());
+                // O livro da lista pertence a uma versão publicada: edita-se uma cópia
+                Livro editado = new Livro(livro);
+                editado.setTitulo(tituloField.getText());
+                editado.setAutor(autorField.getText());
                 try {
-                    livro.setQuantidade(Integer.parseInt(quantidadeField.getText()));
+                    editado.setQuantidade(Integer.parseInt(quantidadeField.getText()));
                 } catch (NumberFormatException ignored) {}
-                return livro;
+                return editado;
             }
             return null;
         });
@@ -3,6 +3,7 @@ module isptec.biblioteca {
     requires javafx.fxml;
     requires javafx.graphics;
     requires java.net.http;
+    requires jdk.httpserver;
     requires java.sql;
     requires com.zaxxer.hikari;
 
@@ -15,8 +16,13 @@ module isptec.biblioteca {
     exports isptec.biblioteca.views;
     exports isptec.biblioteca.service;
     exports isptec.biblioteca.service.impl;
+    exports isptec.biblioteca.repository;
     exports isptec.biblioteca.model;
     exports isptec.biblioteca.model.entities;
     exports isptec.biblioteca.enumeracao;
+    exports isptec.biblioteca.busca;
+    exports isptec.biblioteca.eventos;
+    exports isptec.biblioteca.agendamento;
+    exports isptec.biblioteca.servidor;
 }
 
@@ -0,0 +1,70 @@
+package isptec.biblioteca.agendamento;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpressaoCronTest {
+
+    private static LocalDateTime proxima(String expressao, String depois) {
+        return new ExpressaoCron(expressao).proxima(LocalDateTime.parse(depois));
+    }
+
+    @Test
+    void todosOsDias() {
+        assertEquals(LocalDateTime.parse("2024-03-10T02:00"), proxima("0 2 * * *", "2024-03-10T01:59:30"));
+        // Estritamente depois
+        assertEquals(LocalDateTime.parse("2024-03-11T02:00"), proxima("0 2 * * *", "2024-03-10T02:00"));
+    }
+
+    @Test
+    void passosEIntervalos() {
+        assertEquals(LocalDateTime.parse("2024-03-15T10:15"), proxima("*/15 8-18 * * 1-5", "2024-03-15T10:00"));
+        // Sexta-feira ao fim do expediente: segunda às 08:00
+        assertEquals(LocalDateTime.parse("2024-03-18T08:00"), proxima("*/15 8-18 * * 1-5", "2024-03-15T18:45"));
+        assertEquals(LocalDateTime.parse("2024-03-15T10:35"), proxima("5/10 * * * *", "2024-03-15T10:26"));
+    }
+
+    @Test
+    void listas() {
+        assertEquals(LocalDateTime.parse("2024-03-15T10:30"), proxima("0,30 * * * *", "2024-03-15T10:10"));
+        assertEquals(LocalDateTime.parse("2024-04-01T00:00"), proxima("0 0 1 1,4,7,10 *", "2024-01-01T00:00"));
+    }
+
+    @Test
+    void domingoComoZeroOuSete() {
+        // 2024-03-10 é domingo
+        assertEquals(LocalDateTime.parse("2024-03-17T00:00"), proxima("0 0 * * 0", "2024-03-10T00:00"));
+        assertEquals(LocalDateTime.parse("2024-03-17T00:00"), proxima("0 0 * * 7", "2024-03-10T00:00"));
+    }
+
+    @Test
+    void diaDoMesOuDiaDaSemana() {
+        // Ambos restringidos: basta um (dia 13, quarta, ou sexta 15)
+        assertEquals(LocalDateTime.parse("2024-03-13T00:00"), proxima("0 0 13 * 5", "2024-03-10T00:00"));
+        assertEquals(LocalDateTime.parse("2024-03-15T00:00"), proxima("0 0 13 * 5", "2024-03-13T00:00"));
+    }
+
+    @Test
+    void anoBissexto() {
+        assertEquals(LocalDateTime.parse("2028-02-29T00:00"), proxima("0 0 29 2 *", "2024-03-01T00:00"));
+    }
+
+    @Test
+    void semOcorrencias() {
+        assertThrows(IllegalArgumentException.class, () -> proxima("0 0 30 2 *", "2024-01-01T00:00"));
+    }
+
+    @Test
+    void expressoesInvalidas() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpressaoCron(null));
+        assertThrows(IllegalArgumentException.class, () -> new ExpressaoCron("* * *"));
+        assertThrows(IllegalArgumentException.class, () -> new ExpressaoCron("60 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> new ExpressaoCron("5-2 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> new ExpressaoCron("a * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> new ExpressaoCron("*/0 * * * *"));
+    }
+}
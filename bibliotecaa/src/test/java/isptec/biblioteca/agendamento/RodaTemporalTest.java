@@ -0,0 +1,138 @@
+package isptec.biblioteca.agendamento;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RodaTemporalTest {
+
+    private static final long TICK = 1000;
+
+    private final List<String> disparados = new ArrayList<>();
+
+    private Runnable registo(String nome) {
+        return () -> disparados.add(nome);
+    }
+
+    private void executar(List<Runnable> acoes) {
+        for (Runnable acao : acoes) {
+            acao.run();
+        }
+    }
+
+    @Test
+    void venceNoTickCerto() {
+        RodaTemporal roda = new RodaTemporal(TICK, 0);
+        roda.agendar(5 * TICK, registo("a"));
+
+        executar(roda.avancar(4 * TICK));
+        assertTrue(disparados.isEmpty());
+        executar(roda.avancar(5 * TICK));
+        assertEquals(Arrays.asList("a"), disparados);
+        assertEquals(0, roda.getPendentes());
+    }
+
+    @Test
+    void descePelosNiveisSemAdiantarNemAtrasar() {
+        // Um temporizador em cada nível, nas fronteiras entre níveis e fora do alcance
+        long alcance = 1L << (RodaTemporal.BITS * RodaTemporal.NIVEIS);
+        long[] ticks = {1, 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 300001, alcance - 1, alcance + 100};
+        RodaTemporal roda = new RodaTemporal(TICK, 0);
+        for (long tick : ticks) {
+            roda.agendar(tick * TICK, registo(String.valueOf(tick)));
+        }
+
+        for (long tick : ticks) {
+            executar(roda.avancar((tick - 1) * TICK));
+            assertFalse(disparados.contains(String.valueOf(tick)), "adiantado: " + tick);
+            executar(roda.avancar(tick * TICK));
+            assertEquals(String.valueOf(tick), disparados.get(disparados.size() - 1), "no tick " + tick);
+        }
+        assertEquals(ticks.length, disparados.size());
+        assertEquals(0, roda.getPendentes());
+    }
+
+    @Test
+    void descerComRodaJaAdiantada() {
+        // Depois de a roda andar, os alvos caem em ranhuras de cima já ultrapassadas uma vez
+        RodaTemporal roda = new RodaTemporal(TICK, 0);
+        roda.agendar(1, registo("inicio"));
+        executar(roda.avancar(65 * TICK));
+        roda.agendar((65 + 4095) * TICK, registo("volta"));
+        roda.agendar((65 + 70) * TICK, registo("perto"));
+
+        executar(roda.avancar((65 + 69) * TICK));
+        assertEquals(Arrays.asList("inicio"), disparados);
+        executar(roda.avancar((65 + 70) * TICK));
+        assertEquals(Arrays.asList("inicio", "perto"), disparados);
+        executar(roda.avancar((65 + 4094) * TICK));
+        assertEquals(2, disparados.size());
+        executar(roda.avancar((65 + 4095) * TICK));
+        assertEquals(Arrays.asList("inicio", "perto", "volta"), disparados);
+    }
+
+    @Test
+    void vencidasPorOrdem() {
+        RodaTemporal roda = new RodaTemporal(TICK, 0);
+        roda.agendar(300 * TICK, registo("c"));
+        roda.agendar(2 * TICK, registo("a"));
+        roda.agendar(70 * TICK, registo("b"));
+
+        executar(roda.avancar(1000 * TICK));
+        assertEquals(Arrays.asList("a", "b", "c"), disparados);
+    }
+
+    @Test
+    void instanteArredondaParaOTickSeguinte() {
+        RodaTemporal roda = new RodaTemporal(TICK, 0);
+        RodaTemporal.Temporizador temporizador = roda.agendar(2 * TICK + 1, registo("a"));
+        assertEquals(3 * TICK, temporizador.getInstante());
+
+        executar(roda.avancar(2 * TICK + 999));
+        assertTrue(disparados.isEmpty());
+        executar(roda.avancar(3 * TICK));
+        assertEquals(1, disparados.size());
+    }
+
+    @Test
+    void instantePassadoVenceNoProximoAvanco() {
+        RodaTemporal roda = new RodaTemporal(TICK, 10 * TICK);
+        roda.agendar(0, registo("atrasado"));
+        executar(roda.avancar(10 * TICK));
+        assertEquals(Arrays.asList("atrasado"), disparados);
+    }
+
+    @Test
+    void cancelado() {
+        RodaTemporal roda = new RodaTemporal(TICK, 0);
+        RodaTemporal.Temporizador longe = roda.agendar(5000 * TICK, registo("longe"));
+        roda.agendar(10 * TICK, registo("perto"));
+
+        assertTrue(longe.cancelar());
+        assertFalse(longe.isPendente());
+        assertFalse(longe.cancelar());
+        assertEquals(1, roda.getPendentes());
+
+        executar(roda.avancar(10000 * TICK));
+        assertEquals(Arrays.asList("perto"), disparados);
+    }
+
+    @Test
+    void rodaVaziaSaltaTicks() {
+        RodaTemporal roda = new RodaTemporal(TICK, 0);
+        assertTrue(roda.avancar(1_000_000 * TICK).isEmpty());
+
+        // Agendado depois do salto conta a partir do instante novo
+        roda.agendar(1_000_010 * TICK, registo("a"));
+        executar(roda.avancar(1_000_009 * TICK));
+        assertTrue(disparados.isEmpty());
+        executar(roda.avancar(1_000_010 * TICK));
+        assertEquals(1, disparados.size());
+    }
+}
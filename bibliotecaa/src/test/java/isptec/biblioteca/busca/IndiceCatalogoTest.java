@@ -0,0 +1,325 @@
+package isptec.biblioteca.busca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceCatalogoTest {
+
+    /** Livro mínimo para os testes */
+    static final class LivroTeste {
+        final int id;
+        final String titulo;
+        final List<String> autores;
+        final List<String> categorias;
+        final String editora;
+        final String descricao;
+        final int ano;
+        final boolean disponivel;
+
+        LivroTeste(int id, String titulo, String autor, String categoria, String editora,
+                   String descricao, int ano, boolean disponivel) {
+            this.id = id;
+            this.titulo = titulo;
+            this.autores = autor != null ? Collections.singletonList(autor) : Collections.<String>emptyList();
+            this.categorias = categoria != null ? Collections.singletonList(categoria) : Collections.<String>emptyList();
+            this.editora = editora;
+            this.descricao = descricao;
+            this.ano = ano;
+            this.disponivel = disponivel;
+        }
+
+        LivroTeste(int id, String titulo, String autor) {
+            this(id, titulo, autor, null, null, null, 0, true);
+        }
+
+        @Override
+        public String toString() {
+            return titulo;
+        }
+    }
+
+    static final DescritorLivro<LivroTeste> DESCRITOR = new DescritorLivro<LivroTeste>() {
+        @Override
+        public Comparable<?> id(LivroTeste livro) {
+            return livro.id;
+        }
+
+        @Override
+        public String titulo(LivroTeste livro) {
+            return livro.titulo;
+        }
+
+        @Override
+        public List<String> autores(LivroTeste livro) {
+            return livro.autores;
+        }
+
+        @Override
+        public List<String> categorias(LivroTeste livro) {
+            return livro.categorias;
+        }
+
+        @Override
+        public String editora(LivroTeste livro) {
+            return livro.editora;
+        }
+
+        @Override
+        public String isbn(LivroTeste livro) {
+            return "978-0-" + livro.id;
+        }
+
+        @Override
+        public String descricao(LivroTeste livro) {
+            return livro.descricao;
+        }
+
+        @Override
+        public int ano(LivroTeste livro) {
+            return livro.ano;
+        }
+
+        @Override
+        public boolean disponivel(LivroTeste livro) {
+            return livro.disponivel;
+        }
+    };
+
+    private IndiceCatalogo<LivroTeste> indice;
+
+    @BeforeEach
+    void criarIndice() {
+        indice = new IndiceCatalogo<>(DESCRITOR);
+        indice.indexar(new LivroTeste(1, "Introdução à Programação", "Ana Silva"));
+        indice.indexar(new LivroTeste(2, "Programações Concorrentes em Java", "Bruno Costa"));
+        indice.indexar(new LivroTeste(3, "Memórias Póstumas de Brás Cubas", "Machado de Assis"));
+        indice.indexar(new LivroTeste(4, "Dom Casmurro", "Machado de Assis"));
+        indice.indexar(new LivroTeste(5, "Java Efetivo", "Joshua Bloch"));
+    }
+
+    static List<Integer> ids(List<LivroTeste> livros) {
+        List<Integer> ids = new ArrayList<>();
+        for (LivroTeste livro : livros) {
+            ids.add(livro.id);
+        }
+        return ids;
+    }
+
+    @Test
+    void exigeTodosOsTermos() {
+        // Por ordem de título
+        assertEquals(Arrays.asList(5, 2), ids(indice.buscar("java ", 10)));
+        assertEquals(Arrays.asList(2), ids(indice.buscar("java concorrentes ", 10)));
+        assertTrue(indice.buscar("java machado ", 10).isEmpty());
+    }
+
+    @Test
+    void ignoraAcentosMaiusculasEPlurais() {
+        // "Programações" e "programacao" dão o mesmo termo; resultados por título
+        assertEquals(Arrays.asList(1, 2), ids(indice.buscar("PROGRAMACAO ", 10)));
+        assertEquals(Arrays.asList(3), ids(indice.buscar("memoria bras ", 10)));
+    }
+
+    @Test
+    void ultimaPalavraComoPrefixo() {
+        assertEquals(Arrays.asList(4, 3), ids(indice.buscar("mach", 10)));
+        // Com espaço no fim a palavra tem de ser completa
+        assertTrue(indice.buscar("mach ", 10).isEmpty());
+        // Abaixo do tamanho mínimo do prefixo só conta o termo exato
+        assertTrue(indice.buscar("j", 10).isEmpty());
+    }
+
+    @Test
+    void pesquisaPorCampo() {
+        assertEquals(Arrays.asList(4, 3), ids(indice.buscar("assis ", Campo.AUTOR, 10)));
+        assertTrue(indice.buscar("assis ", Campo.TITULO, 10).isEmpty());
+        assertEquals(Arrays.asList(5), ids(indice.buscar("97805", Campo.ISBN, 10)));
+    }
+
+    @Test
+    void limite() {
+        assertEquals(1, indice.buscar("java ", 1).size());
+        assertThrows(IllegalArgumentException.class, () -> indice.buscar("java ", 0));
+    }
+
+    @Test
+    void reindexarSubstituiOTexto() {
+        long versaoTexto = indice.getVersaoTexto();
+        indice.indexar(new LivroTeste(4, "Quincas Borba", "Machado de Assis"));
+
+        assertTrue(indice.buscar("casmurro ", 10).isEmpty());
+        assertEquals(Arrays.asList(4), ids(indice.buscar("quincas ", 10)));
+        assertEquals(5, indice.getTotalLivros());
+        assertTrue(indice.getVersaoTexto() > versaoTexto);
+    }
+
+    @Test
+    void remover() {
+        indice.remover(5);
+        assertEquals(Arrays.asList(2), ids(indice.buscar("java ", 10)));
+        assertEquals(4, indice.getTotalLivros());
+        // Remover de novo não faz nada
+        indice.remover(5);
+        assertEquals(4, indice.getTotalLivros());
+    }
+
+    @Test
+    void livroSemIdNaoEIndexado() {
+        indice.indexar(new LivroTeste(0, "Rascunho", "Sem Nome"));
+        assertTrue(indice.buscar("rascunho ", 10).isEmpty());
+    }
+
+    @Test
+    void corrigirTermosInexistentes() {
+        assertEquals(Arrays.asList("programacao"), indice.corrigir("Programcão ", 3));
+        assertEquals(Arrays.asList("machado casmurro"), indice.corrigir("machdo casmuro ", 3));
+        // Só se sugerem combinações que encontram livros
+        assertTrue(indice.corrigir("casmuro bloch ", 3).isEmpty());
+        // Nada a corrigir
+        assertTrue(indice.corrigir("dom casmurro ", 3).isEmpty());
+    }
+
+    @Test
+    void corrigirVeLivrosIndexadosDepois() {
+        assertTrue(indice.corrigir("quincs ", 3).isEmpty());
+        indice.indexar(new LivroTeste(6, "Quincas Borba", "Machado de Assis"));
+        assertEquals(Arrays.asList("quinca"), indice.corrigir("quincs ", 3));
+    }
+
+    @Test
+    void compactarDepoisDeMuitasRemocoes() {
+        IndiceCatalogo<LivroTeste> grande = new IndiceCatalogo<>(DESCRITOR);
+        // Termo comum a todos (lista densa) e termos que só alguns têm
+        for (int id = 1; id <= 6000; id++) {
+            grande.indexar(new LivroTeste(id, "Volume " + id + (id % 3 == 0 ? " algoritmos" : ""), "Autor"));
+        }
+        for (int id = 1; id <= 6000; id += 2) {
+            grande.remover(id);
+        }
+        assertEquals(3000, grande.getTotalLivros());
+
+        // Ímpares removidos, múltiplos de 3 com "algoritmos": sobram os múltiplos de 6
+        List<Integer> encontrados = ids(grande.buscar("volume algoritmos ", 10_000));
+        assertEquals(1000, encontrados.size());
+        for (int id : encontrados) {
+            assertEquals(0, id % 6);
+        }
+        assertEquals(Arrays.asList(4242), ids(grande.buscar("4242 ", 10)));
+        assertTrue(grande.buscar("4243 ", 10).isEmpty());
+
+        // O índice continua a aceitar livros depois de compactado
+        grande.indexar(new LivroTeste(7000, "Volume final algoritmos", "Autor"));
+        assertEquals(1001, grande.buscar("volume algoritmos ", 10_000).size());
+    }
+
+    // === PESQUISA RANQUEADA E FACETAS ===
+
+    private static IndiceCatalogo<LivroTeste> catalogoComFacetas() {
+        IndiceCatalogo<LivroTeste> catalogo = new IndiceCatalogo<>(DESCRITOR);
+        catalogo.indexar(new LivroTeste(10, "Redes de Computadores", "Andrew Tanenbaum", "Informática",
+                "Pearson", "Protocolos e arquitetura da internet", 2011, true));
+        catalogo.indexar(new LivroTeste(11, "Sistemas Operativos Modernos", "Andrew Tanenbaum", "Informática",
+                "Pearson", "Processos, memória e redes", 2015, false));
+        catalogo.indexar(new LivroTeste(12, "Cálculo", "James Stewart", "Matemática",
+                "Cengage", "Limites, derivadas e integrais", 2011, true));
+        catalogo.indexar(new LivroTeste(13, "Álgebra Linear", "Gilbert Strang", "Matemática",
+                "Cengage", "Matrizes e espaços vetoriais", 2016, true));
+        return catalogo;
+    }
+
+    private static int contagem(ResultadoPesquisa<LivroTeste> resultado, Faceta faceta, String valor) {
+        for (ContagemFaceta contagem : resultado.getFaceta(faceta)) {
+            if (contagem.getValor().equals(valor)) {
+                return contagem.getContagem();
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    void tituloPesaMaisDoQueDescricao() {
+        ResultadoPesquisa<LivroTeste> resultado = catalogoComFacetas().pesquisar("redes ", 10);
+        assertEquals(2, resultado.getTotal());
+        assertEquals(Arrays.asList(10, 11), ids(resultado.getLivros()));
+        assertTrue(resultado.getPontuacao(0) > resultado.getPontuacao(1));
+    }
+
+    @Test
+    void facetasContamTodoOResultado() {
+        // Limite 1: as facetas contam os dois livros, não só o devolvido
+        ResultadoPesquisa<LivroTeste> resultado = catalogoComFacetas().pesquisar("tanenbaum ", 1);
+        assertEquals(1, resultado.getLivros().size());
+        assertEquals(2, resultado.getTotal());
+        assertEquals(2, contagem(resultado, Faceta.CATEGORIA, "Informática"));
+        assertEquals(0, contagem(resultado, Faceta.CATEGORIA, "Matemática"));
+        assertEquals(1, contagem(resultado, Faceta.ANO_PUBLICACAO, "2011"));
+        assertEquals(1, contagem(resultado, Faceta.DISPONIBILIDADE, IndiceCatalogo.INDISPONIVEL));
+    }
+
+    @Test
+    void consultaVaziaDevolveOCatalogoPorTitulo() {
+        ResultadoPesquisa<LivroTeste> resultado = catalogoComFacetas().pesquisar("", 10);
+        assertEquals(4, resultado.getTotal());
+        assertEquals(Arrays.asList(13, 12, 10, 11), ids(resultado.getLivros()));
+        // Da maior contagem para a menor
+        List<ContagemFaceta> anos = resultado.getFaceta(Faceta.ANO_PUBLICACAO);
+        assertEquals("2011", anos.get(0).getValor());
+        assertEquals(2, anos.get(0).getContagem());
+    }
+
+    @Test
+    void filtrosPorFaceta() {
+        IndiceCatalogo<LivroTeste> catalogo = catalogoComFacetas();
+        Map<Faceta, String> filtros = new EnumMap<>(Faceta.class);
+        filtros.put(Faceta.EDITORA, "cengage");
+        filtros.put(Faceta.ANO_PUBLICACAO, "2011");
+        ResultadoPesquisa<LivroTeste> resultado = catalogo.pesquisar("", 10, filtros);
+        assertEquals(Arrays.asList(12), ids(resultado.getLivros()));
+
+        filtros.put(Faceta.EDITORA, "Inexistente");
+        assertEquals(0, catalogo.pesquisar("", 10, filtros).getTotal());
+    }
+
+    @Test
+    void disponibilidadeSemReindexarOTexto() {
+        IndiceCatalogo<LivroTeste> catalogo = catalogoComFacetas();
+        long versaoTexto = catalogo.getVersaoTexto();
+        long versao = catalogo.getVersao();
+
+        catalogo.atualizarDisponibilidade(new LivroTeste(11, "Sistemas Operativos Modernos", "Andrew Tanenbaum",
+                "Informática", "Pearson", "Processos, memória e redes", 2015, true));
+        ResultadoPesquisa<LivroTeste> resultado = catalogo.pesquisar("", 10);
+        assertEquals(4, contagem(resultado, Faceta.DISPONIBILIDADE, IndiceCatalogo.DISPONIVEL));
+        assertEquals(0, contagem(resultado, Faceta.DISPONIBILIDADE, IndiceCatalogo.INDISPONIVEL));
+        // O índice guarda o objeto novo
+        assertTrue(catalogo.buscar("sistemas ", 10).get(0).disponivel);
+        assertEquals(versaoTexto, catalogo.getVersaoTexto());
+        assertTrue(catalogo.getVersao() > versao);
+
+        catalogo.atualizarDisponibilidade(12, false);
+        Map<Faceta, String> filtros = new EnumMap<>(Faceta.class);
+        filtros.put(Faceta.DISPONIBILIDADE, IndiceCatalogo.INDISPONIVEL);
+        assertEquals(Arrays.asList(12), ids(catalogo.pesquisar("", 10, filtros).getLivros()));
+    }
+
+    @Test
+    void facetasDepoisDeRemover() {
+        IndiceCatalogo<LivroTeste> catalogo = catalogoComFacetas();
+        catalogo.remover(12);
+        catalogo.remover(13);
+        ResultadoPesquisa<LivroTeste> resultado = catalogo.pesquisar("", 10);
+        assertEquals(0, contagem(resultado, Faceta.CATEGORIA, "Matemática"));
+        assertEquals(1, resultado.getFaceta(Faceta.EDITORA).size());
+    }
+}
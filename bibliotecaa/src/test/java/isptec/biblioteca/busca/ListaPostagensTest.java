@@ -0,0 +1,157 @@
+package isptec.biblioteca.busca;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListaPostagensTest {
+
+    private static final int CAMPOS = Campo.values().length;
+
+    /** Lista com documentos espaçados ao acaso, e as frequências de cada um */
+    private static ListaPostagens criar(Random aleatorio, int quantidade, List<Integer> docs, List<int[]> frequencias) {
+        ListaPostagens lista = new ListaPostagens();
+        int doc = -1;
+        for (int i = 0; i < quantidade; i++) {
+            // Diferenças de 1 a 300, para varints de um e de dois bytes
+            doc += 1 + aleatorio.nextInt(300);
+            int[] porCampo = new int[CAMPOS];
+            porCampo[aleatorio.nextInt(CAMPOS)] = 1 + aleatorio.nextInt(200);
+            if (aleatorio.nextBoolean()) {
+                porCampo[aleatorio.nextInt(CAMPOS)] = 1 + aleatorio.nextInt(3);
+            }
+            lista.adicionar(doc, porCampo);
+            docs.add(doc);
+            frequencias.add(porCampo);
+        }
+        return lista;
+    }
+
+    @Test
+    void percorrerDevolveOQueFoiAcrescentado() {
+        List<Integer> docs = new ArrayList<>();
+        List<int[]> frequencias = new ArrayList<>();
+        ListaPostagens lista = criar(new Random(1), 1000, docs, frequencias);
+
+        ListaPostagens.Leitor leitor = lista.leitor();
+        for (int i = 0; i < docs.size(); i++) {
+            assertTrue(leitor.proximo());
+            assertEquals(docs.get(i).intValue(), leitor.doc());
+            assertArrayEquals(frequencias.get(i), leitor.frequencias());
+            int mascara = 0;
+            for (Campo campo : Campo.values()) {
+                if (frequencias.get(i)[campo.ordinal()] > 0) {
+                    mascara |= campo.bit();
+                }
+                assertEquals(frequencias.get(i)[campo.ordinal()], leitor.frequencia(campo));
+            }
+            assertEquals(mascara, leitor.mascara());
+        }
+        assertFalse(leitor.proximo());
+        assertEquals(1000, lista.getQuantidade());
+        assertEquals(docs.get(docs.size() - 1).intValue(), lista.getUltimoDoc());
+    }
+
+    @Test
+    void avancarParaComSaltos() {
+        List<Integer> docs = new ArrayList<>();
+        List<int[]> frequencias = new ArrayList<>();
+        ListaPostagens lista = criar(new Random(2), 5 * ListaPostagens.INTERVALO_SALTOS + 7, docs, frequencias);
+        int ultimo = docs.get(docs.size() - 1);
+
+        // Cada alvo com um leitor novo: salta a partir do início
+        for (int alvo = 0; alvo <= ultimo + 1; alvo += 37) {
+            ListaPostagens.Leitor leitor = lista.leitor();
+            Integer esperado = primeiroMaiorOuIgual(docs, alvo);
+            assertEquals(esperado != null, leitor.avancarPara(alvo), "alvo " + alvo);
+            if (esperado != null) {
+                assertEquals(esperado.intValue(), leitor.doc(), "alvo " + alvo);
+            }
+        }
+
+        // Alvos crescentes no mesmo leitor, misturados com proximo()
+        ListaPostagens.Leitor leitor = lista.leitor();
+        Random aleatorio = new Random(3);
+        int alvo = 0;
+        while (true) {
+            alvo += aleatorio.nextInt(2000);
+            Integer esperado = primeiroMaiorOuIgual(docs, alvo);
+            if (esperado == null) {
+                assertFalse(leitor.avancarPara(alvo));
+                break;
+            }
+            assertTrue(leitor.avancarPara(alvo));
+            assertEquals(esperado.intValue(), leitor.doc());
+            // As frequências continuam certas depois de um salto
+            assertArrayEquals(frequencias.get(docs.indexOf(esperado)), leitor.frequencias());
+            if (leitor.proximo()) {
+                assertEquals(docs.get(docs.indexOf(esperado) + 1).intValue(), leitor.doc());
+                alvo = leitor.doc();
+            } else {
+                break;
+            }
+        }
+    }
+
+    @Test
+    void alvoJaUltrapassadoNaoRecua() {
+        ListaPostagens lista = new ListaPostagens();
+        int[] frequencias = new int[CAMPOS];
+        frequencias[0] = 1;
+        for (int doc = 0; doc < 200; doc += 2) {
+            lista.adicionar(doc, frequencias);
+        }
+        ListaPostagens.Leitor leitor = lista.leitor();
+        assertTrue(leitor.avancarPara(151));
+        assertEquals(152, leitor.doc());
+        assertTrue(leitor.avancarPara(10));
+        assertEquals(152, leitor.doc());
+        assertFalse(leitor.avancarPara(199));
+        assertFalse(leitor.avancarPara(500));
+    }
+
+    @Test
+    void documentoForaDeOrdem() {
+        ListaPostagens lista = new ListaPostagens();
+        int[] frequencias = new int[CAMPOS];
+        frequencias[0] = 1;
+        lista.adicionar(5, frequencias);
+        assertThrows(IllegalArgumentException.class, () -> lista.adicionar(5, frequencias));
+        assertThrows(IllegalArgumentException.class, () -> lista.adicionar(3, frequencias));
+    }
+
+    @Test
+    void listaDensa() {
+        List<Integer> docs = new ArrayList<>();
+        ListaPostagens lista = criar(new Random(4), 300, docs, new ArrayList<>());
+        lista.tornarDensa();
+        assertTrue(lista.isDensa());
+
+        int[] frequencias = new int[CAMPOS];
+        frequencias[1] = 2;
+        int novo = lista.getUltimoDoc() + 5000;
+        lista.adicionar(novo, frequencias);
+        docs.add(novo);
+
+        for (int doc = 0; doc <= novo + 100; doc++) {
+            assertEquals(docs.contains(doc), lista.contem(doc), "documento " + doc);
+        }
+    }
+
+    private static Integer primeiroMaiorOuIgual(List<Integer> docs, int alvo) {
+        for (int doc : docs) {
+            if (doc >= alvo) {
+                return doc;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+package isptec.biblioteca.busca;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapaBitsTest {
+
+    /** Números ao acaso até ao limite, com a probabilidade indicada */
+    private static BitSet aoAcaso(Random aleatorio, int limite, double probabilidade) {
+        BitSet bits = new BitSet(limite);
+        for (int i = 0; i < limite; i++) {
+            if (aleatorio.nextDouble() < probabilidade) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    private static int[] ordenados(BitSet bits) {
+        return bits.stream().toArray();
+    }
+
+    private static void verificar(BitSet esperado, MapaBits mapa) {
+        assertEquals(esperado.cardinality(), mapa.getCardinalidade());
+        assertArrayEquals(ordenados(esperado), mapa.paraArray());
+    }
+
+    @Test
+    void adicionarERemoverComoUmBitSet() {
+        Random aleatorio = new Random(1);
+        BitSet esperado = new BitSet();
+        MapaBits mapa = new MapaBits();
+        // Três grupos de 16 bits; o do meio passa de vetor a mapa de bits e volta
+        for (int i = 0; i < 20_000; i++) {
+            int valor = (1 << 16) + aleatorio.nextInt(1 << 16);
+            if (i % 7 == 0) {
+                valor = aleatorio.nextInt(3 << 16);
+            }
+            esperado.set(valor);
+            mapa.adicionar(valor);
+        }
+        verificar(esperado, mapa);
+
+        for (int i = 0; i < 60_000; i++) {
+            int valor = aleatorio.nextInt(3 << 16);
+            esperado.clear(valor);
+            mapa.remover(valor);
+        }
+        verificar(esperado, mapa);
+        // Esvaziar quase todo o grupo do meio devolve-o a vetor
+        for (int valor = 1 << 16; valor < 2 << 16; valor++) {
+            if (valor % 20 != 0) {
+                esperado.clear(valor);
+                mapa.remover(valor);
+            }
+        }
+        verificar(esperado, mapa);
+        for (int valor = 0; valor < 3 << 16; valor += 13) {
+            assertEquals(esperado.get(valor), mapa.contem(valor));
+        }
+    }
+
+    @Test
+    void repetidosEAusentesNaoMudamACardinalidade() {
+        MapaBits mapa = new MapaBits();
+        mapa.adicionar(5);
+        mapa.adicionar(5);
+        mapa.remover(6);
+        mapa.remover(1 << 20);
+        assertEquals(1, mapa.getCardinalidade());
+        mapa.remover(5);
+        assertTrue(mapa.isVazio());
+        assertFalse(mapa.contem(5));
+        assertEquals(0, mapa.paraArray().length);
+    }
+
+    @Test
+    void deOrdenados() {
+        BitSet bits = aoAcaso(new Random(2), 5 << 16, 0.05);
+        verificar(bits, MapaBits.deOrdenados(ordenados(bits)));
+        // Com o limite baixo os grupos ficam logo em mapa de bits
+        MapaBits densos = MapaBits.deOrdenados(ordenados(bits), 16);
+        verificar(bits, densos);
+        for (int valor = 0; valor < 5 << 16; valor += 11) {
+            assertEquals(bits.get(valor), densos.contem(valor));
+        }
+    }
+
+    @Test
+    void cardinalidadeDaIntersecao() {
+        Random aleatorio = new Random(3);
+        int limite = 3 << 16;
+        // Esparso (vetores pequenos), médio (vetores grandes) e denso (mapas de bits)
+        double[] densidades = {0.0005, 0.03, 0.4};
+        BitSet[] conjuntos = new BitSet[densidades.length];
+        MapaBits[] mapas = new MapaBits[densidades.length];
+        for (int i = 0; i < densidades.length; i++) {
+            conjuntos[i] = aoAcaso(aleatorio, limite, densidades[i]);
+            mapas[i] = MapaBits.deOrdenados(ordenados(conjuntos[i]));
+        }
+        for (int i = 0; i < mapas.length; i++) {
+            for (int j = 0; j < mapas.length; j++) {
+                BitSet comum = (BitSet) conjuntos[i].clone();
+                comum.and(conjuntos[j]);
+                assertEquals(comum.cardinality(), mapas[i].cardinalidadeE(mapas[j]), i + " e " + j);
+            }
+        }
+    }
+
+    @Test
+    void intersecaoComGruposSoNumLado() {
+        MapaBits a = MapaBits.deOrdenados(new int[] {1, 2, 3, 70_000, 200_000});
+        MapaBits b = MapaBits.deOrdenados(new int[] {3, 140_000, 200_000, 300_000});
+        assertEquals(2, a.cardinalidadeE(b));
+        assertEquals(2, b.cardinalidadeE(a));
+        assertEquals(0, a.cardinalidadeE(new MapaBits()));
+    }
+}
@@ -0,0 +1,116 @@
+package isptec.biblioteca.busca;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VocabularioDifusoTest {
+
+    private static VocabularioDifuso vocabulario(String... termos) {
+        String[] ordenados = new TreeSet<>(Arrays.asList(termos)).toArray(new String[0]);
+        int[] frequencias = new int[ordenados.length];
+        Arrays.fill(frequencias, 1);
+        return new VocabularioDifuso(ordenados, frequencias);
+    }
+
+    private static List<String> termos(List<VocabularioDifuso.Semelhante> semelhantes) {
+        List<String> termos = new ArrayList<>();
+        for (VocabularioDifuso.Semelhante semelhante : semelhantes) {
+            termos.add(semelhante.termo);
+        }
+        return termos;
+    }
+
+    /** Distância de edição com transposição de vizinhas, por força bruta */
+    private static int distancia(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int custo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + custo);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    @Test
+    void operacoesDeEdicao() {
+        VocabularioDifuso vocabulario = vocabulario("programacao", "algoritmo", "memoria", "redes", "rede");
+        // Troca, remoção, inserção e transposição
+        assertEquals(Arrays.asList("memoria"), termos(vocabulario.semelhantes("memorja", 1, 5)));
+        assertEquals(Arrays.asList("algoritmo"), termos(vocabulario.semelhantes("algoritm", 1, 5)));
+        assertEquals(Arrays.asList("algoritmo"), termos(vocabulario.semelhantes("allgoritmo", 1, 5)));
+        assertEquals(Arrays.asList("programacao"), termos(vocabulario.semelhantes("porgramacao", 1, 5)));
+        assertTrue(vocabulario.semelhantes("xyzxyz", 2, 5).isEmpty());
+    }
+
+    @Test
+    void maisProximosEMaisFrequentesPrimeiro() {
+        String[] termos = {"casa", "caso", "cato", "coisa"};
+        int[] frequencias = {3, 10, 50, 7};
+        VocabularioDifuso vocabulario = new VocabularioDifuso(termos, frequencias);
+
+        List<VocabularioDifuso.Semelhante> semelhantes = vocabulario.semelhantes("casa", 2, 10);
+        // O próprio termo, depois à distância 1 por frequência, depois à distância 2
+        assertEquals(Arrays.asList("casa", "caso", "cato", "coisa"), termos(semelhantes));
+        assertEquals(0, semelhantes.get(0).distancia);
+        assertEquals(10, semelhantes.get(1).frequencia);
+        assertEquals(2, semelhantes.get(2).distancia);
+
+        assertEquals(Arrays.asList("casa", "caso"), termos(vocabulario.semelhantes("casa", 2, 2)));
+    }
+
+    @Test
+    void igualAForcaBruta() {
+        // Vocabulário com muitos prefixos partilhados, para exercitar os saltos
+        Random aleatorio = new Random(7);
+        char[] alfabeto = {'a', 'b', 'c', 'd'};
+        TreeSet<String> conjunto = new TreeSet<>();
+        while (conjunto.size() < 3000) {
+            StringBuilder termo = new StringBuilder();
+            int comprimento = 1 + aleatorio.nextInt(9);
+            for (int k = 0; k < comprimento; k++) {
+                termo.append(alfabeto[aleatorio.nextInt(alfabeto.length)]);
+            }
+            conjunto.add(termo.toString());
+        }
+        String[] termos = conjunto.toArray(new String[0]);
+        VocabularioDifuso vocabulario = vocabulario(termos);
+
+        for (int n = 0; n < 200; n++) {
+            String pedido = termos[aleatorio.nextInt(termos.length)];
+            if (aleatorio.nextBoolean()) {
+                pedido = pedido + alfabeto[aleatorio.nextInt(alfabeto.length)];
+            }
+            for (int maxima = 1; maxima <= 2; maxima++) {
+                TreeSet<String> esperados = new TreeSet<>();
+                for (String termo : termos) {
+                    if (distancia(pedido, termo) <= maxima) {
+                        esperados.add(termo);
+                    }
+                }
+                List<VocabularioDifuso.Semelhante> encontrados = vocabulario.semelhantes(pedido, maxima, Integer.MAX_VALUE);
+                assertEquals(esperados, new TreeSet<>(termos(encontrados)), pedido + " a " + maxima);
+                for (VocabularioDifuso.Semelhante semelhante : encontrados) {
+                    assertEquals(distancia(pedido, semelhante.termo), semelhante.distancia);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package isptec.biblioteca.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheConsultasTest {
+
+    private static final CacheConsultas.Tipo<int[]> NUMEROS = new CacheConsultas.Tipo<>(int[]::clone, n -> 8L * n.length);
+    private static final Object[] SEM_PARAMETROS = new Object[0];
+    private static final PreparedStatement INSTRUCAO_FALSA = (PreparedStatement) Proxy.newProxyInstance(
+            CacheConsultasTest.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+            (proxy, metodo, args) -> metodo.getName().equals("executeUpdate") ? 1 : null);
+
+    private final CacheConsultas cache = CacheConsultas.getInstance();
+    private final AtomicInteger carregamentos = new AtomicInteger();
+
+    @BeforeEach
+    void ativar() {
+        cache.configurar(1 << 20, 0);
+        cache.limpar();
+    }
+
+    @AfterEach
+    void desativar() {
+        cache.configurar(0, 0);
+    }
+
+    private List<int[]> listar(String sql, Object... parametros) throws SQLException {
+        return cache.listar(NUMEROS, sql, parametros, () -> {
+            carregamentos.incrementAndGet();
+            return new ArrayList<>(Collections.singletonList(new int[] {carregamentos.get()}));
+        });
+    }
+
+    @Test
+    void segundoPedidoVemDaCache() throws SQLException {
+        listar("SELECT * FROM livro WHERE id = ?", 1);
+        listar("SELECT *   FROM livro\n WHERE id = ?", 1);
+        assertEquals(1, carregamentos.get());
+        // Parâmetros diferentes são outra entrada
+        listar("SELECT * FROM livro WHERE id = ?", 2);
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void quemRecebeAListaPodeAlterala() throws SQLException {
+        List<int[]> primeira = listar("SELECT * FROM livro");
+        primeira.get(0)[0] = 99;
+        primeira.clear();
+        List<int[]> segunda = listar("SELECT * FROM livro");
+        assertEquals(1, segunda.size());
+        assertArrayEquals(new int[] {1}, segunda.get(0));
+    }
+
+    @Test
+    void escritaInvalidaSoAsTabelasLidas() throws SQLException {
+        listar("SELECT * FROM livro l JOIN livro_autor la ON la.livro_id = l.id");
+        listar("SELECT * FROM autor");
+        cache.invalidar(Collections.singletonList("livro_autor"));
+
+        listar("SELECT * FROM livro l JOIN livro_autor la ON la.livro_id = l.id");
+        listar("SELECT * FROM autor");
+        assertEquals(3, carregamentos.get());
+    }
+
+    @Test
+    void vistasETabelasDeclaradas() throws SQLException {
+        listar("SELECT * FROM view_emprestimos_ativos");
+        cache.invalidar(Collections.singletonList("pessoa"));
+        listar("SELECT * FROM view_emprestimos_ativos");
+        assertEquals(2, carregamentos.get());
+
+        CacheConsultas.Tipo<int[]> comAutores = new CacheConsultas.Tipo<>(int[]::clone, n -> 8, "autor");
+        cache.listar(comAutores, "SELECT * FROM livro", SEM_PARAMETROS, () -> {
+            carregamentos.incrementAndGet();
+            return new ArrayList<>();
+        });
+        cache.invalidar(Collections.singletonList("autor"));
+        cache.listar(comAutores, "SELECT * FROM livro", SEM_PARAMETROS, () -> {
+            carregamentos.incrementAndGet();
+            return new ArrayList<>();
+        });
+        assertEquals(4, carregamentos.get());
+    }
+
+    @Test
+    void efeitosEmCascata() throws SQLException {
+        listar("SELECT * FROM estudante");
+        // Apagar uma pessoa apaga o estudante (ON DELETE CASCADE)
+        cache.invalidar(Collections.singletonList("pessoa"));
+        listar("SELECT * FROM estudante");
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void resultadoLidoDuranteUmaEscritaNaoEGuardado() throws SQLException {
+        cache.listar(NUMEROS, "SELECT * FROM livro", SEM_PARAMETROS, () -> {
+            carregamentos.incrementAndGet();
+            // Outra conexão escreve enquanto esta lê
+            cache.invalidar(Collections.singletonList("livro"));
+            return new ArrayList<>();
+        });
+        listar("SELECT * FROM livro");
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void contar() throws SQLException {
+        assertEquals(42, cache.contar("SELECT COUNT(*) FROM membro", SEM_PARAMETROS, () -> {
+            carregamentos.incrementAndGet();
+            return 42L;
+        }));
+        assertEquals(42, cache.contar("SELECT COUNT(*) FROM membro", SEM_PARAMETROS, () -> {
+            carregamentos.incrementAndGet();
+            return 0L;
+        }));
+        assertEquals(1, carregamentos.get());
+    }
+
+    @Test
+    void orcamentoDeMemoria() throws SQLException {
+        cache.configurar(64 * 1024, 0);
+        for (int i = 0; i < 1000; i++) {
+            listar("SELECT * FROM livro WHERE id = ?", i);
+            assertTrue(cache.getBytes() <= 64 * 1024);
+        }
+        assertTrue(cache.getRemocoes() > 0);
+        // As mais recentes ficam
+        int antes = carregamentos.get();
+        listar("SELECT * FROM livro WHERE id = ?", 999);
+        assertEquals(antes, carregamentos.get());
+    }
+
+    @Test
+    void desativadaVaiSempreAoBanco() throws SQLException {
+        cache.configurar(0, 0);
+        assertFalse(cache.isAtivo());
+        listar("SELECT * FROM livro");
+        listar("SELECT * FROM livro");
+        assertEquals(2, carregamentos.get());
+    }
+
+    @Test
+    void tabelasEscritas() {
+        assertEquals(set("livro"), CacheConsultas.tabelasEscritas("INSERT INTO livro (titulo) VALUES (?)"));
+        assertEquals(set("emprestimo", "livro"), CacheConsultas.tabelasEscritas(
+                "UPDATE emprestimo e JOIN livro l ON l.id = e.livro_id SET e.estado = ?"));
+        assertEquals(set("reserva"), CacheConsultas.tabelasEscritas("  delete from `reserva` where id = ?"));
+        assertEquals(set("livro", "emprestimo"), CacheConsultas.tabelasEscritas("{CALL sp_realizar_emprestimo(?, ?)}"));
+        // Procedimento desconhecido: pode ter escrito em qualquer tabela
+        assertEquals(set("*"), CacheConsultas.tabelasEscritas("CALL sp_novo()"));
+        assertTrue(CacheConsultas.tabelasEscritas("SELECT * FROM livro").isEmpty());
+        assertTrue(CacheConsultas.tabelasEscritas(null).isEmpty());
+    }
+
+    @Test
+    void conexaoVigiadaInvalidaAoExecutar() throws SQLException {
+        listar("SELECT * FROM livro");
+        listar("SELECT * FROM autor");
+
+        Connection conexao = cache.vigiar(conexaoFalsa());
+        PreparedStatement instrucao = conexao.prepareStatement("UPDATE livro SET titulo = ? WHERE id = ?");
+        instrucao.executeUpdate();
+        conexao.commit();
+
+        listar("SELECT * FROM livro");
+        listar("SELECT * FROM autor");
+        assertEquals(3, carregamentos.get());
+        // Leituras passam sem embrulho
+        assertSame(INSTRUCAO_FALSA, conexao.prepareStatement("SELECT 1"));
+    }
+
+    @Test
+    void semCacheAConexaoNaoEEmbrulhada() {
+        cache.configurar(0, 0);
+        Connection conexao = conexaoFalsa();
+        assertSame(conexao, cache.vigiar(conexao));
+    }
+
+    @Test
+    void ouvintesVeemEscritasMesmoSemCache() throws SQLException {
+        cache.configurar(0, 0);
+        List<Set<String>> vistas = new ArrayList<>();
+        Consumer<Set<String>> ouvinte = vistas::add;
+        cache.aoEscrever(ouvinte);
+        try {
+            Connection conexao = cache.vigiar(conexaoFalsa());
+            conexao.prepareStatement("UPDATE pessoa SET nome = ? WHERE id = ?").executeUpdate();
+            // Com as tabelas em cascata
+            assertTrue(vistas.get(0).containsAll(set("pessoa", "membro", "estudante")));
+            conexao.prepareStatement("CALL sp_inexistente(?)").executeUpdate();
+            assertTrue(vistas.get(vistas.size() - 1).contains("*"));
+        } finally {
+            cache.removerOuvinte(ouvinte);
+        }
+        assertSame(INSTRUCAO_FALSA, cache.vigiar(conexaoFalsa()).prepareStatement("UPDATE livro SET id = 1"));
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static HashSet<String> set(String... tabelas) {
+        return new HashSet<>(Arrays.asList(tabelas));
+    }
+
+    /** Conexão sem banco: as instruções executam sem fazer nada */
+    private static Connection conexaoFalsa() {
+        return (Connection) Proxy.newProxyInstance(
+                CacheConsultasTest.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, metodo, args) -> metodo.getName().startsWith("prepare") ? INSTRUCAO_FALSA : null);
+    }
+}
@@ -0,0 +1,166 @@
+package isptec.biblioteca.diario;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DiarioCirculacaoTest {
+
+    // Cabeçalho (tamanho e CRC) mais a operação
+    private static final int TAMANHO_REGISTO = 8 + OperacaoCirculacao.TAMANHO;
+    // Três registos por segmento, mais a marca de fim
+    private static final int SEGMENTO_PEQUENO = 3 * TAMANHO_REGISTO + 4;
+    private static final LocalDate HOJE = LocalDate.of(2024, 3, 15);
+
+    @TempDir
+    Path diretorio;
+
+    private static OperacaoCirculacao emprestimo(int i) {
+        return OperacaoCirculacao.emprestimo(1000 + i, 10 + i, 20 + i, HOJE, HOJE.plusDays(14));
+    }
+
+    private static List<Long> chaves(List<OperacaoCirculacao> operacoes) {
+        List<Long> chaves = new ArrayList<>();
+        for (OperacaoCirculacao operacao : operacoes) {
+            chaves.add(operacao.getChave());
+        }
+        return chaves;
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            List<Path> lista = new ArrayList<>();
+            arquivos.filter(p -> p.getFileName().toString().startsWith("diario-")).sorted().forEach(lista::add);
+            return lista;
+        }
+    }
+
+    @Test
+    void reabrirReleAsMesmasOperacoes() throws IOException {
+        List<OperacaoCirculacao> registadas = new ArrayList<>();
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio)) {
+            registadas.add(diario.registar(emprestimo(1)));
+            registadas.add(diario.registar(OperacaoCirculacao.renovacao(1001, 0, 11, 21, HOJE.plusDays(28), 1)));
+            registadas.add(diario.registar(OperacaoCirculacao.devolucao(1001, 0, 11, 21, HOJE.plusDays(30), 150.0)));
+        }
+
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio)) {
+            List<OperacaoCirculacao> lidas = diario.lerApos(0);
+            assertEquals(3, lidas.size());
+            for (int i = 0; i < 3; i++) {
+                OperacaoCirculacao esperada = registadas.get(i);
+                OperacaoCirculacao lida = lidas.get(i);
+                assertEquals(i + 1, lida.getSequencia());
+                assertEquals(esperada.getTipo(), lida.getTipo());
+                assertEquals(esperada.getChave(), lida.getChave());
+                assertEquals(esperada.getLivroId(), lida.getLivroId());
+                assertEquals(esperada.getMembroId(), lida.getMembroId());
+                assertEquals(esperada.getData(), lida.getData());
+                assertEquals(esperada.getDataPrevista(), lida.getDataPrevista());
+                assertEquals(esperada.getNumeroRenovacoes(), lida.getNumeroRenovacoes());
+                assertEquals(esperada.getValorMulta(), lida.getValorMulta());
+            }
+            assertEquals(3, diario.getUltimaSequencia());
+        }
+    }
+
+    @Test
+    void recuperarVariasVezesNaoDuplica() throws IOException {
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, SEGMENTO_PEQUENO)) {
+            for (int i = 1; i <= 7; i++) {
+                diario.registar(emprestimo(i));
+            }
+        }
+        List<Long> primeira;
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, SEGMENTO_PEQUENO)) {
+            primeira = chaves(diario.lerApos(0));
+        }
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, SEGMENTO_PEQUENO)) {
+            assertEquals(primeira, chaves(diario.lerApos(0)));
+            assertEquals(7, diario.getUltimaSequencia());
+            // Só o que está acima da marca aplicada volta a ser entregue
+            assertEquals(List.of(1006L, 1007L), chaves(diario.lerApos(5)));
+
+            // A numeração continua depois de reabrir
+            assertEquals(8, diario.registar(emprestimo(8)).getSequencia());
+        }
+        assertEquals(7, primeira.size());
+        assertEquals(3, segmentos().size());
+    }
+
+    @Test
+    void escritaInterrompidaEDescartada() throws IOException {
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, 1024)) {
+            diario.registar(emprestimo(1));
+            diario.registar(emprestimo(2));
+        }
+        // Estraga o conteúdo do segundo registo: o CRC deixa de bater
+        try (FileChannel canal = FileChannel.open(segmentos().get(0), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), TAMANHO_REGISTO + 20);
+        }
+
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, 1024)) {
+            assertEquals(List.of(1001L), chaves(diario.lerApos(0)));
+            assertEquals(2, diario.registar(emprestimo(3)).getSequencia());
+        }
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, 1024)) {
+            assertEquals(List.of(1001L, 1003L), chaves(diario.lerApos(0)));
+        }
+    }
+
+    @Test
+    void descartarApagaSoSegmentosAplicados() throws IOException {
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, SEGMENTO_PEQUENO)) {
+            for (int i = 1; i <= 7; i++) {
+                diario.registar(emprestimo(i));
+            }
+            diario.descartarAte(4);
+            // 1-3 apagado; 4-6 ainda tem operações por aplicar
+            assertEquals(2, segmentos().size());
+            assertEquals(List.of(1005L, 1006L, 1007L), chaves(diario.lerApos(4)));
+
+            diario.descartarAte(7);
+            // O segmento atual fica sempre
+            assertEquals(1, segmentos().size());
+        }
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio, SEGMENTO_PEQUENO)) {
+            assertEquals(7, diario.getUltimaSequencia());
+            assertEquals(List.of(1007L), chaves(diario.lerApos(6)));
+        }
+    }
+
+    @Test
+    void avancarParaAMarcaDoBanco() throws IOException {
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio)) {
+            diario.avancarPara(41);
+            assertEquals(42, diario.registar(emprestimo(1)).getSequencia());
+            // Marca mais antiga não faz recuar
+            diario.avancarPara(10);
+            assertEquals(43, diario.registar(emprestimo(2)).getSequencia());
+        }
+        try (DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio)) {
+            assertEquals(43, diario.getUltimaSequencia());
+            assertEquals(List.of(1001L, 1002L), chaves(diario.lerApos(41)));
+        }
+    }
+
+    @Test
+    void fechadoRecusaRegistos() throws IOException {
+        DiarioCirculacao diario = DiarioCirculacao.abrir(diretorio);
+        diario.close();
+        assertThrows(IllegalStateException.class, () -> diario.registar(emprestimo(1)));
+    }
+}
@@ -0,0 +1,80 @@
+package isptec.biblioteca.service;
+
+import isptec.biblioteca.model.Livro;
+import isptec.biblioteca.repository.Slice;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstantaneoBibliotecaTest {
+
+    @Test
+    void fatiasPercorremTodosOsLivrosPorOrdem() {
+        InstantaneoBiblioteca versao = comLivros(250);
+
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int fatias = 0;
+        do {
+            Slice<Livro> fatia = versao.getLivros(cursor, 100);
+            fatia.getConteudo().forEach(livro -> ids.add(livro.getId()));
+            cursor = fatia.getProximoCursor();
+            fatias++;
+        } while (cursor != null);
+
+        assertEquals(3, fatias);
+        assertEquals(250, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals("L" + i, ids.get(i));
+        }
+    }
+
+    @Test
+    void versaoListadaNaoMudaEntrePaginas() {
+        InstantaneoBiblioteca versao = comLivros(10);
+        Slice<Livro> primeira = versao.getLivros(null, 4);
+
+        // Uma escrita publica outra versão; a paginada fica igual
+        versao.editar().removerLivro("L0").publicar();
+
+        Slice<Livro> segunda = versao.getLivros(primeira.getProximoCursor(), 4);
+        assertEquals("L4", segunda.getConteudo().get(0).getId());
+    }
+
+    @Test
+    void ultimaFatiaExataNaoTemSeguinte() {
+        InstantaneoBiblioteca versao = comLivros(4);
+        Slice<Livro> fatia = versao.getLivros(null, 4);
+        assertEquals(4, fatia.getTamanho());
+        assertNull(fatia.getProximoCursor());
+        assertTrue(InstantaneoBiblioteca.vazio().getLivros(null, 10).isVazia());
+    }
+
+    @Test
+    void cursorInvalido() {
+        InstantaneoBiblioteca versao = comLivros(4);
+        assertThrows(IllegalArgumentException.class, () -> versao.getLivros("???", 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> versao.getLivros(comLivros(20).getLivros(null, 10).getProximoCursor(), 2));
+        assertThrows(IllegalArgumentException.class, () -> versao.getLivros(null, 0));
+        assertFalse(versao.getLivros(null, 2).getConteudo().isEmpty());
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private static InstantaneoBiblioteca comLivros(int quantidade) {
+        InstantaneoBiblioteca.Edicao edicao = InstantaneoBiblioteca.vazio().editar();
+        for (int i = 0; i < quantidade; i++) {
+            edicao.inserirLivro(new Livro("L" + i, "Livro " + i, "Autor", "isbn" + i, "Editora",
+                    2000, "Romance", 1, ""));
+        }
+        return edicao.publicar();
+    }
+}
@@ -0,0 +1,154 @@
+package isptec.biblioteca.service.impl;
+
+import isptec.biblioteca.model.entities.Emprestimo;
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.model.entities.Membro;
+import isptec.biblioteca.repository.LivroRepository;
+import isptec.biblioteca.repository.impl.LivroRepositoryCache;
+import isptec.biblioteca.util.CacheLimitado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Empréstimos com livros lidos pelo {@link LivroServiceImpl} sobre a cache de
+ * entidades, que devolve uma cópia nova a cada leitura (como na API).
+ */
+class EmprestimoServiceImplTest {
+
+    private static final int BALCOES = 16;
+
+    private final EmprestimoServiceImpl servico = new EmprestimoServiceImpl();
+    private LivroServiceImpl livros;
+
+    @BeforeEach
+    void criarCatalogo() {
+        livros = catalogo(id -> new Livro(id, "Livro " + id, "isbn-" + id, "Editora", id, null, null));
+    }
+
+    @Test
+    void exemplarUnicoEmprestadoUmaVezEntreBalcoes() throws InterruptedException {
+        int emprestados = emprestarEmParalelo(1, id -> new Membro(id, "Membro " + id, id + "@isptec.co.ao", "M" + id));
+
+        assertEquals(1, emprestados);
+        assertEquals(1, servico.listarEmprestimosAtivos().size());
+        assertFalse(servico.listarEmprestimosAtivos().get(0).getLivro().estaDisponivel());
+    }
+
+    @Test
+    void exemplaresEsgotadosNaoSaoEmprestados() throws InterruptedException {
+        int emprestados = emprestarEmParalelo(3, id -> new Membro(id, "Membro " + id, id + "@isptec.co.ao", "M" + id));
+
+        assertEquals(3, emprestados);
+        Livro livro = servico.listarEmprestimosAtivos().get(0).getLivro();
+        assertEquals(0, livro.getQuantidadeDisponivel());
+        for (Emprestimo emprestimo : servico.listarEmprestimosAtivos()) {
+            assertSame(livro, emprestimo.getLivro());
+        }
+    }
+
+    @Test
+    void copiasDoMesmoMembroRespeitamLimite() throws InterruptedException {
+        // Cada balcão traz a sua cópia do membro 7
+        int emprestados = emprestarEmParalelo(BALCOES, id -> new Membro(7, "Membro 7", "7@isptec.co.ao", "M7"));
+
+        assertEquals(Membro.MAX_EMPRESTIMOS_ATIVOS, emprestados);
+        assertEquals(Membro.MAX_EMPRESTIMOS_ATIVOS, servico.contarEmprestimosAtivos());
+    }
+
+    @Test
+    void devolucaoLibertaExemplarCanonico() {
+        Emprestimo emprestimo = servico.realizarEmprestimo(membro(1), livros.buscarLivroPorId(1));
+        assertNotNull(emprestimo);
+        assertNull(servico.realizarEmprestimo(membro(2), livros.buscarLivroPorId(1)));
+
+        servico.devolverLivro(emprestimo.getId());
+
+        assertTrue(emprestimo.getLivro().estaDisponivel());
+        assertNotNull(servico.realizarEmprestimo(membro(2), livros.buscarLivroPorId(1)));
+    }
+
+    @Test
+    void bloqueioVemDaCopiaMaisRecente() {
+        assertNotNull(servico.realizarEmprestimo(membro(1), livros.buscarLivroPorId(5)));
+
+        Membro bloqueado = membro(1);
+        bloqueado.setBloqueado(true);
+        assertNull(servico.realizarEmprestimo(bloqueado, livros.buscarLivroPorId(5)));
+        assertNotNull(servico.realizarEmprestimo(membro(1), livros.buscarLivroPorId(5)));
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Vários balcões emprestam ao mesmo tempo o livro com esse ID (e
+     * exemplares), cada um com a sua leitura do serviço de livros.
+     *
+     * @return número de empréstimos feitos
+     */
+    private int emprestarEmParalelo(int livroId, IntFunction<Membro> membros) throws InterruptedException {
+        CountDownLatch partida = new CountDownLatch(1);
+        AtomicInteger emprestados = new AtomicInteger();
+        List<Thread> balcoes = new ArrayList<>();
+        for (int i = 1; i <= BALCOES; i++) {
+            int balcao = i;
+            balcoes.add(Thread.ofPlatform().start(() -> {
+                Membro membro = membros.apply(balcao);
+                Livro livro = livros.buscarLivroPorId(livroId);
+                try {
+                    partida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (servico.realizarEmprestimo(membro, livro) != null) {
+                    emprestados.incrementAndGet();
+                }
+            }));
+        }
+        partida.countDown();
+        for (Thread balcao : balcoes) {
+            balcao.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        return emprestados.get();
+    }
+
+    private static Membro membro(int id) {
+        return new Membro(id, "Membro " + id, id + "@isptec.co.ao", "M" + id);
+    }
+
+    /**
+     * Serviço de livros sobre a cache de entidades e um repositório falso
+     * que lê cada livro de novo a cada pedido.
+     */
+    private static LivroServiceImpl catalogo(IntFunction<Livro> banco) {
+        LivroRepository origem = (LivroRepository) Proxy.newProxyInstance(
+                EmprestimoServiceImplTest.class.getClassLoader(), new Class<?>[] {LivroRepository.class},
+                (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "findById":
+                            return Optional.of(banco.apply((Integer) args[0]));
+                        case "forEach":
+                            return false;
+                        default:
+                            throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+        return new LivroServiceImpl(new LivroRepositoryCache(origem,
+                new CacheLimitado<>(100, 1, TimeUnit.HOURS, Livro::new)));
+    }
+}
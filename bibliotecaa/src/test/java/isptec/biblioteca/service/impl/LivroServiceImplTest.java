@@ -0,0 +1,72 @@
+package isptec.biblioteca.service.impl;
+
+import isptec.biblioteca.model.entities.Livro;
+import isptec.biblioteca.repository.LivroRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LivroServiceImplTest {
+
+    /** Livros "gravados" por fora do serviço (como a importação de catálogo) */
+    private final List<Livro> banco = new ArrayList<>();
+
+    @Test
+    void livrosImportadosEntramNoIndice() throws InterruptedException {
+        LivroServiceImpl livros = new LivroServiceImpl(repositorio());
+        assertTrue(livros.pesquisar("quixote", 10).isEmpty());
+
+        banco.add(new Livro(1, "Dom Quixote", "9789722021403", "Dom Quixote", 2, null, null));
+        banco.add(new Livro(2, "Quixote Anotado", "9789722021404", "Dom Quixote", 1, null, null));
+        livros.indexarCadastrados(Arrays.asList(1, 2));
+
+        List<Livro> encontrados = esperarResultados(livros, "quixote");
+        assertEquals(2, encontrados.size());
+    }
+
+    @Test
+    void semCadastradosNaoVaiAoBanco() {
+        LivroServiceImpl livros = new LivroServiceImpl(repositorio());
+        // findWhere falharia
+        livros.indexarCadastrados(Collections.emptyList());
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /** A carga do índice corre numa thread; até lá as buscas vão ao repositório (vazio) */
+    private static List<Livro> esperarResultados(LivroServiceImpl livros, String consulta)
+            throws InterruptedException {
+        List<Livro> encontrados = livros.pesquisar(consulta, 10);
+        for (int i = 0; i < 100 && encontrados.isEmpty(); i++) {
+            Thread.sleep(50);
+            encontrados = livros.pesquisar(consulta, 10);
+        }
+        return encontrados;
+    }
+
+    private LivroRepository repositorio() {
+        return (LivroRepository) Proxy.newProxyInstance(
+                LivroServiceImplTest.class.getClassLoader(), new Class<?>[] {LivroRepository.class},
+                (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "forEach":
+                            return true;
+                        case "findWhere":
+                            return new ArrayList<>(banco);
+                        case "findById":
+                            return banco.stream().filter(l -> l.getId() == (Integer) args[0]).findFirst();
+                        case "findByTituloContaining":
+                            return new ArrayList<Livro>();
+                        default:
+                            throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,179 @@
+package isptec.biblioteca.servidor;
+
+import isptec.biblioteca.exception.AutenticacaoException;
+import isptec.biblioteca.exception.BibliotecaException;
+import isptec.biblioteca.util.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServidorApiTest {
+
+    private ServidorApi servidor;
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        // Sem banco: a configuração do servidor fica vazia
+        servidor = new ServidorApi(0, nome -> null);
+        servidor.registar("GET", "/api/livros/{id}", pedido -> {
+            Map<String, Object> livro = new LinkedHashMap<>();
+            livro.put("id", pedido.parametroInt("id"));
+            livro.put("q", pedido.consulta("q"));
+            pedido.responder(200, livro);
+        });
+        servidor.registar("GET", "/api/livros/{id}/exemplares/{n}", pedido -> {
+            Map<String, Object> exemplar = new LinkedHashMap<>();
+            exemplar.put("livro", pedido.parametro("id"));
+            exemplar.put("n", pedido.parametro("n"));
+            pedido.responder(200, exemplar);
+        });
+        servidor.registar("GET", "/api/lista", pedido -> {
+            try (PedidoHttp.ListaJson lista = pedido.responderLista(200)) {
+                for (int i = 0; i < 1000; i++) {
+                    lista.adicionar(i);
+                }
+            }
+        });
+        servidor.registar("POST", "/api/eco", pedido -> pedido.responder(201, pedido.corpoJson()));
+        servidor.registar("DELETE", "/api/nada", pedido -> { });
+        servidor.registar("GET", "/api/privado", pedido -> {
+            if (pedido.cabecalho("Authorization") == null) {
+                throw AutenticacaoException.sessaoExpirada();
+            }
+            throw new ServidorApi.ErroHttp(403, "Só para funcionários");
+        });
+        servidor.registar("GET", "/api/conflito", pedido -> {
+            throw new BibliotecaException("Livro indisponível");
+        });
+        servidor.registar("GET", "/api/falha", pedido -> {
+            throw new IllegalStateException("inesperado");
+        });
+        servidor.iniciar();
+    }
+
+    @AfterEach
+    void encerrar() {
+        servidor.encerrar(0);
+    }
+
+    private HttpResponse<String> pedir(String metodo, String caminho, String corpo, String... cabecalhos)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder pedido = HttpRequest.newBuilder(URI.create("http://localhost:" + servidor.getPorta() + caminho))
+                .method(metodo, corpo != null ? HttpRequest.BodyPublishers.ofString(corpo)
+                        : HttpRequest.BodyPublishers.noBody());
+        if (cabecalhos.length > 0) {
+            pedido.headers(cabecalhos);
+        }
+        return cliente.send(pedido.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String caminho) throws IOException, InterruptedException {
+        return pedir("GET", caminho, null);
+    }
+
+    private static String erro(HttpResponse<String> resposta) {
+        return (String) Json.lerObjeto(resposta.body()).get("erro");
+    }
+
+    @Test
+    void parametrosDoCaminhoEDaConsulta() throws Exception {
+        HttpResponse<String> resposta = get("/api/livros/42?q=dom%20casmurro");
+        assertEquals(200, resposta.statusCode());
+        assertTrue(resposta.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        Map<String, Object> livro = Json.lerObjeto(resposta.body());
+        assertEquals(42, ((Number) livro.get("id")).intValue());
+        assertEquals("dom casmurro", livro.get("q"));
+
+        Map<String, Object> exemplar = Json.lerObjeto(get("/api/livros/7/exemplares/3/").body());
+        assertEquals("7", exemplar.get("livro"));
+        assertEquals("3", exemplar.get("n"));
+    }
+
+    @Test
+    void caminhoOuMetodoDesconhecido() throws Exception {
+        assertEquals(404, get("/api/inexistente").statusCode());
+        assertEquals(404, get("/api/livros").statusCode());
+        HttpResponse<String> resposta = pedir("DELETE", "/api/livros/1", null);
+        assertEquals(405, resposta.statusCode());
+        assertTrue(erro(resposta).contains("DELETE"));
+    }
+
+    @Test
+    void corpoJsonERespostaVazia() throws Exception {
+        HttpResponse<String> eco = pedir("POST", "/api/eco", "{\"livroId\": 3, \"nome\": \"Ana\"}");
+        assertEquals(201, eco.statusCode());
+        assertEquals("Ana", Json.lerObjeto(eco.body()).get("nome"));
+
+        assertEquals(400, pedir("POST", "/api/eco", "[1, 2").statusCode());
+        // Manipulador que não respondeu
+        assertEquals(204, pedir("DELETE", "/api/nada", null).statusCode());
+    }
+
+    @Test
+    void listaEmFluxo() throws Exception {
+        HttpResponse<String> resposta = get("/api/lista");
+        assertEquals(200, resposta.statusCode());
+        List<?> lista = (List<?>) Json.ler(resposta.body());
+        assertEquals(1000, lista.size());
+        assertEquals(999, ((Number) lista.get(999)).intValue());
+    }
+
+    @Test
+    void errosDeAutenticacaoEPermissao() throws Exception {
+        assertEquals(401, get("/api/privado").statusCode());
+        assertEquals(403, pedir("GET", "/api/privado", null, "Authorization", "Bearer abc").statusCode());
+        HttpResponse<String> conflito = get("/api/conflito");
+        assertEquals(409, conflito.statusCode());
+        assertEquals("Livro indisponível", erro(conflito));
+        assertEquals(400, get("/api/livros/abc").statusCode());
+    }
+
+    @Test
+    void erroInternoNaoExpoeAMensagem() throws Exception {
+        HttpResponse<String> resposta = get("/api/falha");
+        assertEquals(500, resposta.statusCode());
+        assertEquals("Erro interno", erro(resposta));
+    }
+
+    @Test
+    void metricasPorEndpoint() throws Exception {
+        get("/api/livros/1");
+        get("/api/livros/2");
+        get("/api/falha");
+
+        // A latência é registada depois de a resposta seguir: espera que apareça
+        Map<?, ?> livros = metrica("GET /api/livros/{id}");
+        Map<?, ?> falha = metrica("GET /api/falha");
+        for (int tentativa = 0; tentativa < 50 && ((Number) falha.get("erros")).intValue() == 0; tentativa++) {
+            Thread.sleep(20);
+            livros = metrica("GET /api/livros/{id}");
+            falha = metrica("GET /api/falha");
+        }
+        assertEquals(2, ((Number) livros.get("pedidos")).intValue());
+        assertEquals(0, ((Number) livros.get("erros")).intValue());
+        assertEquals(1, ((Number) falha.get("erros")).intValue());
+    }
+
+    private Map<?, ?> metrica(String endpoint) throws IOException, InterruptedException {
+        for (Object item : (List<?>) Json.ler(get("/api/metricas").body())) {
+            Map<?, ?> metrica = (Map<?, ?>) item;
+            if (endpoint.equals(metrica.get("endpoint"))) {
+                return metrica;
+            }
+        }
+        throw new AssertionError("Sem métricas de " + endpoint);
+    }
+}
@@ -0,0 +1,130 @@
+package isptec.biblioteca.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheLimitadoTest {
+
+    private static CacheLimitado<Integer, int[]> cache(int maximo) {
+        return new CacheLimitado<>(maximo, 0, TimeUnit.SECONDS, int[]::clone);
+    }
+
+    private static void colocar(CacheLimitado<Integer, int[]> cache, int chave) {
+        cache.colocar(chave, new int[] {chave}, cache.marca());
+    }
+
+    @Test
+    void obterDevolveUmaCopia() {
+        CacheLimitado<Integer, int[]> cache = cache(10);
+        int[] valor = {1, 2};
+        cache.colocar(1, valor, cache.marca());
+        valor[0] = 99;
+
+        int[] lido = cache.obter(1);
+        assertArrayEquals(new int[] {1, 2}, lido);
+        lido[1] = 99;
+        assertArrayEquals(new int[] {1, 2}, cache.obter(1));
+        assertNull(cache.obter(2));
+        assertEquals(2, cache.getAcertos());
+        assertEquals(1, cache.getFalhas());
+    }
+
+    @Test
+    void substituirMantemOTamanho() {
+        CacheLimitado<Integer, int[]> cache = cache(10);
+        colocar(cache, 1);
+        cache.colocar(1, new int[] {2}, cache.marca());
+        assertEquals(1, cache.getTamanho());
+        assertArrayEquals(new int[] {2}, cache.obter(1));
+    }
+
+    @Test
+    void nuncaPassaDoMaximo() {
+        CacheLimitado<Integer, int[]> cache = cache(100);
+        for (int chave = 0; chave < 5000; chave++) {
+            colocar(cache, chave);
+            assertTrue(cache.getTamanho() <= 100);
+        }
+        assertEquals(100, cache.getTamanho());
+        assertEquals(4900, cache.getRemocoes());
+    }
+
+    @Test
+    void varrimentoNaoExpulsaAsPopulares() {
+        CacheLimitado<Integer, int[]> cache = cache(200);
+        for (int chave = 0; chave < 100; chave++) {
+            colocar(cache, chave);
+        }
+        for (int vez = 0; vez < 5; vez++) {
+            for (int chave = 0; chave < 100; chave++) {
+                cache.obter(chave);
+            }
+        }
+        // Chaves pedidas uma só vez, muito mais do que cabem
+        for (int chave = 1000; chave < 5000; chave++) {
+            cache.obter(chave);
+            colocar(cache, chave);
+        }
+        int presentes = 0;
+        for (int chave = 0; chave < 100; chave++) {
+            if (cache.obter(chave) != null) {
+                presentes++;
+            }
+        }
+        assertTrue(presentes >= 95, "populares na cache: " + presentes);
+    }
+
+    @Test
+    void valorLidoAntesDeUmaInvalidacaoEDescartado() {
+        CacheLimitado<Integer, int[]> cache = cache(10);
+        long marca = cache.marca();
+        // Outra thread escreve e invalida enquanto esta lia da origem
+        cache.invalidar(1);
+        cache.colocar(1, new int[] {1}, marca);
+        assertNull(cache.obter(1));
+
+        cache.colocar(1, new int[] {1}, cache.marca());
+        assertArrayEquals(new int[] {1}, cache.obter(1));
+    }
+
+    @Test
+    void invalidarELimpar() {
+        CacheLimitado<Integer, int[]> cache = cache(10);
+        colocar(cache, 1);
+        colocar(cache, 2);
+        cache.invalidar(1);
+        assertNull(cache.obter(1));
+        assertArrayEquals(new int[] {2}, cache.obter(2));
+
+        cache.limpar();
+        assertEquals(0, cache.getTamanho());
+        assertNull(cache.obter(2));
+        // Depois de limpar continua a funcionar
+        colocar(cache, 3);
+        assertArrayEquals(new int[] {3}, cache.obter(3));
+    }
+
+    @Test
+    void entradasExpiram() throws InterruptedException {
+        CacheLimitado<Integer, int[]> cache = new CacheLimitado<>(10, 20, TimeUnit.MILLISECONDS, int[]::clone);
+        colocar(cache, 1);
+        assertArrayEquals(new int[] {1}, cache.obter(1));
+        Thread.sleep(50);
+        assertNull(cache.obter(1));
+        assertEquals(0, cache.getTamanho());
+    }
+
+    @Test
+    void argumentosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> cache(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CacheLimitado<Integer, int[]>(10, -1, TimeUnit.SECONDS, int[]::clone));
+    }
+}
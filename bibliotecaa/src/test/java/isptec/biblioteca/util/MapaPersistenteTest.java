@@ -0,0 +1,159 @@
+package isptec.biblioteca.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapaPersistenteTest {
+
+    /** Chave com o hash escolhido, para forçar colisões */
+    private static final class Chave {
+        private final String nome;
+        private final int hash;
+
+        Chave(String nome, int hash) {
+            this.nome = nome;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof Chave && ((Chave) outro).nome.equals(nome);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    void inserirEConsultarMuitasChaves() {
+        MapaPersistente<String, Integer> mapa = MapaPersistente.vazio();
+        for (int i = 0; i < 5000; i++) {
+            mapa = mapa.com("L" + i, i);
+        }
+        assertEquals(5000, mapa.tamanho());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(Integer.valueOf(i), mapa.get("L" + i));
+        }
+        assertNull(mapa.get("L5000"));
+    }
+
+    @Test
+    void substituirNaoMudaTamanho() {
+        MapaPersistente<String, Integer> mapa = MapaPersistente.<String, Integer>vazio().com("a", 1);
+        MapaPersistente<String, Integer> novo = mapa.com("a", 2);
+        assertEquals(1, novo.tamanho());
+        assertEquals(Integer.valueOf(2), novo.get("a"));
+        assertEquals(Integer.valueOf(1), mapa.get("a"));
+    }
+
+    @Test
+    void chavesComOMesmoHash() {
+        Chave a = new Chave("a", 42);
+        Chave b = new Chave("b", 42);
+        Chave c = new Chave("c", 42);
+        MapaPersistente<Chave, String> mapa = MapaPersistente.<Chave, String>vazio().com(a, "A").com(b, "B").com(c, "C");
+
+        assertEquals(3, mapa.tamanho());
+        assertEquals("A", mapa.get(a));
+        assertEquals("B", mapa.get(b));
+        assertEquals("C", mapa.get(c));
+        assertNull(mapa.get(new Chave("d", 42)));
+
+        MapaPersistente<Chave, String> alterado = mapa.com(b, "B2");
+        assertEquals(3, alterado.tamanho());
+        assertEquals("B2", alterado.get(b));
+        assertEquals("B", mapa.get(b));
+    }
+
+    @Test
+    void removerDeUmaColisao() {
+        Chave a = new Chave("a", 7);
+        Chave b = new Chave("b", 7);
+        Chave c = new Chave("c", 7);
+        MapaPersistente<Chave, String> mapa = MapaPersistente.<Chave, String>vazio().com(a, "A").com(b, "B").com(c, "C");
+
+        MapaPersistente<Chave, String> semB = mapa.sem(b);
+        assertEquals(2, semB.tamanho());
+        assertNull(semB.get(b));
+        assertEquals("A", semB.get(a));
+        assertEquals("C", semB.get(c));
+
+        MapaPersistente<Chave, String> soC = semB.sem(a);
+        assertEquals(1, soC.tamanho());
+        assertEquals("C", soC.get(c));
+
+        MapaPersistente<Chave, String> vazio = soC.sem(c);
+        assertEquals(0, vazio.tamanho());
+        assertFalse(vazio.contem(c));
+
+        // A versão original não muda
+        assertEquals(3, mapa.tamanho());
+        assertEquals("B", mapa.get(b));
+    }
+
+    @Test
+    void colisaoJuntoDeOutrasChaves() {
+        // Hash diferente, mas que partilha com a colisão os primeiros níveis da árvore
+        Chave a = new Chave("a", 1);
+        Chave b = new Chave("b", 1);
+        Chave vizinha = new Chave("v", 1 | (1 << 30));
+        MapaPersistente<Chave, String> mapa = MapaPersistente.<Chave, String>vazio()
+                .com(a, "A").com(vizinha, "V").com(b, "B");
+
+        assertEquals(3, mapa.tamanho());
+        assertEquals("V", mapa.get(vizinha));
+        MapaPersistente<Chave, String> semA = mapa.sem(a);
+        assertEquals(2, semA.tamanho());
+        assertEquals("B", semA.get(b));
+        assertEquals("V", semA.get(vizinha));
+    }
+
+    @Test
+    void removerTodasAsChaves() {
+        MapaPersistente<String, Integer> mapa = MapaPersistente.vazio();
+        for (int i = 0; i < 2000; i++) {
+            mapa = mapa.com("M" + i, i);
+        }
+        MapaPersistente<String, Integer> cheio = mapa;
+        for (int i = 0; i < 2000; i += 2) {
+            mapa = mapa.sem("M" + i);
+        }
+        assertEquals(1000, mapa.tamanho());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(i % 2 == 1, mapa.contem("M" + i));
+        }
+        for (int i = 1; i < 2000; i += 2) {
+            mapa = mapa.sem("M" + i);
+        }
+        assertEquals(0, mapa.tamanho());
+        assertEquals(2000, cheio.tamanho());
+        assertEquals(Integer.valueOf(1234), cheio.get("M1234"));
+    }
+
+    @Test
+    void removerChaveAusenteDevolveOMesmoMapa() {
+        MapaPersistente<String, Integer> mapa = MapaPersistente.<String, Integer>vazio().com("a", 1);
+        assertSame(mapa, mapa.sem("b"));
+    }
+
+    @Test
+    void chaveNull() {
+        MapaPersistente<String, Integer> mapa = MapaPersistente.<String, Integer>vazio().com(null, 1).com("a", 2);
+        assertEquals(Integer.valueOf(1), mapa.get(null));
+        assertTrue(mapa.sem(null).contem("a"));
+        assertFalse(mapa.sem(null).contem(null));
+    }
+
+    @Test
+    void valorNullRecusado() {
+        assertThrows(NullPointerException.class, () -> MapaPersistente.<String, Integer>vazio().com("a", null));
+    }
+}
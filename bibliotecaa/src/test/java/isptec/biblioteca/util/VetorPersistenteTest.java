@@ -0,0 +1,94 @@
+package isptec.biblioteca.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VetorPersistenteTest {
+
+    private static VetorPersistente<Integer> ate(int n) {
+        VetorPersistente<Integer> vetor = VetorPersistente.vazio();
+        for (int i = 0; i < n; i++) {
+            vetor = vetor.com(i);
+        }
+        return vetor;
+    }
+
+    private static void verificar(VetorPersistente<Integer> vetor, int n) {
+        assertEquals(n, vetor.tamanho());
+        for (int i = 0; i < n; i++) {
+            assertEquals(Integer.valueOf(i), vetor.get(i), "posição " + i);
+        }
+    }
+
+    @Test
+    void acrescentarAtravesDosLimitesDaCauda() {
+        // Cauda cheia (32), raiz com um nível cheia (1024), e mais um nível (32768)
+        int[] tamanhos = {1, 31, 32, 33, 63, 64, 65, 1023, 1024, 1025, 1056, 1057, 32768, 32800, 32801};
+        VetorPersistente<Integer> vetor = VetorPersistente.vazio();
+        int feito = 0;
+        for (int tamanho : tamanhos) {
+            while (feito < tamanho) {
+                vetor = vetor.com(feito++);
+            }
+            verificar(vetor, tamanho);
+        }
+    }
+
+    @Test
+    void versoesAnterioresNaoMudam() {
+        VetorPersistente<Integer> antes = ate(1056);
+        VetorPersistente<Integer> depois = antes.com(1056);
+        verificar(antes, 1056);
+        verificar(depois, 1057);
+    }
+
+    @Test
+    void substituirNaArvoreENaCauda() {
+        VetorPersistente<Integer> vetor = ate(1100);
+        VetorPersistente<Integer> alterado = vetor.com(5, -5).com(1090, -1090);
+        assertEquals(Integer.valueOf(-5), alterado.get(5));
+        assertEquals(Integer.valueOf(-1090), alterado.get(1090));
+        assertEquals(Integer.valueOf(6), alterado.get(6));
+        verificar(vetor, 1100);
+    }
+
+    @Test
+    void retirarDeslocaOsSeguintes() {
+        VetorPersistente<Integer> vetor = ate(40).sem(10);
+        assertEquals(39, vetor.tamanho());
+        assertEquals(Integer.valueOf(9), vetor.get(9));
+        assertEquals(Integer.valueOf(11), vetor.get(10));
+        assertEquals(Integer.valueOf(39), vetor.get(38));
+    }
+
+    @Test
+    void desdeDescartaOInicio() {
+        VetorPersistente<Integer> vetor = ate(1030).desde(1000);
+        assertEquals(30, vetor.tamanho());
+        assertEquals(Integer.valueOf(1000), vetor.get(0));
+        assertEquals(Integer.valueOf(1029), vetor.get(29));
+    }
+
+    @Test
+    void comoListaSemCopia() {
+        VetorPersistente<Integer> vetor = ate(100);
+        List<Integer> lista = vetor.comoLista();
+        assertEquals(100, lista.size());
+        assertEquals(Integer.valueOf(99), lista.get(99));
+        List<Integer> parte = vetor.comoLista(30, 40);
+        assertEquals(10, parte.size());
+        assertEquals(Integer.valueOf(30), parte.get(0));
+        assertThrows(UnsupportedOperationException.class, () -> lista.add(1));
+    }
+
+    @Test
+    void posicaoForaDoVetor() {
+        VetorPersistente<Integer> vetor = ate(3);
+        assertThrows(IndexOutOfBoundsException.class, () -> vetor.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> vetor.get(-1));
+    }
+}